@@ -0,0 +1,86 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: InputBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.benchmark;
+
+import com.sun.electric.database.id.IdManager;
+import com.sun.electric.database.id.LibId;
+import com.sun.electric.tool.io.FileType;
+import com.sun.electric.tool.io.GDSReader;
+import com.sun.electric.tool.io.input.JelibParser;
+import com.sun.electric.tool.user.ErrorLogger;
+import com.sun.electric.util.TextUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of parsing the synthetic library from JELIB and of reading the tokens of its GDS.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class InputBenchmark {
+
+	private URL jelibURL;
+	private LibId libId;
+	private byte[] gdsBytes;
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticDesign design) {
+		jelibURL = TextUtils.makeURLToFile(design.jelibFile.getPath());
+		libId = new IdManager().newLibId("benchmark");
+		gdsBytes = design.gdsBytes;
+	}
+
+	@Benchmark
+	public JelibParser jelibParser() throws Exception {
+		return JelibParser.parse(libId, jelibURL, FileType.JELIB, false, ErrorLogger.newInstance("JELIB benchmark"));
+	}
+
+	@Benchmark
+	public int gdsReader() throws Exception {
+		GDSReader reader = new GDSReader("benchmark.gds", new DataInputStream(new ByteArrayInputStream(gdsBytes)), 0);
+		int numTokens = 0;
+		do {
+			reader.getToken();
+			numTokens++;
+		} while (reader.getTokenType() != GDSReader.GDS_ENDLIB);
+		return numTokens;
+	}
+}
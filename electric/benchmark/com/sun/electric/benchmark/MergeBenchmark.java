@@ -0,0 +1,106 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: MergeBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.benchmark;
+
+import com.sun.electric.database.geometry.Poly;
+import com.sun.electric.database.geometry.PolyBase;
+import com.sun.electric.database.geometry.PolyMerge;
+import com.sun.electric.database.geometry.bool.LayoutMerger;
+import com.sun.electric.database.geometry.bool.LayoutMergerFactory;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.technology.Layer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of merging geometry with PolyMerge and with the scan-line merger in database.geometry.bool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class MergeBenchmark {
+
+	/** shapes of the flat cell */					private List<Poly> polys;
+	/** layers of the shapes */						private Set<Layer> layers;
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticDesign design) {
+		design.setUpThread();
+		polys = new ArrayList<Poly>();
+		for (Iterator<NodeInst> it = design.flat.getNodes(); it.hasNext(); ) {
+			NodeInst ni = it.next();
+			for (Poly poly : design.tech.getShapeOfNode(ni))
+				polys.add(poly);
+		}
+		for (Iterator<ArcInst> it = design.flat.getArcs(); it.hasNext(); ) {
+			ArcInst ai = it.next();
+			for (Poly poly : design.tech.getShapeOfArc(ai))
+				polys.add(poly);
+		}
+		layers = new LinkedHashSet<Layer>();
+		for (Poly poly : polys)
+			layers.add(poly.getLayer());
+	}
+
+	@Benchmark
+	public void polyMerge(Blackhole bh) {
+		PolyMerge merge = new PolyMerge();
+		for (Poly poly : polys)
+			merge.addPolygon(poly.getLayer(), poly);
+		for (Layer layer : layers) {
+			List<PolyBase> merged = merge.getMergedPoints(layer, true);
+			bh.consume(merged);
+		}
+	}
+
+	@Benchmark
+	public void layoutMerger(SyntheticDesign design, Blackhole bh) {
+		LayoutMerger merger = LayoutMergerFactory.getInstance().newMerger(design.array);
+		for (Layer layer : merger.getLayers()) {
+			if (!merger.canMerge(layer)) continue;
+			for (PolyBase.PolyBaseTree tree : merger.merge(layer))
+				bh.consume(tree);
+		}
+	}
+}
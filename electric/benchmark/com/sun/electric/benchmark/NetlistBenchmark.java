@@ -0,0 +1,58 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: NetlistBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.benchmark;
+
+import com.sun.electric.database.network.NetCell;
+import com.sun.electric.database.network.Netlist;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of building the netlist of a layout cell from scratch.
+ * Netlists of subcells are cached by the NetworkManager, so the array
+ * measures only the top level.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NetlistBenchmark {
+
+	@Benchmark
+	public Netlist flatNetlist(SyntheticDesign design) {
+		return NetCell.newInstance(design.flat).getNetlist(Netlist.ShortResistors.NO);
+	}
+
+	@Benchmark
+	public Netlist arrayNetlist(SyntheticDesign design) {
+		return NetCell.newInstance(design.array).getNetlist(Netlist.ShortResistors.NO);
+	}
+}
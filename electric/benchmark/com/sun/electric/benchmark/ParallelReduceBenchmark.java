@@ -0,0 +1,100 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ParallelReduceBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.benchmark;
+
+import com.sun.electric.tool.util.concurrent.Parallel;
+import com.sun.electric.tool.util.concurrent.exceptions.PoolExistsException;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.IThreadPool;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPool;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolJdkForkJoin;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
+import com.sun.electric.tool.util.concurrent.test.PReduceJob_T.PITask;
+import com.sun.electric.tool.util.concurrent.utils.BlockedRange1D;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the scaling of a parallel reduce which integrates pi,
+ * in ThreadPool and in a private ForkJoin pool of the given number of threads,
+ * and in the shared ForkJoin pool, which has one thread per processor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ParallelReduceBenchmark {
+
+	/** number of integration steps */			@Param({"20000000"}) public int numSteps;
+	/** number of threads of the private pools */	@Param({"1", "2", "4", "8"}) public int numThreads;
+
+	private BlockedRange1D range;
+	private ThreadPool threadPool;
+	private ThreadPoolJdkForkJoin forkJoin;
+
+	@Setup(Level.Trial)
+	public void setUp() throws PoolExistsException {
+		range = new BlockedRange1D(0, numSteps, 4096);
+		threadPool = ThreadPool.initialize(numThreads);
+		forkJoin = ThreadPoolJdkForkJoin.initialize(numThreads);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		threadPool.shutdown();
+		forkJoin.shutdown();
+	}
+
+	private double reduce(IThreadPool pool) {
+		return Parallel.Reduce(range, new PITask(1.0 / numSteps), pool).doubleValue();
+	}
+
+	@Benchmark
+	public double threadPool() {
+		return reduce(threadPool);
+	}
+
+	@Benchmark
+	public double forkJoin() {
+		return reduce(forkJoin);
+	}
+
+	@Benchmark
+	public double sharedForkJoin() {
+		return reduce(ThreadPoolSharedForkJoin.getInstance());
+	}
+}
@@ -0,0 +1,116 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: RTreeBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.benchmark;
+
+import com.sun.electric.database.geometry.ERectangle;
+import com.sun.electric.database.topology.RTBounds;
+import com.sun.electric.database.topology.RTNode;
+import com.sun.electric.util.math.AbstractFixpRectangle;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of building and searching R-Trees of random rectangles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class RTreeBenchmark {
+
+	/** number of rectangles in the tree */		@Param({"100000"}) public int numRects;
+
+	private static final double AREA = 10000;
+	private static final double WINDOW = 100;
+	private static final int NUMWINDOWS = 1000;
+
+	private Box[] boxes;
+	private Rectangle2D[] windows;
+	private RTNode<Box> root;
+
+	/**
+	 * Rectangle in the R-Tree.
+	 */
+	public static class Box implements RTBounds {
+		private final ERectangle bounds;
+
+		private Box(ERectangle bounds) {
+			this.bounds = bounds;
+		}
+
+		@Override
+		public AbstractFixpRectangle getBounds() {
+			return bounds;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random rand = new Random(0);
+		boxes = new Box[numRects];
+		for (int i = 0; i < numRects; i++) {
+			boxes[i] = new Box(ERectangle.fromLambda(rand.nextDouble() * AREA, rand.nextDouble() * AREA,
+				1 + rand.nextDouble() * 20, 1 + rand.nextDouble() * 20));
+		}
+		windows = new Rectangle2D[NUMWINDOWS];
+		for (int i = 0; i < NUMWINDOWS; i++) {
+			windows[i] = ERectangle.fromLambda(rand.nextDouble() * (AREA - WINDOW), rand.nextDouble() * (AREA - WINDOW),
+				WINDOW, WINDOW);
+		}
+		root = insert();
+	}
+
+	@Benchmark
+	public RTNode<Box> insert() {
+		RTNode<Box> root = RTNode.makeTopLevel();
+		for (Box box : boxes)
+			root = RTNode.linkGeom(null, root, box);
+		return root;
+	}
+
+	@Benchmark
+	public void search(Blackhole bh) {
+		for (Rectangle2D window : windows) {
+			for (Iterator<Box> it = new RTNode.Search<Box>(window, root, true); it.hasNext(); )
+				bh.consume(it.next());
+		}
+	}
+}
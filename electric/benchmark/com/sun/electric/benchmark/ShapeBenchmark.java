@@ -0,0 +1,104 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ShapeBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.benchmark;
+
+import com.sun.electric.database.CellBackup;
+import com.sun.electric.database.ImmutableArcInst;
+import com.sun.electric.database.ImmutableNodeInst;
+import com.sun.electric.database.geometry.EGraphics;
+import com.sun.electric.database.geometry.Poly;
+import com.sun.electric.database.id.PrimitiveNodeId;
+import com.sun.electric.technology.AbstractShapeBuilder;
+import com.sun.electric.technology.Layer;
+import com.sun.electric.technology.PrimitivePort;
+import com.sun.electric.util.math.Orientation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of generating the shapes of the nodes and arcs of the flat cell.
+ * Shapes are only counted, so the benchmark measures AbstractShapeBuilder itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ShapeBenchmark {
+
+	private CellBackup cellBackup;
+
+	/**
+	 * Shape builder which counts the shapes.
+	 */
+	private static class CountingShapeBuilder extends AbstractShapeBuilder {
+		private int numShapes;
+
+		@Override
+		protected void addPoly(int numPoints, Poly.Type style, Layer layer, EGraphics graphicsOverride, PrimitivePort pp) {
+			numShapes++;
+		}
+
+		@Override
+		protected void addBox(Layer layer) {
+			numShapes++;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticDesign design) {
+		cellBackup = design.database.backup().getCell(design.flat.getId());
+	}
+
+	@Benchmark
+	public int genShapeOfNode() {
+		CountingShapeBuilder b = new CountingShapeBuilder();
+		b.setup(cellBackup, Orientation.IDENT, false, false, false, null);
+		for (ImmutableNodeInst n : cellBackup.cellRevision.nodes) {
+			if (n.protoId instanceof PrimitiveNodeId)
+				b.getTechPool().getPrimitiveNode((PrimitiveNodeId)n.protoId).genShape(b, n);
+		}
+		return b.numShapes;
+	}
+
+	@Benchmark
+	public int genShapeOfArc() {
+		CountingShapeBuilder b = new CountingShapeBuilder();
+		b.setup(cellBackup, Orientation.IDENT, false, false, false, null);
+		for (ImmutableArcInst a : cellBackup.cellRevision.arcs)
+			b.genShapeOfArc(a);
+		return b.numShapes;
+	}
+}
@@ -0,0 +1,91 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SnapshotBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.benchmark;
+
+import com.sun.electric.database.CellBackup;
+import com.sun.electric.database.ImmutableNodeInst;
+import com.sun.electric.database.Snapshot;
+import com.sun.electric.database.geometry.EPoint;
+import com.sun.electric.database.id.NodeProtoId;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of making new immutable CellBackups and Snapshots after a node of the flat cell moves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+	private Snapshot snapshot;
+	private CellBackup cellBackup;
+	/** nodes of the flat cell with one well moved */	private ImmutableNodeInst[] movedNodes;
+	/** CellBackups of the snapshot with the moved well */	private CellBackup[] movedCellBackups;
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticDesign design) {
+		design.setUpThread();
+		snapshot = design.database.backup();
+		cellBackup = snapshot.getCell(design.flat.getId());
+
+		// move a well which is not connected to arcs
+		NodeProtoId wellId = design.tech.findNodeProto("N-Well-Node").getId();
+		movedNodes = new ImmutableNodeInst[cellBackup.cellRevision.nodes.size()];
+		boolean moved = false;
+		for (int i = 0; i < movedNodes.length; i++) {
+			ImmutableNodeInst n = cellBackup.cellRevision.nodes.get(i);
+			if (!moved && n.protoId == wellId) {
+				n = n.withAnchor(EPoint.fromLambda(n.anchor.getLambdaX() + 1, n.anchor.getLambdaY()));
+				moved = true;
+			}
+			movedNodes[i] = n;
+		}
+		movedCellBackups = snapshot.cellBackups.toArray(new CellBackup[snapshot.cellBackups.size()]);
+		movedCellBackups[design.flat.getId().cellIndex] = cellBackupWith();
+	}
+
+	@Benchmark
+	public CellBackup cellBackupWith() {
+		return cellBackup.with(cellBackup.cellRevision.d, movedNodes, null, null, snapshot.techPool);
+	}
+
+	@Benchmark
+	public Snapshot snapshotWith() {
+		return snapshot.with(null, null, movedCellBackups, null);
+	}
+}
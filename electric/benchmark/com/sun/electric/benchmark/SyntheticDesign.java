@@ -0,0 +1,192 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SyntheticDesign.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.benchmark;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.Environment;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.database.hierarchy.Export;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.variable.VarContext;
+import com.sun.electric.technology.ArcProto;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.technology.Technology;
+import com.sun.electric.tool.io.output.GDS;
+import com.sun.electric.tool.io.output.Output;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.nio.file.Files;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Synthetic MOSIS CMOS design which is shared by the benchmarks.
+ * <p>
+ * A tile is an inverter with wells, well contacts and exports.
+ * The flat cell has size x size tiles drawn with primitives, where the output of each
+ * inverter drives the input of the next one in its row and the rails run along the rows.
+ * The array cell has size x size instances of the tile cell.
+ * The library is also written as JELIB and the array cell as GDS, so the readers
+ * can be measured without touching the disk.
+ */
+@State(Scope.Benchmark)
+public class SyntheticDesign extends AbstractJunitBaseClass {
+
+	/** number of tiles in a row and in a column */	@Param({"32"}) public int size;
+
+	public EDatabase database;
+	public EditingPreferences ep;
+	public Technology tech;
+	public Library lib;
+	public Cell tile, flat, array;
+	/** the library written as JELIB */				public File jelibFile;
+	/** the array cell written as GDS */				public byte[] gdsBytes;
+
+	private static final double TILE_WIDTH = 40;
+	private static final double TILE_HEIGHT = 60;
+
+	private PrimitiveNode nWell, pWell, nWellCon, pWellCon, pTran, nTran, pActCon, nActCon, polyCon, viaCon;
+	private ArcProto metal1, poly1;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		initElectric();
+		database = EDatabase.serverDatabase();
+		database.lowLevelBeginChanging(null);
+		ep = new EditingPreferences(true, database.getTechPool());
+		EditingPreferences.lowLevelSetThreadLocalEditingPreferences(ep);
+		tech = Technology.findTechnology("mocmos");
+		nWell = tech.findNodeProto("N-Well-Node");
+		pWell = tech.findNodeProto("P-Well-Node");
+		nWellCon = tech.findNodeProto("Metal-1-N-Well-Con");
+		pWellCon = tech.findNodeProto("Metal-1-P-Well-Con");
+		pTran = tech.findNodeProto("P-Transistor");
+		nTran = tech.findNodeProto("N-Transistor");
+		pActCon = tech.findNodeProto("Metal-1-P-Active-Con");
+		nActCon = tech.findNodeProto("Metal-1-N-Active-Con");
+		polyCon = tech.findNodeProto("Metal-1-Polysilicon-1-Con");
+		viaCon = tech.findNodeProto("Metal-1-Metal-2-Con");
+		metal1 = tech.findArcProto("Metal-1");
+		poly1 = tech.findArcProto("Polysilicon-1");
+
+		lib = Library.newInstance("benchmark", null);
+		tile = Cell.makeInstance(ep, lib, "tile{lay}");
+		drawTile(tile, 0, 0, null, true);
+		flat = Cell.makeInstance(ep, lib, "flat{lay}");
+		for (int r = 0; r < size; r++) {
+			NodeInst[] prev = null;
+			for (int c = 0; c < size; c++)
+				prev = drawTile(flat, c * TILE_WIDTH, r * TILE_HEIGHT, prev, false);
+		}
+		array = Cell.makeInstance(ep, lib, "array{lay}");
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++)
+				NodeInst.makeInstance(tile, ep, new Point2D.Double(c * TILE_WIDTH, r * TILE_HEIGHT), 0, 0, array);
+		}
+		database.backup();
+		database.lowLevelEndChanging();
+
+		// examine the database from any benchmark thread
+		database.unlock();
+		database.lock(false);
+
+		jelibFile = File.createTempFile("benchmark", ".jelib");
+		jelibFile.deleteOnExit();
+		if (Output.saveJelib(jelibFile.getPath(), lib))
+			throw new IllegalStateException("Can't write " + jelibFile);
+
+		File gdsFile = File.createTempFile("benchmark", ".gds");
+		gdsFile.deleteOnExit();
+		new GDS.GDSPreferences(true, array).doOutput(array, VarContext.globalContext, gdsFile.getPath());
+		gdsBytes = Files.readAllBytes(gdsFile.toPath());
+		gdsFile.delete();
+	}
+
+	/**
+	 * Method to set thread locals of Electric in the benchmark thread.
+	 */
+	@Setup(Level.Iteration)
+	public void setUpThread() {
+		Environment.setThreadEnvironment(database.getEnvironment());
+		EditingPreferences.lowLevelSetThreadLocalEditingPreferences(ep);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		jelibFile.delete();
+	}
+
+	private NodeInst makeNode(PrimitiveNode np, Cell cell, double x, double y, double width, double height) {
+		if (width == 0) width = np.getDefWidth(ep);
+		if (height == 0) height = np.getDefHeight(ep);
+		return NodeInst.makeInstance(np, ep, new Point2D.Double(x, y), width, height, cell);
+	}
+
+	/**
+	 * Method to draw an inverter tile.
+	 * @param cell the cell to draw in.
+	 * @param x the X-coordinate of the lower-left corner of the tile.
+	 * @param y the Y-coordinate of the lower-left corner of the tile.
+	 * @param prev nodes of the tile on the left which are connected to this tile, or null.
+	 * @param exports true to export the input, the output and the rails.
+	 * @return nodes of this tile which are connected to the tile on the right.
+	 */
+	private NodeInst[] drawTile(Cell cell, double x, double y, NodeInst[] prev, boolean exports) {
+		makeNode(nWell, cell, x + 20, y + 45, TILE_WIDTH, 30);
+		makeNode(pWell, cell, x + 20, y + 15, TILE_WIDTH, 30);
+		NodeInst vdd = makeNode(nWellCon, cell, x + 5, y + 55, 0, 0);
+		NodeInst gnd = makeNode(pWellCon, cell, x + 5, y + 5, 0, 0);
+		NodeInst p = makeNode(pTran, cell, x + 20, y + 45, 0, 0);
+		NodeInst n = makeNode(nTran, cell, x + 20, y + 15, 0, 0);
+		NodeInst in = makeNode(polyCon, cell, x + 16.5, y + 30, 0, 0);
+		NodeInst pAct = makeNode(pActCon, cell, x + 30, y + 45, 0, 0);
+		NodeInst nAct = makeNode(nActCon, cell, x + 30, y + 15, 0, 0);
+		NodeInst out = makeNode(viaCon, cell, x + 30, y + 30, 0, 0);
+
+		ArcInst.makeInstance(poly1, ep, in.getOnlyPortInst(), p.findPortInst("poly-left"));
+		ArcInst.makeInstance(poly1, ep, in.getOnlyPortInst(), n.findPortInst("poly-left"));
+		ArcInst.makeInstance(metal1, ep, pAct.getOnlyPortInst(), out.getOnlyPortInst());
+		ArcInst.makeInstance(metal1, ep, out.getOnlyPortInst(), nAct.getOnlyPortInst());
+		if (prev != null) {
+			ArcInst.makeInstance(metal1, ep, prev[0].getOnlyPortInst(), in.getOnlyPortInst());
+			ArcInst.makeInstance(metal1, ep, prev[1].getOnlyPortInst(), vdd.getOnlyPortInst());
+			ArcInst.makeInstance(metal1, ep, prev[2].getOnlyPortInst(), gnd.getOnlyPortInst());
+		}
+		if (exports) {
+			Export.newInstance(cell, in.getOnlyPortInst(), "in", ep);
+			Export.newInstance(cell, out.getOnlyPortInst(), "out", ep);
+			Export.newInstance(cell, vdd.getOnlyPortInst(), "vdd", ep);
+			Export.newInstance(cell, gnd.getOnlyPortInst(), "gnd", ep);
+		}
+		return new NodeInst[] {out, vdd, gnd};
+	}
+}
@@ -0,0 +1,87 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ERCWellCheckBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.erc;
+
+import com.sun.electric.database.Environment;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.tool.user.ErrorLogger;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Flat and hierarchical well check of an array of rows of well tiles, whose memory the GC profiler of the benchmark profile reports.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ERCWellCheckBenchmark extends AbstractJunitBaseClass {
+
+	/** whether the wells of each cell are analyzed once */		@Param({"false", "true"}) public boolean hierarchical;
+
+	private EDatabase database;
+	private Cell array;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		initElectric();
+		database = EDatabase.serverDatabase();
+		Library lib = loadLibrary("testLib");
+		array = new WellArrayFixture(lib).makeArray(lib);
+
+		// the check runs with the database locked for examining, as in an examine job
+		database.backup();
+		database.unlock();
+		database.lock(false);
+	}
+
+	/**
+	 * Method to set the environment of Electric in the benchmark thread.
+	 */
+	@Setup(Level.Iteration)
+	public void setUpThread() {
+		Environment.setThreadEnvironment(database.getEnvironment());
+	}
+
+	@Benchmark
+	public ErrorLogger check() {
+		return WellArrayFixture.check(array, hierarchical);
+	}
+}
@@ -0,0 +1,102 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ExtractionBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.extract;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.Environment;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Flattened extraction of PlacementTest4 with the wires found by one thread or in tiles by four.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ExtractionBenchmark extends AbstractJunitBaseClass {
+
+	/** number of extraction threads */		@Param({"1", "4"}) public int numThreads;
+
+	private EDatabase database;
+	private EditingPreferences ep;
+	private Cell cell;
+	private Cell extractedCell;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		initElectric();
+		database = EDatabase.serverDatabase();
+		ep = new EditingPreferences(true, database.getTechPool());
+		cell = loadCell("placementTests", "PlacementTest4");
+		database.backup();
+		database.unlock();
+	}
+
+	/**
+	 * Method to let the benchmark thread change the database, because each extraction makes a new cell.
+	 */
+	@Setup(Level.Iteration)
+	public void setUpThread() {
+		Environment.setThreadEnvironment(database.getEnvironment());
+		EditingPreferences.lowLevelSetThreadLocalEditingPreferences(ep);
+		database.lock(true);
+		database.lowLevelBeginChanging(null);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownThread() {
+		database.backup();
+		database.lowLevelEndChanging();
+		database.unlock();
+	}
+
+	@TearDown(Level.Invocation)
+	public void killExtractedCell() {
+		if (extractedCell != null) extractedCell.kill();
+		extractedCell = null;
+	}
+
+	@Benchmark
+	public Cell extract() {
+		return extractedCell = ExtractionFixture.extract(cell, numThreads);
+	}
+}
@@ -0,0 +1,152 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: DEFBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.input;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.Environment;
+import com.sun.electric.database.geometry.EPoint;
+import com.sun.electric.database.geometry.ERectangle;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.id.CellId;
+import com.sun.electric.database.text.TextUtils;
+import com.sun.electric.database.topology.Geometric;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.technology.Technology;
+import com.sun.electric.tool.io.FileType;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bulk import of the components and pins of a DEF file, against placing components one at a time as the reader used to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class DEFBenchmark extends AbstractJunitBaseClass {
+
+	/** number of components in the DEF file */				@Param({"20000"}) public int numComponents;
+	/** number of pins in the DEF file */						@Param({"500"}) public int numPins;
+	/** number of components placed one at a time */		@Param({"2000"}) public int numLiveComponents;
+
+	private EDatabase database;
+	private EditingPreferences ep;
+	private Cell model;
+	private File defFile;
+	private DEF.DEFPreferences prefs;
+	private Cell placedCell;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		initElectric();
+		database = EDatabase.serverDatabase();
+		ep = new EditingPreferences(true, database.getTechPool());
+		model = loadCell("placementTests", "cell01");
+		defFile = DEFFixture.writeDEF("defbench", "cell01", numComponents, numPins);
+		prefs = new DEF.DEFPreferences(true);
+		prefs.disablePopups = true;
+		database.backup();
+		database.unlock();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		defFile.delete();
+	}
+
+	/**
+	 * Method to let the benchmark thread change the database, because each placement makes a new cell.
+	 */
+	@Setup(Level.Iteration)
+	public void setUpThread() {
+		Environment.setThreadEnvironment(database.getEnvironment());
+		EditingPreferences.lowLevelSetThreadLocalEditingPreferences(ep);
+		database.lock(true);
+		database.lowLevelBeginChanging(null);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownThread() {
+		database.backup();
+		database.lowLevelEndChanging();
+		database.unlock();
+	}
+
+	@TearDown(Level.Invocation)
+	public void killPlacedCell() {
+		if (placedCell != null) placedCell.kill();
+		placedCell = null;
+	}
+
+	@Benchmark
+	public Cell importDEF() {
+		Library lib = model.getLibrary();
+		Input.importLibrary(ep, prefs, TextUtils.makeURLToFile(defFile.getPath()), FileType.DEF, lib, model.getTechnology(),
+			new HashMap<Library,Cell>(), new HashMap<CellId,BitSet>(), false, null);
+		return placedCell = lib.findNodeProto("defbench{lay}");
+	}
+
+	/**
+	 * Each component looks for an existing node at its location, is created, and is moved to its place.
+	 */
+	@Benchmark
+	public Cell placeOneAtATime() {
+		Technology tech = model.getTechnology();
+		placedCell = Cell.makeInstance(ep, model.getLibrary(), "deflive{lay}");
+		int side = (int)Math.ceil(Math.sqrt(numComponents));
+		ERectangle subBounds = model.getBounds();
+		for (int i = 0; i < numLiveComponents; i++) {
+			EPoint loc = EPoint.fromLambda(DEFFixture.toLambda((i % side) * DEFFixture.PITCH, tech),
+				DEFFixture.toLambda((i / side) * DEFFixture.PITCH, tech));
+			for (Iterator<Geometric> it = placedCell.searchIterator(new Rectangle2D.Double(loc.getX(), loc.getY(), 0, 0)); it.hasNext(); )
+				it.next();
+			NodeInst ni = NodeInst.makeInstance(model, ep, loc, model.getDefWidth(), model.getDefHeight(), placedCell);
+			ERectangle bound = ni.getBounds();
+			ni.move(loc.getX() - bound.getMinX() + subBounds.getMinX(), loc.getY() - bound.getMinY() + subBounds.getMinY());
+		}
+		return placedCell;
+	}
+}
@@ -0,0 +1,73 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: LEFDEFLexerBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tokenizing of a DEF text whose large sections are split between threads or read by one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class LEFDEFLexerBenchmark {
+
+	/** number of components */			@Param({"60000"}) public int numComponents;
+	/** number of nets */				@Param({"30000"}) public int numNets;
+	/** number of tokenizing threads */	@Param({"1", "4"}) public int numThreads;
+
+	private byte[] bytes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		bytes = DEFFixture.makeDEF(numComponents, numNets).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public int tokenize() throws IOException {
+		LEFDEFLexer lexer = new LEFDEFLexer(ByteBuffer.wrap(bytes));
+		lexer.locateSections(numThreads, "COMPONENTS", "PINS", "NETS", "SPECIALNETS");
+		int numKeys = 0;
+		while (lexer.next() != null)
+			numKeys++;
+		return numKeys;
+	}
+}
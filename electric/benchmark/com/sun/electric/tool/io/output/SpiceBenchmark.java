@@ -0,0 +1,93 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SpiceBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.output;
+
+import com.sun.electric.database.Environment;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Spice deck of a layout cell and CDL deck of a schematic cell, every subcircuit written anew by one or four threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class SpiceBenchmark extends AbstractJunitBaseClass {
+
+	/** number of writer threads */		@Param({"1", "4"}) public int numThreads;
+
+	private EDatabase database;
+	private Cell layoutCell, schematicCell;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		initElectric();
+		database = EDatabase.serverDatabase();
+		layoutCell = loadCell("placementTests", "PlacementTest4");
+		schematicCell = loadCell("placementTests", "PlacementTest3");
+
+		// netlisting runs with the database locked for examining, as in an examine job
+		database.backup();
+		database.unlock();
+		database.lock(false);
+	}
+
+	/**
+	 * Method to set the environment of Electric in the benchmark thread.
+	 */
+	@Setup(Level.Iteration)
+	public void setUpThread() {
+		Environment.setThreadEnvironment(database.getEnvironment());
+	}
+
+	@Benchmark
+	public byte[] layoutSpice() throws IOException {
+		Topology.clearCellCache();
+		return SpiceDeckFixture.writeDeck(layoutCell, false, numThreads);
+	}
+
+	@Benchmark
+	public byte[] schematicCDL() throws IOException {
+		Topology.clearCellCache();
+		return SpiceDeckFixture.writeDeck(schematicCell, true, numThreads);
+	}
+}
@@ -0,0 +1,100 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: PlacementMetricBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.placement.metrics;
+
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNetwork;
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNode;
+import com.sun.electric.tool.placement.metrics.boundingbox.BBMetric;
+import com.sun.electric.tool.placement.metrics.boundingbox.IncrementalBBMetric;
+import com.sun.electric.tool.placement.metrics.mst.IncrementalMSTMetric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time per accepted-if-not-worse random placement move, with incremental metrics or a full bounding box computation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class PlacementMetricBenchmark {
+
+	private static final int NUMMOVES = 10000;
+	private static final int NUMFULLMOVES = 100;
+
+	private final List<PlacementNode> nodes = new ArrayList<PlacementNode>();
+	private final List<PlacementNetwork> networks = new ArrayList<PlacementNetwork>();
+	private Random rand;
+	private IncrementalMetric bbMetric, mstMetric;
+	private BBMetric fullBBMetric;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		rand = new Random(1);
+		PlacementNetlistFixture.makeNetlist(rand, nodes, networks);
+		bbMetric = new IncrementalBBMetric(nodes, networks);
+		mstMetric = new IncrementalMSTMetric(nodes, networks);
+		fullBBMetric = new BBMetric(nodes, networks, null);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMMOVES)
+	public void incrementalBoundingBox() {
+		PlacementNetlistFixture.anneal(bbMetric, nodes, rand, NUMMOVES);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMMOVES)
+	public void incrementalMinimalSpanningTree() {
+		PlacementNetlistFixture.anneal(mstMetric, nodes, rand, NUMMOVES);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMFULLMOVES)
+	public void fullBoundingBox() {
+		for (int i = 0; i < NUMFULLMOVES; i++) {
+			PlacementNode node = nodes.get(rand.nextInt(nodes.size()));
+			double oldX = node.getPlacementX(), oldY = node.getPlacementY();
+			double before = fullBBMetric.compute().doubleValue();
+			node.setPlacement(oldX + rand.nextInt(21) - 10, oldY + rand.nextInt(21) - 10);
+			if (fullBBMetric.compute().doubleValue() > before) node.setPlacement(oldX, oldY);
+		}
+	}
+}
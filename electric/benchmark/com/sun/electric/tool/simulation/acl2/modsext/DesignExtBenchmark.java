@@ -0,0 +1,75 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: DesignExtBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.modsext;
+
+import com.sun.electric.tool.simulation.acl2.svex.SvexFunction;
+import com.sun.electric.util.acl2.ACL2Object;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Elaboration of a hierarchical SV design with its modules analyzed by one thread or by four.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class DesignExtBenchmark {
+
+	/** number of elaborating threads */	@Param({"1", "4"}) public int numThreads;
+
+	private ACL2Object impl;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		ACL2Object.initHonsMananger("DesignExtBenchmark");
+		// the function table must be initialized before any function class
+		Class.forName(SvexFunction.class.getName());
+		impl = DesignExtFixture.makeDesign();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		ACL2Object.closeHonsManager();
+	}
+
+	@Benchmark
+	public DesignExt elaborate() {
+		return DesignExtFixture.elaborate(impl, numThreads);
+	}
+}
@@ -0,0 +1,99 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SvexEvaluatorBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.svex;
+
+import com.sun.electric.tool.simulation.acl2.mods.Address;
+import com.sun.electric.tool.simulation.acl2.svex.funs.FunctionSyms;
+import com.sun.electric.util.acl2.ACL2Object;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compiling a random sequential svex design, and simulating it cycle by cycle with Svex.eval or compiled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class SvexEvaluatorBenchmark {
+
+	/** number of nodes in the next-state expressions */	@Param({"20000"}) public int numNodes;
+	/** number of simulated cycles */						@Param({"40"}) public int numCycles;
+
+	private List<Svar<Address>> states, inputs;
+	private Map<Svar<Address>, Svex<Address>> nextStates;
+	private Vec4[][] stimulus;
+	private SvexEvaluator<Address> evaluator;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ACL2Object.initHonsMananger("SvexEvaluatorBenchmark");
+		// the function table must be initialized before any function class
+		SvexFunction.valueOf(FunctionSyms.SV_BITAND, 2);
+		Random random = new Random(5);
+		states = new ArrayList<Svar<Address>>();
+		inputs = new ArrayList<Svar<Address>>();
+		nextStates = SvexFixture.makeDesign(new SvexManager<Address>(), numNodes, random, states, inputs);
+		stimulus = SvexFixture.makeStimulus(numCycles, random);
+		evaluator = compile();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		ACL2Object.closeHonsManager();
+	}
+
+	@Benchmark
+	public List<Map<Svar<Address>, Vec4>> simulateEval() {
+		return SvexFixture.simulateEval(nextStates, states, inputs, stimulus);
+	}
+
+	@Benchmark
+	public SvexEvaluator<Address> compile() {
+		return new SvexEvaluator<Address>(nextStates.values());
+	}
+
+	@Benchmark
+	public List<Vec4[]> simulateCompiled() {
+		return SvexFixture.simulateCompiled(evaluator, nextStates, states, inputs, stimulus);
+	}
+}
@@ -0,0 +1,83 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: Vec4Benchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.svex;
+
+import com.sun.electric.tool.simulation.acl2.svex.funs.FunctionSyms;
+import com.sun.electric.util.acl2.ACL2Object;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * xeval of a random svex DAG whose 32-bit values fit in longs and whose 96-bit values need BigIntegers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class Vec4Benchmark {
+
+	/** number of nodes in the DAG */		@Param({"200000"}) public int dagSize;
+	/** width of the constants */			@Param({"32", "96"}) public int width;
+
+	private List<Svex<SvarName>> nodes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ACL2Object.initHonsMananger("Vec4Benchmark");
+		// the function table must be initialized before any function class
+		SvexFunction.valueOf(FunctionSyms.SV_BITAND, 2);
+		nodes = SvexFixture.makeDag(new SvexManager<SvarName>(), width, dagSize, new Random(17));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		ACL2Object.closeHonsManager();
+	}
+
+	@Benchmark
+	public Map<Svex<SvarName>, Vec4> xeval() {
+		Map<Svex<SvarName>, Vec4> memoize = new HashMap<Svex<SvarName>, Vec4>();
+		for (Svex<SvarName> node : nodes)
+			node.xeval(memoize);
+		return memoize;
+	}
+}
@@ -0,0 +1,73 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ALSBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.als;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Events per second that the ALS engine fires while a clock ripples through 200 chains of 100 inverters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ALSBenchmark
+{
+	/** number of inverter chains */		private static final int CHAINS = 200;
+	/** number of inverters in a chain */	private static final int DEPTH = 100;
+	/** number of clock cycles */			private static final int CYCLES = 50;
+	/** events fired in one simulation */	private static final int EVENTS = 2000150;
+
+	private Sim sim;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		sim = InverterChainFixture.load(CHAINS, DEPTH, 400e-9, CYCLES).getSim();
+		sim.simulate(Double.MAX_VALUE);
+		if (sim.getEventCount() != EVENTS)
+			throw new IllegalStateException("Expected " + EVENTS + " events but " + sim.getEventCount() + " were fired");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public long simulate()
+	{
+		sim.simulate(Double.MAX_VALUE);
+		return sim.getEventCount();
+	}
+}
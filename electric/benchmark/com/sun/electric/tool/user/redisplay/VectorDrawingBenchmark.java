@@ -0,0 +1,150 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: VectorDrawingBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.user.redisplay;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.Environment;
+import com.sun.electric.database.Snapshot;
+import com.sun.electric.database.SnapshotAnalyze;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.database.id.CellId;
+import com.sun.electric.database.variable.VarContext;
+import com.sun.electric.tool.io.output.PNG;
+import com.sun.electric.tool.user.GraphicsPreferences;
+import com.sun.electric.tool.user.ui.LayerVisibility;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vector display of PlacementTest4: whole and zoomed-out renders, and the cache update after routing 2000 arcs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class VectorDrawingBenchmark extends AbstractJunitBaseClass {
+
+	/** size of the window in pixels */					@Param({"1024"}) public int size;
+	/** size of the zoomed-out window in pixels */		@Param({"128"}) public int smallSize;
+	/** number of drawing threads (0 for all processors) */	@Param({"1", "0"}) public int numThreads;
+
+	private EDatabase database;
+	private EditingPreferences ep;
+	private Cell cell;
+	private GraphicsPreferences gp;
+	private LayerVisibility lv;
+
+	/**
+	 * Change of the cell, made before each update of the cache.
+	 */
+	@State(Scope.Thread)
+	public static class Change {
+		private SnapshotAnalyze sa;
+
+		@Setup(Level.Invocation)
+		public void setUp(VectorDrawingBenchmark bench) {
+			EDatabase database = bench.database;
+			database.unlock();
+			database.lock(true);
+			database.lowLevelBeginChanging(null);
+			Snapshot oldSnapshot = database.backup();
+			RenderFixture.routeArcs(bench.cell, bench.ep, bench.cell.getTechnology().findArcProto("Metal-1"), 0);
+			Snapshot newSnapshot = database.backup();
+			database.lowLevelEndChanging();
+			database.unlock();
+			database.lock(false);
+			sa = new SnapshotAnalyze(oldSnapshot, newSnapshot);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		initElectric();
+		database = EDatabase.serverDatabase();
+		EDatabase.setClientDatabase(database);
+		ep = new EditingPreferences(true, database.getTechPool());
+		cell = loadCell("placementTests", "PlacementTest4");
+		gp = new GraphicsPreferences(true);
+		lv = new LayerVisibility(true);
+
+		// the cache is updated only for cells that were drawn
+		RenderFixture.render(cell, gp, lv, size, false, size, 1);
+
+		// examine the database from any benchmark thread
+		database.unlock();
+		database.lock(false);
+	}
+
+	/**
+	 * Method to set thread locals of Electric in the benchmark thread.
+	 */
+	@Setup(Level.Iteration)
+	public void setUpThread() {
+		Environment.setThreadEnvironment(database.getEnvironment());
+		EditingPreferences.lowLevelSetThreadLocalEditingPreferences(ep);
+	}
+
+	@Benchmark
+	public BufferedImage render() {
+		return PNG.renderCell(cell, VarContext.globalContext, size, size, gp, lv, numThreads);
+	}
+
+	@Benchmark
+	public int[] renderSmall() {
+		return RenderFixture.render(cell, gp, lv, smallSize, false, smallSize, 1);
+	}
+
+	@Benchmark
+	public int[] renderSmallWithLevelOfDetail() {
+		return RenderFixture.render(cell, gp, lv, smallSize, true, smallSize, 1);
+	}
+
+	/**
+	 * Each update caches the arcs of one routing, so it is measured once per iteration.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public Set<CellId> updateCache(Change change) {
+		VectorCache.theCache.setUpdateThreads(numThreads);
+		return VectorCache.theCache.updateChange(Collections.singleton(cell.getId()), change.sa);
+	}
+}
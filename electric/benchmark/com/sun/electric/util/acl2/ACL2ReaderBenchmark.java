@@ -0,0 +1,78 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ACL2ReaderBenchmark.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.util.acl2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading of a serialized ACL2 file by one or more threads while its normed objects are already in the hons tables.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ACL2ReaderBenchmark {
+
+	/** number of elements in the list */	@Param({"100000"}) public int numElems;
+	/** number of reading threads */		@Param({"1", "4"}) public int numThreads;
+
+	private ACL2Object tree;
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		ACL2Object.initHonsMananger("ACL2ReaderBenchmark");
+		tree = ACL2TreeFixture.makeTree(numElems);
+		file = File.createTempFile("acl2readerbenchmark", ".dat");
+		file.deleteOnExit();
+		ACL2Writer.write(tree, file);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+		ACL2Object.closeHonsManager();
+	}
+
+	@Benchmark
+	public ACL2Reader read() throws IOException {
+		return new ACL2Reader(file, numThreads);
+	}
+}
@@ -84,6 +84,7 @@ import com.sun.electric.util.UsageFormatter;
  * <P> <CODE>         -v: brief version information </CODE>
  * <P> <CODE>         -debug: debug mode. Extra information is available </CODE>
  * <P> <CODE>         -server: dump strace of snapshots</CODE>
+ * <P> <CODE>         -batchserver port: headless server which keeps libraries loaded and runs jobs from local sockets</CODE>
  * <P> <CODE>         -help: this message </CODE>
  * <P> <P>
  * See manual for more instructions.
@@ -157,6 +158,7 @@ public final class Main
 	        System.out.println("\t\twhere [electric-plugins] is list of JAR files separated by OS-dependant separator (colon or semicolon)");
 	        System.out.println("\nElectric-options:");
 	        System.out.println("\t-batch: batch mode implies 'no GUI', and nothing more");
+            System.out.println("\t-batchserver <port>: headless server which keeps libraries loaded and runs jobs from local sockets");
             System.out.println("\t-client <machine name>: replay trace of snapshots");
 	        System.out.println("\t-debug: debug mode. Extra information is available");
 	        System.out.println("\t-help: this message");
@@ -215,6 +217,16 @@ public final class Main
             }  else
                 System.out.println("Invalid option -socket " + socketString);
         }
+        String batchServerString = getCommandLineOption(argsList, "-batchserver");
+        boolean localSocket = false;
+        if (batchServerString != null) {
+            int batchServerPort = TextUtils.atoi(batchServerString);
+            if (batchServerPort > 0) {
+                socketPort = batchServerPort;
+                localSocket = true;
+            }  else
+                System.out.println("Invalid option -batchserver " + batchServerString);
+        }
         hasCommandLineOption(argsList, "-NOMINMEM"); // do nothing, just consume option: handled in Launcher
 
         // The server runs in subprocess
@@ -235,6 +247,12 @@ public final class Main
                 System.out.println("Conflicting thread modes: " + runMode + " and " + Mode.SERVER);
             runMode = Mode.SERVER;
         }
+        if (localSocket) {
+            // warm server: Regression.ServerConnection clients run their jobs in its database
+            if (runMode != DEFAULT_MODE)
+                System.out.println("Conflicting thread modes: " + runMode + " and " + Mode.SERVER);
+            runMode = Mode.SERVER;
+        }
         String serverMachineName = getCommandLineOption(argsList, "-client");
         if (serverMachineName != null) {
             if (runMode != DEFAULT_MODE)
@@ -306,7 +324,7 @@ public final class Main
                 EDatabase.setServerDatabase(serverDatabase);
                 Job.setUserInterface(new UserInterfaceInitial(serverDatabase));
                 initJob = new InitDatabase(argsList);
-                Job.initJobManager(numThreads, loggingFilePath, socketPort, ui, initJob);
+                Job.initJobManager(numThreads, loggingFilePath, socketPort, localSocket, ui, initJob);
                 break;
             case BATCH:
                 serverDatabase = new EDatabase(IdManager.stdIdManager.getInitialSnapshot(), "serverDB");
@@ -171,6 +171,24 @@ public class PolyMerge extends GeometryHandler implements Serializable
 		}
 	}
 
+	/**
+	 * Method to add the geometry of another merge on a given Layer that lies inside of a rectangle.
+	 * The other merge is only examined, so this can be done concurrently from many threads.
+	 * @param other the other merge.
+	 * @param layer the Layer to copy.
+	 * @param bounds the rectangle to which the copied geometry is clipped.
+	 */
+	public void addClipped(PolyMerge other, Layer layer, Rectangle2D bounds)
+	{
+		Area otherArea = (Area)other.layers.get(layer);
+		if (otherArea == null) return;
+		Area clippedArea = new Area(bounds);
+		clippedArea.intersect(otherArea);
+		Area area = (Area)layers.get(layer);
+		if (area == null) layers.put(layer, clippedArea); else
+			area.add(clippedArea);
+	}
+
 	/**
 	 * Method to add one Layer to another in this merge.
 	 * @param fromLayer the other Layer to add in.
@@ -0,0 +1,471 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: BulkCellBuilder.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.database.hierarchy;
+
+import com.sun.electric.database.CellBackup;
+import com.sun.electric.database.CellRevision;
+import com.sun.electric.database.ImmutableArcInst;
+import com.sun.electric.database.ImmutableExport;
+import com.sun.electric.database.ImmutableNodeInst;
+import com.sun.electric.database.Snapshot;
+import com.sun.electric.database.geometry.EPoint;
+import com.sun.electric.database.id.CellId;
+import com.sun.electric.database.id.ExportId;
+import com.sun.electric.database.prototype.NodeProto;
+import com.sun.electric.database.prototype.PortCharacteristic;
+import com.sun.electric.database.prototype.PortProto;
+import com.sun.electric.database.text.Name;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.variable.TextDescriptor;
+import com.sun.electric.technology.ArcProto;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.util.math.MutableInteger;
+import com.sun.electric.util.math.Orientation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class adds many nodes, arcs and exports to a Cell at once.
+ * The new objects are accumulated as immutable data and committed in a single
+ * new CellBackup, so the live topology, R-Tree and change log of the Cell
+ * are updated only once instead of once per object.
+ * Objects created by this builder are not visible in the Cell until <code>commit</code> is called.
+ */
+public class BulkCellBuilder
+{
+    /** the Cell being filled */							private final Cell cell;
+    /** the CellId of the Cell being filled */				private final CellId cellId;
+    /** new nodes, in creation order */						private final List<ImmutableNodeInst> addedNodes = new ArrayList<ImmutableNodeInst>();
+    /** index in addedNodes of each new node by nodeId */	private final Map<Integer, Integer> addedNodeIndex = new HashMap<Integer, Integer>();
+    /** new nodes by name */								private final Map<String, ImmutableNodeInst> addedNodeNames = new HashMap<String, ImmutableNodeInst>();
+    /** new arcs, in creation order */						private final List<ImmutableArcInst> addedArcs = new ArrayList<ImmutableArcInst>();
+    /** new exports, in creation order */					private final List<ImmutableExport> addedExports = new ArrayList<ImmutableExport>();
+    /** names of new exports */								private final Set<String> addedExportNames = new HashSet<String>();
+    /** largest autoname suffix of nodes by basename */		private final Map<Name, MutableInteger> maxNodeSuffixes = new HashMap<Name, MutableInteger>();
+    /** largest autoname suffix of arcs */					private int maxArcSuffix;
+    /** subcells already checked for recursion */			private final Set<Cell> checkedSubCells = new HashSet<Cell>();
+    /** true if a cell-center node was added */				private boolean addedCellCenter;
+
+    /**
+     * Constructor to start bulk changes to a Cell.
+     * @param cell the Cell to fill.
+     */
+    public BulkCellBuilder(Cell cell)
+    {
+        assert cell.isLinked();
+        this.cell = cell;
+        cellId = cell.getId();
+        CellRevision cellRevision = cell.backup().cellRevision;
+        maxArcSuffix = -1;
+        int arcInsertionPoint = searchInsertionPoint(cellRevision.arcs.searchByName(nextBasename(ImmutableArcInst.BASENAME)));
+        if (arcInsertionPoint > 0)
+        {
+            Name name = cellRevision.arcs.get(arcInsertionPoint - 1).name;
+            if (name.isTempname() && name.getBasename() == ImmutableArcInst.BASENAME)
+                maxArcSuffix = name.getNumSuffix();
+        }
+    }
+
+    /**
+     * Method to return the Cell being filled by this builder.
+     * @return the Cell being filled by this builder.
+     */
+    public Cell getCell() { return cell; }
+
+    /**
+     * Method to return the number of objects waiting to be committed.
+     * @return the number of new nodes, arcs and exports in this builder.
+     */
+    public int getNumPending() { return addedNodes.size() + addedArcs.size() + addedExports.size(); }
+
+    /**
+     * Method to find a node that was added to this builder but not committed yet.
+     * @param name the name of the node.
+     * @return the new node with that name, or null if there is none.
+     */
+    public ImmutableNodeInst findNode(String name) { return addedNodeNames.get(name); }
+
+    /**
+     * Method to tell whether an export with the given name was added to this builder but not committed yet.
+     * @param name the name of the export.
+     * @return true if a new export has this name.
+     */
+    public boolean hasExport(String name) { return addedExportNames.contains(name); }
+
+    /**
+     * Method to add a node to the Cell.
+     * Names are checked the same way as in <code>NodeInst.newInstance</code>:
+     * invalid names and names that are already in use are replaced by autonames.
+     * @param protoType the NodeProto of which this is an instance.
+     * @param name name of new node, may be null.
+     * @param nameDescriptor TextDescriptor of name of the node.
+     * @param anchor the anchor location of the node.
+     * @param size the size of the node.
+     * @param orient the orientation of the node.
+     * @param flags flags of the node.
+     * @param techBits bits associated to different technologies.
+     * @param protoDescriptor TextDescriptor of prototype name of the node.
+     * @return the new ImmutableNodeInst, or null on error.
+     */
+    public ImmutableNodeInst newNode(NodeProto protoType, String name, TextDescriptor nameDescriptor,
+        EPoint anchor, EPoint size, Orientation orient, int flags, int techBits, TextDescriptor protoDescriptor)
+    {
+        if (protoType instanceof Cell)
+        {
+            Cell subCell = (Cell)protoType;
+            assert subCell.isLinked();
+            if (!checkSubCell(subCell)) return null;
+        }
+        if (ImmutableNodeInst.isCellCenter(protoType.getId()))
+        {
+            if (addedCellCenter || cell.alreadyCellCenter())
+            {
+                System.out.println("Can only be one cell-center in " + cell + ": new one ignored");
+                return null;
+            }
+            addedCellCenter = true;
+        }
+
+        Name nameKey = null;
+        String msg = null;
+        if (name != null)
+        {
+            nameKey = Name.findName(name);
+            if (NodeInst.checkNameKey(nameKey, cell) || nameKey.isBus() && (!(protoType instanceof Cell) || !((Cell)protoType).isIcon()))
+            {
+                nameKey = null;
+            } else if (isNodeNameUsed(name))
+            {
+                if (!nameKey.isTempname())
+                    msg = cell + " already has NodeInst with name \"" + name + "\"";
+                nameKey = null;
+            }
+        }
+        if (nameKey == null)
+        {
+            Name baseName;
+            if (protoType instanceof Cell)
+            {
+                baseName = ((Cell)protoType).getBasename();
+            } else
+            {
+                PrimitiveNode np = (PrimitiveNode)protoType;
+                baseName = np.getPrimitiveFunction(techBits).getBasename();
+            }
+            nameKey = getNodeAutoname(baseName);
+            if (msg != null)
+            {
+                msg += ", renamed to \"" + nameKey + "\"";
+                System.out.println(msg);
+            }
+        }
+
+        // search for spare nodeId
+        int nodeId;
+        do
+        {
+            nodeId = cellId.newNodeId();
+        } while (cell.getNodeById(nodeId) != null);
+        ImmutableNodeInst n = ImmutableNodeInst.newInstance(nodeId, protoType.getId(), nameKey, nameDescriptor,
+            orient, anchor, size, flags, techBits, protoDescriptor);
+        addedNodeIndex.put(Integer.valueOf(nodeId), Integer.valueOf(addedNodes.size()));
+        addedNodes.add(n);
+        addedNodeNames.put(nameKey.toString(), n);
+        return n;
+    }
+
+    /**
+     * Method to rename a node that was added to this builder but not committed yet.
+     * @param n the new node.
+     * @param name the new name of the node.
+     * @return the renamed ImmutableNodeInst, or null if the name is not valid or already in use.
+     */
+    public ImmutableNodeInst renameNode(ImmutableNodeInst n, String name)
+    {
+        Integer index = addedNodeIndex.get(Integer.valueOf(n.nodeId));
+        if (index == null) return null;
+        Name nameKey = Name.findName(name);
+        if (NodeInst.checkNameKey(nameKey, cell) || nameKey.isBus() || isNodeNameUsed(name)) return null;
+        ImmutableNodeInst newN = n.withName(nameKey);
+        addedNodes.set(index.intValue(), newN);
+        addedNodeNames.remove(n.name.toString());
+        addedNodeNames.put(name, newN);
+        return newN;
+    }
+
+    /**
+     * Method to add an arc to the Cell.
+     * The ends of the arc may be on nodes of the Cell or on new nodes of this builder.
+     * @param protoType the ArcProto of which this is an instance.
+     * @param name name of new arc, null to autoname it.
+     * @param nameDescriptor TextDescriptor of name of the arc.
+     * @param tailNodeId nodeId on tail end of the arc.
+     * @param tailPort the PortProto on tail end of the arc.
+     * @param tailLocation location of tail end of the arc.
+     * @param headNodeId nodeId on head end of the arc.
+     * @param headPort the PortProto on head end of the arc.
+     * @param headLocation location of head end of the arc.
+     * @param gridExtendOverMin the extend of the arc over minimal-width arc of this type in grid units.
+     * @param angle the angle of the arc (in tenth-degrees).
+     * @param flags flag bits of the arc.
+     * @return the new ImmutableArcInst, or null on error.
+     */
+    public ImmutableArcInst newArc(ArcProto protoType, String name, TextDescriptor nameDescriptor,
+        int tailNodeId, PortProto tailPort, EPoint tailLocation,
+        int headNodeId, PortProto headPort, EPoint headLocation,
+        long gridExtendOverMin, int angle, int flags)
+    {
+        if (!isNodeId(tailNodeId) || !isNodeId(headNodeId))
+        {
+            System.out.println("Bad node on arc in " + cell);
+            return null;
+        }
+        Name nameKey = name != null ? Name.findName(name) : null;
+        if (nameKey != null && (!nameKey.isValid() || nameKey.hasEmptySubnames() || nameKey.isTempname() || nameKey.isBus() && !cell.busNamesAllowed()))
+        {
+            System.out.println(cell + ": Invalid arc name \"" + name + "\" was replaced by autoname");
+            nameKey = null;
+        }
+        if (nameKey == null)
+            nameKey = ImmutableArcInst.BASENAME.findSuffixed(++maxArcSuffix);
+        int arcId;
+        do
+        {
+            arcId = cellId.newArcId();
+        } while (cell.getArcById(arcId) != null);
+        ImmutableArcInst a = ImmutableArcInst.newInstance(arcId, protoType.getId(), nameKey, nameDescriptor,
+            tailNodeId, tailPort.getId(), tailLocation, headNodeId, headPort.getId(), headLocation,
+            gridExtendOverMin, angle, flags);
+        addedArcs.add(a);
+        return a;
+    }
+
+    /**
+     * Method to add an export to the Cell.
+     * @param name the name of the export.
+     * @param nameDescriptor TextDescriptor of name of the export.
+     * @param originalNodeId nodeId of the exported node.
+     * @param originalPort the exported port on that node.
+     * @param characteristic the characteristic of the export, null to use the characteristic of the exported port.
+     * @return the new ImmutableExport, or null on error.
+     */
+    public ImmutableExport newExport(String name, TextDescriptor nameDescriptor, int originalNodeId, PortProto originalPort,
+        PortCharacteristic characteristic)
+    {
+        if (!isNodeId(originalNodeId))
+        {
+            System.out.println("Bad port on Export " + name + " in " + cell);
+            return null;
+        }
+        Name nameKey = ImmutableExport.validExportName(name, cell.busNamesAllowed());
+        if (nameKey == null)
+        {
+            System.out.println("Bad export name " + name + " : " + Name.checkName(name));
+            return null;
+        }
+        if (cell.findExport(name) != null || addedExportNames.contains(name))
+        {
+            System.out.println(cell + " already has an export named " + name + ", export was not created");
+            return null;
+        }
+        ExportId exportId = cellId.newPortId(name);
+        if (exportId.inDatabase(cell.getDatabase()) != null)
+            exportId = cellId.randomExportId(name);
+        boolean alwaysDrawn = false;
+        boolean bodyOnly = false;
+        if (originalPort instanceof Export)
+        {
+            Export e = (Export)originalPort;
+            alwaysDrawn = e.isAlwaysDrawn();
+            bodyOnly = e.isBodyOnly();
+        }
+        if (characteristic == null)
+            characteristic = originalPort.getCharacteristic();
+        ImmutableExport e = ImmutableExport.newInstance(exportId, nameKey, nameDescriptor, originalNodeId, originalPort.getId(),
+            alwaysDrawn, bodyOnly, characteristic);
+        addedExports.add(e);
+        addedExportNames.add(name);
+        return e;
+    }
+
+    /**
+     * Method to commit all new nodes, arcs and exports to the Cell.
+     * The Cell gets a new CellBackup which is installed in the database in one step.
+     * The builder is empty afterwards and may be used for further changes.
+     */
+    public void commit()
+    {
+        if (getNumPending() == 0) return;
+        EDatabase database = cell.getDatabase();
+        Snapshot oldSnapshot = database.backup();
+        CellBackup oldCellBackup = oldSnapshot.getCell(cellId);
+        CellRevision oldCellRevision = oldCellBackup.cellRevision;
+
+        ImmutableNodeInst[] newNodes = null;
+        if (!addedNodes.isEmpty())
+        {
+            newNodes = new ImmutableNodeInst[oldCellRevision.nodes.size() + addedNodes.size()];
+            int i = 0;
+            for (ImmutableNodeInst n : oldCellRevision.nodes) newNodes[i++] = n;
+            for (ImmutableNodeInst n : addedNodes) newNodes[i++] = n;
+            Arrays.sort(newNodes, ImmutableNodeInst.NAME_ORDER);
+        }
+        ImmutableArcInst[] newArcs = null;
+        if (!addedArcs.isEmpty())
+        {
+            newArcs = new ImmutableArcInst[oldCellRevision.arcs.size() + addedArcs.size()];
+            int i = 0;
+            for (ImmutableArcInst a : oldCellRevision.arcs) newArcs[i++] = a;
+            for (ImmutableArcInst a : addedArcs) newArcs[i++] = a;
+            Arrays.sort(newArcs, ImmutableArcInst.ARCS_ORDER);
+        }
+        ImmutableExport[] newExports = null;
+        if (!addedExports.isEmpty())
+        {
+            newExports = new ImmutableExport[oldCellRevision.exports.size() + addedExports.size()];
+            int i = 0;
+            for (ImmutableExport e : oldCellRevision.exports) newExports[i++] = e;
+            for (ImmutableExport e : addedExports) newExports[i++] = e;
+            Arrays.sort(newExports, ImmutableExport.NAME_ORDER);
+        }
+
+        CellBackup[] newCellBackups = oldSnapshot.cellBackups.toArray(new CellBackup[oldSnapshot.cellBackups.size()]);
+        newCellBackups[cellId.cellIndex] = oldCellBackup.with(oldCellRevision.d, newNodes, newArcs, newExports,
+            oldSnapshot.techPool);
+        Snapshot newSnapshot = oldSnapshot.with(oldSnapshot.tool, oldSnapshot.environment, newCellBackups, null);
+
+        database.checkChanging();
+        database.lowLevelSetCanUndoing(true);
+        database.undo(newSnapshot);
+        database.lowLevelSetCanUndoing(false);
+        cell.getLibrary().setChanged();
+
+        addedNodes.clear();
+        addedNodeIndex.clear();
+        addedNodeNames.clear();
+        addedArcs.clear();
+        addedExports.clear();
+        addedExportNames.clear();
+        addedCellCenter = false;
+    }
+
+    /**
+     * Method to check that a Cell can be instantiated in the Cell being filled.
+     * Each subcell is checked only once.
+     * @param subCell the Cell to instantiate.
+     * @return true if the instance may be created.
+     */
+    private boolean checkSubCell(Cell subCell)
+    {
+        if (checkedSubCells.contains(subCell)) return true;
+        if (Cell.isInstantiationRecursive(subCell, cell))
+        {
+            System.out.println("Cannot create instance of " + subCell + " in " + cell + " because it would be a recursive case");
+            return false;
+        }
+        if (subCell.getLibrary() != cell.getLibrary())
+        {
+            // a reference will be created, check it
+            Library.LibraryDependency libDep = cell.getLibrary().addReferencedLib(subCell.getLibrary());
+            if (libDep != null)
+            {
+                if (!Cell.isAllowCircularLibraryDependences())
+                {
+                    System.out.println("ERROR: " + cell.libDescribe() + " cannot instantiate "
+                        + subCell.libDescribe() + " because it would create a circular library dependence: ");
+                    System.out.println(libDep.toString());
+                    return false;
+                }
+                System.out.println("WARNING: " + cell.libDescribe() + " instantiates "
+                    + subCell.libDescribe() + " which causes a circular library dependence: ");
+                System.out.println(libDep.toString());
+            }
+        }
+        checkedSubCells.add(subCell);
+        return true;
+    }
+
+    private boolean isNodeNameUsed(String name)
+    {
+        return addedNodeNames.containsKey(name) || cell.findNode(name) != null;
+    }
+
+    private boolean isNodeId(int nodeId)
+    {
+        return addedNodeIndex.containsKey(Integer.valueOf(nodeId)) || cell.getNodeById(nodeId) != null;
+    }
+
+    /**
+     * Method to return unique autoname for a new node.
+     * The largest suffix of each basename is found once in the committed nodes of the Cell.
+     * @param basename base name of autoname.
+     * @return autoname.
+     */
+    private Name getNodeAutoname(Name basename)
+    {
+        MutableInteger maxSuffix = maxNodeSuffixes.get(basename);
+        if (maxSuffix == null)
+        {
+            maxSuffix = new MutableInteger(-1);
+            CellRevision cellRevision = cell.backup().cellRevision;
+            int insertionPoint = searchInsertionPoint(cellRevision.nodes.searchByName(nextBasename(basename)));
+            if (insertionPoint > 0)
+            {
+                Name name = cellRevision.nodes.get(insertionPoint - 1).name;
+                if (name.isTempname() && name.getBasename() == basename)
+                    maxSuffix.setValue(name.getNumSuffix());
+            }
+            maxNodeSuffixes.put(basename, maxSuffix);
+        }
+        Name name;
+        do
+        {
+            maxSuffix.increment();
+            name = basename.findSuffixed(maxSuffix.intValue());
+        } while (isNodeNameUsed(name.toString()));
+        return name;
+    }
+
+    /**
+     * Method to compute the first name that sorts after all autonames with the given basename.
+     * @param basename the basename, ending in "@0".
+     * @return the name after all autonames with this basename.
+     */
+    private static String nextBasename(Name basename)
+    {
+        String s = basename.toString();
+        assert s.endsWith("@0");
+        char nextChar = (char)(s.charAt(s.length() - 2) + 1);
+        return s.substring(0, s.length() - 2) + nextChar;
+    }
+
+    private static int searchInsertionPoint(int index)
+    {
+        return index >= 0 ? index : -(index + 1);
+    }
+}
@@ -2604,6 +2604,16 @@ public class Cell extends ElectricObject implements NodeProto, Comparable<Cell>
         allowCirDep = val;
     }
 
+    /**
+     * Method to tell whether circular library dependencies are temporarily allowed.
+     *
+     * @return true if circular library dependencies are allowed.
+     */
+    static boolean isAllowCircularLibraryDependences()
+    {
+        return allowCirDep;
+    }
+
     public void addNodes(Collection<ImmutableNodeInst> nodes)
     {
         checkChanging();
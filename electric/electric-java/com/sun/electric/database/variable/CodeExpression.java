@@ -72,6 +72,12 @@ public class CodeExpression implements Serializable {
     private final Expr exprTree;
     private final boolean dependsOnEverything;
     private final EvalSpice.ParseException parseException;
+    /** parameters in the order of dependsOn */
+    private final Variable.Key[] params;
+    /** true if the value is a function of the values of the parameters */
+    private final boolean memoizable;
+    /** Java expression compiled to a tree of double operations, or null */
+    private final Compiled compiled;
 
     /**
      * The type of Code that determines how this Variable's
@@ -181,6 +187,28 @@ public class CodeExpression implements Serializable {
         this.exprTree = exprTree;
         this.parseException = parseException;
         dependsOnEverything = parseException != null || exprTree.dependsOnEverything();
+
+        params = varKeys.toArray(new Variable.Key[varKeys.size()]);
+        Compiled compiled = null;
+        switch (code) {
+            case JAVA:
+                // bean shell treats names without @ or P() as its own variables
+                memoizable = !dependsOnEverything && exprTree.hasOnlyParameters();
+                if (memoizable) {
+                    compiled = exprTree.compile(this);
+                    if (compiled != null && compiled.type != Compiled.DOUBLE) {
+                        compiled = null;
+                    }
+                }
+                break;
+            case SPICE:
+                // spice expressions substitute parameter values into the text
+                memoizable = true;
+                break;
+            default:
+                memoizable = false;
+        }
+        this.compiled = compiled;
     }
 
     private Object writeReplace() {
@@ -250,6 +278,70 @@ public class CodeExpression implements Serializable {
         return depends;
     }
 
+    /**
+     * Method to return the parameters of this CodeExpression in the order of dependsOn.
+     * Parameter names have the "ATTR_" prefix.
+     * @return the parameters of this CodeExpression.
+     */
+    public Variable.Key[] getParameters() {
+        return params.clone();
+    }
+
+    int getNumParameters() {
+        return params.length;
+    }
+
+    Variable.Key getParameter(int i) {
+        return params[i];
+    }
+
+    int indexOfParameter(Variable.Key varKey) {
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] == varKey) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method to tell whether the value of this CodeExpression is a function of the
+     * values of its parameters, so it can be reused in every context with the same values.
+     * @return true if the value depends only on the values of the parameters.
+     */
+    public boolean isMemoizable() {
+        return memoizable;
+    }
+
+    /**
+     * Method to tell whether this Java CodeExpression is compiled and can be
+     * evaluated without the bean shell.
+     * @return true if this CodeExpression is compiled.
+     */
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    /**
+     * Method to evaluate a compiled Java CodeExpression.
+     * The result is the same as the bean shell gives for parameters of type Double.
+     * @param args the values of the parameters in the order of getParameters.
+     * @return the Double value, or null if the expression is not compiled or a parameter is not a Double.
+     */
+    public Double evalCompiled(Object[] args) {
+        if (compiled == null) {
+            return null;
+        }
+        double[] values = new double[args.length];
+        for (int i = 0; i < args.length; i++) {
+            if (!(args[i] instanceof Double)) {
+                return null;
+            }
+            values[i] = ((Double) args[i]).doubleValue();
+        }
+        return Double.valueOf(compiled.eval(values));
+    }
+
     public EvalSpice.ParseException getParseException() {
         return parseException;
     }
@@ -422,17 +514,150 @@ public class CodeExpression implements Serializable {
 
         abstract Object eval(EvalContext context);
 
+        /**
+         * Method to tell whether all variables of this expression are parameters
+         * referenced by @ or P().
+         */
+        boolean hasOnlyParameters() {
+            for (int i = 0; i < numSubExprs(); i++) {
+                if (!getSubExpr(i).hasOnlyParameters()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Method to compile this expression with the types of Java.
+         * @param ce the CodeExpression with the parameters.
+         * @return the compiled expression or null if its Java semantics differs.
+         */
+        Compiled compile(CodeExpression ce) {
+            return null;
+        }
+
         static boolean bool(double d) {
             return d != 0;
         }
     }
 
+    /**
+     * Compiled Java expression.
+     * Values of all types are represented by doubles, booleans are 1 or 0.
+     */
+    private static abstract class Compiled {
+
+        static final int INT = 0;
+        static final int DOUBLE = 1;
+        static final int BOOLEAN = 2;
+        final int type;
+
+        Compiled(int type) {
+            this.type = type;
+        }
+
+        boolean isNumber() {
+            return type == INT || type == DOUBLE;
+        }
+
+        abstract double eval(double[] args);
+    }
+
+    private static class CompiledConst extends Compiled {
+
+        private final double value;
+
+        CompiledConst(int type, double value) {
+            super(type);
+            this.value = value;
+        }
+
+        @Override
+        double eval(double[] args) {
+            return value;
+        }
+    }
+
+    private static class CompiledParam extends Compiled {
+
+        private final int index;
+
+        CompiledParam(int index) {
+            super(DOUBLE);
+            this.index = index;
+        }
+
+        @Override
+        double eval(double[] args) {
+            return args[index];
+        }
+    }
+
+    private static class CompiledUnary extends Compiled {
+
+        private final UnaryExpr expr;
+        private final Compiled s;
+
+        CompiledUnary(int type, UnaryExpr expr, Compiled s) {
+            super(type);
+            this.expr = expr;
+            this.s = s;
+        }
+
+        @Override
+        double eval(double[] args) {
+            return expr.apply(s.eval(args));
+        }
+    }
+
+    private static class CompiledBinary extends Compiled {
+
+        private final BinaryExpr expr;
+        private final Compiled ls, rs;
+
+        CompiledBinary(int type, BinaryExpr expr, Compiled ls, Compiled rs) {
+            super(type);
+            this.expr = expr;
+            this.ls = ls;
+            this.rs = rs;
+        }
+
+        @Override
+        double eval(double[] args) {
+            return expr.apply(ls.eval(args), rs.eval(args));
+        }
+    }
+
+    private static class CompiledCond extends Compiled {
+
+        private final Compiled condS, thenS, elseS;
+
+        CompiledCond(Compiled condS, Compiled thenS, Compiled elseS) {
+            super(DOUBLE);
+            this.condS = condS;
+            this.thenS = thenS;
+            this.elseS = elseS;
+        }
+
+        @Override
+        double eval(double[] args) {
+            return Expr.bool(condS.eval(args)) ? thenS.eval(args) : elseS.eval(args);
+        }
+    }
+
     private static class ConstExpr extends Expr {
 
         private final Object value;
+        /** type of the literal in Java, or -1 if it is not a Java literal */
+        private final int javaType;
 
         ConstExpr(Object value) {
+            this(value, -1);
+        }
+
+        ConstExpr(Object value, int javaType) {
             this.value = value;
+            this.javaType = javaType;
         }
 
         @Override
@@ -445,17 +670,25 @@ public class CodeExpression implements Serializable {
         Object eval(EvalContext context) {
             return value;
         }
+
+        @Override
+        Compiled compile(CodeExpression ce) {
+            return javaType >= 0 ? new CompiledConst(javaType, ((Double) value).doubleValue()) : null;
+        }
     }
 
     private static class VarExpr extends Expr {
 
         private final Variable.Key varKey;
+        /** true if referenced by @ or P() */
+        private final boolean isParameter;
 
-        VarExpr(Variable.Key varKey) {
+        VarExpr(Variable.Key varKey, boolean isParameter) {
             if (varKey == null) {
                 throw new NullPointerException();
             }
             this.varKey = varKey;
+            this.isParameter = isParameter;
         }
 
         @Override
@@ -471,6 +704,18 @@ public class CodeExpression implements Serializable {
         Object eval(EvalContext context) {
             return context.get(varKey);
         }
+
+        @Override
+        boolean hasOnlyParameters() {
+            return isParameter;
+        }
+
+        @Override
+        Compiled compile(CodeExpression ce) {
+            String name = varKey.getName();
+            int index = ce.indexOfParameter(name.startsWith("ATTR_") ? varKey : Variable.newKey("ATTR_" + name));
+            return index >= 0 ? new CompiledParam(index) : null;
+        }
     }
 
     private static class GetDriveExpr extends Expr {
@@ -573,6 +818,12 @@ public class CodeExpression implements Serializable {
         double apply(double v) {
             return -v;
         }
+
+        @Override
+        Compiled compile(CodeExpression ce) {
+            Compiled cs = s.compile(ce);
+            return cs != null && cs.isNumber() ? new CompiledUnary(cs.type, this, cs) : null;
+        }
     }
 
     private static class UnaryFunExpr extends UnaryExpr {
@@ -587,10 +838,13 @@ public class CodeExpression implements Serializable {
             }
         };
         private final Fun fun;
+        /** true if the function is called as a Java method of Math */
+        private final boolean isJavaMath;
 
-        UnaryFunExpr(Fun fun, Expr s) {
+        UnaryFunExpr(Fun fun, Expr s, boolean isJavaMath) {
             super(s);
             this.fun = fun;
+            this.isJavaMath = isJavaMath;
         }
 
         @Override
@@ -615,6 +869,15 @@ public class CodeExpression implements Serializable {
             }
             throw new AssertionError();
         }
+
+        @Override
+        Compiled compile(CodeExpression ce) {
+            Compiled cs = s.compile(ce);
+            if (!isJavaMath || fun == Fun.int_ || cs == null || !cs.isNumber()) {
+                return null;
+            }
+            return new CompiledUnary(fun == Fun.abs ? cs.type : Compiled.DOUBLE, this, cs);
+        }
     }
 
     private static abstract class BinaryExpr extends Expr {
@@ -717,6 +980,28 @@ public class CodeExpression implements Serializable {
         private static double valueOf(boolean b) {
             return b ? 1 : 0;
         }
+
+        @Override
+        Compiled compile(CodeExpression ce) {
+            Compiled cls = ls.compile(ce);
+            Compiled crs = rs.compile(ce);
+            if (cls == null || crs == null) {
+                return null;
+            }
+            if (op == EvalSpice.Op.LAND || op == EvalSpice.Op.LOR) {
+                return cls.type == Compiled.BOOLEAN && crs.type == Compiled.BOOLEAN
+                        ? new CompiledBinary(Compiled.BOOLEAN, this, cls, crs) : null;
+            }
+            if (!cls.isNumber() || !crs.isNumber()) {
+                return null;
+            }
+            if (op == EvalSpice.Op.MULT || op == EvalSpice.Op.DIV || op == EvalSpice.Op.PLUS || op == EvalSpice.Op.MINUS) {
+                // integer arithmetic of Java is not compiled
+                return cls.type == Compiled.DOUBLE || crs.type == Compiled.DOUBLE
+                        ? new CompiledBinary(Compiled.DOUBLE, this, cls, crs) : null;
+            }
+            return new CompiledBinary(Compiled.BOOLEAN, this, cls, crs);
+        }
     }
 
     private static class BinaryFunExpr extends BinaryExpr {
@@ -726,10 +1011,13 @@ public class CodeExpression implements Serializable {
             min, max
         };
         private final Fun fun;
+        /** true if the function is called as a Java method of Math */
+        private final boolean isJavaMath;
 
-        BinaryFunExpr(Fun fun, Expr ls, Expr rs) {
+        BinaryFunExpr(Fun fun, Expr ls, Expr rs, boolean isJavaMath) {
             super(ls, rs);
             this.fun = fun;
+            this.isJavaMath = isJavaMath;
         }
 
         @Override
@@ -752,6 +1040,17 @@ public class CodeExpression implements Serializable {
             }
             throw new AssertionError();
         }
+
+        @Override
+        Compiled compile(CodeExpression ce) {
+            Compiled cls = ls.compile(ce);
+            Compiled crs = rs.compile(ce);
+            if (!isJavaMath || cls == null || crs == null || !cls.isNumber() || !crs.isNumber()) {
+                return null;
+            }
+            return cls.type == Compiled.DOUBLE || crs.type == Compiled.DOUBLE
+                    ? new CompiledBinary(Compiled.DOUBLE, this, cls, crs) : null;
+        }
     }
 
     private static class IfThenElseExpr extends Expr {
@@ -804,6 +1103,17 @@ public class CodeExpression implements Serializable {
             double v = ((Double) (condV ? thenS : elseS).eval(context)).doubleValue();
             return Double.valueOf(v);
         }
+
+        @Override
+        Compiled compile(CodeExpression ce) {
+            Compiled cc = condS.compile(ce);
+            Compiled ct = thenS.compile(ce);
+            Compiled cf = elseS.compile(ce);
+            if (cc == null || ct == null || cf == null || cc.type != Compiled.BOOLEAN || !ct.isNumber() || !cf.isNumber()) {
+                return null;
+            }
+            return ct.type == Compiled.DOUBLE || cf.type == Compiled.DOUBLE ? new CompiledCond(cc, ct, cf) : null;
+        }
     }
 
     static Expr parse(String expr, boolean isJava) throws EvalSpice.ParseException {
@@ -900,7 +1210,7 @@ public class CodeExpression implements Serializable {
                 if (nextToken() != StreamTokenizer.TT_WORD) {
                     throw new EvalSpice.ParseException("Bad name after @");
                 }
-                e = new VarExpr(Variable.newKey("ATTR_" + tokenizer.sval));
+                e = new VarExpr(Variable.newKey("ATTR_" + tokenizer.sval), true);
                 nextToken();
             } else if (op != null) {
                 throw new EvalSpice.ParseException("Operator " + op + " with no left hand operand");
@@ -943,6 +1253,8 @@ public class CodeExpression implements Serializable {
         private ConstExpr parseNumber() throws IOException, EvalSpice.ParseException {
             assert tokenizer.ttype == StreamTokenizer.TT_NUMBER;
             double val = tokenizer.nval;
+            // integral numbers without exponent are treated as Java int literals
+            int javaType = val == Math.rint(val) ? Compiled.INT : Compiled.DOUBLE;
             // peek ahead to check if exponential, or multiplier
             tokenizer.ordinaryChar('e');
             tokenizer.ordinaryChar('E');
@@ -960,10 +1272,12 @@ public class CodeExpression implements Serializable {
                         exp = -1.0 * exp;
                     }
                     val = val * Math.pow(10, exp);
+                    javaType = Compiled.DOUBLE;
                 } else {
                     throw new EvalSpice.ParseException("Invalid token");
                 }
             } else if (tt == StreamTokenizer.TT_WORD) {
+                javaType = -1;
                 if (tokenizer.sval.equalsIgnoreCase("g")) {
                     val = val * 1e9;
                 } else if (tokenizer.sval.equalsIgnoreCase("meg")) {
@@ -989,7 +1303,7 @@ public class CodeExpression implements Serializable {
             tokenizer.wordChars('e', 'e');
             tokenizer.wordChars('E', 'E');
             nextToken();
-            return new ConstExpr(new Double(val));
+            return new ConstExpr(new Double(val), javaType);
         }
 
         private Expr parseWord() throws IOException, EvalSpice.ParseException {
@@ -1003,7 +1317,7 @@ public class CodeExpression implements Serializable {
                 expect('(');
                 Expr arg = evalEq();
                 expect(')');
-                return new UnaryFunExpr(fun, arg);
+                return new UnaryFunExpr(fun, arg, id.equals("Math." + fun.toString()));
             }
             for (BinaryFunExpr.Fun fun : BinaryFunExpr.Fun.class.getEnumConstants()) {
                 if (!id.equalsIgnoreCase(fun.toString()) && !id.equals("Math." + fun.toString())) {
@@ -1015,7 +1329,7 @@ public class CodeExpression implements Serializable {
                 expect(',');
                 Expr arg2 = evalEq();
                 expect(')');
-                return new BinaryFunExpr(fun, arg1, arg2);
+                return new BinaryFunExpr(fun, arg1, arg2, id.equals("Math." + fun.toString()));
             }
             if (/*isJava &&*/id.equals("P")) {
                 nextToken();
@@ -1026,7 +1340,7 @@ public class CodeExpression implements Serializable {
                 Variable.Key varKey = Variable.newKey(tokenizer.sval);
                 nextToken();
                 expect(')');
-                return new VarExpr(varKey);
+                return new VarExpr(varKey, true);
             }
             if (isJava && id.equals("LE.getdrive")) {
                 nextToken();
@@ -1053,7 +1367,7 @@ public class CodeExpression implements Serializable {
             }
             Variable.Key attrKey = Variable.newKey("ATTR_" + tokenizer.sval);
             nextToken();
-            return new VarExpr(attrKey);
+            return new VarExpr(attrKey, false);
         }
 
         private void expect(int token) throws IOException, EvalSpice.ParseException {
@@ -26,18 +26,18 @@ import com.sun.electric.database.hierarchy.Cell;
 import com.sun.electric.database.hierarchy.Nodable;
 import com.sun.electric.database.text.Name;
 import com.sun.electric.database.topology.NodeInst;
-import com.sun.electric.tool.Job;
 import com.sun.electric.tool.lang.EvalJavaBsh;
 import com.sun.electric.tool.lang.EvalSpice;
 import com.sun.electric.util.TextUtils;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Stack;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -116,28 +116,58 @@ public class VarContext implements Serializable {
                 return ce == ep.ce && info == ep.info;
             }
         }
-        private final Map<EvalPair, Object> cache = new HashMap<EvalPair, Object>();
+        private final ConcurrentMap<EvalPair, Object> cache = new ConcurrentHashMap<EvalPair, Object>();
 
-        public synchronized boolean containsKey(CodeExpression ce, Object info) {
-            return cache.containsKey(new EvalPair(ce, info));
+        /**
+         * Returns the cached value, NULL_VALUE if the value is null, or null if there is no value.
+         */
+        public Object get(CodeExpression ce, Object info) {
+            return cache.get(new EvalPair(ce, info));
         }
 
-        public synchronized Object get(CodeExpression ce, Object info) {
-            return cache.get(new EvalPair(ce, info));
+        public void put(CodeExpression ce, Object info, Object value) {
+            // threads evaluating the same variable may put the same value
+            cache.putIfAbsent(new EvalPair(ce, info), value != null ? value : NULL_VALUE);
         }
+    }
+
+    /**
+     * Key of a value of a memoizable CodeExpression: the expression and the values of its parameters.
+     */
+    private static class MemoKey {
 
-        public synchronized void put(CodeExpression ce, Object info, Object value) {
-            EvalPair key = new EvalPair(ce, info);
-            Job.error(cache.containsKey(key), "duplicate keys in ValueCache?");
-            cache.put(key, value);
+        private final CodeExpression ce;
+        private final Object[] args;
+        private final int hash;
+
+        private MemoKey(CodeExpression ce, Object[] args) {
+            this.ce = ce;
+            this.args = args;
+            hash = ce.hashCode() * 31 + Arrays.hashCode(args);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof MemoKey)) {
+                return false;
+            }
+            MemoKey that = (MemoKey) o;
+            return ce == that.ce && Arrays.equals(args, that.args);
         }
     }
+    /** values of memoizable CodeExpressions, shared by all contexts and threads */
+    private static final ConcurrentMap<MemoKey, Object> memo = new ConcurrentHashMap<MemoKey, Object>();
+    private static final int MAX_MEMO_SIZE = 1 << 16;
+    private static final Object NULL_VALUE = new Object();
     private static final Object FAST_EVAL_FAILED = new Object();
     private final VarContext prev;
     private final Cell cell;
     private final int nodeId;
     private Nodable ni;
-    private transient ValueCache cache;
+    private transient volatile ValueCache cache;
 
     // ------------------------ private methods -------------------------------
     // For the global context.
@@ -221,10 +251,11 @@ public class VarContext implements Serializable {
 
     private Object fastJavaVarEval(CodeExpression ce, Object info) throws EvalException {
         // Avoid re-computing the value if it is already in the cache.
-        // Use "contains" because the value might be null.
-        synchronized (this) {
-            if (cache != null && cache.containsKey(ce, info)) {
-                return cache.get(ce, info);
+        ValueCache cache = this.cache;
+        if (cache != null) {
+            Object value = cache.get(ce, info);
+            if (value != null) {
+                return value != NULL_VALUE ? value : null;
             }
         }
         // Avoid calling bean shell if value is just a reference to another
@@ -411,7 +442,7 @@ public class VarContext implements Serializable {
     }
 
     /** Get rid of the variable cache thereby release its storage */
-    public synchronized void deleteVariableCache() {
+    public void deleteVariableCache() {
         cache = null;
     }
 
@@ -509,30 +540,24 @@ public class VarContext implements Serializable {
                 //checkFastValue(value, var, info);
 
                 if (value == FAST_EVAL_FAILED) {
-                    // OK, I give up.  Call the darn bean shell.
-                    value = EvalJavaBsh.evalJavaBsh.evalVarObject(ce, this, info);
-                    synchronized (this) {
-                        if (cache != null) {
-                            cache.put(ce, info, value);
-                        }
+                    value = evalJava(ce, info);
+                    ValueCache cache = this.cache;
+                    if (cache != null) {
+                        cache.put(ce, info, value);
                     }
                 }
                 return ifNotNumberTryToConvertToNumber(value);
             case SPICE:
 //                if (ce.getExpr().equals("")) // empty expression
 //                    return new String("?");
-                Object obj = evalSpice_(ce, true);
-                if (obj instanceof Number) {
-                    Number n = (Number) obj;
-                    if (n.doubleValue() < 0.001) {
-                        return TextUtils.formatDoublePostFix(n.doubleValue());
-                    }
-                }
-                if (obj instanceof EvalSpice.SimpleEq) {
-                    // couldn't parse, just return original
-                    return ce.getExpr();
+                Object[] args = spiceArgs(ce, true);
+                MemoKey key = new MemoKey(ce, args);
+                Object obj = memo.get(key);
+                if (obj == null) {
+                    obj = evalSpiceVar(ce, args);
+                    putMemo(key, obj);
                 }
-                return obj;
+                return obj != NULL_VALUE ? obj : null;
             case TCL:
                 return ifNotNumberTryToConvertToNumber(ce.getExpr());
             default:
@@ -540,6 +565,64 @@ public class VarContext implements Serializable {
         }
     }
 
+    /**
+     * Evaluate a Java expression.
+     * A memoizable expression is evaluated once for each combination of values of its parameters,
+     * by its compiled form if possible, and otherwise by the bean shell.
+     */
+    private Object evalJava(CodeExpression ce, Object info) throws EvalException {
+        if (ce.isMemoizable()) {
+            Object[] args = new Object[ce.getNumParameters()];
+            try {
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = lookupVarEval(ce.getParameter(i).getName());
+                }
+            } catch (EvalException e) {
+                // let the bean shell report the error
+                args = null;
+            }
+            if (args != null) {
+                MemoKey key = new MemoKey(ce, args);
+                Object value = memo.get(key);
+                if (value == null) {
+                    value = ce.evalCompiled(args);
+                    if (value == null) {
+                        value = EvalJavaBsh.evalJavaBsh.evalVarObject(ce, this, info);
+                    }
+                    putMemo(key, value);
+                }
+                return value != NULL_VALUE ? value : null;
+            }
+        }
+        // OK, I give up.  Call the darn bean shell.
+        return EvalJavaBsh.evalJavaBsh.evalVarObject(ce, this, info);
+    }
+
+    private static void putMemo(MemoKey key, Object value) {
+        if (memo.size() >= MAX_MEMO_SIZE) {
+            memo.clear();
+        }
+        memo.put(key, value != null ? value : NULL_VALUE);
+    }
+
+    /**
+     * Evaluate a spice variable as evalVarRecurse returns it.
+     */
+    private static Object evalSpiceVar(CodeExpression ce, Object[] args) {
+        Object obj = evalSpice_(ce, args);
+        if (obj instanceof Number) {
+            Number n = (Number) obj;
+            if (n.doubleValue() < 0.001) {
+                return TextUtils.formatDoublePostFix(n.doubleValue());
+            }
+        }
+        if (obj instanceof EvalSpice.SimpleEq) {
+            // couldn't parse, just return original
+            return ce.getExpr();
+        }
+        return obj;
+    }
+
     /**
      * Evaluate a spice variable
      * @param var the variable to evaluate
@@ -558,11 +641,41 @@ public class VarContext implements Serializable {
     private static final Pattern pPat = Pattern.compile("P\\(\"(\\w+)\"\\)");
 
     private Object evalSpice_(CodeExpression ce, boolean recurse) throws EvalException {
+        return evalSpice_(ce, spiceArgs(ce, recurse));
+    }
+
+    /**
+     * Evaluate a spice expression with the values of its parameters.
+     */
+    private static Object evalSpice_(CodeExpression ce, Object[] args) {
         assert ce.getCode() == CodeExpression.Code.SPICE;
         String expr = EvalJavaBsh.replace(ce.getExpr());
         Matcher pMat = pPat.matcher(expr);
         StringBuffer sb = new StringBuffer();
         while (pMat.find()) {
+            Object value = args[ce.indexOfParameter(Variable.findKey(pMat.group(1)))];
+            pMat.appendReplacement(sb, value.toString());
+        }
+        pMat.appendTail(sb);
+        EvalSpice sp = new EvalSpice(sb.toString());
+        return sp.evaluate();
+    }
+
+    /**
+     * Find the values which are substituted for the parameters of a spice expression.
+     * Parameters are evaluated in the order they appear in the expression.
+     * @return the values in the order of the parameters of the CodeExpression.
+     */
+    private Object[] spiceArgs(CodeExpression ce, boolean recurse) throws EvalException {
+        assert ce.getCode() == CodeExpression.Code.SPICE;
+        Object[] args = new Object[ce.getNumParameters()];
+        String expr = EvalJavaBsh.replace(ce.getExpr());
+        Matcher pMat = pPat.matcher(expr);
+        while (pMat.find()) {
+            int index = ce.indexOfParameter(Variable.findKey(pMat.group(1)));
+            if (args[index] != null) {
+                continue;
+            }
             Object value = pMat.group(1).substring(5);
             Variable parentVar = null;
             Nodable no = getNodable();
@@ -586,11 +699,9 @@ public class VarContext implements Serializable {
                     }
                 }
             }
-            pMat.appendReplacement(sb, value.toString());
+            args[index] = value;
         }
-        pMat.appendTail(sb);
-        EvalSpice sp = new EvalSpice(sb.toString());
-        return sp.evaluate();
+        return args;
     }
 
     /**
@@ -0,0 +1,238 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: BulkShapeBuilder.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.technology;
+
+import com.sun.electric.database.CellRevision;
+import com.sun.electric.database.ImmutableArcInst;
+import com.sun.electric.database.ImmutableElectricObject;
+import com.sun.electric.database.ImmutableNodeInst;
+import com.sun.electric.database.id.PrimitiveNodeId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A shape builder which generates the shapes of all primitive nodes and arcs of a cell in one pass.
+ * Manhattan boxes are accumulated per layer in arrays of fixed-point coordinates.
+ * Other shapes are passed to addPoly and addTextPoly, which subclasses redefine.
+ */
+public abstract class BulkShapeBuilder extends AbstractShapeBuilder {
+
+    /**
+     * Manhattan boxes on one layer.
+     * The fixed-point coordinates lX, lY, hX, hY of the i-th box are at coords[i*4 + 0] ... coords[i*4 + 3].
+     * The node or arc of the i-th box is origins[i].
+     */
+    public static class LayerBoxes {
+
+        private final Layer layer;
+        private long[] coords = new long[64];
+        private ImmutableElectricObject[] origins = new ImmutableElectricObject[16];
+        private int numBoxes;
+
+        private LayerBoxes(Layer layer) {
+            this.layer = layer;
+        }
+
+        public Layer getLayer() {
+            return layer;
+        }
+
+        public int getNumBoxes() {
+            return numBoxes;
+        }
+
+        /**
+         * Method to return the coordinates of the boxes.
+         * The array may be longer than 4*getNumBoxes().
+         * @return the array with the fixed-point coordinates of the boxes.
+         */
+        public long[] getCoords() {
+            return coords;
+        }
+
+        public ImmutableElectricObject getOrigin(int i) {
+            return origins[i];
+        }
+
+        private void add(long lX, long lY, long hX, long hY, ImmutableElectricObject origin) {
+            if (numBoxes == origins.length) {
+                coords = Arrays.copyOf(coords, coords.length * 2);
+                origins = Arrays.copyOf(origins, origins.length * 2);
+            }
+            int i = numBoxes * 4;
+            coords[i + 0] = lX;
+            coords[i + 1] = lY;
+            coords[i + 2] = hX;
+            coords[i + 3] = hY;
+            origins[numBoxes++] = origin;
+        }
+
+        private void clear() {
+            Arrays.fill(origins, 0, numBoxes, null);
+            numBoxes = 0;
+        }
+    }
+
+    /**
+     * A set of LayerBoxes, one for every layer that has boxes.
+     */
+    public static class BoxSet {
+
+        private final Map<Layer, LayerBoxes> byLayer = new HashMap<Layer, LayerBoxes>();
+        private final List<LayerBoxes> allBoxes = new ArrayList<LayerBoxes>();
+        private LayerBoxes lastBoxes;
+
+        /**
+         * Method to add a box.
+         * @param layer the layer of the box.
+         * @param lX the fixed-point lower x coordinate.
+         * @param lY the fixed-point lower y coordinate.
+         * @param hX the fixed-point higher x coordinate.
+         * @param hY the fixed-point higher y coordinate.
+         * @param origin the node or arc of the box.
+         */
+        public void add(Layer layer, long lX, long lY, long hX, long hY, ImmutableElectricObject origin) {
+            LayerBoxes boxes = lastBoxes;
+            if (boxes == null || boxes.layer != layer) {
+                boxes = byLayer.get(layer);
+                if (boxes == null) {
+                    boxes = new LayerBoxes(layer);
+                    byLayer.put(layer, boxes);
+                    allBoxes.add(boxes);
+                }
+                lastBoxes = boxes;
+            }
+            boxes.add(lX, lY, hX, hY, origin);
+        }
+
+        /**
+         * Method to return the boxes of all layers, in the order in which the layers were first used.
+         * Layers whose boxes were cleared are included with no boxes.
+         * @return the boxes of all layers.
+         */
+        public List<LayerBoxes> getLayerBoxes() {
+            return Collections.unmodifiableList(allBoxes);
+        }
+
+        /**
+         * Method to return the boxes of a layer.
+         * @param layer the layer.
+         * @return the boxes of the layer, or null if the layer has not been used.
+         */
+        public LayerBoxes getLayerBoxes(Layer layer) {
+            return byLayer.get(layer);
+        }
+
+        /**
+         * Method to remove all boxes.
+         * The arrays are kept for the next cell.
+         */
+        public void clear() {
+            for (LayerBoxes boxes : allBoxes) {
+                boxes.clear();
+            }
+        }
+    }
+
+    private BoxSet boxSet = new BoxSet();
+
+    /** Creates a new instance of BulkShapeBuilder */
+    public BulkShapeBuilder() {
+    }
+
+    public BulkShapeBuilder(boolean rotateNodes) {
+        super(rotateNodes);
+    }
+
+    /**
+     * Method to return the set which receives the Manhattan boxes.
+     * @return the set which receives the Manhattan boxes.
+     */
+    public BoxSet getBoxSet() {
+        return boxSet;
+    }
+
+    /**
+     * Method to change the set which receives the Manhattan boxes.
+     * @param boxSet the set which receives the Manhattan boxes.
+     */
+    public void setBoxSet(BoxSet boxSet) {
+        this.boxSet = boxSet;
+    }
+
+    /**
+     * Method to generate the shapes of all primitive nodes and arcs of the cell given to setup.
+     * The nodes are generated first, then the arcs, each in the order of the cell.
+     */
+    public void genShapesOfCell() {
+        CellRevision cellRevision = getCellBackup().cellRevision;
+        TechPool techPool = getTechPool();
+        for (int i = 0, numNodes = cellRevision.nodes.size(); i < numNodes; i++) {
+            ImmutableNodeInst n = cellRevision.nodes.get(i);
+            if (!(n.protoId instanceof PrimitiveNodeId)) {
+                continue;
+            }
+            PrimitiveNode pn = techPool.getPrimitiveNode((PrimitiveNodeId) n.protoId);
+            if (acceptNode(n, pn)) {
+                pn.genShape(this, n);
+            }
+        }
+        for (int i = 0, numArcs = cellRevision.arcs.size(); i < numArcs; i++) {
+            ImmutableArcInst a = cellRevision.arcs.get(i);
+            if (acceptArc(a, techPool.getArcProto(a.protoId))) {
+                genShapeOfArc(a);
+            }
+        }
+    }
+
+    /**
+     * Method called by genShapesOfCell before the shapes of a primitive node are generated.
+     * Subclasses redefine it to skip nodes or to prepare for their shapes.
+     * @param n the primitive node.
+     * @param pn the prototype of the node.
+     * @return true to generate the shapes of the node.
+     */
+    protected boolean acceptNode(ImmutableNodeInst n, PrimitiveNode pn) {
+        return true;
+    }
+
+    /**
+     * Method called by genShapesOfCell before the shapes of an arc are generated.
+     * Subclasses redefine it to skip arcs or to prepare for their shapes.
+     * @param a the arc.
+     * @param ap the prototype of the arc.
+     * @return true to generate the shapes of the arc.
+     */
+    protected boolean acceptArc(ImmutableArcInst a, ArcProto ap) {
+        return true;
+    }
+
+    @Override
+    protected void addBox(Layer layer) {
+        boxSet.add(layer, coords[0], coords[1], coords[2], coords[3], getCurObj());
+    }
+}
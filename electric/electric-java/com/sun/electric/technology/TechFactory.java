@@ -53,6 +53,7 @@ public abstract class TechFactory {
     final String techName;
     private final List<Param> techParams;
     private static List<String> sensitiveTechNames = new ArrayList<String>();
+    private static Map<String, TechFactory> knownTechs;
 
     public static class Param {
 
@@ -156,7 +157,16 @@ public abstract class TechFactory {
         return new FromClass("generic", "com.sun.electric.technology.technologies.Generic");
     }
 
-    public static Map<String, TechFactory> getKnownTechs() {
+    /**
+     * Method to return the factories of the technologies built into Electric.
+     * The factories are created once, so their parsed Xml descriptions
+     * are shared by all databases.
+     * @return a map from technology names to their factories.
+     */
+    public static synchronized Map<String, TechFactory> getKnownTechs() {
+        if (knownTechs != null) {
+            return knownTechs;
+        }
         LinkedHashMap<String, TechFactory> m = new LinkedHashMap<String, TechFactory>();
         c(m, "artwork", "com.sun.electric.technology.technologies.Artwork");
         c(m, "fpga", "com.sun.electric.technology.technologies.FPGA");
@@ -180,7 +190,8 @@ public abstract class TechFactory {
 //        r(m, "CLN40G", "plugins/tsmc/CLN40G.xml", true);
         r(m, "tsmcSun40GP", "plugins/tsmc/tsmcSun40GP.xml", true);
         r(m, "tsmcCLN40G", "plugins/tsmc/tsmcCLN40G.xml", true);
-        return Collections.unmodifiableMap(m);
+        knownTechs = Collections.unmodifiableMap(m);
+        return knownTechs;
     }
 
     public static TechFactory getTechFactory(String techName) {
@@ -350,10 +361,10 @@ public abstract class TechFactory {
         }
 
         @Override
-        public Xml.Technology getXml(final Map<Param, Object> paramValues, Map<Object, Map<String, Object>> additionalAttributes) throws Exception {
+        public synchronized Xml.Technology getXml(final Map<Param, Object> paramValues, Map<Object, Map<String, Object>> additionalAttributes) throws Exception {
             assert paramValues.isEmpty();
             if (xmlTech == null && !xmlParsed) {
-                xmlTech = Xml.parseTechnology(urlXml);
+                xmlTech = XmlTechnologyCache.parseTechnology(urlXml);
                 xmlParsed = true;
                 if (xmlTech == null) {
                     throw new Exception("Can't load extra technology: " + urlXml);
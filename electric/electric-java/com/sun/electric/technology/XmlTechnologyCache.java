@@ -0,0 +1,347 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: XmlTechnologyCache.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.technology;
+
+import com.sun.electric.database.text.Version;
+import com.sun.electric.tool.Job;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of parsed Xml technologies.
+ * Parsed technologies are kept in serialized form, keyed by the hash of the XML text
+ * and of the Electric version, in memory and in a directory shared by the Electric processes of a user.
+ * The directory is given by the system property "electric.techcache"; an empty value
+ * disables the disk cache. By default it is ".electric/techcache" in the home directory.
+ * The directory is created readable by its owner only. It is not used if it belongs to
+ * another user or if other users may write it, and entries may only contain the classes of Xml technologies.
+ */
+public class XmlTechnologyCache {
+
+    /** System property with the cache directory. */
+    public static final String CACHE_DIR_PROPERTY = "electric.techcache";
+    private static final String CACHE_SUFFIX = ".ser";
+    /** Packages of the Electric classes in a parsed technology. */
+    private static final Set<String> CACHED_PACKAGES = new HashSet<String>(Arrays.asList(
+            "com.sun.electric.technology",
+            "com.sun.electric.database.geometry",
+            "com.sun.electric.database.text",
+            "com.sun.electric.util.math"));
+    /** Other classes in a parsed technology. */
+    private static final Set<String> CACHED_CLASSES = new HashSet<String>(Arrays.asList(
+            "java.awt.Color",
+            "java.lang.Double",
+            "java.lang.Enum",
+            "java.lang.Integer",
+            "java.lang.Number",
+            "java.util.ArrayList",
+            "java.util.BitSet",
+            "java.util.HashMap",
+            "java.util.LinkedHashMap",
+            "java.util.TreeMap"));
+    private static final Map<String, byte[]> memoryCache = new ConcurrentHashMap<String, byte[]>();
+
+    private XmlTechnologyCache() {
+    }
+
+    /**
+     * Method to parse an Xml technology, or to read it from the cache.
+     * Every call returns a new copy, which the caller may patch.
+     * @param fileURL the URL of the XML file.
+     * @return the parsed technology, or null on errors.
+     */
+    public static Xml.Technology parseTechnology(URL fileURL) {
+        byte[] xmlBytes;
+        String key;
+        try {
+            xmlBytes = readBytes(fileURL);
+            key = makeKey(xmlBytes);
+        } catch (IOException e) {
+            return Xml.parseTechnology(fileURL);
+        } catch (NoSuchAlgorithmException e) {
+            return Xml.parseTechnology(fileURL);
+        }
+
+        long startTime = System.currentTimeMillis();
+        File cacheFile = getCacheFile(key);
+        byte[] serialized = memoryCache.get(key);
+        if (serialized == null && cacheFile != null && isOwned(cacheFile.toPath())) {
+            try {
+                serialized = Files.readAllBytes(cacheFile.toPath());
+            } catch (IOException e) {
+                serialized = null;
+            }
+        }
+        if (serialized != null) {
+            Xml.Technology xmlTech = deserialize(serialized);
+            if (xmlTech != null) {
+                memoryCache.put(key, serialized);
+                if (Job.getDebug()) {
+                    System.out.println("Loading technology " + fileURL + " from cache ... "
+                            + (System.currentTimeMillis() - startTime) + " msec");
+                }
+                return xmlTech;
+            }
+            // stale or damaged entry
+            memoryCache.remove(key);
+            if (cacheFile != null) {
+                cacheFile.delete();
+            }
+        }
+
+        Xml.Technology xmlTech = Xml.parseTechnology(fileURL);
+        if (xmlTech == null) {
+            return null;
+        }
+        serialized = serialize(xmlTech);
+        if (serialized != null) {
+            memoryCache.put(key, serialized);
+            if (cacheFile != null) {
+                writeCacheFile(cacheFile, serialized);
+            }
+        }
+        return xmlTech;
+    }
+
+    /**
+     * Method to return the directory of the disk cache.
+     * @return the directory of the disk cache, or null if the disk cache is disabled.
+     */
+    public static File getCacheDir() {
+        String dirName = System.getProperty(CACHE_DIR_PROPERTY);
+        if (dirName == null) {
+            return new File(new File(System.getProperty("user.home"), ".electric"), "techcache");
+        }
+        return dirName.length() > 0 ? new File(dirName) : null;
+    }
+
+    /**
+     * Method to forget the technologies cached in memory.
+     * The disk cache is kept.
+     */
+    public static void clearMemoryCache() {
+        memoryCache.clear();
+    }
+
+    /**
+     * Method to return the file of an entry of the disk cache.
+     * The directory of the disk cache is created if it doesn't exist.
+     * @return the file of the entry, or null if the disk cache is disabled or not private.
+     */
+    private static File getCacheFile(String key) {
+        File dir = getCacheDir();
+        if (dir == null) {
+            return null;
+        }
+        try {
+            Path dirPath = dir.toPath();
+            if (!Files.exists(dirPath, LinkOption.NOFOLLOW_LINKS)) {
+                if (dirPath.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                    Files.createDirectories(dirPath,
+                            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                } else {
+                    Files.createDirectories(dirPath);
+                }
+            }
+            return isPrivateDir(dirPath) ? new File(dir, key + CACHE_SUFFIX) : null;
+        } catch (IOException e) {
+            return null;
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Method to tell if a directory of the disk cache can be trusted.
+     * @param dir the directory.
+     * @return true if the directory belongs to this user and other users can't write it.
+     */
+    private static boolean isPrivateDir(Path dir) throws IOException {
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS) || !isOwner(dir)) {
+            return false;
+        }
+        PosixFileAttributeView view = Files.getFileAttributeView(dir, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        if (view != null) {
+            Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+            if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to tell if an entry of the disk cache is a file of this user.
+     */
+    private static boolean isOwned(Path file) {
+        try {
+            return Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) && isOwner(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isOwner(Path path) throws IOException {
+        UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        return user.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    /**
+     * Method to write an entry of the disk cache.
+     * The entry is written to a temporary file which is then renamed,
+     * so that concurrent Electric processes never read a partial entry.
+     */
+    private static void writeCacheFile(File cacheFile, byte[] serialized) {
+        File dir = cacheFile.getParentFile();
+        File tmpFile = null;
+        try {
+            // readable by its owner only on POSIX file systems
+            tmpFile = Files.createTempFile(dir.toPath(), "tech", ".tmp").toFile();
+            OutputStream out = new FileOutputStream(tmpFile);
+            try {
+                out.write(serialized);
+            } finally {
+                out.close();
+            }
+            if (tmpFile.renameTo(cacheFile)) {
+                tmpFile = null;
+            }
+        } catch (IOException e) {
+            // the disk cache is only an optimization
+        } finally {
+            if (tmpFile != null) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private static byte[] readBytes(URL fileURL) throws IOException {
+        InputStream in = fileURL.openStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            for (;;) {
+                int n = in.read(buf);
+                if (n < 0) {
+                    break;
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String makeKey(byte[] xmlBytes) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        md.update(Version.getVersion().toString().getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        md.update(xmlBytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] serialize(Xml.Technology xmlTech) {
+        try {
+            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(byteStream);
+            out.writeObject(xmlTech);
+            out.close();
+            return byteStream.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Xml.Technology deserialize(byte[] serialized) {
+        try {
+            ObjectInputStream in = new TechnologyInputStream(new ByteArrayInputStream(serialized));
+            try {
+                return (Xml.Technology) in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (Exception e) {
+            // written by an incompatible version of the Xml classes
+            return null;
+        }
+    }
+
+    /**
+     * Stream to read an entry of the cache.
+     * It only accepts the classes of parsed technologies.
+     */
+    static class TechnologyInputStream extends ObjectInputStream {
+
+        TechnologyInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            if (!isCachedClass(name)) {
+                throw new InvalidClassException(name, "not a class of Xml technologies");
+            }
+            return super.resolveClass(desc);
+        }
+
+        private static boolean isCachedClass(String name) {
+            if (name.length() == 2 && name.charAt(0) == '[') {
+                return true; // array of primitives
+            }
+            int dot = name.lastIndexOf('.');
+            return CACHED_CLASSES.contains(name) || dot >= 0 && CACHED_PACKAGES.contains(name.substring(0, dot));
+        }
+    }
+}
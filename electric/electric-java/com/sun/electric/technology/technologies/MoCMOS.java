@@ -40,6 +40,7 @@ import com.sun.electric.technology.TechFactory;
 import com.sun.electric.technology.Technology;
 import com.sun.electric.technology.XMLRules;
 import com.sun.electric.technology.Xml;
+import com.sun.electric.technology.XmlTechnologyCache;
 import com.sun.electric.tool.user.User;
 import com.sun.electric.util.TextUtils;
 
@@ -777,7 +778,7 @@ public class MoCMOS extends Technology {
         boolean alternateContactRules = ((Boolean) params.get(techParamUseAlternativeActivePolyRules)).booleanValue();
         boolean isAnalog = ((Boolean) params.get(techParamAnalog)).booleanValue();
 
-        Xml.Technology tech = Xml.parseTechnology(MoCMOS.class.getResource("mocmos.xml"));
+        Xml.Technology tech = XmlTechnologyCache.parseTechnology(MoCMOS.class.getResource("mocmos.xml"));
         if (tech == null) // errors while reading the XML file
         {
             return null;
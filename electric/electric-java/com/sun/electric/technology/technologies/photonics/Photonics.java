@@ -33,6 +33,7 @@ import com.sun.electric.technology.Layer;
 import com.sun.electric.technology.TechFactory;
 import com.sun.electric.technology.Technology;
 import com.sun.electric.technology.Xml;
+import com.sun.electric.technology.XmlTechnologyCache;
 import com.sun.electric.technology.technologies.Generic;
 import com.sun.electric.util.math.DBMath;
 import com.sun.electric.util.math.FixpCoord;
@@ -123,7 +124,7 @@ public class Photonics extends Technology
 	 */
 	public static Xml.Technology getPatchedXml(Map<TechFactory.Param,Object> params)
 	{
-		Xml.Technology tech = Xml.parseTechnology(Photonics.class.getResource("Photonics.xml"));
+		Xml.Technology tech = XmlTechnologyCache.parseTechnology(Photonics.class.getResource("Photonics.xml"));
 		return tech;
 	}
 
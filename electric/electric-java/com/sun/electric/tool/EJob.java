@@ -74,6 +74,8 @@ public class EJob {
     State state;
     /** list of saved Highlights */             int savedHighlights = -1;
     /** Fields changed on server side. */       ArrayList<Field> changedFields;
+    /** System.nanoTime when queued */          long waitingSince;
+    /** time in queue before start */          long queueWaitNanos;
 
     /** Creates a new instance of EJob */
     public EJob(Client connection, int jobId, Job.Type jobType, String jobName, byte[] bytes) {
@@ -77,6 +77,7 @@ class EThread extends Thread {
             userInterface = new ServerJobManager.UserInterfaceRedirect(ejob.jobKey);
             database.lock(!ejob.isExamine());
             ejob.oldSnapshot = database.backup();
+            JobTelemetry.Record telemetry = JobTelemetry.begin(ejob);
             try {
                 if (ejob.jobType != Job.Type.CLIENT_EXAMINE && !ejob.jobKey.startedByServer()) {
                     Throwable e = ejob.deserializeToServer();
@@ -139,6 +140,8 @@ class EThread extends Thread {
                 // code whenever something goes wrong.
                 if (Main.isBatch()) {
                     e.printStackTrace();
+                    JobTelemetry.end(telemetry, ejob);
+                    JobTelemetry.dumpIfRequested();
                     System.exit(-1);
                 }
 
@@ -154,6 +157,7 @@ class EThread extends Thread {
                 ejob.serializeExceptionResult(e, database);
 //                ejob.state = EJob.State.SERVER_FAIL;
             } finally {
+                JobTelemetry.end(telemetry, ejob);
                 database.unlock();
                 userInterface = null;
                 Environment.setThreadEnvironment(null);
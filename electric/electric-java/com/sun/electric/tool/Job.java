@@ -219,8 +219,17 @@ public abstract class Job implements Serializable {
 
 	public static void initJobManager(int numThreads, String loggingFilePath, int socketPort, AbstractUserInterface ui,
 			Job initDatabaseJob) {
+		initJobManager(numThreads, loggingFilePath, socketPort, false, ui, initDatabaseJob);
+	}
+
+	/**
+	 * Method to start the Job manager of a server.
+	 * @param localSocket true to accept socket connections only from this machine.
+	 */
+	public static void initJobManager(int numThreads, String loggingFilePath, int socketPort, boolean localSocket,
+			AbstractUserInterface ui, Job initDatabaseJob) {
 		currentUI = ui;
-		serverJobManager = new ServerJobManager(numThreads, loggingFilePath, false, socketPort);
+		serverJobManager = new ServerJobManager(numThreads, loggingFilePath, false, socketPort, localSocket);
 		serverJobManager.runLoop(initDatabaseJob);
 	}
 
@@ -339,6 +348,7 @@ public abstract class Job implements Serializable {
 		boolean doItOnServer = ejob.jobType != Job.Type.CLIENT_EXAMINE;
 		if (startedByServer) {
 			assert doItOnServer;
+			// the job is tagged with the connection which started the current job
 			ejob.client = Job.serverJobManager.serverConnections.get(curJobKey.clientId);
 			ejob.jobKey = ejob.client.newJobId(startedByServer, doItOnServer);
 			timer.start();
@@ -450,6 +460,21 @@ public abstract class Job implements Serializable {
 		reportExecution = flag;
 	}
 
+	/**
+	 * Method to time a named phase of the Job for its performance telemetry.
+	 * The phase is recorded when it is closed:
+	 * <pre>
+	 *     try (JobTelemetry.Phase phase = startPhase("merge")) {
+	 *         ...
+	 *     }
+	 * </pre>
+	 * @param name the name of the phase.
+	 * @return the phase which must be closed at its end.
+	 */
+	protected static JobTelemetry.Phase startPhase(String name) {
+		return JobTelemetry.startPhase(name);
+	}
+
 	// --------------------------PUBLIC JOB METHODS--------------------------
 
 	// /**
@@ -785,7 +810,8 @@ public abstract class Job implements Serializable {
 	 */
 	public static class Key implements Serializable {
 		/**
-		 * Client which launched the Job
+		 * Client which launched the Job.
+		 * A Job started on the server by another Job has the client of that Job.
 		 */
 		public final int clientId;
 		/**
@@ -0,0 +1,503 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: JobTelemetry.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool;
+
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Performance telemetry of Jobs.
+ * <p>
+ * Every Job which runs in an EThread gets a Record with its wall time, CPU and user time,
+ * bytes allocated by its threads, time it waited in the queue of the ServerJobManager
+ * and named phases which are timed by the Job itself with Job.startPhase.
+ * Records of recent Jobs and totals per Job name are exposed through JMX as
+ * "com.sun.electric.tool:type=JobTelemetry" and can be written as JSON.
+ * If the system property "electric.telemetry" names a file, the JSON is written
+ * there when batch mode exits.
+ */
+public class JobTelemetry implements JobTelemetryMXBean {
+
+    /** name of the MXBean */                   public static final String OBJECT_NAME = "com.sun.electric.tool:type=JobTelemetry";
+    /** property with the name of JSON file */  public static final String JSON_FILE_PROPERTY = "electric.telemetry";
+    /** number of recent Jobs which are kept */ private static final int MAX_RECENT = 256;
+
+    private static final JobTelemetry INSTANCE = new JobTelemetry();
+    private static final ThreadLocal<Record> CURRENT = new ThreadLocal<Record>();
+    private static boolean registered;
+
+    /** Records of recent Jobs */               private final ArrayDeque<Record> recent = new ArrayDeque<Record>();
+    /** Statistics by Job name */               private final Map<String, Statistics> statistics = new LinkedHashMap<String, Statistics>();
+    private int numJobs;
+    private int numFailed;
+    private long totalWallNanos;
+    private long totalCpuNanos;
+    private long totalAllocatedBytes;
+    private long totalQueueWaitNanos;
+
+    private JobTelemetry() {
+    }
+
+    /**
+     * Method to return the telemetry of this Electric process.
+     * The MXBean is registered in the platform MBeanServer on the first call.
+     * @return the telemetry.
+     */
+    public static JobTelemetry getInstance() {
+        synchronized (INSTANCE) {
+            if (!registered) {
+                registered = true;
+                try {
+                    ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+                } catch (InstanceAlreadyExistsException e) {
+                    // registered by another class loader
+                } catch (JMException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Performance data of one execution of a Job.
+     * Getters are mapped to JMX open types.
+     */
+    public static class Record {
+
+        private final String jobName;
+        private final String jobType;
+        private String toolName;
+        private final long startTime;
+        private final long queueWaitNanos;
+        private final long startNanos, startCpuNanos, startUserNanos, startAllocatedBytes;
+        private long wallNanos, cpuNanos, userNanos, allocatedBytes;
+        private boolean finished;
+        private boolean ok;
+        /** phase name -> {count, nanos} */     private final Map<String, long[]> phases = new LinkedHashMap<String, long[]>();
+
+        private Record(String jobName, Job.Type jobType, long queueWaitNanos) {
+            this.jobName = jobName;
+            this.jobType = String.valueOf(jobType);
+            this.queueWaitNanos = queueWaitNanos;
+            startTime = System.currentTimeMillis();
+            startNanos = System.nanoTime();
+            startCpuNanos = currentThreadCpuTime();
+            startUserNanos = currentThreadUserTime();
+            startAllocatedBytes = currentThreadAllocatedBytes();
+        }
+
+        private synchronized void finish(String toolName, boolean ok) {
+            this.toolName = toolName;
+            this.ok = ok;
+            wallNanos = System.nanoTime() - startNanos;
+            cpuNanos += delta(currentThreadCpuTime(), startCpuNanos);
+            userNanos += delta(currentThreadUserTime(), startUserNanos);
+            allocatedBytes += delta(currentThreadAllocatedBytes(), startAllocatedBytes);
+            finished = true;
+        }
+
+        /**
+         * Method to add resources consumed by a helper thread of the Job.
+         * @param cpuNanos CPU time of the helper thread in nanoseconds.
+         * @param userNanos user time of the helper thread in nanoseconds.
+         * @param allocatedBytes bytes allocated by the helper thread or -1 if unknown.
+         */
+        public synchronized void addWorkerTime(long cpuNanos, long userNanos, long allocatedBytes) {
+            this.cpuNanos += Math.max(cpuNanos, 0);
+            this.userNanos += Math.max(userNanos, 0);
+            this.allocatedBytes += Math.max(allocatedBytes, 0);
+        }
+
+        /**
+         * Method to add the time of a named phase.
+         * Phases with the same name are summed.
+         * @param name the name of the phase.
+         * @param nanos the time of the phase in nanoseconds.
+         */
+        public synchronized void addPhase(String name, long nanos) {
+            long[] phase = phases.get(name);
+            if (phase == null) {
+                phase = new long[2];
+                phases.put(name, phase);
+            }
+            phase[0]++;
+            phase[1] += nanos;
+        }
+
+        public String getJobName() { return jobName; }
+        public String getJobType() { return jobType; }
+        public synchronized String getToolName() { return toolName; }
+        /** start time in milliseconds since the epoch */
+        public long getStartTime() { return startTime; }
+        public long getQueueWaitNanos() { return queueWaitNanos; }
+        public synchronized long getWallNanos() { return finished ? wallNanos : System.nanoTime() - startNanos; }
+        public synchronized long getCpuNanos() { return cpuNanos; }
+        public synchronized long getUserNanos() { return userNanos; }
+        public synchronized long getAllocatedBytes() { return allocatedBytes; }
+        public synchronized boolean isFinished() { return finished; }
+        public synchronized boolean isOk() { return ok; }
+
+        /**
+         * Method to return the total time of each phase.
+         * @return map from phase name to nanoseconds, in the order of the first start.
+         */
+        public synchronized Map<String, Long> getPhaseNanos() {
+            Map<String, Long> result = new LinkedHashMap<String, Long>();
+            for (Map.Entry<String, long[]> e : phases.entrySet()) {
+                result.put(e.getKey(), Long.valueOf(e.getValue()[1]));
+            }
+            return result;
+        }
+
+        private synchronized void writeJson(Writer out) throws IOException {
+            out.write("{\"job\": ");
+            writeString(out, jobName);
+            out.write(", \"tool\": ");
+            writeString(out, toolName);
+            out.write(", \"type\": ");
+            writeString(out, jobType);
+            out.write(", \"ok\": " + ok);
+            out.write(", \"startTime\": " + startTime);
+            out.write(", \"wallNanos\": " + wallNanos);
+            out.write(", \"cpuNanos\": " + cpuNanos);
+            out.write(", \"userNanos\": " + userNanos);
+            out.write(", \"allocatedBytes\": " + allocatedBytes);
+            out.write(", \"queueWaitNanos\": " + queueWaitNanos);
+            out.write(", \"phases\": [");
+            boolean first = true;
+            for (Map.Entry<String, long[]> e : phases.entrySet()) {
+                out.write(first ? "{\"name\": " : ", {\"name\": ");
+                writeString(out, e.getKey());
+                out.write(", \"count\": " + e.getValue()[0] + ", \"nanos\": " + e.getValue()[1] + "}");
+                first = false;
+            }
+            out.write("]}");
+        }
+    }
+
+    /**
+     * Totals of all executions of Jobs with the same name.
+     */
+    public static class Statistics {
+
+        private final String jobName;
+        private int count;
+        private int numFailed;
+        private long wallNanos, maxWallNanos, cpuNanos, allocatedBytes, queueWaitNanos;
+
+        private Statistics(String jobName) {
+            this.jobName = jobName;
+        }
+
+        private void add(Record r) {
+            count++;
+            if (!r.ok) {
+                numFailed++;
+            }
+            wallNanos += r.wallNanos;
+            maxWallNanos = Math.max(maxWallNanos, r.wallNanos);
+            cpuNanos += r.cpuNanos;
+            allocatedBytes += r.allocatedBytes;
+            queueWaitNanos += r.queueWaitNanos;
+        }
+
+        public String getJobName() { return jobName; }
+        public int getCount() { return count; }
+        public int getNumFailed() { return numFailed; }
+        public long getWallNanos() { return wallNanos; }
+        public long getMaxWallNanos() { return maxWallNanos; }
+        public long getCpuNanos() { return cpuNanos; }
+        public long getAllocatedBytes() { return allocatedBytes; }
+        public long getQueueWaitNanos() { return queueWaitNanos; }
+
+        private void writeJson(Writer out) throws IOException {
+            out.write("{\"job\": ");
+            writeString(out, jobName);
+            out.write(", \"count\": " + count);
+            out.write(", \"failed\": " + numFailed);
+            out.write(", \"wallNanos\": " + wallNanos);
+            out.write(", \"maxWallNanos\": " + maxWallNanos);
+            out.write(", \"cpuNanos\": " + cpuNanos);
+            out.write(", \"allocatedBytes\": " + allocatedBytes);
+            out.write(", \"queueWaitNanos\": " + queueWaitNanos + "}");
+        }
+    }
+
+    /**
+     * A running phase of the current Job.
+     * The phase is recorded when it is closed.
+     */
+    public static class Phase implements AutoCloseable {
+
+        private final Record record;
+        private final String name;
+        private final long startNanos;
+
+        private Phase(Record record, String name) {
+            this.record = record;
+            this.name = name;
+            startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (record != null) {
+                record.addPhase(name, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Method to start a named phase of the Job which runs in the current thread.
+     * It is harmless to call this method outside of a Job.
+     * @param name the name of the phase.
+     * @return the phase which must be closed at its end.
+     */
+    public static Phase startPhase(String name) {
+        return new Phase(CURRENT.get(), name);
+    }
+
+    /**
+     * Method to return the Record of the Job which runs in the current thread.
+     * @return the Record or null if no Job runs in the current thread.
+     */
+    public static Record current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Method called by EThread before a Job is executed.
+     * @param ejob the Job.
+     * @return the Record of the Job.
+     */
+    static Record begin(EJob ejob) {
+        return begin(ejob.jobName, ejob.jobType, ejob.queueWaitNanos);
+    }
+
+    static Record begin(String jobName, Job.Type jobType, long queueWaitNanos) {
+        Record record = new Record(jobName, jobType, queueWaitNanos);
+        CURRENT.set(record);
+        return record;
+    }
+
+    /**
+     * Method called by EThread after a Job is executed.
+     * @param record the Record of the Job.
+     * @param ejob the Job.
+     */
+    static void end(Record record, EJob ejob) {
+        Job job = ejob.getJob();
+        end(record, job != null && job.getTool() != null ? job.getTool().getName() : null, ejob.doItOk);
+    }
+
+    static void end(Record record, String toolName, boolean ok) {
+        CURRENT.remove();
+        record.finish(toolName, ok);
+        getInstance().add(record);
+    }
+
+    private synchronized void add(Record r) {
+        if (recent.size() == MAX_RECENT) {
+            recent.removeFirst();
+        }
+        recent.addLast(r);
+        Statistics s = statistics.get(r.jobName);
+        if (s == null) {
+            s = new Statistics(r.jobName);
+            statistics.put(r.jobName, s);
+        }
+        s.add(r);
+        numJobs++;
+        if (!r.ok) {
+            numFailed++;
+        }
+        totalWallNanos += r.wallNanos;
+        totalCpuNanos += r.cpuNanos;
+        totalAllocatedBytes += r.allocatedBytes;
+        totalQueueWaitNanos += r.queueWaitNanos;
+    }
+
+    @Override
+    public synchronized int getNumJobs() { return numJobs; }
+    @Override
+    public synchronized int getNumFailedJobs() { return numFailed; }
+    @Override
+    public synchronized long getTotalWallNanos() { return totalWallNanos; }
+    @Override
+    public synchronized long getTotalCpuNanos() { return totalCpuNanos; }
+    @Override
+    public synchronized long getTotalAllocatedBytes() { return totalAllocatedBytes; }
+    @Override
+    public synchronized long getTotalQueueWaitNanos() { return totalQueueWaitNanos; }
+
+    @Override
+    public synchronized List<Record> getRecentJobs() {
+        return new ArrayList<Record>(recent);
+    }
+
+    @Override
+    public synchronized List<Statistics> getStatistics() {
+        return new ArrayList<Statistics>(statistics.values());
+    }
+
+    @Override
+    public String getJson() {
+        StringWriter out = new StringWriter();
+        try {
+            writeJson(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public synchronized void reset() {
+        recent.clear();
+        statistics.clear();
+        numJobs = numFailed = 0;
+        totalWallNanos = totalCpuNanos = totalAllocatedBytes = totalQueueWaitNanos = 0;
+    }
+
+    /**
+     * Method to write totals, statistics by Job name and recent Jobs as JSON.
+     * @param out the Writer.
+     * @throws IOException on write error.
+     */
+    public synchronized void writeJson(Writer out) throws IOException {
+        out.write("{\"numJobs\": " + numJobs);
+        out.write(", \"numFailedJobs\": " + numFailed);
+        out.write(", \"totalWallNanos\": " + totalWallNanos);
+        out.write(", \"totalCpuNanos\": " + totalCpuNanos);
+        out.write(", \"totalAllocatedBytes\": " + totalAllocatedBytes);
+        out.write(", \"totalQueueWaitNanos\": " + totalQueueWaitNanos);
+        out.write(",\n\"statistics\": [");
+        boolean first = true;
+        for (Statistics s : statistics.values()) {
+            out.write(first ? "\n" : ",\n");
+            s.writeJson(out);
+            first = false;
+        }
+        out.write("],\n\"jobs\": [");
+        first = true;
+        for (Record r : recent) {
+            out.write(first ? "\n" : ",\n");
+            r.writeJson(out);
+            first = false;
+        }
+        out.write("]}\n");
+    }
+
+    /**
+     * Method called before batch mode exits.
+     * Writes JSON to the file named by the system property "electric.telemetry", if any.
+     */
+    public static void dumpIfRequested() {
+        String fileName = System.getProperty(JSON_FILE_PROPERTY);
+        if (fileName == null || fileName.isEmpty()) {
+            return;
+        }
+        try (Writer out = new FileWriter(fileName)) {
+            getInstance().writeJson(out);
+        } catch (IOException e) {
+            System.out.println("Error writing job telemetry to " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeString(Writer out, String s) throws IOException {
+        if (s == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    private static long delta(long end, long start) {
+        return end >= 0 && start >= 0 ? end - start : 0;
+    }
+
+    private static long currentThreadCpuTime() {
+        ThreadMXBean threadMX = ManagementFactory.getThreadMXBean();
+        return threadMX.isCurrentThreadCpuTimeSupported() ? threadMX.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long currentThreadUserTime() {
+        ThreadMXBean threadMX = ManagementFactory.getThreadMXBean();
+        return threadMX.isCurrentThreadCpuTimeSupported() ? threadMX.getCurrentThreadUserTime() : -1;
+    }
+
+    /**
+     * Method to return bytes allocated by the current thread.
+     * @return allocated bytes or -1 if the JVM does not measure them.
+     */
+    static long currentThreadAllocatedBytes() {
+        ThreadMXBean threadMX = ManagementFactory.getThreadMXBean();
+        if (threadMX instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMX = (com.sun.management.ThreadMXBean) threadMX;
+            if (sunThreadMX.isThreadAllocatedMemorySupported() && sunThreadMX.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMX.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
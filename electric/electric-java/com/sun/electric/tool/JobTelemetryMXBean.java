@@ -0,0 +1,60 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: JobTelemetryMXBean.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool;
+
+import java.util.List;
+
+/**
+ * JMX management interface of JobTelemetry.
+ */
+public interface JobTelemetryMXBean {
+
+    /** Method to return the number of finished Jobs. */
+    int getNumJobs();
+
+    /** Method to return the number of failed Jobs. */
+    int getNumFailedJobs();
+
+    /** Method to return the total wall time of finished Jobs in nanoseconds. */
+    long getTotalWallNanos();
+
+    /** Method to return the total CPU time of finished Jobs in nanoseconds. */
+    long getTotalCpuNanos();
+
+    /** Method to return the total bytes allocated by finished Jobs. */
+    long getTotalAllocatedBytes();
+
+    /** Method to return the total time which finished Jobs waited in the queue in nanoseconds. */
+    long getTotalQueueWaitNanos();
+
+    /** Method to return Records of recent Jobs. */
+    List<JobTelemetry.Record> getRecentJobs();
+
+    /** Method to return Statistics by Job name. */
+    List<JobTelemetry.Statistics> getStatistics();
+
+    /** Method to return all telemetry as JSON. */
+    String getJson();
+
+    /** Method to forget all finished Jobs. */
+    void reset();
+}
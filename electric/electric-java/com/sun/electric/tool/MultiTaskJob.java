@@ -58,6 +58,7 @@ public abstract class MultiTaskJob<TaskKey, TaskResult, Result> extends Job {
     private transient ThreadMXBean threadMX;
     private transient long accumulatedCpuTime;
     private transient long accumulatedUserTime;
+    private transient JobTelemetry.Record telemetry;
 
     private static final double MILLIS_IN_SEC = 1e3;
     private static final double NANOS_IN_SEC = 1e9;
@@ -109,6 +110,7 @@ public abstract class MultiTaskJob<TaskKey, TaskResult, Result> extends Job {
      * @throws JobException
      */
     @Override
+    @SuppressWarnings("try") // the phases are only closed
     public final boolean doIt() throws JobException {
         threadMX = ManagementFactory.getThreadMXBean();
         long startClockTime = System.currentTimeMillis();
@@ -117,15 +119,20 @@ public abstract class MultiTaskJob<TaskKey, TaskResult, Result> extends Job {
         env = Environment.getThreadEnvironment();
         editingPreferences = getEditingPreferences();
         ownerThread = (EThread) Thread.currentThread();
+        telemetry = JobTelemetry.current();
         numberOfRunningThreads = ServerJobManager.getMaxNumberOfThreads();
         tasks = new LinkedHashMap<TaskKey, Task>();
         allTasks = new ArrayList<Task>();
-        prepareTasks();
+        try (JobTelemetry.Phase phase = startPhase("prepareTasks")) {
+            prepareTasks();
+        }
         tasksDone = -numberOfRunningThreads;
         for (int id = 0; id < numberOfRunningThreads; id++) {
             new MultiTaskWorkingThread(id).start();
         }
-        waitTasks();
+        try (JobTelemetry.Phase phase = startPhase("runTasks")) {
+            waitTasks();
+        }
 
         LinkedHashMap<TaskKey, TaskResult> taskResults = new LinkedHashMap<TaskKey, TaskResult>();
         for (Task task : tasks.values()) {
@@ -134,7 +141,10 @@ public abstract class MultiTaskJob<TaskKey, TaskResult, Result> extends Job {
             }
         }
         tasks.clear();
-        Result result = mergeTaskResults(taskResults);
+        Result result;
+        try (JobTelemetry.Phase phase = startPhase("mergeTaskResults")) {
+            result = mergeTaskResults(taskResults);
+        }
         taskResults.clear();
         long endClockTime = System.currentTimeMillis();
         accumulatedCpuTime += (threadMX.getCurrentThreadCpuTime() - startCpuTime);
@@ -189,9 +199,12 @@ public abstract class MultiTaskJob<TaskKey, TaskResult, Result> extends Job {
         }
     }
 
-    private synchronized void finishWorkingThread(long cpuTime, long userTime) {
+    private synchronized void finishWorkingThread(long cpuTime, long userTime, long allocatedBytes) {
         this.accumulatedCpuTime += cpuTime;
         this.accumulatedUserTime += userTime;
+        if (telemetry != null) {
+            telemetry.addWorkerTime(cpuTime, userTime, allocatedBytes);
+        }
         numberOfFinishedThreads++;
         notifyAll();
     }
@@ -243,7 +256,7 @@ public abstract class MultiTaskJob<TaskKey, TaskResult, Result> extends Job {
             long cpuTime = threadMX.getCurrentThreadCpuTime();
             long userTime = threadMX.getCurrentThreadUserTime();
             System.out.println(getName() + " clock=" + accumulatedTime/MILLIS_IN_SEC + " cpu=" + cpuTime/NANOS_IN_SEC + " user=" + userTime/NANOS_IN_SEC);
-            finishWorkingThread(cpuTime, userTime);
+            finishWorkingThread(cpuTime, userTime, JobTelemetry.currentThreadAllocatedBytes());
         }
     }
 }
@@ -45,6 +45,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Map;
@@ -147,6 +149,137 @@ public class Regression {
         }
     }
 
+    /**
+     * Method to run a script in a warm server started with "-batchserver port".
+     * @param port the port of the server on this machine.
+     * @param script the bean shell script to run.
+     * @return true if the script and the jobs which it started were successful.
+     */
+    public static boolean runScript(int port, String script) {
+        try {
+            ServerConnection connection = new ServerConnection(port);
+            try {
+                return connection.runScript(script);
+            } finally {
+                connection.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Connection to server failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Connection to a warm server started with "-batchserver port".
+     * The server keeps its technologies and libraries loaded between connections.
+     * A connection may run several scripts; it keeps the last Snapshot received,
+     * so the server only sends the changes made by each script.
+     * Ids of the server are read into an IdManager of the connection.
+     */
+    public static class ServerConnection {
+
+        private final Socket socket;
+        private final IdReader reader;
+        private final DataOutputStream clientOutputStream;
+        private final int connectionId;
+        private final AbstractUserInterface ui = new Main.UserInterfaceDummy();
+        private final IdManager idManager = new IdManager();
+        private Snapshot currentSnapshot = idManager.getInitialSnapshot();
+        private int lastJobId;
+
+        /**
+         * Connects to a warm server on this machine.
+         * @param port the port of the server.
+         * @throws IOException if the connection failed.
+         */
+        public ServerConnection(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            reader = new IdReader(new DataInputStream(new BufferedInputStream(socket.getInputStream())), idManager);
+            int protocolVersion = reader.readInt();
+            if (protocolVersion != Job.PROTOCOL_VERSION) {
+                socket.close();
+                throw new IOException("Client's protocol version " + Job.PROTOCOL_VERSION + " is incompatible with Server's protocol version " + protocolVersion);
+            }
+            connectionId = reader.readInt();
+            ui.patchConnectionId(connectionId);
+            System.out.format("%1$tT.%1$tL ", Calendar.getInstance());
+            System.out.println("Connected id=" + connectionId);
+
+            clientOutputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            EDatabase database = new EDatabase(IdManager.stdIdManager.getInitialEnvironment());
+            Job.setUserInterface(new UserInterfaceInitial(database));
+            writeEditingPreferences(clientOutputStream, database);
+        }
+
+        /**
+         * Method to run a script in the server and to wait for the jobs which it started.
+         * @param script the bean shell script to run.
+         * @return true if the script and the jobs which it started were successful.
+         * @throws IOException if the connection failed.
+         */
+        public boolean runScript(String script) throws IOException {
+            System.out.println("Running " + script);
+            boolean passed = waitFor(writeJob(EvalJavaBsh.runScriptJob(script)));
+            // jobs started by the script were queued before this one
+            return waitFor(writeJob(new BarrierJob())) && passed;
+        }
+
+        /**
+         * Method to return the last Snapshot received from the server.
+         * @return the database of the server after the last script.
+         */
+        public Snapshot getSnapshot() {
+            return currentSnapshot;
+        }
+
+        /**
+         * Method to close the connection. The server keeps running.
+         * @throws IOException if the socket failed.
+         */
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        private int writeJob(Job job) throws IOException {
+            int jobId = --lastJobId;
+            job.ejob.jobKey = new Job.Key(connectionId, jobId, true);
+            Regression.writeJob(clientOutputStream, job);
+            return jobId;
+        }
+
+        private boolean waitFor(int jobId) throws IOException {
+            boolean passed = true;
+            for (;;) {
+                byte tag = reader.readByte();
+                long timeStamp = reader.readLong();
+                if (tag == 1) {
+                    currentSnapshot = Snapshot.readSnapshot(reader, currentSnapshot);
+                    continue;
+                }
+                Client.ServerEvent serverEvent = Client.read(reader, tag, timeStamp, ui, currentSnapshot);
+                if (serverEvent instanceof Client.EJobEvent) {
+                    Client.EJobEvent e = (Client.EJobEvent) serverEvent;
+                    if (e.jobKey.clientId == connectionId && e.jobKey.jobId == jobId) {
+                        if (!e.doItOk) {
+                            System.out.println("Job " + e.jobName + " exception");
+                            return false;
+                        }
+                        return passed;
+                    }
+                    // jobs started on the server by a script have the client id of this connection
+                    if (!e.doItOk && e.jobKey.clientId == connectionId) {
+                        System.out.println("Job " + e.jobName + " failed");
+                        passed = false;
+                    }
+                } else if (serverEvent instanceof Client.ShutdownEvent) {
+                    throw new IOException("Server shut down");
+                } else {
+                    serverEvent.show(ui);
+                }
+            }
+        }
+    }
+
     private static void printErrorStream(Process process) {
         try {
 //            process.getOutputStream().close();
@@ -190,6 +323,17 @@ public class Regression {
         }
     }
 
+    private static class BarrierJob extends Job {
+
+        private BarrierJob() {
+            super("BarrierJob", null, Job.Type.CHANGE, null, null, Job.Priority.USER);
+        }
+
+        public boolean doIt() throws JobException {
+            return true;
+        }
+    }
+
     private static class QuitJob extends Job {
 
         private QuitJob() {
@@ -42,6 +42,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
@@ -88,6 +89,14 @@ public class ServerJobManager {
 
     /** Creates a new instance of JobPool */
     ServerJobManager(int recommendedNumThreads, String loggingFilePath, boolean pipe, int socketPort) {
+        this(recommendedNumThreads, loggingFilePath, pipe, socketPort, false);
+    }
+
+    /**
+     * Creates a new instance of JobPool.
+     * @param localSocket true to accept socket connections only from this machine.
+     */
+    ServerJobManager(int recommendedNumThreads, String loggingFilePath, boolean pipe, int socketPort, boolean localSocket) {
         maxNumThreads = initThreads(recommendedNumThreads);
         maxNumberOfThreads = maxNumThreads;
         if (Job.currentUI != null) {
@@ -102,7 +111,9 @@ public class ServerJobManager {
         ServerSocket serverSocket = null;
         if (socketPort > 0) {
             try {
-                serverSocket = new ServerSocket(socketPort);
+                serverSocket = localSocket
+                        ? new ServerSocket(socketPort, 0, InetAddress.getLoopbackAddress())
+                        : new ServerSocket(socketPort);
                 System.out.println("ServerSocket waits for port " + socketPort);
             } catch (IOException e) {
                 System.out.println("ServerSocket mode failure: " + e.getMessage());
@@ -198,6 +209,7 @@ public class ServerJobManager {
             } else {
                 waitingJobs.add(ejob);
             }
+            ejob.waitingSince = System.nanoTime();
             setEJobState(ejob, EJob.State.WAITING, onMySnapshot ? EJob.WAITING_NOW : "waiting");
             invokeEThread();
         } finally {
@@ -425,7 +437,7 @@ public class ServerJobManager {
                 StreamClient conn;
                 lock();
                 try {
-                    conn = new StreamClient(connectionId, socket.getInputStream(), socket.getOutputStream());
+                    conn = new StreamClient(connectionId, socket);
                     serverConnections.add(conn);
                 } finally {
                     unlock();
@@ -476,6 +488,7 @@ public class ServerJobManager {
                 if (canDoIt()) {
                     EJob ejob = waitingJobs.remove(0);
                     startedJobs.add(ejob);
+                    ejob.queueWaitNanos = ejob.waitingSince != 0 ? System.nanoTime() - ejob.waitingSince : 0;
                     if (ejob.isExamine()) {
                         assert !runningChangeJob;
                         invokeEThread();
@@ -489,6 +502,7 @@ public class ServerJobManager {
                 }
                 if (Main.isBatch() && startedJobs.isEmpty()) {
                     ActivityLogger.finished();
+                    JobTelemetry.dumpIfRequested();
                     System.exit(0);
                 }
                 Job.logger.trace("ServerJobManager.selectEJob pause");
@@ -28,6 +28,7 @@ import com.sun.electric.database.hierarchy.EDatabase;
 import com.sun.electric.database.id.IdManager;
 import com.sun.electric.database.id.IdWriter;
 import com.sun.electric.tool.Client.ServerEvent;
+import com.sun.electric.tool.user.ActivityLogger;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
@@ -37,6 +38,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.OutputStream;
+import java.net.Socket;
 
 /**
  * Class for maintaining Connection on Server side.
@@ -46,11 +48,26 @@ public class StreamClient extends Client {
     private Snapshot currentSnapshot = EDatabase.serverDatabase().getInitialSnapshot();
     private final ServerEventDispatcher dispatcher;
     private final ClientReader reader;
+    /** socket of a socket connection or null */ private final Socket socket;
+    /** true after the client closed a socket connection */ private volatile boolean closed;
     private static final long STACK_SIZE_EVENT = 0/*isOSMac()?0:32*(1 << 10)*/;
     private final static int STACK_SIZE_READER = 0/*isOSMac()?0:32*(1 << 10)*/;
 
     StreamClient(int connectionId, InputStream inputStream, OutputStream outputStream) {
+        this(connectionId, inputStream, outputStream, null);
+    }
+
+    /**
+     * Creates a connection with a client on a socket.
+     * The client ends the connection by closing the socket; its jobs still run to the end.
+     */
+    StreamClient(int connectionId, Socket socket) throws IOException {
+        this(connectionId, socket.getInputStream(), socket.getOutputStream(), socket);
+    }
+
+    private StreamClient(int connectionId, InputStream inputStream, OutputStream outputStream, Socket socket) {
         super(connectionId);
+        this.socket = socket;
         writer = new IdWriter(IdManager.stdIdManager, new DataOutputStream(outputStream));
         dispatcher = new ServerEventDispatcher();
         reader = inputStream != null ? new ClientReader(inputStream) : null;
@@ -76,6 +93,8 @@ public class StreamClient extends Client {
                 for (;;) {
                     writer.flush();
                     lastEvent = Client.getEvent(lastEvent);
+                    if (closed)
+                        return;
                     for (;;) {
                         if (lastEvent.getSnapshot() != currentSnapshot) {
                             assert lastEvent instanceof Client.EJobEvent || lastEvent instanceof Client.SnapshotEvent;
@@ -93,7 +112,9 @@ public class StreamClient extends Client {
                     }
                 }
             } catch (Exception e) {
-                e.printStackTrace();
+                // a closed socket ends the connection quietly
+                if (!closed)
+                    ActivityLogger.logException(e);
             } finally {
                 lastEvent = null;
                 Job.serverJobManager.connectionClosed();
@@ -118,6 +139,7 @@ public class StreamClient extends Client {
         }
 
         public void run() {
+            IOException failure = null;
             try {
                 EditingPreferences clientEp = null;
                 for (;;) {
@@ -146,7 +168,7 @@ public class StreamClient extends Client {
                                 in.close();
                                 clientEp = ep;
                             } catch (Throwable e) {
-                                e.printStackTrace();
+                                ActivityLogger.logException(e);
                             }
                             break;
                         default:
@@ -154,9 +176,20 @@ public class StreamClient extends Client {
                     }
                 }
             } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-//                dispatcher.interrupt();
+                failure = e;
+            }
+//            dispatcher.interrupt();
+            if (socket == null) {
+                if (failure != null)
+                    ActivityLogger.logException(failure);
+            } else {
+                // the client closed the socket
+                closed = true;
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                }
+                ActivityLogger.logMessage("Closed connection " + connectionId);
             }
         }
     }
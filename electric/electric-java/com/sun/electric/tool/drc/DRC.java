@@ -1386,7 +1386,7 @@ public class DRC extends Listener
     public static ErrorLogger getDRCErrorLogger(boolean layout, String extraMsg)
     {
         String title = (layout) ? "Layout " : "Schematic ";
-        return ErrorLogger.newInstance(title + "DRC (full)" + ((extraMsg != null) ? extraMsg:""));
+        return ErrorLogger.newInstance(title + "DRC (full)" + ((extraMsg != null) ? extraMsg:""), false, User.isErrorLogOnDisk());
     }
 
     public static ErrorLogger getDRCIncrementalLogger() {
@@ -52,9 +52,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.prefs.Preferences;
 
 /**
@@ -81,10 +88,26 @@ public class ERCAntenna
         // In TECH_NODE
         private static final String KEY_ANTENNA_RATIO = "DefaultAntennaRatio";
 
+        private static final String PREF_NODE = "tool/erc";
+
         private transient final TechPool techPool;
         public Map<ArcProtoId,Double> antennaRatio = new HashMap<ArcProtoId,Double>();
         public boolean disablePopups = false;
 
+        /**
+         * Whether the antenna check should trace every network once for all layers
+         * and analyze the networks with multiple processors. The default is "false".
+         */
+        @BooleanPref(node = PREF_NODE, key = "ParallelAntennaCheck", factory = false)
+        public boolean parallelAntennaCheck;
+
+        /**
+         * The number of processors to use in the parallel antenna check. The default is
+         * "0" (as many as there are).
+         */
+        @IntegerPref(node = PREF_NODE, key = "AntennaCheckNumProc", factory = 0)
+        public int maxProc;
+
         public AntennaPreferences(boolean factory, TechPool techPool)
         {
             super(factory);
@@ -155,6 +178,63 @@ public class ERCAntenna
 		}
 	}
 
+	/**
+	 * Class to describe a network that is traced once for all layers in the parallel check.
+	 * A network of a subcell that connects to its exports is shared by all instances of the subcell.
+	 */
+	private class AntennaNet
+	{
+		/** the cell in which the network was traced */		final Cell                      cell;
+		/** true if gates were found on the network */			boolean                         hasGate;
+		/** true if active was found on the network */			boolean                         hasActive;
+		/** accumulated gate area */							double                          gateArea;
+		/** geometry of the network in this cell */				final List<Poly>                polys = new ArrayList<Poly>();
+		/** networks of subcells on this network */				final List<AntennaNet>          subNets = new ArrayList<AntennaNet>();
+		/** transformations of the networks of subcells */		final List<FixpTransform>       subTrans = new ArrayList<FixpTransform>();
+		/** exports of the cell on this network */				final List<Export>              exports = new ArrayList<Export>();
+		/** merged geometry, computed once */					private PolyMerge               merge;
+		/** sidewall area on each layer */						final Map<Layer,Double>         perimeterArea = new HashMap<Layer,Double>();
+
+		AntennaNet(Cell cell) { this.cell = cell; }
+
+		/**
+		 * Method to add the geometry of a node or an arc on this network.
+		 * @param polyList the geometry.
+		 * @param trans a transformation to this cell, null for an identity.
+		 */
+		private void addShapes(Poly [] polyList, FixpTransform trans)
+		{
+			if (polyList == null) return;
+			for(int i=0; i<polyList.length; i++)
+			{
+				Poly poly = polyList[i];
+				if (!layerToArcProto.containsKey(poly.getLayer())) continue;
+				if (trans != null) poly.transform(trans);
+				polys.add(poly);
+			}
+		}
+
+		/**
+		 * Method to return the merged geometry of this network, including the networks of subcells.
+		 * Merged geometry of the network of a subcell is computed once for all its instances.
+		 * The merge is computed by the first thread that needs it.
+		 * @return the merged geometry.
+		 */
+		synchronized PolyMerge getMerge()
+		{
+			if (merge == null)
+			{
+				PolyMerge vmerge = new PolyMerge();
+				for(Poly poly : polys)
+					vmerge.addPolygon(poly.getLayer(), poly);
+				for(int i=0; i<subNets.size(); i++)
+					vmerge.addMerge(subNets.get(i).getMerge(), subTrans.get(i));
+				merge = vmerge;
+			}
+			return merge;
+		}
+	}
+
 	/** default maximum ratio of poly to gate area */		public static final double DEFPOLYRATIO  = 200;
 	/** default maximum ratio of metal to gate area */		public static final double DEFMETALRATIO = 400;
 	/** default poly thickness for side-area */				public static final double DEFPOLYTHICKNESS  = 2;
@@ -176,6 +256,7 @@ public class ERCAntenna
 	/** Map for marking Cells. */							private Set<Cell>               fsCell;
 	/** for storing errors */								private ErrorLogger             errorLogger;
 	/** preferences */                                      private AntennaPreferences      antennaPrefs;
+	/** networks of subcells by their Exports */			private Map<Export,AntennaNet>  subNetsByExport;
 
 	/************************ CONTROL ***********************/
 
@@ -199,9 +280,18 @@ public class ERCAntenna
      * For test/regression/internal run
      */
     public static int checkERCAntenna(Cell cell, AntennaPreferences prefs, Job job)
+    {
+        return checkERCAntennaErrors(cell, prefs, job).getNumErrors();
+    }
+
+    /**
+     * Method to do the Antenna check and return the errors that were found, for tests.
+     */
+    static ErrorLogger checkERCAntennaErrors(Cell cell, AntennaPreferences prefs, Job job)
     {
         ERCAntenna handler = new ERCAntenna(prefs);
-        return handler.doCheck(job, cell);
+        handler.doCheck(job, cell);
+        return handler.errorLogger;
     }
 
     /**
@@ -266,20 +356,26 @@ public class ERCAntenna
 		// now check each layer of the cell
 		int lasterrorcount = 0;
 		worstRatio = 0;
-		for(Layer lay : layerToArcProto.keySet())
+		if (antennaPrefs.parallelAntennaCheck)
 		{
-			System.out.println("Checking Antenna rules for " + lay.getName() + "...");
+			checkInParallel(topCell, job);
+		} else
+		{
+			for(Layer lay : layerToArcProto.keySet())
+			{
+				System.out.println("Checking Antenna rules for " + lay.getName() + "...");
 
-			// clear timestamps on all cells
-			fsCell.clear();
+				// clear timestamps on all cells
+				fsCell.clear();
 
-			// do the check for this level
-			if (checkThisCell(topCell, lay, job)) break;
-			int i = errorLogger.getNumErrors();
-			if (i != lasterrorcount)
-			{
-				System.out.println("  Found " + (i - lasterrorcount) + " errors");
-				lasterrorcount = i;
+				// do the check for this level
+				if (checkThisCell(topCell, lay, job)) break;
+				int i = errorLogger.getNumErrors();
+				if (i != lasterrorcount)
+				{
+					System.out.println("  Found " + (i - lasterrorcount) + " errors");
+					lasterrorcount = i;
+				}
 			}
 		}
 
@@ -397,40 +493,10 @@ public class ERCAntenna
 						// get the area of the antenna
 						double totalRegionPerimeterArea = 0.0;
 						for (Layer oLay : vmerge.getKeySet())
-						{
-							double thickness = oLay.getThickness();
-							if (thickness == 0)
-							{
-								if (oLay.getFunction().isMetal()) thickness = DEFMETALTHICKNESS; else
-									if (oLay.getFunction().isPoly()) thickness = DEFPOLYTHICKNESS;
-							}
-							List<PolyBase> merges = vmerge.getMergedPoints(oLay, true);
-							for(PolyBase merged : merges)
-							{
-								totalRegionPerimeterArea += merged.getPerimeter() * thickness;
-							}
-						}
+							totalRegionPerimeterArea += getPerimeterArea(vmerge, oLay, getThickness(oLay));
 
 						// see if it is an antenna violation
-						double ratio = totalRegionPerimeterArea / totalGateArea;
-						double neededratio = getAntennaRatio(lay);
-						if (ratio > worstRatio) worstRatio = ratio;
-						if (ratio >= neededratio)
-						{
-							// error
-							String errMsg = "layer " + lay.getName() + " has perimeter-area " + totalRegionPerimeterArea +
-								"; gates have area " + totalGateArea + ", ratio is " + ratio + " but limit is " + neededratio;
-							List<PolyBase> polyList = new ArrayList<PolyBase>();
-							for (Layer oLay : vmerge.getKeySet())
-							{
-								List<PolyBase> merges = vmerge.getMergedPoints(oLay, true);
-								for(PolyBase merged : merges)
-								{
-									polyList.add(merged);
-								}
-							}
-							errorLogger.logMessage(errMsg, polyList, cell, 0, true);
-						}
+						checkRatio(lay, totalRegionPerimeterArea, totalGateArea, vmerge, cell);
 					}
 				}
 			}
@@ -450,6 +516,74 @@ public class ERCAntenna
 		return false;
 	}
 
+	/**
+	 * Method to return the thickness of a layer for computing its sidewall area.
+	 * @param lay the layer in question.
+	 * @return the thickness of the layer, or a default for metal and poly layers.
+	 */
+	private static double getThickness(Layer lay)
+	{
+		double thickness = lay.getThickness();
+		if (thickness == 0)
+		{
+			if (lay.getFunction().isMetal()) thickness = DEFMETALTHICKNESS; else
+				if (lay.getFunction().isPoly()) thickness = DEFPOLYTHICKNESS;
+		}
+		return thickness;
+	}
+
+	/**
+	 * Method to return the sidewall area of the merged geometry on a layer.
+	 * @param vmerge the merged geometry.
+	 * @param lay the layer in question.
+	 * @param thickness the thickness of the layer.
+	 * @return the perimeter of the merged geometry times the thickness of the layer.
+	 */
+	private static double getPerimeterArea(PolyMerge vmerge, Layer lay, double thickness)
+	{
+		double perimeterArea = 0;
+		List<PolyBase> merges = vmerge.getMergedPoints(lay, true);
+		if (merges == null) return 0;
+		for(PolyBase merged : merges)
+		{
+			perimeterArea += merged.getPerimeter() * thickness;
+		}
+		return perimeterArea;
+	}
+
+	/**
+	 * Method to see if an antenna is a violation and to report it.
+	 * @param lay the Layer of the antenna.
+	 * @param totalRegionPerimeterArea the sidewall area of the antenna.
+	 * @param totalGateArea the area of gates on the antenna.
+	 * @param vmerge the merged geometry of the antenna.
+	 * @param cell the Cell in which the antenna was found.
+	 * @return true if it is an antenna violation.
+	 */
+	private boolean checkRatio(Layer lay, double totalRegionPerimeterArea, double totalGateArea, PolyMerge vmerge, Cell cell)
+	{
+		double ratio = totalRegionPerimeterArea / totalGateArea;
+		double neededratio = getAntennaRatio(lay);
+		if (ratio > worstRatio) worstRatio = ratio;
+		if (ratio < neededratio) return false;
+
+		// error
+		String errMsg = "layer " + lay.getName() + " has perimeter-area " + totalRegionPerimeterArea +
+			"; gates have area " + totalGateArea + ", ratio is " + ratio + " but limit is " + neededratio;
+		List<PolyBase> polyList = new ArrayList<PolyBase>();
+		for (Layer oLay : vmerge.getKeySet())
+		{
+			if (oLay != lay) continue;
+			List<PolyBase> merges = vmerge.getMergedPoints(oLay, true);
+			for(PolyBase merged : merges)
+			{
+				polyList.add(merged);
+			}
+		}
+		errorLogger.logMessage(errMsg, polyList, cell, 0, true);
+		return true;
+	}
+
 	/**
 	 * Method to follow a node around the cell.
 	 * @param ni the NodeInst to follow.
@@ -673,4 +807,273 @@ public class ERCAntenna
 		return antennaPrefs.getAntennaRatio(ap);
 	}
 
+	/************************ PARALLEL CHECKING ***********************/
+
+	/**
+	 * Method to do the Antenna check of all layers by tracing every network once.
+	 * Networks are traced serially.  Networks of subcells that connect to exports are traced
+	 * once and shared by all instances.  Then merged geometry of networks is analyzed by
+	 * multiple threads and errors are reported for each layer.
+	 * @param topCell the Cell to check.
+	 * @param job the Job that is running (for abort checking).
+	 * @return true if aborted.
+	 */
+	private boolean checkInParallel(Cell topCell, Job job)
+	{
+		// trace all networks
+		ElapseTimer timer = ElapseTimer.createInstance().start();
+		subNetsByExport = new HashMap<Export,AntennaNet>();
+		List<AntennaNet> nets = new ArrayList<AntennaNet>();
+		if (traceCell(topCell, new HashSet<Cell>(), nets, job)) return true;
+		timer.end();
+		System.out.println("   Traced " + nets.size() + " networks on gates (" + subNetsByExport.size() +
+			" exports of subcells), took " + timer);
+
+		// compute the sidewall area of networks in parallel
+		timer.start();
+		int numberOfThreads = antennaPrefs.maxProc;
+		if (numberOfThreads <= 0) numberOfThreads = Runtime.getRuntime().availableProcessors();
+		numberOfThreads = Math.max(1, Math.min(numberOfThreads, nets.size()));
+		Map<Layer,Double> thicknesses = new HashMap<Layer,Double>();
+		for(Layer lay : layerToArcProto.keySet())
+			thicknesses.put(lay, Double.valueOf(getThickness(lay)));
+		AnalysisTask task = new AnalysisTask(nets, thicknesses);
+		if (numberOfThreads == 1)
+		{
+			task.call();
+		} else
+		{
+			ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+			try
+			{
+				List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+				for (int i = 0; i < numberOfThreads; i++) tasks.add(task);
+				for (Future<Object> result : executorService.invokeAll(tasks))
+					result.get();
+			} catch (InterruptedException e)
+			{
+				return true;
+			} catch (ExecutionException e)
+			{
+				throw new RuntimeException(e.getCause());
+			} finally
+			{
+				executorService.shutdown();
+			}
+		}
+		timer.end();
+		String msg = "   Geometry analysis ";
+		if (numberOfThreads > 1)
+			msg += "used " + numberOfThreads + " threads and ";
+		System.out.println(msg + "took " + timer);
+
+		// report errors of each layer
+		for(Layer lay : layerToArcProto.keySet())
+		{
+			System.out.println("Checking Antenna rules for " + lay.getName() + "...");
+			int numErrors = 0;
+			for (AntennaNet net : nets)
+			{
+				Double perimeterArea = net.perimeterArea.get(lay);
+				if (perimeterArea == null) continue;
+				if (checkRatio(lay, perimeterArea.doubleValue(), net.gateArea, net.getMerge(), net.cell)) numErrors++;
+			}
+			if (numErrors != 0)
+				System.out.println("  Found " + numErrors + " errors");
+		}
+		subNetsByExport = null;
+		return false;
+	}
+
+	/**
+	 * Class to compute the sidewall area of networks on several threads.
+	 * Threads take the next network from a shared counter.
+	 * Thicknesses of layers are read before, because the threads have no settings.
+	 */
+	private static class AnalysisTask implements Callable<Object>
+	{
+		private final List<AntennaNet> nets;
+		private final Map<Layer,Double> thicknesses;
+		private final AtomicInteger nextNet = new AtomicInteger();
+
+		AnalysisTask(List<AntennaNet> nets, Map<Layer,Double> thicknesses)
+		{
+			this.nets = nets;
+			this.thicknesses = thicknesses;
+		}
+
+		public Object call()
+		{
+			for(;;)
+			{
+				int i = nextNet.getAndIncrement();
+				if (i >= nets.size()) return null;
+				AntennaNet net = nets.get(i);
+				PolyMerge vmerge = net.getMerge();
+				for (Layer lay : vmerge.getKeySet())
+					net.perimeterArea.put(lay, Double.valueOf(getPerimeterArea(vmerge, lay, thicknesses.get(lay).doubleValue())));
+			}
+		}
+	}
+
+	/**
+	 * Method to trace the networks of a cell and of its subcells, in the order of checkThisCell.
+	 * @param cell the Cell to trace.
+	 * @param tracedCells the Cells that were already traced.
+	 * @param nets the list to which networks on gates are added.
+	 * @param job the Job that is running (for abort checking).
+	 * @return true if aborted.
+	 */
+	private boolean traceCell(Cell cell, Set<Cell> tracedCells, List<AntennaNet> nets, Job job)
+	{
+		Set<Geometric> marked = new HashSet<Geometric>();
+		for(Iterator<NodeInst> it = cell.getNodes(); it.hasNext(); )
+		{
+			NodeInst ni = it.next();
+			if (marked.contains(ni)) continue;
+			marked.add(ni);
+			for(Iterator<PortInst> pIt = ni.getPortInsts(); pIt.hasNext(); )
+			{
+				PortInst pi = pIt.next();
+
+				// ignore if an arc on this port is already seen
+				boolean seen = false;
+				for(Iterator<Connection> cIt = pi.getConnections(); cIt.hasNext(); )
+				{
+					if (marked.contains(cIt.next().getArc())) { seen = true;   break; }
+				}
+				if (seen) continue;
+
+				AntennaNet net = traceNet(cell, pi, marked, job);
+				if (net == null) return true;
+				if (net.hasGate && !net.hasActive) nets.add(net);
+			}
+		}
+
+		// now trace subcells
+		tracedCells.add(cell);
+		for(Iterator<NodeInst> it = cell.getNodes(); it.hasNext(); )
+		{
+			NodeInst ni = it.next();
+			if (!ni.isCellInstance()) continue;
+			Cell subCell = (Cell)ni.getProto();
+			if (tracedCells.contains(subCell)) continue;
+			if (traceCell(subCell, tracedCells, nets, job)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Method to trace a network from a port down the hierarchy.
+	 * @param cell the Cell of the port.
+	 * @param start the port on the network.
+	 * @param marked a set in which traced nodes and arcs are marked, may be null.
+	 * @param job the Job that is running (for abort checking).
+	 * @return the network, or null if aborted.
+	 * The network is incomplete if active was found on it.
+	 */
+	private AntennaNet traceNet(Cell cell, PortInst start, Set<Geometric> marked, Job job)
+	{
+		AntennaNet net = new AntennaNet(cell);
+		Set<PortInst> seenPorts = new HashSet<PortInst>();
+		Set<PortInst> coveredPorts = new HashSet<PortInst>();
+		Set<Geometric> seenGeoms = new HashSet<Geometric>();
+		LinkedList<PortInst> toDo = new LinkedList<PortInst>();
+		seenPorts.add(start);
+		toDo.add(start);
+		while (!toDo.isEmpty())
+		{
+			if (job != null && job.checkAbort()) return null;
+			PortInst pi = toDo.removeFirst();
+			NodeInst ni = pi.getNodeInst();
+			if (marked != null) marked.add(ni);
+			for(Iterator<Export> it = ni.getExports(); it.hasNext(); )
+			{
+				Export e = it.next();
+				if (e.getOriginalPort() == pi) net.exports.add(e);
+			}
+
+			if (ni.isCellInstance())
+			{
+				// use the network of the subcell, once for all its ports on this network
+				if (!coveredPorts.contains(pi))
+				{
+					AntennaNet subNet = getSubNet((Export)pi.getPortProto(), job);
+					if (subNet == null) return null;
+					if (subNet.hasActive) { net.hasActive = true;   return net; }
+					net.hasGate |= subNet.hasGate;
+					net.gateArea += subNet.gateArea;
+					net.subNets.add(subNet);
+					net.subTrans.add(ni.transformOut());
+					for(Export e : subNet.exports)
+					{
+						PortInst subPi = ni.findPortInstFromProto(e);
+						coveredPorts.add(subPi);
+						if (seenPorts.add(subPi)) toDo.add(subPi);
+					}
+				}
+			} else if (ni.getFunction().isFET())
+			{
+				// touching the gate side of the transistor
+				PortProto pp = pi.getPortProto();
+				if (ni.getTransistorGatePort().getPortProto() == pp ||
+					ni.getTransistorAltGatePort().getPortProto() == pp)
+				{
+					if (seenGeoms.add(ni))
+					{
+						TransistorSize dim = ni.getTransistorSize(VarContext.globalContext);
+						net.gateArea += dim.getDoubleLength() * dim.getDoubleWidth();
+					}
+					net.hasGate = true;
+				} else
+				{
+					// diffusion or bias port: stop tracing
+					net.hasActive = true;
+					return net;
+				}
+			} else if (seenGeoms.add(ni))
+			{
+				// normal primitive: propagate
+				if (hasDiffusion(ni)) { net.hasActive = true;   return net; }
+				Technology tech = ni.getProto().getTechnology();
+				if (tech == curTech) net.addShapes(tech.getShapeOfNode(ni), ni.rotateOut());
+			}
+
+			// look at all arcs on the port
+			for(Iterator<Connection> it = pi.getConnections(); it.hasNext(); )
+			{
+				Connection con = it.next();
+				ArcInst ai = con.getArc();
+				if (ai.getProto().getFunction().isDiffusion()) { net.hasActive = true;   return net; }
+				if (!arcProtoToLayer.containsKey(ai.getProto())) continue;
+				if (!seenGeoms.add(ai)) continue;
+				if (marked != null) marked.add(ai);
+				Technology tech = ai.getProto().getTechnology();
+				if (tech == curTech) net.addShapes(tech.getShapeOfArc(ai), null);
+				PortInst other = ai.getPortInst(1 - con.getEndIndex());
+				if (seenPorts.add(other)) toDo.add(other);
+			}
+		}
+		return net;
+	}
+
+	/**
+	 * Method to return the network of a subcell that connects to an Export.
+	 * The network is traced once and shared by all instances of the subcell.
+	 * @param e the Export.
+	 * @param job the Job that is running (for abort checking).
+	 * @return the network, or null if aborted.
+	 */
+	private AntennaNet getSubNet(Export e, Job job)
+	{
+		AntennaNet subNet = subNetsByExport.get(e);
+		if (subNet != null) return subNet;
+		subNet = traceNet(e.getParent(), e.getOriginalPort(), null, job);
+		if (subNet == null) return null;
+		subNetsByExport.put(e, subNet);
+		for(Export oe : subNet.exports)
+			subNetsByExport.put(oe, subNet);
+		return subNet;
+	}
+
 }
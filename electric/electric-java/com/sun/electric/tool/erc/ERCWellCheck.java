@@ -58,6 +58,7 @@ import com.sun.electric.tool.erc.wellcheck.Utils;
 import com.sun.electric.tool.erc.wellcheck.Utils.WorkDistributionStrategy;
 import com.sun.electric.tool.erc.wellcheck.WellCheckAnalysisStrategy;
 import com.sun.electric.tool.erc.wellcheck.WellCon;
+import com.sun.electric.tool.erc.wellcheck.WellHierarchy;
 import com.sun.electric.tool.user.ErrorLogger;
 import com.sun.electric.tool.user.Highlighter;
 import com.sun.electric.tool.user.dialogs.EModelessDialog;
@@ -202,6 +203,15 @@ public class ERCWellCheck {
         @IntegerPref(node = PREF_NODE, key = "NWellCheck", factory = 0)
         public int nWellCheck;
 
+        /**
+         * Whether ERC should analyze wells hierarchically, once per cell,
+         * instead of flattening them. DRC spacing and the worst case well
+         * distance need flattened wells, so they still use the flat analysis.
+         * The default is "false".
+         */
+        @BooleanPref(node = PREF_NODE, key = "HierarchicalWellAnalysis", factory = false)
+        public boolean hierarchicalWellAnalysis;
+
         /**
          * Whether ERC should check DRC Spacing condition. The default is
          * "false".
@@ -259,8 +269,16 @@ public class ERCWellCheck {
     }
 
     public static int checkERCWell(Cell cell, WellCheckPreferences wellPrefs) {
+        return checkERCWellErrors(cell, wellPrefs).getNumErrors();
+    }
+
+    /**
+     * Method to do the well check and return the errors that were found, for tests.
+     */
+    static ErrorLogger checkERCWellErrors(Cell cell, WellCheckPreferences wellPrefs) {
         ERCWellCheck check = new ERCWellCheck(cell, null, wellPrefs);
-        return check.runNow();
+        check.runNow();
+        return check.errorLogger;
     }
 
     private ERCWellCheck(Cell cell, WellCheckJob job, WellCheckPreferences wellPrefs) {
@@ -518,16 +536,26 @@ public class ERCWellCheck {
 
         pWellRoot = RTNode.makeTopLevel();
         nWellRoot = RTNode.makeTopLevel();
+        boolean hierarchical = wellPrefs.hierarchicalWellAnalysis && !wellPrefs.drcCheck && !wellPrefs.findWorstCaseWell;
+        WellHierarchy pWells = null, nWells = null;
 
         // enumerate the hierarchy below here
         ElapseTimer timer = ElapseTimer.createInstance().start();
-        WellCheckVisitor wcVisitor = new WellCheckVisitor();
+        WellCheckVisitor wcVisitor = new WellCheckVisitor(!hierarchical);
         HierarchyEnumerator.enumerateCell(cell, VarContext.globalContext, wcVisitor);
-        int numPRects = getTreeSize(pWellRoot);
-        int numNRects = getTreeSize(nWellRoot);
-        timer.end();
-        System.out.println("   Geometry collection found " + (numPRects + numNRects) + " well pieces, took "
-                + timer);
+        if (hierarchical) {
+            pWells = new WellHierarchy(cell, wcVisitor.essentialPWell);
+            nWells = new WellHierarchy(cell, wcVisitor.essentialNWell);
+            timer.end();
+            System.out.println("   Hierarchical geometry collection found " + (pWells.getNumRects() + nWells.getNumRects())
+                    + " well pieces in " + pWells.getNumCells() + " cells, took " + timer);
+        } else {
+            int numPRects = getTreeSize(pWellRoot);
+            int numNRects = getTreeSize(nWellRoot);
+            timer.end();
+            System.out.println("   Geometry collection found " + (numPRects + numNRects) + " well pieces, took "
+                    + timer);
+        }
 
         wcVisitor.clear();
         wcVisitor = null;
@@ -537,7 +565,13 @@ public class ERCWellCheck {
         assert numberOfThreads > 0;
 
         BitSet connectedNetValues = null;
-        if (SIMPLE_SPREAD)
+        if (hierarchical)
+        {
+            timer.start();
+            assignHierarchicalWellContacts(pWells, nWells);
+            timer.end();
+            System.out.println("   Hierarchical contact analysis took " + timer);
+        } else if (SIMPLE_SPREAD)
         {
             timer.start();
             // analyze the contacts
@@ -702,7 +736,10 @@ public class ERCWellCheck {
         List<WellCheckAnalysisStrategy> analysisParts = CollectionFactory.createArrayList();
         analysisParts.add(new ShortCircuitCheck(parameter));
         analysisParts.add(new OnRailCheck(parameter, networkExportAvailable, transistors));
-        analysisParts.add(new ConnectionCheck(parameter, hasPCon, hasNCon, pWellRoot, nWellRoot, connectedNetValues));
+        if (hierarchical)
+            analysisParts.add(new ConnectionCheck(parameter, hasPCon, hasNCon, pWells, nWells));
+        else
+            analysisParts.add(new ConnectionCheck(parameter, hasPCon, hasNCon, pWellRoot, nWellRoot, connectedNetValues));
         analysisParts.add(new DRCCheck(parameter, pWellLayer, nWellLayer, pWellRoot, nWellRoot));
         analysisParts.add(new DistanceCheck(parameter, worstPWellDist, worstPWellCon, worstPWellEdge,
                 worstNWellDist, worstNWellCon, worstNWellEdge, pWellRoot, nWellRoot));
@@ -722,6 +759,35 @@ public class ERCWellCheck {
         return errorCount;
     }
 
+    /**
+     * Method to assign well contacts to the connected well areas of a hierarchical analysis.
+     * Contacts which are not in a well are reported as floating.
+     * @param pWells the analysis of P-Wells.
+     * @param nWells the analysis of N-Wells.
+     */
+    private void assignHierarchicalWellContacts(WellHierarchy pWells, WellHierarchy nWells) {
+        NetValues.reset();
+        NetValues[] pNetValues = new NetValues[pWells.getNumComponents()];
+        NetValues[] nNetValues = new NetValues[nWells.getNumComponents()];
+        for (WellCon wc : wellCons) {
+            boolean pWell = Utils.canBeSubstrateTap(wc.getFun());
+            WellHierarchy wells = pWell ? pWells : nWells;
+            Point2D center = new Point2D.Double(wc.getBound().getCenterX(), wc.getBound().getCenterY());
+            int comp = wells.findComponent(center);
+            if (comp < 0) {
+                String errorMsg = pWell ? "P-Well contact is floating" : "N-Well contact is floating";
+                errorLogger.logError(errorMsg, EPoint.fromLambda(center.getX(), center.getY()), cell, 0);
+                wc.setWellNum(new NetValues());
+                continue;
+            }
+            NetValues[] netValues = pWell ? pNetValues : nNetValues;
+            if (netValues[comp] == null)
+                netValues[comp] = new NetValues();
+            wells.setConnected(comp);
+            wc.setWellNum(netValues[comp]);
+        }
+    }
+
     private static class PartialSpreadResult {
         private final Map<WellCon,WellBound> conBound = new HashMap<WellCon, WellBound>();
         private final List<Point> pWellPairs = new ArrayList<Point>();
@@ -1066,7 +1132,7 @@ public class ERCWellCheck {
         private final FixpRectangle bound;
         private NetValues netID;
 
-        WellBound(int id, FixpRectangle bound) {
+        public WellBound(int id, FixpRectangle bound) {
             this.id = id;
             this.bound = bound;
             this.netID = null;
@@ -1166,8 +1232,10 @@ public class ERCWellCheck {
         private Map<Cell, List<Rectangle2D>> essentialNWell;
         private Map<Network, NetRails> networkCache;
         private Map<Integer, Transistor> neighborCache;
+        private final boolean flattenWells;
 
-        public WellCheckVisitor() {
+        public WellCheckVisitor(boolean flattenWells) {
+            this.flattenWells = flattenWells;
             essentialPWell = new HashMap<Cell, List<Rectangle2D>>();
             essentialNWell = new HashMap<Cell, List<Rectangle2D>>();
             networkCache = new HashMap<Network, NetRails>();
@@ -1191,6 +1259,8 @@ public class ERCWellCheck {
             // Checking if job is scheduled for abort or already aborted
             if (job != null && job.checkAbort())
                 return;
+            if (!flattenWells)
+                return;
 
             // get the object for merging all of the wells in this cell
             Cell cell = info.getCell();
@@ -28,6 +28,8 @@ import com.sun.electric.tool.erc.ERCWellCheck.WellBound;
 import com.sun.electric.tool.erc.ERCWellCheck.WellType;
 
 import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ConnectionCheck implements WellCheckAnalysisStrategy {
 
@@ -37,6 +39,8 @@ public class ConnectionCheck implements WellCheckAnalysisStrategy {
 	private RTNode<WellBound> pWellRoot;
 	private RTNode<WellBound> nWellRoot;
     private BitSet connectedNetValues;
+	private WellHierarchy pWells;
+	private WellHierarchy nWells;
 
 	public ConnectionCheck(StrategyParameter parameter, boolean hasPCon, boolean hasNCon, RTNode<WellBound> pWellRoot,
 			RTNode<WellBound> nWellRoot, BitSet connectedNetValues) {
@@ -49,12 +53,30 @@ public class ConnectionCheck implements WellCheckAnalysisStrategy {
         this.connectedNetValues = connectedNetValues;
 	}
 
+	public ConnectionCheck(StrategyParameter parameter, boolean hasPCon, boolean hasNCon, WellHierarchy pWells,
+			WellHierarchy nWells) {
+		super();
+		this.parameter = parameter;
+		this.hasPCon = hasPCon;
+		this.hasNCon = hasNCon;
+		this.pWells = pWells;
+		this.nWells = nWells;
+	}
+
     @Override
 	public void execute() {
-		if (parameter.getWellPrefs().pWellCheck != 2)
-			findUnconnected(pWellRoot, pWellRoot, WellType.pwell);
-		if (parameter.getWellPrefs().nWellCheck != 2)
-			findUnconnected(nWellRoot, nWellRoot, WellType.nwell);
+		if (parameter.getWellPrefs().pWellCheck != 2) {
+			if (pWells != null)
+				findUnconnected(pWells, WellType.pwell);
+			else
+				findUnconnected(pWellRoot, WellType.pwell);
+		}
+		if (parameter.getWellPrefs().nWellCheck != 2) {
+			if (nWells != null)
+				findUnconnected(nWells, WellType.nwell);
+			else
+				findUnconnected(nWellRoot, WellType.nwell);
+		}
 		if (parameter.getWellPrefs().pWellCheck == 1 && !hasPCon) {
 			parameter.logError("No P-Well contact found in this cell");
 		}
@@ -63,28 +85,50 @@ public class ConnectionCheck implements WellCheckAnalysisStrategy {
 		}
 	}
 
-	private void findUnconnected(RTNode<WellBound> rtree, RTNode<WellBound> current, WellType type) {
+	private void findUnconnected(WellHierarchy wells, WellType type) {
+		for (WellBound wb : wells.getUnconnected())
+			parameter.logError("No " + type + "-Well contact in this area", wb);
+	}
+
+	private void findUnconnected(RTNode<WellBound> rtree, WellType type) {
+		// the rectangle that represents each unconnected well area, by its net
+		Map<Integer,WellBound> unconnected = new LinkedHashMap<Integer,WellBound>();
+		findUnconnected(rtree, rtree, unconnected);
+		for (Map.Entry<Integer,WellBound> e : unconnected.entrySet()) {
+			if (connectedNetValues != null)
+				connectedNetValues.set(e.getKey().intValue());
+			parameter.logError("No " + type + "-Well contact in this area", e.getValue());
+		}
+	}
+
+	private void findUnconnected(RTNode<WellBound> rtree, RTNode<WellBound> current, Map<Integer,WellBound> unconnected) {
 		for (int j = 0; j < current.getTotal(); j++) {
 			if (current.getFlag()) {
 				WellBound child = current.getChildLeaf(j);
                 NetValues nv = child.getNetID();
+                Integer net;
                 if (connectedNetValues != null)
                 {
-                    if (!connectedNetValues.get(nv.getIndex())) {
-                        connectedNetValues.set(nv.getIndex());
-                        parameter.logError("No " + type + "-Well contact in this area", child);
-                    }
+                    if (connectedNetValues.get(nv.getIndex())) continue;
+                    net = Integer.valueOf(nv.getIndex());
                 } else
                 {
                     if (nv == null) {
+                        nv = new NetValues();
                         Utils.spreadWellSeed(child.getBounds().getCenterX(), child.getBounds().getCenterY(),
-                                new NetValues(), rtree, 0);
-                        parameter.logError("No " + type + "-Well contact in this area", child);
+                                nv, rtree, 0);
+                        unconnected.put(Integer.valueOf(nv.getIndex()), child);
+                        continue;
                     }
+                    net = Integer.valueOf(nv.getIndex());
+                    if (!unconnected.containsKey(net)) continue;
                 }
+                WellBound first = unconnected.get(net);
+                if (first == null || Utils.isBefore(child.getBounds(), first.getBounds()))
+                    unconnected.put(net, child);
 			} else {
 				RTNode<WellBound> child = current.getChildTree(j);
-				findUnconnected(rtree, child, type);
+				findUnconnected(rtree, child, unconnected);
 			}
 		}
 	}
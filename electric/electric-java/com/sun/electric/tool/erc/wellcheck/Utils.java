@@ -30,6 +30,7 @@ import com.sun.electric.technology.PrimitiveNode;
 import com.sun.electric.tool.erc.ERCWellCheck.WellBound;
 import com.sun.electric.tool.erc.ERCWellCheck.WellBoundRecord;
 import com.sun.electric.util.math.DBMath;
+import com.sun.electric.util.math.FixpRectangle;
 import com.sun.electric.util.math.MutableBoolean;
 
 import java.util.Iterator;
@@ -83,6 +84,21 @@ public class Utils {
 		return fun == PrimitiveNode.Function.WELL || fun == PrimitiveNode.Function.RESNWELL;
 	}
 
+	/**
+	 * Method to tell whether a well rectangle comes before another one when choosing
+	 * the rectangle that represents a well area in an error.
+	 * Rectangles are ordered by their left edge, then by their bottom edge, then by their size,
+	 * so the same rectangle is chosen no matter in which order the rectangles are found.
+	 *
+	 * @return true if the first rectangle comes before the second.
+	 */
+	public static boolean isBefore(FixpRectangle a, FixpRectangle b) {
+		if (a.getFixpMinX() != b.getFixpMinX()) return a.getFixpMinX() < b.getFixpMinX();
+		if (a.getFixpMinY() != b.getFixpMinY()) return a.getFixpMinY() < b.getFixpMinY();
+		if (a.getFixpMaxX() != b.getFixpMaxX()) return a.getFixpMaxX() < b.getFixpMaxX();
+		return a.getFixpMaxY() < b.getFixpMaxY();
+	}
+
 	/**
 	 * Search area for touching well polygons
 	 *
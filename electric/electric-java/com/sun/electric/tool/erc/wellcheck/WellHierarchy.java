@@ -0,0 +1,338 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: WellHierarchy.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.erc.wellcheck;
+
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.topology.RTBounds;
+import com.sun.electric.database.topology.RTNode;
+import com.sun.electric.tool.erc.ERCWellCheck.WellBound;
+import com.sun.electric.util.math.DBMath;
+import com.sun.electric.util.math.FixpRectangle;
+import com.sun.electric.util.math.FixpTransform;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connectivity of wells of one type, computed hierarchically.
+ *
+ * Every Cell is analyzed once, no matter how many times it is instantiated.
+ * The summary of a Cell numbers the connected components of its wells, including
+ * the wells of its subcells, and maps the components of each instance to its own.
+ * Wells are flattened only in the areas where an instance interacts with geometry
+ * of the Cell or with another instance. The results are the same as the union of
+ * overlapping well rectangles of the flattened hierarchy.
+ */
+public class WellHierarchy {
+
+	/** essential well rectangles of each cell */		private final Map<Cell,List<Rectangle2D>> essentialWells;
+	/** summaries of analyzed cells */					private final Map<Cell,WellCell> summaries = new HashMap<Cell,WellCell>();
+	/** summary of the top cell */						private final WellCell top;
+	/** top components with a well contact */			private final BitSet connected = new BitSet();
+	/** number of stored well rectangles */				private int numRects;
+
+	/**
+	 * Summary of wells in a Cell.
+	 */
+	private static class WellCell {
+		/** well rectangles of the cell, WellBound IDs are indices of localComp */
+		private RTNode<WellBound> localRoot = RTNode.makeTopLevel();
+		/** component of each local rectangle */		private int[] localComp;
+		/** instances with wells */						private RTNode<WellInst> instRoot = RTNode.makeTopLevel();
+		/** number of components */						private int numComps;
+		/** bounds of each component */				private FixpRectangle[] compBounds;
+		/** bounds of all wells, null if none */		private FixpRectangle bounds;
+	}
+
+	/**
+	 * Instance of a Cell with wells.
+	 */
+	private static class WellInst implements RTBounds {
+		/** transformation to the parent */				private final FixpTransform out;
+		/** transformation from the parent */			private final FixpTransform in;
+		/** summary of the subcell */					private final WellCell sub;
+		/** bounds of the wells in the parent */		private final FixpRectangle bounds;
+		/** first element of the instance in the parent union-find */ private int base;
+		/** component in the parent of each component of the subcell */ private int[] compMap;
+
+		private WellInst(NodeInst ni, WellCell sub) {
+			this.out = ni.transformOut();
+			this.in = ni.transformIn();
+			this.sub = sub;
+			this.bounds = transform(sub.bounds, out);
+		}
+
+		@Override
+		public FixpRectangle getBounds() {
+			return bounds;
+		}
+	}
+
+	/**
+	 * Constructor to analyze the wells of a hierarchy.
+	 * @param topCell the top cell of the hierarchy.
+	 * @param essentialWells the well rectangles of every cell in the hierarchy.
+	 */
+	public WellHierarchy(Cell topCell, Map<Cell,List<Rectangle2D>> essentialWells) {
+		this.essentialWells = essentialWells;
+		top = getSummary(topCell);
+	}
+
+	/**
+	 * Method to return the number of connected well areas in the top cell.
+	 * @return the number of connected well areas.
+	 */
+	public int getNumComponents() {
+		return top.numComps;
+	}
+
+	/**
+	 * Method to return the number of cells which were analyzed.
+	 * @return the number of unique cells.
+	 */
+	public int getNumCells() {
+		return summaries.size();
+	}
+
+	/**
+	 * Method to return the number of well rectangles which were stored.
+	 * Each rectangle is stored once per Cell, not once per instance.
+	 * @return the number of well rectangles.
+	 */
+	public int getNumRects() {
+		return numRects;
+	}
+
+	/**
+	 * Method to find the connected well area under a point of the top cell.
+	 * @param pt the point in the coordinates of the top cell.
+	 * @return the index of the well area or -1 if there is no well at the point.
+	 */
+	public int findComponent(Point2D pt) {
+		FixpRectangle area = FixpRectangle.from(new Rectangle2D.Double(pt.getX(), pt.getY(), 0, 0));
+		List<FixpRectangle> rects = new ArrayList<FixpRectangle>();
+		List<Integer> comps = new ArrayList<Integer>();
+		collect(top, area, rects, comps);
+		return comps.isEmpty() ? -1 : comps.get(0).intValue();
+	}
+
+	/**
+	 * Method to mark a connected well area which has a well contact.
+	 * @param comp the index of the well area.
+	 */
+	public void setConnected(int comp) {
+		connected.set(comp);
+	}
+
+	/**
+	 * Method to return a well rectangle of every connected well area without a well contact.
+	 * The rectangle is the one that Utils.isBefore puts first, as in the flat check.
+	 * @return rectangles in the coordinates of the top cell, the ID of a WellBound is its area.
+	 */
+	public List<WellBound> getUnconnected() {
+		List<WellBound> unconnected = new ArrayList<WellBound>();
+		List<FixpRectangle> rects = new ArrayList<FixpRectangle>();
+		List<Integer> comps = new ArrayList<Integer>();
+		for (int comp = connected.nextClearBit(0); comp < top.numComps; comp = connected.nextClearBit(comp + 1)) {
+			// the first rectangle is on the left edge of the area
+			FixpRectangle b = top.compBounds[comp];
+			rects.clear();
+			comps.clear();
+			collect(top, FixpRectangle.fromFixpDiagonal(b.getFixpMinX(), b.getFixpMinY(), b.getFixpMinX(), b.getFixpMaxY()), rects, comps);
+			FixpRectangle first = null;
+			for (int i = 0; i < rects.size(); i++) {
+				if (comps.get(i).intValue() != comp) continue;
+				if (first == null || Utils.isBefore(rects.get(i), first)) first = rects.get(i);
+			}
+			unconnected.add(new WellBound(comp, first));
+		}
+		return unconnected;
+	}
+
+	private WellCell getSummary(Cell cell) {
+		WellCell wc = summaries.get(cell);
+		if (wc != null) return wc;
+		wc = new WellCell();
+
+		// well rectangles of the cell
+		List<Rectangle2D> rects = essentialWells.get(cell);
+		if (rects == null) rects = Collections.emptyList();
+		List<WellBound> local = new ArrayList<WellBound>(rects.size());
+		for (Rectangle2D r : rects) {
+			WellBound wb = new WellBound(local.size(), FixpRectangle.from(r));
+			local.add(wb);
+			wc.localRoot = RTNode.linkGeom(null, wc.localRoot, wb);
+			wc.bounds = union(wc.bounds, wb.getBounds());
+		}
+		numRects += local.size();
+
+		// instances of cells with wells
+		List<WellInst> insts = new ArrayList<WellInst>();
+		int numElems = local.size();
+		for (Iterator<NodeInst> it = cell.getNodes(); it.hasNext();) {
+			NodeInst ni = it.next();
+			if (!ni.isCellInstance()) continue;
+			WellCell sub = getSummary((Cell) ni.getProto());
+			if (sub.bounds == null) continue;
+			WellInst inst = new WellInst(ni, sub);
+			inst.base = numElems;
+			numElems += sub.numComps;
+			insts.add(inst);
+			wc.instRoot = RTNode.linkGeom(null, wc.instRoot, inst);
+			wc.bounds = union(wc.bounds, inst.bounds);
+		}
+
+		// connect local rectangles with each other and with instances
+		int[] map = new int[numElems];
+		for (int i = 0; i < numElems; i++)
+			map[i] = i;
+		List<FixpRectangle> found = new ArrayList<FixpRectangle>();
+		List<Integer> foundComps = new ArrayList<Integer>();
+		for (WellBound wb : local) {
+			for (Iterator<WellBound> sIt = new RTNode.Search<WellBound>(wb.getBounds(), wc.localRoot, true); sIt.hasNext();)
+				connect(map, wb.getID(), sIt.next().getID());
+			for (Iterator<WellInst> sIt = new RTNode.Search<WellInst>(wb.getBounds(), wc.instRoot, true); sIt.hasNext();) {
+				WellInst inst = sIt.next();
+				foundComps.clear();
+				found.clear();
+				collect(inst.sub, transform(wb.getBounds(), inst.in), found, foundComps);
+				for (Integer comp : foundComps)
+					connect(map, wb.getID(), inst.base + comp.intValue());
+			}
+		}
+
+		// connect instances in the areas where they overlap
+		List<FixpRectangle> found2 = new ArrayList<FixpRectangle>();
+		List<Integer> foundComps2 = new ArrayList<Integer>();
+		for (WellInst inst : insts) {
+			for (Iterator<WellInst> sIt = new RTNode.Search<WellInst>(inst.bounds, wc.instRoot, true); sIt.hasNext();) {
+				WellInst other = sIt.next();
+				if (other.base <= inst.base) continue;
+				FixpRectangle overlap = intersection(inst.bounds, other.bounds);
+				found.clear();
+				foundComps.clear();
+				collect(inst.sub, transform(overlap, inst.in), found, foundComps);
+				for (int i = 0; i < found.size(); i++) {
+					FixpRectangle r = transform(found.get(i), inst.out);
+					found2.clear();
+					foundComps2.clear();
+					collect(other.sub, transform(r, other.in), found2, foundComps2);
+					for (Integer comp : foundComps2)
+						connect(map, inst.base + foundComps.get(i).intValue(), other.base + comp.intValue());
+				}
+			}
+		}
+
+		// number the components
+		int[] compOfRoot = new int[numElems];
+		List<FixpRectangle> compBounds = new ArrayList<FixpRectangle>();
+		for (int i = 0; i < numElems; i++) {
+			int root = find(map, i);
+			if (root == i) {
+				compOfRoot[i] = compBounds.size();
+				compBounds.add(null);
+			}
+		}
+		wc.localComp = new int[local.size()];
+		for (int i = 0; i < local.size(); i++) {
+			int comp = compOfRoot[find(map, i)];
+			wc.localComp[i] = comp;
+			compBounds.set(comp, union(compBounds.get(comp), local.get(i).getBounds()));
+		}
+		for (WellInst inst : insts) {
+			inst.compMap = new int[inst.sub.numComps];
+			for (int j = 0; j < inst.sub.numComps; j++) {
+				int comp = compOfRoot[find(map, inst.base + j)];
+				inst.compMap[j] = comp;
+				compBounds.set(comp, union(compBounds.get(comp), transform(inst.sub.compBounds[j], inst.out)));
+			}
+		}
+		wc.numComps = compBounds.size();
+		wc.compBounds = compBounds.toArray(new FixpRectangle[wc.numComps]);
+
+		summaries.put(cell, wc);
+		return wc;
+	}
+
+	/**
+	 * Method to find well rectangles of a cell and its subcells which touch an area.
+	 * @param wc the summary of the cell.
+	 * @param area the area in the coordinates of the cell.
+	 * @param rects the list to which the rectangles are added, in the coordinates of the cell.
+	 * @param comps the list to which the components of the rectangles in the cell are added.
+	 */
+	private static void collect(WellCell wc, FixpRectangle area, List<FixpRectangle> rects, List<Integer> comps) {
+		for (Iterator<WellBound> it = new RTNode.Search<WellBound>(area, wc.localRoot, true); it.hasNext();) {
+			WellBound wb = it.next();
+			rects.add(wb.getBounds());
+			comps.add(Integer.valueOf(wc.localComp[wb.getID()]));
+		}
+		for (Iterator<WellInst> it = new RTNode.Search<WellInst>(area, wc.instRoot, true); it.hasNext();) {
+			WellInst inst = it.next();
+			int start = rects.size();
+			collect(inst.sub, transform(area, inst.in), rects, comps);
+			for (int i = start; i < rects.size(); i++) {
+				rects.set(i, transform(rects.get(i), inst.out));
+				comps.set(i, Integer.valueOf(inst.compMap[comps.get(i).intValue()]));
+			}
+		}
+	}
+
+	private static int find(int[] map, int i) {
+		while (map[i] != i) {
+			map[i] = map[map[i]];
+			i = map[i];
+		}
+		return i;
+	}
+
+	private static void connect(int[] map, int a, int b) {
+		int ra = find(map, a), rb = find(map, b);
+		if (ra < rb) map[rb] = ra;
+		else if (rb < ra) map[ra] = rb;
+	}
+
+	private static FixpRectangle transform(FixpRectangle r, FixpTransform trans) {
+		FixpRectangle result = FixpRectangle.fromFixpDiagonal(r.getFixpMinX(), r.getFixpMinY(), r.getFixpMaxX(), r.getFixpMaxY());
+		DBMath.transformRect(result, trans);
+		return result;
+	}
+
+	private static FixpRectangle union(FixpRectangle a, FixpRectangle b) {
+		if (a == null) return b;
+		return FixpRectangle.fromFixpDiagonal(Math.min(a.getFixpMinX(), b.getFixpMinX()), Math.min(a.getFixpMinY(), b.getFixpMinY()),
+			Math.max(a.getFixpMaxX(), b.getFixpMaxX()), Math.max(a.getFixpMaxY(), b.getFixpMaxY()));
+	}
+
+	private static FixpRectangle intersection(FixpRectangle a, FixpRectangle b) {
+		return FixpRectangle.fromFixpDiagonal(Math.max(a.getFixpMinX(), b.getFixpMinX()), Math.max(a.getFixpMinY(), b.getFixpMinY()),
+			Math.min(a.getFixpMaxX(), b.getFixpMaxX()), Math.min(a.getFixpMaxY(), b.getFixpMaxY()));
+	}
+}
@@ -24,6 +24,7 @@
 package com.sun.electric.tool.extract;
 
 import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.Environment;
 import com.sun.electric.database.geometry.EPoint;
 import com.sun.electric.database.geometry.ERectangle;
 import com.sun.electric.database.geometry.GeometryHandler;
@@ -70,6 +71,7 @@ import com.sun.electric.tool.user.Highlight;
 import com.sun.electric.tool.user.User;
 import com.sun.electric.tool.user.dialogs.EDialog;
 import com.sun.electric.tool.user.ui.TopLevel;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
 import com.sun.electric.util.math.DBMath;
 import com.sun.electric.util.math.ECoord;
 import com.sun.electric.util.math.EDimension;
@@ -104,6 +106,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -124,6 +131,7 @@ public class Connectivity
 	/** true to debug object creation */						private static final boolean DEBUGSTEPS = false;
 	/** true to debug contact extraction */						private static final boolean DEBUGCONTACTS = false;
 	/** amount to scale values before merging */				private static final double SCALEFACTOR = DBMath.GRID;
+	/** number of wire tiles to make for each thread */			private static final int TILESPERTHREAD = 4;
 
 	/** the current technology for extraction */				private Technology tech;
 	/** layers to use for given arc functions */				private Map<Layer.Function,Layer> layerForFunction;
@@ -159,6 +167,7 @@ public class Connectivity
 	/** Job that is holding the process */						private Job job;
     /** EditingPreferences */                                   private EditingPreferences ep;
 	/** Grid alignment for edges */								private EDimension alignment;
+	/** threads for finding wires (1 for no tiling) */			private int numThreads = 1;
 
 	/**
 	 * Method to examine the current cell and extract it's connectivity in a new one.
@@ -192,6 +201,7 @@ public class Connectivity
 		private boolean approximateCuts;
 		private boolean flattenPcells;
 		private boolean usePureLayerNodes;
+		private int numThreads;
 		/** debugging: list of objects created */	private List<List<ERectangle>> addedBatchRectangles;
 		/** debugging: list of objects created */	private List<List<ERectangle>> addedBatchLines;
 		/** debugging: list of objects created */	private List<String> addedBatchNames;
@@ -214,6 +224,7 @@ public class Connectivity
 			approximateCuts = Extract.isApproximateCuts();
 			flattenPcells = Extract.isFlattenPcells();
 			usePureLayerNodes = Extract.isUsePureLayerNodes();
+			numThreads = Extract.getExtractionThreads();
 			startJob();
 		}
 
@@ -248,6 +259,7 @@ public class Connectivity
 
 			Connectivity c = new Connectivity(cell, this, getEditingPreferences(), errorLogger, smallestPolygonSize, activeHandling,
 				gridAlignExtraction, scaledResolution, approximateCuts, recursive, pats);
+			c.setExtractionThreads(numThreads);
 
 			if (recursive) c.totalCells = c.countExtracted(cell, pats, flattenPcells);
 
@@ -527,6 +539,13 @@ public class Connectivity
 		return false;
 	}
 
+	/**
+	 * Method to set the number of threads used to find wires.
+	 * With more than one thread, the wire geometry is divided into tiles that are analyzed concurrently.
+	 * @param numThreads the number of threads (1 for no tiling, 0 to use one per processor).
+	 */
+	public void setExtractionThreads(int numThreads) { this.numThreads = numThreads; }
+
 	/**
 	 * Top-level method in extracting connectivity from a Cell.
 	 * A new version of the cell is created that has real nodes (transistors, contacts) and arcs.
@@ -1224,6 +1243,11 @@ public class Connectivity
 			}
 		}
 
+		// with multiple threads, find the centerlines of all polygons in tiles first
+		int threads = numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors();
+		Map<PolyBase,List<Centerline>> tiledCenterlines = null;
+		if (threads > 1) tiledCenterlines = findCenterlinesInTiles(geomToWire, originalMerge, threads);
+
 		// examine each wire layer, looking for a skeletal structure that approximates it
 		int soFar = 0;
 		Set<Layer> allLayers = geomToWire.keySet();
@@ -1241,9 +1265,13 @@ public class Connectivity
 				if (ap == null) continue;
 
 				// reduce the geometry to a skeleton of centerlines
-				double minWidth = 1;
-				if (ENFORCEMINIMUMSIZE) minWidth = scaleUp(ap.getDefaultLambdaBaseWidth(ep));
-				List<Centerline> lines = findCenterlines(poly, layer, minWidth, merge, originalMerge);
+				List<Centerline> lines = tiledCenterlines == null ? null : tiledCenterlines.get(poly);
+				if (lines == null)
+				{
+					double minWidth = 1;
+					if (ENFORCEMINIMUMSIZE) minWidth = scaleUp(ap.getDefaultLambdaBaseWidth(ep));
+					lines = findCenterlines(poly, layer, minWidth, merge, originalMerge);
+				}
 
 				// now realize the wires
 				for(Centerline cl : lines)
@@ -1413,6 +1441,201 @@ public class Connectivity
 		return false;
 	}
 
+	/**
+	 * Class to describe a rectangular region of wire geometry that is analyzed by one thread.
+	 * Each polygon belongs to the tile that contains its center, so that wires which cross
+	 * tile boundaries are analyzed once.
+	 */
+	private static class WireTile
+	{
+		/** polygons owned by this tile */						final List<PolyBase> polys = new ArrayList<PolyBase>();
+		/** layers of the owned polygons */						final List<Layer> layers = new ArrayList<Layer>();
+		/** minimum centerline width of the owned polygons */	final List<Double> minWidths = new ArrayList<Double>();
+		/** centerlines found for the owned polygons */			List<List<Centerline>> centerlines;
+	}
+
+	/**
+	 * Method to find the centerlines of all wire polygons concurrently.
+	 * The geometry is divided into tiles and each tile is analyzed with its own merges:
+	 * a scratch merge and a copy of the original geometry that is clipped to the tile plus a halo
+	 * that is wide enough for all centerline tests of the tile's polygons.
+	 * The resulting centerlines are the same as those found serially, so the wires can then be
+	 * created (and joined across tile boundaries) in a single serial pass.
+	 * @param geomToWire the polygons on each wire layer.
+	 * @param originalMerge the original merge with all geometry.
+	 * @param threads the number of threads to use.
+	 * @return a map from polygons to their centerlines (polygons that could not be analyzed are missing).
+	 */
+	private Map<PolyBase,List<Centerline>> findCenterlinesInTiles(Map<Layer,List<PolyBase>> geomToWire, PolyMerge originalMerge,
+		int threads)
+	{
+		// gather the polygons that will become wires
+		Rectangle2D allBounds = null;
+		List<PolyBase> wirePolys = new ArrayList<PolyBase>();
+		List<Layer> wireLayers = new ArrayList<Layer>();
+		List<Double> wireMinWidths = new ArrayList<Double>();
+		for (Layer layer : geomToWire.keySet())
+		{
+			for(PolyBase poly : geomToWire.get(layer))
+			{
+				ArcProto ap = findArcProtoForPoly(layer, poly, originalMerge);
+				if (ap == null) continue;
+				double minWidth = 1;
+				if (ENFORCEMINIMUMSIZE) minWidth = scaleUp(ap.getDefaultLambdaBaseWidth(ep));
+				wirePolys.add(poly);
+				wireLayers.add(layer);
+				wireMinWidths.add(Double.valueOf(minWidth));
+				Rectangle2D bounds = poly.getBounds2D();
+				if (allBounds == null) allBounds = (Rectangle2D)bounds.clone(); else
+					Rectangle2D.union(allBounds, bounds, allBounds);
+			}
+		}
+		Map<PolyBase,List<Centerline>> centerlines = new HashMap<PolyBase,List<Centerline>>();
+		if (allBounds == null) return centerlines;
+
+		// divide the area into tiles and give each polygon to the tile that contains its center
+		int tilesAcross = (int)Math.ceil(Math.sqrt(threads * TILESPERTHREAD));
+		double tileWidth = Math.max(allBounds.getWidth() / tilesAcross, 1);
+		double tileHeight = Math.max(allBounds.getHeight() / tilesAcross, 1);
+		WireTile [] tileGrid = new WireTile[tilesAcross * tilesAcross];
+		List<WireTile> tiles = new ArrayList<WireTile>();
+		for(int i=0; i<wirePolys.size(); i++)
+		{
+			Rectangle2D bounds = wirePolys.get(i).getBounds2D();
+			int x = Math.min((int)((bounds.getCenterX() - allBounds.getMinX()) / tileWidth), tilesAcross-1);
+			int y = Math.min((int)((bounds.getCenterY() - allBounds.getMinY()) / tileHeight), tilesAcross-1);
+			WireTile tile = tileGrid[y*tilesAcross + x];
+			if (tile == null)
+			{
+				tile = new WireTile();
+				tileGrid[y*tilesAcross + x] = tile;
+				tiles.add(tile);
+			}
+			tile.polys.add(wirePolys.get(i));
+			tile.layers.add(wireLayers.get(i));
+			tile.minWidths.add(wireMinWidths.get(i));
+		}
+
+		// analyze the tiles concurrently
+		AtomicInteger nextTile = new AtomicInteger(0);
+		ExecutorService pool = ThreadPoolSharedForkJoin.getInstance().getExecutorService();
+		List<Future<Boolean>> finders = new ArrayList<Future<Boolean>>();
+		for(int i=0; i<Math.min(threads, tiles.size()); i++)
+			finders.add(pool.submit(new WireTileFinder(tiles, nextTile, originalMerge)));
+		boolean interrupted = false;
+		for(Future<Boolean> finder : finders)
+		{
+			for(;;)
+			{
+				try
+				{
+					finder.get();
+					break;
+				} catch (InterruptedException e)
+				{
+					// stop handing out tiles, and wait for the ones being analyzed before going on serially
+					interrupted = true;
+					nextTile.set(tiles.size());
+				} catch (ExecutionException e)
+				{
+					e.printStackTrace();
+					break;
+				}
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+
+		// collect the results (tiles that failed are analyzed again serially)
+		for(WireTile tile : tiles)
+		{
+			if (tile.centerlines == null) continue;
+			for(int i=0; i<tile.polys.size(); i++)
+				centerlines.put(tile.polys.get(i), tile.centerlines.get(i));
+		}
+		return centerlines;
+	}
+
+	/**
+	 * Class to find the centerlines of wire tiles in a separate thread.
+	 */
+	private class WireTileFinder implements Callable<Boolean>
+	{
+		private final List<WireTile> tiles;
+		private final AtomicInteger nextTile;
+		private final PolyMerge originalMerge;
+		private final Environment launcherEnvironment = Environment.getThreadEnvironment();
+		private final UserInterface userInterface = Job.getUserInterface();
+
+		WireTileFinder(List<WireTile> tiles, AtomicInteger nextTile, PolyMerge originalMerge)
+		{
+			this.tiles = tiles;
+			this.nextTile = nextTile;
+			this.originalMerge = originalMerge;
+		}
+
+		public Boolean call()
+		{
+			// technologies are found through the environment of the thread
+			if (Job.getUserInterface() != userInterface)
+			{
+				Environment.setThreadEnvironment(launcherEnvironment);
+				Job.setUserInterface(userInterface);
+			}
+			for(;;)
+			{
+				int index = nextTile.getAndIncrement();
+				if (index >= tiles.size()) break;
+				WireTile tile = tiles.get(index);
+				try
+				{
+					tile.centerlines = findTileCenterlines(tile);
+				} catch (RuntimeException e)
+				{
+					e.printStackTrace();
+				}
+			}
+			return Boolean.TRUE;
+		}
+
+		private List<List<Centerline>> findTileCenterlines(WireTile tile)
+		{
+			// determine the area of each layer that the tile examines
+			Map<Layer,Rectangle2D> layerBounds = new HashMap<Layer,Rectangle2D>();
+			Map<Layer,Double> layerHalos = new HashMap<Layer,Double>();
+			for(int i=0; i<tile.polys.size(); i++)
+			{
+				Layer layer = tile.layers.get(i);
+				Rectangle2D bounds = tile.polys.get(i).getBounds2D();
+				Rectangle2D soFar = layerBounds.get(layer);
+				if (soFar == null) layerBounds.put(layer, (Rectangle2D)bounds.clone()); else
+					Rectangle2D.union(soFar, bounds, soFar);
+
+				// centerlines are never wider than the polygon, so tests stay within that distance of it
+				double halo = Math.max(bounds.getWidth(), bounds.getHeight()) + SCALEFACTOR;
+				Double haloSoFar = layerHalos.get(layer);
+				if (haloSoFar == null || haloSoFar.doubleValue() < halo) layerHalos.put(layer, Double.valueOf(halo));
+			}
+
+			// make private copies of the geometry in the tile
+			PolyMerge tileMerge = new PolyMerge();
+			for(Layer layer : layerBounds.keySet())
+			{
+				Rectangle2D bounds = layerBounds.get(layer);
+				double halo = layerHalos.get(layer).doubleValue();
+				Rectangle2D clip = new Rectangle2D.Double(bounds.getMinX() - halo, bounds.getMinY() - halo,
+					bounds.getWidth() + halo*2, bounds.getHeight() + halo*2);
+				tileMerge.addClipped(originalMerge, layer, clip);
+			}
+			PolyMerge scratchMerge = new PolyMerge();
+
+			List<List<Centerline>> found = new ArrayList<List<Centerline>>();
+			for(int i=0; i<tile.polys.size(); i++)
+				found.add(findCenterlines(tile.polys.get(i), tile.layers.get(i), tile.minWidths.get(i).doubleValue(),
+					scratchMerge, tileMerge));
+			return found;
+		}
+	}
+
     /**
 	 * Method to figure out which ArcProto to use for a polygon on a layer.
 	 * In the case of Active layers, it examines the well and select layers to figure out
@@ -231,4 +231,23 @@ public class Extract extends Tool
 	 * @return true if the node extractor should use pure-layer nodes for connectivity, by default.
 	 */
 	public static boolean isFactoryUsePureLayerNodes() { return cacheUsePureLayerNodes.getBooleanFactoryValue(); }
+
+	private static Pref cacheExtractionThreads = Pref.makeIntPref("ExtractionThreads", Extract.tool.prefs, 1);
+	/**
+	 * Method to tell how many threads the node extractor should use when finding wires.
+	 * With more than one thread, the geometry is divided into tiles that are analyzed concurrently.
+	 * The default is 1 (no tiling).
+	 * @return the number of threads to use when finding wires (0 to use one per processor).
+	 */
+	public static int getExtractionThreads() { return cacheExtractionThreads.getInt(); }
+	/**
+	 * Method to set how many threads the node extractor should use when finding wires.
+	 * @param a the number of threads to use when finding wires (0 to use one per processor).
+	 */
+	public static void setExtractionThreads(int a) { cacheExtractionThreads.setInt(a); }
+	/**
+	 * Method to tell how many threads the node extractor should use when finding wires, by default.
+	 * @return the number of threads to use when finding wires, by default.
+	 */
+	public static int getFactoryExtractionThreads() { return cacheExtractionThreads.getIntFactoryValue(); }
 }
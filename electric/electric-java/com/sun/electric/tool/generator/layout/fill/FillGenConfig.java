@@ -51,6 +51,7 @@ public class FillGenConfig implements Serializable
     public double gap; // allowed overlap between given cells and masters. Typical value is 1.5
     public FillGenType fillCellType = FillGenType.INTERNAL;
     public int level; // to control the level of hierarchy in case of onlyAround option
+    public boolean parallel; // search collisions of fill tiles in parallel against a snapshot of the cell
     public Job job;
 
     public enum FillGenType {
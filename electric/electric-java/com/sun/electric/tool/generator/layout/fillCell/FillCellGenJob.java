@@ -293,9 +293,41 @@ public class FillCellGenJob extends FillGenJob {
 		return result;
 	}
 
+	/**
+	 * Interface to the collision search of fill elements in the cell being
+	 * filled. The search is done in the database or in a FillCollisionSnapshot.
+	 */
+	protected interface CollisionSearch {
+		/**
+		 * Method to determine if a fill element collides with geometry in the
+		 * cell being filled. Arguments are those of searchCollision without a port.
+		 *
+		 * @param source
+		 *            the fill element which is searched
+		 * @return true if a collision was found
+		 */
+		boolean searchCollision(Geometric source, Cell parent, Rectangle2D nodeBounds,
+				Layer.Function.Set theseLayers, Object[] ignores, Cell master, Network theNet);
+	}
+
+	/** CollisionSearch which searches the database */
+	protected static final CollisionSearch DATABASE_SEARCH = new CollisionSearch() {
+		public boolean searchCollision(Geometric source, Cell parent, Rectangle2D nodeBounds,
+				Layer.Function.Set theseLayers, Object[] ignores, Cell master, Network theNet) {
+			return FillCellGenJob.searchCollision(parent, nodeBounds, theseLayers, null, ignores, master, theNet);
+		}
+	};
+
 	protected static Cell detectOverlappingBars(Cell cell, Cell master, Cell empty,
 			FixpTransform fillTransUp, HashSet<NodeInst> nodesToRemove, HashSet<ArcInst> arcsToRemove,
 			Cell topCell, NodeInst[] ignore, double drcSpacing, int level) {
+		return detectOverlappingBars(cell, master, empty, fillTransUp, nodesToRemove, arcsToRemove, topCell,
+				ignore, drcSpacing, level, DATABASE_SEARCH);
+	}
+
+	protected static Cell detectOverlappingBars(Cell cell, Cell master, Cell empty,
+			FixpTransform fillTransUp, HashSet<NodeInst> nodesToRemove, HashSet<ArcInst> arcsToRemove,
+			Cell topCell, NodeInst[] ignore, double drcSpacing, int level, CollisionSearch search) {
 		List<Layer.Function> tmp = new ArrayList<Layer.Function>();
 
 		// Check if any metalXY must be removed
@@ -316,7 +348,7 @@ public class FillCellGenJob extends FillGenJob {
 				HashSet<ArcInst> arcsToRemoveSub = new HashSet<ArcInst>();
 
 				Cell tmpCell = detectOverlappingBars(c, master, empty, subTransUp, nodesToRemoveSub,
-						arcsToRemoveSub, topCell, ignore, drcSpacing, ++level);
+						arcsToRemoveSub, topCell, ignore, drcSpacing, ++level, search);
 				if (tmpCell == empty || tmpCell == null) {
 					// return true. Better to not include this master due to
 					// complexity of the subcells.
@@ -336,7 +368,7 @@ public class FillCellGenJob extends FillGenJob {
 			}
 			Rectangle2D rect = getSearchRectangle(ni.getBounds(), fillTransUp, drcSpacing);
 			assert (ignore.length == 0);
-			if (searchCollision(topCell, rect, new Layer.Function.Set(tmp), null, new Object[] { cell, ni },
+			if (search.searchCollision(ni, topCell, rect, new Layer.Function.Set(tmp), new Object[] { cell, ni },
 					master, null)) {
 				// Just for testing
 				if (LOCALDEBUGFLAG) {
@@ -363,7 +395,7 @@ public class FillCellGenJob extends FillGenJob {
 			Rectangle2D rect = getSearchRectangle(ai.getBounds(), fillTransUp, drcSpacing);
 			assert (ignore.length == 0);
 			Network net = netlist.getNetwork(ai, 0);
-			if (searchCollision(topCell, rect, thisLayer, null, new Object[] { cell, ai }, master, net)) {
+			if (search.searchCollision(ai, topCell, rect, thisLayer, new Object[] { cell, ai }, master, net)) {
 				// For testing
 				if (LOCALDEBUGFLAG) {
 					rect = getSearchRectangle(ai.getBounds(), fillTransUp, drcSpacing);
@@ -431,21 +463,120 @@ public class FillCellGenJob extends FillGenJob {
 	 */
 	protected static boolean searchCollision(Cell parent, Rectangle2D nodeBounds,
 			Layer.Function.Set theseLayers, PortConfig p, Object[] ignores, Cell master, Network theNet) {
+		return searchCollision(DATABASE_GEOMETRY, parent, nodeBounds, theseLayers, p, ignores,
+				getMasterSubCells(master), theNet != null ? theNet.getName() : null);
+	}
+
+	/**
+	 * Geometry in which collisions of fill elements are searched: the database
+	 * or a FillCollisionSnapshot. C is a cell of the geometry and E is a node
+	 * or an arc in it.
+	 */
+	protected static abstract class CollisionGeometry<C, E> {
+		/** Method to return the Cell of a cell of the geometry. */
+		abstract Cell getCell(C cell);
+
+		/** Method to iterate over the nodes and arcs of a cell which overlap an area. */
+		abstract Iterator<E> search(C cell, Rectangle2D bounds);
+
+		/** Method to return the NodeInst or ArcInst of a node or an arc. */
+		abstract Geometric getGeometric(E e);
+
+		/** Method to return the cell of an instance, or null if it is not an instance. */
+		abstract C getSubCell(E e);
+
+		/** Method to return the transformation into the cell of an instance. */
+		abstract FixpTransform transformIn(E e);
+
+		/** Method to tell if a primitive node or an arc is on a network that exports the same as a port. */
+		abstract boolean isOnPortNetwork(C cell, E e, PortConfig p);
+
+		/** Method to return the name of the network of an arc, or null for a node. */
+		abstract String getArcNetName(C cell, E e);
+
+		/** Method to tell if a primitive node or an arc has shapes on some layers. */
+		abstract boolean hasShapes(C cell, E e, Layer.Function.Set layers);
+	}
+
+	/** CollisionGeometry of the database */
+	private static final CollisionGeometry<Cell, Geometric> DATABASE_GEOMETRY = new CollisionGeometry<Cell, Geometric>() {
+		Cell getCell(Cell cell) {
+			return cell;
+		}
+
+		Iterator<Geometric> search(Cell cell, Rectangle2D bounds) {
+			return cell.searchIterator(bounds, false);
+		}
+
+		Geometric getGeometric(Geometric geom) {
+			return geom;
+		}
+
+		Cell getSubCell(Geometric geom) {
+			if (geom instanceof NodeInst && ((NodeInst) geom).isCellInstance())
+				return (Cell) ((NodeInst) geom).getProto();
+			return null;
+		}
+
+		FixpTransform transformIn(Geometric geom) {
+			return ((NodeInst) geom).transformIn();
+		}
+
+		boolean isOnPortNetwork(Cell cell, Geometric geom, PortConfig p) {
+			Netlist netlist = cell.getNetlist();
+			if (geom instanceof ArcInst)
+				return netlist.getNetwork((ArcInst) geom, 0).findExportWithSameCharacteristic(p.e) != null;
+			for (Iterator<PortInst> itP = ((NodeInst) geom).getPortInsts(); itP.hasNext();) {
+				PortInst port = itP.next();
+				if (netlist.getNetwork(port).findExportWithSameCharacteristic(p.e) != null)
+					return true;
+			}
+			return false;
+		}
+
+		String getArcNetName(Cell cell, Geometric geom) {
+			if (geom instanceof ArcInst)
+				return cell.getNetlist().getNetwork((ArcInst) geom, 0).getName();
+			return null;
+		}
+
+		boolean hasShapes(Cell cell, Geometric geom, Layer.Function.Set layers) {
+			if (geom instanceof NodeInst)
+				return cell.getTechnology().getShapeOfNode((NodeInst) geom, true, true, layers).length > 0;
+			return cell.getTechnology().getShapeOfArc((ArcInst) geom, layers).length > 0;
+		}
+	};
+
+	/**
+	 * Method to determine if a fill element collides with geometry in a cell
+	 * of the database or of a FillCollisionSnapshot.
+	 *
+	 * @param geometry
+	 *            the geometry which is searched
+	 * @param masterCells
+	 *            cells instantiated in the master, which are not searched, or null
+	 * @param netName
+	 *            arcs on networks whose names start with it are ignored, or null
+	 * @return true if a collision was found
+	 */
+	static <C, E> boolean searchCollision(CollisionGeometry<C, E> geometry, C cell, Rectangle2D nodeBounds,
+			Layer.Function.Set theseLayers, PortConfig p, Object[] ignores, Set<Cell> masterCells, String netName) {
 		// Not checking if they belong to the same net!. If yes, ignore the
 		// collision
 		Rectangle2D subBound = new Rectangle2D.Double();
-		Netlist netlist = parent.getNetlist();
+		Cell parent = geometry.getCell(cell);
 
 		for (int i = 0; i < ignores.length; i++) {
 			if (parent == ignores[i]) {
 				return false;
 			}
 		}
-		if (master != null && searchSubCellInMasterCell(master, parent))
+		if (masterCells != null && masterCells.contains(parent))
 			return false;
 
-		for (Iterator<Geometric> it = parent.searchIterator(nodeBounds, false); it.hasNext();) {
-			Geometric geom = it.next();
+		for (Iterator<E> it = geometry.search(cell, nodeBounds); it.hasNext();) {
+			E e = it.next();
+			Geometric geom = geometry.getGeometric(e);
 
 			if (p != null && geom == p.p.getNodeInst())
 				continue; // port belongs to this node
@@ -460,62 +591,34 @@ public class FillCellGenJob extends FillGenJob {
 			if (ignoreThis)
 				continue; // ignore the cell. E.g. fillNi, connectionNi
 
-			if (geom instanceof NodeInst) {
-				NodeInst ni = (NodeInst) geom;
-
-				if (NodeInst.isSpecialNode(ni))
-					continue;
+			if (geom instanceof NodeInst && NodeInst.isSpecialNode((NodeInst) geom))
+				continue;
 
-				// ignore nodes that are not primitive
-				if (ni.isCellInstance()) {
-					// instance found: look inside it for offending geometry
-					FixpTransform extra = ni.transformIn();
-					subBound.setRect(nodeBounds);
-					DBMath.transformRect(subBound, extra);
+			C sub = geometry.getSubCell(e);
+			if (sub != null) {
+				// instance found: look inside it for offending geometry
+				subBound.setRect(nodeBounds);
+				DBMath.transformRect(subBound, geometry.transformIn(e));
 
-					if (searchCollision((Cell) ni.getProto(), subBound, theseLayers, p, ignores, master,
-							theNet))
-						return true;
-				} else {
-					if (p != null) {
-						boolean found = false;
-						for (Iterator<PortInst> itP = ni.getPortInsts(); itP.hasNext();) {
-							PortInst port = itP.next();
-							Network net = netlist.getNetwork(port);
-							// They export the same, power or gnd so no worries
-							// about overlapping
-							if (net.findExportWithSameCharacteristic(p.e) != null) {
-								found = true;
-								break;
-							}
-						}
-						if (found)
-							continue; // no match in network type
-					}
-
-					Poly[] subPolyList = parent.getTechnology().getShapeOfNode(ni, true, true, theseLayers);
-					// Overlap found
-					if (subPolyList.length > 0)
-						return true;
-				}
-			} else {
-				ArcInst ai = (ArcInst) geom;
-				Network net = netlist.getNetwork(ai, 0);
+				if (searchCollision(geometry, sub, subBound, theseLayers, p, ignores, masterCells, netName))
+					return true;
+				continue;
+			}
 
-				// They export the same, power or gnd so no worries about
-				// overlapping
-				if (p != null && net.findExportWithSameCharacteristic(p.e) != null)
-					continue; // no match in network type
+			// They export the same, power or gnd so no worries about
+			// overlapping
+			if (p != null && geometry.isOnPortNetwork(cell, e, p))
+				continue; // no match in network type
 
-				if (theNet != null && net.getName().startsWith(theNet.getName())) // net.doTheyHaveSameCharacteristic(theNet))
+			if (netName != null) {
+				String arcNetName = geometry.getArcNetName(cell, e);
+				if (arcNetName != null && arcNetName.startsWith(netName))
 					continue; // they belong to the same network
-
-				Poly[] subPolyList = parent.getTechnology().getShapeOfArc(ai, theseLayers);
-
-				// Something overlaps
-				if (subPolyList.length > 0)
-					return true;
 			}
+
+			// Overlap found
+			if (geometry.hasShapes(cell, e, theseLayers))
+				return true;
 		}
 		return false;
 	}
@@ -531,24 +634,22 @@ public class FillCellGenJob extends FillGenJob {
 	}
 
 	/**
-	 * Method to check if a subCell used in another cell is also part of the
-	 * master cell. This avoids conflicts while detecting collisions.
+	 * Method to find the subCells used in the master cell. Collisions with
+	 * them are not searched, which avoids conflicts while detecting collisions.
 	 *
 	 * @param master
-	 * @param cell
-	 * @return true if cell is used in master cell
+	 * @return the cells instantiated in the master cell, or null if there is no master
 	 */
-	private static boolean searchSubCellInMasterCell(Cell master, Cell cell) {
-		// checking if parent is already part of the fill master
+	static Set<Cell> getMasterSubCells(Cell master) {
+		if (master == null)
+			return null;
+		Set<Cell> cells = new HashSet<Cell>();
 		for (Iterator<NodeInst> itNi = master.getNodes(); itNi.hasNext();) {
 			NodeInst ni = itNi.next();
-			if (ni.isCellInstance()) {
-				Cell thisCell = (Cell) ni.getProto();
-				if (thisCell == cell)
-					return true; // found in master
-			}
+			if (ni.isCellInstance())
+				cells.add((Cell) ni.getProto());
 		}
-		return false;
+		return cells;
 	}
 
 	// Collect exclusion area for fill generator
@@ -978,7 +1079,7 @@ public class FillCellGenJob extends FillGenJob {
 	 *            matrix
 	 */
 	private boolean detectOverlappingBars(Cell cell, FixpTransform fillTransUp,
-			HashSet<Geometric> nodesToRemove, FillGenJobContainer container) {
+			HashSet<Geometric> nodesToRemove, FillGenJobContainer container, CollisionSearch search) {
 		List<Layer.Function> tmp = new ArrayList<Layer.Function>();
 
 		// Check if any metalXY must be removed
@@ -995,7 +1096,7 @@ public class FillCellGenJob extends FillGenJob {
 				FixpTransform subTransUp = ni.transformOut(fillTransUp);
 				// No need of checking the rest of the elements if first one is
 				// detected.
-				if (detectOverlappingBars(subCell, subTransUp, nodesToRemove, container)) {
+				if (detectOverlappingBars(subCell, subTransUp, nodesToRemove, container, search)) {
 					if (cell == container.fillCell)
 						nodesToRemove.add(ni);
 					else return true;
@@ -1010,7 +1111,7 @@ public class FillCellGenJob extends FillGenJob {
 				tmp.add(tlayer.getLayer().getFunction());
 			}
 			Rectangle2D rect = getSearchRectangle(ni.getBounds(), fillTransUp, container.drcSpacing);
-			if (searchCollision(topCell, rect, new Layer.Function.Set(tmp), null, new NodeInst[] {
+			if (search.searchCollision(ni, topCell, rect, new Layer.Function.Set(tmp), new NodeInst[] {
 					container.fillNi, container.connectionNi }, null, null)) {
 				// Direct on last top fill cell
 				if (cell == container.fillCell)
@@ -1025,7 +1126,7 @@ public class FillCellGenJob extends FillGenJob {
 			Layer.Function.Set thisLayer = new Layer.Function.Set(ai.getProto().getLayer(0).getFunction());
 			// Searching box must reflect DRC constrains
 			Rectangle2D rect = getSearchRectangle(ai.getBounds(), fillTransUp, container.drcSpacing);
-			if (searchCollision(topCell, rect, thisLayer, null, new NodeInst[] { container.fillNi,
+			if (search.searchCollision(ai, topCell, rect, thisLayer, new NodeInst[] { container.fillNi,
 					container.connectionNi }, null, null)) {
 				if (cell == container.fillCell) {
 					nodesToRemove.add(ai);
@@ -1047,7 +1148,17 @@ public class FillCellGenJob extends FillGenJob {
 		// the standard fill cells.
 		// DRC conditions to detect overlap otherwise too many elements/cells
 		// might be discarded.
-		detectOverlappingBars(container.fillCell, fillTransOut, nodesToRemove, container);
+		if (fillGenConfig.parallel) {
+			// Collect the searches first and evaluate them by tiles in
+			// parallel. The second pass gets the same answers as the database.
+			FillCollisionSnapshot snapshot = new FillCollisionSnapshot(topCell);
+			detectOverlappingBars(container.fillCell, fillTransOut, new HashSet<Geometric>(), container,
+					snapshot.recorder());
+			snapshot.evaluate();
+			detectOverlappingBars(container.fillCell, fillTransOut, nodesToRemove, container,
+					snapshot.replayer());
+		} else
+			detectOverlappingBars(container.fillCell, fillTransOut, nodesToRemove, container, DATABASE_SEARCH);
 
 		for (Geometric geo : nodesToRemove) {
 			System.out.println("Removing " + geo);
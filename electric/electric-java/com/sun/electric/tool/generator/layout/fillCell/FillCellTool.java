@@ -129,6 +129,26 @@ public class FillCellTool extends FillGeneratorTool {
      */
     public static void setFillCellCreateMasterOn(boolean on) { cacheFillCellCreateMaster.setBoolean(on); }
 
+    private static Pref cacheFillCellParallel;
+    /**
+     * Method to tell whether FillGeneratorTool will search collisions of fill tiles in parallel.
+     * The default is "false".
+     * @return true if FillGeneratorTool should search collisions of fill tiles in parallel.
+     */
+    public static boolean isFillCellParallelOn()
+    {
+        if (cacheFillCellParallel == null)
+        {
+           cacheFillCellParallel = Pref.makeBooleanPref("FillCellParallel", getTool().prefs, false);
+        }
+        return cacheFillCellParallel.getBoolean();
+    }
+    /**
+     * Method to set whether FillGeneratorTool will search collisions of fill tiles in parallel.
+     * @param on true if FillGeneratorTool should search collisions of fill tiles in parallel.
+     */
+    public static void setFillCellParallelOn(boolean on) { cacheFillCellParallel.setBoolean(on); }
+
     private Cell treeMakeAndTileCell(TechType tech, EditingPreferences ep, List<Cell> masters, boolean isPlanHorizontal, 
     		Cell topCell, List<Rectangle2D> topBoxList, Area area)
     {
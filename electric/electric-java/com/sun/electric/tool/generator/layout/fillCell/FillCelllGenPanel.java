@@ -44,6 +44,7 @@ public class FillCelllGenPanel extends JPanel {
     private javax.swing.JTextField gapTextField;
     private javax.swing.JTextField levelTextField;
     private javax.swing.JCheckBox aroundButton;
+    private javax.swing.JCheckBox parallelButton;
     private javax.swing.JComboBox routerTypeComboBox;
     private javax.swing.JLabel gapLabel;
     private FillGenDialog parentDialog;
@@ -85,6 +86,8 @@ public class FillCelllGenPanel extends JPanel {
         else
             masterComboBox.setSelectedItem(CellTypeEnum.USE);
 
+        parallelButton.setSelected(FillCellTool.isFillCellParallelOn());
+
         optionActionPerformed(null);
     }
 
@@ -95,12 +98,16 @@ public class FillCelllGenPanel extends JPanel {
         FillGenConfig config = parentDialog.okButtonClick(isFlatSelected(), isCreateOptionSelected(), binary, aroundButton.isSelected(),
                 gap, routerType, TextUtils.atoi(levelTextField.getText()));
         if (config != null)
+        {
+            config.parallel = parallelButton.isSelected();
             new FillCellGenJob(Job.getUserInterface().getCurrentCell(), config, false, new LayerCoverageTool.LayerCoveragePreferences(false));
+        }
         // Store preferences
         FillCellTool.FillCellMode mode = (FillCellTool.FillCellMode)fillTypeComboBox.getSelectedItem();
         FillCellTool.setFillCellMode(mode);
         FillCellTool.setFillRouterMode(routerType);
         FillCellTool.setFillCellCreateMasterOn(isCreateOptionSelected());
+        FillCellTool.setFillCellParallelOn(parallelButton.isSelected());
     }
 
     private void initComponents(JPanel floorplanPanel, ButtonGroup topGroup)
@@ -229,6 +236,18 @@ public class FillCelllGenPanel extends JPanel {
         gridBagConstraints.insets = new java.awt.Insets(4, 4, 4, 4);
         add(aroundButton, gridBagConstraints);
 
+        parallelButton = new javax.swing.JCheckBox();
+        parallelButton.setText("Parallel");
+        parallelButton.setBorder(javax.swing.BorderFactory.createEmptyBorder(0, 0, 0, 0));
+        parallelButton.setMargin(new java.awt.Insets(0, 0, 0, 0));
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 3;
+        gridBagConstraints.gridwidth = 2;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.WEST;
+        gridBagConstraints.insets = new java.awt.Insets(4, 4, 4, 4);
+        add(parallelButton, gridBagConstraints);
+
         javax.swing.JLabel routerLabel = new javax.swing.JLabel();
         routerLabel.setText("Router");
         gridBagConstraints = new java.awt.GridBagConstraints();
@@ -0,0 +1,405 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: FillCollisionSnapshot.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.generator.layout.fillCell;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sun.electric.database.CellBackup;
+import com.sun.electric.database.ImmutableArcInst;
+import com.sun.electric.database.ImmutableNodeInst;
+import com.sun.electric.database.geometry.EGraphics;
+import com.sun.electric.database.geometry.ERectangle;
+import com.sun.electric.database.geometry.Poly;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.network.Netlist;
+import com.sun.electric.database.network.Network;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.Geometric;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.topology.RTBounds;
+import com.sun.electric.database.topology.RTNode;
+import com.sun.electric.technology.AbstractShapeBuilder;
+import com.sun.electric.technology.Layer;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.technology.PrimitivePort;
+import com.sun.electric.tool.util.concurrent.Parallel;
+import com.sun.electric.tool.util.concurrent.patterns.PForTask;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.IThreadPool;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
+import com.sun.electric.tool.util.concurrent.utils.BlockedRange1D;
+import com.sun.electric.util.math.DBMath;
+import com.sun.electric.util.math.FixpTransform;
+
+/**
+ * Read-only spatial snapshot of the cell being filled, used by the tile-parallel mode of the fill generator.
+ * The collision searches of fill geometry are first recorded on the job thread.
+ * They are then evaluated concurrently, tile by tile of the die, against the snapshot.
+ * Finally the serial code that changes the database replays them.
+ * Both the snapshot and the database are searched by FillCellGenJob.searchCollision.
+ */
+class FillCollisionSnapshot {
+	/** number of tiles per thread of the pool */					private static final int TILES_PER_THREAD = 4;
+
+	/** cell being filled */										private final Cell topCell;
+	/** snapshots of the cells in the hierarchy of topCell */		private final Map<Cell, CellView> views = new HashMap<Cell, CellView>();
+	/** cells instantiated in each master */						private final Map<Cell, Set<Cell>> masterSubCells = new HashMap<Cell, Set<Cell>>();
+	/** recorded searches which are not evaluated yet */			private final List<Search> pending = new ArrayList<Search>();
+	/** evaluated searches */										private final Map<Search, Search> results = new HashMap<Search, Search>();
+	/** number of searches that were not recorded */				private int numMissed;
+
+	FillCollisionSnapshot(Cell topCell) {
+		this.topCell = topCell;
+	}
+
+	/**
+	 * Snapshot of a Cell: an R-Tree of its nodes and arcs.
+	 */
+	private static class CellView {
+		private final Cell cell;
+		private final CellBackup backup;
+		private RTNode<Entry> tree = RTNode.makeTopLevel();
+
+		private CellView(Cell cell) {
+			this.cell = cell;
+			backup = cell.backup();
+			backup.getShrinkage(); // computed lazily, so make it before other threads use it
+		}
+	}
+
+	/**
+	 * Node or arc in a CellView.
+	 */
+	private static class Entry implements RTBounds {
+		private final Geometric geom;
+		private final ERectangle bounds;
+		/** primitive node or null */									private ImmutableNodeInst n;
+		/** prototype of a primitive node */								private PrimitiveNode pn;
+		/** arc or null */												private ImmutableArcInst a;
+		/** name of the network of an arc */								private String netName;
+		/** snapshot of the Cell of an instance or null */				private CellView sub;
+		/** transformation into the Cell of an instance */				private FixpTransform transIn;
+
+		private Entry(Geometric geom) {
+			this.geom = geom;
+			bounds = geom.getBounds();
+		}
+
+		public ERectangle getBounds() {
+			return bounds;
+		}
+	}
+
+	/**
+	 * A recorded collision search.
+	 * Searches are identified by the fill element and the search area,
+	 * the other arguments only depend on the fill element.
+	 */
+	private static class Search {
+		private final Geometric source;
+		private final double minX, minY, maxX, maxY;
+		private Rectangle2D bounds;
+		private Layer.Function.Set layers;
+		private Object[] ignores;
+		private Set<Cell> masterCells;
+		private String netName;
+		private boolean collision;
+
+		private Search(Geometric source, Rectangle2D bounds) {
+			this.source = source;
+			minX = bounds.getMinX();
+			minY = bounds.getMinY();
+			maxX = bounds.getMaxX();
+			maxY = bounds.getMaxY();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Search))
+				return false;
+			Search s = (Search) o;
+			return source == s.source && minX == s.minX && minY == s.minY && maxX == s.maxX && maxY == s.maxY;
+		}
+
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(minX) + 31 * Double.doubleToLongBits(minY)
+					+ 961 * Double.doubleToLongBits(maxX) + 29791 * Double.doubleToLongBits(maxY);
+			return System.identityHashCode(source) ^ (int) (bits ^ (bits >>> 32));
+		}
+	}
+
+	/**
+	 * Method to return a CollisionSearch that records searches and reports no collision.
+	 * @return the recording CollisionSearch.
+	 */
+	FillCellGenJob.CollisionSearch recorder() {
+		return new FillCellGenJob.CollisionSearch() {
+			public boolean searchCollision(Geometric source, Cell parent, Rectangle2D nodeBounds,
+					Layer.Function.Set theseLayers, Object[] ignores, Cell master, Network theNet) {
+				assert parent == topCell;
+				Search s = new Search(source, nodeBounds);
+				s.bounds = new Rectangle2D.Double(s.minX, s.minY, s.maxX - s.minX, s.maxY - s.minY);
+				s.layers = theseLayers;
+				s.ignores = ignores.clone();
+				s.masterCells = getMasterSubCells(master);
+				s.netName = theNet != null ? theNet.getName() : null;
+				pending.add(s);
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Method to return a CollisionSearch that answers the evaluated searches.
+	 * Searches that were not recorded are done in the database.
+	 * @return the replaying CollisionSearch.
+	 */
+	FillCellGenJob.CollisionSearch replayer() {
+		return new FillCellGenJob.CollisionSearch() {
+			public boolean searchCollision(Geometric source, Cell parent, Rectangle2D nodeBounds,
+					Layer.Function.Set theseLayers, Object[] ignores, Cell master, Network theNet) {
+				Search s = results.get(new Search(source, nodeBounds));
+				if (s != null)
+					return s.collision;
+				numMissed++;
+				return FillCellGenJob.DATABASE_SEARCH.searchCollision(source, parent, nodeBounds, theseLayers,
+						ignores, master, theNet);
+			}
+		};
+	}
+
+	/**
+	 * Method to return the number of replayed searches that were not recorded.
+	 */
+	int getNumMissed() {
+		return numMissed;
+	}
+
+	/**
+	 * Method to forget the evaluated searches.
+	 */
+	void clearResults() {
+		results.clear();
+	}
+
+	private Set<Cell> getMasterSubCells(Cell master) {
+		if (master == null)
+			return null;
+		Set<Cell> cells = masterSubCells.get(master);
+		if (cells == null) {
+			cells = FillCellGenJob.getMasterSubCells(master);
+			masterSubCells.put(master, cells);
+		}
+		return cells;
+	}
+
+	/**
+	 * Method to make the snapshot of a Cell and of the Cells below it.
+	 */
+	private CellView getView(Cell cell) {
+		CellView view = views.get(cell);
+		if (view != null)
+			return view;
+		view = new CellView(cell);
+		views.put(cell, view);
+		for (Iterator<NodeInst> it = cell.getNodes(); it.hasNext();) {
+			NodeInst ni = it.next();
+			if (NodeInst.isSpecialNode(ni))
+				continue;
+			Entry e = new Entry(ni);
+			if (ni.isCellInstance()) {
+				e.sub = getView((Cell) ni.getProto());
+				e.transIn = ni.transformIn();
+			} else {
+				e.n = ni.getD();
+				e.pn = (PrimitiveNode) ni.getProto();
+			}
+			view.tree = RTNode.linkGeom(null, view.tree, e);
+		}
+		Netlist netlist = cell.getNetlist();
+		for (Iterator<ArcInst> it = cell.getArcs(); it.hasNext();) {
+			ArcInst ai = it.next();
+			Entry e = new Entry(ai);
+			e.a = ai.getD();
+			e.netName = netlist.getNetwork(ai, 0).getName();
+			view.tree = RTNode.linkGeom(null, view.tree, e);
+		}
+		return view;
+	}
+
+	/**
+	 * Method to evaluate the recorded searches.
+	 * The die is divided in tiles which are evaluated in the shared ForkJoin pool.
+	 */
+	void evaluate() {
+		if (pending.isEmpty())
+			return;
+		CellView topView = getView(topCell);
+		IThreadPool pool = ThreadPoolSharedForkJoin.getInstance();
+
+		// distribute the searches into tiles by their centers
+		Rectangle2D die = topCell.getBounds();
+		int tilesOnSide = Math.max(1, (int) Math.ceil(Math.sqrt(TILES_PER_THREAD * pool.getPoolSize())));
+		double tileW = Math.max(die.getWidth(), DBMath.getEpsilon()) / tilesOnSide;
+		double tileH = Math.max(die.getHeight(), DBMath.getEpsilon()) / tilesOnSide;
+		List<List<Search>> tiles = new ArrayList<List<Search>>();
+		Map<Integer, List<Search>> tileMap = new HashMap<Integer, List<Search>>();
+		for (Search s : pending) {
+			int x = (int) Math.floor(((s.minX + s.maxX) / 2 - die.getMinX()) / tileW);
+			int y = (int) Math.floor(((s.minY + s.maxY) / 2 - die.getMinY()) / tileH);
+			x = Math.max(0, Math.min(tilesOnSide - 1, x));
+			y = Math.max(0, Math.min(tilesOnSide - 1, y));
+			Integer key = Integer.valueOf(y * tilesOnSide + x);
+			List<Search> tile = tileMap.get(key);
+			if (tile == null) {
+				tile = new ArrayList<Search>();
+				tileMap.put(key, tile);
+				tiles.add(tile);
+			}
+			tile.add(s);
+		}
+
+		TileTask task = new TileTask(topView, tiles);
+		Parallel.For(new BlockedRange1D(0, tiles.size(), 1), task, pool);
+		if (task.error[0] != null)
+			throw new RuntimeException("Collision search failed", task.error[0]);
+
+		for (Search s : pending)
+			results.put(s, s);
+		pending.clear();
+	}
+
+	/**
+	 * Task which evaluates the searches of a range of tiles.
+	 */
+	private static class TileTask extends PForTask<BlockedRange1D> {
+		private final CellView topView;
+		private final List<List<Search>> tiles;
+		/** first failure of any copy of this task */				private final Throwable[] error = new Throwable[1];
+
+		private TileTask(CellView topView, List<List<Search>> tiles) {
+			this.topView = topView;
+			this.tiles = tiles;
+		}
+
+		@Override
+		public void execute() {
+			try {
+				SnapshotGeometry geometry = new SnapshotGeometry();
+				for (int i = range.start(); i < range.end(); i++) {
+					for (Search s : tiles.get(i))
+						s.collision = FillCellGenJob.searchCollision(geometry, topView, s.bounds, s.layers, null,
+								s.ignores, s.masterCells, s.netName);
+				}
+			} catch (Throwable e) {
+				synchronized (error) {
+					if (error[0] == null)
+						error[0] = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The snapshot as geometry for FillCellGenJob.searchCollision, which is searched without a port.
+	 * Each thread uses its own SnapshotGeometry.
+	 */
+	private static class SnapshotGeometry extends FillCellGenJob.CollisionGeometry<CellView, Entry> {
+		private final ShapeCounter counter = new ShapeCounter();
+
+		Cell getCell(CellView view) {
+			return view.cell;
+		}
+
+		Iterator<Entry> search(CellView view, Rectangle2D bounds) {
+			return new RTNode.Search<Entry>(bounds, view.tree, false);
+		}
+
+		Geometric getGeometric(Entry e) {
+			return e.geom;
+		}
+
+		CellView getSubCell(Entry e) {
+			return e.sub;
+		}
+
+		FixpTransform transformIn(Entry e) {
+			return e.transIn;
+		}
+
+		boolean isOnPortNetwork(CellView view, Entry e, FillCellGenJob.PortConfig p) {
+			throw new UnsupportedOperationException();
+		}
+
+		String getArcNetName(CellView view, Entry e) {
+			return e.netName;
+		}
+
+		boolean hasShapes(CellView view, Entry e, Layer.Function.Set layers) {
+			if (e.n != null)
+				return counter.hasNodeShapes(view.backup, e.n, e.pn, layers);
+			return counter.hasArcShapes(view.backup, e.a, layers);
+		}
+	}
+
+	/**
+	 * Shape builder which counts the shapes of a node or an arc on some layers,
+	 * like Technology.getShapeOfNode and Technology.getShapeOfArc.
+	 */
+	private static class ShapeCounter extends AbstractShapeBuilder {
+		private int numShapes;
+
+		private ShapeCounter() {
+			super(false);
+		}
+
+		private boolean hasNodeShapes(CellBackup backup, ImmutableNodeInst n, PrimitiveNode pn, Layer.Function.Set layers) {
+			setup(backup, null, true, false, true, layers);
+			numShapes = 0;
+			pn.genShape(this, n);
+			return numShapes > 0;
+		}
+
+		private boolean hasArcShapes(CellBackup backup, ImmutableArcInst a, Layer.Function.Set layers) {
+			setup(backup, null, false, true, false, layers);
+			numShapes = 0;
+			genShapeOfArc(a);
+			return numShapes > 0;
+		}
+
+		@Override
+		protected void addPoly(int numPoints, Poly.Type style, Layer layer, EGraphics graphicsOverride, PrimitivePort pp) {
+			numShapes++;
+		}
+
+		@Override
+		protected void addBox(Layer layer) {
+			numShapes++;
+		}
+	}
+}
@@ -22,6 +22,7 @@
 package com.sun.electric.tool.generator.layout.fillCell;
 
 import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.tool.Job;
 import com.sun.electric.tool.generator.layout.fill.TiledCell;
 import com.sun.electric.tool.generator.layout.fill.FillGenConfig;
 import com.sun.electric.tool.generator.layout.fill.G;
@@ -47,6 +48,14 @@ import java.awt.geom.Area;
  * Date: Sep 19, 2006
  */
 public class TreeTiledCell extends TiledCell {
+    /** number of qTree leaves whose collision searches are evaluated together in parallel mode */
+    private static final int LEAVES_PER_BATCH = 256;
+
+    /** snapshot of the top cell in parallel mode, null otherwise */ private FillCollisionSnapshot snapshot;
+    /** leaves of the qTree in the order of refinement */ private List<Rectangle2D> leaves;
+    /** true while refine only collects the leaves */ private boolean collectingLeaves;
+    /** index of the next leaf to refine */ private int leafIndex;
+
     public TreeTiledCell(FillGenConfig conf, EditingPreferences ep)
     {
         super(conf, ep);
@@ -217,6 +226,18 @@ public class TreeTiledCell extends TiledCell {
                 return false;
 
             // nothing refined, qTree leave
+            if (collectingLeaves)
+            {
+                leaves.add(box);
+                return true;
+            }
+            if (snapshot != null)
+            {
+                if (leafIndex % LEAVES_PER_BATCH == 0)
+                    prefetchCollisions(masters.get(0), empty, topCell, area, leafIndex);
+                leafIndex++;
+            }
+            FillCellGenJob.CollisionSearch search = (snapshot != null) ? snapshot.replayer() : FillCellGenJob.DATABASE_SEARCH;
             HashSet<NodeInst> nodesToRemove = new HashSet<NodeInst>();
             HashSet<ArcInst> arcsToRemove = new HashSet<ArcInst>();
 
@@ -232,16 +253,9 @@ public class TreeTiledCell extends TiledCell {
                  *		[   0    1    ty  ]
                  *		[   0    0    1   ]
                  */
-                Rectangle2D box1 = new Rectangle2D.Double(box.getMinX()+config.gap, box.getMinY()+config.gap,
-                        box.getWidth()-config.gap*2, box.getHeight()-config.gap*2);
-                Rectangle2D essentialBnd = master.findEssentialBounds();
-                if (essentialBnd == null) essentialBnd = master.getBounds();
-                Rectangle2D masterRealBnd = master.getBounds();
-                FixpTransform fillTransUp = FixpTransform.getTranslateInstance(
-                        box.getCenterX() - masterRealBnd.getCenterX(),
-                        box.getCenterY() - masterRealBnd.getCenterY());
+                FixpTransform fillTransUp = getFillTransUp(master, box);
 //                boolean isExcluded1 = area.intersects(box);
-                boolean isExcluded = area.intersects(box1);
+                boolean isExcluded = isExcluded(box, area);
 
 //                if (box.getMinX() > -5680 && box.getMinY() > 3680) //&& box.getMinY() > 2784)
 //                    System.out.println("Here ");
@@ -268,7 +282,7 @@ public class TreeTiledCell extends TiledCell {
                 {
                     c = FillCellGenJob.detectOverlappingBars(master, master, empty,
                             fillTransUp, nodesToRemove, arcsToRemove,
-                            topCell, new NodeInst[] {}, config.drcSpacingRule, 0);
+                            topCell, new NodeInst[] {}, config.drcSpacingRule, 0, search);
                     if (c != empty && c != null)
                     {
                         theMasterCell = c;
@@ -367,6 +381,9 @@ public class TreeTiledCell extends TiledCell {
         if (config.job != null && config.job.checkAbort())
             return false;
 
+        if (collectingLeaves)
+            return stdCell;
+
         Cell tiledCell = null;
         String tileName = null;
         boolean stdC = true;
@@ -481,6 +498,48 @@ public class TreeTiledCell extends TiledCell {
         return stdCell;
     }
 
+    /**
+     * Method to tell if a qTree leaf intersects the exclusion area.
+     */
+    private boolean isExcluded(Rectangle2D box, Area area)
+    {
+        Rectangle2D box1 = new Rectangle2D.Double(box.getMinX()+config.gap, box.getMinY()+config.gap,
+                box.getWidth()-config.gap*2, box.getHeight()-config.gap*2);
+        return area.intersects(box1);
+    }
+
+    /**
+     * Method to calculate the translation from master cell center to actual location in the qTree.
+     */
+    private static FixpTransform getFillTransUp(Cell master, Rectangle2D box)
+    {
+        Rectangle2D masterRealBnd = master.getBounds();
+        return FixpTransform.getTranslateInstance(
+                box.getCenterX() - masterRealBnd.getCenterX(),
+                box.getCenterY() - masterRealBnd.getCenterY());
+    }
+
+    /**
+     * Method to evaluate in parallel the collision searches of the first master
+     * in the next batch of qTree leaves. Leaves that need other masters search the database.
+     */
+    private void prefetchCollisions(Cell master, Cell empty, Cell topCell, Area area, int first)
+    {
+        snapshot.clearResults();
+        FillCellGenJob.CollisionSearch recorder = snapshot.recorder();
+        int last = Math.min(first + LEAVES_PER_BATCH, leaves.size());
+        for (int i = first; i < last; i++)
+        {
+            Rectangle2D box = leaves.get(i);
+            if (isExcluded(box, area))
+                continue;
+            FillCellGenJob.detectOverlappingBars(master, master, empty, getFillTransUp(master, box),
+                    new HashSet<NodeInst>(), new HashSet<ArcInst>(), topCell, new NodeInst[] {},
+                    config.drcSpacingRule, 0, recorder);
+        }
+        snapshot.evaluate();
+    }
+
     /**
      *  Method to set up conditions for qTree refinement
      */
@@ -520,8 +579,26 @@ public class TreeTiledCell extends TiledCell {
         Rectangle2D essentialBnd = masters.get(0).findEssentialBounds();
         if (essentialBnd == null)
             essentialBnd = masters.get(0).getBounds();
+        if (config.parallel)
+        {
+            // the qTree only depends on the boxes so collect its leaves first
+            snapshot = new FillCollisionSnapshot(topCell);
+            leaves = new ArrayList<Rectangle2D>();
+            leafIndex = 0;
+            collectingLeaves = true;
+            refine(masters, essentialBnd, empty, autoLib, topBox, isPlanHorizontal, new ArrayList<Cell>(),
+                    topCell, area);
+            collectingLeaves = false;
+        }
         refine(masters, essentialBnd, empty, autoLib, topBox, isPlanHorizontal, newElems,
                 topCell, area);
+        if (snapshot != null)
+        {
+            if (Job.getDebug() && snapshot.getNumMissed() > 0)
+                System.out.println(snapshot.getNumMissed() + " fill collision searches were done serially");
+            snapshot = null;
+            leaves = null;
+        }
         assert(newElems.size()==1);
         return newElems.iterator().next();
     }
@@ -25,9 +25,12 @@ package com.sun.electric.tool.io.input;
 
 import com.sun.electric.database.EditingPreferences;
 import com.sun.electric.database.ImmutableArcInst;
+import com.sun.electric.database.ImmutableExport;
+import com.sun.electric.database.ImmutableNodeInst;
 import com.sun.electric.database.geometry.EPoint;
 import com.sun.electric.database.geometry.ERectangle;
 import com.sun.electric.database.geometry.Poly;
+import com.sun.electric.database.hierarchy.BulkCellBuilder;
 import com.sun.electric.database.hierarchy.Cell;
 import com.sun.electric.database.hierarchy.Export;
 import com.sun.electric.database.hierarchy.Library;
@@ -57,6 +60,7 @@ import com.sun.electric.technology.Technology;
 import com.sun.electric.technology.technologies.Generic;
 import com.sun.electric.tool.Job;
 import com.sun.electric.tool.io.IOTool;
+import com.sun.electric.tool.user.CircuitChangeJobs;
 import com.sun.electric.util.math.DBMath;
 import com.sun.electric.util.math.FixpRectangle;
 import com.sun.electric.util.math.FixpTransform;
@@ -119,6 +123,8 @@ public class DEF extends LEFDEF
 	private Map<String,PortInst> specialNetsHT = null;
 	private Map<String,PortInst> normalNetsHT = null;
 	private Map<String,NodeInst> instanceMap = null;
+	private BulkPlacement bulk = null;
+	private Map<Cell,Boolean> inheritingCells = new HashMap<Cell,Boolean>();
 	private NodeInst dummyNodeInst = null;
 	private boolean schImport = false;
 	private Job job;
@@ -211,6 +217,7 @@ public class DEF extends LEFDEF
 	protected Library importALibrary(Library lib, Technology tech, Map<Library,Cell> currentCells)
 	{
 		initKeywordParsing();
+		tokenizeSectionsInParallel(Runtime.getRuntime().availableProcessors(), "COMPONENTS", "PINS", "NETS", "SPECIALNETS");
 		scaleUnits = 1000;
 		allViaGenerators = new HashMap<String,ViaGenerator>();
 		cellViaDefs = new HashMap<String,ViaDef>();
@@ -547,6 +554,20 @@ public class DEF extends LEFDEF
 		throws IOException
 	{
 		if (ignoreToSemicolon("PINS", cell)) return true;
+		bulk = new BulkPlacement(cell);
+		try
+		{
+			return readPinList(cell);
+		} finally
+		{
+			bulk.flush();
+			bulk = null;
+		}
+	}
+
+	private boolean readPinList(Cell cell)
+		throws IOException
+	{
 		for(;;)
 		{
 			if (job != null && job.checkAbort())
@@ -877,6 +898,7 @@ public class DEF extends LEFDEF
 				sY = hY - lY;
 			}
 			// default case where only one export (PIN) is created
+			if (bulk.builder.hasExport(pinName)) bulk.flush();
 			Export ex = cell.findExport(pinName);
 			if (ex != null)
 			{
@@ -912,10 +934,32 @@ public class DEF extends LEFDEF
 			}
 
 			// create the pin and export
-			NodeInst ni = makeNode(curPin.np, loc, sX, sY, cell);
-			if (ni == null) return true;
-			PortInst pi = ni.findPortInstFromProto(curPin.np.getPort(0));
-			Export e = Export.newInstance(cell, pi, pinName, ep, portCharacteristic);
+			if (cell.iconView() != null)
+			{
+				// the export must also be made on the icon
+				NodeInst ni = makeNode(curPin.np, loc, sX, sY, cell);
+				if (ni == null) return true;
+				PortInst pi = ni.findPortInstFromProto(curPin.np.getPort(0));
+				Export e = Export.newInstance(cell, pi, pinName, ep, portCharacteristic);
+				if (e == null)
+				{
+					reportError("Unable to create pin name", cell);
+					return true;
+				}
+				return false;
+			}
+			PrimitiveNode pinNp = (PrimitiveNode)curPin.np;
+			ERectangle full = pinNp.getFullRectangle();
+			EPoint size = EPoint.fromGrid(DBMath.lambdaToSizeGrid(sX - full.getLambdaWidth()),
+				DBMath.lambdaToSizeGrid(sY - full.getLambdaHeight()));
+			ImmutableNodeInst n = bulk.builder.newNode(pinNp, null, ep.getNodeTextDescriptor(), loc, size, Orientation.IDENT,
+				0, 0, ep.getInstanceTextDescriptor());
+			if (n == null)
+			{
+				reportError("Unable to create node of type "+pinNp, cell);
+				return true;
+			}
+			ImmutableExport e = bulk.builder.newExport(pinName, getPinTextDescriptor(), n.nodeId, pinNp.getPort(0), portCharacteristic);
 			if (e == null)
 			{
 				reportError("Unable to create pin name", cell);
@@ -926,12 +970,37 @@ public class DEF extends LEFDEF
 		return false;
 	}
 
+	/**
+	 * Method to return the text descriptor of a new pin export.
+	 * This is the smart placement of Export.newInstance for a port without connections.
+	 */
+	private TextDescriptor getPinTextDescriptor()
+	{
+		TextDescriptor td = ep.getExportTextDescriptor();
+		if (ep.getSmartVerticalPlacementExport() == 0 && ep.getSmartHorizontalPlacementExport() == 0) return td;
+		return td.withPos(td.getPos().align(0, 0));
+	}
+
 	/*************** COMPONENTS ***************/
 
 	private boolean readComponents(Cell cell, Library lib)
 		throws IOException
 	{
 		if (ignoreToSemicolon("COMPONENTS", cell)) return true;
+		bulk = new BulkPlacement(cell);
+		try
+		{
+			return readComponentList(cell, lib);
+		} finally
+		{
+			bulk.flush();
+			bulk = null;
+		}
+	}
+
+	private boolean readComponentList(Cell cell, Library lib)
+		throws IOException
+	{
 		for(;;)
 		{
 			if (job != null && job.checkAbort())
@@ -1059,14 +1128,13 @@ public class DEF extends LEFDEF
 		EPoint loc = EPoint.fromLambda(nx, ny);
 		if (acceptNode(loc, sX, sY))
 		{
-			NodeInst ni = makeNodeMoreInfo(np, loc, sX, sY, cell, or, compName);
-			if (ni == null) return true;
-			instanceMap.put(compNameLC, ni);
+			String warning = null;
 			if (!hasLocation)
 			{
-				reportWarning("Instance " + compName + " of model " + modelName +
-					" has no location in cell " + cell.describe(false) + ". Placing it at (0,0)", ni, cell);
+				warning = "Instance " + compName + " of model " + modelName +
+					" has no location in cell " + cell.describe(false) + ". Placing it at (0,0)";
 			}
+			if (placeComponent(np, loc, cell, or, compName, compNameLC, warning)) return true;
 		} else
 		{
 			if (dummyNodeInst == null) dummyNodeInst = NodeInst.makeDummyInstance(np, ep);
@@ -2435,7 +2503,7 @@ public class DEF extends LEFDEF
 		throws IOException
 	{
 		String key = getAKeyword();
-		if (key == null) reportError("EOF parsing " + where  + " at line " + lineReader.getLineNumber(), cell);
+		if (key == null) reportError("EOF parsing " + where  + " at line " + getLineNumber(), cell);
 		return key;
 	}
 
@@ -2554,12 +2622,34 @@ public class DEF extends LEFDEF
 		return true;
 	}
 
-	private NodeInst makeNodeMoreInfo(NodeProto np, EPoint loc, double sX, double sY, Cell cell, Orientation or, String name)
+	/**
+	 * Method to place a component so that the lower-left corner of its cell is at the specified location.
+	 * An existing node with the same name, or with the same prototype at the same location, is reused.
+	 * New components are accumulated in the current BulkPlacement and added to the cell at the end of the section.
+	 * @param np the Cell of the component.
+	 * @param loc the location of the component.
+	 * @param cell the Cell in which to place the component.
+	 * @param or the orientation of the component.
+	 * @param name the name of the component.
+	 * @param nameLC the name of the component in lower case.
+	 * @param warning a warning to report on the component (null for none).
+	 * @return true on error.
+	 */
+	private boolean placeComponent(Cell np, EPoint loc, Cell cell, Orientation or, String name, String nameLC, String warning)
 	{
 		// check if node exists first
 		NodeInst ni = cell.findNode(name);
 		if (ni != null)
-			return ni;
+		{
+			bulk.addExisting(ni, nameLC, warning);
+			return false;
+		}
+		ImmutableNodeInst n = bulk.builder.findNode(name);
+		if (n != null)
+		{
+			bulk.addPending(n, nameLC, warning);
+			return false;
+		}
 
 		Rectangle2D searchBounds = new Rectangle2D.Double(loc.getX(), loc.getY(), 0, 0);
 		for(Iterator<Geometric> it = cell.searchIterator(searchBounds); it.hasNext(); )
@@ -2571,44 +2661,149 @@ public class DEF extends LEFDEF
 				if (ni.getProto() == np)
 				{
 					ERectangle bound = ni.getBounds();
-					double expectedX = bound.getMinX();
-					double expectedY = bound.getMinY();
-					if (np instanceof Cell)
-					{
-						expectedX -= ((Cell)np).getBounds().getMinX();
-						expectedY -= ((Cell)np).getBounds().getMinY();
-					}
+					double expectedX = bound.getMinX() - np.getBounds().getMinX();
+					double expectedY = bound.getMinY() - np.getBounds().getMinY();
 					if (expectedX == loc.getX() && expectedY == loc.getY())
 					{
 						if (Job.getDebug())
 							System.out.println("Replacing previous name of "+np.describe(false) + " instance '" 
 						+ ni.getName() + "' by '" + name + "'");
 						ni.setName(name);
-						return ni;
+						bulk.addExisting(ni, nameLC, warning);
+						return false;
 					}
 				}
 			}
 		}
+		n = bulk.findPlacement(np, loc);
+		if (n != null)
+		{
+			ImmutableNodeInst renamed = bulk.builder.renameNode(n, name);
+			if (renamed != null)
+			{
+				if (Job.getDebug())
+					System.out.println("Replacing previous name of "+np.describe(false) + " instance '" 
+				+ n.name + "' by '" + name + "'");
+				bulk.setPlacement(np, loc, renamed);
+				bulk.addPending(renamed, nameLC, warning);
+				return false;
+			}
+		}
 
-		// creating one
-		ni = NodeInst.makeInstance(np, ep, loc, sX, sY, cell, or, name);
-		if (ni == null)
+		// creating one, adjusting the anchor to force lower-left cell corner to be at the specified location
+		ERectangle subBounds = np.getBounds();
+		long[] gridBounds = new long[] {subBounds.getGridMinX(), subBounds.getGridMinY(), subBounds.getGridMaxX(), subBounds.getGridMaxY()};
+		or.rectangleBounds(gridBounds);
+		EPoint anchor = EPoint.fromGrid(loc.getGridX() - gridBounds[0] + subBounds.getGridMinX(),
+			loc.getGridY() - gridBounds[1] + subBounds.getGridMinY());
+		n = bulk.builder.newNode(np, name, ep.getNodeTextDescriptor(), anchor, EPoint.ORIGIN, or, 0, 0, ep.getInstanceTextDescriptor());
+		if (n == null)
 		{
 			reportError("Unable to create node named '" + name + "'", cell);
-			return null;
+			return true;
 		}
+		bulk.setPlacement(np, loc, n);
+		bulk.addPending(n, nameLC, warning);
+		if (hasInheritableAttributes(np)) bulk.inheritNodes.add(Integer.valueOf(n.nodeId));
+		return false;
+	}
+
+	/**
+	 * Method to tell whether instances of a Cell inherit attributes from it.
+	 * Such instances must get their attributes after they are added to the parent cell.
+	 */
+	private boolean hasInheritableAttributes(Cell np)
+	{
+		Boolean inherit = inheritingCells.get(np);
+		if (inherit != null) return inherit.booleanValue();
+		boolean found = np.isIcon() && np.getParameters().hasNext();
+		for(Iterator<Variable> it = np.getVariables(); !found && it.hasNext(); )
+			found = it.next().getTextDescriptor().isInherit();
+		for(Iterator<Export> eIt = np.getExports(); !found && eIt.hasNext(); )
+		{
+			for(Iterator<Variable> it = eIt.next().getVariables(); !found && it.hasNext(); )
+				found = it.next().getTextDescriptor().isInherit();
+		}
+		inheritingCells.put(np, Boolean.valueOf(found));
+		return found;
+	}
 
-		// adjust position to force lower-left node corner to be at the specified location
-		if (np instanceof Cell)
+	/**
+	 * Class to accumulate the components and pins of a DEF section.
+	 * They are added to the cell at once when the section ends,
+	 * rather than updating the cell with every new node and export.
+	 */
+	private class BulkPlacement
+	{
+		private Cell cell;
+		private BulkCellBuilder builder;
+		private Map<String,Integer> instances = new HashMap<String,Integer>();
+		private Map<NodeProto,Map<EPoint,ImmutableNodeInst>> placements = new HashMap<NodeProto,Map<EPoint,ImmutableNodeInst>>();
+		private List<Integer> inheritNodes = new ArrayList<Integer>();
+		private List<Integer> warningNodes = new ArrayList<Integer>();
+		private List<String> warningMessages = new ArrayList<String>();
+
+		BulkPlacement(Cell cell)
+		{
+			this.cell = cell;
+			builder = new BulkCellBuilder(cell);
+		}
+
+		void addExisting(NodeInst ni, String nameLC, String warning)
 		{
-			Cell subCell = (Cell)np;
-			ERectangle bound = ni.getBounds();
-			double diffX = loc.getX() - bound.getMinX() + subCell.getBounds().getMinX();
-			double diffY = loc.getY() - bound.getMinY() + subCell.getBounds().getMinY();
-			if (diffX != 0 || diffY != 0)
-				ni.move(diffX, diffY);
+			instanceMap.put(nameLC, ni);
+			if (warning != null) reportWarning(warning, ni, cell);
+		}
+
+		void addPending(ImmutableNodeInst n, String nameLC, String warning)
+		{
+			instances.put(nameLC, Integer.valueOf(n.nodeId));
+			if (warning != null)
+			{
+				// print the warning now, log it on the node once the node exists
+				String msg = "Warning on line " + getLineNumber() + ": " + warning;
+				System.out.println(msg);
+				warningNodes.add(Integer.valueOf(n.nodeId));
+				warningMessages.add(msg);
+			}
+		}
+
+		ImmutableNodeInst findPlacement(NodeProto np, EPoint loc)
+		{
+			Map<EPoint,ImmutableNodeInst> protoPlacements = placements.get(np);
+			return protoPlacements != null ? protoPlacements.get(loc) : null;
+		}
+
+		void setPlacement(NodeProto np, EPoint loc, ImmutableNodeInst n)
+		{
+			Map<EPoint,ImmutableNodeInst> protoPlacements = placements.get(np);
+			if (protoPlacements == null)
+			{
+				protoPlacements = new HashMap<EPoint,ImmutableNodeInst>();
+				placements.put(np, protoPlacements);
+			}
+			protoPlacements.put(loc, n);
+		}
+
+		/**
+		 * Method to add all accumulated nodes and exports to the cell.
+		 */
+		void flush()
+		{
+			if (builder.getNumPending() == 0) return;
+			builder.commit();
+			for(Map.Entry<String,Integer> e : instances.entrySet())
+				instanceMap.put(e.getKey(), cell.getNodeById(e.getValue().intValue()));
+			for(Integer nodeId : inheritNodes)
+				CircuitChangeJobs.inheritAttributes(cell.getNodeById(nodeId.intValue()), ep);
+			for(int i=0; i<warningNodes.size(); i++)
+				errorLogger.logWarning(warningMessages.get(i), cell.getNodeById(warningNodes.get(i).intValue()), cell, null, 0);
+			instances.clear();
+			placements.clear();
+			inheritNodes.clear();
+			warningNodes.clear();
+			warningMessages.clear();
 		}
-		return ni;
 	}
 
 	private NodeInst makeNode(NodeProto np, EPoint loc, double sX, double sY, Cell cell)
@@ -3082,7 +3277,7 @@ public class DEF extends LEFDEF
 	private void ensureArcFunctions(ArcProto.Function exp, ArcProto.Function got)
 	{
 		if (exp == got) return;
-		System.out.println("WARNING: Arc function " + got + " found at line " + lineReader.getLineNumber() +
+		System.out.println("WARNING: Arc function " + got + " found at line " + getLineNumber() +
 			" but expected function " + exp);
 	}
 }
@@ -39,6 +39,8 @@ import com.sun.electric.technology.Technology.NodeLayer;
 import com.sun.electric.technology.technologies.Generic;
 import com.sun.electric.tool.io.IOTool;
 
+import java.io.IOException;
+import java.net.URL;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -64,6 +66,9 @@ public class LEFDEF extends Input<Object>
 	protected Technology curTech;
 	private boolean viaDigitsCombine;
 
+	/** the tokenizer of the file (null if read by lines) */	protected LEFDEFLexer lexer;
+	/** bytes tokenized since the progress was updated */		private int lexerProgress;
+
 	public static Collection<GetLayerInformation> getKnownLayers () {return knownLayers.values();}
 	public static Map<String,Double> getLayerWidths() {return layerWidthsFromLEF;}
 	
@@ -603,24 +608,99 @@ public class LEFDEF extends Input<Object>
 		}
 	}
 	
+	/**
+	 * Method to open a LEF or DEF file for tokenizing from a byte buffer.
+	 * Falls back to line-by-line reading if the file cannot be held in one buffer.
+	 * @param fileURL the file to read.
+	 * @return true on error.
+	 */
+	@Override
+	protected boolean openTextInput(URL fileURL)
+	{
+		try
+		{
+			lexer = LEFDEFLexer.open(fileURL);
+		} catch (IOException e)
+		{
+			lexer = null;
+		}
+		if (lexer == null) return super.openTextInput(fileURL);
+		filePath = fileURL.getFile();
+		fileLength = lexer.getLength();
+		byteCount = 0;
+		lexerProgress = 0;
+		return false;
+	}
+
+	/**
+	 * Method to tokenize large sections of the file in parallel.
+	 * Does nothing if the file is read by lines.
+	 * @param numThreads the number of threads for tokenizing.
+	 * @param sections the names of the sections that may be tokenized in parallel.
+	 */
+	protected void tokenizeSectionsInParallel(int numThreads, String... sections)
+	{
+		if (lexer == null || numThreads <= 1) return;
+		lexer.locateSections(numThreads, sections);
+		// TODO: only the tokenizing is parallel; the components and nets of a section are still parsed and
+		// created in order by the reader, which could build them from separate chunks in parallel
+	}
+
+	@Override
+	public void closeInput()
+	{
+		lexer = null;
+		super.closeInput();
+	}
+
+	/**
+	 * Method to return the next keyword of the file.
+	 * @return the next keyword (null on EOF).
+	 * @throws IOException
+	 */
+	@Override
+	protected String getAKeyword()
+		throws IOException
+	{
+		if (lexer == null) return super.getAKeyword();
+		String key = lexer.next();
+		int pos = lexer.getPosition();
+		if (pos - lexerProgress >= Input.READ_BUFFER_SIZE || key == null)
+		{
+			updateProgressDialog(pos - lexerProgress);
+			lexerProgress = pos;
+		}
+		return key;
+	}
+
+	/**
+	 * Method to return the line number of the last keyword.
+	 * @return the line number of the last keyword.
+	 */
+	protected int getLineNumber()
+	{
+		if (lexer != null) return lexer.getLineNumber();
+		return lineReader.getLineNumber();
+	}
+
 	// Extra functions
 	protected void reportError(String command, Cell cell)
 	{
-		String msg = "Error on line " + lineReader.getLineNumber() + ": " + command;
+		String msg = "Error on line " + getLineNumber() + ": " + command;
 		System.out.println(msg);
         errorLogger.logError(msg, cell, 0);
 	}
 
 	protected void reportWarning(String command, Cell cell)
 	{
-		String msg = "Warning on line " + lineReader.getLineNumber() + ": " + command;
+		String msg = "Warning on line " + getLineNumber() + ": " + command;
 		System.out.println(msg);
         errorLogger.logWarning(msg, cell, 0);
 	}
 
 	protected void reportWarning(String command, Geometric geom, Cell cell)
 	{
-		String msg = "Warning on line " + lineReader.getLineNumber() + ": " + command;
+		String msg = "Warning on line " + getLineNumber() + ": " + command;
 		System.out.println(msg);
         errorLogger.logWarning(msg, geom, cell, null, 0);
 	}
@@ -0,0 +1,493 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: LEFDEFLexer.java
+ * Input/output tool: LEF and DEF tokenizer
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.input;
+
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This class splits LEF and DEF files into keywords.
+ * The file is mapped (or read) into a byte buffer and scanned directly, without a Reader.
+ * Keywords of the LEF and DEF languages are returned as shared Strings, so only names and numbers allocate.
+ * Tokens are separated by spaces, tabs and line ends, and "#" starts a comment that runs to the end of the line,
+ * just as in Input.getAKeyword() with the LEF and DEF comment handling.
+ * Because no token spans a line, any range of whole lines may be tokenized separately:
+ * large sections of a DEF file are split into chunks that are tokenized in parallel
+ * while the reader consumes the tokens in order.
+ */
+class LEFDEFLexer
+{
+	/** approximate size of chunks tokenized in parallel */		private static final int CHUNKSIZE = 1 << 20;
+	/** chunks tokenized ahead of the reader, per thread */		private static final int CHUNKSPERTHREAD = 2;
+
+	/** keywords that are returned as shared Strings */
+	private static final String [] KEYWORDS = {"(", ")", "*", "+", "-", ";",
+		"ABUT", "ANALOG", "ANTENNADIFFAREA", "ANTENNAGATEAREA", "ANTENNAMAXAREACAR", "ANTENNAMAXCUTCAR", "ANTENNAMODEL",
+		"ANTENNAPARTIALCUTAREA", "ANTENNASIZE", "ARRAY", "BLOCKAGES", "BUSBITCHARS", "BY", "CAPACITANCE", "CLASS", "CLOCK",
+		"COMPONENT", "COMPONENTMASKSHIFT", "COMPONENTS", "COVER", "CUTSIZE", "CUTSPACING", "DEFAULT", "DEFAULTCAP", "DESIGN",
+		"DIEAREA", "DIRECTION", "DISTANCE", "DIVIDERCHAR", "DO", "E", "ENCLOSURE", "END", "FE", "FEEDTHRU", "FIXED", "FN",
+		"FOREIGN", "FS", "FW", "GCELLGRID", "GROUND", "GROUPS", "HALO", "HISTORY", "INOUT", "INPUT", "ITERATE", "LAYER",
+		"LAYERS", "LEQ", "MACRO", "MANUFACTURINGGRID", "MASK", "MICRONS", "MINFEATURE", "N", "NAMESCASESENSITIVE", "NET",
+		"NETS", "NEW", "NONDEFAULTRULE", "NONDEFAULTRULES", "OBS", "ORIGIN", "ORIGINAL", "OUTPUT", "PATH", "PIN", "PINS",
+		"PITCH", "PLACED", "PLACEMENT", "POLYGON", "PORT", "POWER", "PROPERTY", "PROPERTYDEFINITIONS", "RECT", "REGIONS",
+		"RESISTANCE", "ROUTED", "ROW", "ROWCOL", "S", "SHAPE", "SHIELD", "SHIELDNET", "SIGNAL", "SITE", "SIZE", "SOFT",
+		"SOURCE", "SPACING", "SPECIAL", "SPECIALNETS", "STEP", "STRIPE", "STYLE", "SYMMETRY", "TAPER", "TAPERRULE",
+		"TECHNOLOGY", "TIEOFF", "TRACKS", "TYPE", "UNITS", "UNPLACED", "USE", "VERSION", "VIA", "VIARULE", "VIAS",
+		"VIRTUAL", "W", "WEIGHT", "WIDTH", "X", "Y",
+		"CORE", "COREWIRE", "FOLLOWPIN", "RING", "BLOCKRING", "BLOCKWIRE", "FILLWIRE", "DIST", "NETLIST", "TEST", "TIMING",
+		"USER", "FENCE", "GUIDE", "SUBNET", "VPIN", "MUSTJOIN", "SYNTHESIZED", "SCANCHAINS", "STYLES", "FILLS", "SLOTS",
+		"ROUTING", "CUT", "MASTERSLICE", "IMPLANT", "OVERLAP", "PRIMARY", "BEGINEXT", "ENDEXT",
+		"routing", "cut", "masterslice", "wire", "sch", "0", "1", "2"};
+	/** open-addressed table of KEYWORDS by hash */				private static final String [] keywordTable;
+	/** mask for indices of keywordTable */						private static final int keywordMask;
+	/** character set of names with non-ASCII characters */		private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static
+	{
+		int size = 1;
+		while (size < KEYWORDS.length * 4) size <<= 1;
+		keywordTable = new String[size];
+		keywordMask = size - 1;
+		for(String keyword : KEYWORDS)
+		{
+			int index = spread(keyword.hashCode()) & keywordMask;
+			while (keywordTable[index] != null && !keywordTable[index].equals(keyword))
+				index = (index + 1) & keywordMask;
+			keywordTable[index] = keyword;
+		}
+	}
+
+	/** the contents of the file */								private final ByteBuffer data;
+	/** the number of threads for parallel tokenizing */		private int numThreads = 1;
+	/** the scanner of text outside of parallel ranges */		private final Scanner scanner;
+	/** ranges of lines to tokenize in parallel, in order */	private final List<int[]> parallelRanges = new ArrayList<int[]>();
+	/** index of the next range in parallelRanges */			private int nextRange;
+	/** end of the range being tokenized in parallel */		private int rangeEnd;
+	/** start of the next chunk to submit */					private int nextChunkStart;
+	/** chunks submitted for tokenizing, in order */			private final ArrayDeque<Future<TokenChunk>> pendingChunks = new ArrayDeque<Future<TokenChunk>>();
+	/** the chunk whose tokens are being returned */			private TokenChunk chunk;
+	/** index of the next token of the chunk */				private int chunkIndex;
+	/** line number at the start of the chunk */				private int chunkFirstLine;
+	/** line number of the last token */						private int lineNumber;
+
+	/**
+	 * Constructor to tokenize a buffer.
+	 * @param data the contents of the file.
+	 */
+	LEFDEFLexer(ByteBuffer data)
+	{
+		this.data = data;
+		scanner = new Scanner(data, 0, data.limit());
+	}
+
+	/**
+	 * Method to map or read a LEF or DEF file for tokenizing.
+	 * Plain files are mapped; compressed and remote files are read into memory.
+	 * @param fileURL the file to read.
+	 * @return the LEFDEFLexer for the file, or null if the file is too large to be held in one buffer.
+	 * @throws IOException if the file cannot be read.
+	 */
+	static LEFDEFLexer open(URL fileURL)
+		throws IOException
+	{
+		boolean compressed = fileURL.getPath().endsWith(".gz");
+		if (fileURL.getProtocol().equals("file") && !compressed)
+		{
+			File file = new File(fileURL.getPath());
+			if (file.length() > Integer.MAX_VALUE) return null;
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try
+			{
+				FileChannel channel = raf.getChannel();
+				return new LEFDEFLexer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			} finally
+			{
+				raf.close();
+			}
+		}
+
+		InputStream in = fileURL.openStream();
+		try
+		{
+			if (compressed) in = new GZIPInputStream(in);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(Input.READ_BUFFER_SIZE);
+			byte [] buf = new byte[Input.READ_BUFFER_SIZE];
+			for(;;)
+			{
+				int len = in.read(buf);
+				if (len < 0) break;
+				if (bytes.size() + (long)len > Integer.MAX_VALUE) return null;
+				bytes.write(buf, 0, len);
+			}
+			return new LEFDEFLexer(ByteBuffer.wrap(bytes.toByteArray()));
+		} finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Method to return the size of the file.
+	 * @return the number of bytes in the file.
+	 */
+	int getLength() { return data.limit(); }
+
+	/**
+	 * Method to return the approximate position of the reader in the file.
+	 * @return the offset of the last token or chunk that was read.
+	 */
+	int getPosition() { return chunk != null ? chunk.start : scanner.pos; }
+
+	/**
+	 * Method to return the line number of the last keyword.
+	 * @return the line number (1-based) of the last keyword.
+	 */
+	int getLineNumber() { return lineNumber; }
+
+	/**
+	 * Method to find sections of the file that are tokenized in parallel.
+	 * A section starts with a line that begins with one of the given names
+	 * and ends with a line that begins with "END" and the same name.
+	 * Only the lines between these two are tokenized in parallel.
+	 * Since every range of whole lines can be tokenized on its own, a misplaced section only affects speed.
+	 * Must be called before the first keyword is read.
+	 * @param numThreads the number of threads for tokenizing the sections.
+	 * @param names the names of the sections.
+	 */
+	void locateSections(int numThreads, String... names)
+	{
+		this.numThreads = numThreads;
+		if (numThreads <= 1) return;
+		int length = data.limit();
+		String open = null;
+		int sectionStart = 0;
+		int pos = 0;
+		while (pos < length)
+		{
+			int p = skipBlanks(pos, length);
+			int next = nextLine(p, length);
+			if (open == null)
+			{
+				for(String name : names)
+				{
+					if (!matchesWord(p, length, name)) continue;
+					open = name;
+					sectionStart = next;
+					break;
+				}
+			} else if (matchesWord(p, length, "END") && matchesWord(skipBlanks(p + 3, length), length, open))
+			{
+				if (pos - sectionStart > CHUNKSIZE / 16) parallelRanges.add(new int[] {sectionStart, pos});
+				open = null;
+			}
+			pos = next;
+		}
+		if (!parallelRanges.isEmpty()) scanner.end = parallelRanges.get(0)[0];
+	}
+
+	/**
+	 * Method to return the next keyword.
+	 * @return the next keyword, or null at the end of the file.
+	 * @throws IOException if parallel tokenizing fails.
+	 */
+	String next()
+		throws IOException
+	{
+		for(;;)
+		{
+			if (chunk != null)
+			{
+				if (chunkIndex < chunk.numTokens)
+				{
+					lineNumber = chunkFirstLine + chunk.lines[chunkIndex] + 1;
+					return chunk.tokens[chunkIndex++];
+				}
+				chunkFirstLine += chunk.numLines;
+				chunk = nextChunk();
+				if (chunk == null)
+				{
+					// resume scanning after the range
+					scanner.pos = rangeEnd;
+					scanner.line = chunkFirstLine;
+					scanner.end = nextRange < parallelRanges.size() ? parallelRanges.get(nextRange)[0] : data.limit();
+				}
+				continue;
+			}
+
+			String key = scanner.next();
+			if (key != null)
+			{
+				lineNumber = scanner.line + 1;
+				return key;
+			}
+			if (nextRange >= parallelRanges.size()) return null;
+
+			// start tokenizing the next range in parallel
+			int[] range = parallelRanges.get(nextRange++);
+			rangeEnd = range[1];
+			nextChunkStart = range[0];
+			chunkFirstLine = scanner.line;
+			chunk = nextChunk();
+			if (chunk == null) scanner.end = nextRange < parallelRanges.size() ? parallelRanges.get(nextRange)[0] : data.limit();
+		}
+	}
+
+	/**
+	 * Method to return the next tokenized chunk of the current range, keeping the pool busy with the following ones.
+	 */
+	private TokenChunk nextChunk()
+		throws IOException
+	{
+		ExecutorService pool = ThreadPoolSharedForkJoin.getInstance().getExecutorService();
+		while (pendingChunks.size() < numThreads * CHUNKSPERTHREAD && nextChunkStart < rangeEnd)
+		{
+			int end = chunkEnd(nextChunkStart);
+			pendingChunks.add(pool.submit(new TokenChunk(data, nextChunkStart, end)));
+			nextChunkStart = end;
+		}
+		Future<TokenChunk> future = pendingChunks.poll();
+		if (future == null) return null;
+		chunkIndex = 0;
+		try
+		{
+			return future.get();
+		} catch (InterruptedException e)
+		{
+			throw new IOException("Tokenizing interrupted");
+		} catch (ExecutionException e)
+		{
+			throw new IOException("Tokenizing failed: " + e.getCause());
+		}
+	}
+
+	/**
+	 * Method to find the end of a chunk: the first line end after CHUNKSIZE bytes.
+	 */
+	private int chunkEnd(int start)
+	{
+		if (rangeEnd - start <= CHUNKSIZE) return rangeEnd;
+		for(int pos = start + CHUNKSIZE; pos < rangeEnd; pos++)
+		{
+			if (data.get(pos) == '\n') return pos + 1;
+		}
+		return rangeEnd;
+	}
+
+	private int skipBlanks(int pos, int end)
+	{
+		while (pos < end)
+		{
+			byte b = data.get(pos);
+			if (b != ' ' && b != '\t') break;
+			pos++;
+		}
+		return pos;
+	}
+
+	private int nextLine(int pos, int end)
+	{
+		while (pos < end)
+		{
+			byte b = data.get(pos++);
+			if (b == '\n') break;
+			if (b == '\r')
+			{
+				if (pos < end && data.get(pos) == '\n') pos++;
+				break;
+			}
+		}
+		return pos;
+	}
+
+	private boolean matchesWord(int pos, int end, String word)
+	{
+		int len = word.length();
+		if (pos + len > end) return false;
+		for(int i=0; i<len; i++)
+		{
+			if (data.get(pos + i) != word.charAt(i)) return false;
+		}
+		return pos + len == end || isSeparator(data.get(pos + len));
+	}
+
+	private static boolean isSeparator(byte b)
+	{
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '#';
+	}
+
+	private static int spread(int hash)
+	{
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Class to scan keywords in a range of the file.
+	 */
+	private static class Scanner
+	{
+		private final ByteBuffer data;
+		private int pos;
+		private int end;
+		/** number of line ends passed */	private int line;
+		private char [] chars = new char[64];
+
+		Scanner(ByteBuffer data, int start, int end)
+		{
+			this.data = data;
+			pos = start;
+			this.end = end;
+		}
+
+		/**
+		 * Method to return the next keyword in the range.
+		 * @return the next keyword, or null at the end of the range.
+		 */
+		String next()
+		{
+			// skip white space, line ends and comments
+			for(;;)
+			{
+				if (pos >= end) return null;
+				byte b = data.get(pos);
+				if (b == ' ' || b == '\t')
+				{
+					pos++;
+				} else if (b == '\n')
+				{
+					pos++;
+					line++;
+				} else if (b == '\r')
+				{
+					pos++;
+					if (pos >= end || data.get(pos) != '\n') line++;
+				} else if (b == '#')
+				{
+					while (pos < end && data.get(pos) != '\n' && data.get(pos) != '\r') pos++;
+				} else break;
+			}
+
+			// scan to the end of the keyword
+			int start = pos;
+			int hash = 0;
+			int highBits = 0;
+			while (pos < end)
+			{
+				byte b = data.get(pos);
+				if (isSeparator(b)) break;
+				hash = 31 * hash + (b & 0xFF);
+				highBits |= b;
+				pos++;
+			}
+			int len = pos - start;
+
+			// return keywords of the language as shared strings
+			int index = spread(hash) & keywordMask;
+			for(String keyword = keywordTable[index]; keyword != null; keyword = keywordTable[index])
+			{
+				if (keyword.length() == len && keyword.hashCode() == hash && matches(keyword, start)) return keyword;
+				index = (index + 1) & keywordMask;
+			}
+
+			if ((highBits & 0x80) != 0)
+			{
+				byte [] bytes = new byte[len];
+				for(int i=0; i<len; i++) bytes[i] = data.get(start + i);
+				return new String(bytes, UTF8);
+			}
+			if (len > chars.length) chars = new char[Math.max(len, chars.length * 2)];
+			for(int i=0; i<len; i++) chars[i] = (char)data.get(start + i);
+			return new String(chars, 0, len);
+		}
+
+		private boolean matches(String keyword, int start)
+		{
+			for(int i=0; i<keyword.length(); i++)
+			{
+				if (data.get(start + i) != keyword.charAt(i)) return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Class to tokenize a chunk of whole lines in a separate thread.
+	 */
+	private static class TokenChunk implements Callable<TokenChunk>
+	{
+		private final ByteBuffer data;
+		private final int start, end;
+		/** the keywords of the chunk */						private String [] tokens;
+		/** line ends before each keyword in the chunk */		private int [] lines;
+		private int numTokens;
+		/** number of line ends in the chunk */				private int numLines;
+
+		TokenChunk(ByteBuffer data, int start, int end)
+		{
+			this.data = data;
+			this.start = start;
+			this.end = end;
+		}
+
+		public TokenChunk call()
+		{
+			Scanner s = new Scanner(data, start, end);
+			tokens = new String[Math.max(16, (end - start) / 6)];
+			lines = new int[tokens.length];
+			for(;;)
+			{
+				String key = s.next();
+				if (key == null) break;
+				if (numTokens == tokens.length)
+				{
+					String [] newTokens = new String[numTokens * 2];
+					System.arraycopy(tokens, 0, newTokens, 0, numTokens);
+					tokens = newTokens;
+					int [] newLines = new int[numTokens * 2];
+					System.arraycopy(lines, 0, newLines, 0, numTokens);
+					lines = newLines;
+				}
+				tokens[numTokens] = key;
+				lines[numTokens++] = s.line;
+			}
+			numLines = s.line;
+			return this;
+		}
+	}
+}
@@ -23,6 +23,10 @@
  */
 package com.sun.electric.tool.io.output;
 
+import com.sun.electric.database.ImmutableArcInst;
+import com.sun.electric.database.ImmutableElectricObject;
+import com.sun.electric.database.ImmutableNodeInst;
+import com.sun.electric.database.geometry.EGraphics;
 import com.sun.electric.database.geometry.GeometryHandler;
 import com.sun.electric.database.geometry.Poly;
 import com.sun.electric.database.geometry.PolyBase;
@@ -37,15 +41,19 @@ import com.sun.electric.database.prototype.NodeProto;
 import com.sun.electric.database.topology.ArcInst;
 import com.sun.electric.database.topology.Geometric;
 import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.variable.TextDescriptor;
 import com.sun.electric.database.variable.VarContext;
 import com.sun.electric.technology.ArcProto;
+import com.sun.electric.technology.BulkShapeBuilder;
 import com.sun.electric.technology.Layer;
 import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.technology.PrimitivePort;
 import com.sun.electric.technology.Technology;
 import com.sun.electric.technology.technologies.Generic;
 import com.sun.electric.util.math.FixpTransform;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -139,6 +147,8 @@ public abstract class Geometry extends Output
         /** Nodables (instances) in this Cell */			protected List<Nodable> nodables;
         /** Cell */											protected Cell cell;
 		/** true if cell name used in other libraries */	protected boolean nonUniqueName;
+		/** primitive nodes added later, by node id */		private final BitSet pendingNodes = new BitSet();
+		/** arcs added later, by arc id */					private final BitSet pendingArcs = new BitSet();
 		private Geometry geometry;
 
         /** Constructor */
@@ -227,6 +237,53 @@ public abstract class Geometry extends Output
 	        }
 	    }
 
+		/**
+		 * Method to add the shapes of a primitive node when addPendingShapes is called.
+		 * The shapes are in the coordinates of the cell.
+		 * @param ni the primitive node.
+		 */
+		public void addNodeInstLater(NodeInst ni)
+		{
+			pendingNodes.set(ni.getD().nodeId);
+		}
+
+		/**
+		 * Method to add the shapes of an arc when addPendingShapes is called.
+		 * @param ai the arc.
+		 */
+		public void addArcInstLater(ArcInst ai)
+		{
+			pendingArcs.set(ai.getD().arcId);
+		}
+
+		/**
+		 * Method to add the shapes of all pending nodes and arcs.
+		 * The shapes are generated in one pass over the cell, and Manhattan boxes are
+		 * collected per layer before they are made into polygons, so the order of
+		 * shapes within a layer differs from the order of addNodeInst and addArcInst.
+		 */
+		public void addPendingShapes()
+		{
+			if (pendingNodes.isEmpty() && pendingArcs.isEmpty()) return;
+			CellShapeBuilder builder = new CellShapeBuilder(this);
+			builder.setup(cell.backup(), null, false, true, false, null);
+			builder.genShapesOfCell();
+			for (BulkShapeBuilder.LayerBoxes boxes : builder.getBoxSet().getLayerBoxes())
+			{
+				long[] coords = boxes.getCoords();
+				for (int i = 0; i < boxes.getNumBoxes(); i++)
+				{
+					long lX = coords[i*4], lY = coords[i*4+1], hX = coords[i*4+2], hY = coords[i*4+3];
+					Poly poly = new Poly(Poly.fromFixp(lX, lY), Poly.fromFixp(hX, lY), Poly.fromFixp(hX, hY), Poly.fromFixp(lX, hY));
+					poly.setStyle(Poly.Type.FILLED);
+					poly.setLayer(boxes.getLayer());
+					addPoly(poly, boxes.getOrigin(i));
+				}
+			}
+			pendingNodes.clear();
+			pendingArcs.clear();
+		}
+
 		public void addNodeInst(NodeInst ni, FixpTransform trans)
 		{
 			PrimitiveNode prim = (PrimitiveNode)ni.getProto();
@@ -249,24 +306,40 @@ public abstract class Geometry extends Output
         protected void addPolys(Poly[] polys, Geometric geom)
         {
             for (int i=0; i<polys.length; i++)
+                addPoly(polys[i], geom);
+        }
+
+        private void addPoly(Poly poly, Geometric geom)
+        {
+            List<Object> list = polyMap.get(poly.getLayer());
+            if (list == null)
+            {
+                list = new ArrayList<Object>();
+               	polyMap.put(poly.getLayer(), list);
+            }
+            if (geometry != null && geometry.includeGeometric())
+            {
+            	PolyWithGeom pg = new PolyWithGeom(poly, geom);
+                list.add(pg);
+            } else
             {
-                List<Object> list = polyMap.get(polys[i].getLayer());
-                if (list == null)
-                {
-                    list = new ArrayList<Object>();
-                   	polyMap.put(polys[i].getLayer(), list);
-                }
-                if (geometry != null && geometry.includeGeometric())
-                {
-                	PolyWithGeom pg = new PolyWithGeom(polys[i], geom);
-                    list.add(pg);
-                } else
-                {
-                    list.add(polys[i]);
-                }
+                list.add(poly);
             }
         }
 
+        /** add a poly of a node or arc to cell geometry */
+        private void addPoly(Poly poly, ImmutableElectricObject origin)
+        {
+            Geometric geom = null;
+            if (geometry != null && geometry.includeGeometric())
+            {
+            	if (origin instanceof ImmutableNodeInst)
+            		geom = cell.getNodeById(((ImmutableNodeInst)origin).nodeId); else
+            			geom = cell.getArcById(((ImmutableArcInst)origin).arcId);
+            }
+            addPoly(poly, geom);
+        }
+
         public void mergeCellGeom()
         {
     		GeometryHandler gMerge = GeometryHandler.createGeometryHandler(GHMode.ALGO_SWEEP, 1000);
@@ -294,6 +367,62 @@ public abstract class Geometry extends Output
         }
     }
 
+	/**
+	 * Class which generates the shapes of the pending nodes and arcs of a CellGeom.
+	 */
+	private static class CellShapeBuilder extends BulkShapeBuilder
+	{
+		private final CellGeom cellGeom;
+
+		CellShapeBuilder(CellGeom cellGeom)
+		{
+			this.cellGeom = cellGeom;
+		}
+
+		@Override
+		protected boolean acceptNode(ImmutableNodeInst n, PrimitiveNode pn)
+		{
+			return cellGeom.pendingNodes.get(n.nodeId);
+		}
+
+		@Override
+		protected boolean acceptArc(ImmutableArcInst a, ArcProto ap)
+		{
+			return cellGeom.pendingArcs.get(a.arcId);
+		}
+
+		@Override
+		protected void addPoly(int numPoints, Poly.Type style, Layer layer, EGraphics graphicsOverride, PrimitivePort pp)
+		{
+			Poly poly = new Poly(getPoints(numPoints));
+			poly.setStyle(style);
+			poly.setLayer(layer);
+			poly.setGraphicsOverride(graphicsOverride);
+			poly.setPort(pp);
+			cellGeom.addPoly(poly, getCurObj());
+		}
+
+		@Override
+		public void addTextPoly(int numPoints, Poly.Type style, Layer layer, PrimitivePort pp, String message, TextDescriptor descriptor)
+		{
+			Poly poly = new Poly(getPoints(numPoints));
+			poly.setStyle(style);
+			poly.setLayer(layer);
+			poly.setPort(pp);
+			poly.setString(message);
+			poly.setTextDescriptor(descriptor);
+			cellGeom.addPoly(poly, getCurObj());
+		}
+
+		private Poly.Point[] getPoints(int numPoints)
+		{
+			Poly.Point[] points = new Poly.Point[numPoints];
+			for (int i = 0; i < numPoints; i++)
+				points[i] = Poly.fromFixp(coords[i * 2], coords[i * 2 + 1]);
+			return points;
+		}
+	}
+
     //------------------HierarchyEnumerator.Visitor Implementation----------------------
 
     public class Visitor extends HierarchyEnumerator.Visitor
@@ -332,6 +461,7 @@ public abstract class Geometry extends Output
         		ArcInst ai = it.next();
 				addArcInst(ai);
             }
+            cellGeom.addPendingShapes();
 
             boolean merge = outGeom.mergeGeom(maxHierDepth - curHierDepth);
 			if (merge)
@@ -361,14 +491,39 @@ public abstract class Geometry extends Output
             return true;
         }
 
+		/**
+		 * Method to tell if the geometry of the current cell is merged before it is written.
+		 * Merged geometry doesn't depend on the order of shapes, so their generation may be deferred.
+		 */
+		private boolean isMerged()
+		{
+			return outGeom.mergeGeom(maxHierDepth - curHierDepth);
+		}
+
+		/**
+		 * Method to add a primitive node to the current cell.
+		 * If the cell is merged, its shapes are generated with the other nodes and arcs when the cell is exited.
+		 * Otherwise they are added now, so the order of shapes within a layer follows the order of the nodes.
+		 * @param ni the primitive node.
+		 * @param trans the transformation of the node to the cell, which must be ni.rotateOut().
+		 */
 		public void addNodeInst(NodeInst ni, FixpTransform trans)
 		{
-			cellGeom.addNodeInst(ni, trans);
+			if (isMerged())
+				cellGeom.addNodeInstLater(ni); else
+					cellGeom.addNodeInst(ni, trans);
 		}
 
+		/**
+		 * Method to add an arc to the current cell.
+		 * If the cell is merged, its shapes are generated with the other nodes and arcs when the cell is exited.
+		 * @param ai the arc.
+		 */
 		public void addArcInst(ArcInst ai)
 		{
-			cellGeom.addArcInst(ai);
+			if (isMerged())
+				cellGeom.addArcInstLater(ai); else
+					cellGeom.addArcInst(ai);
 		}
     }
 
@@ -794,7 +794,7 @@ public class Output
 	 */
 	protected void setContinuationString(String str) { continuationString = str; }
 
-	private void writeChunk(String str, StringBuffer buffer)
+	void writeChunk(String str, StringBuffer buffer)
 	{
 		int len = str.length();
 		if (len <= 0) return;
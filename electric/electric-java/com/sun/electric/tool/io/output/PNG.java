@@ -22,9 +22,18 @@
  */
 package com.sun.electric.tool.io.output;
 
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.variable.VarContext;
+import com.sun.electric.tool.user.GraphicsPreferences;
+import com.sun.electric.tool.user.redisplay.PixelDrawing;
+import com.sun.electric.tool.user.ui.LayerVisibility;
+
 import javax.imageio.ImageIO;
 import java.io.File;
 import java.util.Iterator;
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
 /**
@@ -60,6 +69,50 @@ public class PNG extends Output
         }
 	}
 
+	/**
+	 * Method to draw a cell without a window and write it to a PNG file.
+	 * The whole hierarchy is drawn, scaled to fill the image.
+	 * @param cell the Cell to draw.
+	 * @param context the VarContext of the Cell.
+	 * @param width the width of the image (in pixels).
+	 * @param height the height of the image (in pixels).
+	 * @param gp the colors and patterns to use.
+	 * @param lv the visibility of layers.
+	 * @param filePath the name of the file to create.
+	 */
+	public static void writeCell(Cell cell, VarContext context, int width, int height, GraphicsPreferences gp,
+		LayerVisibility lv, String filePath)
+	{
+		writeImage(renderCell(cell, context, width, height, gp, lv, 0), filePath);
+	}
+
+	/**
+	 * Method to draw a cell without a window.
+	 * The image is split into tiles which are drawn by several threads (see PixelDrawing.renderImage()).
+	 * The whole hierarchy is drawn, scaled to fill the image.
+	 * @param cell the Cell to draw.
+	 * @param context the VarContext of the Cell.
+	 * @param width the width of the image (in pixels).
+	 * @param height the height of the image (in pixels).
+	 * @param gp the colors and patterns to use.
+	 * @param lv the visibility of layers.
+	 * @param numThreads the number of threads to use (0 to use all processors).
+	 * @return the image of the Cell.
+	 */
+	public static BufferedImage renderCell(Cell cell, VarContext context, int width, int height, GraphicsPreferences gp,
+		LayerVisibility lv, int numThreads)
+	{
+		Rectangle2D cellBounds = cell.getBounds();
+		double cellWidth = cellBounds.getWidth() + 2;
+		double cellHeight = cellBounds.getHeight() + 2;
+		double scale = Math.min(width / cellWidth, height / cellHeight);
+		Point2D offset = new Point2D.Double(cellBounds.getCenterX(), cellBounds.getCenterY());
+
+		PixelDrawing offscreen = new PixelDrawing(new Dimension(width, height));
+		offscreen.renderImage(scale, offset, cell, context, gp, lv, true, numThreads);
+		return offscreen.getBufferedImage();
+	}
+
 	/**
 	 * Returns true if the specified format name can be written
 	 * @param formatName
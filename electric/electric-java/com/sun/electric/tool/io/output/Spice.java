@@ -80,6 +80,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -88,6 +89,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 
 import javax.swing.SwingUtilities;
@@ -138,7 +140,7 @@ public class Spice extends Topology
     /** Special case for HSpice for Assura */					private boolean assuraHSpice = false;
 	/** Spice type: 2, 3, H, P, etc */							private SimulationTool.SpiceEngine spiceEngine;
 	/** those cells that have overridden models */				private Map<Cell,String> modelOverrides = new HashMap<Cell,String>();
-    /** Parameters used for Spice */                            private Map<NodeProto,Set<Variable.Key>> allSpiceParams = new HashMap<NodeProto,Set<Variable.Key>>();
+    /** Parameters used for Spice */                            private Map<NodeProto,Set<Variable.Key>> allSpiceParams = new ConcurrentHashMap<NodeProto,Set<Variable.Key>>();
     /** for RC parasitics */                                    private SpiceParasiticsGeneral parasiticInfo;
     /** Networks exempted during parasitic ext */				private SpiceExemptedNets exemptedNets;
     /** Whether or not to write empty subcircuits */			private boolean writeEmptySubckts = true;
@@ -146,8 +148,7 @@ public class Spice extends Topology
     /** Flat measurements file */								private FlatSpiceCodeVisitor spiceCodeFlat = null;
 
     /** map of "parameterized" cells not covered by Topology */	private Map<Cell,Cell> uniquifyCells;
-    /** uniqueID */                                             private int uniqueID;
-    /** map of shortened instance names */                      private Map<String,Integer> uniqueNames;
+    /** numbers of shortened instance names */                  private ShortNameIDs uniqueNames;
     /** local copy of preferences */                            private SpicePreferences localPrefs;
 
 	public static class SpicePreferences extends OutputPreferences
@@ -198,6 +199,7 @@ public class Spice extends Topology
         public String                       workdir = "";
 
         public boolean						supportAscDescOrdering = true; // false is for cases where Lexicographical must be enforced.
+        public int                          numWriterThreads = SimulationTool.getFactorySpiceWriterThreads();
 
 		public SpicePreferences() { this(false, false); }
 		public SpicePreferences(boolean factory, boolean cdl)
@@ -234,6 +236,7 @@ public class Spice extends Topology
 
             globalTreatment                 = SimulationTool.getSpiceGlobalTreatment();
             maxLineLen                      = SimulationTool.getSpiceMaxCharsPerLine();
+            numWriterThreads                = SimulationTool.getSpiceWriterThreads();
             writePwrGndInTopCell            = SimulationTool.isSpiceWritePwrGndInTopCell();
             useCellParameters               = SimulationTool.isSpiceUseCellParameters();
             writeTransSizeInLambda          = SimulationTool.isSpiceWriteTransSizeInLambda();
@@ -261,6 +264,7 @@ public class Spice extends Topology
     		out.useCDL = cdl;
             out.spiceEngine = engine;
             out.curTech = cell.getTechnology();
+            out.setCellWriterThreads(numWriterThreads);
     		if (out.openTextOutputStream(filePath)) return out.finishWrite();
     		if (out.writeCell(cell, context)) return out.finishWrite();
     		if (out.closeTextOutputStream()) return out.finishWrite();
@@ -410,8 +414,7 @@ public class Spice extends Topology
 
         // set up the parameterized cells
         uniquifyCells = new HashMap<Cell,Cell>();
-        uniqueID = 0;
-        uniqueNames = new HashMap<String,Integer>();
+        uniqueNames = new ShortNameIDs();
         markCellsToUniquify(topCell);
 
 		// setup the legal characters
@@ -1721,12 +1724,7 @@ public class Spice extends Topology
         int limit = maxNameLength();
         if (limit > 0 && uniqueCellName.length() > limit)
         {
-            Integer i = uniqueNames.get(uniqueCellName.toString());
-            if (i == null) {
-                i = new Integer(uniqueID);
-                uniqueID++;
-                uniqueNames.put(uniqueCellName.toString(), i);
-            }
+            int i = uniqueNames.getID(uniqueCellName.toString());
             int numOfCharactersToDelete = uniqueCellName.length() - limit + 10;
             uniqueCellName = uniqueCellName.delete(0, numOfCharactersToDelete);
 //            uniqueCellName = uniqueCellName.delete(limit-10, uniqueCellName.length());
@@ -1735,6 +1733,28 @@ public class Spice extends Topology
         return uniqueCellName;
     }
 
+    /**
+     * Class to number the names of cells that are too long.
+     * Copies of the netlister that write cells in other threads share one instance,
+     * so a name always gets the same number.  The names are first numbered in the
+     * hierarchy traversal, so the numbers do not depend on the order of the threads.
+     */
+    private static class ShortNameIDs
+    {
+        private final Map<String,Integer> ids = new HashMap<String,Integer>();
+
+        synchronized int getID(String name)
+        {
+            Integer i = ids.get(name);
+            if (i == null)
+            {
+                i = Integer.valueOf(ids.size());
+                ids.put(name, i);
+            }
+            return i.intValue();
+        }
+    }
+
     /**
      * Method to return the CodeExpression on a Variable.
      * Prints warnings if there is a syntax error in the code.
@@ -2457,6 +2477,34 @@ public class Spice extends Topology
             exemptedNets.setExemptedNets(info);
     }
 
+    /**
+     * Method to tell whether a subcircuit can be written in parallel with others.
+     * The top cell writes globals and parasitic extraction keeps state across cells, so these are written serially.
+     */
+    protected boolean canWriteCellInParallel(Cell cell, CellNetInfo cni)
+    {
+        if (cell == topCell || exemptedNets != null) return false;
+        if (useCDL || cell.getView() != View.LAYOUT) return true;
+        return localPrefs.parasiticsLevel == SimulationTool.SpiceParasitics.SIMPLE;
+    }
+
+    /**
+     * Method to return the settings that the text of a subcircuit depends on.
+     * Subcircuits are reused from earlier netlists when these settings are unchanged.
+     */
+    protected Object getCellCacheSettings()
+    {
+        return Arrays.<Object>asList(Boolean.valueOf(useCDL), spiceEngine, layoutTechnology, legalSpiceChars,
+            preferedEngineTemplateKey, Boolean.valueOf(writeEmptySubckts), Double.valueOf(maskScale), localPrefs.level,
+            Integer.valueOf(localPrefs.maxLineLen), Boolean.valueOf(localPrefs.useCellParameters),
+            Boolean.valueOf(localPrefs.writePwrGndInTopCell), localPrefs.globalTreatment,
+            Boolean.valueOf(localPrefs.writeSubcktTopCell), Boolean.valueOf(localPrefs.writeTopCellInstance),
+            localPrefs.parasiticsLevel, Integer.valueOf(localPrefs.shortResistors), Boolean.valueOf(localPrefs.ignoreParasiticResistors),
+            localPrefs.extractedNetDelimiter, Boolean.valueOf(localPrefs.ignoreModelFiles), localPrefs.modelFiles,
+            Boolean.valueOf(localPrefs.supportAscDescOrdering), Boolean.valueOf(localPrefs.writeTransSizeInLambda),
+            Integer.valueOf(localPrefs.getUnitsOfPrecision()));
+    }
+
     /** Method to report that not to choose best export name among exports connected to signal. */
     protected boolean isChooseBestExportName() { return false; }
 
@@ -2999,7 +3047,7 @@ public class Spice extends Topology
     }
 
     private static final boolean CELLISEMPTYDEBUG = false;
-    private Map<Cell,Boolean> checkedCells = new HashMap<Cell,Boolean>();
+    private Map<Cell,Boolean> checkedCells = new ConcurrentHashMap<Cell,Boolean>();
 
     public boolean cellIsEmpty(Cell cell)
     {
@@ -23,11 +23,15 @@
  */
 package com.sun.electric.tool.io.output;
 
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.Environment;
 import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
 import com.sun.electric.database.hierarchy.Export;
 import com.sun.electric.database.hierarchy.HierarchyEnumerator;
 import com.sun.electric.database.hierarchy.Nodable;
 import com.sun.electric.database.hierarchy.View;
+import com.sun.electric.database.id.CellId;
 import com.sun.electric.database.network.Global;
 import com.sun.electric.database.network.Netlist;
 import com.sun.electric.database.network.Network;
@@ -38,25 +42,39 @@ import com.sun.electric.database.topology.ArcInst;
 import com.sun.electric.database.topology.Connection;
 import com.sun.electric.database.topology.NodeInst;
 import com.sun.electric.database.topology.PortInst;
+import com.sun.electric.database.variable.UserInterface;
 import com.sun.electric.database.variable.VarContext;
 import com.sun.electric.database.variable.Variable;
 import com.sun.electric.technology.PrimitiveNode;
 import com.sun.electric.technology.PrimitivePort;
+import com.sun.electric.tool.Job;
 import com.sun.electric.tool.generator.sclibrary.SCLibraryGen;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
 import com.sun.electric.util.TextUtils;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * This is the Simulation Interface tool.
  */
-public abstract class Topology extends Output
+public abstract class Topology extends Output implements Cloneable
 {
 	private static final boolean DEBUGTOPOLOGY = false;
 
@@ -65,6 +83,16 @@ public abstract class Topology extends Output
 	/** Map of all CellTopologies */				private Map<String,CellNetInfo> cellTopos;
 	/** Map of all Cell names */					private Map<Cell,String> cellNameMap;
 													private HierarchyEnumerator.CellInfo lastInfo;
+	/** number of threads that write cells */		private int numCellWriterThreads = 1;
+	/** cells waiting to be written, in order */	private List<QueuedCell> queuedCells;
+	/** settings that the text of cells depends on */	private Object cellCacheSettings;
+	/** revisions and names below each cell */		private Map<Cell,List<Object>> subtreeRevisions;
+	/** text of cells written before, in this database */	private CellTextCache cellCache;
+
+	/** text of cells written before, by database */
+	private static final Map<EDatabase,CellTextCache> cellCaches = new WeakHashMap<EDatabase,CellTextCache>();
+	/** most characters of text kept for one database */
+	private static final int MAXCACHEDCHARS = 1 << 24;
 
 	/** Creates a new instance of Topology */
 	public Topology() {}
@@ -97,11 +125,398 @@ public abstract class Topology extends Output
 
 		// write out cells
 		start();
-		HierarchyEnumerator.enumerateCell(cell, context, visitor, getShortResistors());
+		cellCacheSettings = getCellCacheSettings();
+		if (cellCacheSettings != null)
+		{
+			subtreeRevisions = new HashMap<Cell,List<Object>>();
+			cellCache = getCellTextCache(cell.getDatabase());
+			cellCache.start(getClass(), cellCacheSettings, cell.getDatabase());
+		}
+		if (numCellWriterThreads > 1) queuedCells = new ArrayList<QueuedCell>();
+		try
+		{
+			HierarchyEnumerator.enumerateCell(cell, context, visitor, getShortResistors());
+			if (queuedCells != null) writeQueuedCells();
+		} finally
+		{
+			queuedCells = null;
+			subtreeRevisions = null;
+		}
 		done();
 		return false;
 	}
 
+	/**
+	 * Method to set the number of threads that write cells.
+	 * With more than one thread, cells are written after the hierarchy traversal:
+	 * those accepted by canWriteCellInParallel() are written concurrently into separate buffers,
+	 * and all cells are emitted in the order of the traversal, so the output does not change.
+	 * @param numThreads the number of threads (1 to write each cell during the traversal).
+	 */
+	public void setCellWriterThreads(int numThreads) { numCellWriterThreads = Math.max(1, numThreads); }
+
+	/**
+	 * Method to tell whether a cell can be written by a copy of this netlister in another thread.
+	 * The copy shares all fields with this netlister except for the output stream,
+	 * so the writer must only read shared state (or use thread-safe caches),
+	 * and the text of the cell must start and end on a line boundary.
+	 * Cells that are not accepted are written in this thread, after all others have been generated.
+	 * When getCellCacheSettings() is not null, the text of accepted cells is also reused
+	 * by later netlists in which the cell and everything below it are unchanged.
+	 * @param cell the Cell to be written.
+	 * @param cni the network information of the Cell.
+	 * @return true if the cell can be written in parallel with others.
+	 */
+	protected boolean canWriteCellInParallel(Cell cell, CellNetInfo cni) { return false; }
+
+	/**
+	 * Method to return the settings of this netlister that the text of a cell depends on.
+	 * The text of cells accepted by canWriteCellInParallel() is cached between netlists,
+	 * and reused when these settings, the cell, its subcells and the parameters of its instance are unchanged.
+	 * @return an object with equals() that describes the settings, or null to disable the cache.
+	 */
+	protected Object getCellCacheSettings() { return null; }
+
+	/**
+	 * Method to discard the text of cells that is kept for later netlists.
+	 */
+	public static synchronized void clearCellCache()
+	{
+		for(CellTextCache cache : cellCaches.values())
+			cache.clear();
+	}
+
+	/**
+	 * Method to return the text of cells that is kept for later netlists of a database.
+	 * @param database the database.
+	 * @return the cache of cell text of the database.
+	 */
+	static synchronized CellTextCache getCellTextCache(EDatabase database)
+	{
+		CellTextCache cache = cellCaches.get(database);
+		if (cache == null)
+		{
+			cache = new CellTextCache(MAXCACHEDCHARS);
+			cellCaches.put(database, cache);
+		}
+		return cache;
+	}
+
+	/**
+	 * Method to write a cell now or, when cells are written in parallel, to queue it.
+	 */
+	private void writeOrQueueCellTopology(Cell cell, String cellName, CellNetInfo cni, VarContext context, MyCellInfo info)
+	{
+		QueuedCell qc = new QueuedCell(cell, cellName, cni, context, info, getCacheDependencies(cell, cni, context, info));
+		if (queuedCells != null)
+		{
+			queuedCells.add(qc);
+			return;
+		}
+		writeCellNow(qc);
+	}
+
+	/**
+	 * Method to write a cell in this thread, reusing or filling the cell cache.
+	 */
+	private void writeCellNow(QueuedCell qc)
+	{
+		String text = qc.getCachedText();
+		if (text != null)
+		{
+			writeChunk(text, null);
+			return;
+		}
+		if (qc.dependencies == null)
+		{
+			writeCellTopology(qc.cell, qc.cellName, qc.cni, qc.context, qc.info);
+			return;
+		}
+
+		// write the cell into a buffer so that it can be cached
+		PrintWriter savedWriter = printWriter;
+		StringWriter buffer = new StringWriter();
+		printWriter = new PrintWriter(buffer);
+		try
+		{
+			writeCellTopology(qc.cell, qc.cellName, qc.cni, qc.context, qc.info);
+		} finally
+		{
+			printWriter.flush();
+			printWriter = savedWriter;
+		}
+		text = buffer.toString();
+		qc.setCachedText(text);
+		if (printWriter != null) printWriter.print(text); else
+			if (stringWriter != null) stringWriter.write(text);
+	}
+
+	/**
+	 * Method to describe everything that the text of a cell depends on.
+	 * @return the dependencies, or null if the cell is not cached.
+	 */
+	private List<Object> getCacheDependencies(Cell cell, CellNetInfo cni, VarContext context, MyCellInfo info)
+	{
+		if (cellCacheSettings == null || !canWriteCellInParallel(cell, cni)) return null;
+		List<Object> dependencies = new ArrayList<Object>();
+		dependencies.add(cell.getDatabase().getEnvironment());
+		dependencies.add(getSubtreeRevisions(cell));
+
+		// names of subcells depend on their parameters and, when shortened, on the rest of the design
+		dependencies.add(info.subCellNames);
+
+		// parameters of the instance path may be evaluated in the cell
+		for(VarContext vc = context; vc != VarContext.globalContext; vc = vc.pop())
+		{
+			List<Variable> params = new ArrayList<Variable>();
+			for(Iterator<Variable> it = vc.getNodable().getParameters(); it.hasNext(); )
+				params.add(it.next());
+			dependencies.add(params);
+		}
+		return dependencies;
+	}
+
+	/**
+	 * Method to list the revisions and output names of a cell and of all cells below it.
+	 * Subcell names and interfaces are written in the text of a cell, so any change below it invalidates its text.
+	 */
+	private List<Object> getSubtreeRevisions(Cell cell)
+	{
+		List<Object> revisions = subtreeRevisions.get(cell);
+		if (revisions != null) return revisions;
+		Set<Cell> below = new TreeSet<Cell>();
+		gatherSubtree(cell, below);
+		revisions = new ArrayList<Object>();
+		for(Cell c : below)
+		{
+			revisions.add(c.backup().cellRevision);
+			revisions.add(cellNameMap.get(c));
+		}
+		subtreeRevisions.put(cell, revisions);
+		return revisions;
+	}
+
+	private static void gatherSubtree(Cell cell, Set<Cell> below)
+	{
+		if (!below.add(cell)) return;
+		for(Iterator<NodeInst> it = cell.getNodes(); it.hasNext(); )
+		{
+			NodeInst ni = it.next();
+			if (!ni.isCellInstance() || ni.isIconOfParent()) continue;
+			Cell subCell = (Cell)ni.getProto();
+			gatherSubtree(subCell, below);
+			Cell contents = subCell.contentsView();
+			if (contents != null) gatherSubtree(contents, below);
+		}
+	}
+
+	/**
+	 * Method to write the queued cells in the order of the hierarchy traversal.
+	 * Cells that may be written in parallel are generated first into separate buffers;
+	 * the remaining cells are then written by this netlister in their places.
+	 */
+	private void writeQueuedCells()
+	{
+		List<QueuedCell> cells = queuedCells;
+		queuedCells = null;
+		List<Future<String>> texts = new ArrayList<Future<String>>();
+		String [] generated = new String[cells.size()];
+		ExecutorService pool = ThreadPoolSharedForkJoin.getInstance().getExecutorService();
+		for(int i=0; i<cells.size(); i++)
+		{
+			QueuedCell qc = cells.get(i);
+			generated[i] = qc.getCachedText();
+			texts.add(generated[i] == null && canWriteCellInParallel(qc.cell, qc.cni) ? pool.submit(qc) : null);
+		}
+
+		// wait for all parallel cells, since the remaining ones may change state that they read
+		for(int i=0; i<cells.size(); i++)
+		{
+			Future<String> text = texts.get(i);
+			if (text == null) continue;
+			try
+			{
+				generated[i] = text.get();
+			} catch (InterruptedException e)
+			{
+				throw new IllegalStateException("Interrupted while writing " + cells.get(i).cellName);
+			} catch (ExecutionException e)
+			{
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+				if (cause instanceof Error) throw (Error)cause;
+				throw new IllegalStateException(cause);
+			}
+		}
+
+		for(int i=0; i<cells.size(); i++)
+		{
+			if (generated[i] != null)
+			{
+				writeChunk(generated[i], null);
+				continue;
+			}
+			writeCellNow(cells.get(i));
+		}
+	}
+
+	/**
+	 * Class to remember a cell that is waiting to be written, and to write it in another thread.
+	 */
+	private class QueuedCell implements Callable<String>
+	{
+		private final Cell cell;
+		private final String cellName;
+		private final CellNetInfo cni;
+		private final VarContext context;
+		private final MyCellInfo info;
+		/** what the text depends on (null if not cached) */	private final List<Object> dependencies;
+		private final Environment launcherEnvironment = Environment.getThreadEnvironment();
+		private final UserInterface userInterface = Job.getUserInterface();
+		private final EditingPreferences editingPreferences = EditingPreferences.getInstance();
+
+		QueuedCell(Cell cell, String cellName, CellNetInfo cni, VarContext context, MyCellInfo info, List<Object> dependencies)
+		{
+			this.cell = cell;
+			this.cellName = cellName;
+			this.cni = cni;
+			this.context = context;
+			this.info = info;
+			this.dependencies = dependencies;
+		}
+
+		private List<Object> getCacheKey()
+		{
+			return Arrays.<Object>asList(Topology.this.getClass(), cellCacheSettings, cell.getId(), cellName);
+		}
+
+		/**
+		 * Method to return the text of this cell from an earlier netlist.
+		 * @return the cached text, or null if there is none or if the cell has changed.
+		 */
+		String getCachedText()
+		{
+			if (dependencies == null) return null;
+			return cellCache.get(getCacheKey(), dependencies);
+		}
+
+		void setCachedText(String text)
+		{
+			if (dependencies != null) cellCache.put(getCacheKey(), dependencies, text);
+		}
+
+		public String call() throws CloneNotSupportedException
+		{
+			// technologies are found through the environment of the thread
+			if (Job.getUserInterface() != userInterface)
+			{
+				Environment.setThreadEnvironment(launcherEnvironment);
+				Job.setUserInterface(userInterface);
+			}
+			EditingPreferences.lowLevelSetThreadLocalEditingPreferences(editingPreferences);
+			StringWriter text = new StringWriter();
+			Topology writer = (Topology)Topology.this.clone();
+			writer.printWriter = new PrintWriter(text);
+			writer.writeCellTopology(cell, cellName, cni, context, info);
+			writer.printWriter.flush();
+			setCachedText(text.toString());
+			return text.toString();
+		}
+	}
+
+	/**
+	 * Class to remember the text of a cell and what it depends on.
+	 */
+	private static class CachedCell
+	{
+		private final List<Object> dependencies;
+		private final String text;
+
+		CachedCell(List<Object> dependencies, String text)
+		{
+			this.dependencies = dependencies;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Class to keep the text of cells written by netlisters of one database.
+	 * Texts are keyed by netlister class, netlister settings, cell and name.
+	 * The least recently used texts are dropped when there are too many characters.
+	 * When a netlist starts, all texts are dropped if the Environment has changed,
+	 * the texts of the netlister are dropped if its settings have changed,
+	 * and the texts of cells that are no longer in the database are dropped.
+	 */
+	static class CellTextCache
+	{
+		private final LinkedHashMap<List<Object>,CachedCell> texts = new LinkedHashMap<List<Object>,CachedCell>(16, 0.75f, true);
+		private final Map<Class<?>,Object> lastSettings = new HashMap<Class<?>,Object>();
+		private final int maxChars;
+		private int numChars;
+		private Environment environment;
+
+		CellTextCache(int maxChars)
+		{
+			this.maxChars = maxChars;
+		}
+
+		/**
+		 * Method called when a netlister that uses this cache starts.
+		 * @param netlister the class of the netlister.
+		 * @param settings the settings of the netlister.
+		 * @param database the database being written.
+		 */
+		synchronized void start(Class<?> netlister, Object settings, EDatabase database)
+		{
+			if (database.getEnvironment() != environment)
+			{
+				clear();
+				environment = database.getEnvironment();
+			}
+			Object oldSettings = lastSettings.put(netlister, settings);
+			boolean settingsChanged = oldSettings != null && !oldSettings.equals(settings);
+			for(Iterator<Map.Entry<List<Object>,CachedCell>> it = texts.entrySet().iterator(); it.hasNext(); )
+			{
+				Map.Entry<List<Object>,CachedCell> e = it.next();
+				List<Object> key = e.getKey();
+				if ((settingsChanged && key.get(0) == netlister) || database.getCell((CellId)key.get(2)) == null)
+				{
+					numChars -= e.getValue().text.length();
+					it.remove();
+				}
+			}
+		}
+
+		synchronized String get(List<Object> key, List<Object> dependencies)
+		{
+			CachedCell cached = texts.get(key);
+			if (cached == null || !cached.dependencies.equals(dependencies)) return null;
+			return cached.text;
+		}
+
+		synchronized void put(List<Object> key, List<Object> dependencies, String text)
+		{
+			if (text.length() > maxChars) return;
+			CachedCell old = texts.put(key, new CachedCell(dependencies, text));
+			if (old != null) numChars -= old.text.length();
+			numChars += text.length();
+			for(Iterator<CachedCell> it = texts.values().iterator(); numChars > maxChars && it.hasNext(); )
+			{
+				numChars -= it.next().text.length();
+				it.remove();
+			}
+		}
+
+		synchronized int size() { return texts.size(); }
+
+		synchronized void clear()
+		{
+			texts.clear();
+			lastSettings.clear();
+			numChars = 0;
+		}
+	}
+
 	/** Abstract method called before hierarchy traversal */
 	protected abstract void start();
 
@@ -223,6 +638,7 @@ public abstract class Topology extends Output
 	public class MyCellInfo extends HierarchyEnumerator.CellInfo
 	{
 		String currentInstanceParametizedName;
+		/** names of the subcells instantiated in this cell */	List<String> subCellNames = new ArrayList<String>();
 	}
 
 	public class Visitor extends HierarchyEnumerator.Visitor
@@ -276,7 +692,7 @@ public abstract class Topology extends Output
 				cellTopos.put(parameterizedName, cni);
 			}
 			String cellName = cni.getParameterizedName();
-			outGeom.writeCellTopology(cell, cellName, cni, info.getContext(), (MyCellInfo)info);
+			outGeom.writeOrQueueCellTopology(cell, cellName, cni, info.getContext(), (MyCellInfo)info);
 
 			// see if there are alternate icons with different names
 			if (isWriteCopyForEachIcon() && cell != topCell)
@@ -293,7 +709,7 @@ public abstract class Topology extends Output
 						otherCellName = otherCell.getLibrary().getName() + otherCellName;
 					}
 					if (otherCellName.equals(cellName)) continue;
-					outGeom.writeCellTopology(cell, otherCellName, cni, info.getContext(), (MyCellInfo)info);			
+					outGeom.writeOrQueueCellTopology(cell, otherCellName, cni, info.getContext(), (MyCellInfo)info);
 				}
 			}
 
@@ -306,6 +722,7 @@ public abstract class Topology extends Output
 
 			VarContext context = info.getContext();
 			String parameterizedName = parameterizedName(no, context);
+			((MyCellInfo)info).subCellNames.add(parameterizedName);
 
 			if (cellTopos.containsKey(parameterizedName)) return false;	// already processed this Cell
 
@@ -0,0 +1,317 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: IncrementalMetric.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.placement.metrics;
+
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNetwork;
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNode;
+import com.sun.electric.tool.placement.PlacementFrame.PlacementPort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wire length metric which is updated incrementally when nodes move.
+ *
+ * Positions of nodes and ports are copied to primitive arrays and the cost of
+ * each network is cached. A placement algorithm proposes a move of one or more
+ * nodes with tryMove or trySwap, which recomputes only the networks on the moved
+ * nodes and returns the change of the total cost. Then it calls accept, which sets
+ * the new locations of the PlacementNodes, or reject, which restores the old costs.
+ * If PlacementNodes are moved or rotated in another way, update must be called.
+ */
+public abstract class IncrementalMetric extends AbstractMetric {
+
+	/** all nodes with ports on the networks */			protected final PlacementNode[] nodes;
+	private final Map<PlacementNode,Integer> nodeIndex = new IdentityHashMap<PlacementNode,Integer>();
+	/** center of nodes */								protected final double[] nodeX, nodeY;
+
+	/** ports of network i are netStart[i]..netStart[i+1]-1 */ protected final int[] netStart;
+	/** node of each port */							protected final int[] portNode;
+	/** network of each port */							private final int[] portNet;
+	/** rotated offsets of ports */						protected final double[] portOffX, portOffY;
+	/** ports of node i are nodePorts[nodePortStart[i]..nodePortStart[i+1]-1] */
+	private final int[] nodePortStart, nodePorts;
+
+	/** cost of each network */							protected final double[] netCost;
+	private double totalCost;
+
+	// the pending move
+	private int numMoved;
+	private int[] movedNodes = new int[4];
+	private double[] oldNodeX = new double[4], oldNodeY = new double[4];
+	private int numChanged;
+	private int[] changedNets = new int[16];
+	private double[] oldNetCost = new double[16];
+	private double pendingDelta;
+	private final int[] nodeMark, netMark;
+	private int stamp;
+
+	public IncrementalMetric(List<PlacementNode> nodesToPlace, List<PlacementNetwork> allNetworks) {
+		super(nodesToPlace, allNetworks, null);
+
+		// number nodes and ports
+		List<PlacementNode> nodeList = new ArrayList<PlacementNode>();
+		int numPorts = 0;
+		for (PlacementNode node : nodesToPlace)
+			addNode(node, nodeList);
+		for (PlacementNetwork net : allNetworks) {
+			for (PlacementPort port : net.getPortsOnNet())
+				addNode(port.getPlacementNode(), nodeList);
+			numPorts += net.getPortsOnNet().size();
+		}
+		nodes = nodeList.toArray(new PlacementNode[nodeList.size()]);
+		nodeX = new double[nodes.length];
+		nodeY = new double[nodes.length];
+		nodeMark = new int[nodes.length];
+
+		netStart = new int[allNetworks.size() + 1];
+		portNode = new int[numPorts];
+		portNet = new int[numPorts];
+		portOffX = new double[numPorts];
+		portOffY = new double[numPorts];
+		nodePortStart = new int[nodes.length + 1];
+		int p = 0;
+		for (int i = 0; i < allNetworks.size(); i++) {
+			netStart[i] = p;
+			for (PlacementPort port : allNetworks.get(i).getPortsOnNet()) {
+				portNode[p] = nodeIndex.get(port.getPlacementNode()).intValue();
+				portNet[p] = i;
+				nodePortStart[portNode[p] + 1]++;
+				p++;
+			}
+		}
+		netStart[allNetworks.size()] = p;
+		for (int i = 0; i < nodes.length; i++)
+			nodePortStart[i + 1] += nodePortStart[i];
+		nodePorts = new int[numPorts];
+		int[] fill = Arrays.copyOf(nodePortStart, nodes.length);
+		for (p = 0; p < numPorts; p++)
+			nodePorts[fill[portNode[p]]++] = p;
+
+		netCost = new double[allNetworks.size()];
+		netMark = new int[allNetworks.size()];
+	}
+
+	private void addNode(PlacementNode node, List<PlacementNode> nodeList) {
+		if (nodeIndex.containsKey(node)) return;
+		nodeIndex.put(node, Integer.valueOf(nodeList.size()));
+		nodeList.add(node);
+	}
+
+	/**
+	 * Method to read locations and orientations of all nodes and to recompute all networks.
+	 * It must be called before the first move.
+	 */
+	public void update() {
+		numMoved = numChanged = 0;
+		pendingDelta = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			nodeX[i] = nodes[i].getPlacementX();
+			nodeY[i] = nodes[i].getPlacementY();
+		}
+		int p = 0;
+		for (PlacementNetwork net : allNetworks) {
+			for (PlacementPort port : net.getPortsOnNet()) {
+				portOffX[p] = port.getRotatedOffX();
+				portOffY[p] = port.getRotatedOffY();
+				p++;
+			}
+		}
+		totalCost = 0;
+		for (int i = 0; i < netCost.length; i++) {
+			netCost[i] = computeNet(i, true);
+			totalCost += netCost[i];
+		}
+	}
+
+	/**
+	 * Method to return the total cost, including the pending move.
+	 * @return the total cost.
+	 */
+	@Override
+	public Double compute() {
+		return new Double(totalCost);
+	}
+
+	/**
+	 * Method to return the cost of a network.
+	 * @param i the index of the network in the list of all networks.
+	 * @return the cost of the network, including the pending move.
+	 */
+	public double getNetCost(int i) {
+		return netCost[i];
+	}
+
+	/**
+	 * Method to propose a move of one node. A pending move is rejected first.
+	 * @param node the node to move.
+	 * @param x the new X-coordinate of the center of the node.
+	 * @param y the new Y-coordinate of the center of the node.
+	 * @return the change of the total cost.
+	 */
+	public double tryMove(PlacementNode node, double x, double y) {
+		return tryMove(new PlacementNode[] {node}, new double[] {x}, new double[] {y});
+	}
+
+	/**
+	 * Method to propose to swap the locations of two nodes. A pending move is rejected first.
+	 * @param node1 the first node.
+	 * @param node2 the second node.
+	 * @return the change of the total cost.
+	 */
+	public double trySwap(PlacementNode node1, PlacementNode node2) {
+		int i1 = indexOf(node1), i2 = indexOf(node2);
+		return tryMove(new PlacementNode[] {node1, node2}, new double[] {nodeX[i2], nodeX[i1]},
+			new double[] {nodeY[i2], nodeY[i1]});
+	}
+
+	/**
+	 * Method to propose a move of several nodes. A pending move is rejected first.
+	 * Only the networks on the moved nodes are recomputed.
+	 * @param moved the nodes to move.
+	 * @param x the new X-coordinates of the centers of the nodes.
+	 * @param y the new Y-coordinates of the centers of the nodes.
+	 * @return the change of the total cost.
+	 */
+	public double tryMove(PlacementNode[] moved, double[] x, double[] y) {
+		reject();
+		stamp++;
+		for (int k = 0; k < moved.length; k++) {
+			int n = indexOf(moved[k]);
+			if (nodeMark[n] != stamp) {
+				nodeMark[n] = stamp;
+				if (numMoved == movedNodes.length) {
+					movedNodes = Arrays.copyOf(movedNodes, numMoved*2);
+					oldNodeX = Arrays.copyOf(oldNodeX, numMoved*2);
+					oldNodeY = Arrays.copyOf(oldNodeY, numMoved*2);
+				}
+				movedNodes[numMoved] = n;
+				oldNodeX[numMoved] = nodeX[n];
+				oldNodeY[numMoved] = nodeY[n];
+				numMoved++;
+			}
+			double oldX = nodeX[n], oldY = nodeY[n];
+			nodeX[n] = x[k];
+			nodeY[n] = y[k];
+			for (int j = nodePortStart[n]; j < nodePortStart[n + 1]; j++) {
+				int p = nodePorts[j];
+				int net = portNet[p];
+				if (netMark[net] != stamp) {
+					netMark[net] = stamp;
+					if (numChanged == changedNets.length) {
+						changedNets = Arrays.copyOf(changedNets, numChanged*2);
+						oldNetCost = Arrays.copyOf(oldNetCost, numChanged*2);
+					}
+					changedNets[numChanged] = net;
+					oldNetCost[numChanged] = netCost[net];
+					saveNet(net, numChanged);
+					numChanged++;
+				}
+				movePort(net, oldX + portOffX[p], oldY + portOffY[p], x[k] + portOffX[p], y[k] + portOffY[p]);
+			}
+		}
+		double delta = 0;
+		for (int i = 0; i < numChanged; i++) {
+			int net = changedNets[i];
+			netCost[net] = computeNet(net, false);
+			delta += netCost[net] - oldNetCost[i];
+		}
+		pendingDelta = delta;
+		totalCost += delta;
+		return delta;
+	}
+
+	/**
+	 * Method to accept the pending move and to set new locations of the moved PlacementNodes.
+	 */
+	public void accept() {
+		for (int i = 0; i < numMoved; i++) {
+			int n = movedNodes[i];
+			nodes[n].setPlacement(nodeX[n], nodeY[n]);
+		}
+		numMoved = numChanged = 0;
+		pendingDelta = 0;
+	}
+
+	/**
+	 * Method to reject the pending move and to restore the costs before it.
+	 */
+	public void reject() {
+		for (int i = numMoved - 1; i >= 0; i--) {
+			int n = movedNodes[i];
+			nodeX[n] = oldNodeX[i];
+			nodeY[n] = oldNodeY[i];
+		}
+		for (int i = 0; i < numChanged; i++) {
+			int net = changedNets[i];
+			netCost[net] = oldNetCost[i];
+			restoreNet(net, i);
+		}
+		totalCost -= pendingDelta;
+		numMoved = numChanged = 0;
+		pendingDelta = 0;
+	}
+
+	private int indexOf(PlacementNode node) {
+		Integer index = nodeIndex.get(node);
+		if (index == null)
+			throw new IllegalArgumentException("Node is not placed by this metric");
+		return index.intValue();
+	}
+
+	/**
+	 * Method to compute the cost of a network from the locations of its ports.
+	 * Ports of network i are netStart[i]..netStart[i+1]-1 and the location of port p
+	 * is nodeX[portNode[p]] + portOffX[p], nodeY[portNode[p]] + portOffY[p].
+	 * @param net the index of the network.
+	 * @param fromScratch true if cached data of the network is not valid.
+	 * @return the cost of the network.
+	 */
+	protected abstract double computeNet(int net, boolean fromScratch);
+
+	/**
+	 * Method called when a port of a network moves, before the network is recomputed.
+	 * @param net the index of the network.
+	 * @param oldX the old X-coordinate of the port.
+	 * @param oldY the old Y-coordinate of the port.
+	 * @param newX the new X-coordinate of the port.
+	 * @param newY the new Y-coordinate of the port.
+	 */
+	protected void movePort(int net, double oldX, double oldY, double newX, double newY) {}
+
+	/**
+	 * Method to save cached data of a network before the first of its ports moves.
+	 * @param net the index of the network.
+	 * @param slot the index where data is saved.
+	 */
+	protected void saveNet(int net, int slot) {}
+
+	/**
+	 * Method to restore cached data of a network when a move is rejected.
+	 * @param net the index of the network.
+	 * @param slot the index where data was saved.
+	 */
+	protected void restoreNet(int net, int slot) {}
+}
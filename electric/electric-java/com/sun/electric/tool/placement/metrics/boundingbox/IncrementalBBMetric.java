@@ -0,0 +1,115 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: IncrementalBBMetric.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.placement.metrics.boundingbox;
+
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNetwork;
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNode;
+import com.sun.electric.tool.placement.metrics.IncrementalMetric;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Estimate wire length using the bounding box metric, updated incrementally.
+ *
+ * Bounding boxes of networks are cached. When a port moves from the inside of
+ * the bounding box, the box is only extended to the new location of the port.
+ * When a port moves from the boundary, the network is scanned again.
+ */
+public class IncrementalBBMetric extends IncrementalMetric {
+
+	/** bounding boxes of networks */					private final double[] minX, maxX, minY, maxY;
+	/** networks which must be scanned again */			private final boolean[] dirty;
+	/** saved bounding boxes of the pending move */		private double[] savedBounds = new double[64];
+
+	public IncrementalBBMetric(List<PlacementNode> nodesToPlace, List<PlacementNetwork> allNetworks) {
+		super(nodesToPlace, allNetworks);
+		int numNets = allNetworks.size();
+		minX = new double[numNets];
+		maxX = new double[numNets];
+		minY = new double[numNets];
+		maxY = new double[numNets];
+		dirty = new boolean[numNets];
+		update();
+	}
+
+	@Override
+	protected double computeNet(int net, boolean fromScratch) {
+		int start = netStart[net], end = netStart[net + 1];
+		if (start == end) return 0;
+		if (fromScratch || dirty[net]) {
+			double lX = Double.MAX_VALUE, hX = -Double.MAX_VALUE, lY = Double.MAX_VALUE, hY = -Double.MAX_VALUE;
+			for (int p = start; p < end; p++) {
+				double x = nodeX[portNode[p]] + portOffX[p];
+				double y = nodeY[portNode[p]] + portOffY[p];
+				if (x < lX) lX = x;
+				if (x > hX) hX = x;
+				if (y < lY) lY = y;
+				if (y > hY) hY = y;
+			}
+			minX[net] = lX;
+			maxX[net] = hX;
+			minY[net] = lY;
+			maxY[net] = hY;
+			dirty[net] = false;
+		}
+		return (maxX[net] - minX[net]) + (maxY[net] - minY[net]);
+	}
+
+	@Override
+	protected void movePort(int net, double oldX, double oldY, double newX, double newY) {
+		if (dirty[net]) return;
+		if (oldX <= minX[net] || oldX >= maxX[net] || oldY <= minY[net] || oldY >= maxY[net]) {
+			// the port may have defined the bounding box
+			dirty[net] = true;
+			return;
+		}
+		if (newX < minX[net]) minX[net] = newX;
+		if (newX > maxX[net]) maxX[net] = newX;
+		if (newY < minY[net]) minY[net] = newY;
+		if (newY > maxY[net]) maxY[net] = newY;
+	}
+
+	@Override
+	protected void saveNet(int net, int slot) {
+		if (slot*4 + 4 > savedBounds.length)
+			savedBounds = Arrays.copyOf(savedBounds, savedBounds.length*2);
+		savedBounds[slot*4] = minX[net];
+		savedBounds[slot*4 + 1] = maxX[net];
+		savedBounds[slot*4 + 2] = minY[net];
+		savedBounds[slot*4 + 3] = maxY[net];
+	}
+
+	@Override
+	protected void restoreNet(int net, int slot) {
+		minX[net] = savedBounds[slot*4];
+		maxX[net] = savedBounds[slot*4 + 1];
+		minY[net] = savedBounds[slot*4 + 2];
+		maxY[net] = savedBounds[slot*4 + 3];
+		dirty[net] = false;
+	}
+
+	@Override
+	public String getMetricName() {
+		return ("Incremental Bounding Box Metric");
+	}
+}
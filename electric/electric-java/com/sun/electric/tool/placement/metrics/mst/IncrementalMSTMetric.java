@@ -0,0 +1,92 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: IncrementalMSTMetric.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.placement.metrics.mst;
+
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNetwork;
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNode;
+import com.sun.electric.tool.placement.metrics.IncrementalMetric;
+
+import java.util.List;
+
+/**
+ * Estimate wire length using the minimum spanning tree metric, updated incrementally.
+ *
+ * Only the networks on moved nodes are recomputed. The tree of a network is found by
+ * Prim's algorithm on its ports, where ports on the same node are at distance zero,
+ * which gives the same length as the tree of nodes in MSTMetric.
+ */
+public class IncrementalMSTMetric extends IncrementalMetric {
+
+	/** distances of ports to the tree */				private double[] dist;
+	/** ports not in the tree */						private int[] rest;
+
+	public IncrementalMSTMetric(List<PlacementNode> nodesToPlace, List<PlacementNetwork> allNetworks) {
+		super(nodesToPlace, allNetworks);
+		int maxPorts = 0;
+		for (int i = 0; i < allNetworks.size(); i++)
+			maxPorts = Math.max(maxPorts, netStart[i + 1] - netStart[i]);
+		dist = new double[maxPorts];
+		rest = new int[maxPorts];
+		update();
+	}
+
+	@Override
+	protected double computeNet(int net, boolean fromScratch) {
+		int start = netStart[net];
+		int numRest = netStart[net + 1] - start - 1;
+		if (numRest <= 0) return 0;
+		for (int i = 0; i < numRest; i++) {
+			rest[i] = start + 1 + i;
+			dist[i] = Double.MAX_VALUE;
+		}
+		double total = 0;
+		int last = start;
+		while (numRest > 0) {
+			// update distances to the port added last and pick the nearest port
+			double lastX = nodeX[portNode[last]] + portOffX[last];
+			double lastY = nodeY[portNode[last]] + portOffY[last];
+			int best = 0;
+			for (int i = 0; i < numRest; i++) {
+				int p = rest[i];
+				double d;
+				if (portNode[p] == portNode[last]) d = 0; else {
+					double dX = nodeX[portNode[p]] + portOffX[p] - lastX;
+					double dY = nodeY[portNode[p]] + portOffY[p] - lastY;
+					d = Math.sqrt(dX*dX + dY*dY);
+				}
+				if (d < dist[i]) dist[i] = d;
+				if (dist[i] < dist[best]) best = i;
+			}
+			total += dist[best];
+			last = rest[best];
+			numRest--;
+			rest[best] = rest[numRest];
+			dist[best] = dist[numRest];
+		}
+		return total;
+	}
+
+	@Override
+	public String getMetricName() {
+		return ("Incremental Minimal Spanning Tree Metric");
+	}
+}
@@ -1358,6 +1358,14 @@ public class SimulationTool extends Tool
 	/** Get the max characters on a line of Spice output, by default */
 	public static int getFactorySpiceMaxCharsPerLine() { return cacheSpiceMaxCharsPerLine.getIntFactoryValue(); }
 
+	private static Pref cacheSpiceWriterThreads = Pref.makeIntPref("SpiceWriterThreads", tool.prefs, 1);
+	/** Get the number of threads that write the subcircuits of Spice output */
+	public static int getSpiceWriterThreads() { return cacheSpiceWriterThreads.getInt(); }
+	/** Set the number of threads that write the subcircuits of Spice output */
+	public static void setSpiceWriterThreads(int c) { cacheSpiceWriterThreads.setInt(c); }
+	/** Get the number of threads that write the subcircuits of Spice output, by default */
+	public static int getFactorySpiceWriterThreads() { return cacheSpiceWriterThreads.getIntFactoryValue(); }
+
 	private static Pref cacheSpicePartsLibrary = Pref.makeStringPref("SpicePartsLibrary", tool.prefs, "spiceparts");
 	/** Get the spice run program arguments */
 	public static String getSpicePartsLibrary() { return cacheSpicePartsLibrary.getString(); }
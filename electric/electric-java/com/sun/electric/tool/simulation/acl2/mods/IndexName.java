@@ -33,7 +33,10 @@ public class IndexName extends Name implements SvarName
 {
     private final int index;
 
-    public static ElabMod curElabMod = null;
+    /**
+     * Module whose wire paths are shown in names, for each thread.
+     */
+    public static final ThreadLocal<ElabMod> curElabMod = new ThreadLocal<>();
 
     IndexName(int index)
     {
@@ -94,9 +97,10 @@ public class IndexName extends Name implements SvarName
             s += "#" + mask.toString(16);
         }
         s += "}";
-        if (curElabMod != null)
+        ElabMod elabMod = curElabMod.get();
+        if (elabMod != null)
         {
-            s += curElabMod.wireidxToPath(getIndex());
+            s += elabMod.wireidxToPath(getIndex());
         }
         return s;
     }
@@ -74,6 +74,8 @@ import java.util.Set;
 public class ACL2DesignJobs
 {
     private static final int VERBOSE_DUMP = 1;
+    /** number of threads to read and elaborate designs */
+    private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
 
     public static <H extends DesignHints> void dump(Class<H> cls, File saoFile, String outFileName)
     {
@@ -101,12 +103,13 @@ public class ACL2DesignJobs
             {
                 ACL2Object.initHonsMananger(saoFile.getName());
                 DesignHints designHints = cls.newInstance();
-                ACL2Reader sr = new ACL2Reader(saoFile);
-                DesignExt design = new DesignExt(sr.root, designHints);
+                ACL2Reader sr = new ACL2Reader(saoFile, NUM_THREADS);
+                DesignExt design = new DesignExt(sr.root, designHints, NUM_THREADS);
                 GenFsmNew gen = new GenFsmNew(designHints);
                 gen.scanDesign(design.b);
                 String clockName = designHints.getGlobalClock();
                 design.computeCombinationalInputs(clockName);
+                design.showTimes(System.out, 10);
                 try (PrintStream out = new PrintStream(outFileName))
                 {
                     for (Map.Entry<ParameterizedModule, Map<String, ModName>> e : gen.parModuleInstances.entrySet())
@@ -725,8 +728,8 @@ public class ACL2DesignJobs
             try
             {
                 ACL2Object.initHonsMananger(designName);
-                ACL2Reader sr = new ACL2Reader(saoFile);
-                DesignExt design = new DesignExt(sr.root);
+                ACL2Reader sr = new ACL2Reader(saoFile, NUM_THREADS);
+                DesignExt design = new DesignExt(sr.root, new DesignHints.Dummy(), NUM_THREADS);
                 Map<ACL2Backed, ACL2Object> backedCache = new HashMap<>();
                 Map<Svex<PathExt>, String> svexLabels = new LinkedHashMap<>();
                 Map<Svex<PathExt>, BigInteger> svexSizes = new HashMap<>();
@@ -1026,8 +1029,8 @@ public class ACL2DesignJobs
             try
             {
                 ACL2Object.initHonsMananger(designName);
-                ACL2Reader sr = new ACL2Reader(saoFile);
-                DesignExt design = new DesignExt(sr.root);
+                ACL2Reader sr = new ACL2Reader(saoFile, NUM_THREADS);
+                DesignExt design = new DesignExt(sr.root, new DesignHints.Dummy(), NUM_THREADS);
                 try (PrintStream out = new PrintStream(outFileName))
                 {
                     out.println("(in-package \"SV\")");
@@ -1162,7 +1165,7 @@ public class ACL2DesignJobs
                 SvarName.Builder<Address> snb = new Address.SvarNameBuilder();
                 Design<Address> design = new Design<>(snb, sr.root);
                 ModDb db = new ModDb(design.top, design.modalist);
-                IndexName.curElabMod = db.topMod();
+                IndexName.curElabMod.set(db.topMod());
                 Map<ModName, Module<Address>> indexedMods = db.modalistNamedToIndex(design.modalist);
                 ElabMod topIdx = db.modnameGetIndex(design.top);
                 ModDb.FlattenResult flattenResult = topIdx.svexmodFlatten(indexedMods);
@@ -1206,7 +1209,7 @@ public class ACL2DesignJobs
                 return false;
             } finally
             {
-                IndexName.curElabMod = null;
+                IndexName.curElabMod.remove();
                 ACL2Object.closeHonsManager();
             }
             return true;
@@ -1242,7 +1245,7 @@ public class ACL2DesignJobs
                 SvarName.Builder<Address> snb = new Address.SvarNameBuilder();
                 Design<Address> design = new Design<>(snb, sr.root);
                 ModDb db = new ModDb(design.top, design.modalist);
-                IndexName.curElabMod = db.topMod();
+                IndexName.curElabMod.set(db.topMod());
                 Map<ModName, Module<Address>> indexedMods = db.modalistNamedToIndex(design.modalist);
                 ElabMod topElabMod = db.modnameGetIndex(design.top);
                 ElabMod.ModScope topScope = new ElabMod.ModScope(topElabMod);
@@ -1314,7 +1317,7 @@ public class ACL2DesignJobs
                 return false;
             } finally
             {
-                IndexName.curElabMod = null;
+                IndexName.curElabMod.remove();
                 ACL2Object.closeHonsManager();
             }
             return true;
@@ -29,17 +29,28 @@ import com.sun.electric.tool.simulation.acl2.mods.ModInst;
 import com.sun.electric.tool.simulation.acl2.mods.ModName;
 import com.sun.electric.tool.simulation.acl2.mods.Module;
 import com.sun.electric.tool.simulation.acl2.mods.Util;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
 import com.sun.electric.util.TextUtils;
 import com.sun.electric.util.acl2.ACL2Object;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 /**
  * SVEX design.
@@ -56,6 +67,13 @@ public class DesignExt
 
     final List<ParameterizedModule> paremterizedModules;
 
+    /** number of threads to build and analyze modules */
+    private final int numThreads;
+    /** elapsed time to build all modules in nanoseconds */
+    private long buildTime;
+    /** elapsed time to compute combinational inputs of all modules in nanoseconds */
+    private long analysisTime;
+
     public DesignExt(ACL2Object impl)
     {
         this(impl, new DesignHints.Dummy());
@@ -63,19 +81,56 @@ public class DesignExt
 
     public DesignExt(ACL2Object impl, DesignHints designHints)
     {
-        this(new Design<>(new Address.SvarNameBuilder(), impl), designHints);
+        this(impl, designHints, 1);
+    }
+
+    public DesignExt(ACL2Object impl, DesignHints designHints, int numThreads)
+    {
+        this(new Design<>(new Address.SvarNameBuilder(), impl), designHints, numThreads);
     }
 
     public DesignExt(Design<Address> b, DesignHints designHints)
+    {
+        this(b, designHints, 1);
+    }
+
+    /**
+     * Elaborate a design.
+     * Modules are built by several threads in a dependency order,
+     * so a module is built after all modules which it instantiates.
+     *
+     * @param b the design
+     * @param designHints hints about the design
+     * @param numThreads number of threads to build and analyze modules
+     */
+    public DesignExt(Design<Address> b, DesignHints designHints, int numThreads)
     {
         this.b = b;
+        this.numThreads = numThreads;
         this.designHints = designHints;
         paremterizedModules = designHints.getParameterizedModules();
 
         moddb = new ModDb(b.top, b.modalist);
 //        Util.check(moddb.nMods() == b.modalist.size());
 
-        addToDownTop(b.top);
+        long startTime = System.nanoTime();
+        List<ModName> order = new ArrayList<>();
+        addToDownTop(b.top, new HashSet<>(), order);
+        Map<ModName, ModuleExt> built = numThreads > 1 ? new ConcurrentHashMap<>() : downTop;
+        runBottomUp(order, mn ->
+        {
+            ModuleExt m = new ModuleExt(this, mn, built);
+            ModuleExt old = built.put(mn, m);
+            Util.check(old == null);
+        });
+        if (built != downTop)
+        {
+            for (ModName mn : order)
+            {
+                downTop.put(mn, built.get(mn));
+            }
+        }
+        buildTime = System.nanoTime() - startTime;
 //        for (ModName mn : b.modalist.keySet())
 //        {
 //            addToDownTop(mn);
@@ -156,20 +211,81 @@ public class DesignExt
         }
     }
 
-    private void addToDownTop(ModName mn)
+    private void addToDownTop(ModName mn, Set<ModName> visited, List<ModName> order)
     {
-        if (downTop.containsKey(mn))
+        if (!visited.add(mn))
         {
             return;
         }
         Module<Address> module = b.modalist.get(mn);
         for (ModInst modInst : module.insts)
         {
-            addToDownTop(modInst.modname);
+            addToDownTop(modInst.modname, visited, order);
+        }
+        order.add(mn);
+    }
+
+    /**
+     * Method to run a task for each module in bottom-up order.
+     * With several threads a task of a module starts when tasks of all modules
+     * which it instantiates are finished, so independent modules are processed concurrently.
+     */
+    private void runBottomUp(List<ModName> order, Consumer<ModName> task)
+    {
+        if (numThreads <= 1)
+        {
+            for (ModName mn : order)
+            {
+                task.accept(mn);
+            }
+            return;
+        }
+        ExecutorService pool = ThreadPoolSharedForkJoin.getInstance().getExecutorService();
+        Map<ModName, CompletableFuture<Void>> futures = new HashMap<>();
+        for (ModName mn : order)
+        {
+            List<CompletableFuture<Void>> deps = new ArrayList<>();
+            for (ModInst modInst : b.modalist.get(mn).insts)
+            {
+                deps.add(futures.get(modInst.modname));
+            }
+            Callable<Void> call = ACL2Object.withHonsManager(() ->
+            {
+                task.accept(mn);
+                return null;
+            });
+            CompletableFuture<Void> future = CompletableFuture.allOf(deps.toArray(new CompletableFuture<?>[deps.size()]))
+                .thenRunAsync(() ->
+                {
+                    try
+                    {
+                        call.call();
+                    } catch (RuntimeException e)
+                    {
+                        throw e;
+                    } catch (Exception e)
+                    {
+                        throw new CompletionException(e);
+                    }
+                }, pool);
+            futures.put(mn, future);
+        }
+        try
+        {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()])).join();
+        } catch (CompletionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw e;
         }
-        ModuleExt m = new ModuleExt(this, mn);
-        ModuleExt old = downTop.put(mn, m);
-        Util.check(old == null);
     }
 
     public ModName getTop()
@@ -179,9 +295,43 @@ public class DesignExt
 
     public void computeCombinationalInputs(String clockName)
     {
-        for (ModuleExt m : downTop.values())
+        long startTime = System.nanoTime();
+        runBottomUp(new ArrayList<>(downTop.keySet()), mn -> downTop.get(mn).computeCombinationalInputs(clockName));
+        analysisTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Method to print times to build and to analyze the design,
+     * and the modules which took the most time.
+     *
+     * @param out stream to print to
+     * @param maxModules number of modules to print
+     */
+    public void showTimes(PrintStream out, int maxModules)
+    {
+        long sumBuild = 0, sumAnalysis = 0;
+        List<ModuleExt> modules = new ArrayList<>(downTop.values());
+        for (ModuleExt m : modules)
+        {
+            sumBuild += m.buildTime;
+            sumAnalysis += m.analysisTime;
+        }
+        out.println("Built " + modules.size() + " modules in " + (buildTime / 1000000) + " ms ("
+            + (sumBuild / 1000000) + " ms in modules) and analyzed them in " + (analysisTime / 1000000) + " ms ("
+            + (sumAnalysis / 1000000) + " ms in modules) with " + numThreads + " threads");
+        Collections.sort(modules, new Comparator<ModuleExt>()
+        {
+            @Override
+            public int compare(ModuleExt o1, ModuleExt o2)
+            {
+                return Long.compare(o2.buildTime + o2.analysisTime, o1.buildTime + o1.analysisTime);
+            }
+        });
+        for (int i = 0; i < modules.size() && i < maxModules; i++)
         {
-            m.computeCombinationalInputs(clockName);
+            ModuleExt m = modules.get(i);
+            out.println("  " + m.modName + ": build " + (m.buildTime / 1000000) + " ms, analysis "
+                + (m.analysisTime / 1000000) + " ms");
         }
     }
 }
@@ -29,6 +29,7 @@ import com.sun.electric.tool.simulation.acl2.mods.Util;
 import com.sun.electric.tool.simulation.acl2.svex.BigIntegerUtil;
 import com.sun.electric.tool.simulation.acl2.svex.Svar;
 import com.sun.electric.tool.simulation.acl2.svex.Svex;
+import com.sun.electric.tool.simulation.acl2.svex.SvexEvaluator;
 import com.sun.electric.tool.simulation.acl2.svex.SvexManager;
 import com.sun.electric.tool.simulation.acl2.svex.Vec2;
 import com.sun.electric.tool.simulation.acl2.svex.Vec4;
@@ -133,16 +134,19 @@ public interface DesignHints
             env0.put(scanClkDelayed, Vec2.ZERO);
             env0.put(scanClk, Vec2.ZERO);
         }
+        SvexEvaluator<Address> outEval = new SvexEvaluator<>(svtvOutExprs.values());
+        outEval.setInputs(env0);
+        outEval.eval();
         for (Map.Entry<Svar<Address>, Vec4> e : expectedOut.entrySet())
         {
             Svar<Address> svar = e.getKey();
             Vec4 val = e.getValue();
-            if (!svtvOutExprs.get(svar).eval(env0).equals(val))
+            Vec4 svtvVal = outEval.getValue(svtvOutExprs.get(svar));
+            if (!svtvVal.equals(val))
             {
-                Vec4 svtvVal = svtvOutExprs.get(svar).eval(env0);
                 System.out.println(svtvVal + " " + val);
             }
-            Util.check(svtvOutExprs.get(svar).eval(env0).equals(val));
+            Util.check(svtvVal.equals(val));
         }
 
         Map<Svar<Address>, Vec4> env1 = new HashMap<>();
@@ -153,24 +157,30 @@ public interface DesignHints
             env1.put(scanClkDelayed, Vec2.ZERO);
             env1.put(scanClk, Vec2.ZERO);
         }
+        SvexEvaluator<Address> stateEval = new SvexEvaluator<>(svtvNextStates.values());
+        stateEval.setInputs(env0);
+        stateEval.eval();
         for (Map.Entry<Svar<Address>, Svex<Address>> e : svtvNextStates.entrySet())
         {
             Svar<Address> svar = e.getKey();
             Svex<Address> svex = e.getValue();
-            Vec4 val = svex.eval(env0);
+            Vec4 val = stateEval.getValue(svex);
             env1.put(svar, val);
         }
 
+        // only the cone of changed state and clocks is evaluated again
+        stateEval.setInputs(env1);
+        stateEval.eval();
         for (Map.Entry<Svar<Address>, Vec4> e : expectedState.entrySet())
         {
             Svar<Address> svar = e.getKey();
             Vec4 val = e.getValue();
-            if (!svtvNextStates.get(svar).eval(env1).equals(val))
+            Vec4 svtvVal = stateEval.getValue(svtvNextStates.get(svar));
+            if (!svtvVal.equals(val))
             {
-                Vec4 svtvVal = svtvNextStates.get(svar).eval(env1);
                 System.out.println(svtvVal + " " + val);
             }
-            Util.check(svtvNextStates.get(svar).eval(env1).equals(val));
+            Util.check(svtvVal.equals(val));
         }
     }
 
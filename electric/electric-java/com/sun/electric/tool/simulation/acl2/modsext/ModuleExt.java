@@ -101,6 +101,11 @@ public class ModuleExt /*extends SvarImpl.Builder<PathExt>*/ implements Comparat
     final Map<Svar<PathExt>, BigInteger> stateVars0 = new LinkedHashMap<>();
     final Map<Svar<PathExt>, BigInteger> stateVars1 = new LinkedHashMap<>();
 
+    /** time to build this module in nanoseconds */
+    long buildTime;
+    /** time to compute combinational inputs of this module in nanoseconds */
+    long analysisTime;
+
     final Function<Address, PathExt> rename = new Function<Address, PathExt>()
     {
         @Override
@@ -125,8 +130,9 @@ public class ModuleExt /*extends SvarImpl.Builder<PathExt>*/ implements Comparat
         }
     };
 
-    ModuleExt(DesignExt design, ModName modName)
+    ModuleExt(DesignExt design, ModName modName, Map<ModName, ModuleExt> protos)
     {
+        long startTime = System.nanoTime();
         this.design = design;
         this.modName = modName;
         b = design.b.modalist.get(modName);
@@ -143,7 +149,7 @@ public class ModuleExt /*extends SvarImpl.Builder<PathExt>*/ implements Comparat
         boolean hasSvtvState = false;
         for (ModInst modInst : b.insts)
         {
-            ModInstExt mi = new ModInstExt(this, modInst, insts.size(), design.downTop);
+            ModInstExt mi = new ModInstExt(this, modInst, insts.size(), protos);
             insts.add(mi);
             ModInstExt old = instsIndex.put(mi.getInstname(), mi);
             Util.check(old == null);
@@ -273,27 +279,32 @@ public class ModuleExt /*extends SvarImpl.Builder<PathExt>*/ implements Comparat
         ParameterizedModule parMod = null;
         for (ParameterizedModule parModule : design.paremterizedModules)
         {
-            if (parModule.setCurBuilder(modName, b.sm))
+            // the current builder is shared by modules which are built concurrently
+            synchronized (parModule)
             {
-                assert parMod == null;
-                parMod = parModule;
-                Module<Address> genM = parModule.genModule();
-                if (genM == null)
-                {
-                    System.out.println("Module specializition is unfamiliar " + modName);
-                } else if (!genM.equals(b))
+                if (parModule.setCurBuilder(modName, b.sm))
                 {
-                    System.out.println("Module mismatch " + modName);
-                } else
-                {
-                    Util.check(parModule.getNumInsts() == elabMod.modNInsts());
-                    Util.check(parModule.getNumAssigns() == elabMod.modNAssigns());
-                    Util.check(parModule.getTotalInsts() == elabMod.modTotalInsts());
-                    Util.check(parModule.getTotalAssigns() == elabMod.modTotalAssigns());
+                    assert parMod == null;
+                    parMod = parModule;
+                    Module<Address> genM = parModule.genModule();
+                    if (genM == null)
+                    {
+                        System.out.println("Module specializition is unfamiliar " + modName);
+                    } else if (!genM.equals(b))
+                    {
+                        System.out.println("Module mismatch " + modName);
+                    } else
+                    {
+                        Util.check(parModule.getNumInsts() == elabMod.modNInsts());
+                        Util.check(parModule.getNumAssigns() == elabMod.modNAssigns());
+                        Util.check(parModule.getTotalInsts() == elabMod.modTotalInsts());
+                        Util.check(parModule.getTotalAssigns() == elabMod.modTotalAssigns());
+                    }
                 }
             }
         }
         this.parMod = parMod;
+        buildTime = System.nanoTime() - startTime;
     }
 
     public static void markAssigned(Lhs<PathExt> lhs, BigInteger assignedBits)
@@ -394,7 +405,11 @@ public class ModuleExt /*extends SvarImpl.Builder<PathExt>*/ implements Comparat
         }
     }
 
-    ModExport makeExport(WireExt wire)
+    /**
+     * Method to export a wire of this module.
+     * Parents which are built concurrently may export wires of the same module.
+     */
+    synchronized ModExport makeExport(WireExt wire)
     {
         assert wire.parent == this && wires.get(wire.index) == wire;
         while (exports.size() <= wire.index)
@@ -811,7 +826,7 @@ public class ModuleExt /*extends SvarImpl.Builder<PathExt>*/ implements Comparat
 
     void testAliasesAndCompile()
     {
-        IndexName.curElabMod = elabMod;
+        IndexName.curElabMod.set(elabMod);
         ModDb.FlattenResult flattenResult = elabMod.svexmodFlatten(design.b.modalist);
         SvexManager<IndexName> sm = flattenResult.sm;
         Compile<IndexName> compile = new Compile(flattenResult.aliases.getArr(), flattenResult.assigns, sm);
@@ -819,11 +834,12 @@ public class ModuleExt /*extends SvarImpl.Builder<PathExt>*/ implements Comparat
         testAliases(flattenResult);
         testNormAssigns(compile, sm);
         testAssignsToNetassigns(compile, sm);
-        IndexName.curElabMod = null;
+        IndexName.curElabMod.remove();
     }
 
     void computeCombinationalInputs(String global)
     {
+        long startTime = System.nanoTime();
         checkExports();
         testAliasesAndCompile();
         computeDriverDeps(global, false);
@@ -897,6 +913,7 @@ public class ModuleExt /*extends SvarImpl.Builder<PathExt>*/ implements Comparat
                 out.crudePortStateDep1 = gatherDep(out.crudePortDeps1, out.wire, crudeClosure1);
             }
         }
+        analysisTime = System.nanoTime() - startTime;
     }
 
     private void computeDriverDeps(String global, boolean clkOne)
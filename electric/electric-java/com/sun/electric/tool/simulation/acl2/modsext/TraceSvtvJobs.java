@@ -238,7 +238,7 @@ public class TraceSvtvJobs
                 ModuleExt topMod = design.downTop.get(design.b.top);
                 ElabMod topElabMod = topMod.elabMod;
                 ElabMod.ModScope topScope = new ElabMod.ModScope(topElabMod);
-                IndexName.curElabMod = topMod.elabMod;
+                IndexName.curElabMod.set(topMod.elabMod);
                 ModDb.FlattenResult flattenResult = topMod.elabMod.svexmodFlatten(design.b.modalist);
 
                 List<Lhs<Address>> namedAliases = topScope.aliasesToAddress(flattenResult.aliases, sm);
@@ -348,7 +348,7 @@ public class TraceSvtvJobs
                 return false;
             } finally
             {
-                IndexName.curElabMod = null;
+                IndexName.curElabMod.remove();
                 ACL2Object.closeHonsManager();
             }
             return true;
@@ -678,7 +678,7 @@ public class TraceSvtvJobs
                 ModuleExt topMod = design.downTop.get(design.b.top);
 //                ElabMod topElabMod = topMod.elabMod;
 //                ElabMod.ModScope topScope = new ElabMod.ModScope(topElabMod);
-//                IndexName.curElabMod = topMod.elabMod;
+//                IndexName.curElabMod.set(topMod.elabMod);
 //                ModDb.FlattenResult flattenResult = topMod.elabMod.svexmodFlatten(design.b.modalist);
 
 //                List<Lhs<Address>> namedAliases = topScope.aliasesToAddress(flattenResult.aliases, sm);
@@ -753,7 +753,7 @@ public class TraceSvtvJobs
                 return false;
             } finally
             {
-//                IndexName.curElabMod = null;
+//                IndexName.curElabMod.remove();
                 ACL2Object.closeHonsManager();
             }
             return true;
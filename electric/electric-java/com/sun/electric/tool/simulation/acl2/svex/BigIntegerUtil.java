@@ -61,4 +61,44 @@ public class BigIntegerUtil
         }
         return loghead(size, i).or(j.shiftLeft(size));
     }
+
+    /**
+     * Mask of n low bits as a long.
+     *
+     * @param n number of bits, less than 64
+     * @return mask
+     */
+    public static long logheadMaskLong(int n)
+    {
+        if (n <= 0)
+        {
+            return 0;
+        }
+        assert n < Long.SIZE;
+        return (1L << n) - 1;
+    }
+
+    /**
+     * Number of bits in the minimal two's-complement representation of a long,
+     * the same as BigInteger.valueOf(x).bitLength().
+     *
+     * @param x a long
+     * @return bit length
+     */
+    public static int bitLength(long x)
+    {
+        return Long.SIZE - Long.numberOfLeadingZeros(x < 0 ? ~x : x);
+    }
+
+    /**
+     * Test a bit of a long, the same as BigInteger.valueOf(x).testBit(n).
+     *
+     * @param n nonnegative bit index
+     * @param x a long
+     * @return true if the bit is set
+     */
+    public static boolean testBit(long n, long x)
+    {
+        return n < Long.SIZE ? ((x >> n) & 1) != 0 : x < 0;
+    }
 }
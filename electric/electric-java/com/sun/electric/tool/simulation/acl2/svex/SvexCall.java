@@ -258,7 +258,7 @@ public abstract class SvexCall<N extends SvarName> extends Svex<N>
                 Vec4 wval = ((SvexQuote)width).val;
                 if (wval.isVec2() && ((Vec2)wval).getVal().signum() >= 0)
                 {
-                    return new MatchExt<>(((Vec2)wval).getVal().intValueExact(), args[1],
+                    return new MatchExt<>(((Vec2)wval).intValueExact(), args[1],
                         fun == Vec4SignExt.FUNCTION);
                 }
             }
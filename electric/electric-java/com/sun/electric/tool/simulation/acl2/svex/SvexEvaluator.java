@@ -0,0 +1,276 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SvexEvaluator.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.svex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluator of a list of Svex expressions compiled into a flat instruction array.
+ * The DAG is ordered by Svex.listToposort once. Each node gets a slot in a register file of Vec4 values.
+ * Each function call becomes an instruction with its function and the slots of its operands.
+ * Setting inputs marks the instructions that read them, and eval() re-evaluates only the cone
+ * of instructions whose operands changed since the previous evaluation.
+ * Unassigned variables are X, so an evaluator without inputs computes xeval.
+ * An evaluator is not thread-safe.
+ *
+ * @param <N> Type of name of Svex variables
+ */
+public class SvexEvaluator<N extends SvarName>
+{
+    private final Map<Svex<N>, Integer> slots = new HashMap<>();
+    private final Map<Svar<N>, Integer> inputSlots = new HashMap<>();
+    private final List<Svar<N>> inputs;
+    /** register file indexed by slot */
+    private final Vec4[] regs;
+    /** function of each instruction */
+    private final SvexFunction[] funs;
+    /** slot of the result of each instruction */
+    private final int[] dests;
+    /** start of operand slots of each instruction in operands */
+    private final int[] operandStart;
+    /** operand slots of all instructions */
+    private final int[] operands;
+    /** start of instructions reading each slot in fanouts */
+    private final int[] fanoutStart;
+    /** instructions reading each slot, in increasing order */
+    private final int[] fanouts;
+    /** instructions to re-evaluate */
+    private final BitSet dirty = new BitSet();
+    /** operand buffers, for each arity */
+    private final Vec4[][] argBufs;
+    private long numEvaluated;
+
+    /**
+     * Compile a list of Svex expressions.
+     *
+     * @param exprs expressions to evaluate
+     */
+    public SvexEvaluator(Collection<Svex<N>> exprs)
+    {
+        Svex<N>[] topDown = Svex.listToposort(exprs);
+        int numSlots = topDown.length;
+        regs = new Vec4[numSlots];
+        int numInstrs = 0;
+        int numOperands = 0;
+        int maxArity = 0;
+        Svar<N>[] vars = Svar.newSvarArray(numSlots);
+        int numVars = 0;
+        for (int i = 0; i < numSlots; i++)
+        {
+            Svex<N> svex = topDown[numSlots - 1 - i];
+            slots.put(svex, i);
+            if (svex instanceof SvexCall)
+            {
+                SvexCall<N> sc = (SvexCall<N>)svex;
+                numInstrs++;
+                numOperands += sc.args.length;
+                maxArity = Math.max(maxArity, sc.args.length);
+            } else if (svex instanceof SvexVar)
+            {
+                Svar<N> svar = ((SvexVar<N>)svex).svar;
+                inputSlots.put(svar, i);
+                vars[numVars++] = svar;
+                regs[i] = Vec4.X;
+            } else
+            {
+                regs[i] = ((SvexQuote<N>)svex).val;
+            }
+        }
+        inputs = Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(vars, numVars)));
+
+        // lay out instructions in bottom-up order
+        funs = new SvexFunction[numInstrs];
+        dests = new int[numInstrs];
+        operandStart = new int[numInstrs + 1];
+        operands = new int[numOperands];
+        int[] fanoutCount = new int[numSlots + 1];
+        int instr = 0;
+        int op = 0;
+        for (int i = 0; i < numSlots; i++)
+        {
+            Svex<N> svex = topDown[numSlots - 1 - i];
+            if (svex instanceof SvexCall)
+            {
+                SvexCall<N> sc = (SvexCall<N>)svex;
+                funs[instr] = sc.fun;
+                dests[instr] = i;
+                operandStart[instr] = op;
+                for (Svex<N> arg : sc.args)
+                {
+                    int slot = slots.get(arg);
+                    assert slot < i;
+                    operands[op++] = slot;
+                    fanoutCount[slot]++;
+                }
+                instr++;
+            }
+        }
+        operandStart[numInstrs] = op;
+
+        // invert operands into fanouts
+        fanoutStart = new int[numSlots + 1];
+        for (int i = 0; i < numSlots; i++)
+        {
+            fanoutStart[i + 1] = fanoutStart[i] + fanoutCount[i];
+        }
+        fanouts = new int[numOperands];
+        int[] fill = Arrays.copyOf(fanoutStart, numSlots);
+        for (instr = 0; instr < numInstrs; instr++)
+        {
+            for (op = operandStart[instr]; op < operandStart[instr + 1]; op++)
+            {
+                fanouts[fill[operands[op]]++] = instr;
+            }
+        }
+
+        argBufs = new Vec4[maxArity + 1][];
+        for (int arity = 0; arity <= maxArity; arity++)
+        {
+            argBufs[arity] = new Vec4[arity];
+        }
+        dirty.set(0, numInstrs);
+    }
+
+    /**
+     * Variables of the compiled expressions.
+     *
+     * @return list of variables
+     */
+    public List<Svar<N>> getInputs()
+    {
+        return inputs;
+    }
+
+    /**
+     * Set the value of a variable. Values of variables which don't occur in the expressions are ignored.
+     *
+     * @param svar variable
+     * @param val new value or null for X
+     */
+    public void setInput(Svar<N> svar, Vec4 val)
+    {
+        Integer slot = inputSlots.get(svar);
+        if (slot != null)
+        {
+            setSlot(slot, val != null ? val : Vec4.X);
+        }
+    }
+
+    /**
+     * Set values of all variables from an environment, as Svex.eval does.
+     * Variables missing from the environment become X.
+     *
+     * @param env environment
+     */
+    public void setInputs(Map<Svar<N>, Vec4> env)
+    {
+        for (Map.Entry<Svar<N>, Integer> e : inputSlots.entrySet())
+        {
+            Vec4 val = env.get(e.getKey());
+            setSlot(e.getValue(), val != null ? val : Vec4.X);
+        }
+    }
+
+    private void setSlot(int slot, Vec4 val)
+    {
+        if (!val.equals(regs[slot]))
+        {
+            regs[slot] = val;
+            markFanouts(slot);
+        }
+    }
+
+    private void markFanouts(int slot)
+    {
+        for (int j = fanoutStart[slot]; j < fanoutStart[slot + 1]; j++)
+        {
+            dirty.set(fanouts[j]);
+        }
+    }
+
+    /**
+     * Evaluate instructions whose operands changed since the previous evaluation.
+     */
+    public void eval()
+    {
+        for (int instr = dirty.nextSetBit(0); instr >= 0; instr = dirty.nextSetBit(instr + 1))
+        {
+            int start = operandStart[instr];
+            Vec4[] args = argBufs[operandStart[instr + 1] - start];
+            for (int i = 0; i < args.length; i++)
+            {
+                args[i] = regs[operands[start + i]];
+            }
+            Vec4 val = funs[instr].apply(args);
+            int dest = dests[instr];
+            if (!val.equals(regs[dest]))
+            {
+                regs[dest] = val;
+                markFanouts(dest);
+            }
+            numEvaluated++;
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Value of a compiled expression or of any of its subexpressions after eval().
+     *
+     * @param svex expression
+     * @return value of the expression
+     */
+    public Vec4 getValue(Svex<N> svex)
+    {
+        Integer slot = slots.get(svex);
+        if (slot == null)
+        {
+            throw new IllegalArgumentException();
+        }
+        return regs[slot];
+    }
+
+    /**
+     * Number of instructions.
+     *
+     * @return number of function calls in the DAG
+     */
+    public int getNumInstructions()
+    {
+        return funs.length;
+    }
+
+    /**
+     * Number of instructions evaluated since the evaluator was created.
+     *
+     * @return number of function applications
+     */
+    public long getNumEvaluated()
+    {
+        return numEvaluated;
+    }
+}
@@ -133,6 +133,20 @@ public abstract class SvexFunction
 
     protected Vec4 shiftCore(int amt, Vec4 src)
     {
+        if (src.isLong())
+        {
+            long u = src.getUpperLong();
+            long l = src.getLowerLong();
+            if (amt <= 0)
+            {
+                int sh = Math.min(-amt, Long.SIZE - 1);
+                return Vec4.valueOf(u >> sh, l >> sh);
+            }
+            if (amt < Long.SIZE && (u << amt) >> amt == u && (l << amt) >> amt == l)
+            {
+                return Vec4.valueOf(u << amt, l << amt);
+            }
+        }
         if (amt >= Vec4.BIT_LIMIT)
         {
             if (src.getUpper().signum() != 0 || src.getLower().signum() != 0)
@@ -150,6 +164,27 @@ public abstract class SvexFunction
             src.getLower().shiftLeft(amt));
     }
 
+    // x and y must be backed by longs
+    protected Vec4 eq(Vec4 x, Vec4 y, long zMask)
+    {
+        if (x.isVec2() && y.isVec2() && zMask == 0)
+        {
+            return Vec2.valueOf(x.getLowerLong() == y.getLowerLong());
+        }
+        long xMask = x.getUpperLong() ^ x.getLowerLong()
+            | y.getUpperLong() ^ y.getLowerLong();
+        // 3vec-bitnot(4vec-bitxor(x,y))
+        long u = ~((x.getLowerLong() ^ y.getLowerLong()) & ~xMask);
+        long l = ~(x.getUpperLong() ^ y.getUpperLong() | xMask);
+        u |= zMask;
+        l |= zMask;
+        if (l == u)
+        {
+            return Vec2.valueOf(u == -1);
+        }
+        return u == -1 ? Vec4.X : Vec2.ZERO;
+    }
+
     protected Vec4 eq(Vec4 x, Vec4 y, BigInteger zMask)
     {
         if (x.isVec2() && y.isVec2() && zMask.signum() == 0)
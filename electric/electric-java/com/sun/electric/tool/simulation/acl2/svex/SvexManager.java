@@ -21,18 +21,20 @@
  */
 package com.sun.electric.tool.simulation.acl2.svex;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Manager of canonical Svex calls and variables.
+ * A manager is thread-safe, so several threads may build expressions in it.
  *
  * @param <N>
  */
 public class SvexManager<N extends SvarName>
 {
-    Map<SvexCall<N>, SvexCall<N>> svexCalls = new HashMap<>();
-    Map<N, SvexVar<N>> nondelayedVars = new HashMap<>();
-    Map<Svar<N>, SvexVar<N>> delayedVars = new HashMap<>();
+    Map<SvexCall<N>, SvexCall<N>> svexCalls = new ConcurrentHashMap<>();
+    Map<N, SvexVar<N>> nondelayedVars = new ConcurrentHashMap<>();
+    Map<Svar<N>, SvexVar<N>> delayedVars = new ConcurrentHashMap<>();
 
     @SafeVarargs
     public final SvexCall<N> newCall(SvexFunction fun, Svex<N>... args)
@@ -41,9 +43,13 @@ public class SvexManager<N extends SvarName>
         SvexCall<N> canonic = svexCalls.get(svex);
         if (canonic == null)
         {
-            canonic = svex;
-            canonic.setOwner(this);
-            svexCalls.put(svex, canonic);
+            // the owner is set after publication, because calls with the same owner are compared by identity
+            canonic = svexCalls.putIfAbsent(svex, svex);
+            if (canonic == null)
+            {
+                canonic = svex;
+                canonic.setOwner(this);
+            }
         }
         return canonic;
     }
@@ -53,9 +59,7 @@ public class SvexManager<N extends SvarName>
         SvexVar<N> canonic = nondelayedVars.get(name);
         if (canonic == null)
         {
-            Svar<N> svar = new SvarImpl<>(name, 0);
-            canonic = new SvexVar<>(svar);
-            nondelayedVars.put(name, canonic);
+            canonic = nondelayedVars.computeIfAbsent(name, n -> new SvexVar<>(new SvarImpl<>(n, 0)));
         }
         return canonic;
     }
@@ -82,8 +86,7 @@ public class SvexManager<N extends SvarName>
         canonic = delayedVars.get(svar);
         if (canonic == null)
         {
-            canonic = new SvexVar<>(svar);
-            delayedVars.put(svar, canonic);
+            canonic = delayedVars.computeIfAbsent(svar, SvexVar::new);
         }
         return canonic;
     }
@@ -24,10 +24,10 @@ package com.sun.electric.tool.simulation.acl2.svex;
 import com.sun.electric.tool.simulation.acl2.mods.Lhs;
 import static com.sun.electric.util.acl2.ACL2.*;
 import com.sun.electric.util.acl2.ACL2Object;
+import com.sun.electric.util.collections.WeakInternTable;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,7 +46,7 @@ public class SvexQuote<N extends SvarName> extends Svex<N>
 
     private static final int SMALL_CACHE_EXP_LIMIT = 10;
     private static final List<SvexQuote<?>> smallCache = new ArrayList<>();
-    private static final Map<Vec4, SvexQuote<?>> INTERN = new HashMap<>();
+    private static final WeakInternTable<Vec4, SvexQuote<?>> INTERN = new WeakInternTable<>((k, v) -> k.equals(v.val));
 
     private static final SvexQuote<?> X = new SvexQuote<>(Vec4.X);
     private static final SvexQuote<?> Z = new SvexQuote<>(Vec4.Z);
@@ -58,8 +58,8 @@ public class SvexQuote<N extends SvarName> extends Svex<N>
             SvexQuote<?> sq = new SvexQuote<>(Vec2.valueOf(v));
             smallCache.add(sq);
         }
-        INTERN.put(X.val, X);
-        INTERN.put(Z.val, Z);
+        INTERN.intern(X.val, k -> X);
+        INTERN.intern(Z.val, k -> Z);
     }
 
     private SvexQuote(Vec4 val)
@@ -94,16 +94,7 @@ public class SvexQuote<N extends SvarName> extends Svex<N>
                 return (Svex<N>)smallCache.get(bv.intValueExact());
             }
         }
-        synchronized (INTERN)
-        {
-            SvexQuote<?> sv = INTERN.get(val);
-            if (sv == null)
-            {
-                sv = new SvexQuote<>(val);
-                INTERN.put(val, sv);
-            }
-            return (Svex<N>)sv;
-        }
+        return (Svex<N>)INTERN.intern(val, SvexQuote::new);
     }
 
     public static <N extends SvarName> Svex<N> valueOf(BigInteger val)
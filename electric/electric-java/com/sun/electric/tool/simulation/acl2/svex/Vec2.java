@@ -23,9 +23,8 @@ package com.sun.electric.tool.simulation.acl2.svex;
 
 import static com.sun.electric.util.acl2.ACL2.*;
 import com.sun.electric.util.acl2.ACL2Object;
+import com.sun.electric.util.collections.WeakInternTable;
 import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * A 2vec is a 4vec that has no X or Z bits..
@@ -33,12 +32,24 @@ import java.util.Map;
  */
 public class Vec2 extends Vec4
 {
-    private static final Map<BigInteger, Vec2> INTERN = new HashMap<>();
+    private static final WeakInternTable<BigInteger, Vec2> INTERN = new WeakInternTable<>((k, v) -> k.equals(v.val));
+    private static final int SMALL_MIN = -128;
+    private static final int SMALL_MAX = 1023;
+    private static final Vec2[] SMALL = new Vec2[SMALL_MAX - SMALL_MIN + 1];
+
+    static
+    {
+        for (int i = 0; i < SMALL.length; i++)
+        {
+            SMALL[i] = new Vec2(SMALL_MIN + i);
+        }
+    }
 
     public static final Vec2 ZERO = valueOf(0);
     public static final Vec2 ONE = valueOf(1);
     public static final Vec2 MINUS_ONE = valueOf(-1);
 
+    private final long longVal;
     private final BigInteger val;
 
     private Vec2(BigInteger val)
@@ -48,30 +59,36 @@ public class Vec2 extends Vec4
             throw new NullPointerException();
         }
         this.val = val;
+        longVal = val.longValue();
+    }
+
+    private Vec2(long val)
+    {
+        this.val = null;
+        longVal = val;
     }
 
     public static Vec2 valueOf(BigInteger val)
     {
-        synchronized (INTERN)
+        if (val.bitLength() < Long.SIZE)
         {
-            Vec2 result = INTERN.get(val);
-            if (result == null)
-            {
-                result = new Vec2(val);
-                INTERN.put(val, result);
-            }
-            return result;
+            return valueOf(val.longValue());
         }
+        return INTERN.intern(val, Vec2::new);
     }
 
     public static Vec2 valueOf(long val)
     {
-        return valueOf(BigInteger.valueOf(val));
+        if (val >= SMALL_MIN && val <= SMALL_MAX)
+        {
+            return SMALL[(int)val - SMALL_MIN];
+        }
+        return new Vec2(val);
     }
 
     public static Vec2 valueOf(int val)
     {
-        return valueOf(BigInteger.valueOf(val));
+        return valueOf((long)val);
     }
 
     public static Vec2 valueOf(boolean b)
@@ -81,7 +98,22 @@ public class Vec2 extends Vec4
 
     public BigInteger getVal()
     {
-        return val;
+        return val != null ? val : BigInteger.valueOf(longVal);
+    }
+
+    /**
+     * Value of a 2vec for which isLong() is true.
+     *
+     * @return value as a long
+     */
+    public long getLongVal()
+    {
+        return longVal;
+    }
+
+    public int intValueExact()
+    {
+        return val != null ? val.intValueExact() : Math.toIntExact(longVal);
     }
 
     @Override
@@ -93,7 +125,7 @@ public class Vec2 extends Vec4
     @Override
     public boolean isIndex()
     {
-        return val.signum() >= 0;
+        return val != null ? val.signum() >= 0 : longVal >= 0;
     }
 
     @Override
@@ -105,13 +137,31 @@ public class Vec2 extends Vec4
     @Override
     public BigInteger getUpper()
     {
-        return val;
+        return getVal();
     }
 
     @Override
     public BigInteger getLower()
     {
-        return val;
+        return getVal();
+    }
+
+    @Override
+    public boolean isLong()
+    {
+        return val == null;
+    }
+
+    @Override
+    public long getUpperLong()
+    {
+        return longVal;
+    }
+
+    @Override
+    public long getLowerLong()
+    {
+        return longVal;
     }
 
     @Override
@@ -123,19 +173,28 @@ public class Vec2 extends Vec4
     @Override
     public boolean equals(Object o)
     {
-        return o instanceof Vec2 && val.equals(((Vec2)o).val);
+        if (o instanceof Vec2)
+        {
+            Vec2 that = (Vec2)o;
+            if (this.val == null || that.val == null)
+            {
+                return this.val == that.val && this.longVal == that.longVal;
+            }
+            return this.val.equals(that.val);
+        }
+        return false;
     }
 
     @Override
     public int hashCode()
     {
-        return val.hashCode();
+        return val != null ? val.hashCode() : ACL2Object.hashCodeOf(longVal);
     }
 
     @Override
     public ACL2Object getACL2Object()
     {
-        ACL2Object result = honscopy(ACL2Object.valueOf(val));
+        ACL2Object result = honscopy(ACL2Object.valueOf(getVal()));
         assert result.hashCode() == hashCode();
         return result;
     }
@@ -143,6 +202,6 @@ public class Vec2 extends Vec4
     @Override
     public String toString()
     {
-        return val.toString();
+        return val != null ? val.toString() : Long.toString(longVal);
     }
 }
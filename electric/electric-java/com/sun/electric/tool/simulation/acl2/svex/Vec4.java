@@ -24,9 +24,8 @@ package com.sun.electric.tool.simulation.acl2.svex;
 import static com.sun.electric.util.acl2.ACL2.*;
 import com.sun.electric.util.acl2.ACL2Backed;
 import com.sun.electric.util.acl2.ACL2Object;
+import com.sun.electric.util.collections.WeakInternTable;
 import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * The fundamental 4-valued vector representation used throughout SV expressions.
@@ -34,12 +33,12 @@ import java.util.Map;
  */
 public abstract class Vec4 implements ACL2Backed
 {
-    private static final Map<Impl, Impl> INTERN = new HashMap<>();
+    private static final WeakInternTable<Impl, Impl> INTERN = new WeakInternTable<>(Impl::equals);
 
-    public static final Vec4 X = valueOf(BigInteger.valueOf(-1), BigInteger.valueOf(0));
-    public static final Vec4 Z = valueOf(BigInteger.valueOf(0), BigInteger.valueOf(-1));
-    public static final Vec4 X1 = valueOf(BigInteger.valueOf(1), BigInteger.valueOf(0));
-    public static final Vec4 Z1 = valueOf(BigInteger.valueOf(0), BigInteger.valueOf(1));
+    public static final Vec4 X = valueOf(-1L, 0L);
+    public static final Vec4 Z = valueOf(0L, -1L);
+    public static final Vec4 X1 = valueOf(1L, 0L);
+    public static final Vec4 Z1 = valueOf(0L, 1L);
 
     public abstract boolean isVec2();
 
@@ -51,6 +50,28 @@ public abstract class Vec4 implements ACL2Backed
 
     public abstract BigInteger getLower();
 
+    /**
+     * Tell whether both upper and lower values of this 4vec fit in a long.
+     * Such 4vecs are backed by two longs and their operations don't allocate BigIntegers.
+     *
+     * @return true if getUpperLong() and getLowerLong() are exact
+     */
+    public abstract boolean isLong();
+
+    /**
+     * Upper value of a 4vec for which isLong() is true.
+     *
+     * @return upper value as a long
+     */
+    public abstract long getUpperLong();
+
+    /**
+     * Lower value of a 4vec for which isLong() is true.
+     *
+     * @return lower value as a long
+     */
+    public abstract long getLowerLong();
+
     public static final int BIT_LIMIT = 1 << 24;
 
     public static Vec4 valueOf(BigInteger upper, BigInteger lower)
@@ -59,17 +80,20 @@ public abstract class Vec4 implements ACL2Backed
         {
             return Vec2.valueOf(upper);
         }
-        Impl key = new Impl(upper, lower);
-        synchronized (INTERN)
+        if (upper.bitLength() < Long.SIZE && lower.bitLength() < Long.SIZE)
         {
-            Impl result = INTERN.get(key);
-            if (result == null)
-            {
-                result = key;
-                INTERN.put(key, result);
-            }
-            return result;
+            return new Impl(upper.longValue(), lower.longValue());
+        }
+        return INTERN.intern(new Impl(upper, lower), key -> key);
+    }
+
+    public static Vec4 valueOf(long upper, long lower)
+    {
+        if (upper == lower)
+        {
+            return Vec2.valueOf(upper);
         }
+        return new Impl(upper, lower);
     }
 
     public static Vec4 fromACL2(ACL2Object impl)
@@ -92,6 +116,8 @@ public abstract class Vec4 implements ACL2Backed
 
     static class Impl extends Vec4
     {
+        private final long upperLong;
+        private final long lowerLong;
         private final BigInteger upper;
         private final BigInteger lower;
         private final int hashCode;
@@ -104,9 +130,24 @@ public abstract class Vec4 implements ACL2Backed
             }
             this.upper = upper;
             this.lower = lower;
+            upperLong = upper.longValue();
+            lowerLong = lower.longValue();
             hashCode = ACL2Object.hashCodeOfCons(upper.hashCode(), lower.hashCode());
         }
 
+        Impl(long upper, long lower)
+        {
+            if (upper == lower)
+            {
+                throw new IllegalArgumentException();
+            }
+            this.upper = null;
+            this.lower = null;
+            upperLong = upper;
+            lowerLong = lower;
+            hashCode = ACL2Object.hashCodeOfCons(ACL2Object.hashCodeOf(upper), ACL2Object.hashCodeOf(lower));
+        }
+
         @Override
         public boolean isVec2()
         {
@@ -122,19 +163,41 @@ public abstract class Vec4 implements ACL2Backed
         @Override
         public boolean isVec3()
         {
+            if (upper == null)
+            {
+                return (lowerLong & ~upperLong) == 0;
+            }
             return lower.andNot(upper).signum() == 0;
         }
 
         @Override
         public BigInteger getUpper()
         {
-            return upper;
+            return upper != null ? upper : BigInteger.valueOf(upperLong);
         }
 
         @Override
         public BigInteger getLower()
         {
-            return lower;
+            return lower != null ? lower : BigInteger.valueOf(lowerLong);
+        }
+
+        @Override
+        public boolean isLong()
+        {
+            return upper == null;
+        }
+
+        @Override
+        public long getUpperLong()
+        {
+            return upperLong;
+        }
+
+        @Override
+        public long getLowerLong()
+        {
+            return lowerLong;
         }
 
         @Override
@@ -143,6 +206,9 @@ public abstract class Vec4 implements ACL2Backed
             if (isVec3())
             {
                 return this;
+            } else if (upper == null)
+            {
+                return valueOf(upperLong | lowerLong, upperLong & lowerLong);
             } else
             {
                 return valueOf(upper.or(lower), upper.and(lower));
@@ -155,6 +221,10 @@ public abstract class Vec4 implements ACL2Backed
             if (o instanceof Impl)
             {
                 Impl that = (Impl)o;
+                if (this.upper == null || that.upper == null)
+                {
+                    return this.upper == that.upper && this.upperLong == that.upperLong && this.lowerLong == that.lowerLong;
+                }
                 return this.upper.equals(that.upper) && this.lower.equals(that.lower);
             }
             return false;
@@ -169,7 +239,7 @@ public abstract class Vec4 implements ACL2Backed
         @Override
         public ACL2Object getACL2Object()
         {
-            ACL2Object result = hons(ACL2Object.valueOf(upper), ACL2Object.valueOf(lower));
+            ACL2Object result = hons(ACL2Object.valueOf(getUpper()), ACL2Object.valueOf(getLower()));
             assert result.hashCode() == hashCode();
             return result;
         }
@@ -177,7 +247,7 @@ public abstract class Vec4 implements ACL2Backed
         @Override
         public String toString()
         {
-            return "vec4[" + upper + "," + lower + "]";
+            return "vec4[" + getUpper() + "," + getLower() + "]";
         }
     }
 }
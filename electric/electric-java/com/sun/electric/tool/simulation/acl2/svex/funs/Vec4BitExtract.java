@@ -21,6 +21,7 @@
  */
 package com.sun.electric.tool.simulation.acl2.svex.funs;
 
+import com.sun.electric.tool.simulation.acl2.svex.BigIntegerUtil;
 import com.sun.electric.tool.simulation.acl2.svex.SvarName;
 import com.sun.electric.tool.simulation.acl2.svex.Svex;
 import com.sun.electric.tool.simulation.acl2.svex.SvexCall;
@@ -59,7 +60,7 @@ public class Vec4BitExtract<N extends SvarName> extends SvexCall<N>
             Vec4 ival = ((SvexQuote)index).val;
             if (ival.isVec2())
             {
-                int iv = ((Vec2)ival).getVal().intValueExact();
+                int iv = ((Vec2)ival).intValueExact();
                 if (iv >= 0)
                 {
                     Svex<N> svexRsh = sm.newCall(Vec4Rsh.FUNCTION, index, x.lhsPreproc(sm));
@@ -90,9 +91,15 @@ public class Vec4BitExtract<N extends SvarName> extends SvexCall<N>
             Vec4 x = args[1];
             if (index.isVec2())
             {
-                int indv = ((Vec2)index).getVal().intValueExact();
+                int indv = ((Vec2)index).intValueExact();
                 if (indv >= 0)
                 {
+                    if (x.isLong())
+                    {
+                        return BigIntegerUtil.testBit(indv, x.getUpperLong())
+                            ? (BigIntegerUtil.testBit(indv, x.getLowerLong()) ? Vec2.ONE : Vec4.X1)
+                            : (BigIntegerUtil.testBit(indv, x.getLowerLong()) ? Vec2.Z1 : Vec2.ZERO);
+                    }
                     if (x.isVec2())
                     {
                         BigInteger xv = ((Vec2)x).getVal();
@@ -119,7 +126,7 @@ public class Vec4BitExtract<N extends SvarName> extends SvexCall<N>
                     nMask, nMask
                 };
             }
-            int indexV = ((Vec2)indexVal).getVal().intValueExact();
+            int indexV = ((Vec2)indexVal).intValueExact();
             if (indexV >= 0 && mask.testBit(0))
             {
                 return new BigInteger[]
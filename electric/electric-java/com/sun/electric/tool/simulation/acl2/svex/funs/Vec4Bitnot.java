@@ -68,6 +68,10 @@ public class Vec4Bitnot<N extends SvarName> extends SvexCall<N>
 
         private Vec4 apply3(Vec4 x)
         {
+            if (x.isLong())
+            {
+                return Vec4.valueOf(~x.getLowerLong(), ~x.getUpperLong());
+            }
             if (x.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
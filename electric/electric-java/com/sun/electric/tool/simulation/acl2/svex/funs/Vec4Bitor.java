@@ -70,6 +70,12 @@ public class Vec4Bitor<N extends SvarName> extends SvexCall<N>
 
         private Vec4 apply3(Vec4 x, Vec4 y)
         {
+            if (x.isLong() && y.isLong())
+            {
+                return Vec4.valueOf(
+                    x.getUpperLong() | y.getUpperLong(),
+                    x.getLowerLong() | y.getLowerLong());
+            }
             if (x.isVec2() && y.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
@@ -67,6 +67,14 @@ public class Vec4Bitxor<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isLong() && y.isLong())
+            {
+                long xmask = x.getUpperLong() ^ x.getLowerLong()
+                    | y.getUpperLong() ^ y.getLowerLong();
+                return Vec4.valueOf(
+                    x.getUpperLong() ^ y.getUpperLong() | xmask,
+                    (x.getLowerLong() ^ y.getLowerLong()) & ~xmask);
+            }
             if (x.isVec2() && y.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
@@ -79,6 +79,11 @@ public class Vec4CaseEquality<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isLong() && y.isLong())
+            {
+                return Vec2.valueOf(x.getUpperLong() == y.getUpperLong()
+                    && x.getLowerLong() == y.getLowerLong());
+            }
             if (x.isVec2() && y.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
@@ -21,6 +21,7 @@
  */
 package com.sun.electric.tool.simulation.acl2.svex.funs;
 
+import com.sun.electric.tool.simulation.acl2.svex.BigIntegerUtil;
 import com.sun.electric.tool.simulation.acl2.svex.SvarName;
 import com.sun.electric.tool.simulation.acl2.svex.Svex;
 import com.sun.electric.tool.simulation.acl2.svex.SvexCall;
@@ -64,6 +65,10 @@ public class Vec4Clog2<N extends SvarName> extends SvexCall<N>
         public Vec4 apply(Vec4... args)
         {
             Vec4 x = args[0];
+            if (x.isVec2() && x.isLong() && x.getLowerLong() != Long.MIN_VALUE)
+            {
+                return Vec2.valueOf(BigIntegerUtil.bitLength(x.getLowerLong() - 1));
+            }
             if (x.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
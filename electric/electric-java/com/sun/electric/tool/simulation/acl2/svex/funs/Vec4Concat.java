@@ -73,7 +73,7 @@ public class Vec4Concat<N extends SvarName> extends SvexCall<N>
     public Lhs<N> lhsBound(int w)
     {
         Vec2 widVal = (Vec2)((SvexQuote<N>)width).val;
-        int wv = widVal.getVal().intValueExact();
+        int wv = widVal.intValueExact();
         return w <= wv ? low.lhsBound(w) : low.lhsBound(wv).concat(wv, high.lhsBound(w - wv));
     }
 
@@ -81,7 +81,7 @@ public class Vec4Concat<N extends SvarName> extends SvexCall<N>
     public Lhs<N> toLhs()
     {
         Vec2 widVal = (Vec2)((SvexQuote<N>)width).val;
-        int wv = widVal.getVal().intValueExact();
+        int wv = widVal.intValueExact();
         return low.lhsBound(wv).concat(wv, high.toLhs());
     }
 
@@ -93,7 +93,7 @@ public class Vec4Concat<N extends SvarName> extends SvexCall<N>
             Vec4 wval = ((SvexQuote)width).val;
             if (wval.isVec2() && ((Vec2)wval).getVal().signum() >= 0)
             {
-                return new MatchConcat<>(((Vec2)wval).getVal().intValueExact(), low, high);
+                return new MatchConcat<>(((Vec2)wval).intValueExact(), low, high);
             }
         }
         return super.matchConcat();
@@ -107,7 +107,7 @@ public class Vec4Concat<N extends SvarName> extends SvexCall<N>
             Vec4 wval = ((SvexQuote)width).val;
             if (wval.isVec2())
             {
-                int wv = ((Vec2)wval).getVal().intValueExact();
+                int wv = ((Vec2)wval).intValueExact();
                 if (wv >= 0)
                 {
                     if (wv <= shift)
@@ -179,9 +179,21 @@ public class Vec4Concat<N extends SvarName> extends SvexCall<N>
             Vec4 h = args[2];
             if (width.isVec2())
             {
-                int wval = ((Vec2)width).getVal().intValueExact();
+                int wval = ((Vec2)width).intValueExact();
                 if (wval >= 0)
                 {
+                    if (wval < Long.SIZE && l.isLong() && h.isLong())
+                    {
+                        long hu = h.getUpperLong();
+                        long hl = h.getLowerLong();
+                        if ((hu << wval) >> wval == hu && (hl << wval) >> wval == hl)
+                        {
+                            long mask = BigIntegerUtil.logheadMaskLong(wval);
+                            return Vec4.valueOf(
+                                l.getUpperLong() & mask | hu << wval,
+                                l.getLowerLong() & mask | hl << wval);
+                        }
+                    }
                     if (l.isVec2() && h.isVec2())
                     {
                         BigInteger lv = ((Vec2)l).getVal();
@@ -236,7 +248,7 @@ public class Vec4Concat<N extends SvarName> extends SvexCall<N>
                     BigIntegerUtil.MINUS_ONE, argMask, argMask
                 };
             }
-            int widthV = ((Vec2)widthVal).getVal().intValueExact();
+            int widthV = ((Vec2)widthVal).intValueExact();
             if (widthV < 0)
             {
                 return new BigInteger[]
@@ -64,6 +64,11 @@ public class Vec4Countones<N extends SvarName> extends SvexCall<N>
         public Vec4 apply(Vec4... args)
         {
             Vec4 x = args[0];
+            if (x.isVec2() && x.isLong())
+            {
+                long xv = x.getLowerLong();
+                return xv >= 0 ? Vec2.valueOf(Long.bitCount(xv)) : Vec4.X;
+            }
             if (x.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
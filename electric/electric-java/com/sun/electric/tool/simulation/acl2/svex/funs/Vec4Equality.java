@@ -66,6 +66,10 @@ public class Vec4Equality<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isLong() && y.isLong())
+            {
+                return eq(x, y, 0L);
+            }
             return eq(x, y, BigInteger.ZERO);
         }
 
@@ -72,6 +72,19 @@ public class Vec4IteBit<N extends SvarName> extends SvexCall<N>
 
         private Vec4 apply3(Vec4 test, Vec4 th, Vec4 el)
         {
+            if (test.isLong() && th.isLong() && el.isLong())
+            {
+                long tu = test.getUpperLong();
+                long tl = test.getLowerLong();
+                long testX = tu & ~tl;
+                long thu = th.getUpperLong();
+                long thl = th.getLowerLong();
+                long elu = el.getUpperLong();
+                long ell = el.getLowerLong();
+                return Vec4.valueOf(
+                    thu & tl | elu & ~tu | testX & (thu | thl | elu | ell),
+                    thl & tl | ell & ~tu | testX & thu & thl & elu & ell);
+            }
             if (test.isVec2())
             {
                 BigInteger testv = ((Vec2)test).getVal();
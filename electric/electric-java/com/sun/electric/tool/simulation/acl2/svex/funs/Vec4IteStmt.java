@@ -73,6 +73,23 @@ public class Vec4IteStmt<N extends SvarName> extends SvexCall<N>
 
         private Vec4 apply3(Vec4 test, Vec4 th, Vec4 el)
         {
+            if (test.isLong())
+            {
+                if (test.getUpperLong() == 0)
+                {
+                    return el;
+                }
+                if (test.getLowerLong() != 0)
+                {
+                    return th;
+                }
+                if (th.isLong() && el.isLong())
+                {
+                    return Vec4.valueOf(
+                        th.getUpperLong() | el.getUpperLong() | th.getLowerLong() ^ el.getLowerLong(),
+                        th.getLowerLong() & el.getLowerLong() & ~(th.getUpperLong() ^ el.getUpperLong()));
+                }
+            }
             if (test.isVec2())
             {
                 BigInteger testv = ((Vec2)test).getVal();
@@ -70,7 +70,7 @@ public class Vec4Lsh<N extends SvarName> extends SvexCall<N>
             Vec4 x = args[1];
             if (shift.isVec2())
             {
-                int shiftv = ((Vec2)shift).getVal().intValueExact();
+                int shiftv = ((Vec2)shift).intValueExact();
                 return shiftCore(shiftv, x);
             }
             return Vec4.X;
@@ -95,7 +95,7 @@ public class Vec4Lsh<N extends SvarName> extends SvexCall<N>
                     BigIntegerUtil.MINUS_ONE, BigIntegerUtil.MINUS_ONE
                 };
             }
-            int shiftV = ((Vec2)shiftVal).getVal().intValueExact();
+            int shiftV = ((Vec2)shiftVal).intValueExact();
             return new BigInteger[]
             {
                 BigIntegerUtil.MINUS_ONE, mask.shiftRight(shiftV)
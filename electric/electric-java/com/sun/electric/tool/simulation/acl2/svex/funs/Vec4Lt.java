@@ -67,6 +67,10 @@ public class Vec4Lt<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isVec2() && y.isVec2() && x.isLong() && y.isLong())
+            {
+                return Vec2.valueOf(x.getLowerLong() < y.getLowerLong());
+            }
             if (x.isVec2() && y.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
@@ -63,6 +63,12 @@ public class Vec4Onset<N extends SvarName> extends SvexCall<N>
         public Vec4 apply(Vec4... args)
         {
             Vec4 x = args[0];
+            if (x.isLong())
+            {
+                return Vec4.valueOf(
+                    x.getUpperLong(),
+                    x.getUpperLong() & x.getLowerLong());
+            }
             return Vec4.valueOf(
                 x.getUpper(),
                 x.getUpper().and(x.getLower()));
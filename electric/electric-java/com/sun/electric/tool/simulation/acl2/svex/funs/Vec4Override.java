@@ -66,6 +66,12 @@ public class Vec4Override<N extends SvarName> extends SvexCall<N>
         {
             Vec4 strong = args[0];
             Vec4 weak = args[1];
+            if (strong.isLong() && weak.isLong())
+            {
+                return Vec4.valueOf(
+                    strong.getLowerLong() & weak.getUpperLong() | strong.getUpperLong(),
+                    (strong.getUpperLong() | weak.getLowerLong()) & strong.getLowerLong());
+            }
             return Vec4.valueOf(
                 strong.getLower().and(weak.getUpper()).or(strong.getUpper()),
                 strong.getUpper().or(weak.getLower()).and(strong.getLower()));
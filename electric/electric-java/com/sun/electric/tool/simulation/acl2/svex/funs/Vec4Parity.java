@@ -64,6 +64,11 @@ public class Vec4Parity<N extends SvarName> extends SvexCall<N>
         public Vec4 apply(Vec4... args)
         {
             Vec4 x = args[0];
+            if (x.isVec2() && x.isLong())
+            {
+                long xv = x.getLowerLong();
+                return xv >= 0 ? Vec2.valueOf((Long.bitCount(xv) & 1) != 0) : Vec4.X;
+            }
             if (x.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
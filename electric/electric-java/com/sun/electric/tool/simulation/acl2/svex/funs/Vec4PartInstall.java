@@ -76,10 +76,19 @@ public class Vec4PartInstall<N extends SvarName> extends SvexCall<N>
             Vec4 val = args[3];
             if (lsb.isVec2() && width.isVec2())
             {
-                int lsbVal = ((Vec2)lsb).getVal().intValueExact();
-                int widthVal = ((Vec2)width).getVal().intValueExact();
+                int lsbVal = ((Vec2)lsb).intValueExact();
+                int widthVal = ((Vec2)width).intValueExact();
                 if (widthVal >= 0)
                 {
+                    if (lsbVal >= 0 && (long)lsbVal + widthVal < Long.SIZE && in.isLong() && val.isLong())
+                    {
+                        long mask = BigIntegerUtil.logheadMaskLong(widthVal) << lsbVal;
+                        long u = (val.getUpperLong() << lsbVal) & mask;
+                        long l = (val.getLowerLong() << lsbVal) & mask;
+                        return Vec4.valueOf(
+                            in.getUpperLong() & ~mask | u,
+                            in.getLowerLong() & ~mask | l);
+                    }
                     BigInteger mask = BigIntegerUtil.logheadMask(widthVal).shiftLeft(lsbVal);
                     BigInteger u = val.getUpper().shiftLeft(lsbVal).and(mask);
                     BigInteger l = val.getLower().shiftLeft(lsbVal).and(mask);
@@ -112,7 +121,7 @@ public class Vec4PartInstall<N extends SvarName> extends SvexCall<N>
                     BigIntegerUtil.MINUS_ONE, BigIntegerUtil.MINUS_ONE, mask, BigIntegerUtil.MINUS_ONE
                 };
             }
-            int widthV = ((Vec2)widthVal).getVal().intValueExact();
+            int widthV = ((Vec2)widthVal).intValueExact();
             if (widthV < 0)
             {
                 return new BigInteger[]
@@ -128,7 +137,7 @@ public class Vec4PartInstall<N extends SvarName> extends SvexCall<N>
                     BigIntegerUtil.MINUS_ONE, BigIntegerUtil.MINUS_ONE, mask, valMask
                 };
             }
-            int lsbV = ((Vec2)lsbVal).getVal().intValueExact();
+            int lsbV = ((Vec2)lsbVal).intValueExact();
             if (lsbV >= 0)
             {
                 BigInteger inMask = BigIntegerUtil.logapp(lsbV, mask,
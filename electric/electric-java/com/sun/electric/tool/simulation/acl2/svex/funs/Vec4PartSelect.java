@@ -62,7 +62,7 @@ public class Vec4PartSelect<N extends SvarName> extends SvexCall<N>
             Vec4 lval = ((SvexQuote)lsb).val;
             if (lval.isVec2())
             {
-                int lv = ((Vec2)lval).getVal().intValueExact();
+                int lv = ((Vec2)lval).intValueExact();
                 if (lv >= 0)
                 {
                     Svex<N> svexRsh = sm.newCall(Vec4Rsh.FUNCTION, lsb, in.lhsPreproc(sm));
@@ -94,10 +94,18 @@ public class Vec4PartSelect<N extends SvarName> extends SvexCall<N>
             Vec4 in = args[2];
             if (lsb.isVec2() && width.isVec2())
             {
-                int lsbVal = ((Vec2)lsb).getVal().intValueExact();
-                int widthVal = ((Vec2)width).getVal().intValueExact();
+                int lsbVal = ((Vec2)lsb).intValueExact();
+                int widthVal = ((Vec2)width).intValueExact();
                 if (widthVal >= 0)
                 {
+                    if (lsbVal >= 0 && widthVal < Long.SIZE && in.isLong())
+                    {
+                        int sh = Math.min(lsbVal, Long.SIZE - 1);
+                        long mask = BigIntegerUtil.logheadMaskLong(widthVal);
+                        return Vec4.valueOf(
+                            (in.getUpperLong() >> sh) & mask,
+                            (in.getLowerLong() >> sh) & mask);
+                    }
                     BigInteger u = in.getUpper().shiftRight(lsbVal);
                     BigInteger l = in.getLower().shiftRight(lsbVal);
                     if (lsbVal < 0)
@@ -131,7 +139,7 @@ public class Vec4PartSelect<N extends SvarName> extends SvexCall<N>
             {
                 if (lsbVal.isVec2())
                 {
-                    int lsbV = ((Vec2)lsbVal).getVal().intValueExact();
+                    int lsbV = ((Vec2)lsbVal).intValueExact();
                     return new BigInteger[]
                     {
                         BigIntegerUtil.MINUS_ONE, BigIntegerUtil.MINUS_ONE, mask.shiftLeft(lsbV)
@@ -144,7 +152,7 @@ public class Vec4PartSelect<N extends SvarName> extends SvexCall<N>
                     };
                 }
             }
-            int widthV = ((Vec2)widthVal).getVal().intValueExact();
+            int widthV = ((Vec2)widthVal).intValueExact();
 
             if (widthV < 0)
             {
@@ -170,7 +178,7 @@ public class Vec4PartSelect<N extends SvarName> extends SvexCall<N>
                     };
                 }
             }
-            int lsbV = ((Vec2)lsbVal).getVal().intValueExact();
+            int lsbV = ((Vec2)lsbVal).intValueExact();
             BigInteger xMask = BigIntegerUtil.loghead(widthV, mask).shiftLeft(lsbV);
             return new BigInteger[]
             {
@@ -67,6 +67,16 @@ public class Vec4Plus<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isVec2() && y.isVec2() && x.isLong() && y.isLong())
+            {
+                long xv = x.getLowerLong();
+                long yv = y.getLowerLong();
+                long r = xv + yv;
+                if (((xv ^ r) & (yv ^ r)) >= 0)
+                {
+                    return Vec2.valueOf(r);
+                }
+            }
             if (x.isVec2() && y.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
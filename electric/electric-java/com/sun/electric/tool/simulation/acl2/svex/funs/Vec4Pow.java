@@ -69,8 +69,16 @@ public class Vec4Pow<N extends SvarName> extends SvexCall<N>
             Vec4 exp = args[1];
             if (base.isVec2() && exp.isVec2())
             {
+                if (base.isLong())
+                {
+                    Vec4 result = powLong(base.getLowerLong(), ((Vec2)exp).intValueExact());
+                    if (result != null)
+                    {
+                        return result;
+                    }
+                }
                 BigInteger basev = ((Vec2)base).getVal();
-                int expv = ((Vec2)exp).getVal().intValueExact();
+                int expv = ((Vec2)exp).intValueExact();
                 if (expv >= 0 || basev.abs().equals(BigInteger.ONE))
                 {
                     return Vec2.valueOf(basev.pow(expv));
@@ -83,6 +91,39 @@ public class Vec4Pow<N extends SvarName> extends SvexCall<N>
             return Vec4.X;
         }
 
+        private Vec4 powLong(long basev, int expv)
+        {
+            if (expv < 0)
+            {
+                if (basev == 1 || basev == -1)
+                {
+                    return Vec2.valueOf((expv & 1) != 0 ? basev : 1);
+                }
+                return basev != 0 ? Vec2.ZERO : Vec4.X;
+            }
+            try
+            {
+                long result = 1;
+                while (expv > 0)
+                {
+                    if ((expv & 1) != 0)
+                    {
+                        result = Math.multiplyExact(result, basev);
+                    }
+                    expv >>= 1;
+                    if (expv > 0)
+                    {
+                        basev = Math.multiplyExact(basev, basev);
+                    }
+                }
+                return Vec2.valueOf(result);
+            } catch (ArithmeticException e)
+            {
+                // the power overflows a long
+                return null;
+            }
+        }
+
         @Override
         protected <N extends SvarName> BigInteger[] svmaskFor(BigInteger mask, Svex<N>[] args, Map<Svex<N>, Vec4> xevalMemoize)
         {
@@ -67,6 +67,19 @@ public class Vec4Quotient<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isVec2() && y.isVec2() && x.isLong() && y.isLong())
+            {
+                long xv = x.getLowerLong();
+                long yv = y.getLowerLong();
+                if (yv == 0)
+                {
+                    return Vec4.X;
+                }
+                if (xv != Long.MIN_VALUE || yv != -1)
+                {
+                    return Vec2.valueOf(xv / yv);
+                }
+            }
             if (x.isVec2() && y.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
@@ -69,6 +69,14 @@ public class Vec4ReductionAnd<N extends SvarName> extends SvexCall<N>
 
         private Vec4 apply3(Vec4 x)
         {
+            if (x.isLong())
+            {
+                if (x.isVec2())
+                {
+                    return Vec2.valueOf(x.getLowerLong() == -1);
+                }
+                return x.getUpperLong() == -1 ? Vec4.X : Vec2.ZERO;
+            }
             if (x.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
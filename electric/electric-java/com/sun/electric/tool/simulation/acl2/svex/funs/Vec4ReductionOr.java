@@ -68,6 +68,14 @@ public class Vec4ReductionOr<N extends SvarName> extends SvexCall<N>
 
         private Vec4 apply3(Vec4 x)
         {
+            if (x.isLong())
+            {
+                if (x.isVec2())
+                {
+                    return Vec2.valueOf(x.getLowerLong() != 0);
+                }
+                return x.getLowerLong() == 0 ? Vec4.X : Vec2.ONE;
+            }
             if (x.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
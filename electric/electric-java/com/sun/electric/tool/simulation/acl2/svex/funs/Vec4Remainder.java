@@ -67,6 +67,11 @@ public class Vec4Remainder<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isVec2() && y.isVec2() && x.isLong() && y.isLong())
+            {
+                long yv = y.getLowerLong();
+                return yv != 0 ? Vec2.valueOf(x.getLowerLong() % yv) : Vec4.X;
+            }
             if (x.isVec2() && y.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
@@ -66,6 +66,12 @@ public class Vec4Res<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isLong() && y.isLong())
+            {
+                return Vec4.valueOf(
+                    x.getUpperLong() | y.getUpperLong(),
+                    x.getLowerLong() & y.getLowerLong());
+            }
             return Vec4.valueOf(
                 x.getUpper().or(y.getUpper()),
                 x.getLower().and(y.getLower()));
@@ -66,6 +66,14 @@ public class Vec4Resand<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isLong() && y.isLong())
+            {
+                return Vec4.valueOf(
+                    (x.getUpperLong() | x.getLowerLong())
+                    & (y.getUpperLong() | y.getLowerLong())
+                    & (x.getUpperLong() | y.getUpperLong()),
+                    x.getLowerLong() & y.getLowerLong());
+            }
             return Vec4.valueOf(
                 x.getUpper().or(x.getLower())
                     .and(y.getUpper().or(y.getLower())
@@ -65,8 +65,8 @@ public class Vec4RevBlocks<N extends SvarName> extends SvexCall<N>
             Vec4 bval = ((SvexQuote)bsz).val;
             if (wval.isVec2() && bval.isVec2())
             {
-                int wv = ((Vec2)wval).getVal().intValueExact();
-                int bv = ((Vec2)wval).getVal().intValueExact();
+                int wv = ((Vec2)wval).intValueExact();
+                int bv = ((Vec2)wval).intValueExact();
                 if (wv >= 0 && bv > 0)
                 {
                     Svex<N> zero = SvexQuote.valueOf(0);
@@ -115,10 +115,16 @@ public class Vec4RevBlocks<N extends SvarName> extends SvexCall<N>
             Vec4 x = args[1];
             if (nbits.isVec2() && blocksz.isVec2())
             {
-                int nbitsVal = ((Vec2)nbits).getVal().intValueExact();
-                int blockszVal = ((Vec2)nbits).getVal().intValueExact();
+                int nbitsVal = ((Vec2)nbits).intValueExact();
+                int blockszVal = ((Vec2)nbits).intValueExact();
                 if (nbitsVal >= 0 && blockszVal > 0)
                 {
+                    if (nbitsVal < Long.SIZE && x.isLong())
+                    {
+                        return Vec4.valueOf(
+                            revBlocks(nbitsVal, blockszVal, x.getUpperLong()),
+                            revBlocks(nbitsVal, blockszVal, x.getLowerLong()));
+                    }
                     return Vec4.valueOf(
                         revBlocks(nbitsVal, blockszVal, x.getUpper()),
                         revBlocks(nbitsVal, blockszVal, x.getLower()));
@@ -145,6 +151,22 @@ public class Vec4RevBlocks<N extends SvarName> extends SvexCall<N>
             return result;
         }
 
+        private long revBlocks(int nbits, int blocksz, long x)
+        {
+            long result = 0;
+            while (nbits >= blocksz)
+            {
+                result = result << blocksz | x & BigIntegerUtil.logheadMaskLong(blocksz);
+                x >>= blocksz;
+                nbits -= blocksz;
+            }
+            if (nbits > 0)
+            {
+                result = result << nbits | x & BigIntegerUtil.logheadMaskLong(nbits);
+            }
+            return result;
+        }
+
         @Override
         protected <N extends SvarName> BigInteger[] svmaskFor(BigInteger mask, Svex<N>[] args, Map<Svex<N>, Vec4> xevalMemoize)
         {
@@ -161,8 +183,8 @@ public class Vec4RevBlocks<N extends SvarName> extends SvexCall<N>
             Vec4 bVal = b.xeval(xevalMemoize);
             if (nVal.isVec2() && bVal.isVec2())
             {
-                int nv = ((Vec2)nVal).getVal().intValueExact();
-                int bv = ((Vec2)bVal).getVal().intValueExact();
+                int nv = ((Vec2)nVal).intValueExact();
+                int bv = ((Vec2)bVal).intValueExact();
                 if (nv >= 0 && bv > 0)
                 {
                     return new BigInteger[]
@@ -69,7 +69,7 @@ public class Vec4Rsh<N extends SvarName> extends SvexCall<N>
     public Lhs<N> lhsBound(int w)
     {
         Vec2 shVal = (Vec2)((SvexQuote<N>)shift).val;
-        int shv = shVal.getVal().intValueExact();
+        int shv = shVal.intValueExact();
         return x.lhsBound(w + shv).rsh(shv);
     }
 
@@ -77,7 +77,7 @@ public class Vec4Rsh<N extends SvarName> extends SvexCall<N>
     public Lhs<N> toLhs()
     {
         Vec2 shVal = (Vec2)((SvexQuote<N>)shift).val;
-        int shv = shVal.getVal().intValueExact();
+        int shv = shVal.intValueExact();
         return x.toLhs().rsh(shv);
     }
 
@@ -89,7 +89,7 @@ public class Vec4Rsh<N extends SvarName> extends SvexCall<N>
             Vec4 sval = ((SvexQuote)shift).val;
             if (sval.isVec2() && ((Vec2)sval).getVal().signum() >= 0)
             {
-                return new MatchRsh<>(((Vec2)sval).getVal().intValueExact(), args[1]);
+                return new MatchRsh<>(((Vec2)sval).intValueExact(), args[1]);
             }
         }
         return super.matchRsh();
@@ -103,7 +103,7 @@ public class Vec4Rsh<N extends SvarName> extends SvexCall<N>
             Vec4 sval = ((SvexQuote)this.shift).val;
             if (sval.isVec2())
             {
-                int sv = ((Vec2)sval).getVal().intValueExact();
+                int sv = ((Vec2)sval).intValueExact();
                 if (sv >= 0) {
                     return x.lhsrewriteAux(sm, shift + sv, w).rsh(sm, sv);
                 }
@@ -160,7 +160,7 @@ public class Vec4Rsh<N extends SvarName> extends SvexCall<N>
             Vec4 x = args[1];
             if (shift.isVec2())
             {
-                int shiftv = ((Vec2)shift).getVal().intValueExact();
+                int shiftv = ((Vec2)shift).intValueExact();
                 return shiftCore(Math.negateExact(shiftv), x);
             }
             return Vec4.X;
@@ -185,7 +185,7 @@ public class Vec4Rsh<N extends SvarName> extends SvexCall<N>
                     BigIntegerUtil.MINUS_ONE, BigIntegerUtil.MINUS_ONE
                 };
             }
-            int shiftV = ((Vec2)shiftVal).getVal().intValueExact();
+            int shiftV = ((Vec2)shiftVal).intValueExact();
             return new BigInteger[]
             {
                 BigIntegerUtil.MINUS_ONE, mask.shiftLeft(shiftV)
@@ -59,7 +59,7 @@ public class Vec4SignExt<N extends SvarName> extends SvexCall<N>
             Vec4 wval = ((SvexQuote)width).val;
             if (wval.isVec2() && ((Vec2)wval).getVal().signum() >= 0)
             {
-                return new MatchExt<>(((Vec2)wval).getVal().intValueExact(), args[1], true);
+                return new MatchExt<>(((Vec2)wval).intValueExact(), args[1], true);
             }
         }
         return null;
@@ -73,7 +73,7 @@ public class Vec4SignExt<N extends SvarName> extends SvexCall<N>
             Vec4 wval = ((SvexQuote)width).val;
             if (wval.isVec2())
             {
-                int wv = ((Vec2)wval).getVal().intValueExact();
+                int wv = ((Vec2)wval).intValueExact();
                 if (wv >= 0 && wv > shift && shift + w <= wv)
                 {
                     return x.lhsrewriteAux(sm, shift, w);
@@ -131,7 +131,7 @@ public class Vec4SignExt<N extends SvarName> extends SvexCall<N>
             Vec4 x = args[1];
             if (width.isVec2())
             {
-                int wval = ((Vec2)width).getVal().intValueExact();
+                int wval = ((Vec2)width).intValueExact();
                 if (wval > 0)
                 {
                     if (wval >= Vec4.BIT_LIMIT)
@@ -142,6 +142,13 @@ public class Vec4SignExt<N extends SvarName> extends SvexCall<N>
 
                         }
                     }
+                    if (x.isLong())
+                    {
+                        int sh = Math.max(Long.SIZE - wval, 0);
+                        return Vec4.valueOf(
+                            x.getUpperLong() << sh >> sh,
+                            x.getLowerLong() << sh >> sh);
+                    }
                     BigInteger pow = BigInteger.ONE.shiftLeft(wval - 1);
                     BigInteger mask = pow.subtract(BigInteger.ONE);
                     if (x.isVec2())
@@ -181,7 +188,7 @@ public class Vec4SignExt<N extends SvarName> extends SvexCall<N>
                     BigIntegerUtil.MINUS_ONE, maskForGenericSignx(mask)
                 };
             }
-            int widthV = ((Vec2)widthVal).getVal().intValueExact();
+            int widthV = ((Vec2)widthVal).intValueExact();
             if (widthV <= 0)
             {
                 return new BigInteger[]
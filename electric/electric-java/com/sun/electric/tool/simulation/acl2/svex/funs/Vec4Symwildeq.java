@@ -67,6 +67,11 @@ public class Vec4Symwildeq<N extends SvarName> extends SvexCall<N>
         {
             Vec4 a = args[0];
             Vec4 b = args[1];
+            if (a.isLong() && b.isLong())
+            {
+                return eq(a, b, b.getLowerLong() & ~b.getUpperLong()
+                    | a.getLowerLong() & ~a.getUpperLong());
+            }
             BigInteger zMask = b.getLower().andNot(b.getUpper())
                 .or(a.getLower().andNot(a.getUpper()));
             return eq(a, b, zMask);
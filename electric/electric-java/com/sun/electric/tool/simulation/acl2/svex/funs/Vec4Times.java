@@ -67,6 +67,18 @@ public class Vec4Times<N extends SvarName> extends SvexCall<N>
         {
             Vec4 x = args[0];
             Vec4 y = args[1];
+            if (x.isVec2() && y.isVec2() && x.isLong() && y.isLong())
+            {
+                long xv = x.getLowerLong();
+                long yv = y.getLowerLong();
+                long r = xv * yv;
+                if (((Math.abs(xv) | Math.abs(yv)) >>> 31) == 0
+                    || yv == 0
+                    || r / yv == xv && (xv != Long.MIN_VALUE || yv != -1))
+                {
+                    return Vec2.valueOf(r);
+                }
+            }
             if (x.isVec2() && y.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
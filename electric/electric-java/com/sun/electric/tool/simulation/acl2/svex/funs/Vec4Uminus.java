@@ -64,6 +64,10 @@ public class Vec4Uminus<N extends SvarName> extends SvexCall<N>
         public Vec4 apply(Vec4... args)
         {
             Vec4 x = args[0];
+            if (x.isVec2() && x.isLong() && x.getLowerLong() != Long.MIN_VALUE)
+            {
+                return Vec2.valueOf(-x.getLowerLong());
+            }
             if (x.isVec2())
             {
                 BigInteger xv = ((Vec2)x).getVal();
@@ -79,6 +79,10 @@ public class Vec4Wildeq<N extends SvarName> extends SvexCall<N>
         {
             Vec4 a = args[0];
             Vec4 b = args[1];
+            if (a.isLong() && b.isLong())
+            {
+                return eq(a, b, b.getUpperLong() ^ b.getLowerLong());
+            }
             BigInteger zxMask = b.getUpper().xor(b.getLower());
             return eq(a, b, zxMask);
         }
@@ -67,6 +67,10 @@ public class Vec4WildeqSafe<N extends SvarName> extends SvexCall<N>
         {
             Vec4 a = args[0];
             Vec4 b = args[1];
+            if (a.isLong() && b.isLong())
+            {
+                return eq(a, b, b.getLowerLong() & ~b.getUpperLong());
+            }
             BigInteger zMask = b.getLower().andNot(b.getUpper());
             return eq(a, b, zMask);
         }
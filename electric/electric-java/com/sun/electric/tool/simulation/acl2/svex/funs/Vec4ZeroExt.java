@@ -60,7 +60,7 @@ public class Vec4ZeroExt<N extends SvarName> extends SvexCall<N>
             Vec4 wval = ((SvexQuote)width).val;
             if (wval.isVec2() && ((Vec2)wval).getVal().signum() >= 0)
             {
-                return new MatchExt<>(((Vec2)wval).getVal().intValueExact(), args[1], false);
+                return new MatchExt<>(((Vec2)wval).intValueExact(), args[1], false);
             }
         }
         return null;
@@ -114,7 +114,7 @@ public class Vec4ZeroExt<N extends SvarName> extends SvexCall<N>
             Vec4 x = args[1];
             if (width.isVec2())
             {
-                int wval = ((Vec2)width).getVal().intValueExact();
+                int wval = ((Vec2)width).intValueExact();
                 if (wval >= 0)
                 {
                     if (wval >= Vec4.BIT_LIMIT)
@@ -125,6 +125,13 @@ public class Vec4ZeroExt<N extends SvarName> extends SvexCall<N>
 
                         }
                     }
+                    if (x.isLong() && (wval < Long.SIZE || x.getUpperLong() >= 0 && x.getLowerLong() >= 0))
+                    {
+                        long mask = wval < Long.SIZE ? BigIntegerUtil.logheadMaskLong(wval) : -1;
+                        return Vec4.valueOf(
+                            x.getUpperLong() & mask,
+                            x.getLowerLong() & mask);
+                    }
                     BigInteger mask = BigIntegerUtil.logheadMask(wval);
                     if (x.isVec2())
                     {
@@ -152,7 +159,7 @@ public class Vec4ZeroExt<N extends SvarName> extends SvexCall<N>
                     nMask, nMask
                 };
             }
-            int widthV = ((Vec2)widthVal).getVal().intValueExact();
+            int widthV = ((Vec2)widthVal).intValueExact();
             if (widthV < 0)
             {
                 return new BigInteger[]
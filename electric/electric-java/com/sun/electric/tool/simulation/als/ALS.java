@@ -81,8 +81,6 @@ public class ALS implements Engine
 	ALSExport         exPtr2;
 	List<Node>        nodeList = new ArrayList<Node>();
 	Node              driveNode;
-	Link              linkFront = null;
-	Link              linkBack = null;
 	Link              setRoot = null;
 	List              ioPtr1;
 	char           [] instBuf = null;
@@ -174,18 +172,12 @@ public class ALS implements Engine
 		Connect       cellPtr;
 		Signal<DigitalSample> sig;
 		private int   num;
-		int           sumState;
-		int           sumStrength;
-		Object        newState;
-		int           newStrength;
+		int           index;  /* index into the simulator's node state arrays */
 		boolean       traceNode;
 		List<Stat>    statList;
 		List<Load>    pinList;
 		double        load;
 		int           visit;
-		int           arrive;
-		int           depart;
-		double        tLast;
 
 		private static int nSeq = 1;
 
@@ -204,30 +196,19 @@ public class ALS implements Engine
 		int     newState;
 		int     newStrength;
 		char    schedOp;
-		Object  schedState;
+		int     schedState;
 		int     schedStrength;
 	};
 
 	static class Link
 	{
-		Link    left;
 		Link    right;
-		Link    up;
-		Link    down;
 		Object  ptr;
 		char    type;
-		char    operatr;
 		Object  state;
 		int     strength;
 		int     priority;
 		double  time;
-		Model   primHead;
-	};
-
-	static class Trak
-	{
-		int      state;
-		double   time;
 	};
 
 	static class Func
@@ -296,7 +277,7 @@ public class ALS implements Engine
 		 * @param time double value representing the time the change is to take place
 		 */
 		protected void scheduleNodeUpdate(Model primHead, ALSExport exHead, int operator,
-			Object state, int strength, double time)
+			int state, int strength, double time)
 		{
 			Stat statHead = (Stat)exHead.nodeName;
 			if (statHead.schedOp == operator && statHead.schedState == state &&
@@ -310,16 +291,10 @@ public class ALS implements Engine
 				System.out.println("      Schedule(F) gate " + statHead.primPtr.name + statHead.primPtr.level +
 					", net " + s2 + "  at " + TextUtils.convertToEngineeringNotation(time));
 			}
-			Link linkPtr2 = new Link();
-			linkPtr2.type = 'G';
-			linkPtr2.ptr = statHead;
-			linkPtr2.operatr = statHead.schedOp = (char)operator;
-			linkPtr2.state = statHead.schedState = state;
-			linkPtr2.strength = statHead.schedStrength = strength;
-			linkPtr2.priority = 1;
-			linkPtr2.time = time;
-			linkPtr2.primHead = primHead;
-			als.getSim().insertLinkList(linkPtr2);
+			statHead.schedOp = (char)operator;
+			statHead.schedState = state;
+			statHead.schedStrength = strength;
+			als.getSim().insertEvent('G', statHead, (char)operator, state, strength, 1, time);
 		}
 
 		private Node  targetNode;
@@ -343,8 +318,8 @@ public class ALS implements Engine
 				Node sumNode = thisSide.nodePtr;
 				targetNode = otherSide.nodePtr;
 				if (targetNode == als.driveNode) continue;
-				int state = ((Integer)sumNode.newState).intValue();
-				int strength = sumNode.newStrength;
+				int state = als.getSim().getNewState(sumNode);
+				int strength = als.getSim().getNewStrength(sumNode);
 
 				biDirClock++;
 				for(Stat statHead : sumNode.statList)
@@ -374,7 +349,7 @@ public class ALS implements Engine
 
 				Func funcHead = (Func)primHead.ptr;
 				double time = als.timeAbs + (funcHead.delta * targetNode.load);
-				scheduleNodeUpdate(primHead, otherSide, '=', new Integer(state), strength, time);
+				scheduleNodeUpdate(primHead, otherSide, '=', state, strength, time);
 			}
 		}
 	}
@@ -556,9 +531,9 @@ public class ALS implements Engine
 				continue;
 			}
 
-			String s1 = Stimuli.describeLevel(((Integer)nodeHead.newState).intValue());
+			String s1 = Stimuli.describeLevel(theSim.getNewState(nodeHead));
 			System.out.println("Node " + sig.getFullName() + ": State = " + s1 +
-				", Strength = " + Stimuli.describeStrength(nodeHead.newStrength));
+				", Strength = " + Stimuli.describeStrength(theSim.getNewStrength(nodeHead)));
 			for(Stat statHead : nodeHead.statList)
 			{
 				s1 = Stimuli.describeLevel(statHead.newState);
@@ -765,7 +740,7 @@ public class ALS implements Engine
 
 	/********************************** INTERFACE SUPPORT **********************************/
 
-	private void init()
+	void init()
 	{
 		// create the user-defined functions
 		new UserCom.PMOSTran(this);
@@ -803,7 +778,7 @@ public class ALS implements Engine
 		// read netlist
 		eraseModel();
 		if (readNetDesc(netlistCell)) return;
-		if (theFlat.flattenNetwork(cell)) return;
+		if (theFlat.flattenNetwork(cell.getName())) return;
 
 		// initialize display
 		sc = getCircuit(cell);
@@ -898,12 +873,8 @@ public class ALS implements Engine
 		}
 	}
 
-	private void eraseModel()
+	void eraseModel()
 	{
-		// reset miscellaneous simulation variables
-		linkFront = null;
-		linkBack = null;
-
 		// delete all test vectors
 		clearAllVectors(true);
 
@@ -1299,14 +1270,23 @@ public class ALS implements Engine
 	 */
 	private boolean readNetDesc(Cell cell)
 	{
-		netlistStrings = cell.getTextViewContents();
-		if (netlistStrings == null)
+		String [] netlist = cell.getTextViewContents();
+		if (netlist == null)
 		{
 			System.out.println("No netlist information found in " + cell);
 			return true;
 		}
-		netlistStringPoint = 0;
 		System.out.println("Simulating netlist in " + cell);
+		return readNetDesc(netlist);
+	}
+
+	/**
+	 * Method to read a netlist description from lines of text.  Returns true on error.
+	 */
+	boolean readNetDesc(String [] netlist)
+	{
+		netlistStrings = netlist;
+		netlistStringPoint = 0;
 
 		instPtr[0] = -1;
 		iPtr = 0;
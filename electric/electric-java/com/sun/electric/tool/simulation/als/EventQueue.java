@@ -0,0 +1,218 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: EventQueue.java
+ * Asynchronous Logic Simulator event scheduler
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.als;
+
+/**
+ * Class to hold the pending events of the ALS Simulator.
+ * Events are kept in parallel primitive arrays indexed by a slot number.  The queue is
+ * levelized by time: all events with the same time form a column, the columns are kept
+ * in a list sorted by time, and each column is sorted by priority (events of equal priority
+ * stay in the order they were scheduled).  New events are nearly always later than the
+ * pending ones, so they are placed by searching backward from the latest column.
+ * Slots are recycled through a free list, so once the arrays have grown to the size of the
+ * busiest moment of the simulation no further allocation is done.
+ */
+class EventQueue
+{
+	private static final int INITIAL_SIZE = 256;
+
+	/** the type of each event ('G', 'N', or 'C') */	char   [] type;
+	/** the Stat, Node, or Row affected by the event */	Object [] ptr;
+	/** the operator of a gate event */					char   [] operatr;
+	/** the state (or cycle count) of the event */		int    [] state;
+	/** the strength of the event */					int    [] strength;
+	/** the priority of the event */					int    [] priority;
+	/** the time of the event */						double [] time;
+
+	/** next event in the same column */				private int [] next;
+	/** last event of a column (for column heads) */	private int [] colTail;
+	/** previous column (for column heads) */			private int [] colPrev;
+	/** next column (for column heads) */				private int [] colNext;
+	/** the earliest column */							private int front;
+	/** the latest column */							private int back;
+
+	/** stack of free slot numbers */					private int [] free;
+	/** number of entries in the free stack */			private int numFree;
+	/** number of slots ever handed out */				private int numSlots;
+
+	EventQueue()
+	{
+		allocate(INITIAL_SIZE);
+		front = back = -1;
+	}
+
+	private void allocate(int cap)
+	{
+		type = new char[cap];
+		ptr = new Object[cap];
+		operatr = new char[cap];
+		state = new int[cap];
+		strength = new int[cap];
+		priority = new int[cap];
+		time = new double[cap];
+		next = new int[cap];
+		colTail = new int[cap];
+		colPrev = new int[cap];
+		colNext = new int[cap];
+		free = new int[cap];
+	}
+
+	private void grow()
+	{
+		char [] oldType = type;
+		Object [] oldPtr = ptr;
+		char [] oldOperatr = operatr;
+		int [] oldState = state;
+		int [] oldStrength = strength;
+		int [] oldPriority = priority;
+		double [] oldTime = time;
+		int [] oldNext = next;
+		int [] oldColTail = colTail;
+		int [] oldColPrev = colPrev;
+		int [] oldColNext = colNext;
+		allocate(type.length * 2);
+		System.arraycopy(oldType, 0, type, 0, numSlots);
+		System.arraycopy(oldPtr, 0, ptr, 0, numSlots);
+		System.arraycopy(oldOperatr, 0, operatr, 0, numSlots);
+		System.arraycopy(oldState, 0, state, 0, numSlots);
+		System.arraycopy(oldStrength, 0, strength, 0, numSlots);
+		System.arraycopy(oldPriority, 0, priority, 0, numSlots);
+		System.arraycopy(oldTime, 0, time, 0, numSlots);
+		System.arraycopy(oldNext, 0, next, 0, numSlots);
+		System.arraycopy(oldColTail, 0, colTail, 0, numSlots);
+		System.arraycopy(oldColPrev, 0, colPrev, 0, numSlots);
+		System.arraycopy(oldColNext, 0, colNext, 0, numSlots);
+	}
+
+	/**
+	 * Method to remove all events from the queue.
+	 */
+	void clear()
+	{
+		for(int i=0; i<numSlots; i++) ptr[i] = null;
+		front = back = -1;
+		numFree = 0;
+		numSlots = 0;
+	}
+
+	boolean isEmpty() { return front < 0; }
+
+	/**
+	 * Method to return the time of the earliest event.
+	 * The queue must not be empty.
+	 */
+	double peekTime() { return time[front]; }
+
+	/**
+	 * Method to schedule an event.
+	 * @return the slot number that holds the event.
+	 */
+	int add(char type, Object ptr, char operatr, int state, int strength, int priority, double time)
+	{
+		int slot;
+		if (numFree > 0) slot = free[--numFree]; else
+		{
+			if (numSlots == this.type.length) grow();
+			slot = numSlots++;
+		}
+		this.type[slot] = type;
+		this.ptr[slot] = ptr;
+		this.operatr[slot] = operatr;
+		this.state[slot] = state;
+		this.strength[slot] = strength;
+		this.priority[slot] = priority;
+		this.time[slot] = time;
+
+		// find the latest column that is not after this event
+		int col = back;
+		while (col >= 0 && this.time[col] > time) col = colPrev[col];
+
+		if (col < 0 || this.time[col] != time)
+		{
+			// start a new column after "col"
+			int after = col < 0 ? front : colNext[col];
+			next[slot] = -1;
+			colTail[slot] = slot;
+			colPrev[slot] = col;
+			colNext[slot] = after;
+			if (col < 0) front = slot; else colNext[col] = slot;
+			if (after < 0) back = slot; else colPrev[after] = slot;
+			return slot;
+		}
+
+		if (this.priority[col] > priority)
+		{
+			// this event becomes the head of the column
+			next[slot] = col;
+			colTail[slot] = colTail[col];
+			colPrev[slot] = colPrev[col];
+			colNext[slot] = colNext[col];
+			if (colPrev[slot] < 0) front = slot; else colNext[colPrev[slot]] = slot;
+			if (colNext[slot] < 0) back = slot; else colPrev[colNext[slot]] = slot;
+			return slot;
+		}
+
+		// insert after the last event in the column with the same or lower priority
+		int tail = colTail[col];
+		int e = this.priority[tail] <= priority ? tail : col;
+		while (next[e] >= 0 && this.priority[next[e]] <= priority) e = next[e];
+		next[slot] = next[e];
+		next[e] = slot;
+		if (next[slot] < 0) colTail[col] = slot;
+		return slot;
+	}
+
+	/**
+	 * Method to remove the earliest event from the queue.
+	 * The event stays readable in the slot arrays until release() is called on it.
+	 * @return the slot number of the event.
+	 */
+	int poll()
+	{
+		int slot = front;
+		int rest = next[slot];
+		if (rest >= 0)
+		{
+			// the next event in the column becomes its head
+			colTail[rest] = colTail[slot];
+			colPrev[rest] = -1;
+			colNext[rest] = colNext[slot];
+			if (colNext[rest] < 0) back = rest; else colPrev[colNext[rest]] = rest;
+			front = rest;
+		} else
+		{
+			front = colNext[slot];
+			if (front < 0) back = -1; else colPrev[front] = -1;
+		}
+		return slot;
+	}
+
+	/**
+	 * Method to return a slot to the free list once its event has been processed.
+	 */
+	void release(int slot)
+	{
+		ptr[slot] = null;
+		free[numFree++] = slot;
+	}
+}
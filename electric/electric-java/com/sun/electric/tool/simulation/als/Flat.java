@@ -24,7 +24,6 @@
  */
 package com.sun.electric.tool.simulation.als;
 
-import com.sun.electric.database.hierarchy.Cell;
 import com.sun.electric.tool.simulation.als.ALS.Stat;
 import com.sun.electric.util.TextUtils;
 
@@ -50,7 +49,7 @@ public class Flat
 	 * network description into a flattened database representation.  The actual
 	 * simulation must take place on the flattened network.  Returns true on error.
 	 */
-	boolean flattenNetwork(Cell cell)
+	boolean flattenNetwork(String cellName)
 	{
 		/*
 		 * create a "dummy" level to use as a mixed signal destination for plotting and
@@ -69,7 +68,7 @@ public class Flat
 		ALS.Connect tempRoot = als.cellRoot;
 
 		// get upper-case version of main prototype
-		String mainName = cell.getName().toUpperCase();
+		String mainName = cellName.toUpperCase();
 
 		als.cellRoot = new ALS.Connect();
 		als.cellRoot.instName = mainName;
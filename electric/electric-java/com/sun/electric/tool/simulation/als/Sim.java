@@ -34,19 +34,35 @@ import com.sun.electric.tool.simulation.als.ALS.Stat;
 import com.sun.electric.tool.user.waveform.Panel;
 import com.sun.electric.util.TextUtils;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 
 /**
  * Class to do the engine of the ALS Simulator.
+ * Pending events are held in an EventQueue and the state of every node is held
+ * in arrays indexed by ALS.Node.index, so that the inner loop of the simulator
+ * does not allocate.
  */
 public class Sim
 {
 	private ALS als;
-	private List<Load> chekList = new ArrayList<Load>();
-	private HashMap<ALS.Node,List<ALS.Trak>> tracking;
+	private EventQueue events = new EventQueue();
+	private Load [] chekList = new Load[64];
+	private Load [] chekListCopy = new Load[64];
+	private int chekCount;
+
+	/** summed state of each node */					private int [] sumState;
+	/** summed strength of each node */					private int [] sumStrength;
+	/** state that each node is driven to */			private int [] newState;
+	/** strength that each node is driven to */			private int [] newStrength;
+	/** time of the last change on each node */			private double [] tLast;
+
+	/** node index of each recorded transition */		private int [] trakNode = new int[64];
+	/** state and strength of each transition */		private int [] trakState = new int[64];
+	/** time of each recorded transition */				private double [] trakTime = new double[64];
+	/** number of recorded transitions */				private int trakCount;
+
+	/** number of events fired in the last run */		private long eventCount;
 
 	private static String [] stateDesc = {"High", "Undefined", "Low"};
 	private static String [] strengthDesc = {"Off-", "Weak-", "Weak-", "", "", "Strong-", "Strong-"};
@@ -60,59 +76,14 @@ public class Sim
 
 	/**
 	 * Method to initialize the simulator for a simulation run.  The
-	 * vector link list is copied to a master event scheduling link list and
+	 * vector link list is copied to the master event queue and
 	 * the database is initialized to its starting values.  After these housekeeping
 	 * tasks are completed the simulator is ready to start the actual simulation.
 	 * Returns the time where the simulation quiesces.
 	 */
 	double initializeSimulator(boolean force)
 	{
-		als.timeAbs = 0.0;
-		tracking = new HashMap<ALS.Node,List<ALS.Trak>>();
-
-		while (als.linkFront != null)
-		{
-			if (als.linkFront.down != null)
-			{
-				als.linkFront.down.right = als.linkFront.right;
-				als.linkFront = als.linkFront.down;
-			} else
-			{
-				als.linkFront = als.linkFront.right;
-			}
-		}
-		als.linkBack = null;
-
-		for (ALS.Link linkHead = als.setRoot; linkHead != null; linkHead = linkHead.right)
-		{
-			ALS.Link linkPtr2 = new ALS.Link();
-			if (linkPtr2 == null) return(als.timeAbs);
-			linkPtr2.type = linkHead.type;
-			linkPtr2.ptr = linkHead.ptr;
-			linkPtr2.state = linkHead.state;
-			linkPtr2.strength = linkHead.strength;
-			linkPtr2.priority = linkHead.priority;
-			linkPtr2.time = linkHead.time;
-			linkPtr2.primHead = null;
-			insertLinkList(linkPtr2);
-		}
-
-		for(ALS.Node nodeHead : als.nodeList)
-		{
-			nodeHead.sumState = Stimuli.LOGIC_LOW;
-			nodeHead.sumStrength = Stimuli.OFF_STRENGTH;
-			nodeHead.newState = new Integer(Stimuli.LOGIC_LOW);
-			nodeHead.newStrength = Stimuli.OFF_STRENGTH;
-			nodeHead.arrive = 0;
-			nodeHead.depart = 0;
-			nodeHead.tLast = 0.0;
-			for(Stat statHead : nodeHead.statList)
-			{
-				statHead.newState = Stimuli.LOGIC_LOW;
-				statHead.newStrength = Stimuli.OFF_STRENGTH;
-				statHead.schedOp = 0;
-			}
-		}
+		resetSimulator();
 
 		// now run the simulation
 		boolean update = SimulationTool.isBuiltInResimulateEach();
@@ -133,14 +104,7 @@ public class Sim
 				if (panelMax > tMax) tMax = panelMax;
 			}
 
-			while (als.linkFront != null && als.linkFront.time <= tMax)
-			{
-				if (fireEvent()) break;
-				if (chekList.size() != 0)
-				{
-					if (scheduleNewEvents()) break;
-				}
-			}
+			runSimulator(tMax);
 
 			// redisplay results
 			fillDisplayArrays();
@@ -151,72 +115,166 @@ public class Sim
 	}
 
 	/**
-	 * Method to extract the ALS simulation data and update the Stimuli database
+	 * Method to reset the simulator and run it without updating any display.
+	 * @param tMax the time at which to stop the simulation.
+	 * @return the time where the simulation quiesces.
 	 */
-	private void fillDisplayArrays()
+	double simulate(double tMax)
 	{
-		for(ALS.Node node : tracking.keySet())
+		resetSimulator();
+		runSimulator(tMax);
+		return als.timeAbs;
+	}
+
+	/**
+	 * Method to clear the event queue, load it with the vectors, and set all nodes to their starting values.
+	 */
+	private void resetSimulator()
+	{
+		als.timeAbs = 0.0;
+		eventCount = 0;
+		trakCount = 0;
+		chekCount = 0;
+
+		events.clear();
+		for (ALS.Link linkHead = als.setRoot; linkHead != null; linkHead = linkHead.right)
+		{
+			events.add(linkHead.type, linkHead.ptr, (char)0, ((Integer)linkHead.state).intValue(),
+				linkHead.strength, linkHead.priority, linkHead.time);
+		}
+
+		int numNodes = als.nodeList.size();
+		if (sumState == null || sumState.length < numNodes)
+		{
+			sumState = new int[numNodes];
+			sumStrength = new int[numNodes];
+			newState = new int[numNodes];
+			newStrength = new int[numNodes];
+			tLast = new double[numNodes];
+		}
+		for(int i=0; i<numNodes; i++)
 		{
-			Signal<DigitalSample> sig = node.sig;
-			List<ALS.Trak> trakHeads = tracking.get(node);
-			for(ALS.Trak trakHead : trakHeads)
+			ALS.Node nodeHead = als.nodeList.get(i);
+			nodeHead.index = i;
+			sumState[i] = Stimuli.LOGIC_LOW;
+			sumStrength[i] = Stimuli.OFF_STRENGTH;
+			newState[i] = Stimuli.LOGIC_LOW;
+			newStrength[i] = Stimuli.OFF_STRENGTH;
+			tLast[i] = 0.0;
+			for(Stat statHead : nodeHead.statList)
 			{
-				MutableSignal<DigitalSample> mSig = (MutableSignal<DigitalSample>)sig;
-				DigitalSample ds = DigitalSample.fromOldStyle(trakHead.state&Stimuli.LOGIC);
-                if (mSig.getSample(trakHead.time) == null)
-                {
-                	mSig.addSample(trakHead.time, ds);
-                } else
-                {
-                	mSig.replaceSample(trakHead.time, ds);
-                }
-            }
+				statHead.newState = Stimuli.LOGIC_LOW;
+				statHead.newStrength = Stimuli.OFF_STRENGTH;
+				statHead.schedOp = 0;
+			}
 		}
-		
-		als.ww.repaint();
 	}
 
 	/**
-	 * Method to get the entry from the front of the event scheduling
-	 * link list and updates the database accordingly.  If a node is updated by a
-	 * user defined vector the node value is changed as specified in the linked-list
-	 * entry.  If a transition fired, all the output nodes are updated as specified
-	 * in the truth table for the transition.  Returns true on error.
+	 * Method to fire events until the queue is empty or the next event is after "tMax".
 	 */
-	private boolean fireEvent()
+	private void runSimulator(double tMax)
 	{
-		als.timeAbs = als.linkFront.time;
-		ALS.Link linkHead = als.linkFront;
-		if (als.linkFront.down != null)
+		while (!events.isEmpty() && events.peekTime() <= tMax)
 		{
-			als.linkFront = als.linkFront.down;
-			als.linkFront.left = null;
-			als.linkFront.right = linkHead.right;
-			als.linkFront.up = linkHead.up;
-			if (als.linkFront.right != null)
+			if (fireEvent()) break;
+			if (chekCount != 0)
 			{
-				als.linkFront.right.left = als.linkFront;
-			} else
-			{
-				als.linkBack = als.linkFront;
+				if (scheduleNewEvents()) break;
 			}
-		} else
+		}
+	}
+
+	/**
+	 * Method to return the number of events fired in the last simulation run.
+	 */
+	long getEventCount() { return eventCount; }
+
+	/**
+	 * Method to return the summed state of a node.
+	 */
+	int getSumState(ALS.Node nodeHead) { return sumState[nodeHead.index]; }
+
+	/**
+	 * Method to return the state that a node is being driven to.
+	 */
+	int getNewState(ALS.Node nodeHead) { return newState[nodeHead.index]; }
+
+	/**
+	 * Method to return the strength that a node is being driven with.
+	 */
+	int getNewStrength(ALS.Node nodeHead) { return newStrength[nodeHead.index]; }
+
+	/**
+	 * Method to extract the ALS simulation data and update the Stimuli database
+	 */
+	private void fillDisplayArrays()
+	{
+		for(int i=0; i<trakCount; i++)
 		{
-			als.linkFront = als.linkFront.right;
-			if (als.linkFront != null)
+			ALS.Node node = als.nodeList.get(trakNode[i]);
+			MutableSignal<DigitalSample> mSig = (MutableSignal<DigitalSample>)node.sig;
+			DigitalSample ds = DigitalSample.fromOldStyle(trakState[i]&Stimuli.LOGIC);
+			if (mSig.getSample(trakTime[i]) == null)
 			{
-				als.linkFront.left = null;
+				mSig.addSample(trakTime[i], ds);
 			} else
 			{
-				als.linkBack = null;
+				mSig.replaceSample(trakTime[i], ds);
 			}
 		}
+		
+		als.ww.repaint();
+	}
+
+	/**
+	 * Method to record a change of state on a node that is being displayed.
+	 */
+	private void addTrak(int index, int state, double time)
+	{
+		if (trakCount == trakNode.length)
+		{
+			int [] newNode = new int[trakCount*2];
+			int [] newTrakState = new int[trakCount*2];
+			double [] newTime = new double[trakCount*2];
+			System.arraycopy(trakNode, 0, newNode, 0, trakCount);
+			System.arraycopy(trakState, 0, newTrakState, 0, trakCount);
+			System.arraycopy(trakTime, 0, newTime, 0, trakCount);
+			trakNode = newNode;
+			trakState = newTrakState;
+			trakTime = newTime;
+		}
+		trakNode[trakCount] = index;
+		trakState[trakCount] = state;
+		trakTime[trakCount] = time;
+		trakCount++;
+	}
+
+	/**
+	 * Method to get the entry from the front of the event queue
+	 * and updates the database accordingly.  If a node is updated by a
+	 * user defined vector the node value is changed as specified in the event.
+	 * If a transition fired, all the output nodes are updated as specified
+	 * in the truth table for the transition.  Returns true on error.
+	 */
+	private boolean fireEvent()
+	{
+		int event = events.poll();
+		char type = events.type[event];
+		Object ptr = events.ptr[event];
+		char operatr = events.operatr[event];
+		int eventState = events.state[event];
+		int eventStrength = events.strength[event];
+		int eventPriority = events.priority[event];
+		als.timeAbs = events.time[event];
+		events.release(event);
+		eventCount++;
 
 		tracing = false;
-		switch (linkHead.type)
+		switch (type)
 		{
 			case 'G':
-				ALS.Stat statHead = (ALS.Stat)linkHead.ptr;
+				ALS.Stat statHead = (ALS.Stat)ptr;
 				if (statHead.nodePtr.traceNode)
 				{
 					String s2 = als.computeNodeName(statHead.nodePtr);
@@ -224,26 +282,24 @@ public class Sim
 						": Firing gate " + statHead.primPtr.name + statHead.primPtr.level + ", net " + s2);
 					tracing = true;
 				}
-				if (statHead.schedState != linkHead.state ||
-					statHead.schedOp != linkHead.operatr ||
-					statHead.schedStrength != linkHead.strength)
+				if (statHead.schedState != eventState ||
+					statHead.schedOp != operatr ||
+					statHead.schedStrength != eventStrength)
 				{
 					break;
 				}
 				statHead.schedOp = 0;
 
-				char operatr = linkHead.operatr;
 				int operand = 0;
 				if (operatr < 128)
 				{
-					operand = ((Integer)linkHead.state).intValue();
+					operand = eventState;
 				} else
 				{
 					operatr -= 128;
-//					ALS.Node nodeHead = (ALS.Node)linkHead.state;
-//					operand = nodeHead.sumState;
 				}
 
+				int nodeState = sumState[statHead.nodePtr.index];
 				int state = 0;
 				switch (operatr)
 				{
@@ -251,19 +307,19 @@ public class Sim
 						state = operand;
 						break;
 					case '+':
-						state = statHead.nodePtr.sumState + operand;
+						state = nodeState + operand;
 						break;
 					case '-':
-						state = statHead.nodePtr.sumState - operand;
+						state = nodeState - operand;
 						break;
 					case '*':
-						state = statHead.nodePtr.sumState * operand;
+						state = nodeState * operand;
 						break;
 					case '/':
-						state = statHead.nodePtr.sumState / operand;
+						state = nodeState / operand;
 						break;
 					case '%':
-						state = statHead.nodePtr.sumState % operand;
+						state = nodeState % operand;
 						break;
 					default:
 						System.out.println("Invalid arithmetic operator: " + operatr);
@@ -271,58 +327,53 @@ public class Sim
 				}
 
 				if (state == statHead.newState &&
-					linkHead.strength == statHead.newStrength)
+					eventStrength == statHead.newStrength)
 				{
 					break;
 				}
 				statHead.newState = state;
-				statHead.newStrength = linkHead.strength;
-				createCheckList(statHead.nodePtr, linkHead);
+				statHead.newStrength = eventStrength;
+				createCheckList(statHead.nodePtr);
 				break;
 
 			case 'N':
-				ALS.Node nodeHead = (ALS.Node)linkHead.ptr;
+				ALS.Node nodeHead = (ALS.Node)ptr;
 				if (nodeHead.traceNode)
 				{
 					String s2 = als.computeNodeName(nodeHead);
 					System.out.println(TextUtils.convertToEngineeringNotation(als.timeAbs) + ": Changed state of net " + s2);
 					tracing = true;
 				}
-				if (linkHead.state == nodeHead.newState &&
-					linkHead.strength == nodeHead.newStrength)
+				int index = nodeHead.index;
+				if (eventState == newState[index] &&
+					eventStrength == newStrength[index])
 						break;
 
-				nodeHead.newState = linkHead.state;
-				nodeHead.newStrength = linkHead.strength;
-				createCheckList(nodeHead, linkHead);
+				newState[index] = eventState;
+				newStrength[index] = eventStrength;
+				createCheckList(nodeHead);
 				break;
 
 			case 'C':
 				double time = als.timeAbs;
-				ALS.Row rowHead = (ALS.Row)linkHead.ptr;
-				for(Object obj : rowHead.inList)
+				ALS.Row rowHead = (ALS.Row)ptr;
+				List<Object> vectList = rowHead.inList;
+				for(int i=0, n=vectList.size(); i<n; i++)
 				{
-					ALS.Link vectHead = (ALS.Link)obj;
-					ALS.Link linkPtr2 = new ALS.Link();
-					linkPtr2.type = 'N';
-					linkPtr2.ptr = vectHead.ptr;
-					linkPtr2.state = vectHead.state;
-					linkPtr2.strength = vectHead.strength;
-					linkPtr2.priority = vectHead.priority;
-					linkPtr2.time = time;
-					linkPtr2.primHead = null;
-					insertLinkList(linkPtr2);
+					ALS.Link vectHead = (ALS.Link)vectList.get(i);
+					events.add('N', vectHead.ptr, (char)0, ((Integer)vectHead.state).intValue(),
+						vectHead.strength, vectHead.priority, time);
 					time += vectHead.time;
 				}
-				if (((Integer)linkHead.state).intValue() == 0)
+				if (eventState == 0)
 				{
-					calculateClockTime(linkHead, rowHead);
+					calculateClockTime(rowHead, eventState, eventStrength, eventPriority);
 					return false;
 				}
-				linkHead.state = new Integer(((Integer)linkHead.state).intValue() - 1);
-				if (((Integer)linkHead.state).intValue() != 0)
+				eventState--;
+				if (eventState != 0)
 				{
-					calculateClockTime(linkHead, rowHead);
+					calculateClockTime(rowHead, eventState, eventStrength, eventPriority);
 					return false;
 				}
 		}
@@ -338,22 +389,25 @@ public class Sim
 	 * state for a node because it is possible to have nodes that have more than
 	 * one transition driving it.
 	 */
-	private void createCheckList(ALS.Node nodeHead, ALS.Link linkHead)
+	private void createCheckList(ALS.Node nodeHead)
 	{
 		// get initial state of the node
-		int state = ((Integer)nodeHead.newState).intValue();
-		int strength = nodeHead.newStrength;
+		int index = nodeHead.index;
+		int state = newState[index];
+		int strength = newStrength[index];
 
 		// print state of signal if this signal is being traced
 		if (tracing)
 		{
-			System.out.println("  Formerly " + strengthDesc[nodeHead.sumStrength] + stateDesc[nodeHead.sumState+3] +
+			System.out.println("  Formerly " + strengthDesc[sumStrength[index]] + stateDesc[sumState[index]+3] +
 				", starts at " + strengthDesc[strength] + stateDesc[state+3]);
 		}
 
 		// look at all factors affecting the node
-		for(Stat statHead : nodeHead.statList)
+		List<Stat> statList = nodeHead.statList;
+		for(int i=0, n=statList.size(); i<n; i++)
 		{
+			Stat statHead = statList.get(i);
 			int thisState = statHead.newState;
 			int thisStrength = statHead.newStrength;
 			if (tracing)
@@ -379,41 +433,37 @@ public class Sim
 		// if the node has nothing driving it, set it to the old value
 		if (strength == Stimuli.OFF_STRENGTH)
 		{
-			state = nodeHead.sumState;
+			state = sumState[index];
 			strength = Stimuli.NODE_STRENGTH;
 		}
 
 		// stop now if node state did not change
-		if (nodeHead.sumState == state && nodeHead.sumStrength == strength)
+		if (sumState[index] == state && sumStrength[index] == strength)
 		{
 			if (tracing) System.out.println("    NO CHANGE");
 			return;
 		}
 
 		if (nodeHead.sig != null)
-		{
-			List<ALS.Trak> nodeData = tracking.get(nodeHead);
-			if (nodeData == null)
-			{
-				nodeData = new ArrayList<ALS.Trak>();
-				tracking.put(nodeHead, nodeData);
-			}
-
-			ALS.Trak trakHead = new ALS.Trak();
-			trakHead.state = state | strength;
-			trakHead.time = als.timeAbs;
-			nodeData.add(trakHead);
-		}
+			addTrak(index, state | strength, als.timeAbs);
 		if (tracing)
 			System.out.println("    BECOMES " + strengthDesc[strength] + stateDesc[state+3]);
 
-		nodeHead.sumState = state;
-		nodeHead.sumStrength = strength;
-		nodeHead.tLast = als.timeAbs;
+		sumState[index] = state;
+		sumStrength[index] = strength;
+		tLast[index] = als.timeAbs;
 
 		als.driveNode = nodeHead;
-		for(Load l : nodeHead.pinList)
-			chekList.add(l);
+		List<Load> pinList = nodeHead.pinList;
+		int numPins = pinList.size();
+		if (chekCount + numPins > chekList.length)
+		{
+			Load [] newList = new Load[Math.max(chekList.length*2, chekCount + numPins)];
+			System.arraycopy(chekList, 0, newList, 0, chekCount);
+			chekList = newList;
+		}
+		for(int i=0; i<numPins; i++)
+			chekList[chekCount++] = pinList.get(i);
 	}
 
 	/**
@@ -424,14 +474,17 @@ public class Sim
 	 */
 	private boolean scheduleNewEvents()
 	{
-		// make a copy of the event list, and clear the main list
-		List<Load> chekListCopy =  new ArrayList<Load>();
-		for(Load l : chekList)
-			chekListCopy.add(l);
-		chekList.clear();
-
-		for(Load chekHead : chekListCopy)
+		// swap the check lists, so that the main list is empty
+		Load [] pending = chekList;
+		int numPending = chekCount;
+		chekList = chekListCopy;
+		chekListCopy = pending;
+		chekCount = 0;
+
+		for(int c=0; c<numPending; c++)
 		{
+			Load chekHead = pending[c];
+			pending[c] = null;
 			ALS.Model primHead = (ALS.Model)chekHead.ptr;
 			if (primHead.type == 'F')
 			{
@@ -443,9 +496,10 @@ public class Sim
 			for (ALS.Row rowHead = (ALS.Row)primHead.ptr; rowHead != null; rowHead = rowHead.next)
 			{
 				int flag = 1;
-				for(Object obj : rowHead.inList)
+				List<Object> inList = rowHead.inList;
+				for(int i=0, n=inList.size(); i<n; i++)
 				{
-					ALS.IO ioHead = (ALS.IO)obj;
+					ALS.IO ioHead = (ALS.IO)inList.get(i);
 					int operatr = ioHead.operatr;
 					int operand;
 					if (operatr < 128)
@@ -454,23 +508,23 @@ public class Sim
 					} else
 					{
 						operatr -= 128;
-						ALS.Node nodeHead = (ALS.Node)ioHead.operand;
-						operand = nodeHead.sumState;
+						operand = sumState[((ALS.Node)ioHead.operand).index];
 					}
 
+					int state = sumState[((ALS.Node)ioHead.nodePtr).index];
 					switch (operatr)
 					{
 						case '=':
-							if (((ALS.Node)ioHead.nodePtr).sumState != operand) flag = 0;
+							if (state != operand) flag = 0;
 							break;
 						case '!':
-							if (((ALS.Node)ioHead.nodePtr).sumState == operand) flag = 0;
+							if (state == operand) flag = 0;
 							break;
 						case '<':
-							if (((ALS.Node)ioHead.nodePtr).sumState >= operand) flag = 0;
+							if (state >= operand) flag = 0;
 							break;
 						case '>':
-							if (((ALS.Node)ioHead.nodePtr).sumState <= operand) flag = 0;
+							if (state <= operand) flag = 0;
 							break;
 						default:
 							System.out.println("Invalid logical operator: " + operatr);
@@ -492,13 +546,15 @@ public class Sim
 
 	/**
 	 * Method to calculate the time when the next occurrence of a set of
-	 * clock vectors is to be added to the event scheduling linked-list.
+	 * clock vectors is to be added to the event queue.
 	 *
 	 * Calling Arguments:
-	 *	linkHead = pointer to the link element to be reinserted into the list
-	 *  rowHead  = pointer to a row element containing timing information
+	 *	rowHead  = pointer to a row element containing timing information
+	 *	cycles   = number of clock cycles remaining (0 to run forever)
+	 *	strength = strength of the clock event
+	 *	priority = priority of the clock event
 	 */
-	private void calculateClockTime(ALS.Link linkHead, ALS.Row rowHead)
+	private void calculateClockTime(ALS.Row rowHead, int cycles, int strength, int priority)
 	{
 		double time = als.timeAbs;
 
@@ -517,14 +573,12 @@ public class Sim
 		 * }
 		 */
 
-		linkHead.time = time;
-		insertLinkList(linkHead);
+		events.add('C', rowHead, (char)0, cycles, strength, priority, time);
 	}
 
 	/**
 	 * Method to calculate the time of occurrence of an event and then
-	 * places an entry into the event scheduling linked-list for later execution.
-	 * Returns true on error.
+	 * places an entry into the event queue for later execution.
 	 *
 	 * Calling Arguments:
 	 *	primHead  = pointer to the primitive to be scheduled for firing
@@ -560,149 +614,57 @@ public class Sim
 			}
 		}
 
+		List<Object> outList = rowHead.outList;
 		if (primHead.fanOut != 0)
 		{
-			Iterator<Object> it = rowHead.outList.iterator();
-			ALS.IO ioPtr = (ALS.IO)it.next();
+			ALS.IO ioPtr = (ALS.IO)outList.get(0);
 			ALS.Stat statHead = (ALS.Stat)ioPtr.nodePtr;
 			time *= statHead.nodePtr.load;
 		}
 		time += als.timeAbs;
 
-		for(Object obj : rowHead.outList)
+		for(int i=0, n=outList.size(); i<n; i++)
 		{
-			ALS.IO ioHead = (ALS.IO)obj;
+			ALS.IO ioHead = (ALS.IO)outList.get(i);
 			ALS.Stat statHead = (ALS.Stat)ioHead.nodePtr;
+
+			// node operands are identified by their node number
+			int state = ioHead.operatr < 128 ? ((Integer)ioHead.operand).intValue() :
+				((ALS.Node)ioHead.operand).getIndex();
 			if (statHead.schedOp == ioHead.operatr &&
-				statHead.schedState.equals(ioHead.operand) &&
+				statHead.schedState == state &&
 				statHead.schedStrength == ioHead.strength)
 			{
 				continue;
 			}
 
-			ALS.Link linkPtr2 = new ALS.Link();
-			linkPtr2.type = 'G';
-			linkPtr2.ptr = statHead;
-			linkPtr2.operatr = statHead.schedOp = ioHead.operatr;
-			linkPtr2.state = statHead.schedState = ioHead.operand;
-			linkPtr2.strength = statHead.schedStrength = ioHead.strength;
-			linkPtr2.time = time;
-			linkPtr2.priority = priority;
-			linkPtr2.primHead = primHead;
+			statHead.schedOp = ioHead.operatr;
+			statHead.schedState = state;
+			statHead.schedStrength = ioHead.strength;
 			if (tracing)
 			{
 				System.out.println("      Schedule(G): " + statHead.primPtr.name + statHead.primPtr.level +
 					" at " + TextUtils.convertToEngineeringNotation(time));
 			}
-			insertLinkList(linkPtr2);
+			events.add('G', statHead, ioHead.operatr, state, ioHead.strength, priority, time);
 		}
 	}
 
 	/**
-	 * Method to insert a data element into a linked-list that is 2
-	 * dimensionally sorted first by time and then priority.  This link list is
-	 * used to schedule events for the simulation.
+	 * Method to insert an event into the event queue, which is
+	 * sorted first by time and then priority.
 	 *
 	 * Calling Arguments:
-	 *	linkHead = pointer to the data element that is going to be inserted
+	 *	type     = the type of event ('G' for a gate output, 'N' for a node)
+	 *	ptr      = the Stat or Node affected by the event
+	 *	operatr  = the operator to apply for a gate event
+	 *	state    = the state to apply
+	 *	strength = the strength of the new state
+	 *	priority = the priority of the event
+	 *	time     = the time of the event
 	 */
-	void insertLinkList(ALS.Link linkHead)
+	void insertEvent(char type, Object ptr, char operatr, int state, int strength, int priority, double time)
 	{
-		// linkPtr1Is: 0: ALS.linkBack  1: linkPtr2.up  2: linkPtr2.left
-		int linkPtr1Is = 0;
-		ALS.Link linkPtr2 = als.linkBack;
-		ALS.Link linkPtr2Val = linkPtr2;
-		ALS.Link linkPtr3 = null;
-		for(;;)
-		{
-			if (linkPtr2 == null)
-			{
-				als.linkFront = linkHead;
-				switch (linkPtr1Is)
-				{
-					case 0: als.linkBack = linkHead;      break;
-					case 1: linkPtr2Val.up = linkHead;    break;
-					case 2: linkPtr2Val.left = linkHead;  break;
-				}
-				linkHead.left = null;
-				linkHead.right = linkPtr3;
-				linkHead.up = linkHead;
-				linkHead.down = null;
-				return;
-			}
-
-			if (linkPtr2.time < linkHead.time)
-			{
-				linkPtr2.right = linkHead;
-				switch (linkPtr1Is)
-				{
-					case 0: als.linkBack = linkHead;      break;
-					case 1: linkPtr2Val.up = linkHead;    break;
-					case 2: linkPtr2Val.left = linkHead;  break;
-				}
-				linkHead.left = linkPtr2;
-				linkHead.right = linkPtr3;
-				linkHead.up = linkHead;
-				linkHead.down = null;
-				return;
-			}
-
-			if (linkPtr2.time == linkHead.time)
-			{
-				if (linkPtr2.priority > linkHead.priority)
-				{
-					linkHead.left = linkPtr2.left;
-					linkHead.right = linkPtr2.right;
-					linkHead.down = linkPtr2;
-					linkHead.up = linkPtr2.up;
-					linkPtr2.up = linkHead;
-					switch (linkPtr1Is)
-					{
-						case 0: als.linkBack = linkHead;      break;
-						case 1: linkPtr2Val.up = linkHead;    break;
-						case 2: linkPtr2Val.left = linkHead;  break;
-					}
-					if (linkHead.left != null)
-					{
-						linkHead.left.right = linkHead;
-					} else
-					{
-						als.linkFront = linkHead;
-					}
-					return;
-				}
-
-				linkPtr1Is = 1;
-				linkPtr2Val = linkPtr2;
-				linkPtr2 = linkPtr2.up;
-				linkPtr3 = null;
-				for(;;)
-				{
-					if (linkPtr2.priority <= linkHead.priority)
-					{
-						linkPtr2.down = linkHead;
-						switch (linkPtr1Is)
-						{
-							case 0: als.linkBack = linkHead;      break;
-							case 1: linkPtr2Val.up = linkHead;    break;
-							case 2: linkPtr2Val.left = linkHead;  break;
-						}
-						linkHead.up = linkPtr2;
-						linkHead.down = linkPtr3;
-						return;
-					}
-
-					linkPtr3 = linkPtr2;
-					linkPtr1Is = 1;
-					linkPtr2Val = linkPtr2;
-					linkPtr2 = linkPtr2.up;
-				}
-			}
-
-			linkPtr3 = linkPtr2;
-			linkPtr1Is = 2;
-			linkPtr2Val = linkPtr2;
-			linkPtr2 = linkPtr2.left;
-		}
+		events.add(type, ptr, operatr, state, strength, priority, time);
 	}
 }
@@ -55,12 +55,12 @@ public class UserCom
 			side[0] = primHead.exList.get(1);
 			side[1] = primHead.exList.get(2);
 
-			if (ctl.nodePtr.sumState == Stimuli.LOGIC_HIGH)
+			if (als.getSim().getSumState(ctl.nodePtr) == Stimuli.LOGIC_HIGH)
 			{
 				scheduleNodeUpdate(primHead, side[0], '=',
-					new Integer(Stimuli.LOGIC_X), Stimuli.OFF_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_X, Stimuli.OFF_STRENGTH, als.timeAbs);
 				scheduleNodeUpdate(primHead, side[1], '=',
-					new Integer(Stimuli.LOGIC_X), Stimuli.OFF_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_X, Stimuli.OFF_STRENGTH, als.timeAbs);
 				return;
 			}
 			calculateBidirOutputs(primHead, side, Stimuli.GATE_STRENGTH);
@@ -78,12 +78,12 @@ public class UserCom
 			side[0] = primHead.exList.get(1);
 			side[1] = primHead.exList.get(2);
 
-			if (ctl.nodePtr.sumState == Stimuli.LOGIC_HIGH)
+			if (als.getSim().getSumState(ctl.nodePtr) == Stimuli.LOGIC_HIGH)
 			{
 				scheduleNodeUpdate(primHead, side[0], '=',
-					new Integer(Stimuli.LOGIC_X), Stimuli.OFF_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_X, Stimuli.OFF_STRENGTH, als.timeAbs);
 				scheduleNodeUpdate(primHead, side[1], '=',
-					new Integer(Stimuli.LOGIC_X), Stimuli.OFF_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_X, Stimuli.OFF_STRENGTH, als.timeAbs);
 				return;
 			}
 			calculateBidirOutputs(primHead, side, Stimuli.NODE_STRENGTH);
@@ -109,12 +109,12 @@ public class UserCom
 			side[0] = primHead.exList.get(1);
 			side[1] = primHead.exList.get(2);
 
-			if (ctl.nodePtr.sumState == Stimuli.LOGIC_LOW)
+			if (als.getSim().getSumState(ctl.nodePtr) == Stimuli.LOGIC_LOW)
 			{
 				scheduleNodeUpdate(primHead, side[0], '=',
-					new Integer(Stimuli.LOGIC_X), Stimuli.OFF_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_X, Stimuli.OFF_STRENGTH, als.timeAbs);
 				scheduleNodeUpdate(primHead, side[1], '=',
-					new Integer(Stimuli.LOGIC_X), Stimuli.OFF_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_X, Stimuli.OFF_STRENGTH, als.timeAbs);
 				return;
 			}
 			calculateBidirOutputs(primHead, side, Stimuli.GATE_STRENGTH);
@@ -132,12 +132,12 @@ public class UserCom
 			side[0] = primHead.exList.get(1);
 			side[1] = primHead.exList.get(2);
 
-			if (ctl.nodePtr.sumState == Stimuli.LOGIC_LOW)
+			if (als.getSim().getSumState(ctl.nodePtr) == Stimuli.LOGIC_LOW)
 			{
 				scheduleNodeUpdate(primHead, side[0], '=',
-					new Integer(Stimuli.LOGIC_X), Stimuli.OFF_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_X, Stimuli.OFF_STRENGTH, als.timeAbs);
 				scheduleNodeUpdate(primHead, side[1], '=',
-					new Integer(Stimuli.LOGIC_X), Stimuli.OFF_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_X, Stimuli.OFF_STRENGTH, als.timeAbs);
 				return;
 			}
 			calculateBidirOutputs(primHead, side, Stimuli.NODE_STRENGTH);
@@ -159,13 +159,13 @@ public class UserCom
 		void simulate(ALS.Model primHead)
 		{
 			ALS.ALSExport argPtr = primHead.exList.get(0);
-			int ck = argPtr.nodePtr.sumState;
+			int ck = als.getSim().getSumState(argPtr.nodePtr);
 			if (ck != Stimuli.LOGIC_LOW) return;
 
 			argPtr = primHead.exList.get(1);
-			int j = argPtr.nodePtr.sumState;
+			int j = als.getSim().getSumState(argPtr.nodePtr);
 			argPtr = primHead.exList.get(2);
-			int k = argPtr.nodePtr.sumState;
+			int k = als.getSim().getSumState(argPtr.nodePtr);
 			argPtr = primHead.exList.get(3);
 			ALS.ALSExport argPtrBar = primHead.exList.get(4);
 
@@ -173,33 +173,33 @@ public class UserCom
 			{
 				if (k == Stimuli.LOGIC_LOW) return;
 				scheduleNodeUpdate(primHead, argPtr, '=',
-					new Integer(Stimuli.LOGIC_LOW), Stimuli.GATE_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_LOW, Stimuli.GATE_STRENGTH, als.timeAbs);
 				scheduleNodeUpdate(primHead, argPtrBar, '=',
-					new Integer(Stimuli.LOGIC_HIGH), Stimuli.GATE_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_HIGH, Stimuli.GATE_STRENGTH, als.timeAbs);
 				return;
 			}
 			if (k == Stimuli.LOGIC_LOW)
 			{
 				scheduleNodeUpdate(primHead, argPtr, '=',
-					new Integer(Stimuli.LOGIC_HIGH), Stimuli.GATE_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_HIGH, Stimuli.GATE_STRENGTH, als.timeAbs);
 				scheduleNodeUpdate(primHead, argPtrBar, '=',
-					new Integer(Stimuli.LOGIC_LOW), Stimuli.GATE_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_LOW, Stimuli.GATE_STRENGTH, als.timeAbs);
 				return;
 			}
 
-			int out = argPtr.nodePtr.sumState;
+			int out = als.getSim().getSumState(argPtr.nodePtr);
 			if (out == Stimuli.LOGIC_HIGH)
 			{
 				scheduleNodeUpdate(primHead, argPtr, '=',
-					new Integer(Stimuli.LOGIC_LOW), Stimuli.GATE_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_LOW, Stimuli.GATE_STRENGTH, als.timeAbs);
 				scheduleNodeUpdate(primHead, argPtrBar, '=',
-					new Integer(Stimuli.LOGIC_HIGH), Stimuli.GATE_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_HIGH, Stimuli.GATE_STRENGTH, als.timeAbs);
 			} else
 			{
 				scheduleNodeUpdate(primHead, argPtr, '=',
-					new Integer(Stimuli.LOGIC_HIGH), Stimuli.GATE_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_HIGH, Stimuli.GATE_STRENGTH, als.timeAbs);
 				scheduleNodeUpdate(primHead, argPtrBar, '=',
-					new Integer(Stimuli.LOGIC_LOW), Stimuli.GATE_STRENGTH, als.timeAbs);
+					Stimuli.LOGIC_LOW, Stimuli.GATE_STRENGTH, als.timeAbs);
 			}
 		}
 	}
@@ -224,11 +224,11 @@ public class UserCom
 			ALS.ALSExport argPtr = primHead.exList.get(0);
 
 			// dataIn signal now selected
-			int dIn = argPtr.nodePtr.sumState;
+			int dIn = als.getSim().getSumState(argPtr.nodePtr);
 			argPtr = primHead.exList.get(1);
 
 			// clk signal now selected
-			int clk = argPtr.nodePtr.sumState;
+			int clk = als.getSim().getSumState(argPtr.nodePtr);
 
 			// do nothing if not a +ve clock edge
 			if (clk != Stimuli.LOGIC_LOW) return;
@@ -243,7 +243,7 @@ public class UserCom
 			argPtr = primHead.exList.get(2);
 			int q = dIn;
 			scheduleNodeUpdate(primHead, argPtr, '=',
-				new Integer(q), Stimuli.GATE_STRENGTH, als.timeAbs);
+				q, Stimuli.GATE_STRENGTH, als.timeAbs);
 		}
 	}
 
@@ -269,12 +269,12 @@ public class UserCom
 			int state = 0;
 			for (int i = 7; i > -1; --i)
 			{
-				int bit = argPtr.nodePtr.sumState;
+				int bit = als.getSim().getSumState(argPtr.nodePtr);
 				if (bit == Stimuli.LOGIC_HIGH) state += (0x01 << i);
 				argPtr = it.next();
 			}
 			scheduleNodeUpdate(primHead, argPtr, '=',
-				new Integer(state), Stimuli.VDD_STRENGTH, als.timeAbs);
+				state, Stimuli.VDD_STRENGTH, als.timeAbs);
 		}
 	}
 
@@ -296,7 +296,7 @@ public class UserCom
 		{
 			Iterator<ALS.ALSExport> it = primHead.exList.iterator();
 			ALS.ALSExport argPtr = it.next();
-			int input = argPtr.nodePtr.sumState;
+			int input = als.getSim().getSumState(argPtr.nodePtr);
 
 			for (int i = 7; i > -1; --i)
 			{
@@ -306,11 +306,11 @@ public class UserCom
 				if ((input & mask) != 0)
 				{
 					scheduleNodeUpdate(primHead, argPtr, '=',
-						new Integer(Stimuli.LOGIC_HIGH), Stimuli.VDD_STRENGTH, als.timeAbs);
+						Stimuli.LOGIC_HIGH, Stimuli.VDD_STRENGTH, als.timeAbs);
 				} else
 				{
 					scheduleNodeUpdate(primHead, argPtr, '=',
-						new Integer(Stimuli.LOGIC_LOW), Stimuli.VDD_STRENGTH, als.timeAbs);
+						Stimuli.LOGIC_LOW, Stimuli.VDD_STRENGTH, als.timeAbs);
 				}
 			}
 		}
@@ -36,6 +36,7 @@ import com.sun.electric.database.topology.NodeInst;
 import com.sun.electric.database.variable.VarContext;
 
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.PrintStream;
@@ -83,6 +84,30 @@ public abstract class ErrorHighlight implements Serializable {
 
     Object getObject(EDatabase database) { return null; }
 
+    /**
+     * Method to extend a bounding box by this highlight.
+     * @param bounds minX, minY, maxX and maxY of the box, which are updated
+     * @param database database to find nodes and arcs (may be null)
+     */
+    void addBounds(double[] bounds, EDatabase database)
+    {
+        Object obj = database != null ? getObject(database) : null;
+        if (obj instanceof Geometric)
+        {
+            Rectangle2D r = ((Geometric)obj).getBounds();
+            addPoint(bounds, r.getMinX(), r.getMinY());
+            addPoint(bounds, r.getMaxX(), r.getMaxY());
+        }
+    }
+
+    static void addPoint(double[] bounds, double x, double y)
+    {
+        bounds[0] = Math.min(bounds[0], x);
+        bounds[1] = Math.min(bounds[1], y);
+        bounds[2] = Math.max(bounds[2], x);
+        bounds[3] = Math.max(bounds[3], y);
+    }
+
     static String getImplementedXmlHeaders() { return "ERRORTYPEGEOM|ERRORTYPETHICKLINE|ERRORTYPELINE|ERRORTYPEPOINT|ERRORTYPEPOLY";}
     static boolean isErrorHighlightBody(String name)
     {
@@ -160,6 +185,14 @@ public abstract class ErrorHighlight implements Serializable {
         return new ErrorHighPoint(cell, EPoint.snap(pt));
     }
 
+    public static ErrorHighlight newInstance(CellId cellId, EPoint p1, EPoint p2, boolean thickLine) {
+        return new ErrorHighLine(cellId, p1, p2, thickLine);
+    }
+
+    public static ErrorHighlight newInstance(CellId cellId, EPoint pt) {
+        return new ErrorHighPoint(cellId, pt);
+    }
+
     public static ErrorHighlight newInstance(Export e) {
         return new ErrorHighExport(null, e);
     }
@@ -306,6 +339,12 @@ class ErrorHighPoly extends ErrorHighlight
 
     Cell getOrigCell(EDatabase database) { return origCellId != null ? database.getCell(origCellId) : null; }
 
+    void addBounds(double[] bounds, EDatabase database)
+    {
+        for (ErrorHighlight line : linesList)
+            line.addBounds(bounds, database);
+    }
+
     public void addToHighlighter(Highlighter h, EDatabase database)
     {
         for (ErrorHighlight line : linesList)
@@ -373,6 +412,12 @@ class ErrorHighLine extends ErrorHighlight {
         Cell cell = getCell(database);
         h.addLine(p1, p2, cell, thickLine, true);
     }
+
+    void addBounds(double[] bounds, EDatabase database)
+    {
+        addPoint(bounds, p1.getX(), p1.getY());
+        addPoint(bounds, p2.getX(), p2.getY());
+    }
     
     @Override
     void write(IdWriter writer) throws IOException {
@@ -408,6 +453,11 @@ class ErrorHighPoint extends ErrorHighlight {
                 new Point2D.Double(point.getX()+consize, point.getY()-consize), cell);
     }
 
+    void addBounds(double[] bounds, EDatabase database)
+    {
+        addPoint(bounds, point.getX(), point.getY());
+    }
+
     public static void writeXmlHeader(String indent, PrintStream ps)
     {
         ps.println(indent + "<!ELEMENT ERRORTYPEPOINT ANY>");
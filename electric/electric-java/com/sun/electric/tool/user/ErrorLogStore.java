@@ -0,0 +1,517 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ErrorLogStore.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.user;
+
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.database.id.CellId;
+import com.sun.electric.database.id.IdManager;
+import com.sun.electric.database.id.IdReader;
+import com.sun.electric.database.id.IdWriter;
+import com.sun.electric.database.topology.RTBounds;
+import com.sun.electric.database.topology.RTNode;
+import com.sun.electric.tool.user.ErrorLogger.MessageLog;
+import com.sun.electric.tool.user.ErrorLogger.WarningLog;
+import com.sun.electric.util.math.AbstractFixpRectangle;
+import com.sun.electric.util.math.FixpCoord;
+import com.sun.electric.util.math.FixpRectangle;
+
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.WeakHashMap;
+
+/**
+ * Class to keep the messages of a disk-backed ErrorLogger in a temporary file.
+ * Messages are appended to the file in the format of MessageLog.write.
+ * Only the offset, the cell, the sort key and the bounding box of each message stay in memory,
+ * messages are read back on demand and recently used ones are cached.
+ * Messages of each cell are indexed, and an R-tree of each cell finds them by area.
+ * Like ErrorLogger, messages are numbered by their position: errors first, then warnings.
+ */
+class ErrorLogStore
+{
+    /** number of messages kept in memory */                private static final int CACHE_SIZE = 1000;
+    /** size of appended data kept before writing */        private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final OutputStream fileOut;
+    /** appended messages not written to the file yet */    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    /** length of the file */                               private long fileLength;
+    private IdManager idManager;
+    private IdWriter writer;
+
+    /** number of messages ever appended */                 private int numRecords;
+    /** offsets of messages, the last is the end */         private long[] offsets = new long[17];
+    private int[] sortKeys = new int[16];
+    private CellId[] cellIds = new CellId[16];
+    private boolean[] warnings = new boolean[16];
+    /** minX, minY, maxX, maxY of messages, NaN if none */  private double[] bounds = new double[64];
+    /** position of messages in their list, -1 if removed */private int[] positions = new int[16];
+    private boolean positionsValid = true;
+
+    private int[] errorRecords = new int[16];
+    private int numErrors;
+    private int[] warningRecords = new int[16];
+    private int numWarnings;
+    /** true if messages are numbered by termLogging */     private boolean numbered;
+
+    private final Map<CellId,CellIndex> cellIndexes = new HashMap<CellId,CellIndex>();
+    private final Map<Integer,MessageLog> cache = new LinkedHashMap<Integer,MessageLog>(16, 0.75f, true)
+    {
+        protected boolean removeEldestEntry(Map.Entry<Integer,MessageLog> eldest) { return size() > CACHE_SIZE; }
+    };
+    /** messages in memory and their records */             private final Map<MessageLog,Integer> records = new WeakHashMap<MessageLog,Integer>();
+
+    /**
+     * Messages of one cell with an R-tree of their bounding boxes.
+     */
+    private static class CellIndex
+    {
+        private int[] records = new int[4];
+        private int size;
+        /** messages with bounds */                              private RTNode<MessageBounds> tree = RTNode.makeTopLevel();
+    }
+
+    /**
+     * Bounding box of a message in the R-tree of its cell.
+     */
+    private static class MessageBounds implements RTBounds
+    {
+        private final int record;
+        private final FixpRectangle bounds;
+
+        MessageBounds(int record, double[] b)
+        {
+            this.record = record;
+            bounds = FixpRectangle.fromFixpDiagonal(FixpCoord.lambdaToFixp(b[0]), FixpCoord.lambdaToFixp(b[1]),
+                FixpCoord.lambdaToFixp(b[2]), FixpCoord.lambdaToFixp(b[3]));
+        }
+
+        public AbstractFixpRectangle getBounds() { return bounds; }
+    }
+
+    ErrorLogStore()
+    {
+        try
+        {
+            file = File.createTempFile("Electric", "Errors");
+            file.deleteOnExit();
+            raf = new RandomAccessFile(file, "rw");
+            fileOut = Channels.newOutputStream(raf.getChannel());
+        } catch (IOException e) { throw new RuntimeException(e); }
+    }
+
+    /**
+     * Method to append a message to the file.
+     * @param log the message to append
+     */
+    synchronized void add(MessageLog log)
+    {
+        if (writer == null)
+        {
+            // cells of messages are written by their index in IdManager
+            EDatabase database = EDatabase.currentDatabase();
+            idManager = log.logCellId != null ? log.logCellId.idManager
+                : database != null ? database.getIdManager() : new IdManager();
+            writer = new IdWriter(idManager, new DataOutputStream(pending));
+        }
+        int r = numRecords;
+        if (r + 1 >= offsets.length)
+            grow();
+        try
+        {
+            log.write(writer);
+            writer.flush();
+        } catch (IOException e) { throw new RuntimeException(e); }
+        offsets[r + 1] = fileLength + pending.size();
+        sortKeys[r] = log.getSortKey();
+        cellIds[r] = log.logCellId;
+        boolean isWarning = log instanceof WarningLog;
+        warnings[r] = isWarning;
+        double[] b = log.getBounds(EDatabase.currentDatabase());
+        if (b != null)
+            System.arraycopy(b, 0, bounds, r*4, 4);
+        else
+            Arrays.fill(bounds, r*4, r*4 + 4, Double.NaN);
+        if (isWarning)
+        {
+            if (numWarnings == warningRecords.length)
+                warningRecords = Arrays.copyOf(warningRecords, numWarnings*2);
+            positions[r] = numWarnings;
+            warningRecords[numWarnings++] = r;
+        } else
+        {
+            if (numErrors == errorRecords.length)
+                errorRecords = Arrays.copyOf(errorRecords, numErrors*2);
+            positions[r] = numErrors;
+            errorRecords[numErrors++] = r;
+        }
+        if (log.logCellId != null)
+        {
+            CellIndex ci = cellIndexes.get(log.logCellId);
+            if (ci == null)
+                cellIndexes.put(log.logCellId, ci = new CellIndex());
+            if (ci.size == ci.records.length)
+                ci.records = Arrays.copyOf(ci.records, ci.size*2);
+            ci.records[ci.size++] = r;
+            if (b != null)
+                ci.tree = RTNode.linkGeom(null, ci.tree, new MessageBounds(r, b));
+        }
+        numRecords++;
+        records.put(log, Integer.valueOf(r));
+        if (pending.size() >= BUFFER_SIZE)
+            flush();
+    }
+
+    private void grow()
+    {
+        int n = sortKeys.length*2;
+        offsets = Arrays.copyOf(offsets, n + 1);
+        sortKeys = Arrays.copyOf(sortKeys, n);
+        cellIds = Arrays.copyOf(cellIds, n);
+        warnings = Arrays.copyOf(warnings, n);
+        bounds = Arrays.copyOf(bounds, n*4);
+        positions = Arrays.copyOf(positions, n);
+    }
+
+    private void flush()
+    {
+        try
+        {
+            raf.seek(fileLength);
+            pending.writeTo(fileOut);
+            fileLength += pending.size();
+            pending.reset();
+        } catch (IOException e) { throw new RuntimeException(e); }
+    }
+
+    /**
+     * Method to read a message from the file.
+     * @param r the record of the message
+     * @return the message
+     */
+    private MessageLog read(int r)
+    {
+        if (offsets[r + 1] > fileLength)
+            flush();
+        try
+        {
+            byte[] buf = new byte[(int)(offsets[r + 1] - offsets[r])];
+            raf.seek(offsets[r]);
+            raf.readFully(buf);
+            IdReader reader = new IdReader(new DataInputStream(new ByteArrayInputStream(buf)), idManager);
+            return MessageLog.read(reader);
+        } catch (IOException e) { throw new RuntimeException(e); }
+    }
+
+    private int getRecord(int i)
+    {
+        return i < numErrors ? errorRecords[i] : warningRecords[i - numErrors];
+    }
+
+    private int getPosition(int r)
+    {
+        if (!positionsValid)
+        {
+            Arrays.fill(positions, 0, numRecords, -1);
+            for (int i = 0; i < numErrors; i++)
+                positions[errorRecords[i]] = i;
+            for (int i = 0; i < numWarnings; i++)
+                positions[warningRecords[i]] = i;
+            positionsValid = true;
+        }
+        int pos = positions[r];
+        if (pos >= 0 && warnings[r])
+            pos += numErrors;
+        return pos;
+    }
+
+    /**
+     * Method to get a message, reading it from the file if it is not in memory.
+     * @param r the record of the message
+     * @param cached true to remember the message for later use
+     * @return the message
+     */
+    private MessageLog getLogOfRecord(int r, boolean cached)
+    {
+        Integer key = Integer.valueOf(r);
+        MessageLog log = cache.get(key);
+        if (log == null)
+        {
+            log = read(r);
+            records.put(log, key);
+            if (cached)
+                cache.put(key, log);
+        }
+        log.index = numbered ? getPosition(r) + 1 : 0;
+        return log;
+    }
+
+    synchronized int getNumErrors() { return numErrors; }
+
+    synchronized int getNumWarnings() { return numWarnings; }
+
+    synchronized int getNumLogs() { return numErrors + numWarnings; }
+
+    /**
+     * Method to get a message by its position.
+     * A few recently used messages are kept in memory.
+     * @param i the position of the message, errors first
+     * @return the message
+     */
+    synchronized MessageLog getLog(int i)
+    {
+        return getLogOfRecord(getRecord(i), true);
+    }
+
+    /**
+     * Method to read a message by its position without keeping it in memory.
+     * @param i the position of the message, errors first
+     * @return the message
+     */
+    synchronized MessageLog readLog(int i)
+    {
+        return getLogOfRecord(getRecord(i), false);
+    }
+
+    /**
+     * Method to get the sort key of a message without reading it.
+     * @param i the position of the message, errors first
+     * @return the sort key
+     */
+    synchronized int getSortKey(int i) { return sortKeys[getRecord(i)]; }
+
+    /**
+     * Method to find the position of a message.
+     * @param log the message, appended to this store or read from it
+     * @return the position or -1 if it was removed or doesn't belong to this store
+     */
+    synchronized int getLogIndex(MessageLog log)
+    {
+        Integer r = records.get(log);
+        return r != null ? getPosition(r.intValue()) : -1;
+    }
+
+    /**
+     * Method to iterate over messages without keeping them in memory.
+     * @return an Iterator over all messages, errors first
+     */
+    synchronized Iterator<MessageLog> iterator()
+    {
+        final int[] recs = new int[numErrors + numWarnings];
+        System.arraycopy(errorRecords, 0, recs, 0, numErrors);
+        System.arraycopy(warningRecords, 0, recs, numErrors, numWarnings);
+        return new Iterator<MessageLog>()
+        {
+            private int i;
+
+            public boolean hasNext() { return i < recs.length; }
+
+            public MessageLog next()
+            {
+                if (i >= recs.length) throw new NoSuchElementException();
+                synchronized (ErrorLogStore.this) { return getLogOfRecord(recs[i++], false); }
+            }
+
+            public void remove() { throw new UnsupportedOperationException(); }
+        };
+    }
+
+    synchronized void setNumbered() { numbered = true; }
+
+    /**
+     * Method to remove a message. Its data stays in the file.
+     * @param i the position of the message, errors first
+     */
+    synchronized void remove(int i)
+    {
+        if (i < numErrors)
+        {
+            System.arraycopy(errorRecords, i + 1, errorRecords, i, numErrors - i - 1);
+            numErrors--;
+        } else
+        {
+            i -= numErrors;
+            System.arraycopy(warningRecords, i + 1, warningRecords, i, numWarnings - i - 1);
+            numWarnings--;
+        }
+        positionsValid = false;
+    }
+
+    /**
+     * Method to remove all messages of a cell.
+     * @param cellId the cell
+     * @return true if any message was removed
+     */
+    synchronized boolean removeLogs(CellId cellId)
+    {
+        if (cellIndexes.remove(cellId) == null) return false;
+        int oldNumLogs = numErrors + numWarnings;
+        numErrors = removeLogs(errorRecords, numErrors, cellId);
+        numWarnings = removeLogs(warningRecords, numWarnings, cellId);
+        positionsValid = false;
+        return numErrors + numWarnings != oldNumLogs;
+    }
+
+    private int removeLogs(int[] recs, int size, CellId cellId)
+    {
+        int k = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (cellIds[recs[i]] != cellId)
+                recs[k++] = recs[i];
+        }
+        return k;
+    }
+
+    /**
+     * Method to sort errors and warnings by their sort keys.
+     * Messages with the same key keep their order, so messages are not read.
+     */
+    synchronized void sort()
+    {
+        sort(errorRecords, numErrors);
+        sort(warningRecords, numWarnings);
+        positionsValid = false;
+    }
+
+    private void sort(int[] recs, int size)
+    {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = ((long)sortKeys[recs[i]] << 32) | recs[i];
+        Arrays.sort(keys);
+        for (int i = 0; i < size; i++)
+            recs[i] = (int)keys[i];
+    }
+
+    /**
+     * Method to count the messages of a cell.
+     * @param cellId the cell
+     * @param searchInError true to count errors, false to count warnings
+     * @return the number of messages
+     */
+    synchronized int getNumLogs(CellId cellId, boolean searchInError)
+    {
+        CellIndex ci = cellIndexes.get(cellId);
+        if (ci == null) return 0;
+        int count = 0;
+        for (int i = 0; i < ci.size; i++)
+        {
+            int r = ci.records[i];
+            if (warnings[r] != searchInError && getPosition(r) >= 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Method to get the messages of a cell.
+     * @param cellId the cell
+     * @param area the area which bounding boxes of the messages must intersect, or null for all messages
+     * @return the messages in logging order
+     */
+    synchronized List<MessageLog> getLogs(CellId cellId, Rectangle2D area)
+    {
+        List<MessageLog> logs = new ArrayList<MessageLog>();
+        CellIndex ci = cellIndexes.get(cellId);
+        if (ci == null) return logs;
+        if (area == null)
+        {
+            for (int i = 0; i < ci.size; i++)
+            {
+                int r = ci.records[i];
+                if (getPosition(r) >= 0)
+                    logs.add(getLogOfRecord(r, true));
+            }
+            return logs;
+        }
+        int[] found = new int[ci.size];
+        int numFound = 0;
+        for (Iterator<MessageBounds> it = new RTNode.Search<MessageBounds>(area, ci.tree, true); it.hasNext(); )
+            found[numFound++] = it.next().record;
+        Arrays.sort(found, 0, numFound);
+        for (int i = 0; i < numFound; i++)
+        {
+            int r = found[i];
+            if (getPosition(r) >= 0)
+                logs.add(getLogOfRecord(r, true));
+        }
+        return logs;
+    }
+
+    /**
+     * Method to remove all messages and truncate the file.
+     */
+    synchronized void clear()
+    {
+        try
+        {
+            raf.setLength(0);
+        } catch (IOException e) { throw new RuntimeException(e); }
+        pending.reset();
+        fileLength = 0;
+        numRecords = 0;
+        numErrors = numWarnings = 0;
+        positionsValid = true;
+        cellIndexes.clear();
+        cache.clear();
+        records.clear();
+    }
+
+    /**
+     * Method to release the file.
+     */
+    synchronized void close()
+    {
+        try
+        {
+            raf.close();
+        } catch (IOException e) { throw new RuntimeException(e); }
+        file.delete();
+        cellIndexes.clear();
+        cache.clear();
+        records.clear();
+    }
+
+    /**
+     * Method to tell the length of data appended to the file.
+     * @return the number of bytes
+     */
+    synchronized long getDataLength() { return fileLength + pending.size(); }
+}
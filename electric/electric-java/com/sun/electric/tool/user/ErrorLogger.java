@@ -212,6 +212,29 @@ public class ErrorLogger implements Serializable
             return (false);
         }
 
+        /**
+         * Method to compute the bounding box of highlights of this log.
+         * @param database database to find nodes and arcs (may be null)
+         * @return minX, minY, maxX and maxY of the box, or null if highlights have no location.
+         */
+        double[] getBounds(EDatabase database)
+        {
+            double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for(ErrorHighlight eh : highlights)
+                eh.addBounds(bounds, database);
+            return bounds[0] <= bounds[2] ? bounds : null;
+        }
+
+        /**
+         * Method to tell if highlights of this log overlap an area.
+         */
+        boolean intersects(Rectangle2D area)
+        {
+            double[] bounds = getBounds(EDatabase.currentDatabase());
+            return bounds != null && bounds[0] <= area.getMaxX() && bounds[2] >= area.getMinX() &&
+                bounds[1] <= area.getMaxY() && bounds[3] >= area.getMinY();
+        }
+
         /**
          * Method to describe this error.
          */
@@ -266,7 +289,7 @@ public class ErrorLogger implements Serializable
             writer.writeInt(index);
         }
 
-        private static MessageLog read(IdReader reader) throws IOException {
+        static MessageLog read(IdReader reader) throws IOException {
             boolean isWarning = reader.readBoolean();
             String message = reader.readString();
             boolean hasCellId = reader.readBoolean();
@@ -316,6 +339,7 @@ public class ErrorLogger implements Serializable
     private boolean disablePopups;
     private Map<Integer,String> sortKeysToGroupNames; // association of sortKeys to GroupNames
     Map<Geometric,Set<MessageLog>> findLogs = new HashMap<Geometric,Set<MessageLog>>();
+    /** messages of a disk-backed logger, null if messages are in memory */ private transient ErrorLogStore store;
 
     public Map<Integer,String> getSortKeyToGroupNames() { return sortKeysToGroupNames; }
 
@@ -325,6 +349,12 @@ public class ErrorLogger implements Serializable
 
     public boolean isPopupsDisabled() { return disablePopups; }
 
+    /**
+     * Method to tell if messages of this logger are kept in a temporary file.
+     * @return true if this logger is disk-backed.
+     */
+    public boolean isDiskBacked() { return store != null; }
+
     public void disablePopups() { disablePopups = true; }
 
     public ErrorLogger() {}
@@ -332,14 +362,14 @@ public class ErrorLogger implements Serializable
     public void write(IdWriter writer) throws IOException {
         writer.writeDiffs();
         writer.writeInt(errorLimit);
-        int numErrors = allErrors.size();
+        int numErrors = getNumErrors();
         writer.writeInt(numErrors);
         for (int i = 0; i < numErrors; i++)
-            allErrors.get(i).write(writer);
-        int numWarnings = allWarnings.size();
+            (store != null ? store.readLog(i) : allErrors.get(i)).write(writer);
+        int numWarnings = getNumWarnings();
         writer.writeInt(numWarnings);
         for (int i = 0; i < numWarnings; i++)
-            allWarnings.get(i).write(writer);
+            (store != null ? store.readLog(numErrors + i) : allWarnings.get(i)).write(writer);
         writer.writeString(errorSystem);
         writer.writeBoolean(terminated);
         writer.writeBoolean(persistent);
@@ -392,8 +422,24 @@ public class ErrorLogger implements Serializable
      * @return a new ErrorLogger for logging errors
      */
     public static ErrorLogger newInstance(String system, boolean persistent)
+    {
+        return newInstance(system, persistent, false);
+    }
+
+    /**
+     * Create a new ErrorLogger instance.
+     * A disk-backed logger appends messages to a temporary file and reads them back on demand,
+     * so a run with very many messages doesn't exhaust memory.
+     * @param system the name of the system which logs messages
+     * @param persistent true if the logger cannot be deleted
+     * @param diskBacked true to keep messages in a temporary file
+     * @return a new ErrorLogger for logging errors
+     */
+    public static ErrorLogger newInstance(String system, boolean persistent, boolean diskBacked)
     {
         ErrorLogger logger = new ErrorLogger();
+        if (diskBacked)
+            logger.store = new ErrorLogStore();
         logger.limitExceeded = false;
         logger.errorSystem = system;
         logger.errorLimit = User.getErrorLimit();
@@ -408,28 +454,48 @@ public class ErrorLogger implements Serializable
     public void addMessages(List<MessageLog> messages)
     {
         if (messages == null) return; // to avoid to create empty lists during incremental checking
-        for (MessageLog m: messages) {
-            if (m instanceof WarningLog)
-                allWarnings.add((WarningLog)m);
-            else
-                allErrors.add(m);
-            hashMessage(m);
-        }
+        for (MessageLog m: messages)
+            addMessage(m);
 //        if (persistent) Job.getUserInterface(). wantToRedoErrorTree();
     }
 
     public void addMessages(ErrorLogger logger)
     {
+        if (store != null || logger.store != null)
+        {
+            for (Iterator<MessageLog> it = logger.getLogs(); it.hasNext(); )
+                addMessage(it.next());
+            return;
+        }
         allWarnings.addAll(logger.allWarnings);
         for(MessageLog ml : logger.allWarnings) hashMessage(ml);
         allErrors.addAll(logger.allErrors);
         for(MessageLog ml : logger.allErrors) hashMessage(ml);
     }
 
+    private void addMessage(MessageLog m)
+    {
+        if (store != null)
+        {
+            store.add(m);
+            return;
+        }
+        if (m instanceof WarningLog)
+            allWarnings.add((WarningLog)m);
+        else
+            allErrors.add(m);
+        hashMessage(m);
+    }
+
     public void deleteMessages(List<MessageLog> messages)
     {
         if (messages == null) return; // to avoid to increase empty lists during incremental checking
         for (MessageLog m: messages) {
+            if (store != null) {
+                int index = store.getLogIndex(m);
+                if (index >= 0) store.remove(index);
+                continue;
+            }
             if (m instanceof WarningLog)
                 allWarnings.remove(m);
             else
@@ -509,7 +575,10 @@ public class ErrorLogger implements Serializable
         MessageLog el = new MessageLog(message, cellId, sortKey, highlights);
 
         // add the ErrorLog into the global list
-        allErrors.add(el);
+        if (store != null)
+            store.add(el);
+        else
+            allErrors.add(el);
 //        currentLogNumber = allErrors.size()-1;
 
 //        if (persistent) Job.getUserInterface().wantToRedoErrorTree();
@@ -788,6 +857,11 @@ public class ErrorLogger implements Serializable
 //        el.highlights = new ArrayList<ErrorHighlight>();
 
         // add the ErrorLog into the global list
+        if (store != null)
+        {
+            store.add(el);
+            return el;
+        }
         allWarnings.add(el);
         hashMessage(el);
 
@@ -838,6 +912,17 @@ public class ErrorLogger implements Serializable
     }
 
     public synchronized int getNumMessages(Cell cell, boolean searchInError) {
+        return getNumMessages(cell.getId(), searchInError);
+    }
+
+    /**
+     * Method to count errors or warnings associated with a given Cell.
+     * @param cellId the Id of the Cell to examine.
+     * @param searchInError true to count errors, false to count warnings.
+     * @return the number of errors or warnings.
+     */
+    public synchronized int getNumMessages(CellId cellId, boolean searchInError) {
+        if (store != null) return store.getNumLogs(cellId, searchInError);
         int numErrors = 0;
 
         if (searchInError)
@@ -845,7 +930,7 @@ public class ErrorLogger implements Serializable
             for (int i=0; i<allErrors.size(); i++)
             {
                 MessageLog el = allErrors.get(i);
-                if (el.logCellId == cell.getId())
+                if (el.logCellId == cellId)
                     numErrors++;
             }
         }
@@ -854,7 +939,7 @@ public class ErrorLogger implements Serializable
             for (int i=0; i<allWarnings.size(); i++)
             {
                 MessageLog el = allWarnings.get(i);
-                if (el.logCellId == cell.getId())
+                if (el.logCellId == cellId)
                     numErrors++;
             }
         }
@@ -868,6 +953,21 @@ public class ErrorLogger implements Serializable
 	 */
 	public synchronized boolean findMessage(Cell cell, Geometric geom1, Cell cell2, Geometric geom2, boolean searchInError)
 	{
+		if (store != null)
+		{
+			// candidates are messages of the cells whose highlights overlap the geometries
+			if (cell != null && geom1 != null)
+			{
+				for(MessageLog ml : store.getLogs(cell.getId(), geom1.getBounds()))
+					if (ml.findGeometries(geom1, cell, geom2, cell2)) return true;
+			}
+			if (cell2 != null && geom2 != null)
+			{
+				for(MessageLog ml : store.getLogs(cell2.getId(), geom2.getBounds()))
+					if (ml.findGeometries(geom1, cell, geom2, cell2)) return true;
+			}
+			return false;
+		}
 		Set<MessageLog> theList = findLogs.get(geom1);
 		if (theList != null)
 		{
@@ -896,6 +996,7 @@ public class ErrorLogger implements Serializable
      */
     public synchronized void clearAllLogs()
     {
+        if (store != null) store.clear();
         allErrors.clear();
         allWarnings.clear();
         findLogs.clear();
@@ -908,8 +1009,33 @@ public class ErrorLogger implements Serializable
      */
     public synchronized List<MessageLog> getAllLogs(Cell cell)
     {
-        CellId cellId = cell.getId();
+        return getAllLogs(cell.getId(), null);
+    }
+
+    /**
+     * Method to retrieve MessageLogs associated with a given Cell whose highlights overlap an area.
+     * Disk-backed loggers find them by a spatial index.
+     * @param cellId the Id of the Cell to examine.
+     * @param area the area of the Cell, or null for all MessageLogs of the Cell.
+     * @return errors and then warnings associated with the Cell.
+     */
+    public synchronized List<MessageLog> getAllLogs(CellId cellId, Rectangle2D area)
+    {
         List<MessageLog> msgLogs = new ArrayList<MessageLog>();
+        if (store != null)
+        {
+            List<MessageLog> warnLogs = new ArrayList<MessageLog>();
+            for (MessageLog log : store.getLogs(cellId, area))
+                (log instanceof WarningLog ? warnLogs : msgLogs).add(log);
+            msgLogs.addAll(warnLogs);
+            return msgLogs;
+        }
+        if (area != null)
+        {
+            for (MessageLog log : getAllLogs(cellId, null))
+                if (log.intersects(area)) msgLogs.add(log);
+            return msgLogs;
+        }
         // Searching errors
         for (MessageLog log : allErrors) {
             if (log.logCellId == cellId)
@@ -930,6 +1056,7 @@ public class ErrorLogger implements Serializable
      */
     public synchronized boolean clearLogs(Cell cell) {
         CellId cellId = cell.getId();
+        if (store != null) return store.removeLogs(cellId);
         List<MessageLog> errLogs = new ArrayList<MessageLog>();
         // Errors
         boolean removed = false;
@@ -1008,35 +1135,47 @@ public class ErrorLogger implements Serializable
             {
                 String groupName = sortKeysToGroupNames.get(i);
                 buffWriter.println("    <GroupLog message=\"" + correctXmlString(groupName) + "\">");
-                // Errors
-                for (MessageLog log : allErrors) {
-                    if (log.getSortKey() == i.intValue())
-                        log.writeXmlDescription(buffWriter);
-                }
-                // Warnings
-                for (WarningLog log : allWarnings) {
-                    if (log.getSortKey() == i.intValue())
-                        log.writeXmlDescription(buffWriter);
-                }
+                writeXmlLogs(buffWriter, i);
                 buffWriter.println("    </GroupLog>");
             }
         }
         else // plain style
         {
-            // Errors
-            for (MessageLog log : allErrors) {
-                log.writeXmlDescription(buffWriter);
-            }
-            // Warnings
-            for (WarningLog log : allWarnings) {
-                log.writeXmlDescription(buffWriter);
-            }
+            writeXmlLogs(buffWriter, null);
         }
         buffWriter.println("</" + className + ">");
         buffWriter.close();
         System.out.println(filePath + " written");
     }
 
+    /**
+     * Method to write errors and then warnings in XML.
+     * Messages of a disk-backed logger are read one at a time, so they are not kept in memory.
+     * @param buffWriter the stream to write.
+     * @param sortKey the sort key of messages to write, or null to write all messages.
+     */
+    private synchronized void writeXmlLogs(PrintStream buffWriter, Integer sortKey)
+    {
+        if (store != null)
+        {
+            for (int i = 0; i < store.getNumLogs(); i++) {
+                if (sortKey == null || store.getSortKey(i) == sortKey.intValue())
+                    store.readLog(i).writeXmlDescription(buffWriter);
+            }
+            return;
+        }
+        // Errors
+        for (MessageLog log : allErrors) {
+            if (sortKey == null || log.getSortKey() == sortKey.intValue())
+                log.writeXmlDescription(buffWriter);
+        }
+        // Warnings
+        for (WarningLog log : allWarnings) {
+            if (sortKey == null || log.getSortKey() == sortKey.intValue())
+                log.writeXmlDescription(buffWriter);
+        }
+    }
+
     /**
      * Set a group name for a sortKey.  Doing so causes all errors with
      * this sort key to be put in a sub-tree of the error tree with
@@ -1078,6 +1217,7 @@ public class ErrorLogger implements Serializable
     public synchronized void termLogging_(boolean terminate)
     {
         // enumerate the errors
+        if (store != null) store.setNumbered();
         int errs = 0;
         for(MessageLog el : allErrors)
         {
@@ -1106,6 +1246,12 @@ public class ErrorLogger implements Serializable
      */
     public synchronized void sortLogs()
     {
+        if (store != null)
+        {
+            // messages with the same key are not read to compare them
+            store.sort();
+            return;
+        }
         Collections.sort(allErrors, new ErrorLogOrder());
 	    Collections.sort(allWarnings, new ErrorLogOrder());
     }
@@ -1114,13 +1260,13 @@ public class ErrorLogger implements Serializable
      * Method to tell the number of logged errors.
      * @return the number of "ErrorLog" objects logged.
      */
-    public synchronized int getNumErrors() { return allErrors.size(); }
+    public synchronized int getNumErrors() { return store != null ? store.getNumErrors() : allErrors.size(); }
 
     /**
      * Method to tell the number of logged errors.
      * @return the number of "ErrorLog" objects logged.
      */
-    public synchronized int getNumWarnings() { return allWarnings.size(); }
+    public synchronized int getNumWarnings() { return store != null ? store.getNumWarnings() : allWarnings.size(); }
 
     /**
      * Method to tell the number of logged errors.
@@ -1129,11 +1275,28 @@ public class ErrorLogger implements Serializable
     public synchronized int getNumLogs() { return getNumWarnings() + getNumErrors(); }
 
     public MessageLog getLog(int i) {
+        if (store != null) return store.getLog(i);
         return i < allErrors.size() ? allErrors.get(i) : allWarnings.get(i - allErrors.size());
     }
 
+    /**
+     * Method to get the sort key of a log without reading the log of a disk-backed logger.
+     * @param i the index of the log, errors first.
+     * @return the sort key of the log.
+     */
+    public int getLogSortKey(int i) {
+        if (store != null) return store.getSortKey(i);
+        return getLog(i).getSortKey();
+    }
+
     public int getLogIndex(MessageLog log)
     {
+        if (store != null)
+        {
+            int index = store.getLogIndex(log);
+            assert(index != -1);
+            return index;
+        }
         int index = allErrors.indexOf(log);
         if (index != -1)
             return index;
@@ -1149,6 +1312,7 @@ public class ErrorLogger implements Serializable
      * @return an Iterator over all of the "ErrorLog" objects.
      */
     public synchronized Iterator<MessageLog> getLogs() {
+        if (store != null) return store.iterator();
         List<MessageLog> copy = new ArrayList<MessageLog>();
         for (MessageLog ml : allErrors) {
             copy.add(ml);
@@ -1160,7 +1324,9 @@ public class ErrorLogger implements Serializable
     }
 
     public synchronized void deleteLog(int i) {
-        if (i < allErrors.size()) {
+        if (store != null) {
+            store.remove(i);
+        } else if (i < allErrors.size()) {
         	unHashMessage(allErrors.get(i));
             allErrors.remove(i);
         } else {
@@ -1169,6 +1335,17 @@ public class ErrorLogger implements Serializable
         }
     }
 
+    /**
+     * Method to release the temporary file of a disk-backed logger.
+     * The logger has no messages after this.
+     */
+    public synchronized void dispose() {
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+    }
+
     // ----------------------------- Explorer Tree Stuff ---------------------------
 
 //     public void databaseEndChangeBatch(Undo.ChangeBatch batch) {
@@ -1312,9 +1312,14 @@ public class User extends Listener
 	/**
 	 * Method to get the default font to use on the display.
 	 * The default is "SansSerif".
+	 * When there is no user interface (for example, when rendering images in batch mode), the factory default is used.
 	 * @return the default font to use on the display.
 	 */
-	public static String getDefaultFont() { return UserInterfaceMain.getGraphicsPreferences().defaultFont; }
+	public static String getDefaultFont()
+	{
+		GraphicsPreferences gp = UserInterfaceMain.getGraphicsPreferences();
+		return gp != null ? gp.defaultFont : getFactoryDefaultFont();
+	}
 	/**
 	 * Method to get the factory default font to use on the display.
 	 * @return the factory default font to use on the display.
@@ -2297,6 +2302,46 @@ public class User extends Listener
 	 */
 	public static int getFactoryDisplayAlgorithm() { return cacheWhichDisplayAlgorithm.getIntFactoryValue(); }
 
+	private static Pref cacheUseTiledDisplay = Pref.makeBooleanPref("UseTiledDisplay", tool.prefs, false);
+	/**
+	 * Method to tell whether the vector display algorithm splits the window into tiles
+	 * that are drawn by several threads at once.
+	 * The default is "false".
+	 * @return true to draw the window in tiles with several threads.
+	 */
+	public static boolean isUseTiledDisplay() { return cacheUseTiledDisplay.getBoolean(); }
+	/**
+	 * Method to set whether the vector display algorithm splits the window into tiles
+	 * that are drawn by several threads at once.
+	 * @param on true to draw the window in tiles with several threads.
+	 */
+	public static void setUseTiledDisplay(boolean on) { cacheUseTiledDisplay.setBoolean(on); }
+	/**
+	 * Method to tell whether the vector display algorithm splits the window into tiles, by default.
+	 * @return true to draw the window in tiles with several threads, by default.
+	 */
+	public static boolean isFactoryUseTiledDisplay() { return cacheUseTiledDisplay.getBooleanFactoryValue(); }
+
+	private static Pref cacheUseLevelOfDetailDisplay = Pref.makeBooleanPref("UseLevelOfDetailDisplay", tool.prefs, false);
+	/**
+	 * Method to tell whether the vector display algorithm draws cells that are small on the screen
+	 * from their layer coverage, instead of descending into their contents.
+	 * The default is "false".
+	 * @return true to draw small cells from their layer coverage.
+	 */
+	public static boolean isUseLevelOfDetailDisplay() { return cacheUseLevelOfDetailDisplay.getBoolean(); }
+	/**
+	 * Method to set whether the vector display algorithm draws cells that are small on the screen
+	 * from their layer coverage, instead of descending into their contents.
+	 * @param on true to draw small cells from their layer coverage.
+	 */
+	public static void setUseLevelOfDetailDisplay(boolean on) { cacheUseLevelOfDetailDisplay.setBoolean(on); }
+	/**
+	 * Method to tell whether the vector display algorithm draws small cells from their layer coverage, by default.
+	 * @return true to draw small cells from their layer coverage, by default.
+	 */
+	public static boolean isFactoryUseLevelOfDetailDisplay() { return cacheUseLevelOfDetailDisplay.getBooleanFactoryValue(); }
+
 	private static Pref cacheUseCellGreekingImages = Pref.makeBooleanPref("UseCellGreekingImages", tool.prefs, false);
 	/**
 	 * Method to tell whether to use small images when greeking cells.
@@ -2546,6 +2591,24 @@ public class User extends Listener
 	 */
 	public static int getFactoryErrorLimit() { return cacheErrorLimit.getIntFactoryValue(); }
 
+	private static Pref cacheErrorLogOnDisk = Pref.makeBooleanServerPref("ErrorLogOnDisk", tool.prefs, false);
+	/**
+	 * Method to tell whether DRC errors are kept in a temporary file instead of memory.
+	 * The default is false.
+	 * @return true if DRC errors are kept in a temporary file.
+	 */
+	public static boolean isErrorLogOnDisk() { return cacheErrorLogOnDisk.getBoolean(); }
+	/**
+	 * Method to set whether DRC errors are kept in a temporary file instead of memory.
+	 * @param on true if DRC errors are kept in a temporary file.
+	 */
+	public static void setErrorLogOnDisk(boolean on) { cacheErrorLogOnDisk.setBoolean(on); }
+	/**
+	 * Method to tell whether DRC errors are kept in a temporary file instead of memory, by default.
+	 * @return true if DRC errors are kept in a temporary file, by default.
+	 */
+	public static boolean isFactoryErrorLogOnDisk() { return cacheErrorLogOnDisk.getBooleanFactoryValue(); }
+
 	private static Pref cacheMaxUndoHistory = Pref.makeIntPref(StartupPrefs.MaxUndoHistoryKey, tool.prefs, StartupPrefs.MaxUndoHistoryDef);
 	/**
 	 * Method to get the maximum number of undos retained in memory
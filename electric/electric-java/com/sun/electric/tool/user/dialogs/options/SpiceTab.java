@@ -109,6 +109,7 @@ public class SpiceTab extends PreferencePanel
 		spicePrimitivesetPopup.setSelectedItem(SimulationTool.getSpicePartsLibrary());
 
 		spiceMaxCharsPerLine.setText(SimulationTool.getSpiceMaxCharsPerLine() + "");
+		spiceWriterThreads.setText(SimulationTool.getSpiceWriterThreads() + "");
 		spiceWritePwrGndSubcircuit.setSelected(SimulationTool.isSpiceWritePwrGndInTopCell());
         spiceUseCellParameters.setSelected(SimulationTool.isSpiceUseCellParameters());
 		spiceWriteTransSizesInLambda.setSelected(SimulationTool.isSpiceWriteTransSizeInLambda());
@@ -231,6 +232,9 @@ public class SpiceTab extends PreferencePanel
 		int intNow = TextUtils.atoi(spiceMaxCharsPerLine.getText());
 		if (intNow != SimulationTool.getSpiceMaxCharsPerLine()) SimulationTool.setSpiceMaxCharsPerLine(intNow);
 
+		intNow = Math.max(1, TextUtils.atoi(spiceWriterThreads.getText()));
+		if (intNow != SimulationTool.getSpiceWriterThreads()) SimulationTool.setSpiceWriterThreads(intNow);
+
 		boolean booleanNow = spiceWritePwrGndSubcircuit.isSelected();
 		if (SimulationTool.isSpiceWritePwrGndInTopCell() != booleanNow) SimulationTool.setSpiceWritePwrGndInTopCell(booleanNow);
 
@@ -328,6 +332,8 @@ public class SpiceTab extends PreferencePanel
 
         if (SimulationTool.getFactorySpiceMaxCharsPerLine() != SimulationTool.getSpiceMaxCharsPerLine())
 			SimulationTool.setSpiceMaxCharsPerLine(SimulationTool.getFactorySpiceMaxCharsPerLine());
+        if (SimulationTool.getFactorySpiceWriterThreads() != SimulationTool.getSpiceWriterThreads())
+			SimulationTool.setSpiceWriterThreads(SimulationTool.getFactorySpiceWriterThreads());
         if (SimulationTool.isFactorySpiceWritePwrGndInTopCell() != SimulationTool.isSpiceWritePwrGndInTopCell())
 			SimulationTool.setSpiceWritePwrGndInTopCell(SimulationTool.isFactorySpiceWritePwrGndInTopCell());
         if (SimulationTool.isFactorySpiceUseCellParameters() != SimulationTool.isSpiceUseCellParameters())
@@ -425,6 +431,8 @@ public class SpiceTab extends PreferencePanel
         spiceGlobalTreatment = new javax.swing.JComboBox();
         jLabel14 = new javax.swing.JLabel();
         spiceMaxCharsPerLine = new javax.swing.JTextField();
+        jLabel15 = new javax.swing.JLabel();
+        spiceWriterThreads = new javax.swing.JTextField();
         upperRight = new javax.swing.JPanel();
         spiceWriteEndStatement = new javax.swing.JCheckBox();
         spiceWriteTransSizesInLambda = new javax.swing.JCheckBox();
@@ -712,6 +720,20 @@ public class SpiceTab extends PreferencePanel
         gridBagConstraints.insets = new java.awt.Insets(0, 4, 0, 4);
         upperLeft.add(spiceMaxCharsPerLine, gridBagConstraints);
 
+        jLabel15.setText("Writer threads:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 7;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.WEST;
+        gridBagConstraints.insets = new java.awt.Insets(0, 2, 0, 0);
+        upperLeft.add(jLabel15, gridBagConstraints);
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 7;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.HORIZONTAL;
+        gridBagConstraints.insets = new java.awt.Insets(0, 4, 0, 4);
+        upperLeft.add(spiceWriterThreads, gridBagConstraints);
+
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
         gridBagConstraints.gridy = 0;
@@ -988,6 +1010,7 @@ public class SpiceTab extends PreferencePanel
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel13;
     private javax.swing.JLabel jLabel14;
+    private javax.swing.JLabel jLabel15;
     private javax.swing.JLabel jLabel17;
     private javax.swing.JLabel jLabel2;
     private javax.swing.JLabel jLabel3;
@@ -1034,6 +1057,7 @@ public class SpiceTab extends PreferencePanel
     private javax.swing.JCheckBox spiceWritePwrGndSubcircuit;
     private javax.swing.JCheckBox spiceWriteSubcktTopCell;
     private javax.swing.JCheckBox spiceWriteTransSizesInLambda;
+    private javax.swing.JTextField spiceWriterThreads;
     private javax.swing.JPanel upperLeft;
     private javax.swing.JPanel upperRight;
     private javax.swing.JTextField useDir;
@@ -0,0 +1,288 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: DensityPyramid.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.user.redisplay;
+
+import com.sun.electric.database.geometry.EPoint;
+import com.sun.electric.technology.Layer;
+import com.sun.electric.util.math.GenMath;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class to hold the layer coverage of a cached cell at several resolutions.
+ * Level 0 divides the cell bounds into at most BASESIZE x BASESIZE texels (powers of two,
+ * following the aspect ratio of the cell), and each further level halves the resolution down to 1 x 1.
+ * Every texel holds, for each layer, the fraction of its area that is covered (0-255).
+ * A pyramid is built from the shapes of its cell and the pyramids of its subcells, so the cost of
+ * building one is proportional to the contents of one cell, not to the size of its hierarchy.
+ * When a cell is small on the screen, it is drawn from the level that has about one texel per pixel.
+ */
+class DensityPyramid {
+	/** the largest number of texels on a side */	static final int BASESIZE = 32;
+
+	/** the layers in the pyramid */					private final Layer[] layers;
+	/** the bounds of the cell (in grid units) */		private final long lX, lY, hX, hY;
+	/** the width of each level (in texels) */			private final int[] widths;
+	/** the height of each level (in texels) */			private final int[] heights;
+	/** coverage of each level, by layer then texel */	private final byte[][] coverage;
+
+	/**
+	 * Constructor builds the pyramid of a cached cell.
+	 * @param vc the cached cell.
+	 * @param subCells the cell instances in the cached cell.
+	 * @param subDensities the pyramids of the instances, in the same order as "subCells".
+	 */
+	DensityPyramid(VectorCache.VectorCell vc, List<VectorCache.VectorSubCell> subCells, List<DensityPyramid> subDensities) {
+		lX = vc.getLX();
+		lY = vc.getLY();
+		hX = Math.max(vc.getHX(), lX + 1);
+		hY = Math.max(vc.getHY(), lY + 1);
+
+		// gather the layers
+		Map<Layer, Integer> layerIndex = new HashMap<Layer, Integer>();
+		List<Layer> allLayers = new ArrayList<Layer>();
+		for (Layer layer : vc.getKnownLayers()) {
+			if (!isCovering(layer)) continue;
+			layerIndex.put(layer, Integer.valueOf(allLayers.size()));
+			allLayers.add(layer);
+		}
+		for (DensityPyramid sub : subDensities) {
+			for (Layer layer : sub.layers) {
+				if (layerIndex.containsKey(layer)) continue;
+				layerIndex.put(layer, Integer.valueOf(allLayers.size()));
+				allLayers.add(layer);
+			}
+		}
+		layers = allLayers.toArray(new Layer[allLayers.size()]);
+
+		// determine the size of the levels
+		double width = hX - lX, height = hY - lY;
+		int baseWidth = BASESIZE, baseHeight = BASESIZE;
+		while (baseHeight > 1 && height * BASESIZE < width * baseHeight * 0.75) baseHeight /= 2;
+		while (baseWidth > 1 && width * BASESIZE < height * baseWidth * 0.75) baseWidth /= 2;
+		int numLevels = 1;
+		for (int w = baseWidth, h = baseHeight; w > 1 || h > 1; w = Math.max(1, w / 2), h = Math.max(1, h / 2))
+			numLevels++;
+		widths = new int[numLevels];
+		heights = new int[numLevels];
+		coverage = new byte[numLevels][];
+		for (int level = 0, w = baseWidth, h = baseHeight; level < numLevels; level++, w = Math.max(1, w / 2), h = Math.max(1, h / 2)) {
+			widths[level] = w;
+			heights[level] = h;
+		}
+
+		// accumulate the coverage of the base level
+		int size = baseWidth * baseHeight;
+		float[] acc = new float[layers.length * size];
+		double texelWidth = width / baseWidth, texelHeight = height / baseHeight;
+		for (Layer layer : vc.getKnownLayers()) {
+			Integer index = layerIndex.get(layer);
+			if (index == null) continue;
+			int offset = index.intValue() * size;
+			for (VectorCache.VectorBase vb : vc.getShapes(layer)) {
+				if (vb instanceof VectorCache.VectorManhattan) {
+					long[] coords = ((VectorCache.VectorManhattan) vb).getCoords();
+					for (int i = 0; i < coords.length; i += 4)
+						addBox(acc, offset, coords[i], coords[i + 1], coords[i + 2], coords[i + 3], 1);
+				} else if (vb instanceof VectorCache.VectorPolygon) {
+					// spread the area of the polygon over its bounding box
+					EPoint[] points = ((VectorCache.VectorPolygon) vb).getPoints();
+					long pLX = Long.MAX_VALUE, pLY = Long.MAX_VALUE, pHX = Long.MIN_VALUE, pHY = Long.MIN_VALUE;
+					for (EPoint p : points) {
+						pLX = Math.min(pLX, p.getGridX());
+						pLY = Math.min(pLY, p.getGridY());
+						pHX = Math.max(pHX, p.getGridX());
+						pHY = Math.max(pHY, p.getGridY());
+					}
+					double boxArea = (double) (pHX - pLX) * (pHY - pLY);
+					if (boxArea <= 0) continue;
+					float fill = (float) Math.min(1, GenMath.getAreaOfPoints(points) / boxArea);
+					addBox(acc, offset, pLX, pLY, pHX, pHY, fill);
+				} else if (vb instanceof VectorCache.VectorLine) {
+					VectorCache.VectorLine vl = (VectorCache.VectorLine) vb;
+					addLine(acc, offset, vl.getFromX(), vl.getFromY(), vl.getToX(), vl.getToY());
+				} else if (vb instanceof VectorCache.VectorCircle) {
+					VectorCache.VectorCircle vci = (VectorCache.VectorCircle) vb;
+					if (!vci.isFilled()) continue;
+					long radius = (long) Math.hypot(vci.getEdgeX() - vci.getCenterX(), vci.getEdgeY() - vci.getCenterY());
+					addBox(acc, offset, vci.getCenterX() - radius, vci.getCenterY() - radius,
+						vci.getCenterX() + radius, vci.getCenterY() + radius, (float) (Math.PI / 4));
+				}
+			}
+		}
+
+		// add the subcells, each from its level with texels no smaller than these
+		for (int s = 0; s < subCells.size(); s++) {
+			VectorCache.VectorSubCell vsc = subCells.get(s);
+			DensityPyramid sub = subDensities.get(s);
+			int[] offsets = new int[sub.layers.length];
+			for (int i = 0; i < sub.layers.length; i++)
+				offsets[i] = layerIndex.get(sub.layers[i]).intValue() * size;
+			int level = 0;
+			while (level < sub.widths.length - 1 &&
+				((double) (sub.hX - sub.lX) / sub.widths[level] < texelWidth || (double) (sub.hY - sub.lY) / sub.heights[level] < texelHeight))
+				level++;
+			int subWidth = sub.widths[level], subHeight = sub.heights[level], subSize = subWidth * subHeight;
+			double subTexelWidth = (double) (sub.hX - sub.lX) / subWidth;
+			double subTexelHeight = (double) (sub.hY - sub.lY) / subHeight;
+			double subLX = sub.lX + vsc.getOffsetX(), subLY = sub.lY + vsc.getOffsetY();
+			byte[] subCoverage = sub.coverage[level];
+			for (int y = 0; y < subHeight; y++) {
+				for (int x = 0; x < subWidth; x++) {
+					double tLX = subLX + x * subTexelWidth, tLY = subLY + y * subTexelHeight;
+					for (int i = 0; i < offsets.length; i++) {
+						int value = subCoverage[i * subSize + y * subWidth + x] & 0xFF;
+						if (value == 0) continue;
+						addBox(acc, offsets[i], tLX, tLY, tLX + subTexelWidth, tLY + subTexelHeight, value / 255f);
+					}
+				}
+			}
+		}
+
+		// quantize the base level and reduce it to the others
+		byte[] base = new byte[acc.length];
+		for (int i = 0; i < acc.length; i++)
+			base[i] = (byte) Math.round(Math.min(acc[i], 1) * 255);
+		coverage[0] = base;
+		for (int level = 1; level < numLevels; level++) {
+			int w = widths[level], h = heights[level], pw = widths[level - 1], ph = heights[level - 1];
+			int xStep = pw / w, yStep = ph / h;
+			byte[] prev = coverage[level - 1];
+			byte[] cur = new byte[layers.length * w * h];
+			for (int i = 0; i < layers.length; i++) {
+				for (int y = 0; y < h; y++) {
+					for (int x = 0; x < w; x++) {
+						int sum = 0;
+						for (int dy = 0; dy < yStep; dy++)
+							for (int dx = 0; dx < xStep; dx++)
+								sum += prev[i * pw * ph + (y * yStep + dy) * pw + x * xStep + dx] & 0xFF;
+						cur[i * w * h + y * w + x] = (byte) ((sum + xStep * yStep / 2) / (xStep * yStep));
+					}
+				}
+			}
+			coverage[level] = cur;
+		}
+	}
+
+	/**
+	 * Method to tell whether a layer contributes to the coverage.
+	 * Implants and substrate cover most of a cell and would hide the other layers, as in "getFadeColor()".
+	 */
+	private static boolean isCovering(Layer layer) {
+		if (layer == null) return false;
+		Layer.Function fun = layer.getFunction();
+		return !fun.isImplant() && !fun.isSubstrate();
+	}
+
+	/**
+	 * Method to add a partly filled box to the base level.
+	 * @param acc the coverage being accumulated.
+	 * @param offset the index of the layer's first texel in "acc".
+	 * @param bLX the low X of the box (in grid units).
+	 * @param bLY the low Y of the box (in grid units).
+	 * @param bHX the high X of the box (in grid units).
+	 * @param bHY the high Y of the box (in grid units).
+	 * @param fill the fraction of the box that is covered.
+	 */
+	private void addBox(float[] acc, int offset, double bLX, double bLY, double bHX, double bHY, float fill) {
+		int w = widths[0], h = heights[0];
+		double x0 = Math.max(0, (bLX - lX) * w / (hX - lX)), x1 = Math.min(w, (bHX - lX) * w / (hX - lX));
+		double y0 = Math.max(0, (bLY - lY) * h / (hY - lY)), y1 = Math.min(h, (bHY - lY) * h / (hY - lY));
+		if (x0 >= x1 || y0 >= y1) return;
+		int iy1 = (int) Math.ceil(y1), ix1 = (int) Math.ceil(x1);
+		for (int y = (int) y0; y < iy1; y++) {
+			float coverY = (float) (Math.min(y1, y + 1) - Math.max(y0, y)) * fill;
+			for (int x = (int) x0; x < ix1; x++)
+				acc[offset + y * w + x] += coverY * (float) (Math.min(x1, x + 1) - Math.max(x0, x));
+		}
+	}
+
+	/**
+	 * Method to add a line to the base level.
+	 * Lines are drawn one pixel wide at any scale, so they are given the width of one texel.
+	 * @param acc the coverage being accumulated.
+	 * @param offset the index of the layer's first texel in "acc".
+	 * @param fX the X coordinate of the start of the line (in grid units).
+	 * @param fY the Y coordinate of the start of the line (in grid units).
+	 * @param tX the X coordinate of the end of the line (in grid units).
+	 * @param tY the Y coordinate of the end of the line (in grid units).
+	 */
+	private void addLine(float[] acc, int offset, long fX, long fY, long tX, long tY) {
+		int w = widths[0], h = heights[0];
+		double x0 = (double) (fX - lX) * w / (hX - lX), x1 = (double) (tX - lX) * w / (hX - lX);
+		double y0 = (double) (fY - lY) * h / (hY - lY), y1 = (double) (tY - lY) * h / (hY - lY);
+		double len = Math.hypot(x1 - x0, y1 - y0);
+		int steps = (int) Math.ceil(len * 2) + 1;
+		float share = (float) (len / steps);
+		for (int i = 0; i < steps; i++) {
+			double t = (i + 0.5) / steps;
+			int x = (int) (x0 + (x1 - x0) * t), y = (int) (y0 + (y1 - y0) * t);
+			if (x < 0 || x >= w || y < 0 || y >= h) continue;
+			acc[offset + y * w + x] += share;
+		}
+	}
+
+	/**
+	 * Method to return the layers in this pyramid.
+	 * @return the layers in this pyramid.
+	 */
+	Layer[] getLayers() { return layers; }
+
+	/**
+	 * Method to return the number of levels in this pyramid.
+	 * @return the number of levels (level 0 has the highest resolution).
+	 */
+	int getNumLevels() { return widths.length; }
+
+	int getWidth(int level) { return widths[level]; }
+
+	int getHeight(int level) { return heights[level]; }
+
+	/**
+	 * Method to choose the level of this pyramid for drawing it at a given size.
+	 * @param wid the width of the cell on the screen (in pixels).
+	 * @param hei the height of the cell on the screen (in pixels).
+	 * @return the highest resolution level that has no more texels than pixels.
+	 */
+	int getLevel(long wid, long hei) {
+		int level = 0;
+		while (level < widths.length - 1 && (widths[level] > wid || heights[level] > hei))
+			level++;
+		return level;
+	}
+
+	/**
+	 * Method to return the coverage of a layer in a texel.
+	 * @param level the level of the pyramid.
+	 * @param layer the index of the layer (in "getLayers()").
+	 * @param x the X texel (0 is the low X side of the cell).
+	 * @param y the Y texel (0 is the low Y side of the cell).
+	 * @return the coverage (0 for none to 255 for full).
+	 */
+	int getCoverage(int level, int layer, int x, int y) {
+		int w = widths[level];
+		return coverage[level][(layer * heights[level] + y) * w + x] & 0xFF;
+	}
+}
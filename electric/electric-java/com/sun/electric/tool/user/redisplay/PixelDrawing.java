@@ -269,6 +269,8 @@ public class PixelDrawing {
 	}
 
 	/** the size of the EditWindow */						private final Dimension sz;
+	/** the size of the window when this is a tile of it */	private Dimension windowSz;
+	/** the position of this tile in the window */			private int tileX, tileY;
 	/** the scale of the EditWindow */						private double scale;
 	/** the VarContext of the EditWindow */					private VarContext varContext = VarContext.globalContext;
 	/** the X origin of the cell in display coordinates. */	private double originX;
@@ -318,6 +320,7 @@ public class PixelDrawing {
 	/** keeps track of when to update the display. */		private int objectCount;
 	/** keeps track of when to update the display. */		private long lastRefreshTime;
 	/** the EditWindow being drawn */						private EditWindow0 wnd;
+	/** the renderer used by "renderImage()" */				private VectorDrawing imageRenderer;
 
 	/** the size of the top-level EditWindow */				private static Dimension topSz;
 	/** list of cell expansions. */							private static Map<ExpandedCellKey, ExpandedCellInfo> expandedCells = null;
@@ -362,7 +365,8 @@ public class PixelDrawing {
 		private final boolean useCellGreekingImages = User.isUseCellGreekingImages();
 		private final double greekSizeLimit = User.getGreekSizeLimit();
 		private final double greekCellSizeLimit = User.getGreekCellSizeLimit();
-		private final VectorDrawing vd = new VectorDrawing(useCellGreekingImages);
+		private final boolean useTiledDisplay = User.isUseTiledDisplay();
+		private final VectorDrawing vd = new VectorDrawing(useCellGreekingImages, User.isUseLevelOfDetailDisplay());
 		private volatile PixelDrawing offscreen;
 
 		Drawing(EditWindow wnd) {
@@ -508,6 +512,38 @@ public class PixelDrawing {
 		return sz;
 	}
 
+	/**
+	 * Method to prepare this offscreen buffer for drawing one tile of another one.
+	 * The scale, window, context, and printing mode are taken from the other buffer.
+	 * Lines are stepped in the coordinates of the entire window so that they meet the
+	 * same lines in the neighboring tiles.
+	 * @param master the offscreen buffer of the entire window.
+	 * @param x the X position of this tile in the window.
+	 * @param y the Y position of this tile in the window.
+	 */
+	void initTile(PixelDrawing master, int x, int y) {
+		scale = master.scale;
+		wnd = master.wnd;
+		varContext = master.varContext;
+		nowPrinting = master.nowPrinting;
+		highlightingLayers = master.highlightingLayers;
+		windowSz = master.sz;
+		tileX = x;
+		tileY = y;
+	}
+
+	/**
+	 * Method to copy a finished tile into this offscreen buffer.
+	 * @param tile the offscreen buffer of the tile, after "composite()".
+	 * @param x the X position of the tile in this buffer.
+	 * @param y the Y position of the tile in this buffer.
+	 */
+	void copyTile(PixelDrawing tile, int x, int y) {
+		int tileWidth = tile.sz.width;
+		for (int row = 0; row < tile.sz.height; row++)
+			System.arraycopy(tile.opaqueData, row * tileWidth, opaqueData, (y + row) * sz.width + x, tileWidth);
+	}
+
 	/**
 	 * Method to clear the cache of expanded subcells. This is used by layer
 	 * visibility which, when changed, causes everything to be redrawn.
@@ -627,6 +663,9 @@ public class PixelDrawing {
 
 			// now render it all
 			drawCell(cell, drawLimitBounds, fullInstantiate, Orientation.IDENT, DBMath.MATID, wnd.getCell());
+		} else if (drawing.useTiledDisplay && renderBounds == null) {
+			drawing.vd.renderTiled(this, scale, new Point2D.Double(drawing.da.offX, drawing.da.offY), cell, fullInstantiate,
+				inPlaceNodePath, wnd.getCell(), varContext, greekSizeLimit, greekCellSizeLimit, lv, VectorDrawing.TILESIZE, 0);
 		} else {
 			drawing.vd.render(this, scale, new Point2D.Double(drawing.da.offX, drawing.da.offY), cell, fullInstantiate,
 				inPlaceNodePath, wnd.getCell(), renderBounds, varContext, greekSizeLimit, greekCellSizeLimit, lv);
@@ -734,6 +773,62 @@ public class PixelDrawing {
 		}
 	}
 
+	/**
+	 * This is the entry point for rendering without a window (for example, to write an image file).
+	 * The cell is drawn with the vector display algorithm, split into tiles that are drawn by
+	 * several threads. The rendered Image can then be obtained with "getBufferedImage()".
+	 * @param scale the scale of the drawing (pixels per unit).
+	 * @param offset the point in the cell that appears at the center of the image.
+	 * @param cell the Cell to draw.
+	 * @param varContext the VarContext of the Cell.
+	 * @param gp the colors and patterns to use.
+	 * @param lv the visibility of layers.
+	 * @param fullInstantiate true to draw all the way to the bottom of the hierarchy.
+	 * @param numThreads the number of threads to use (0 to use all processors).
+	 */
+	public void renderImage(double scale, Point2D offset, Cell cell, VarContext varContext, GraphicsPreferences gp,
+			LayerVisibility lv, boolean fullInstantiate, int numThreads) {
+		// keep the renderer so that its tiles are reused by the next image
+		if (imageRenderer == null)
+			imageRenderer = new VectorDrawing(User.isUseCellGreekingImages(), User.isUseLevelOfDetailDisplay());
+		renderImage(scale, offset, cell, varContext, gp, lv, fullInstantiate, imageRenderer, VectorDrawing.TILESIZE,
+			numThreads);
+	}
+
+	void renderImage(double scale, Point2D offset, Cell cell, VarContext varContext, GraphicsPreferences gp,
+			LayerVisibility lv, boolean fullInstantiate, VectorDrawing renderer, int tileSize, int numThreads) {
+		PixelDrawing.gp = gp;
+		PixelDrawing.lv = lv;
+		PixelDrawing.dp = new AbstractDrawing.DrawingPreferences();
+		if (varContext != null)
+			this.varContext = varContext;
+
+		// set colors to use
+		textGraphics = textGraphics.withColor(gp.getColor(User.ColorPrefType.TEXT));
+		gridGraphics = gridGraphics.withColor(gp.getColor(User.ColorPrefType.GRID));
+		instanceGraphics = instanceGraphics.withColor(gp.getColor(User.ColorPrefType.INSTANCE));
+		portGraphicsCache.clear();
+		initOrigin(scale, offset.getX(), offset.getY());
+
+		// initialize rendering into the offscreen image
+		clipLX = 0;
+		clipHX = sz.width - 1;
+		clipLY = 0;
+		clipHY = sz.height - 1;
+		clearImage(null, cell);
+
+		Set<CellId> changedCellsCopy;
+		synchronized (changedCells) {
+			changedCellsCopy = new HashSet<CellId>(changedCells);
+			changedCells.clear();
+		}
+		forceRedraw(changedCellsCopy);
+		VectorCache.theCache.forceRedraw();
+
+		renderer.renderTiled(this, scale, offset, cell, fullInstantiate, null, null, this.varContext,
+			User.getGreekSizeLimit(), User.getGreekCellSizeLimit(), lv, tileSize, numThreads);
+	}
+
 	// ************************************* INTERMEDIATE CONTROL LEVEL *************************************
 
 	/**
@@ -2410,6 +2505,17 @@ public class PixelDrawing {
 	 * Method to draw a box on the off-screen buffer.
 	 */
 	void drawBox(int lX, int hX, int lY, int hY, byte[][] layerBitMap, EGraphics desc, boolean dimmed) {
+		// tiles get boxes clipped to the window: fill only this tile, but outline the box where the window does
+		int oLX = lX, oHX = hX, oLY = lY, oHY = hY;
+		if (windowSz != null) {
+			lX = Math.max(lX, 0);
+			hX = Math.min(hX, sz.width - 1);
+			lY = Math.max(lY, 0);
+			hY = Math.min(hY, sz.height - 1);
+			if (lX > hX || lY > hY)
+				return;
+		}
+
 		// get color and pattern information
 		int col = 0;
 		int[] pattern = null;
@@ -2474,20 +2580,20 @@ public class PixelDrawing {
 			}
 			EGraphics.Outline o = desc.getOutlined();
 			if (o != EGraphics.Outline.NOPAT) {
-				drawOutline(lX, lY, lX, hY, layerBitMap, col, o.getPattern(), o.getLen());
-				drawOutline(lX, hY, hX, hY, layerBitMap, col, o.getPattern(), o.getLen());
-				drawOutline(hX, hY, hX, lY, layerBitMap, col, o.getPattern(), o.getLen());
-				drawOutline(hX, lY, lX, lY, layerBitMap, col, o.getPattern(), o.getLen());
+				drawOutline(oLX, oLY, oLX, oHY, layerBitMap, col, o.getPattern(), o.getLen());
+				drawOutline(oLX, oHY, oHX, oHY, layerBitMap, col, o.getPattern(), o.getLen());
+				drawOutline(oHX, oHY, oHX, oLY, layerBitMap, col, o.getPattern(), o.getLen());
+				drawOutline(oHX, oLY, oLX, oLY, layerBitMap, col, o.getPattern(), o.getLen());
 				if (o.getThickness() != 1) {
 					for (int i = 1; i < o.getThickness(); i++) {
-						if (lX + i < sz.width)
-							drawOutline(lX + i, lY, lX + i, hY, layerBitMap, col, o.getPattern(), o.getLen());
-						if (hY - i >= 0)
-							drawOutline(lX, hY - i, hX, hY - i, layerBitMap, col, o.getPattern(), o.getLen());
-						if (hX - i >= 0)
-							drawOutline(hX - i, hY, hX - i, lY, layerBitMap, col, o.getPattern(), o.getLen());
-						if (lY + i < sz.height)
-							drawOutline(hX, lY + i, lX, lY + i, layerBitMap, col, o.getPattern(), o.getLen());
+						if (oLX + i < sz.width)
+							drawOutline(oLX + i, oLY, oLX + i, oHY, layerBitMap, col, o.getPattern(), o.getLen());
+						if (oHY - i >= 0)
+							drawOutline(oLX, oHY - i, oHX, oHY - i, layerBitMap, col, o.getPattern(), o.getLen());
+						if (oHX - i >= 0)
+							drawOutline(oHX - i, oHY, oHX - i, oLY, layerBitMap, col, o.getPattern(), o.getLen());
+						if (oLY + i < sz.height)
+							drawOutline(oHX, oLY + i, oLX, oLY + i, layerBitMap, col, o.getPattern(), o.getLen());
 					}
 				}
 			}
@@ -2500,13 +2606,27 @@ public class PixelDrawing {
 	 * Method to draw a line on the off-screen buffer.
 	 */
 	void drawLine(Point pt1, Point pt2, byte[][] layerBitMap, EGraphics desc, int texture, boolean dimmed) {
-		// first clip the line
-		if (GenMath.clipLine(pt1, pt2, 0, sz.width - 1, 0, sz.height - 1))
-			return;
-
 		int col = 0;
 		if (desc != null)
 			col = getTheColor(desc, dimmed);
+		if (windowSz != null) {
+			switch (texture) {
+			case 1:
+				drawTileLine(pt1.x, pt1.y, pt2.x, pt2.y, layerBitMap, col, 0x88, 8, false);
+				break;
+			case 2:
+				drawTileLine(pt1.x, pt1.y, pt2.x, pt2.y, layerBitMap, col, 0xE7, 8, false);
+				break;
+			default:
+				drawTileLine(pt1.x, pt1.y, pt2.x, pt2.y, layerBitMap, col, 0xFF, 8, texture == 3);
+				break;
+			}
+			return;
+		}
+
+		// first clip the line
+		if (GenMath.clipLine(pt1, pt2, 0, sz.width - 1, 0, sz.height - 1))
+			return;
 
 		// now draw with the proper line type
 		switch (texture) {
@@ -2623,6 +2743,10 @@ public class PixelDrawing {
 	}
 
 	private void drawOutline(int x1, int y1, int x2, int y2, byte[][] layerBitMap, int col, int pattern, int len) {
+		if (windowSz != null) {
+			drawTileLine(x1, y1, x2, y2, layerBitMap, col, pattern, len, false);
+			return;
+		}
 		tempPt3.x = x1;
 		tempPt3.y = y1;
 		tempPt4.x = x2;
@@ -2735,6 +2859,96 @@ public class PixelDrawing {
 		}
 	}
 
+	/**
+	 * Method to draw a line when this offscreen buffer is one tile of a larger window.
+	 * The line is clipped to the window and stepped in window coordinates, exactly as it
+	 * would be when drawing the entire window, and only the pixels in this tile are set.
+	 */
+	private void drawTileLine(int x1, int y1, int x2, int y2, byte[][] layerBitMap, int col, int pattern, int len,
+		boolean thick) {
+		tempPt3.x = x1 + tileX;
+		tempPt3.y = y1 + tileY;
+		tempPt4.x = x2 + tileX;
+		tempPt4.y = y2 + tileY;
+		if (GenMath.clipLine(tempPt3, tempPt4, 0, windowSz.width - 1, 0, windowSz.height - 1))
+			return;
+		x1 = tempPt3.x - tileX;
+		y1 = tempPt3.y - tileY;
+		x2 = tempPt4.x - tileX;
+		y2 = tempPt4.y - tileY;
+
+		// ignore lines that do not come near this tile
+		if (Math.max(x1, x2) < -1 || Math.min(x1, x2) > sz.width || Math.max(y1, y2) < -1
+			|| Math.min(y1, y2) > sz.height)
+			return;
+
+		// the same stepping as "drawPatLine()", with every pixel checked against the tile
+		int i = 0;
+		int dx = Math.abs(x2 - x1);
+		int dy = Math.abs(y2 - y1);
+		boolean alongX = dx > dy;
+		int incr1 = alongX ? 2 * dy : 2 * dx;
+		int incr2 = alongX ? 2 * (dy - dx) : 2 * (dx - dy);
+		int d = incr2;
+		int x, y, end, incr;
+		if (alongX ? x1 > x2 : y1 > y2) {
+			x = x2;
+			y = y2;
+			end = alongX ? x1 : y1;
+			incr = alongX ? (y1 < y ? -1 : 1) : (x1 < x ? -1 : 1);
+		} else {
+			x = x1;
+			y = y1;
+			end = alongX ? x2 : y2;
+			incr = alongX ? (y2 < y ? -1 : 1) : (x2 < x ? -1 : 1);
+		}
+		drawTilePoint(x, y, layerBitMap, col, thick);
+		while (alongX ? x < end : y < end) {
+			if (alongX)
+				x++;
+			else
+				y++;
+			if (d < 0)
+				d += incr1;
+			else {
+				if (alongX)
+					y += incr;
+				else
+					x += incr;
+				d += incr2;
+			}
+			i++;
+			if (i == len)
+				i = 0;
+			if ((pattern & (1 << i)) == 0)
+				continue;
+			drawTilePoint(x, y, layerBitMap, col, thick);
+		}
+	}
+
+	private void drawTilePoint(int x, int y, byte[][] layerBitMap, int col, boolean thick) {
+		setTilePixel(x, y, layerBitMap, col);
+		if (!thick)
+			return;
+		if (x + tileX > 0)
+			setTilePixel(x - 1, y, layerBitMap, col);
+		if (x + tileX < windowSz.width - 1)
+			setTilePixel(x + 1, y, layerBitMap, col);
+		if (y + tileY > 0)
+			setTilePixel(x, y - 1, layerBitMap, col);
+		if (y + tileY < windowSz.height - 1)
+			setTilePixel(x, y + 1, layerBitMap, col);
+	}
+
+	private void setTilePixel(int x, int y, byte[][] layerBitMap, int col) {
+		if (x < 0 || x >= sz.width || y < 0 || y >= sz.height)
+			return;
+		if (layerBitMap == null)
+			opaqueData[y * sz.width + x] = col;
+		else
+			layerBitMap[y][x >> 3] |= (1 << (x & 7));
+	}
+
 	private void drawThickLine(int x1, int y1, int x2, int y2, byte[][] layerBitMap, int col) {
 		// initialize the Bresenham algorithm
 		int dx = Math.abs(x2 - x1);
@@ -2828,6 +3042,10 @@ public class PixelDrawing {
 		// special case for lines (horizontal lines don't render right here)
 		if (points.length == 2)
 		{
+			if (windowSz != null) {
+				drawTileLine(points[0].x, points[0].y, points[1].x, points[1].y, layerBitMap, col, 0xFF, 8, false);
+				return;
+			}
 			drawSolidLine(points[0].x, points[0].y, points[1].x, points[1].y, layerBitMap, col);
 			return;
 		}
@@ -2930,14 +3148,19 @@ public class PixelDrawing {
 					}
 			}
 
-			// generate regions to be filled in on current scan line
+			// generate regions to be filled in on current scan line (tiles may get polygons that extend beyond them)
 			int wrap = 0;
 			PolySeg left = active;
+			boolean inside = ycur >= 0 && ycur < sz.height;
 			for (PolySeg edge = active; edge != null; edge = edge.nextactive) {
 				wrap = wrap + edge.direction;
 				if (wrap == 0) {
-					int j = (left.fx + 32768) >> 16;
-					int k = (edge.fx + 32768) >> 16;
+					int j = Math.max((left.fx + 32768) >> 16, 0);
+					int k = Math.min((edge.fx + 32768) >> 16, sz.width - 1);
+					if (!inside) {
+						left = edge.nextactive;
+						continue;
+					}
 
 					if (pattern != null) {
 						int pat = pattern[ycur & 15];
@@ -23,8 +23,8 @@ package com.sun.electric.tool.user.redisplay;
 
 import com.sun.electric.database.CellBackup;
 import com.sun.electric.database.CellRevision;
+import com.sun.electric.database.Environment;
 import com.sun.electric.database.ImmutableArcInst;
-import com.sun.electric.database.ImmutableCell;
 import com.sun.electric.database.ImmutableElectricObject;
 import com.sun.electric.database.ImmutableExport;
 import com.sun.electric.database.ImmutableIconInst;
@@ -46,6 +46,7 @@ import com.sun.electric.database.id.PrimitivePortId;
 import com.sun.electric.database.id.TechId;
 import com.sun.electric.database.topology.ArcInst;
 import com.sun.electric.database.topology.Connection;
+import com.sun.electric.database.topology.Geometric;
 import com.sun.electric.database.topology.NodeInst;
 import com.sun.electric.database.topology.PortInst;
 import com.sun.electric.database.topology.RTBounds;
@@ -53,10 +54,11 @@ import com.sun.electric.database.topology.RTNode;
 import com.sun.electric.database.variable.DisplayedText;
 import com.sun.electric.database.variable.EditWindow0;
 import com.sun.electric.database.variable.TextDescriptor;
+import com.sun.electric.database.variable.UserInterface;
 import com.sun.electric.database.variable.VarContext;
 import com.sun.electric.database.variable.Variable;
-import com.sun.electric.technology.AbstractShapeBuilder;
 import com.sun.electric.technology.ArcProto;
+import com.sun.electric.technology.BulkShapeBuilder;
 import com.sun.electric.technology.Layer;
 import com.sun.electric.technology.PrimitiveNode;
 import com.sun.electric.technology.PrimitivePort;
@@ -65,6 +67,7 @@ import com.sun.electric.technology.technologies.Generic;
 import com.sun.electric.technology.technologies.Schematics;
 import com.sun.electric.tool.Job;
 import com.sun.electric.tool.user.User;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
 import com.sun.electric.util.ElapseTimer;
 import com.sun.electric.util.TextUtils;
 import com.sun.electric.util.math.AbstractFixpRectangle;
@@ -90,6 +93,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class to hold scalable representation of circuit displays.
@@ -101,19 +109,21 @@ public class VectorCache
 	private static final boolean WIPE_PINS = true;
 	public static final boolean DEBUG = false;
 
+	/** number of nodes and arcs cached by one thread at a time */
+	private static final int UPDATEPIECESIZE = 256;
+
 	public static final VectorCache theCache = new VectorCache(EDatabase.clientDatabase());
 	/** database to work. */						public final EDatabase database;
 	/** list of cell expansions. */					private final ArrayList<VectorCellDef> cachedCells = new ArrayList<VectorCellDef>();
 	/** list of polygons to include in cells */		private final Map<CellId, List<VectorBase>> addPolyToCell = new HashMap<CellId, List<VectorBase>>();
 	/** list of instances to include in cells */	private final Map<CellId, List<VectorLine>> addInstToCell = new HashMap<CellId, List<VectorLine>>();
 	/** local shape builder */						private final ShapeBuilder shapeBuilder = new ShapeBuilder();
-	/** List of VectorManhattanBuilders */			private final ArrayList<List<VectorManhattanBox>> boxBuilders = new ArrayList<List<VectorManhattanBox>>();
-	/** List of VectorManhattanBuilders for pure nodes. */	private final ArrayList<List<VectorManhattanBox>> pureBoxBuilders = new ArrayList<List<VectorManhattanBox>>();
 	/** Current VarContext. */						private VarContext varContext;
 	/** Current scale. */							private double curScale;
 	/** True to clear fade images. */				private boolean clearFadeImages = false;
 	/** True to clear cache. */						private boolean clearCache = false;
-	/** counter to know when an update was made */	private long updateStep = 0;
+	/** counter to know when an update was made */	private long updateStep = 1;
+	/** threads for updates (0 for all processors) */	private int numUpdateThreads = 0;
 	/** zero rectangle */							private final Rectangle2D CENTERRECT = new Rectangle2D.Double(0, 0, 0, 0);
 	private EGraphics instanceGraphics = new EGraphics(false, false, null, 0, 0, 0, 0, 1.0, true,
 		new int[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
@@ -203,25 +213,6 @@ public class VectorCache
 		}
 	}
 
-	/**
-	 * Class which defines a Manhattan box with an origin.
-	 * Used by shape builders to accumulate boxes on each layer.
-	 */
-	static class VectorManhattanBox
-	{
-		private ImmutableElectricObject origin;
-		private long lX, lY, hX, hY;
-
-		public VectorManhattanBox(ImmutableElectricObject origin, long lX, long lY, long hX, long hY)
-		{
-			this.origin = origin;
-			this.lX = lX;
-			this.lY = lY;
-			this.hX = hX;
-			this.hY = hY;
-		}
-	}
-
 	/**
 	 * Class which defines a cached polygon (non-Manhattan).
 	 */
@@ -546,6 +537,8 @@ public class VectorCache
 
 		public float getMinimumSize() { return cellMinSize; }
 
+		public boolean isParameterized() { return isParameterized; }
+
 		public List<VectorCellExport> getPortShapes()
 		{
 			if (exports == null) updateExports();
@@ -600,12 +593,6 @@ public class VectorCache
 			}
 		}
 
-		private void updateVariables()
-		{
-			for (VectorCell vc : orientations.values())
-				vc.updateVariables();
-		}
-
 		private void clear()
 		{
 			for (VectorCell vc : orientations.values())
@@ -614,6 +601,16 @@ public class VectorCache
 		}
 	}
 
+	/**
+	 * Method to return the cached definition of a cell, without creating it.
+	 * @param cellId the cell in question.
+	 * @return the VectorCellDef of the cell (null if it is not cached).
+	 */
+	private VectorCellDef findCachedCell(CellId cellId)
+	{
+		return cellId.cellIndex < cachedCells.size() ? cachedCells.get(cellId.cellIndex) : null;
+	}
+
 	VectorCellDef findCellGroup(CellId cellId)
 	{
 		int cellIndex = cellId.cellIndex;
@@ -710,6 +707,7 @@ public class VectorCache
 		private int fadeOffsetX, fadeOffsetY;
 		private int[] fadeImageColors;
 		private int fadeImageWid, fadeImageHei;
+		private DensityPyramid density;
 
 		/**
 		 * Constructor to build a VectorCell for a given VectorCellDef and Orientation.
@@ -798,6 +796,15 @@ public class VectorCache
 
 		public boolean hasFadeColor() { return hasFadeColor; }
 
+		/**
+		 * Method to return the layer coverage of this cell at several resolutions.
+		 * It is built by the renderer and dropped whenever this cell is cached again.
+		 * @return the DensityPyramid of this cell (null if it has not been built).
+		 */
+		DensityPyramid getDensity() { return density; }
+
+		void setDensity(DensityPyramid density) { this.density = density; }
+
 		/**
 		 * Method to return the low X coordinate of the cell bounds.
 		 * @return the low X coordinate of the cell bounds.
@@ -856,27 +863,26 @@ public class VectorCache
 			maxFeatureSize = 0;
 			FixpTransform trans = orient.pureRotate();
 
-			for(List<VectorManhattanBox> b : boxBuilders) b.clear();
-			for(List<VectorManhattanBox> b : pureBoxBuilders) b.clear();
+			shapeBuilder.boxes.clear();
+			shapeBuilder.pureBoxes.clear();
 
-			// draw all arcs
+			// draw all primitive nodes and arcs in one pass
 			shapeBuilder.setup(cell.backup(), orient, USE_ELECTRICAL, WIPE_PINS, false, null);
 			shapeBuilder.vc = this;
-			shapeBuilder.hideOnLowLevel = false;
-			shapeBuilder.textType = VectorText.TEXTTYPEARC;
+			shapeBuilder.genShapesOfCell();
+
+			// draw the text on arcs and primitive nodes
 			for (Iterator<ArcInst> arcs = cell.getArcs(); arcs.hasNext(); )
 			{
 				ArcInst ai = arcs.next();
-				drawArc(ai, trans, this);
+				drawArcText(shapeBuilder, ai, trans, this);
 			}
-
-			// draw all primitive nodes
 			for (Iterator<NodeInst> nodes = cell.getNodes(); nodes.hasNext(); )
 			{
 				NodeInst ni = nodes.next();
 				if (ni.isCellInstance()) continue;
 				boolean hideOnLowLevel = ni.isVisInside() || Generic.isCellCenter(ni);
-				if (!hideOnLowLevel) drawPrimitiveNode(ni, trans, this);
+				if (!hideOnLowLevel) drawPrimitiveNodeText(shapeBuilder, ni, trans, this);
 			}
 
 			// draw all subcells
@@ -884,7 +890,7 @@ public class VectorCache
 			{
 				NodeInst ni = nodes.next();
 				if (!ni.isCellInstance()) continue;
-				drawSubcell(ni, trans, this);
+				drawSubcell(shapeBuilder, ni, trans, this);
 			}
 
 			// add in anything "snuck" onto the cell
@@ -901,8 +907,8 @@ public class VectorCache
 				for (VectorLine vl : addTheseInsts)
 					addShape(vl);
 			}
-			addBoxesFromBuilder(this, cell.getTechnology(), boxBuilders, false);
-			addBoxesFromBuilder(this, cell.getTechnology(), pureBoxBuilders, true);
+			addBoxesFromBuilder(this, shapeBuilder.boxes, false);
+			addBoxesFromBuilder(this, shapeBuilder.pureBoxes, true);
 
 			// icon cells should not get greeked because of their contents
 			if (cell.isIcon()) maxFeatureSize = 0;
@@ -966,13 +972,89 @@ public class VectorCache
 
 		private void clear()
 		{
+			validStep = 0;
 			clearExports();
-			hasFadeColor = fadeImage = false;
+			clearFade();
 			organizedShapes.clear();
 			subCellTree = null;
 			if (USE_CELL_RTREE) subCellTree = RTNode.makeTopLevel(); else
 				subCells.clear();
+		}
+
+		/**
+		 * Method to remove the greeked images and layer coverage of this cell,
+		 * which must be computed again when anything in it (or below it) changes.
+		 */
+		private void clearFade()
+		{
+			hasFadeColor = fadeImage = false;
 			fadeImageColors = null;
+			density = null;
+		}
+
+		/**
+		 * Method to remove the shapes and instances made by nodes and arcs that are no longer in the cell.
+		 * The lists of shapes are kept, so layers that did not change are not copied.
+		 * @param removedFromCell the nodes and arcs that were removed or changed.
+		 */
+		private void removeShapes(Set<ImmutableElectricObject> removedFromCell)
+		{
+			for(List<VectorBase> vbList : organizedShapes.values())
+			{
+				for(int i=0; i<vbList.size(); i++)
+				{
+					VectorBase vb = vbList.get(i);
+					if (removedFromCell.contains(vb.origin))
+					{
+						int lastIndex = vbList.size() - 1;
+						if (i < lastIndex)
+						{
+							vbList.set(i, vbList.get(lastIndex));
+							i--;
+						}
+						vbList.remove(lastIndex);
+					}
+				}
+			}
+
+			List<VectorSubCell> removeThese = new ArrayList<VectorSubCell>();
+			Iterator<VectorSubCell> sea;
+			if (subCellTree == null) sea = subCells.iterator(); else
+				sea = new RTNode.Search<VectorSubCell>(subCellTree);
+			for ( ; sea.hasNext(); )
+			{
+				VectorSubCell vsc = sea.next();
+				if (removedFromCell.contains(vsc.n))
+					removeThese.add(vsc);
+			}
+			if (subCellTree == null)
+			{
+				subCells.removeAll(removeThese);
+			} else
+			{
+				for(VectorSubCell vsc : removeThese)
+					subCellTree = RTNode.unLinkGeom(null, subCellTree, vsc);
+			}
+		}
+
+		/**
+		 * Method to add the shapes and instances that were cached separately for this cell.
+		 * @param built the separately cached cell with the same definition and orientation.
+		 */
+		private void addShapes(VectorCell built)
+		{
+			for(Map.Entry<Layer,List<VectorBase>> e : built.organizedShapes.entrySet())
+				getShapeList(e.getKey()).addAll(e.getValue());
+			Iterator<VectorSubCell> sea;
+			if (built.subCellTree == null) sea = built.subCells.iterator(); else
+				sea = new RTNode.Search<VectorSubCell>(built.subCellTree);
+			for ( ; sea.hasNext(); )
+			{
+				VectorSubCell vsc = sea.next();
+				if (subCellTree == null) subCells.add(vsc); else
+					subCellTree = RTNode.linkGeom(null, subCellTree, vsc);
+			}
+			maxFeatureSize = Math.max(maxFeatureSize, built.maxFeatureSize);
 		}
 
 		private void addExport(Export e, FixpTransform trans)
@@ -988,7 +1070,7 @@ public class VectorCache
 
 			// draw variables on the export
 			Poly[] polys = e.getDisplayableVariables(rect, dummyWnd, true, true);
-			drawTextPolys(e.getOriginalPort().getNodeInst().getD(), polys, trans, this, true, VectorText.TEXTTYPEEXPORT, false, false);
+			drawTextPolys(shapeBuilder, e.getOriginalPort().getNodeInst().getD(), polys, trans, this, true, VectorText.TEXTTYPEEXPORT, false, false);
 		}
 
 		private void clearExports()
@@ -996,35 +1078,6 @@ public class VectorCache
 			portCenters = null;
 		}
 
-		/**
-		 * Method to update all Cell-level Variables.
-		 */
-		private void updateVariables()
-		{
-			Cell cell = getCellFromId(vcd.cellId);
-			if (cell == null) return;
-
-			if (topOnlyShapes != null)
-			{
-				for(int i=0; i<topOnlyShapes.size(); i++)
-				{
-					VectorBase vb = topOnlyShapes.get(i);
-					if (vb.origin instanceof ImmutableCell)
-					{
-						int lastIndex = topOnlyShapes.size() - 1;
-						if (i < lastIndex)
-						{
-							topOnlyShapes.set(i, topOnlyShapes.get(lastIndex));
-							i--;
-						}
-						topOnlyShapes.remove(lastIndex);
-					}
-				}
-			}
-			Poly[] polys = cell.getDisplayableVariables(CENTERRECT, dummyWnd, true, true);
-			drawTextPolys(cell.getD(), polys, DBMath.MATID, this, true, VectorText.TEXTTYPECELL, false, false);
-		}
-
 		public int[] getPortCenters()
 		{
 			if (portCenters == null) initPortCenters();
@@ -1060,7 +1113,7 @@ public class VectorCache
 
 			// show cell variables
 			Poly[] polys = cell.getDisplayableVariables(CENTERRECT, dummyWnd, true, true);
-			drawTextPolys(cell.getD(), polys, DBMath.MATID, this, true, VectorText.TEXTTYPECELL, false, false);
+			drawTextPolys(shapeBuilder, cell.getD(), polys, DBMath.MATID, this, true, VectorText.TEXTTYPECELL, false, false);
 
 			// draw nodes visible only inside
 			FixpTransform trans = orient.pureRotate();
@@ -1073,7 +1126,7 @@ public class VectorCache
 				NodeInst ni = nodes.next();
 				if (ni.isCellInstance()) continue;
 				boolean hideOnLowLevel = ni.isVisInside() || Generic.isCellCenter(ni);
-				if (hideOnLowLevel) drawPrimitiveNode(ni, trans, this);
+				if (hideOnLowLevel) drawPrimitiveNode(shapeBuilder, ni, trans, this);
 			}
 
 			// draw exports and their variables
@@ -1086,13 +1139,45 @@ public class VectorCache
 		}
 	}
 
-	private class ShapeBuilder extends AbstractShapeBuilder
+	private class ShapeBuilder extends BulkShapeBuilder
 	{
+		/** Manhattan boxes on each layer */			private final BoxSet boxes = getBoxSet();
+		/** Manhattan boxes of pure nodes on each layer */	private final BoxSet pureBoxes = new BoxSet();
 		private VectorCell vc;
 		private boolean hideOnLowLevel;
 		private int textType;
 		private boolean pureLayer;
 
+		/**
+		 * Method to tell whether the next shapes come from a pure layer node or arc.
+		 * @param pureLayer true if the next shapes come from a pure layer node or arc.
+		 */
+		private void setPureLayer(boolean pureLayer)
+		{
+			this.pureLayer = pureLayer;
+			setBoxSet(pureLayer ? pureBoxes : boxes);
+		}
+
+		@Override
+		protected boolean acceptNode(ImmutableNodeInst n, PrimitiveNode pn)
+		{
+			// nodes that are visible inside are not drawn
+			if (n.is(ImmutableNodeInst.VIS_INSIDE) || pn == Generic.tech().cellCenterNode) return false;
+			textType = pn == Generic.tech().invisiblePinNode ? VectorText.TEXTTYPEANNOTATION : VectorText.TEXTTYPENODE;
+			hideOnLowLevel = false;
+			setPureLayer(pn.getPrimitiveFunction(n.techBits) == PrimitiveNode.Function.NODE);
+			return true;
+		}
+
+		@Override
+		protected boolean acceptArc(ImmutableArcInst a, ArcProto ap)
+		{
+			textType = VectorText.TEXTTYPEARC;
+			hideOnLowLevel = false;
+			setPureLayer(ap.getNumArcLayers() == 1);
+			return true;
+		}
+
 		@Override
 		public void addPoly(int numPoints, Poly.Type style, Layer layer, EGraphics graphicsOverride, PrimitivePort pp)
 		{
@@ -1118,7 +1203,7 @@ public class VectorCache
 					poly.setStyle(style);
 					poly.setLayer(layer);
 					poly.setGraphicsOverride(graphicsOverride);
-					renderPoly(getCurObj(), poly, vc, hideOnLowLevel, textType, pureLayer, false);
+					renderPoly(this, getCurObj(), poly, vc, hideOnLowLevel, textType, pureLayer, false);
 					break;
 			}
 		}
@@ -1134,7 +1219,7 @@ public class VectorCache
 			poly.setLayer(layer);
 			poly.setString(message);
 			poly.setTextDescriptor(descriptor);
-			renderPoly(getCurObj(), poly, vc, hideOnLowLevel, textType, pureLayer, false);
+			renderPoly(this, getCurObj(), poly, vc, hideOnLowLevel, textType, pureLayer, false);
 		}
 
 		private void addLine(int numPoints, int lineType, Layer layer, EGraphics graphicsOverride)
@@ -1154,33 +1239,27 @@ public class VectorCache
 		}
 
 		@Override
-		public void addBox(Layer layer)
+		protected void addBox(Layer layer)
 		{
-			List<VectorBase> shapes = hideOnLowLevel ? vc.topOnlyShapes : vc.getShapeList(layer);
+			// boxes on the layers of the cell's technology are accumulated
+			if (vc.vcd != null && layer.getId().techId == vc.vcd.techId)
+			{
+				super.addBox(layer);
+				return;
+			}
 
 			// convert coordinates
+			List<VectorBase> shapes = hideOnLowLevel ? vc.topOnlyShapes : vc.getShapeList(layer);
 			long lX = (int) (coords[0] >> FixpCoord.FRACTION_BITS);
 			long lY = (int) (coords[1] >> FixpCoord.FRACTION_BITS);
 			long hX = (int) (coords[2] >> FixpCoord.FRACTION_BITS);
 			long hY = (int) (coords[3] >> FixpCoord.FRACTION_BITS);
-			int layerIndex = -1;
-			if (vc.vcd != null && layer.getId().techId == vc.vcd.techId)
-				layerIndex = layer.getIndex();
-			if (layerIndex >= 0)
-			{
-				putBox(getCurObj(), layerIndex, pureLayer ? pureBoxBuilders : boxBuilders, lX, lY, hX, hY);
-			} else
-			{
-				shapes.add(new VectorManhattan(getCurObj(), new long[]{lX, lY, hX, hY}, layer, null, pureLayer));
-			}
+			shapes.add(new VectorManhattan(getCurObj(), new long[]{lX, lY, hX, hY}, layer, null, pureLayer));
 
 			// ignore implant layers when computing largest feature size
 			float minSize = (float) DBMath.gridToLambda(Math.min(hX - lX, hY - lY));
-			if (layer != null)
-			{
-				Layer.Function fun = layer.getFunction();
-				if (fun.isSubstrate()) minSize = 0;
-			}
+			Layer.Function fun = layer.getFunction();
+			if (fun.isSubstrate()) minSize = 0;
 			vc.maxFeatureSize = Math.max(vc.maxFeatureSize, minSize);
 		}
 	}
@@ -1260,7 +1339,7 @@ if (DEBUG)
 		VectorCell vc = cache.newDummyVectorCell();
 		cache.shapeBuilder.setup(ni.getCellBackup(), null, USE_ELECTRICAL, WIPE_PINS, false, null);
 		cache.shapeBuilder.vc = vc;
-		cache.drawPrimitiveNode(ni, GenMath.MATID, vc);
+		cache.drawPrimitiveNode(cache.shapeBuilder, ni, GenMath.MATID, vc);
 		for(Layer layer : vc.organizedShapes.keySet())
 		{
 			List<VectorBase> vbList = vc.organizedShapes.get(layer);
@@ -1276,7 +1355,7 @@ if (DEBUG)
 	{
 		VectorCache cache = new VectorCache(EDatabase.clientDatabase());
 		VectorCell vc = cache.newDummyVectorCell();
-		cache.drawPolys(a, polys, GenMath.MATID, vc, false, VectorText.TEXTTYPEARC, false);
+		cache.drawPolys(cache.shapeBuilder, a, polys, GenMath.MATID, vc, false, VectorText.TEXTTYPEARC, false);
 		assert vc.topOnlyShapes.isEmpty();
 		for(Layer layer : vc.organizedShapes.keySet())
 		{
@@ -1386,9 +1465,15 @@ if (DEBUG)
 		return false;
 	}
 
+	/**
+	 * Method to bring the cache up to date after a change.
+	 * Only the cells that changed are examined, and only the shapes of nodes and arcs that changed are replaced,
+	 * so the rest of the cached shapes (and all unchanged cells) are kept.
+	 * The new shapes are built in parallel, with one ShapeBuilder per thread.
+	 * @param sa the change that was made.
+	 */
 	private void updateVectorCache(SnapshotAnalyze sa)
 	{
-		updateStep++;
 ElapseTimer timer = null;
 if (DEBUG)
 {
@@ -1396,12 +1481,14 @@ if (DEBUG)
 	System.out.println("UPDATING VECTOR CACHE WITH THESE CHANGES");
 	sa.dumpChanges();
 }
+		Snapshot newSnapshot = sa.getNewSnapshot();
+
 		// remove caches for any deleted cells
 		List<CellId> killedCells = sa.getDeletedCells();
 		for(CellId cid : killedCells)
 		{
-            VectorCellDef vcd = cid.cellIndex < cachedCells.size() ? cachedCells.get(cid.cellIndex) : null;
-            if (vcd == null) continue;
+			VectorCellDef vcd = findCachedCell(cid);
+			if (vcd == null) continue;
 			vcd.clear();
 			cachedCells.set(cid.cellIndex, null);
 		}
@@ -1409,155 +1496,277 @@ if (DEBUG)
 		// update cache of exports
 		for(CellId cid : sa.getChangedExportCells())
 		{
-			VectorCellDef vcd = findCellGroup(cid);
-			vcd.updateExports();
+			VectorCellDef vcd = findCachedCell(cid);
+			if (vcd != null) vcd.updateExports();
 		}
 
-		// update cache of Cell variables that changed
-		for(CellId cid : sa.getChangedVariableCells())
+		// instances of cells that changed size must be cached again in their parents
+		Map<CellId,Set<ImmutableElectricObject>> resizedInstances = new HashMap<CellId,Set<ImmutableElectricObject>>();
+		for(CellId cid : sa.sizeChangedCells())
 		{
-			VectorCellDef vcd = findCellGroup(cid);
-			vcd.updateVariables();
+			for(int i=0; i<cid.numUsagesOf(); i++)
+			{
+				CellId parentId = cid.getUsageOf(i).parentId;
+				CellBackup parentBackup = newSnapshot.getCell(parentId);
+				if (parentBackup == null || findCachedCell(parentId) == null) continue;
+				Set<ImmutableElectricObject> instances = resizedInstances.get(parentId);
+				if (instances == null) resizedInstances.put(parentId, instances = new HashSet<ImmutableElectricObject>());
+				for (ImmutableNodeInst n : parentBackup.cellRevision.nodes)
+					if (n.protoId == cid) instances.add(n);
+			}
 		}
 
 		// now update cache for changed cells
 		Set<CellId> cellsToUpdate = sa.changedCells();
+		cellsToUpdate.addAll(resizedInstances.keySet());
+		List<CellUpdate> updates = new ArrayList<CellUpdate>();
+		Set<CellId> faded = new HashSet<CellId>();
 		for(CellId cid : cellsToUpdate)
 		{
-			VectorCellDef vcd = findCellGroup(cid);
+			clearFadeAbove(cid, newSnapshot, faded);
+			VectorCellDef vcd = findCachedCell(cid);
+			CellBackup cellBackup = newSnapshot.getCell(cid);
+			Cell cell = getCellFromId(cid);
+			if (vcd == null || cellBackup == null || cell == null) continue;
+
+			// cells that gain or lose parameters are cached again when drawn
+			boolean parameterized = isCellParameterized(cellBackup.cellRevision);
+			if (parameterized != vcd.isParameterized)
+			{
+				vcd.isParameterized = parameterized;
+				vcd.clear();
+			}
 			if (vcd.isParameterized) continue;
 
 			// see if bounds changes
-			ERectangle newBounds = sa.getNewSnapshot().getCellBounds(cid);
+			ERectangle newBounds = newSnapshot.getCellBounds(cid);
 			if (newBounds == null || !newBounds.equals(vcd.bounds))
-				vcd.updateBounds(sa.getNewSnapshot());
+				vcd.updateBounds(newSnapshot);
+
+			// gather the nodes and arcs to remove and to cache again
+			Set<ImmutableElectricObject> removedFromCell = new HashSet<ImmutableElectricObject>();
+			Set<ImmutableElectricObject> addedToCell = new HashSet<ImmutableElectricObject>();
+			if (sa.getRemoved(cid) != null) removedFromCell.addAll(sa.getRemoved(cid));
+			if (sa.getAdded(cid) != null) addedToCell.addAll(sa.getAdded(cid));
+			Set<ImmutableElectricObject> instances = resizedInstances.get(cid);
+			if (instances != null)
+			{
+				removedFromCell.addAll(instances);
+				addedToCell.addAll(instances);
+			}
+			List<Geometric> objects = new ArrayList<Geometric>();
+			for(ImmutableElectricObject obj : addedToCell)
+			{
+				if (obj instanceof ImmutableNodeInst)
+				{
+					NodeInst ni = cell.getNodeById(((ImmutableNodeInst)obj).nodeId);
+					if (ni == null) continue;
 
-			Cell cell = getCellFromId(cid);
+					// nodes visible only inside are in the top-level shapes, which are rebuilt when needed
+					if (ni.isCellInstance()) ni.getBounds(); else
+						if (ni.isVisInside() || Generic.isCellCenter(ni)) continue;
+					objects.add(ni);
+				} else
+				{
+					ArcInst ai = cell.getArcById(((ImmutableArcInst)obj).arcId);
+					if (ai != null) objects.add(ai);
+				}
+			}
 if (DEBUG) System.out.println("  UPDATING ALL ORIENTATIONS OF CELL "+cell.describe(false));
-			Set<ImmutableElectricObject> addedToCell = sa.getAdded(cid);
-			Set<ImmutableElectricObject> removedFromCell = sa.getRemoved(cid);
-			for(Orientation o : vcd.orientations.keySet())
+			for(VectorCell vc : vcd.orientations.values())
 			{
-				VectorCell vc = vcd.orientations.get(o);
+				vc.topOnlyShapes = null;
 				if (vc.validStep != updateStep) continue;
-if (DEBUG) System.out.println("  UPDATING CELL "+cell.describe(false)+", ORIENTATION '"+o+"'");
 
-				// incremental update: first delete removed object
-				if (removedFromCell.size() > 0)
+				// incremental update: first delete removed objects, then cache added objects in pieces
+				if (removedFromCell.size() > 0) vc.removeShapes(removedFromCell);
+				for(int start = 0; start < objects.size(); start += UPDATEPIECESIZE)
 				{
-					for(Layer lay : vc.organizedShapes.keySet())
-					{
-						List<VectorBase> vbList = vc.organizedShapes.get(lay);
-						if (vbList == null) continue;
-						for(int i=0; i<vbList.size(); i++)
-						{
-							VectorBase vb = vbList.get(i);
-							if (removedFromCell.contains(vb.origin))
-							{
-								int lastIndex = vbList.size() - 1;
-								if (i < lastIndex)
-								{
-									vbList.set(i, vbList.get(lastIndex));
-									i--;
-								}
-								vbList.remove(lastIndex);
-							}
-						}
-					}
-					if (vc.topOnlyShapes != null)
-					{
-						for(int i=0; i<vc.topOnlyShapes.size(); i++)
-						{
-							VectorBase vb = vc.topOnlyShapes.get(i);
-							if (removedFromCell.contains(vb.origin))
-							{
-								int lastIndex = vc.topOnlyShapes.size() - 1;
-								if (i < lastIndex)
-								{
-									vc.topOnlyShapes.set(i, vc.topOnlyShapes.get(lastIndex));
-									i--;
-								}
-								vc.topOnlyShapes.remove(lastIndex);
-							}
-						}
-					}
+					updates.add(new CellUpdate(vc, cellBackup, cell.isIcon(),
+						objects.subList(start, Math.min(objects.size(), start + UPDATEPIECESIZE))));
+				}
+			}
+		}
+		for(CellId cid : sa.getChangedExportCells())
+			clearFadeAbove(cid, newSnapshot, faded);
+if (DEBUG) System.out.println("    REMOVED SHAPES.  TIME NOW " + timer.end());
 
-					List<VectorSubCell> removeThese = new ArrayList<VectorSubCell>();
-					Iterator<VectorSubCell> sea;
-					if (vc.subCellTree == null) sea = vc.subCells.iterator(); else
-						sea = new RTNode.Search<VectorSubCell>(vc.subCellTree);
-					for ( ; sea.hasNext(); )
+		// cache the added objects, in parallel if there are many
+		int numThreads = numUpdateThreads > 0 ? numUpdateThreads : Runtime.getRuntime().availableProcessors();
+		numThreads = Math.min(numThreads, updates.size());
+		AtomicInteger nextUpdate = new AtomicInteger();
+		if (numThreads <= 1)
+		{
+			new CellUpdater(shapeBuilder, updates, nextUpdate).call();
+		} else
+		{
+			ExecutorService pool = ThreadPoolSharedForkJoin.getInstance().getExecutorService();
+			List<Future<Boolean>> updaters = new ArrayList<Future<Boolean>>();
+			for(int i=0; i<numThreads; i++)
+				updaters.add(pool.submit(new CellUpdater(new ShapeBuilder(), updates, nextUpdate)));
+			boolean interrupted = false;
+			for(Future<Boolean> updater : updaters)
+			{
+				for(;;)
+				{
+					try
 					{
-						VectorSubCell vsc = sea.next();
-						if (removedFromCell.contains(vsc.n))
-							removeThese.add(vsc);
-					}
-					if (vc.subCellTree == null)
+						updater.get();
+						break;
+					} catch (InterruptedException e)
 					{
-						for(VectorSubCell vsc : removeThese)
-							vc.subCells.remove(vsc);
-					} else
+						// stop handing out pieces, but wait for the ones being built so that none is used half done
+						interrupted = true;
+						nextUpdate.set(updates.size());
+					} catch (ExecutionException e)
 					{
-						for(VectorSubCell vsc : removeThese)
-							vc.subCellTree = RTNode.unLinkGeom(null, vc.subCellTree, vsc);
+						e.printStackTrace();
+						break;
 					}
-if (DEBUG) System.out.println("    REMOVED " + removedFromCell.size() + " SHAPES.  TIME NOW " + timer.end());
 				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+
+		// add the new shapes to the cache (a cell that could not be updated is cached again when drawn)
+		for(CellUpdate update : updates)
+		{
+			if (update.built == null)
+			{
+				update.vc.clear();
+				continue;
+			}
+			if (update.vc.validStep != updateStep) continue;
+			update.vc.addShapes(update.built);
+
+			// icon cells should not get greeked because of their contents
+			if (update.isIcon) update.vc.maxFeatureSize = 0;
+		}
+if (DEBUG) System.out.println("FINISHED UPDATING CACHE OF " + updates.size() + " PIECES WITH " + numThreads + " THREADS.  TOOK " + timer.end());
+	}
+
+	/**
+	 * Method to remove the greeked images and layer coverage of a cell and of all cells above it.
+	 * @param cellId the cell that changed.
+	 * @param snapshot the Snapshot after the change.
+	 * @param faded the cells that have already been handled.
+	 */
+	private void clearFadeAbove(CellId cellId, Snapshot snapshot, Set<CellId> faded)
+	{
+		if (!faded.add(cellId)) return;
+		VectorCellDef vcd = findCachedCell(cellId);
+		if (vcd != null)
+		{
+			for (VectorCell vc : vcd.orientations.values())
+				vc.clearFade();
+		}
+		for(int i=0; i<cellId.numUsagesOf(); i++)
+		{
+			CellId parentId = cellId.getUsageOf(i).parentId;
+			if (snapshot.getCell(parentId) != null)
+				clearFadeAbove(parentId, snapshot, faded);
+		}
+	}
 
-				// now include added objects
-				for (List<VectorManhattanBox> b : boxBuilders) b.clear();
-				for (List<VectorManhattanBox> b : pureBoxBuilders) b.clear();
-
-				// TODO: this next line takes a long time in huge cells
-if (DEBUG) System.out.println("    PREPARING SHAPEBUILDER.  TIME NOW " + timer.end());
-				shapeBuilder.setup(cell.backup(), o, USE_ELECTRICAL, WIPE_PINS, false, null);
-if (DEBUG) System.out.println("    PREPARED SHAPEBUILDER.  TIME NOW " + timer.end());
-				shapeBuilder.vc = vc;
-				shapeBuilder.hideOnLowLevel = false;
-				shapeBuilder.textType = VectorText.TEXTTYPEARC;
-				FixpTransform trans = o.pureRotate();
-				for(ImmutableElectricObject obj : addedToCell)
+	/**
+	 * Class which describes some nodes and arcs that must be added to a cached cell.
+	 */
+	private static class CellUpdate
+	{
+		private final VectorCell vc;
+		private final CellBackup cellBackup;
+		private final boolean isIcon;
+		private final List<Geometric> objects;
+		/** the new shapes, null if not built */	private VectorCell built;
+
+		CellUpdate(VectorCell vc, CellBackup cellBackup, boolean isIcon, List<Geometric> objects)
+		{
+			this.vc = vc;
+			this.cellBackup = cellBackup;
+			this.isIcon = isIcon;
+			this.objects = objects;
+		}
+	}
+
+	/**
+	 * Class which caches nodes and arcs on one thread.
+	 * Each CellUpdater has its own ShapeBuilder, and takes updates from a shared list until there are none left.
+	 * The shapes of an update are placed in a separate VectorCell,
+	 * which is added to the cache once all threads are done.
+	 */
+	private class CellUpdater implements Callable<Boolean>
+	{
+		private final ShapeBuilder sb;
+		private final List<CellUpdate> updates;
+		private final AtomicInteger nextUpdate;
+		private final Environment launcherEnvironment = Environment.getThreadEnvironment();
+		private final UserInterface userInterface = Job.getUserInterface();
+
+		CellUpdater(ShapeBuilder sb, List<CellUpdate> updates, AtomicInteger nextUpdate)
+		{
+			this.sb = sb;
+			this.updates = updates;
+			this.nextUpdate = nextUpdate;
+		}
+
+		public Boolean call()
+		{
+			// technologies and settings are found through the environment of the thread
+			if (Job.getUserInterface() != userInterface)
+			{
+				Environment.setThreadEnvironment(launcherEnvironment);
+				Job.setUserInterface(userInterface);
+			}
+			for(;;)
+			{
+				int index = nextUpdate.getAndIncrement();
+				if (index >= updates.size()) break;
+				CellUpdate update = updates.get(index);
+				try
 				{
-					if (obj instanceof ImmutableNodeInst)
-					{
-						ImmutableNodeInst ini = (ImmutableNodeInst)obj;
-						NodeInst ni = cell.getNodeById(ini.nodeId);
-						if (ini.isCellInstance())
-						{
-							drawSubcell(ni, trans, vc);
-						} else
-						{
-							boolean hideOnLowLevel = ni.isVisInside() || Generic.isCellCenter(ni);
-							if (!hideOnLowLevel)
-							{
-								drawPrimitiveNode(ni, trans, vc);
-							}
-						}
+					update.built = buildShapes(update);
+				} catch (RuntimeException e)
+				{
+					e.printStackTrace();
+				}
+			}
+			return Boolean.TRUE;
+		}
 
-						// draw exports and their variables
-						for (Iterator<Export> it = ni.getExports(); it.hasNext(); )
-						{
-							Export e = it.next();
-							if (vc.topOnlyShapes == null)
-								vc.topOnlyShapes = new ArrayList<VectorBase>();
-							vc.addExport(e, trans);
-						}
-					} else
-					{
-						ImmutableArcInst iai = (ImmutableArcInst)obj;
-						ArcInst ai = cell.getArcById(iai.arcId);
-						drawArc(ai, trans, vc);
-					}
+		private VectorCell buildShapes(CellUpdate update)
+		{
+			VectorCell built = new VectorCell(update.vc.vcd, update.vc.orient);
+			sb.boxes.clear();
+			sb.pureBoxes.clear();
+			sb.setup(update.cellBackup, update.vc.orient, USE_ELECTRICAL, WIPE_PINS, false, null);
+			sb.vc = built;
+			sb.hideOnLowLevel = false;
+			sb.textType = VectorText.TEXTTYPEARC;
+			FixpTransform trans = update.vc.orient.pureRotate();
+			for(Geometric geom : update.objects)
+			{
+				if (geom instanceof ArcInst)
+				{
+					drawArc(sb, (ArcInst)geom, trans, built);
+				} else
+				{
+					NodeInst ni = (NodeInst)geom;
+					if (ni.isCellInstance()) drawSubcell(sb, ni, trans, built); else
+						drawPrimitiveNode(sb, ni, trans, built);
 				}
-				addBoxesFromBuilder(vc, cell.getTechnology(), boxBuilders, false);
-				addBoxesFromBuilder(vc, cell.getTechnology(), pureBoxBuilders, true);
-				vc.validStep = updateStep;
-if (DEBUG) System.out.println("    ADDED SHAPES.  TIME NOW " + timer.end());
 			}
+			addBoxesFromBuilder(built, sb.boxes, false);
+			addBoxesFromBuilder(built, sb.pureBoxes, true);
+			return built;
 		}
-if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 	}
 
+	/**
+	 * Method to set the number of threads used to cache cells after a change.
+	 * @param numThreads the number of threads (0 to use one per processor).
+	 */
+	void setUpdateThreads(int numThreads) { numUpdateThreads = numThreads; }
+
 	/**
 	 * Method to update the VectorCache when a change is made.
 	 * @param topCells all cells visible in any window.
@@ -1731,19 +1940,29 @@ if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 		return DBMath.lambdaToGrid(lambdaValue);
 	}
 
-	private void addBoxesFromBuilder(VectorCell vc, Technology tech, ArrayList<List<VectorManhattanBox>> boxBuilders, boolean pureArray)
+	private void addBoxesFromBuilder(VectorCell vc, BulkShapeBuilder.BoxSet boxSet, boolean pureArray)
 	{
-		int limit = Math.min(boxBuilders.size(), tech.getNumLayers());
-		for (int layerIndex = 0; layerIndex < limit; layerIndex++)
+		for (BulkShapeBuilder.LayerBoxes b : boxSet.getLayerBoxes())
 		{
-			List<VectorManhattanBox> b = boxBuilders.get(layerIndex);
-			if (b.size() == 0) continue;
-			Layer layer = tech.getLayer(layerIndex);
-			for(VectorManhattanBox vmb : b)
+			int numBoxes = b.getNumBoxes();
+			if (numBoxes == 0) continue;
+			Layer layer = b.getLayer();
+			long[] coords = b.getCoords();
+
+			// ignore implant layers when computing largest feature size
+			boolean substrate = layer.getFunction().isSubstrate();
+			long maxSize = 0;
+			for (int i = 0; i < numBoxes; i++)
 			{
-				VectorManhattan vm = new VectorManhattan(vmb.origin, vmb.lX, vmb.lY, vmb.hX, vmb.hY, layer, null, pureArray);
-				vc.addShape(vm);
+				// convert coordinates
+				long lX = (int) (coords[i * 4 + 0] >> FixpCoord.FRACTION_BITS);
+				long lY = (int) (coords[i * 4 + 1] >> FixpCoord.FRACTION_BITS);
+				long hX = (int) (coords[i * 4 + 2] >> FixpCoord.FRACTION_BITS);
+				long hY = (int) (coords[i * 4 + 3] >> FixpCoord.FRACTION_BITS);
+				vc.addShape(new VectorManhattan(b.getOrigin(i), lX, lY, hX, hY, layer, null, pureArray));
+				if (!substrate) maxSize = Math.max(maxSize, Math.min(hX - lX, hY - lY));
 			}
+			vc.maxFeatureSize = Math.max(vc.maxFeatureSize, (float) DBMath.gridToLambda(maxSize));
 		}
 	}
 
@@ -1782,11 +2001,12 @@ if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 	
 	/**
 	 * Method to cache a NodeInst.
+	 * @param sb the ShapeBuilder of the thread that is caching.
 	 * @param ni the NodeInst to cache.
 	 * @param trans the transformation of the NodeInst to the parent Cell.
 	 * @param vc the cached cell in which to place the NodeInst.
 	 */
-	private void drawSubcell(NodeInst ni, FixpTransform trans, VectorCell vc)
+	private void drawSubcell(ShapeBuilder sb, NodeInst ni, FixpTransform trans, VectorCell vc)
 	{
 		FixpTransform localTrans = ni.rotateOut(trans);
 
@@ -1821,54 +2041,87 @@ if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 
 		// draw any displayable variables on the instance
 		Poly[] polys = ni.getDisplayableVariables(dummyWnd, true);
-		drawTextPolys(ni.getD(), polys, localTrans, vc, false, VectorText.TEXTTYPENODE, false, !ni.isUsernamed());
+		drawTextPolys(sb, ni.getD(), polys, localTrans, vc, false, VectorText.TEXTTYPENODE, false, !ni.isUsernamed());
 	}
 
 	/**
 	 * Method to cache a NodeInst.
+	 * @param sb the ShapeBuilder of the thread that is caching.
 	 * @param ni the NodeInst to cache.
 	 * @param trans the transformation of the NodeInst to the parent Cell.
 	 * @param vc the cached cell in which to place the NodeInst.
 	 */
-	private void drawPrimitiveNode(NodeInst ni, FixpTransform trans, VectorCell vc)
+	private void drawPrimitiveNode(ShapeBuilder sb, NodeInst ni, FixpTransform trans, VectorCell vc)
 	{
 		assert !ni.isCellInstance();
 		PrimitiveNode pn = (PrimitiveNode)ni.getProto();
-		FixpTransform localTrans = ni.rotateOut(trans);
 
 		// draw the node primitive: save it
-		shapeBuilder.textType = pn == Generic.tech().invisiblePinNode ? VectorText.TEXTTYPEANNOTATION : VectorText.TEXTTYPENODE;
-		shapeBuilder.pureLayer = (ni.getFunction() == PrimitiveNode.Function.NODE);
-		shapeBuilder.hideOnLowLevel = ni.isVisInside() || pn == Generic.tech().cellCenterNode;
-		pn.genShape(shapeBuilder, ni.getD());
-		drawTextPolys(ni.getD(), ni.getDisplayableVariables(dummyWnd, true), localTrans, vc,
-			shapeBuilder.hideOnLowLevel, shapeBuilder.textType, shapeBuilder.pureLayer, !ni.isUsernamed());
+		sb.textType = pn == Generic.tech().invisiblePinNode ? VectorText.TEXTTYPEANNOTATION : VectorText.TEXTTYPENODE;
+		sb.setPureLayer(ni.getFunction() == PrimitiveNode.Function.NODE);
+		sb.hideOnLowLevel = ni.isVisInside() || pn == Generic.tech().cellCenterNode;
+		pn.genShape(sb, ni.getD());
+		drawPrimitiveNodeText(sb, ni, trans, vc);
+	}
+
+	/**
+	 * Method to cache the displayable variables of a primitive NodeInst.
+	 * @param sb the ShapeBuilder of the thread that is caching.
+	 * @param ni the NodeInst to cache.
+	 * @param trans the transformation of the NodeInst to the parent Cell.
+	 * @param vc the cached cell in which to place the NodeInst.
+	 */
+	private void drawPrimitiveNodeText(ShapeBuilder sb, NodeInst ni, FixpTransform trans, VectorCell vc)
+	{
+		PrimitiveNode pn = (PrimitiveNode)ni.getProto();
+		FixpTransform localTrans = ni.rotateOut(trans);
+		int textType = pn == Generic.tech().invisiblePinNode ? VectorText.TEXTTYPEANNOTATION : VectorText.TEXTTYPENODE;
+		boolean pureLayer = ni.getFunction() == PrimitiveNode.Function.NODE;
+		boolean hideOnLowLevel = ni.isVisInside() || pn == Generic.tech().cellCenterNode;
+		drawTextPolys(sb, ni.getD(), ni.getDisplayableVariables(dummyWnd, true), localTrans, vc,
+			hideOnLowLevel, textType, pureLayer, !ni.isUsernamed());
 	}
 
 	/**
 	 * Method to cache an ArcInst.
+	 * @param sb the ShapeBuilder of the thread that is caching.
 	 * @param ai the ArcInst to cache.
 	 * @param trans the transformation of the ArcInst to the parent cell.
 	 * @param vc the cached cell in which to place the ArcInst.
 	 */
-	private void drawArc(ArcInst ai, FixpTransform trans, VectorCell vc)
+	private void drawArc(ShapeBuilder sb, ArcInst ai, FixpTransform trans, VectorCell vc)
 	{
 		// draw the arc
 		ArcProto ap = ai.getProto();
-		shapeBuilder.pureLayer = (ap.getNumArcLayers() == 1);
-		shapeBuilder.genShapeOfArc(ai.getD());
-		drawTextPolys(ai.getD(), ai.getDisplayableVariables(dummyWnd, true), trans, vc, false, VectorText.TEXTTYPEARC, false, !ai.isUsernamed());
+		sb.textType = VectorText.TEXTTYPEARC;
+		sb.setPureLayer(ap.getNumArcLayers() == 1);
+		sb.hideOnLowLevel = false;
+		sb.genShapeOfArc(ai.getD());
+		drawArcText(sb, ai, trans, vc);
+	}
+
+	/**
+	 * Method to cache the displayable variables of an ArcInst.
+	 * @param sb the ShapeBuilder of the thread that is caching.
+	 * @param ai the ArcInst to cache.
+	 * @param trans the transformation of the ArcInst to the parent cell.
+	 * @param vc the cached cell in which to place the ArcInst.
+	 */
+	private void drawArcText(ShapeBuilder sb, ArcInst ai, FixpTransform trans, VectorCell vc)
+	{
+		drawTextPolys(sb, ai.getD(), ai.getDisplayableVariables(dummyWnd, true), trans, vc, false, VectorText.TEXTTYPEARC, false, !ai.isUsernamed());
 	}
 
 	/**
 	 * Method to cache an array of polygons.
+	 * @param sb the ShapeBuilder of the thread that is caching.
 	 * @param polys the array of polygons to cache.
 	 * @param trans the transformation to apply to each polygon.
 	 * @param vc the cached cell in which to place the polygons.
 	 * @param hideOnLowLevel true if the polygons should be marked such that they are not visible on lower levels of hierarchy.
 	 * @param pureLayer true if these polygons come from a pure layer node.
 	 */
-	private void drawPolys(ImmutableElectricObject origin, Poly[] polys, FixpTransform trans, VectorCell vc, boolean hideOnLowLevel, int textType, boolean pureLayer)
+	private void drawPolys(ShapeBuilder sb, ImmutableElectricObject origin, Poly[] polys, FixpTransform trans, VectorCell vc, boolean hideOnLowLevel, int textType, boolean pureLayer)
 	{
 		if (polys == null) return;
 		for (int i = 0; i < polys.length; i++)
@@ -1881,12 +2134,13 @@ if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 			poly.transform(trans);
 
 			// render the polygon
-			renderPoly(origin, poly, vc, hideOnLowLevel, textType, pureLayer, false);
+			renderPoly(sb, origin, poly, vc, hideOnLowLevel, textType, pureLayer, false);
 		}
 	}
 
 	/**
 	 * Method to cache an array of polygons.
+	 * @param sb the ShapeBuilder of the thread that is caching.
 	 * @param polys the array of polygons to cache.
 	 * @param trans the transformation to apply to each polygon.
 	 * @param vc the cached cell in which to place the polygons.
@@ -1894,7 +2148,7 @@ if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 	 * @param pureLayer true if these polygons come from a pure layer node.
 	 * @param tempOwnerName true if owner object has temporary name.
 	 */
-	private void drawTextPolys(ImmutableElectricObject origin, Poly[] polys, FixpTransform trans, VectorCell vc, boolean hideOnLowLevel, int textType, boolean pureLayer, boolean tempOwnerName)
+	private void drawTextPolys(ShapeBuilder sb, ImmutableElectricObject origin, Poly[] polys, FixpTransform trans, VectorCell vc, boolean hideOnLowLevel, int textType, boolean pureLayer, boolean tempOwnerName)
 	{
 		if (polys == null) return;
 		for (int i = 0; i < polys.length; i++)
@@ -1907,19 +2161,20 @@ if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 			poly.transform(trans);
 
 			// render the polygon
-			renderPoly(origin, poly, vc, hideOnLowLevel, textType, pureLayer, tempOwnerName);
+			renderPoly(sb, origin, poly, vc, hideOnLowLevel, textType, pureLayer, tempOwnerName);
 		}
 	}
 
 	/**
 	 * Method to cache a Poly.
+	 * @param sb the ShapeBuilder of the thread that is caching.
 	 * @param poly the polygon to cache.
 	 * @param vc the cached cell in which to place the polygon.
 	 * @param hideOnLowLevel true if the polygon should be marked such that it is not visible on lower levels of hierarchy.
 	 * @param pureLayer true if the polygon comes from a pure layer node.
 	 * @param tempOwnerName true if owner object has temporary name.
 	 */
-	private void renderPoly(ImmutableElectricObject origin, Poly poly, VectorCell vc, boolean hideOnLowLevel, int textType,
+	private void renderPoly(ShapeBuilder sb, ImmutableElectricObject origin, Poly poly, VectorCell vc, boolean hideOnLowLevel, int textType,
 		boolean pureLayer, boolean tempOwnerName)
 	{
 		// now draw it
@@ -1948,16 +2203,11 @@ if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 				double lY = bounds.getMinY();
 				double hY = bounds.getMaxY();
 				float minSize = (float) Math.min(hX - lX, hY - lY);
-				int layerIndex = -1;
-				if (layer != null && graphicsOverride == null)
+				if (layer != null && graphicsOverride == null && vc.vcd != null && layer.getId().techId == vc.vcd.techId)
 				{
-					if (vc.vcd != null && layer.getId().techId == vc.vcd.techId)
-						layerIndex = layer.getIndex();
-				}
-				if (layerIndex >= 0)
-				{
-					putBox(origin, layerIndex, pureLayer ? pureBoxBuilders : boxBuilders,
-						databaseToGrid(lX), databaseToGrid(lY), databaseToGrid(hX), databaseToGrid(hY));
+					(pureLayer ? sb.pureBoxes : sb.boxes).add(layer, databaseToGrid(lX) << FixpCoord.FRACTION_BITS,
+						databaseToGrid(lY) << FixpCoord.FRACTION_BITS, databaseToGrid(hX) << FixpCoord.FRACTION_BITS,
+						databaseToGrid(hY) << FixpCoord.FRACTION_BITS, origin);
 				} else
 				{
 					VectorManhattan vm = new VectorManhattan(origin, lX, lY, hX, hY, layer, graphicsOverride, pureLayer);
@@ -2098,17 +2348,6 @@ if (DEBUG) System.out.println("FINISHED UPDATING CACHE.  TOOK " + timer.end());
 		}
 	}
 
-	private static void putBox(ImmutableElectricObject origin, int layerIndex, ArrayList<List<VectorManhattanBox>> boxBuilders,
-		long lX, long lY, long hX, long hY)
-	{
-		while (layerIndex >= boxBuilders.size())
-		{
-			boxBuilders.add(new ArrayList<VectorManhattanBox>());
-		}
-		List<VectorManhattanBox> b = boxBuilders.get(layerIndex);
-		b.add(new VectorManhattanBox(origin, lX, lY, hX, hY));
-	}
-
 //	private void dumpCache(VectorCell vc)
 //	{
 //		Cell cell = database.getCell(vc.vcd.cellId);
@@ -21,6 +21,7 @@
  */
 package com.sun.electric.tool.user.redisplay;
 
+import com.sun.electric.database.Environment;
 import com.sun.electric.database.ImmutableNodeInst;
 import com.sun.electric.database.geometry.EGraphics;
 import com.sun.electric.database.geometry.EPoint;
@@ -32,6 +33,7 @@ import com.sun.electric.database.id.CellId;
 import com.sun.electric.database.topology.NodeInst;
 import com.sun.electric.database.topology.RTNode;
 import com.sun.electric.database.variable.TextDescriptor;
+import com.sun.electric.database.variable.UserInterface;
 import com.sun.electric.database.variable.VarContext;
 import com.sun.electric.technology.Layer;
 import com.sun.electric.technology.Technology;
@@ -39,6 +41,7 @@ import com.sun.electric.tool.Job;
 import com.sun.electric.tool.user.User;
 import com.sun.electric.tool.user.ui.LayerVisibility;
 import com.sun.electric.tool.user.ui.TopLevel;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
 import com.sun.electric.util.ElapseTimer;
 import com.sun.electric.util.TextUtils;
 import com.sun.electric.util.math.DBMath;
@@ -54,12 +57,17 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class to do rapid redraw by caching the vector coordinates of all objects.
@@ -68,6 +76,8 @@ class VectorDrawing {
 	private static final boolean TAKE_STATS = false;
 	private static final int MAXGREEKSIZE = 25;
 	private static final int SCALE_SH = 20;
+	/** the size of the tiles drawn by "renderTiled" (in pixels) */
+	static final int TILESIZE = 256;
 
 	/** the rendering object */										private PixelDrawing offscreen;
 	/** the window scale */											private float scale;
@@ -80,7 +90,7 @@ class VectorDrawing {
 	/** The current cell being in-place edited. */					private Cell inPlaceCurrent;
 	/** time that rendering started */								private ElapseTimer timer = ElapseTimer.createInstance();
 	/** true if the user has been told of delays */					private boolean takingLongTime;
-	/** true to stop rendering */									private boolean stopRendering;
+	/** true to stop rendering */									private volatile boolean stopRendering;
 	/** the half-sizes of the window (in pixels) */					private int szHalfWidth, szHalfHeight;
 	/** the screen clipping */										private int screenLX, screenHX, screenLY, screenHY;
 	/** statistics */												private int boxCount, tinyBoxCount, lineBoxCount, lineCount, polygonCount;
@@ -89,9 +99,17 @@ class VectorDrawing {
 	/** object size visibility threshold */							private float objectVisibleThreshold;
 	/** object size threshold: above is drawn, below is greeked */	private float objectGreekThreshold;
 	/** true to use cell greeking images */							private boolean useCellGreekingImages;
+	/** true to draw small cells from their layer coverage */		private boolean useLevelOfDetail;
 	/** the threshold of text sizes */								private float maxTextSize;
 	/** the maximum cell size above which no greeking */			private float maxCellSize;
 
+	/** the position of this tile in the window (in pixels) */		private int tileX, tileY;
+	/** true if this draws a tile from a prepared cache */			private boolean tileWorker;
+	/** the tiles now being rendered (null if not tiling) */		private volatile VectorDrawing[] tileWorkers;
+	/** the offscreen buffers of the tiles (reused) */				private PixelDrawing[] tileBuffers;
+	/** the window and tile sizes of the tile buffers */			private Dimension tileWindowSize;
+																	private int tileBufferSize;
+
 	/** temporary objects (saves allocation) */						private Point tempPt1 = new Point(), tempPt2 = new Point();
 	/** temporary objects (saves allocation) */						private Point tempPt3 = new Point();
 	/** temporary object (saves allocation) */						private Rectangle tempRect = new Rectangle();
@@ -107,7 +125,17 @@ class VectorDrawing {
 	 * @param wnd the EditWindow associated with this VectorDrawing.
 	 */
 	public VectorDrawing(boolean useCellGreekingImages) {
+		this(useCellGreekingImages, false);
+	}
+
+	/**
+	 * Constructor creates a VectorDrawing object that may draw small cells from their layer coverage.
+	 * @param useCellGreekingImages true to use small images when greeking cells.
+	 * @param useLevelOfDetail true to draw cells that are small on the screen from their DensityPyramid.
+	 */
+	public VectorDrawing(boolean useCellGreekingImages, boolean useLevelOfDetail) {
 		this.useCellGreekingImages = useCellGreekingImages;
+		this.useLevelOfDetail = useLevelOfDetail;
 	}
 
 	/**
@@ -125,24 +153,11 @@ class VectorDrawing {
 			double greekSizeLimit, double greekCellSizeLimit, LayerVisibility lv) {
 		// see if any layers are being highlighted/dimmed
 		this.offscreen = offscreen;
-		offscreen.highlightingLayers = false;
-		for (Iterator<Layer> it = Technology.getCurrent().getLayers(); it.hasNext();) {
-			Layer layer = it.next();
-			if (lv.isHighlighted(layer)) {
-				offscreen.highlightingLayers = true;
-				break;
-			}
-		}
+		setHighlighting(offscreen, lv);
 
 		// set size limit
 		Dimension sz = offscreen.getSize();
-		this.scale = (float) scale;
-		scale_ = (float) (scale / DBMath.GRID);
-		objectGreekThreshold = (float) greekSizeLimit / this.scale;
-		objectVisibleThreshold = (float) 1.0 / this.scale;
-		maxTextSize = (float) (objectGreekThreshold / PixelDrawing.dp.globalTextScale);
-		double screenArea = sz.getWidth() / scale * sz.getHeight() / scale;
-		maxCellSize = (float) (greekCellSizeLimit * screenArea);
+		setWindow(sz, scale, offset, greekSizeLimit, greekCellSizeLimit);
 
 		// statistics
 		timer.start();
@@ -157,17 +172,6 @@ class VectorDrawing {
 		this.fullInstantiate = fullInstantiate;
 		this.inPlaceNodePath = inPlaceNodePath;
 		this.inPlaceCurrent = inPlaceCurrent;
-		szHalfWidth = sz.width / 2;
-		szHalfHeight = sz.height / 2;
-		screenLX = 0;
-		screenHX = sz.width;
-		screenLY = 0;
-		screenHY = sz.height;
-		factorX = (float) (offset.getX() * DBMath.GRID - szHalfWidth / scale_);
-		factorY = (float) (offset.getY() * DBMath.GRID + szHalfHeight / scale_);
-		factorX_ = (int) factorX;
-		factorY_ = (int) factorY;
-		scale_int = (int) (scale_ * (1 << SCALE_SH));
 		if (screenLimit != null) {
 			screenLX = screenLimit.x;
 			if (screenLX < 0) screenLX = 0;
@@ -210,6 +214,312 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 		}
 	}
 
+	/**
+	 * Entry point for drawing a cell with several threads.
+	 * The window is split into square tiles, each of which is drawn from the shared VectorCache
+	 * into its own offscreen buffer, and the finished tiles are copied into the window's buffer.
+	 * The cache is first brought up to date on the calling thread, so that the tiles only read it.
+	 * Cells with parameters are cached again for every instance, so when the hierarchy has any,
+	 * the cell is drawn by "render" on the calling thread instead.
+	 * Unlike "render", this composites the image, so "offscreen.composite()" need not be called.
+	 * @param offscreen offscreen buffer
+	 * @param scale edit window scale
+	 * @param offset the offset factor for this window
+	 * @param cell the cell to draw
+	 * @param fullInstantiate true to draw all the way to the bottom of the hierarchy.
+	 * @param inPlaceNodePath a List of NodeInsts to the cell being in-place edited
+	 * @param tileSize the width and height of the tiles (in pixels), rounded up to keep fill patterns aligned.
+	 * @param numThreads the number of threads to use (0 to use all processors).
+	 */
+	public void renderTiled(PixelDrawing offscreen, double scale, Point2D offset, Cell cell, boolean fullInstantiate,
+			List<NodeInst> inPlaceNodePath, Cell inPlaceCurrent, VarContext context,
+			double greekSizeLimit, double greekCellSizeLimit, LayerVisibility lv, int tileSize, int numThreads) {
+		this.offscreen = offscreen;
+		setHighlighting(offscreen, lv);
+		Dimension sz = offscreen.getSize();
+		setWindow(sz, scale, offset, greekSizeLimit, greekCellSizeLimit);
+		timer.start();
+		takingLongTime = false;
+		this.fullInstantiate = fullInstantiate;
+		this.inPlaceNodePath = inPlaceNodePath;
+		this.inPlaceCurrent = inPlaceCurrent;
+
+		// bring the cache up to date for everything that may be drawn
+		stopRendering = false;
+		VectorCache.VectorCell topVC;
+		boolean shareable;
+		try {
+			topVC = drawCell(cell, Orientation.IDENT, context, true);
+			topVC.getTopOnlyShapes();
+			topVD = this;
+			shareable = prepareCache(topVC, cell, context, lv, new HashSet<VectorCache.VectorCell>());
+		} catch (AbortRenderingException e) {
+			return;
+		} finally {
+			topVD = null;
+		}
+		if (!shareable) {
+			render(offscreen, scale, offset, cell, fullInstantiate, inPlaceNodePath, inPlaceCurrent, null, context,
+				greekSizeLimit, greekCellSizeLimit, lv);
+			offscreen.composite(null);
+			return;
+		}
+
+		// make a renderer for each tile
+		tileSize = (tileSize + 15) & ~15;
+		int tilesX = (sz.width + tileSize - 1) / tileSize;
+		int tilesY = (sz.height + tileSize - 1) / tileSize;
+		int numTiles = tilesX * tilesY;
+		if (tileBuffers == null || !sz.equals(tileWindowSize) || tileSize != tileBufferSize) {
+			tileWindowSize = new Dimension(sz);
+			tileBufferSize = tileSize;
+			tileBuffers = new PixelDrawing[numTiles];
+			for (int i = 0; i < numTiles; i++) {
+				int x = (i % tilesX) * tileSize;
+				int y = (i / tilesX) * tileSize;
+				tileBuffers[i] = new PixelDrawing(new Dimension(Math.min(tileSize, sz.width - x), Math.min(tileSize, sz.height - y)));
+			}
+		}
+		VectorDrawing[] workers = new VectorDrawing[numTiles];
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+		for (int i = 0; i < numTiles; i++) {
+			VectorDrawing worker = new VectorDrawing(useCellGreekingImages, useLevelOfDetail);
+			worker.initTile(this, tileBuffers[i], (i % tilesX) * tileSize, (i / tilesX) * tileSize);
+			workers[i] = worker;
+			tasks.add(worker.new TileRenderer(cell, topVC, context, lv));
+		}
+		tileWorkers = workers;
+		if (stopRendering) {
+			tileWorkers = null;
+			return;
+		}
+
+		// render the tiles
+		boolean completed = true;
+		if (numThreads <= 0) numThreads = Runtime.getRuntime().availableProcessors();
+		if (numThreads <= 1 || numTiles <= 1) {
+			for (Callable<Boolean> task : tasks) {
+				try {
+					if (!task.call().booleanValue()) completed = false;
+				} catch (Exception e) {
+					e.printStackTrace();
+					completed = false;
+				}
+				if (!completed) break;
+			}
+		} else {
+			try {
+				List<Future<Boolean>> results = ThreadPoolSharedForkJoin.getInstance().getExecutorService().invokeAll(tasks);
+				for (Future<Boolean> result : results) {
+					if (!result.get().booleanValue()) completed = false;
+				}
+			} catch (InterruptedException e) {
+				completed = false;
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+				completed = false;
+			}
+		}
+		tileWorkers = null;
+
+		// copy the finished tiles into the window
+		if (!completed) return;
+		for (VectorDrawing worker : workers)
+			offscreen.copyTile(worker.offscreen, worker.tileX, worker.tileY);
+	}
+
+	/**
+	 * Class to render one tile of the window on a thread of the shared pool.
+	 */
+	private class TileRenderer implements Callable<Boolean> {
+		private final Cell cell;
+		private final VectorCache.VectorCell topVC;
+		private final VarContext context;
+		private final LayerVisibility lv;
+		private final Environment launcherEnvironment = Environment.getThreadEnvironment();
+		private final UserInterface userInterface = Job.getUserInterface();
+
+		TileRenderer(Cell cell, VectorCache.VectorCell topVC, VarContext context, LayerVisibility lv) {
+			this.cell = cell;
+			this.topVC = topVC;
+			this.context = context;
+			this.lv = lv;
+		}
+
+		/**
+		 * Method to draw the tile and composite its transparent layers.
+		 * @return false if rendering was aborted.
+		 */
+		public Boolean call() {
+			// technologies and settings are found through the environment of the thread
+			if (Job.getUserInterface() != userInterface) {
+				Environment.setThreadEnvironment(launcherEnvironment);
+				Job.setUserInterface(userInterface);
+			}
+			offscreen.clearImage(null, cell);
+			try {
+				render(topVC, 0, 0, context, 0, lv);
+				drawList(0, 0, topVC.getTopOnlyShapes(), 0, false);
+			} catch (AbortRenderingException e) {
+				return Boolean.FALSE;
+			}
+			offscreen.composite(null);
+			return Boolean.TRUE;
+		}
+	}
+
+	/**
+	 * Method to set up this VectorDrawing to render one tile of a window.
+	 * @param master the VectorDrawing of the entire window.
+	 * @param tile the offscreen buffer of the tile.
+	 * @param x the X position of the tile in the window (in pixels).
+	 * @param y the Y position of the tile in the window (in pixels).
+	 */
+	private void initTile(VectorDrawing master, PixelDrawing tile, int x, int y) {
+		offscreen = tile;
+		tile.initTile(master.offscreen, x, y);
+		scale = master.scale;
+		scale_ = master.scale_;
+		factorX = master.factorX;
+		factorY = master.factorY;
+		factorX_ = master.factorX_;
+		factorY_ = master.factorY_;
+		scale_int = master.scale_int;
+		objectGreekThreshold = master.objectGreekThreshold;
+		objectVisibleThreshold = master.objectVisibleThreshold;
+		maxTextSize = master.maxTextSize;
+		maxCellSize = master.maxCellSize;
+		fullInstantiate = master.fullInstantiate;
+		inPlaceNodePath = master.inPlaceNodePath;
+		inPlaceCurrent = master.inPlaceCurrent;
+		Dimension sz = tile.getSize();
+		szHalfWidth = sz.width / 2;
+		szHalfHeight = sz.height / 2;
+		screenLX = 0;
+		screenHX = sz.width;
+		screenLY = 0;
+		screenHY = sz.height;
+		tileX = x;
+		tileY = y;
+		tileWindowSize = master.tileWindowSize;
+		tileWorker = true;
+		takingLongTime = true;
+	}
+
+	/**
+	 * Method to bring the cache up to date for everything that the tiles may draw below a cached cell,
+	 * so that the tiles can read it at the same time without changing it.
+	 * This follows the decisions made in "render" (which instances are invisible, greeked, or expanded),
+	 * but does not look at the location of instances, so it may prepare some that are off the screen.
+	 * @param vc the cached cell to examine.
+	 * @param cell the Cell being examined.
+	 * @param context the VarContext for this point in the hierarchy.
+	 * @param lv current layer visibility.
+	 * @param prepared the cached cells that have already been examined.
+	 * @return false if a cell with parameters will be drawn (so the cache cannot be shared).
+	 */
+	private boolean prepareCache(VectorCache.VectorCell vc, Cell cell, VarContext context, LayerVisibility lv,
+		Set<VectorCache.VectorCell> prepared) throws AbortRenderingException
+	{
+		if (vc.getCellDef().isParameterized()) return false;
+		Iterator<VectorCache.VectorSubCell> sea;
+		if (vc.getSubCellTree() == null) sea = vc.getSubCells().iterator(); else
+			sea = new RTNode.Search<VectorCache.VectorSubCell>(vc.getSubCellTree());
+		for ( ; sea.hasNext(); )
+		{
+			VectorCache.VectorSubCell vsc = sea.next();
+			ImmutableNodeInst ini = vsc.getNode();
+			Orientation recurseTrans = vc.getOrientation().concatenate(ini.orient);
+			VectorCache.VectorCell subVC = VectorCache.theCache.findVectorCell(vsc.getCellId(), recurseTrans);
+			subVC.getPortCenters();
+
+			// invisible and unexpanded instances need nothing more
+			float minSize = subVC.getCellDef().getMinimumSize();
+			if (minSize < objectVisibleThreshold) continue;
+			boolean expanded = fullInstantiate || cell.isExpanded(ini.nodeId) || isOnPathDown(vsc);
+			if (!expanded && minSize >= objectGreekThreshold) continue;
+			if (!prepared.add(subVC)) continue;
+
+			Cell subCell = VectorCache.getCellFromId(vsc.getCellId());
+			VarContext subContext = null;
+			if (context != null)
+				subContext = context.push(cell, ini);
+			drawCell(subCell, recurseTrans, subContext, false);
+			if (minSize < objectGreekThreshold) {
+				makeGreekedImage(subVC, lv);
+				getFadeColor(subVC, subContext, lv);
+				continue;
+			}
+
+			// prepare greeked versions of expanded cells that may be too small to draw
+			if (!subCell.isIcon()) {
+				if (useLevelOfDetail && !isOnPathDown(vsc)) {
+					double wid = (subVC.getHX() - subVC.getLX()) * scale_, hei = (subVC.getHY() - subVC.getLY()) * scale_;
+					if (wid <= DensityPyramid.BASESIZE + 1 && hei <= DensityPyramid.BASESIZE + 1) {
+						makeDensity(subVC, subCell, subContext);
+
+						// the contents are not drawn unless rounding on the screen makes the cell larger
+						if (wid < DensityPyramid.BASESIZE - 1 && hei < DensityPyramid.BASESIZE - 1) continue;
+					}
+				}
+				boolean tinyFeatures = subVC.getMaxFeatureSize() > 0 && subVC.getMaxFeatureSize() < objectGreekThreshold;
+				boolean smallerThanGreek = useCellGreekingImages &&
+					(subVC.getHX() - subVC.getLX()) * scale_ <= MAXGREEKSIZE + 1 &&
+					(subVC.getHY() - subVC.getLY()) * scale_ <= MAXGREEKSIZE + 1;
+				if (tinyFeatures || smallerThanGreek) {
+					makeGreekedImage(subVC, lv);
+					getFadeColor(subVC, context, lv);
+				}
+			}
+			if (!prepareCache(subVC, subCell, subContext, lv, prepared)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Method to tell an offscreen buffer whether any layers are being highlighted/dimmed.
+	 * @param offscreen offscreen buffer
+	 * @param lv current layer visibility.
+	 */
+	private static void setHighlighting(PixelDrawing offscreen, LayerVisibility lv) {
+		offscreen.highlightingLayers = false;
+		for (Iterator<Layer> it = Technology.getCurrent().getLayers(); it.hasNext();) {
+			Layer layer = it.next();
+			if (lv.isHighlighted(layer)) {
+				offscreen.highlightingLayers = true;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Method to set the scale, pan, clipping, and greeking limits for drawing into a window.
+	 * @param sz the size of the window (in pixels).
+	 * @param scale edit window scale
+	 * @param offset the offset factor for this window
+	 */
+	private void setWindow(Dimension sz, double scale, Point2D offset, double greekSizeLimit, double greekCellSizeLimit) {
+		this.scale = (float) scale;
+		scale_ = (float) (scale / DBMath.GRID);
+		objectGreekThreshold = (float) greekSizeLimit / this.scale;
+		objectVisibleThreshold = (float) 1.0 / this.scale;
+		maxTextSize = (float) (objectGreekThreshold / PixelDrawing.dp.globalTextScale);
+		double screenArea = sz.getWidth() / scale * sz.getHeight() / scale;
+		maxCellSize = (float) (greekCellSizeLimit * screenArea);
+
+		szHalfWidth = sz.width / 2;
+		szHalfHeight = sz.height / 2;
+		screenLX = 0;
+		screenHX = sz.width;
+		screenLY = 0;
+		screenHY = sz.height;
+		factorX = (float) (offset.getX() * DBMath.GRID - szHalfWidth / scale_);
+		factorY = (float) (offset.getY() * DBMath.GRID + szHalfHeight / scale_);
+		factorX_ = (int) factorX;
+		factorY_ = (int) factorY;
+		scale_int = (int) (scale_ * (1 << SCALE_SH));
+	}
+
 	/**
 	 * Main entry point for drawing a tech menu entry.
 	 * @param offscreen offscreen buffer
@@ -262,6 +572,11 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 	 */
 	public void abortRendering() {
 		stopRendering = true;
+		VectorDrawing[] workers = tileWorkers;
+		if (workers != null) {
+			for (VectorDrawing worker : workers)
+				worker.stopRendering = true;
+		}
 	}
 
 	/**
@@ -362,15 +677,7 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 			}
 
 			// see if drawing "down in place"
-			boolean onPathDown = false;
-			if (inPlaceNodePath != null) {
-				for (NodeInst niOnPath : inPlaceNodePath) {
-					if (niOnPath.getProto().getId() == vsc.getCellId()) {
-						onPathDown = true;
-						break;
-					}
-				}
-			}
+			boolean onPathDown = isOnPathDown(vsc);
 
 			// see if cell contents should be drawn
 			boolean isExpanded = cell.isExpanded(ini.nodeId);
@@ -390,6 +697,16 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 
 				// expanded cells may be replaced with greeked versions (not icons)
 				if (!subCell.isIcon()) {
+					// small cells are drawn from their layer coverage, at the resolution of the screen
+					if (useLevelOfDetail && !onPathDown && hX - lX <= DensityPyramid.BASESIZE && hY - lY <= DensityPyramid.BASESIZE) {
+						DensityPyramid density = makeDensity(subVC, subCell, subContext);
+						if (density != null) {
+							drawDensity(lX, hX, lY, hY, density, lv);
+							tinySubCellCount++;
+							continue;
+						}
+					}
+
 					// may also be "tiny" if all features in the cell are tiny
 					boolean allFeaturesTiny = subVC.getMaxFeatureSize() > 0 && subVC.getMaxFeatureSize() < objectGreekThreshold &&
 						subVC.getCellDef().getArea() < maxCellSize && isContentsTiny(subCell, subVC, recurseTrans, context);
@@ -445,6 +762,19 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 		}
 	}
 
+	/**
+	 * Method to tell whether a cell instance is on the path to the cell being in-place edited.
+	 * @param vsc the cached cell instance.
+	 * @return true if the instance is being drawn "down in place".
+	 */
+	private boolean isOnPathDown(VectorCache.VectorSubCell vsc) {
+		if (inPlaceNodePath == null) return false;
+		for (NodeInst niOnPath : inPlaceNodePath) {
+			if (niOnPath.getProto().getId() == vsc.getCellId()) return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Method to draw a list of cached shapes.
 	 * @param oX the X offset to draw the shapes (in database grid coordinates).
@@ -552,11 +882,18 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 					if (hX < screenLX || lX >= screenHX) continue;
 					if (hY < screenLY || lY >= screenHY) continue;
 
-					// clip to screen
-					if (lX < screenLX) lX = screenLX;
-					if (hX >= screenHX) hX = screenHX - 1;
-					if (lY < screenLY) lY = screenLY;
-					if (hY >= screenHY) hY = screenHY - 1;
+					// clip to screen (tiles clip to the whole window, so that outlines are where the window has them)
+					if (tileWorker) {
+						if (lX < -tileX) lX = -tileX;
+						if (hX >= tileWindowSize.width - tileX) hX = tileWindowSize.width - tileX - 1;
+						if (lY < -tileY) lY = -tileY;
+						if (hY >= tileWindowSize.height - tileY) hY = tileWindowSize.height - tileY - 1;
+					} else {
+						if (lX < screenLX) lX = screenLX;
+						if (hX >= screenHX) hX = screenHX - 1;
+						if (lY < screenLY) lY = screenLY;
+						if (hY >= screenHY) hY = screenHY - 1;
+					}
 
 					// draw the box
 					offscreen.drawBox(lX, hX, lY, hY, layerBitMap, graphics, dimmed);
@@ -580,7 +917,10 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 					intPoints[i] = new Point();
 					gridToScreen(oldPoints[i].getGridX() + oX, oldPoints[i].getGridY() + oY, intPoints[i]);
 				}
-				Point[] clippedPoints = GenMath.clipPoly(intPoints, screenLX, screenHX - 1, screenLY, screenHY - 1);
+				// tiles clip to the whole window so that the edges match those in the neighboring tiles
+				Point[] clippedPoints = tileWorker ?
+					GenMath.clipPoly(intPoints, -tileX, tileWindowSize.width - 1 - tileX, -tileY, tileWindowSize.height - 1 - tileY) :
+					GenMath.clipPoly(intPoints, screenLX, screenHX - 1, screenLY, screenHY - 1);
 				if (clippedPoints.length >= 2)
 					offscreen.drawPolygon(clippedPoints, layerBitMap, graphics, dimmed);
 			} else if (vb instanceof VectorCache.VectorCross) {
@@ -740,13 +1080,13 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 	 */
 	private void gridToScreen(long dbX, long dbY, Point result) {
 		if (false) {
-			result.x = (int)(((dbX - factorX_) * scale_int) >> SCALE_SH);
-			result.y = (int)(((factorY_ - dbY) * scale_int) >> SCALE_SH);
+			result.x = (int)(((dbX - factorX_) * scale_int) >> SCALE_SH) - tileX;
+			result.y = (int)(((factorY_ - dbY) * scale_int) >> SCALE_SH) - tileY;
 		} else {
 			double scrX = (dbX - factorX) * scale_;
 			double scrY = (factorY - dbY) * scale_;
-			result.x = (int) (scrX >= 0 ? scrX + 0.5 : scrX - 0.5);
-			result.y = (int) (scrY >= 0 ? scrY + 0.5 : scrY - 0.5);
+			result.x = (int) (scrX >= 0 ? scrX + 0.5 : scrX - 0.5) - tileX;
+			result.y = (int) (scrY >= 0 ? scrY + 0.5 : scrY - 0.5) - tileY;
 		}
 	}
 
@@ -757,8 +1097,8 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 	 * @param result the Point in which to store the database grid coordinates.
 	 */
     void screenToGrid(long scrX, long scrY, Point result) {
-        double dbX = scrX / scale_ + factorX;
-        double dbY = factorY - scrY / scale_;
+        double dbX = (scrX + tileX) / scale_ + factorX;
+        double dbY = factorY - (scrY + tileY) / scale_;
         result.x = (int)(dbX >= 0 ? dbX + 0.5 : dbX - 0.5);
         result.y = (int)(dbY >= 0 ? dbY + 0.5 : dbY - 0.5);
     }
@@ -773,10 +1113,6 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 	 * @param col the color to draw.
 	 */
 	private void drawTinyBox(long lX, long hX, long lY, long hY, int col, VectorCache.VectorCell greekedCell) {
-		if (lX < screenLX) lX = screenLX;
-		if (hX >= screenHX) hX = screenHX - 1;
-		if (lY < screenLY) lY = screenLY;
-		if (hY >= screenHY) hY = screenHY - 1;
 		if (useCellGreekingImages) {
 			if (greekedCell != null && greekedCell.getFadeColors() != null) {
 				int backgroundColor = PixelDrawing.gp.getColor(User.ColorPrefType.BACKGROUND).getRGB();
@@ -784,7 +1120,7 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 				int backgroundGreen = (backgroundColor >> 8) & 0xFF;
 				int backgroundBlue = backgroundColor & 0xFF;
 
-				// render the icon properly with scale
+				// render the icon properly with scale (the whole icon is scaled, then clipped to the screen)
 				int greekWid = greekedCell.getFadeImageWidth();
 				int greekHei = greekedCell.getFadeImageHeight();
 				long wid = hX - lX;
@@ -796,12 +1132,20 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 					float yEndPos = yPos + yInc;
 					int yS = (int) yPos;
 					int yE = (int) yEndPos;
+					if (lY + y < screenLY || lY + y >= screenHY) {
+						yPos = yEndPos;
+						continue;
+					}
 
 					float xPos = 0;
 					for (int x = 0; x < wid; x++) {
 						float xEndPos = xPos + xInc;
 						int xS = (int) xPos;
 						int xE = (int) xEndPos;
+						if (lX + x < screenLX || lX + x >= screenHX) {
+							xPos = xEndPos;
+							continue;
+						}
 
 						float r = 0, g = 0, b = 0;
 						float totalArea = 0;
@@ -852,6 +1196,10 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 		}
 
 		// no greeked image: just use the greeked color
+		if (lX < screenLX) lX = screenLX;
+		if (hX >= screenHX) hX = screenHX - 1;
+		if (lY < screenLY) lY = screenLY;
+		if (hY >= screenHY) hY = screenHY - 1;
 		for (int y = (int)lY; y <= hY; y++) {
 			for (int x = (int)lX; x <= hX; x++)
 				offscreen.drawPoint(x, y, null, col);
@@ -896,9 +1244,109 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 		return true;
 	}
 
+	/**
+	 * Method to draw a cell from its layer coverage.
+	 * The level of the pyramid with about one texel per pixel is used, so the cost depends only on the
+	 * size of the cell on the screen.  Each pixel blends the colors of the visible layers by their coverage.
+	 * @param lX the low X coordinate of the cell on the screen.
+	 * @param hX the high X coordinate of the cell on the screen.
+	 * @param lY the low Y coordinate of the cell on the screen.
+	 * @param hY the high Y coordinate of the cell on the screen.
+	 * @param density the layer coverage of the cell.
+	 * @param lv current layer visibility.
+	 */
+	private void drawDensity(long lX, long hX, long lY, long hY, DensityPyramid density, LayerVisibility lv) {
+		long wid = Math.max(hX - lX, 1);
+		long hei = Math.max(hY - lY, 1);
+		int level = density.getLevel(wid, hei);
+		int texWid = density.getWidth(level);
+		int texHei = density.getHeight(level);
+
+		// get the colors of the visible layers
+		Layer[] layers = density.getLayers();
+		int[] visible = new int[layers.length];
+		int[] reds = new int[layers.length], greens = new int[layers.length], blues = new int[layers.length];
+		int numVisible = 0;
+		for (int i = 0; i < layers.length; i++) {
+			if (!lv.isVisible(layers[i])) continue;
+			Color col = PixelDrawing.gp.getGraphics(layers[i]).getColor();
+			visible[numVisible] = i;
+			reds[numVisible] = col.getRed();
+			greens[numVisible] = col.getGreen();
+			blues[numVisible] = col.getBlue();
+			numVisible++;
+		}
+		if (numVisible == 0) return;
+		int backgroundColor = PixelDrawing.gp.getColor(User.ColorPrefType.BACKGROUND).getRGB();
+		int backgroundRed = (backgroundColor >> 16) & 0xFF;
+		int backgroundGreen = (backgroundColor >> 8) & 0xFF;
+		int backgroundBlue = backgroundColor & 0xFF;
+
+		// blend the layers in each pixel (texel row 0 is at the bottom of the cell)
+		int yLow = (int) Math.max(0, screenLY - lY), yHigh = (int) Math.min(hei, screenHY - lY);
+		int xLow = (int) Math.max(0, screenLX - lX), xHigh = (int) Math.min(wid, screenHX - lX);
+		for (int y = yLow; y < yHigh; y++) {
+			int texY = texHei - 1 - (int) (y * texHei / hei);
+			for (int x = xLow; x < xHigh; x++) {
+				int texX = (int) (x * texWid / wid);
+				int r = 0, g = 0, b = 0, total = 0;
+				for (int i = 0; i < numVisible; i++) {
+					int coverage = density.getCoverage(level, visible[i], texX, texY);
+					if (coverage == 0) continue;
+					r += reds[i] * coverage;
+					g += greens[i] * coverage;
+					b += blues[i] * coverage;
+					total += coverage;
+				}
+				if (total == 0) continue;
+				if (total < 255) {
+					r += backgroundRed * (255 - total);
+					g += backgroundGreen * (255 - total);
+					b += backgroundBlue * (255 - total);
+					total = 255;
+				}
+				offscreen.drawPoint((int) (lX + x), (int) (lY + y), null, ((r / total) << 16) | ((g / total) << 8) | (b / total));
+			}
+		}
+	}
+
+	/**
+	 * Method to get the layer coverage of a cached cell, building it (and those of its subcells) if necessary.
+	 * @param vc the cached cell.
+	 * @param cell the Cell being examined.
+	 * @param context the VarContext for this point in the hierarchy.
+	 * @return the DensityPyramid of the cell (null if a tile needs it but it was not prepared).
+	 */
+	private DensityPyramid makeDensity(VectorCache.VectorCell vc, Cell cell, VarContext context) throws AbortRenderingException {
+		DensityPyramid density = vc.getDensity();
+		if (density != null || tileWorker) return density;
+
+		List<VectorCache.VectorSubCell> subCells = new ArrayList<VectorCache.VectorSubCell>();
+		List<DensityPyramid> subDensities = new ArrayList<DensityPyramid>();
+		Iterator<VectorCache.VectorSubCell> sea;
+		if (vc.getSubCellTree() == null) sea = vc.getSubCells().iterator(); else
+			sea = new RTNode.Search<VectorCache.VectorSubCell>(vc.getSubCellTree());
+		for ( ; sea.hasNext(); )
+		{
+			VectorCache.VectorSubCell vsc = sea.next();
+			ImmutableNodeInst ini = vsc.getNode();
+			Orientation recurseTrans = vc.getOrientation().concatenate(ini.orient);
+			Cell subCell = VectorCache.getCellFromId(vsc.getCellId());
+			VarContext subContext = null;
+			if (context != null)
+				subContext = context.push(cell, ini);
+			VectorCache.VectorCell subVC = drawCell(subCell, recurseTrans, subContext, false);
+			subCells.add(vsc);
+			subDensities.add(makeDensity(subVC, subCell, subContext));
+		}
+		density = new DensityPyramid(vc, subCells, subDensities);
+		vc.setDensity(density);
+		return density;
+	}
+
 	private void makeGreekedImage(VectorCache.VectorCell subVC, LayerVisibility lv) throws AbortRenderingException {
 		if (subVC.isFadeImage()) return;
-		if (!useCellGreekingImages) return;
+		if (!useCellGreekingImages || tileWorker) return;
 
 		// determine size and scale of greeked cell image
 		Rectangle2D cellBounds = subVC.getCellDef().getBounds();
@@ -1108,6 +1556,11 @@ if (VectorCache.DEBUG) System.out.println("REDISPLAY TOOK " + TextUtils.formatDo
 		// caching the cell: check for abort and delay reporting
 		if (stopRendering)
 			throw new AbortRenderingException();
+		if (tileWorker)
+		{
+			// the cache was prepared before the tiles were started: it must not change now
+			return VectorCache.theCache.findVectorCell(cell.getId(), prevTrans);
+		}
 		if (!takingLongTime) {
 			if (timer.currentTimeLong() > 1000) {
 				System.out.print("Display caching, please wait...");
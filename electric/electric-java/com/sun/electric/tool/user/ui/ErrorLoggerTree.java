@@ -260,6 +260,11 @@ public class ErrorLoggerTree {
         {
             drcErrorLogger.clearAllLogs();
         }
+        else if (treeNode.getLogger().isDiskBacked() && !treeNode.getLogger().isPersistent())
+        {
+            // release the file of messages
+            treeNode.getLogger().dispose();
+        }
         if (node == networkTree) networkTree = null;
         if (node == drcTree) drcTree = null;
         if (node == currentLogger) currentLogger = null;
@@ -319,18 +324,19 @@ public class ErrorLoggerTree {
                 sortKeyMap.put(key, grpNode);
             }
         }
-        for (Iterator<ErrorLogger.MessageLog> it = logger.getLogs(); it.hasNext();) {
-            ErrorLogger.MessageLog el = it.next();
+        int numLogs = logger.getNumLogs();
+        for (int i = 0; i < numLogs; i++) {
             // by default, groupNode is entire loggerNode
             // but, groupNode could be sub-node:
             DefaultMutableTreeNode groupNode = loggerNode;
             if (logger.getSortKeyToGroupNames() != null)
             {
-                groupNode = sortKeyMap.get(new Integer(el.getSortKey()));
+                groupNode = sortKeyMap.get(new Integer(logger.getLogSortKey(i)));
                 if (groupNode == null) // not found, put in loggerNode
                    groupNode = loggerNode;
             }
-            DefaultMutableTreeNode node = new DefaultMutableTreeNode(el);
+            // messages of a disk-backed logger are read when they are shown
+            DefaultMutableTreeNode node = logger.isDiskBacked() ? new PagedLogNode(logger, i) : new DefaultMutableTreeNode(logger.getLog(i));
             groupNode.add(node);
         }
         int newChildCount = loggerNode.getChildCount();
@@ -420,6 +426,24 @@ public class ErrorLoggerTree {
         public boolean isLeaf() { return false; }
     }
 
+    /**
+     * Tree node of a message of a disk-backed logger.
+     * The message is read from the logger each time it is needed.
+     */
+    private static class PagedLogNode extends DefaultMutableTreeNode {
+        private final ErrorLogger logger;
+        private final int logIndex;
+
+        PagedLogNode(ErrorLogger logger, int logIndex) {
+            this.logger = logger;
+            this.logIndex = logIndex;
+        }
+
+        public Object getUserObject() { return logger.getLog(logIndex); }
+
+        public String toString() { return getUserObject().toString(); }
+    }
+
     public static class ErrorLoggerGroupNode
     {
     	private String name;
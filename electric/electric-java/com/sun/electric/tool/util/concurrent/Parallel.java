@@ -74,6 +74,25 @@ public class Parallel {
 		return pReduceJob.getResult();
 	}
 
+	/**
+	 * Parallel reduce in the given thread pool, e.g. the pool shared by all
+	 * tools which is returned by ThreadPoolSharedForkJoin.getInstance().
+	 * 
+	 * @param range
+	 *            1- or 2-dimensional
+	 * @param task
+	 *            body of reduce loop
+	 * @param pool
+	 *            thread pool which executes the tasks
+	 * @return aggregated result
+	 */
+	public static <T, K extends BlockedRange<K>> T Reduce(K range, PReduceTask<T, K> task, IThreadPool pool) {
+		PReduceJob<T, K> pReduceJob = new PReduceJob<T, K>(range, task, pool);
+		pReduceJob.execute();
+
+		return pReduceJob.getResult();
+	}
+
 	/**
 	 * Parallel while loop: iterates while elements in the data structure
 	 * 
@@ -89,4 +108,19 @@ public class Parallel {
 		pWhileJob.execute();
 	}
 
+	/**
+	 * Parallel while loop in the given thread pool
+	 * 
+	 * @param data
+	 *            data structure for work
+	 * @param task
+	 *            while loop body
+	 * @param pool
+	 *            thread pool which executes the tasks
+	 */
+	public static <T> void While(IStructure<T> data, PWhileTask<T> task, IThreadPool pool) {
+		PJob pWhileJob = new PWhileJob<T>(data, task, pool);
+		pWhileJob.execute();
+	}
+
 }
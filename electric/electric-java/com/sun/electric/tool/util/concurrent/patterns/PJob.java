@@ -80,8 +80,19 @@ public class PJob {
 	 * Wait for the job while not finishing.
 	 */
 	public void join() {
-		while (!barrier.isTerminated())
-			;
+		if (pool != null) {
+			pool.join(this);
+		} else {
+			while (!barrier.isTerminated())
+				;
+		}
+	}
+
+	/**
+	 * @return true if all tasks added to this job are finished
+	 */
+	public boolean isFinished() {
+		return barrier.isTerminated();
 	}
 
 	/**
@@ -21,8 +21,7 @@
  */
 package com.sun.electric.tool.util.concurrent.patterns;
 
-import java.util.concurrent.atomic.AtomicReference;
-
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.IThreadPool;
 import com.sun.electric.tool.util.concurrent.utils.BlockedRange;
 
 /**
@@ -33,14 +32,19 @@ import com.sun.electric.tool.util.concurrent.utils.BlockedRange;
  */
 public class PReduceJob<T, K extends BlockedRange<K>> extends PForJob<K> {
 
-	// TODO use concurrent data structure
-	private AtomicReference<PReduceTask<T, K>> mainTask = new AtomicReference<PReduceTask<T, K>>(null);
+	// no initializer: PForJob's constructor already starts the tasks, which may
+	// finish before the fields of this class would be initialized
+	private PReduceTask<T, K> mainTask;
 	private T result;
 
 	public PReduceJob(K range, PReduceTask<T, K> task) {
 		super(range, task);
 	}
 
+	public PReduceJob(K range, PReduceTask<T, K> task, IThreadPool pool) {
+		super(range, task, pool);
+	}
+
 	/**
 	 * get the aggregated result
 	 * 
@@ -73,8 +77,11 @@ public class PReduceJob<T, K extends BlockedRange<K>> extends PForJob<K> {
 
 			PReduceJob<T, K> rjob = (PReduceJob<T, K>) job;
 
-			rjob.mainTask.compareAndSet(null, this);
-			rjob.result = rjob.mainTask.get().reduce(this);
+			synchronized (rjob) {
+				if (rjob.mainTask == null)
+					rjob.mainTask = this;
+				rjob.result = rjob.mainTask.reduce(this);
+			}
 
 			super.after();
 		}
@@ -22,6 +22,7 @@
 package com.sun.electric.tool.util.concurrent.patterns;
 
 import com.sun.electric.tool.util.concurrent.datastructures.IStructure;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.IThreadPool;
 
 /**
  * 
@@ -41,6 +42,12 @@ public class PWhileJob<T> extends PJob {
 		this.task = task;
 	}
 
+	public PWhileJob(IStructure<T> items, PWhileTask<T> task, IThreadPool pool) {
+		super(pool);
+		this.items = items;
+		this.task = task;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -21,6 +21,7 @@
  */
 package com.sun.electric.tool.util.concurrent.runtime.taskParallel;
 
+import com.sun.electric.tool.util.concurrent.patterns.PJob;
 import com.sun.electric.tool.util.concurrent.patterns.PTask;
 
 public abstract class IThreadPool {
@@ -79,7 +80,18 @@ public abstract class IThreadPool {
      * @return the current thread pool size (#threads)
      */
     public abstract int getPoolSize();
-    
-    
+
+    /**
+     * wait until all tasks of a job are finished. Pools whose workers may
+     * themselves wait for a job (nested parallelism) should override this and
+     * execute pending tasks instead of spinning.
+     * 
+     * @param job
+     */
+    public void join(PJob job) {
+        while (!job.isFinished())
+            ;
+    }
+
 
 }
@@ -21,21 +21,28 @@
  */
 package com.sun.electric.tool.util.concurrent.runtime.taskParallel;
 
+import com.sun.electric.tool.util.concurrent.patterns.PJob;
 import com.sun.electric.tool.util.concurrent.patterns.PTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 
+/**
+ * Thread pool which executes the tasks of parallel jobs in a ForkJoinPool.
+ * Tasks added by a worker of the pool are forked to the worker's own deque,
+ * and a worker which waits for a job executes pending tasks meanwhile, so
+ * parallel jobs may be nested.
+ */
 public class ThreadPoolJdkForkJoin extends IThreadPool {
 
-    private ForkJoinPool pool;
+    protected ForkJoinPool pool;
     private int threads;
 
-    private ThreadPoolJdkForkJoin() {
+    protected ThreadPoolJdkForkJoin() {
         this(Runtime.getRuntime().availableProcessors());
     }
 
-    private ThreadPoolJdkForkJoin(int threads) {
+    protected ThreadPoolJdkForkJoin(int threads) {
         this.threads = threads;
     }
 
@@ -87,14 +94,16 @@ public class ThreadPoolJdkForkJoin extends IThreadPool {
 
     @Override
     public void add(PTask item) {
-//        System.out.println("- ForkJoin - ");
-        pool.execute(new PTaskWrapper(item));
+        add(item, PJob.SERIAL);
     }
 
     @Override
     public void add(PTask item, int threadId) {
-//        System.out.println("- ForkJoin - ");
-        pool.execute(new PTaskWrapper(item));
+        PTaskWrapper task = new PTaskWrapper(item);
+        if (ForkJoinTask.getPool() == pool)
+            task.fork();
+        else
+            pool.execute(task);
     }
 
     @Override
@@ -102,7 +111,21 @@ public class ThreadPoolJdkForkJoin extends IThreadPool {
         return pool.getParallelism();
     }
 
-    private class PTaskWrapper extends ForkJoinTask<String> {
+    /**
+     * Method to wait until all tasks of a job are finished.
+     * A worker of this pool executes other pending tasks while it waits.
+     * @param job the job to wait for.
+     */
+    @Override
+    public void join(PJob job) {
+        boolean worker = ForkJoinTask.getPool() == pool;
+        while (!job.isFinished()) {
+            if (!worker || !PTaskWrapper.helpOne())
+                Thread.yield();
+        }
+    }
+
+    protected static class PTaskWrapper extends ForkJoinTask<String> {
 
         private PTask task;
 
@@ -119,6 +142,18 @@ public class ThreadPoolJdkForkJoin extends IThreadPool {
             return true;
         }
 
+        /**
+         * Method to execute one pending task of the pool of the current worker thread.
+         * @return false if there were no pending tasks.
+         */
+        static boolean helpOne() {
+            ForkJoinTask<?> task = pollTask();
+            if (task == null)
+                return false;
+            task.quietlyInvoke();
+            return true;
+        }
+
         @Override
         public String getRawResult() {
             // TODO Auto-generated method stub
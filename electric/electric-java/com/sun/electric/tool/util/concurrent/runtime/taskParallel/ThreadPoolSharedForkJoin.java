@@ -0,0 +1,118 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ThreadPoolSharedForkJoin.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.util.concurrent.runtime.taskParallel;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ForkJoin thread pool which is shared by all tools.
+ * Unlike ThreadPool it has no owner: it is created on first use, any number of
+ * parallel jobs may run in it concurrently, and shutdown() and join() do nothing.
+ * Its workers are daemon threads which terminate when they are idle.
+ */
+public class ThreadPoolSharedForkJoin extends ThreadPoolJdkForkJoin {
+
+    private static ThreadPoolSharedForkJoin instance;
+    private final ExecutorService executorService = new SharedExecutorService();
+
+    private ThreadPoolSharedForkJoin(int threads) {
+        super(threads);
+        super.start();
+    }
+
+    /**
+     * Method to return the shared pool.
+     * Its parallelism is IThreadPool.NUM_THREADS when that was set before
+     * the first call, and the number of available processors otherwise.
+     * @return the shared pool.
+     */
+    public static synchronized ThreadPoolSharedForkJoin getInstance() {
+        if (instance == null) {
+            int threads = NUM_THREADS != null ? NUM_THREADS.intValue() : Runtime.getRuntime().availableProcessors();
+            instance = new ThreadPoolSharedForkJoin(Math.max(threads, 1));
+        }
+        return instance;
+    }
+
+    /**
+     * Method to return the shared pool as an ExecutorService, for tools which
+     * run Callables in it. The number of tasks that a tool submits decides how
+     * its work is split; how many of them run at once is the parallelism of the pool.
+     * Shutting the ExecutorService down does nothing, since other tools may still use it.
+     * @return an ExecutorService which runs its tasks in the shared pool.
+     */
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public void join() {
+    }
+
+    /**
+     * ExecutorService which runs its tasks in the shared pool and cannot be shut down.
+     * Its futures, unlike those of the ForkJoinPool, can be interrupted while they are waited for.
+     */
+    private class SharedExecutorService extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            pool.execute(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+}
@@ -21,7 +21,6 @@
  */
 package com.sun.electric.util.acl2;
 
-import java.util.Map;
 
 /**
  * ACL2 complex-rational number.
@@ -48,14 +47,7 @@ class ACL2Complex extends ACL2Object
 
     static ACL2Complex intern(Complex v, HonsManager hm)
     {
-        Map<Complex, ACL2Complex> allNormed = hm.complexes;
-        ACL2Complex result = allNormed.get(v);
-        if (result == null)
-        {
-            result = new ACL2Complex(hm, v);
-            allNormed.put(v, result);
-        }
-        return result;
+        return hm.complexes.intern(v, k -> new ACL2Complex(hm, k));
     }
 
     @Override
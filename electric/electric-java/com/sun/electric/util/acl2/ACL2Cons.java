@@ -21,8 +21,6 @@
  */
 package com.sun.electric.util.acl2;
 
-import java.util.Map;
-
 /**
  * Non-leaf node of ACL2 object.
  * Often a ACL2 object are used to represent a list.
@@ -64,15 +62,7 @@ class ACL2Cons extends ACL2Object
 
         car = car.honsOwner == hm ? car : car.internImpl(hm);
         cdr = cdr.honsOwner == hm ? cdr : cdr.internImpl(hm);
-        Key key = new Key(car, cdr);
-        Map<Key, ACL2Cons> allNormed = hm.conses;
-        ACL2Cons result = allNormed.get(key);
-        if (result == null)
-        {
-            result = new ACL2Cons(hm, car, cdr);
-            allNormed.put(key, result);
-        }
-        return result;
+        return hm.conses.intern(new Key(car, cdr), k -> new ACL2Cons(hm, k.car, k.cdr));
     }
 
     @Override
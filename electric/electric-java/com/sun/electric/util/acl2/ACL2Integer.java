@@ -22,7 +22,6 @@
 package com.sun.electric.util.acl2;
 
 import java.math.BigInteger;
-import java.util.Map;
 
 /**
  * ACL2 integer number.
@@ -45,14 +44,7 @@ class ACL2Integer extends ACL2Object
 
     static ACL2Integer intern(BigInteger v, HonsManager hm)
     {
-        Map<BigInteger, ACL2Integer> allNormed = hm.integers;
-        ACL2Integer result = allNormed.get(v);
-        if (result == null)
-        {
-            result = new ACL2Integer(hm, v);
-            allNormed.put(v, result);
-        }
-        return result;
+        return hm.integers.intern(v, k -> new ACL2Integer(hm, k));
     }
 
     @Override
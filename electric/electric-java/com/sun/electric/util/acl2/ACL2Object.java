@@ -22,6 +22,7 @@
 package com.sun.electric.util.acl2;
 
 import java.math.BigInteger;
+import java.util.concurrent.Callable;
 
 /**
  * ACL2 Object is a binary tree.
@@ -325,4 +326,17 @@ public abstract class ACL2Object
     {
         HonsManager.close();
     }
+
+    /**
+     * Wrap a task so that it hons ACL2 objects in the HonsManager of this thread
+     * when it is called by another thread.
+     *
+     * @param <V> type of result
+     * @param task the task
+     * @return the wrapped task
+     */
+    public static <V> Callable<V> withHonsManager(Callable<V> task)
+    {
+        return HonsManager.withCurrent(task);
+    }
 }
@@ -21,7 +21,6 @@
  */
 package com.sun.electric.util.acl2;
 
-import java.util.Map;
 
 /**
  * ACL2 rational number.
@@ -48,14 +47,7 @@ class ACL2Rational extends ACL2Object
 
     static ACL2Rational intern(Rational v, HonsManager hm)
     {
-        Map<Rational, ACL2Rational> allNormed = hm.rationals;
-        ACL2Rational result = allNormed.get(v);
-        if (result == null)
-        {
-            result = new ACL2Rational(hm, v);
-            allNormed.put(v, result);
-        }
-        return result;
+        return hm.rationals.intern(v, k -> new ACL2Rational(hm, k));
     }
 
     @Override
@@ -21,15 +21,23 @@
  */
 package com.sun.electric.util.acl2;
 
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
+
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Reader of ACL2 serialized format.
@@ -53,8 +61,11 @@ public class ACL2Reader
     private static final int MAGIC_V2 = 0xAC120BC8;
     static final int MAGIC_V3 = 0xAC120BC9;
 
+    /** smallest number of objects to norm by several threads */
+    private static final int MIN_PARALLEL = 4096;
+
     private final int magic;
-    private final List<ACL2Object> allObjs = new ArrayList<>();
+    private final ACL2Object[] allObjs;
 
     private static void check(boolean p)
     {
@@ -102,23 +113,42 @@ public class ACL2Reader
     }
 
     public ACL2Reader(File f) throws IOException
+    {
+        this(f, 1);
+    }
+
+    /**
+     * Read a serialized file.
+     * The file is read sequentially, and then atoms and conses are normed
+     * in the current HonsManager by several threads.
+     * Conses are built level by level, so that both sons of a cons are built before it.
+     *
+     * @param f serialized file
+     * @param numThreads number of threads to norm objects
+     * @throws IOException
+     */
+    public ACL2Reader(File f, int numThreads) throws IOException
     {
         HonsManager hm = HonsManager.current.get();
-        try (DataInputStream in = new DataInputStream(new FileInputStream(f)))
+        // objects which are known after reading, or keys of atoms to norm
+        List<Object> atoms = new ArrayList<>();
+        int[] cars;
+        int[] cdrs;
+        int len;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f))))
         {
             magic = in.readInt();
             check(magic >= MAGIC_V1 && magic <= MAGIC_V3);
             if (magic >= MAGIC_V2)
             {
-                allObjs.add(ACL2Symbol.NIL);
-                allObjs.add(ACL2Symbol.T);
+                atoms.add(ACL2Symbol.NIL);
+                atoms.add(ACL2Symbol.T);
             }
-            int len = readInt(in).intValueExact();
+            len = readInt(in).intValueExact();
             nNat = readInt(in).intValueExact();
             for (int i = 0; i < nNat; i++)
             {
-                BigInteger n = readInt(in);
-                allObjs.add(ACL2Integer.intern(n, hm));
+                atoms.add(readInt(in));
             }
             int ratsLen = readInt(in).intValueExact();
             int nNegInt = 0;
@@ -134,11 +164,11 @@ public class ACL2Reader
                 }
                 if (denom.equals(BigInteger.ONE))
                 {
-                    allObjs.add(ACL2Integer.intern(num, hm));
+                    atoms.add(num);
                     nNegInt++;
                 } else
                 {
-                    allObjs.add(ACL2Rational.intern(Rational.valueOf(num, denom), hm));
+                    atoms.add(Rational.valueOf(num, denom));
                 }
             }
             nInt = nNat + nNegInt;
@@ -164,13 +194,13 @@ public class ACL2Reader
                     numI = numI.negate();
                 }
                 Rational im = Rational.valueOf(numI, denomI);
-                allObjs.add(ACL2Complex.intern(new Complex(re, im), hm));
+                atoms.add(new Complex(re, im));
             }
             nChar = readInt(in).intValueExact();
             for (int i = 0; i < nChar; i++)
             {
                 char c = (char)(in.readByte() & 0xFF);
-                allObjs.add(ACL2Character.intern(c));
+                atoms.add(ACL2Character.intern(c));
             }
             nStr = readInt(in).intValueExact();
             int nNormStrings = 0;
@@ -191,7 +221,7 @@ public class ACL2Reader
                 {
 //                    System.out.println("String " + s + " is not normed");
                 }
-                allObjs.add(normed ? ACL2String.intern(s, hm) : new ACL2String(s));
+                atoms.add(normed ? s : new ACL2String(s));
             }
             nNormStr = nNormStrings;
             nPkg = readInt(in).intValueExact();
@@ -203,12 +233,14 @@ public class ACL2Reader
                 for (int j = 0; j < numSyms; j++)
                 {
                     String name = readStr(in);
-                    allObjs.add(ACL2Object.valueOf(pkgName, name));
+                    atoms.add(ACL2Object.valueOf(pkgName, name));
                 }
                 numSymsTotal += numSyms;
             }
             nSym = numSymsTotal;
             nCons = readInt(in).intValueExact();
+            cars = new int[nCons];
+            cdrs = new int[nCons];
             int nNormConses = 0;
             for (int i = 0; i < nCons; i++)
             {
@@ -220,13 +252,14 @@ public class ACL2Reader
                     normed = (car & 1) != 0;
                     car >>>= 1;
                 }
-                ACL2Object carObj = allObjs.get(car);
-                ACL2Object cdrObj = allObjs.get(cdr);
+                check(car < atoms.size() + i && cdr < atoms.size() + i);
                 if (normed)
                 {
                     nNormConses++;
                 }
-                allObjs.add(normed ? ACL2Cons.intern(carObj, cdrObj, hm) : new ACL2Cons(carObj, cdrObj));
+                // the sign bit marks normed conses
+                cars[i] = normed ? ~car : car;
+                cdrs[i] = cdr;
             }
             nNormCons = nNormConses;
             if (magic >= MAGIC_V3)
@@ -245,34 +278,187 @@ public class ACL2Reader
             }
             int magicEnd = in.readInt();
             check(magicEnd == magic);
-            root = allObjs.get(magic >= MAGIC_V2 ? len : len - 1);
+        }
+
+        int nAtoms = atoms.size();
+        allObjs = new ACL2Object[nAtoms + nCons];
+        // norm atoms
+        runChunks(nAtoms, numThreads, (from, to) ->
+        {
+            for (int i = from; i < to; i++)
+            {
+                allObjs[i] = makeAtom(atoms.get(i), hm);
+            }
+        });
+
+        // group conses by level, where the level of a cons is one more than the levels of its sons
+        int[] levels = new int[nCons];
+        int maxLevel = 0;
+        for (int i = 0; i < nCons; i++)
+        {
+            int car = cars[i] >= 0 ? cars[i] : ~cars[i];
+            int cdr = cdrs[i];
+            int level = 1 + Math.max(car >= nAtoms ? levels[car - nAtoms] : 0, cdr >= nAtoms ? levels[cdr - nAtoms] : 0);
+            levels[i] = level;
+            maxLevel = Math.max(maxLevel, level);
+        }
+        int[] levelStart = new int[maxLevel + 2];
+        for (int level : levels)
+        {
+            levelStart[level + 1]++;
+        }
+        for (int level = 1; level <= maxLevel; level++)
+        {
+            levelStart[level + 1] += levelStart[level];
+        }
+        int[] byLevel = new int[nCons];
+        int[] fill = levelStart.clone();
+        for (int i = 0; i < nCons; i++)
+        {
+            byLevel[fill[levels[i]]++] = i;
+        }
+
+        // build conses of each level
+        for (int level = 1; level <= maxLevel; level++)
+        {
+            int base = levelStart[level];
+            runChunks(levelStart[level + 1] - base, numThreads, (from, to) ->
+            {
+                for (int k = base + from; k < base + to; k++)
+                {
+                    int i = byLevel[k];
+                    boolean normed = cars[i] < 0;
+                    ACL2Object carObj = allObjs[normed ? ~cars[i] : cars[i]];
+                    ACL2Object cdrObj = allObjs[cdrs[i]];
+                    allObjs[nAtoms + i] = normed ? ACL2Cons.intern(carObj, cdrObj, hm) : new ACL2Cons(carObj, cdrObj);
+                }
+            });
+        }
+        root = allObjs[magic >= MAGIC_V2 ? len : len - 1];
+    }
+
+    private static ACL2Object makeAtom(Object o, HonsManager hm)
+    {
+        if (o instanceof ACL2Object)
+        {
+            return (ACL2Object)o;
+        } else if (o instanceof BigInteger)
+        {
+            return ACL2Integer.intern((BigInteger)o, hm);
+        } else if (o instanceof Rational)
+        {
+            return ACL2Rational.intern((Rational)o, hm);
+        } else if (o instanceof Complex)
+        {
+            return ACL2Complex.intern((Complex)o, hm);
+        } else
+        {
+            return ACL2String.intern((String)o, hm);
+        }
+    }
+
+    private interface Chunk
+    {
+        void run(int from, int to);
+    }
+
+    /**
+     * Split a range of indices into chunks and run them by several threads.
+     * Small ranges are run by this thread.
+     */
+    private static void runChunks(int n, int numThreads, Chunk chunk)
+    {
+        if (numThreads <= 1 || n < MIN_PARALLEL)
+        {
+            chunk.run(0, n);
+            return;
+        }
+        int numChunks = Math.min(numThreads * 4, n / (MIN_PARALLEL / 4));
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int c = 0; c < numChunks; c++)
+        {
+            int from = (int)((long)n * c / numChunks);
+            int to = (int)((long)n * (c + 1) / numChunks);
+            tasks.add(HonsManager.withCurrent(() ->
+            {
+                chunk.run(from, to);
+                return null;
+            }));
+        }
+        try
+        {
+            for (Future<Void> future : ThreadPoolSharedForkJoin.getInstance().getExecutorService().invokeAll(tasks))
+            {
+                future.get();
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
         }
     }
 
     public String getStats()
     {
+        HonsManager hm = HonsManager.current.get();
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
         return ((nInt + nRat + nComplex + nChar + nStr + nSym) + " atoms and "
-            + nCons + " conses. TreeCount=" + treeCount(root, new HashMap<>()));
+            + nCons + " conses. TreeCount=" + treeCount(root)
+            + (hm != null ? ". Honsed " + hm.getStats() : "")
+            + ". Used memory " + (usedMemory >> 20) + " MB");
     }
 
-    private static BigInteger treeCount(ACL2Object top, Map<ACL2Cons, BigInteger> memoize)
+    /**
+     * Count nodes of a tree without recursion, because lists may be very long.
+     */
+    private static BigInteger treeCount(ACL2Object top)
     {
+        Map<ACL2Cons, BigInteger> memoize = new IdentityHashMap<>();
+        Deque<ACL2Cons> stack = new ArrayDeque<>();
         if (top instanceof ACL2Cons)
         {
-            ACL2Cons cons = (ACL2Cons)top;
-            BigInteger count = memoize.get(cons);
-            if (count == null)
+            stack.push((ACL2Cons)top);
+        }
+        while (!stack.isEmpty())
+        {
+            ACL2Cons cons = stack.peek();
+            BigInteger carCount = knownTreeCount(cons.car, memoize);
+            BigInteger cdrCount = knownTreeCount(cons.cdr, memoize);
+            if (carCount != null && cdrCount != null)
             {
-                count = BigInteger.ONE
-                    .add(treeCount(cons.car, memoize))
-                    .add(treeCount(cons.cdr, memoize));
-                memoize.put(cons, count);
+                memoize.put(cons, BigInteger.ONE.add(carCount).add(cdrCount));
+                stack.pop();
+            } else
+            {
+                if (carCount == null)
+                {
+                    stack.push((ACL2Cons)cons.car);
+                }
+                if (cdrCount == null)
+                {
+                    stack.push((ACL2Cons)cons.cdr);
+                }
             }
-            return count;
-        } else
-        {
-            return BigInteger.ONE;
         }
+        return knownTreeCount(top, memoize);
+    }
+
+    private static BigInteger knownTreeCount(ACL2Object x, Map<ACL2Cons, BigInteger> memoize)
+    {
+        return x instanceof ACL2Cons ? memoize.get((ACL2Cons)x) : BigInteger.ONE;
     }
 
 }
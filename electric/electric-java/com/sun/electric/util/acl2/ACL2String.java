@@ -21,7 +21,6 @@
  */
 package com.sun.electric.util.acl2;
 
-import java.util.Map;
 
 /**
  * ACL2 string.
@@ -52,14 +51,7 @@ class ACL2String extends ACL2Object
 
     static ACL2String intern(String s, HonsManager hm)
     {
-        Map<String, ACL2String> allNormed = hm.strings;
-        ACL2String result = allNormed.get(s);
-        if (result == null)
-        {
-            result = new ACL2String(hm, s);
-            allNormed.put(s, result);
-        }
-        return result;
+        return hm.strings.intern(s, k -> new ACL2String(hm, k));
     }
 
     @Override
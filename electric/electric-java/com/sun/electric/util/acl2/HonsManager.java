@@ -21,21 +21,23 @@
  */
 package com.sun.electric.util.acl2;
 
+import com.sun.electric.util.collections.WeakInternTable;
 import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
- *
+ * Tables of normed objects.
+ * Tables are thread-safe and don't keep normed objects which are not referenced elsewhere,
+ * so several threads may hons objects in the same manager.
  */
 class HonsManager
 {
     private final String name;
-    Map<BigInteger, ACL2Integer> integers = new HashMap<>();
-    Map<Rational, ACL2Rational> rationals = new HashMap<>();
-    Map<Complex, ACL2Complex> complexes = new HashMap<>();
-    Map<String, ACL2String> strings = new HashMap<>();
-    Map<ACL2Cons.Key, ACL2Cons> conses = new HashMap<>();
+    WeakInternTable<BigInteger, ACL2Integer> integers = new WeakInternTable<>((k, v) -> v.v.equals(k));
+    WeakInternTable<Rational, ACL2Rational> rationals = new WeakInternTable<>((k, v) -> v.v.equals(k));
+    WeakInternTable<Complex, ACL2Complex> complexes = new WeakInternTable<>((k, v) -> v.v.equals(k));
+    WeakInternTable<String, ACL2String> strings = new WeakInternTable<>((k, v) -> v.s.equals(k));
+    WeakInternTable<ACL2Cons.Key, ACL2Cons> conses = new WeakInternTable<>((k, v) -> v.car == k.car && v.cdr == k.cdr);
 
     final ACL2Integer ZERO = ACL2Integer.intern(BigInteger.ZERO, this);
     final ACL2String EMPTY_STR = ACL2String.intern("", this);
@@ -59,15 +61,40 @@ class HonsManager
         current.set(new HonsManager(name));
     }
 
+    /**
+     * Wrap a task so that it hons objects in the current manager of this thread
+     * when it is called by another thread.
+     */
+    static <V> Callable<V> withCurrent(Callable<V> task)
+    {
+        HonsManager hm = current.get();
+        return () ->
+        {
+            HonsManager saved = current.get();
+            current.set(hm);
+            try
+            {
+                return task.call();
+            } finally
+            {
+                current.set(saved);
+            }
+        };
+    }
+
+    String getStats()
+    {
+        return integers.size() + " ints "
+            + rationals.size() + " rats "
+            + complexes.size() + " compls "
+            + strings.size() + " strings "
+            + conses.size() + " conses";
+    }
+
     static void close()
     {
         HonsManager hm = current.get();
-        System.out.println("Close " + hm.name + " with "
-            + hm.integers.size() + " ints "
-            + hm.rationals.size() + " rats "
-            + hm.complexes.size() + " compls "
-            + hm.strings.size() + " strings "
-            + hm.conses.size() + " conses");
+        System.out.println("Close " + hm.name + " with " + hm.getStats());
         hm.conses.clear();
         hm.conses = null;
         hm.integers.clear();
@@ -0,0 +1,238 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: WeakInternTable.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.util.collections;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * A thread-safe table of canonical objects, which do not prevent their
+ * canonical objects from being reclaimed.
+ * An object is looked up by a key. The key must have the same hash code
+ * for all canonical objects that it matches, and the matcher decides
+ * whether an existing object is the canonical object of the key.
+ * The key is not retained by the table, so it may be a temporary object.
+ * The table is split into stripes with their own locks, so threads
+ * interning objects with different hash codes seldom contend.
+ * Entries of reclaimed objects are purged during later updates.
+ */
+public class WeakInternTable<K, V> {
+
+    private static final int DEFAULT_STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final BiPredicate<? super K, ? super V> matcher;
+    private final Stripe<V>[] stripes;
+    private final int stripeShift;
+
+    /**
+     * Constructs an empty table with default number of stripes.
+     * @param matcher tests whether an object is the canonical object of a key
+     */
+    public WeakInternTable(BiPredicate<? super K, ? super V> matcher) {
+        this(matcher, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs an empty table.
+     * @param matcher tests whether an object is the canonical object of a key
+     * @param numStripes number of independently locked stripes, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public WeakInternTable(BiPredicate<? super K, ? super V> matcher, int numStripes) {
+        this.matcher = matcher;
+        int n = 1;
+        int shift = 32;
+        while (n < numStripes) {
+            n <<= 1;
+            shift--;
+        }
+        stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe<V>();
+        }
+        stripeShift = shift;
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Stripe<V> stripeOf(int hash) {
+        // high bits select the stripe, low bits select the bucket in the stripe
+        return stripes.length == 1 ? stripes[0] : stripes[hash >>> stripeShift];
+    }
+
+    /**
+     * Returns the canonical object of a key or null if there is none.
+     * @param key the key
+     * @return the canonical object or null
+     */
+    public V get(K key) {
+        int hash = spread(key.hashCode());
+        Stripe<V> stripe = stripeOf(hash);
+        synchronized (stripe) {
+            return stripe.find(key, hash, matcher);
+        }
+    }
+
+    /**
+     * Returns the canonical object of a key.
+     * If there is none, the factory makes it from the key and the table remembers it.
+     * The factory is called under the lock of a stripe, so it must not use this table.
+     * @param key the key
+     * @param factory makes a new canonical object from a key
+     * @return the canonical object
+     */
+    public V intern(K key, Function<? super K, ? extends V> factory) {
+        int hash = spread(key.hashCode());
+        Stripe<V> stripe = stripeOf(hash);
+        synchronized (stripe) {
+            V result = stripe.find(key, hash, matcher);
+            if (result == null) {
+                result = factory.apply(key);
+                stripe.add(result, hash);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the number of entries in the table.
+     * Entries of reclaimed objects which are not purged yet are counted too.
+     * @return number of entries
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.expunge();
+                size += stripe.count;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    public void clear() {
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    private static class Ref<V> extends WeakReference<V> {
+
+        private final int hash;
+        private Ref<V> next;
+
+        private Ref(V referent, int hash, Ref<V> next, ReferenceQueue<V> queue) {
+            super(referent, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Hash table with chained buckets of weak references.
+     */
+    private static class Stripe<V> {
+
+        private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+        private Ref<V>[] buckets = newBuckets(INITIAL_CAPACITY);
+        private int count;
+
+        @SuppressWarnings("unchecked")
+        private static <V> Ref<V>[] newBuckets(int capacity) {
+            return new Ref[capacity];
+        }
+
+        private <K> V find(K key, int hash, BiPredicate<? super K, ? super V> matcher) {
+            for (Ref<V> ref = buckets[hash & (buckets.length - 1)]; ref != null; ref = ref.next) {
+                if (ref.hash == hash) {
+                    V v = ref.get();
+                    if (v != null && matcher.test(key, v)) {
+                        return v;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void add(V v, int hash) {
+            expunge();
+            if (count >= buckets.length - (buckets.length >>> 2)) {
+                resize();
+            }
+            int i = hash & (buckets.length - 1);
+            buckets[i] = new Ref<V>(v, hash, buckets[i], queue);
+            count++;
+        }
+
+        private void resize() {
+            Ref<V>[] newBuckets = newBuckets(buckets.length * 2);
+            for (Ref<V> head : buckets) {
+                for (Ref<V> ref = head; ref != null;) {
+                    Ref<V> next = ref.next;
+                    int i = ref.hash & (newBuckets.length - 1);
+                    ref.next = newBuckets[i];
+                    newBuckets[i] = ref;
+                    ref = next;
+                }
+            }
+            buckets = newBuckets;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void expunge() {
+            for (Object o; (o = queue.poll()) != null;) {
+                Ref<V> dead = (Ref<V>) o;
+                int i = dead.hash & (buckets.length - 1);
+                Ref<V> prev = null;
+                for (Ref<V> ref = buckets[i]; ref != null; prev = ref, ref = ref.next) {
+                    if (ref == dead) {
+                        if (prev == null) {
+                            buckets[i] = ref.next;
+                        } else {
+                            prev.next = ref.next;
+                        }
+                        count--;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void clear() {
+            while (queue.poll() != null) {
+            }
+            buckets = newBuckets(INITIAL_CAPACITY);
+            count = 0;
+        }
+    }
+}
@@ -238,6 +238,54 @@ public class CodeExpressionTest {
         assertEquals(expected, ce.getSpiceText(UNITS_PRECISION));
     }
 
+    @Test
+    public void testCompiledJava() {
+        System.out.println("compiledJava");
+        compiledJava("(@layer<4?0.04:0.056) * @L * 1e-15", 0.056 * 2.5 * 1e-15, "layer", 5.0, "L", 2.5);
+        compiledJava("@SN==0?0:@SN<1.0?(1.0*(2-0.4)/@SN + 0.4):2", 1.0 * (2 - 0.4) / 0.5 + 0.4, "SN", 0.5);
+        compiledJava("@SN==0?0:@SN<1.0?(1.0*(2-0.4)/@SN + 0.4):2", 0, "SN", 0.0);
+        compiledJava("2*P(\"S\")", 7, "S", 3.5);
+        compiledJava("-@a/3 + Math.max(@b, 2)", -1.0 / 3 + 2, "a", 1.0, "b", -4.0);
+        compiledJava("Math.sqrt(@a) * 1.5e3", Math.sqrt(2) * 1.5e3, "a", 2.0);
+
+        // integer arithmetic, booleans and bean shell variables are left to the bean shell
+        notCompiled("10/3", true);
+        notCompiled("@a > 1", true);
+        notCompiled("sin(@a)", true);
+        notCompiled("2k * @a", true);
+        notCompiled("a * 2.5", false);
+        notCompiled("LE.getdrive()", false);
+
+        // parameters which are not Double are left to the bean shell
+        CodeExpression ce = CodeExpression.valueOf("@a * 2.5", CodeExpression.Code.JAVA);
+        assertTrue(ce.isCompiled());
+        assertNull(ce.evalCompiled(new Object[]{Integer.valueOf(2)}));
+        assertNull(ce.evalCompiled(new Object[]{"2"}));
+
+        assertTrue(CodeExpression.valueOf("a * 2.5", CodeExpression.Code.SPICE).isMemoizable());
+    }
+
+    private void compiledJava(String expr, double expected, Object... params) {
+        CodeExpression ce = CodeExpression.valueOf(expr, CodeExpression.Code.JAVA);
+        assertTrue(ce.isMemoizable());
+        assertTrue(ce.isCompiled());
+        Key[] keys = ce.getParameters();
+        assertEquals(params.length / 2, keys.length);
+        Object[] args = new Object[keys.length];
+        for (int i = 0; i < params.length; i += 2) {
+            int index = Arrays.asList(keys).indexOf(Variable.newKey("ATTR_" + params[i]));
+            assertTrue(index >= 0);
+            args[index] = params[i + 1];
+        }
+        assertEquals(expected, ce.evalCompiled(args).doubleValue(), 0);
+    }
+
+    private void notCompiled(String expr, boolean memoizable) {
+        CodeExpression ce = CodeExpression.valueOf(expr, CodeExpression.Code.JAVA);
+        assertFalse(ce.isCompiled());
+        assertEquals(memoizable, ce.isMemoizable());
+    }
+
     @Test
     public void testGoodSpice() {
         System.out.println("goodSpice");
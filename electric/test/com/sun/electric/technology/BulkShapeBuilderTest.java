@@ -0,0 +1,191 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: BulkShapeBuilderTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.technology;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.ImmutableArcInst;
+import com.sun.electric.database.ImmutableElectricObject;
+import com.sun.electric.database.ImmutableNodeInst;
+import com.sun.electric.database.geometry.EGraphics;
+import com.sun.electric.database.geometry.Poly;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.topology.PortInst;
+import com.sun.electric.database.variable.TextDescriptor;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+import com.sun.electric.util.math.Orientation;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the shapes of a cell generated in one pass against the shapes of its nodes and arcs.
+ */
+public class BulkShapeBuilderTest extends AbstractJunitBaseClass {
+
+    private EditingPreferences ep;
+    private Technology tech;
+
+    /**
+     * Shape builder which keeps the description of every shape which is not a box.
+     */
+    private static class TestBuilder extends BulkShapeBuilder {
+
+        private final List<String> polys = new ArrayList<String>();
+        private int numNodes, numArcs;
+
+        TestBuilder() {
+            super(true);
+        }
+
+        @Override
+        protected boolean acceptNode(ImmutableNodeInst n, PrimitiveNode pn) {
+            numNodes++;
+            return true;
+        }
+
+        @Override
+        protected boolean acceptArc(ImmutableArcInst a, ArcProto ap) {
+            numArcs++;
+            return true;
+        }
+
+        @Override
+        protected void addPoly(int numPoints, Poly.Type style, Layer layer, EGraphics graphicsOverride, PrimitivePort pp) {
+            Poly.Point[] points = new Poly.Point[numPoints];
+            for (int i = 0; i < numPoints; i++) {
+                points[i] = Poly.fromFixp(coords[i * 2], coords[i * 2 + 1]);
+            }
+            Poly poly = new Poly(points);
+            poly.setLayer(layer);
+            polys.add(describe(poly));
+        }
+
+        @Override
+        public void addTextPoly(int numPoints, Poly.Type style, Layer layer, PrimitivePort pp, String message, TextDescriptor descriptor) {
+            fail("no text expected");
+        }
+    }
+
+    private static String describe(Layer layer, Rectangle2D bounds) {
+        return String.format("%s %.3f %.3f %.3f %.3f", layer.getName(),
+                bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
+
+    private static String describe(Poly poly) {
+        return describe(poly.getLayer(), poly.getBounds2D());
+    }
+
+    private NodeInst makeNode(String name, Cell cell, double x, double y, Orientation orient) {
+        PrimitiveNode np = tech.findNodeProto(name);
+        return NodeInst.makeInstance(np, ep, new Point2D.Double(x, y), np.getDefWidth(ep), np.getDefHeight(ep), cell, orient, null);
+    }
+
+    private void makeArc(String name, PortInst head, PortInst tail) {
+        assertNotNull(ArcInst.makeInstance(tech.findArcProto(name), ep, head, tail));
+    }
+
+    /**
+     * Method to make a cell with rotated transistors and contacts, pins and Manhattan and diagonal arcs.
+     */
+    private Cell makeCell(Library lib) {
+        Cell cell = Cell.makeInstance(ep, lib, "bulkShapes{lay}");
+        makeNode("N-Transistor", cell, 0, 0, Orientation.IDENT);
+        makeNode("P-Transistor", cell, 30, 0, Orientation.R);
+        makeNode("N-Transistor", cell, 60, 0, Orientation.XRR);
+        PortInst con1 = makeNode("Metal-1-Metal-2-Con", cell, 0, 40, Orientation.IDENT).getOnlyPortInst();
+        PortInst con2 = makeNode("Metal-1-Metal-2-Con", cell, 40, 40, Orientation.RRR).getOnlyPortInst();
+        PortInst poly = makeNode("Metal-1-Polysilicon-1-Con", cell, 80, 40, Orientation.IDENT).getOnlyPortInst();
+        PortInst pin = makeNode("Metal-2-Pin", cell, 60, 80, Orientation.IDENT).getOnlyPortInst();
+        makeNode("Metal-3-Pin", cell, 100, 100, Orientation.IDENT);
+        makeArc("Metal-1", con1, con2);
+        makeArc("Metal-1", con2, poly);
+        makeArc("Metal-2", con2, pin);
+        return cell;
+    }
+
+    @Test
+    public void testShapesOfCell() throws Exception {
+        Library lib = loadLibrary("testLib");
+        ep = new EditingPreferences(true, lib.getDatabase().getTechPool());
+        tech = Technology.findTechnology("mocmos");
+        Cell cell = makeCell(lib);
+
+        // shapes of every node and arc
+        List<String> expected = new ArrayList<String>();
+        for (Iterator<NodeInst> it = cell.getNodes(); it.hasNext();) {
+            NodeInst ni = it.next();
+            for (Poly poly : tech.getShapeOfNode(ni)) {
+                poly.transform(ni.rotateOut());
+                expected.add(describe(poly));
+            }
+        }
+        for (Iterator<ArcInst> it = cell.getArcs(); it.hasNext();) {
+            for (Poly poly : tech.getShapeOfArc(it.next())) {
+                expected.add(describe(poly));
+            }
+        }
+
+        // shapes of the cell
+        TestBuilder builder = new TestBuilder();
+        builder.setup(cell.backup(), null, false, true, false, null);
+        builder.genShapesOfCell();
+        assertEquals(cell.getNumNodes(), builder.numNodes);
+        assertEquals(cell.getNumArcs(), builder.numArcs);
+        assertFalse(builder.polys.isEmpty());
+        List<String> actual = new ArrayList<String>(builder.polys);
+        int numBoxes = 0;
+        for (BulkShapeBuilder.LayerBoxes boxes : builder.getBoxSet().getLayerBoxes()) {
+            assertSame(boxes, builder.getBoxSet().getLayerBoxes(boxes.getLayer()));
+            long[] coords = boxes.getCoords();
+            for (int i = 0; i < boxes.getNumBoxes(); i++) {
+                Poly.Point l = Poly.fromFixp(coords[i * 4], coords[i * 4 + 1]);
+                Poly.Point h = Poly.fromFixp(coords[i * 4 + 2], coords[i * 4 + 3]);
+                actual.add(describe(boxes.getLayer(), new Rectangle2D.Double(l.getX(), l.getY(), h.getX() - l.getX(), h.getY() - l.getY())));
+                ImmutableElectricObject origin = boxes.getOrigin(i);
+                assertTrue(origin instanceof ImmutableNodeInst || origin instanceof ImmutableArcInst);
+                numBoxes++;
+            }
+        }
+        assertTrue(numBoxes > 0);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+
+        // cleared sets keep their layers
+        int numLayers = builder.getBoxSet().getLayerBoxes().size();
+        builder.getBoxSet().clear();
+        assertEquals(numLayers, builder.getBoxSet().getLayerBoxes().size());
+        for (BulkShapeBuilder.LayerBoxes boxes : builder.getBoxSet().getLayerBoxes()) {
+            assertEquals(0, boxes.getNumBoxes());
+        }
+    }
+}
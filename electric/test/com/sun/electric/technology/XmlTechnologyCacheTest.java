@@ -0,0 +1,187 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: XmlTechnologyCacheTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.technology;
+
+import com.sun.electric.Main;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test of the cache of parsed Xml technologies.
+ */
+public class XmlTechnologyCacheTest {
+
+    private File dir;
+    private String oldCacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("techcache").toFile();
+        oldCacheDir = System.getProperty(XmlTechnologyCache.CACHE_DIR_PROPERTY);
+        System.setProperty(XmlTechnologyCache.CACHE_DIR_PROPERTY, dir.getPath());
+        XmlTechnologyCache.clearMemoryCache();
+    }
+
+    @After
+    public void tearDown() {
+        if (oldCacheDir != null) {
+            System.setProperty(XmlTechnologyCache.CACHE_DIR_PROPERTY, oldCacheDir);
+        } else {
+            System.clearProperty(XmlTechnologyCache.CACHE_DIR_PROPERTY);
+        }
+        XmlTechnologyCache.clearMemoryCache();
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private static void assertSameTech(Xml.Technology expected, Xml.Technology actual) {
+        assertEquals(expected.techName, actual.techName);
+        assertEquals(expected.description, actual.description);
+        assertEquals(expected.layers.size(), actual.layers.size());
+        for (int i = 0; i < expected.layers.size(); i++) {
+            assertEquals(expected.layers.get(i).name, actual.layers.get(i).name);
+        }
+        assertEquals(expected.arcs.size(), actual.arcs.size());
+        assertEquals(expected.nodeGroups.size(), actual.nodeGroups.size());
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        URL url = Main.class.getResource("technology/technologies/nmos.xml");
+        Xml.Technology parsed = Xml.parseTechnology(url);
+        assertNotNull(parsed);
+
+        // first parse writes the disk cache
+        Xml.Technology first = XmlTechnologyCache.parseTechnology(url);
+        assertSameTech(parsed, first);
+        File[] entries = dir.listFiles();
+        assertEquals(1, entries.length);
+        long modified = entries[0].lastModified();
+
+        // every call returns a private copy
+        Xml.Technology second = XmlTechnologyCache.parseTechnology(url);
+        assertNotSame(first, second);
+        assertNotSame(first.layers.get(0), second.layers.get(0));
+        assertSameTech(parsed, second);
+
+        // a new process reads the disk cache
+        XmlTechnologyCache.clearMemoryCache();
+        assertSameTech(parsed, XmlTechnologyCache.parseTechnology(url));
+        assertEquals(modified, entries[0].lastModified());
+
+        // a damaged entry is replaced
+        XmlTechnologyCache.clearMemoryCache();
+        Files.write(entries[0].toPath(), new byte[] {1, 2, 3});
+        assertSameTech(parsed, XmlTechnologyCache.parseTechnology(url));
+        assertTrue(entries[0].length() > 3);
+        assertEquals(1, dir.listFiles().length);
+    }
+
+    @Test
+    public void testDisabledDiskCache() {
+        System.setProperty(XmlTechnologyCache.CACHE_DIR_PROPERTY, "");
+        assertNull(XmlTechnologyCache.getCacheDir());
+        URL url = Main.class.getResource("technology/technologies/nmos.xml");
+        Xml.Technology first = XmlTechnologyCache.parseTechnology(url);
+        assertSameTech(first, XmlTechnologyCache.parseTechnology(url));
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void testPrivateDiskCache() throws Exception {
+        Assume.assumeTrue(dir.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+        URL url = Main.class.getResource("technology/technologies/nmos.xml");
+
+        // a new directory is created for its owner only
+        File cacheDir = new File(new File(dir, "home"), "techcache");
+        System.setProperty(XmlTechnologyCache.CACHE_DIR_PROPERTY, cacheDir.getPath());
+        assertNotNull(XmlTechnologyCache.parseTechnology(url));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheDir.toPath())));
+        File[] entries = cacheDir.listFiles();
+        assertEquals(1, entries.length);
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(entries[0].toPath())));
+
+        // a directory which other users may write is not used
+        Files.delete(entries[0].toPath());
+        Files.setPosixFilePermissions(cacheDir.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        XmlTechnologyCache.clearMemoryCache();
+        assertNotNull(XmlTechnologyCache.parseTechnology(url));
+        assertEquals(0, cacheDir.listFiles().length);
+    }
+
+    private static byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(byteStream);
+        out.writeObject(obj);
+        out.close();
+        return byteStream.toByteArray();
+    }
+
+    @Test
+    public void testOnlyTechnologyClassesAreRead() throws Exception {
+        URL url = Main.class.getResource("technology/technologies/mocmos.xml");
+        Xml.Technology parsed = Xml.parseTechnology(url);
+        ObjectInputStream in = new XmlTechnologyCache.TechnologyInputStream(new ByteArrayInputStream(serialize(parsed)));
+        assertSameTech(parsed, (Xml.Technology) in.readObject());
+        in.close();
+
+        in = new XmlTechnologyCache.TechnologyInputStream(new ByteArrayInputStream(serialize(new Date())));
+        try {
+            in.readObject();
+            fail("java.util.Date was read");
+        } catch (InvalidClassException e) {
+            assertEquals("java.util.Date", e.classname);
+        }
+        in.close();
+    }
+
+    @Test
+    public void testKnownTechsAreShared() {
+        assertSame(TechFactory.getKnownTechs(), TechFactory.getKnownTechs());
+        assertSame(TechFactory.getKnownTechs().get("nmos"), TechFactory.getTechFactory("nmos"));
+    }
+}
@@ -0,0 +1,132 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: JobTelemetryTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool;
+
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of JobTelemetry.
+ */
+public class JobTelemetryTest {
+
+    private static long work(int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += Long.toString(i).hashCode();
+        }
+        return sum;
+    }
+
+    @Test
+    public void testTelemetry() throws Exception {
+        JobTelemetry telemetry = JobTelemetry.getInstance();
+        telemetry.reset();
+        assertNull(JobTelemetry.current());
+
+        // phases outside of a Job are ignored
+        try (JobTelemetry.Phase phase = JobTelemetry.startPhase("outside")) {
+            assertNotNull(phase);
+            work(10);
+        }
+
+        JobTelemetry.Record record = JobTelemetry.begin("Test \"job\"", Job.Type.SERVER_EXAMINE, 1234);
+        assertSame(record, JobTelemetry.current());
+        for (int i = 0; i < 3; i++) {
+            try (JobTelemetry.Phase phase = JobTelemetry.startPhase("work")) {
+                assertNotNull(phase);
+                work(100000);
+            }
+        }
+        try (JobTelemetry.Phase phase = Job.startPhase("job")) {
+            assertNotNull(phase);
+            work(10);
+        }
+        record.addWorkerTime(1000000, 1000000, 1000);
+        JobTelemetry.end(record, "tool", true);
+        assertNull(JobTelemetry.current());
+
+        JobTelemetry.Record failed = JobTelemetry.begin("Test \"job\"", Job.Type.SERVER_EXAMINE, 0);
+        JobTelemetry.end(failed, "tool", false);
+
+        assertTrue(record.isFinished());
+        assertTrue(record.getWallNanos() > 0);
+        assertTrue(record.getCpuNanos() >= 1000000);
+        assertTrue(record.getAllocatedBytes() >= 1000);
+        assertEquals(1234, record.getQueueWaitNanos());
+        Map<String, Long> phases = record.getPhaseNanos();
+        assertEquals(2, phases.size());
+        assertTrue(phases.get("work").longValue() > 0);
+        assertTrue(phases.get("job").longValue() > 0);
+
+        assertEquals(2, telemetry.getNumJobs());
+        assertEquals(1, telemetry.getNumFailedJobs());
+        assertEquals(1234, telemetry.getTotalQueueWaitNanos());
+        assertEquals(1, telemetry.getStatistics().size());
+        assertEquals(2, telemetry.getStatistics().get(0).getCount());
+        assertEquals(2, telemetry.getRecentJobs().size());
+
+        String json = telemetry.getJson();
+        assertTrue(json.startsWith("{\"numJobs\": 2, \"numFailedJobs\": 1,"));
+        assertTrue(json.contains("{\"job\": \"Test \\\"job\\\"\", \"tool\": \"tool\", \"type\": \"SERVER_EXAMINE\", \"ok\": true,"));
+        assertTrue(json.contains("{\"name\": \"work\", \"count\": 3, \"nanos\": "));
+        assertTrue(json.contains("{\"name\": \"job\", \"count\": 1, \"nanos\": "));
+
+        // JMX
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(JobTelemetry.OBJECT_NAME);
+        assertEquals(Integer.valueOf(2), server.getAttribute(name, "NumJobs"));
+        CompositeData[] recent = (CompositeData[]) server.getAttribute(name, "RecentJobs");
+        assertEquals(2, recent.length);
+        assertEquals("tool", recent[0].get("toolName"));
+        assertEquals(Long.valueOf(1234), recent[0].get("queueWaitNanos"));
+        assertEquals(json, server.getAttribute(name, "Json"));
+
+        // batch dump
+        File file = File.createTempFile("telemetry", ".json");
+        file.deleteOnExit();
+        String oldValue = System.setProperty(JobTelemetry.JSON_FILE_PROPERTY, file.getPath());
+        try {
+            JobTelemetry.dumpIfRequested();
+        } finally {
+            if (oldValue == null) {
+                System.clearProperty(JobTelemetry.JSON_FILE_PROPERTY);
+            } else {
+                System.setProperty(JobTelemetry.JSON_FILE_PROPERTY, oldValue);
+            }
+        }
+        assertEquals(json, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0, telemetry.getNumJobs());
+    }
+}
@@ -0,0 +1,135 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: RegressionServerTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool;
+
+import com.sun.electric.database.LibraryBackup;
+import com.sun.electric.database.Snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of running scripts in a warm server started with "-batchserver".
+ */
+public class RegressionServerTest {
+
+    private static final long STARTUP_MILLIS = 120000;
+
+    private static File writeScript(File dir, String name, String text) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static boolean hasLibrary(Snapshot snapshot, String libName) {
+        for (LibraryBackup libBackup : snapshot.libBackups) {
+            if (libBackup != null && libBackup.d.libId.libName.equals(libName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method to connect to a server which is starting.
+     */
+    private static Regression.ServerConnection connect(Process server, int port) throws Exception {
+        long deadline = System.currentTimeMillis() + STARTUP_MILLIS;
+        for (;;) {
+            try {
+                return new Regression.ServerConnection(port);
+            } catch (IOException e) {
+                if (!server.isAlive() || System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    @Test
+    public void testWarmServer() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        File dir = Files.createTempDirectory("warmServer").toFile();
+        File makeLib = writeScript(dir, "makeLib.bsh",
+            "import com.sun.electric.database.hierarchy.*;\n"
+            + "Library lib = Library.newInstance(\"warmLib\", null);\n"
+            + "Cell.newInstance(lib, \"top{lay}\");\n");
+        File checkLib = writeScript(dir, "checkLib.bsh",
+            "import com.sun.electric.database.hierarchy.*;\n"
+            + "if (Library.findLibrary(\"warmLib\") == null) throw new Exception(\"warmLib was not kept\");\n");
+        File fail = writeScript(dir, "fail.bsh", "throw new Exception(\"expected failure\");\n");
+        File startFail = writeScript(dir, "startFail.bsh",
+            "import com.sun.electric.tool.lang.EvalJavaBsh;\n"
+            + "EvalJavaBsh.runScriptJob(\"" + fail.getPath().replace('\\', '/') + "\").startJob();\n");
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-Djava.awt.headless=true",
+            "-cp", System.getProperty("java.class.path"),
+            "com.sun.electric.Main", "-batchserver", String.valueOf(port));
+        pb.directory(dir);
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(new File(dir, "server.log"));
+        Process server = pb.start();
+        try {
+            Regression.ServerConnection connection = connect(server, port);
+            try {
+                assertTrue(connection.runScript(makeLib.getPath()));
+                assertTrue(hasLibrary(connection.getSnapshot(), "warmLib"));
+                assertTrue(connection.runScript(checkLib.getPath()));
+                assertFalse(connection.runScript(fail.getPath()));
+                // a job started by the script fails after the script itself succeeded
+                assertFalse(connection.runScript(startFail.getPath()));
+                assertTrue(connection.runScript(checkLib.getPath()));
+            } finally {
+                connection.close();
+            }
+
+            // a new connection sees the database of the previous one
+            connection = new Regression.ServerConnection(port);
+            try {
+                assertTrue(connection.runScript(checkLib.getPath()));
+                assertTrue(hasLibrary(connection.getSnapshot(), "warmLib"));
+            } finally {
+                connection.close();
+            }
+            assertTrue(Regression.runScript(port, checkLib.getPath()));
+            assertTrue(server.isAlive());
+        } finally {
+            server.destroy();
+            server.waitFor();
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: AntennaBlockFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.erc;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.Export;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.topology.PortInst;
+import com.sun.electric.technology.ArcProto;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.technology.Technology;
+import com.sun.electric.tool.erc.ERCAntenna.AntennaPreferences;
+import com.sun.electric.tool.user.ErrorLogger;
+
+import java.awt.geom.Point2D;
+
+/**
+ * Routed blocks of gates with antennas, shared by the tests and benchmarks of the antenna check.
+ */
+final class AntennaBlockFixture {
+
+	static final int NUMROWS = 40;
+	static final int NUMCOLS = 50;
+	static final int NUMGATES = 5;
+
+	private final EditingPreferences ep;
+	private final Technology tech;
+	private final Cell leaf;
+
+	/**
+	 * Method to make the fixture and the leaf cell of its hierarchical blocks, with a transistor whose gate is exported.
+	 */
+	AntennaBlockFixture(Library lib) {
+		ep = new EditingPreferences(true, lib.getDatabase().getTechPool());
+		tech = Technology.findTechnology("mocmos");
+		leaf = Cell.makeInstance(ep, lib, "antennaLeaf{lay}");
+		PrimitiveNode nTrans = tech.findNodeProto("N-Transistor");
+		NodeInst trans = NodeInst.makeInstance(nTrans, ep, new Point2D.Double(0, 0),
+			nTrans.getDefWidth(ep), nTrans.getDefHeight(ep), leaf);
+		Export.newInstance(leaf, trans.getTransistorGatePort(), "g", ep);
+	}
+
+	/**
+	 * Method to make a gate in a row of the block.
+	 * @return the gate port of a transistor or of an instance of a cell with a transistor.
+	 */
+	private PortInst makeGate(Cell block, double x, double y, boolean hierarchical) {
+		if (hierarchical)
+			return NodeInst.makeInstance(leaf, ep, new Point2D.Double(x, y), 0, 0, block).findPortInst("g");
+		PrimitiveNode nTrans = tech.findNodeProto("N-Transistor");
+		NodeInst ni = NodeInst.makeInstance(nTrans, ep, new Point2D.Double(x, y),
+			nTrans.getDefWidth(ep), nTrans.getDefHeight(ep), block);
+		return ni.getTransistorGatePort();
+	}
+
+	private NodeInst makeNode(String name, Cell block, double x, double y) {
+		PrimitiveNode np = tech.findNodeProto(name);
+		return NodeInst.makeInstance(np, ep, new Point2D.Double(x, y), np.getDefWidth(ep), np.getDefHeight(ep), block);
+	}
+
+	private void makeArc(ArcProto ap, PortInst head, PortInst tail) {
+		if (ArcInst.makeInstance(ap, ep, head, tail) == null)
+			throw new IllegalStateException("Cannot connect " + head + " to " + tail);
+	}
+
+	/**
+	 * Method to make a block of rows of gates, where every few gates of a row are connected.
+	 * Gates in even rows connect with polysilicon to a metal wire, gates in odd rows connect with polysilicon.
+	 * Each network has an extra wire whose length grows with the row, so only some networks violate the rules.
+	 * @param hierarchical true to place the transistors in instances of a leaf cell.
+	 */
+	Cell makeBlock(Library lib, String name, boolean hierarchical) {
+		ArcProto poly = tech.findArcProto("Polysilicon-1");
+		ArcProto metal = tech.findArcProto("Metal-1");
+		Cell block = Cell.makeInstance(ep, lib, name + "{lay}");
+		for (int r = 0; r < NUMROWS; r++) {
+			double y = r * 40;
+			PortInst last = null;
+			for (int c = 0; c < NUMCOLS; c++) {
+				if (c % NUMGATES == 0) last = null;
+				PortInst gate = makeGate(block, c * 20, y, hierarchical);
+				if (r % 2 == 0) {
+					PortInst con = makeNode("Metal-1-Polysilicon-1-Con", block, c * 20, y + 15).getOnlyPortInst();
+					makeArc(poly, gate, con);
+					if (last != null) makeArc(metal, last, con);
+					last = con;
+				} else {
+					if (last != null) makeArc(poly, last, gate);
+					last = gate;
+				}
+				if (c % NUMGATES == NUMGATES - 1) {
+					PortInst pin = makeNode(r % 2 == 0 ? "Metal-1-Pin" : "Polysilicon-1-Pin", block,
+						c * 20 + r * 100, y + 15).getOnlyPortInst();
+					makeArc(r % 2 == 0 ? metal : poly, last, pin);
+				}
+			}
+		}
+		return block;
+	}
+
+	/**
+	 * Method to run the antenna check without popups.
+	 * @param parallel true to trace every network once and analyze the networks in parallel.
+	 * @param numThreads the number of threads of the parallel check.
+	 */
+	static ErrorLogger check(Cell cell, boolean parallel, int numThreads) {
+		AntennaPreferences prefs = new AntennaPreferences(false, cell.getDatabase().getTechPool());
+		prefs.disablePopups = true;
+		prefs.parallelAntennaCheck = parallel;
+		prefs.maxProc = numThreads;
+		return ERCAntenna.checkERCAntennaErrors(cell, prefs, null);
+	}
+}
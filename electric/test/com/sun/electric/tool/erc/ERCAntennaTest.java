@@ -0,0 +1,59 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ERCAntennaTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.erc;
+
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.tool.user.ErrorLogger;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the parallel antenna check on a generated routed block.
+ */
+public class ERCAntennaTest extends AbstractJunitBaseClass {
+
+	@Test
+	public void testParallelAntennaCheck() throws Exception {
+		Library lib = loadLibrary("testLib");
+		AntennaBlockFixture fixture = new AntennaBlockFixture(lib);
+		Cell flat = fixture.makeBlock(lib, "antennaFlat", false);
+		Cell hier = fixture.makeBlock(lib, "antennaHier", true);
+
+		// the parallel check finds the same errors, with the same geometry and messages
+		ErrorLogger serial = AntennaBlockFixture.check(flat, false, 1);
+		int numErrors = serial.getNumErrors();
+		assertTrue(numErrors > 0);
+		assertTrue(numErrors < AntennaBlockFixture.NUMROWS * AntennaBlockFixture.NUMCOLS / AntennaBlockFixture.NUMGATES);
+		List<String> serialErrors = ErrorLogDescriptions.describe(serial, flat.getName());
+		assertEquals(numErrors, serialErrors.size());
+		assertTrue(serialErrors.get(0).contains("<ERRORTYPETHICKLINE p1="));
+		assertEquals(serialErrors, ErrorLogDescriptions.describe(AntennaBlockFixture.check(flat, true, 4), flat.getName()));
+
+		// the hierarchical block has the same antennas
+		assertEquals(serialErrors, ErrorLogDescriptions.describe(AntennaBlockFixture.check(hier, true, 4), hier.getName()));
+	}
+}
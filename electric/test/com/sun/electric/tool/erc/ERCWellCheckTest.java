@@ -1,48 +1,74 @@
-/* -*- tab-width: 4 -*-
- *
- * Electric(tm) VLSI Design System
- *
- * File: ERCWellCheckTest.java
- *
- * Copyright (c) 2010, Static Free Software. All rights reserved.
- *
- * Electric(tm) is free software; you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation; either version 3 of the License, or
- * (at your option) any later version.
- *
- * Electric(tm) is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with this program.  If not, see <http://www.gnu.org/licenses/>.
- */
-package com.sun.electric.tool.erc;
-
-import org.junit.Test;
-
-import com.sun.electric.database.hierarchy.Cell;
-import com.sun.electric.tool.erc.ERCWellCheck.WellCheckPreferences;
-import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
-
-/**
- * @author Felix Schmidt
- * 
- */
-public class ERCWellCheckTest extends AbstractJunitBaseClass {
-
-	@Test
-	public void testERCWellCheck() throws Exception {
-		Cell cell = this.loadCell("placementTests", "PlacementTest4");
-		WellCheckPreferences wellPrefs = new WellCheckPreferences(false);
-		wellPrefs.drcCheck = false;
-		wellPrefs.pWellCheck = 1;
-		wellPrefs.nWellCheck = 1;
-		wellPrefs.maxProc = 2;
-
-		ERCWellCheck.checkERCWell(cell, wellPrefs);
-	}
-
-}
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ERCWellCheckTest.java
+ *
+ * Copyright (c) 2010, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.erc;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.tool.erc.ERCWellCheck.WellCheckPreferences;
+import com.sun.electric.tool.user.ErrorLogger;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.util.List;
+
+/**
+ * @author Felix Schmidt
+ * 
+ */
+public class ERCWellCheckTest extends AbstractJunitBaseClass {
+
+	@Test
+	public void testERCWellCheck() throws Exception {
+		Cell cell = this.loadCell("placementTests", "PlacementTest4");
+		WellCheckPreferences wellPrefs = new WellCheckPreferences(false);
+		wellPrefs.drcCheck = false;
+		wellPrefs.pWellCheck = 1;
+		wellPrefs.nWellCheck = 1;
+		wellPrefs.maxProc = 2;
+
+		ERCWellCheck.checkERCWell(cell, wellPrefs);
+	}
+
+	private static List<String> check(Cell cell, boolean hierarchical) throws Exception {
+		ErrorLogger logger = WellArrayFixture.check(cell, hierarchical);
+		List<String> errors = ErrorLogDescriptions.describe(logger, cell.getName());
+		assertEquals(logger.getNumErrors() + logger.getNumWarnings(), errors.size());
+		return errors;
+	}
+
+	@Test
+	public void testHierarchicalWellCheck() throws Exception {
+		Cell cell = this.loadCell("placementTests", "PlacementTest4");
+		assertEquals(check(cell, false), check(cell, true));
+
+		Library lib = cell.getLibrary();
+		Cell array = new WellArrayFixture(lib).makeArray(lib);
+
+		List<String> flatErrors = check(array, false);
+		assertFalse(flatErrors.isEmpty());
+		assertTrue(flatErrors.get(0).contains("<ERRORTYPE"));
+		assertEquals(flatErrors, check(array, true));
+	}
+
+}
@@ -0,0 +1,67 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ErrorLogDescriptions.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.erc;
+
+import com.sun.electric.tool.user.ErrorLogger;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class to describe the messages of an ErrorLogger, with their geometry, for comparing checks.
+ */
+class ErrorLogDescriptions {
+
+	/**
+	 * Method to describe each message of an ErrorLogger as it is exported in XML.
+	 * Messages are sorted, so checks that find them in different orders may be compared.
+	 * @param logger the ErrorLogger.
+	 * @param cellName the name of the checked cell, replaced by "TOP" so that checks of different cells may be compared.
+	 * @return the sorted descriptions of the messages.
+	 */
+	static List<String> describe(ErrorLogger logger, String cellName) throws Exception {
+		File file = File.createTempFile("ercerrors", ".xml");
+		try {
+			logger.exportErrorLogger(file.getPath());
+			List<String> messages = new ArrayList<String>();
+			StringBuilder message = null;
+			for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				if (line.startsWith("\t<MessageLog ") || line.startsWith("\t<WarningLog "))
+					message = new StringBuilder();
+				if (message == null) continue;
+				message.append(line.replace(cellName, "TOP")).append('\n');
+				if (line.startsWith("\t</")) {
+					messages.add(message.toString());
+					message = null;
+				}
+			}
+			Collections.sort(messages);
+			return messages;
+		} finally {
+			file.delete();
+		}
+	}
+}
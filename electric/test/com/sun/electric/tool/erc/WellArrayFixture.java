@@ -0,0 +1,115 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: WellArrayFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.erc;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.Export;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.technology.Technology;
+import com.sun.electric.tool.erc.ERCWellCheck.WellCheckPreferences;
+import com.sun.electric.tool.user.ErrorLogger;
+import com.sun.electric.util.math.Orientation;
+
+import java.awt.geom.Point2D;
+
+/**
+ * Arrays of rows of well tiles, shared by the tests and benchmarks of the well check.
+ */
+final class WellArrayFixture {
+
+	private static final int NUMROWS = 40;
+	private static final int NUMCOLS = 50;
+
+	private final EditingPreferences ep;
+	private final Technology tech;
+
+	WellArrayFixture(Library lib) {
+		ep = new EditingPreferences(true, lib.getDatabase().getTechPool());
+		tech = Technology.findTechnology("mocmos");
+	}
+
+	private NodeInst makeNode(String name, Cell cell, double x, double y, double width, double height) {
+		PrimitiveNode np = tech.findNodeProto(name);
+		if (width == 0) width = np.getDefWidth(ep);
+		if (height == 0) height = np.getDefHeight(ep);
+		return NodeInst.makeInstance(np, ep, new Point2D.Double(x, y), width, height, cell);
+	}
+
+	/**
+	 * Method to make a tile with an N-Well above a P-Well and, optionally, a contact in each well.
+	 */
+	private Cell makeTile(Library lib, String name, boolean taps) {
+		Cell tile = Cell.makeInstance(ep, lib, name + "{lay}");
+		makeNode("N-Well-Node", tile, 0, 5, 20, 10);
+		makeNode("P-Well-Node", tile, 0, -5, 20, 10);
+		if (taps) {
+			Export.newInstance(tile, makeNode("Metal-1-N-Well-Con", tile, -5, 5, 0, 0).getOnlyPortInst(), "vdd", ep);
+			Export.newInstance(tile, makeNode("Metal-1-P-Well-Con", tile, -5, -5, 0, 0).getOnlyPortInst(), "gnd", ep);
+		}
+		return tile;
+	}
+
+	private Cell makeRow(Library lib, String name, Cell first, Cell tile) {
+		Cell row = Cell.makeInstance(ep, lib, name + "{lay}");
+		for (int c = 0; c < NUMCOLS; c++)
+			NodeInst.makeInstance(c == 0 ? first : tile, ep, new Point2D.Double(c * 20, 0), 0, 0, row);
+		return row;
+	}
+
+	/**
+	 * Method to make an array of rows of abutting tiles, where every other row is rotated.
+	 * Rows share wells with their neighbors, only every fourth row has contacts, and
+	 * a well in the top cell connects the N-Wells of the lowest rows.
+	 */
+	Cell makeArray(Library lib) {
+		Cell tile = makeTile(lib, "wellTile", false);
+		Cell tap = makeTile(lib, "wellTap", true);
+		Cell row = makeRow(lib, "wellRow", tile, tile);
+		Cell tapRow = makeRow(lib, "wellTapRow", tap, tile);
+		Cell array = Cell.makeInstance(ep, lib, "wellArray{lay}");
+		for (int r = 0; r < NUMROWS; r++) {
+			boolean rotated = r % 2 != 0;
+			NodeInst.makeInstance(r % 4 == 0 ? tapRow : row, ep, new Point2D.Double(rotated ? (NUMCOLS - 1) * 20 : 0, r * 20),
+				0, 0, array, rotated ? Orientation.RR : Orientation.IDENT, null);
+		}
+		makeNode("N-Well-Node", array, NUMCOLS * 10, 70, 10, 160);
+		return array;
+	}
+
+	/**
+	 * Method to run the well check of both wells on two threads, without DRC and popups.
+	 * @param hierarchical true to analyze the wells of each cell once.
+	 */
+	static ErrorLogger check(Cell cell, boolean hierarchical) {
+		WellCheckPreferences wellPrefs = new WellCheckPreferences(false);
+		wellPrefs.drcCheck = false;
+		wellPrefs.pWellCheck = 1;
+		wellPrefs.nWellCheck = 1;
+		wellPrefs.maxProc = 2;
+		wellPrefs.hierarchicalWellAnalysis = hierarchical;
+		wellPrefs.disablePopups = true;
+		return ERCWellCheck.checkERCWellErrors(cell, wellPrefs);
+	}
+}
@@ -0,0 +1,90 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ConnectivityTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.extract;
+
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of tiled, multi-threaded wire finding in the connectivity extractor.
+ */
+public class ConnectivityTest extends AbstractJunitBaseClass
+{
+	/**
+	 * Method to describe the nodes and arcs of a cell in a way that does not depend on their order.
+	 */
+	private static List<String> describeContents(Cell cell)
+	{
+		List<String> contents = new ArrayList<String>();
+		for (Iterator<NodeInst> it = cell.getNodes(); it.hasNext(); )
+		{
+			NodeInst ni = it.next();
+			contents.add("N " + ni.getProto().getName() + " " + ni.getAnchorCenter() + " " + ni.getLambdaBaseXSize() +
+				"x" + ni.getLambdaBaseYSize() + " " + ni.getOrient());
+		}
+		for (Iterator<ArcInst> it = cell.getArcs(); it.hasNext(); )
+		{
+			ArcInst ai = it.next();
+			contents.add("A " + ai.getProto().getName() + " " + ai.getHeadLocation() + " " + ai.getTailLocation() + " " +
+				ai.getLambdaBaseWidth() + " " + ai.isHeadExtended() + ai.isTailExtended());
+		}
+		Collections.sort(contents);
+		return contents;
+	}
+
+	@Test
+	public void testTiledExtraction() throws Exception
+	{
+		Cell cell = loadCell("placementTests", "PlacementTest4");
+		assertNotNull(cell);
+
+		Cell serialCell = ExtractionFixture.extract(cell, 1);
+		assertNotNull(serialCell);
+		List<String> serial = describeContents(serialCell);
+		assertTrue(serialCell.getNumArcs() > 100);
+
+		// tiled extraction finds the same nodes and arcs
+		int numProcs = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+		Cell tiledCell = ExtractionFixture.extract(cell, numProcs);
+		assertNotNull(tiledCell);
+		assertEquals(serialCell.getNumNodes(), tiledCell.getNumNodes());
+		assertEquals(serialCell.getNumArcs(), tiledCell.getNumArcs());
+		assertEquals(serial, describeContents(tiledCell));
+
+		// an interrupted extraction analyzes the remaining tiles serially and keeps the interrupt
+		Thread.currentThread().interrupt();
+		Cell interruptedCell = ExtractionFixture.extract(cell, numProcs);
+		assertTrue(Thread.interrupted());
+		assertNotNull(interruptedCell);
+		assertEquals(serial, describeContents(interruptedCell));
+	}
+}
@@ -0,0 +1,55 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ExtractionFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.extract;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.tool.user.ErrorLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Flattened extraction of a layout cell, shared by the tests and benchmarks of the connectivity extractor.
+ */
+final class ExtractionFixture
+{
+	private ExtractionFixture() {}
+
+	/**
+	 * Method to extract a cell with all of its subcells flattened, so the whole layout is extracted as one block.
+	 * @param numThreads the number of threads that find wires.
+	 * @return the extracted cell.
+	 */
+	static Cell extract(Cell cell, int numThreads)
+	{
+		List<Pattern> pats = new ArrayList<Pattern>();
+		pats.add(Pattern.compile(".*"));
+		EditingPreferences ep = new EditingPreferences(true, cell.getDatabase().getTechPool());
+		ErrorLogger errorLogger = ErrorLogger.newInstance("Extraction test on cell " + cell.getName());
+		Connectivity c = new Connectivity(cell, null, ep, errorLogger, 0, 0, false,
+			cell.getTechnology().getFactoryResolution(), false, false, pats);
+		c.setExtractionThreads(numThreads);
+		return c.doExtract(cell, false, pats, false, false, true, null, null, null, null);
+	}
+}
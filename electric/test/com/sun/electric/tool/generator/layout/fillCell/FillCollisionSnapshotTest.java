@@ -0,0 +1,151 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: FillCollisionSnapshotTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.generator.layout.fillCell;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.topology.PortInst;
+import com.sun.electric.technology.ArcProto;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.technology.Technology;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+import com.sun.electric.util.math.FixpTransform;
+
+import java.awt.geom.Point2D;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the tile-parallel collision search of the fill generator against the serial search in the database.
+ */
+public class FillCollisionSnapshotTest extends AbstractJunitBaseClass {
+
+	private static final int NUMSTEPS = 12;
+	private static final double STEP = 17;
+
+	private EditingPreferences ep;
+	private Technology tech;
+
+	private NodeInst makeNode(String name, Cell cell, double x, double y) {
+		PrimitiveNode np = tech.findNodeProto(name);
+		return NodeInst.makeInstance(np, ep, new Point2D.Double(x, y), np.getDefWidth(ep), np.getDefHeight(ep), cell);
+	}
+
+	/**
+	 * Method to make a wire between two new pins.
+	 */
+	private ArcInst makeWire(String layer, Cell cell, double x1, double y1, double x2, double y2) {
+		ArcProto ap = tech.findArcProto(layer);
+		PortInst head = makeNode(layer + "-Pin", cell, x1, y1).getOnlyPortInst();
+		PortInst tail = makeNode(layer + "-Pin", cell, x2, y2).getOnlyPortInst();
+		ArcInst ai = ArcInst.makeInstance(ap, ep, head, tail);
+		assertNotNull(ai);
+		return ai;
+	}
+
+	/**
+	 * Method to make a master fill cell: horizontal metal-1 and vertical metal-2 bars joined by contacts.
+	 */
+	private Cell makeMaster(Library lib) {
+		Cell master = Cell.makeInstance(ep, lib, "fillSnapMaster{lay}");
+		ArcProto m1 = tech.findArcProto("Metal-1");
+		ArcProto m2 = tech.findArcProto("Metal-2");
+		for (int i = 0; i < 2; i++) {
+			PortInst left = makeNode("Metal-1-Metal-2-Con", master, -20, -10 + i * 20).getOnlyPortInst();
+			PortInst right = makeNode("Metal-1-Metal-2-Con", master, 20, -10 + i * 20).getOnlyPortInst();
+			assertNotNull(ArcInst.makeInstance(m1, ep, left, right));
+			PortInst leftEnd = makeNode("Metal-2-Pin", master, -20, -30 + i * 60).getOnlyPortInst();
+			PortInst rightEnd = makeNode("Metal-2-Pin", master, 20, -30 + i * 60).getOnlyPortInst();
+			assertNotNull(ArcInst.makeInstance(m2, ep, left, leftEnd));
+			assertNotNull(ArcInst.makeInstance(m2, ep, right, rightEnd));
+		}
+		return master;
+	}
+
+	/**
+	 * Method to make the cell to fill: a grid of metal wires and instances of a cell with more wires.
+	 */
+	private Cell makeTop(Library lib) {
+		Cell sub = Cell.makeInstance(ep, lib, "fillSnapSub{lay}");
+		makeWire("Metal-2", sub, -15, 0, 15, 0);
+		makeWire("Metal-3", sub, 0, -15, 0, 15);
+
+		Cell top = Cell.makeInstance(ep, lib, "fillSnapTop{lay}");
+		for (int i = 0; i < 6; i++) {
+			makeWire("Metal-1", top, 0, i * 45, 200 - i * 20, i * 45);
+			makeWire("Metal-2", top, i * 37, 0, i * 37, 120 + i * 15);
+		}
+		for (int i = 0; i < 4; i++)
+			NodeInst.makeInstance(sub, ep, new Point2D.Double(30 + i * 50, 200 - i * 30), 0, 0, top);
+		makeNode("Metal-1-Metal-2-Con", top, 150, 150);
+		return top;
+	}
+
+	@Test
+	public void testSnapshotMatchesDatabase() throws Exception {
+		Library lib = loadLibrary("testLib");
+		ep = new EditingPreferences(true, lib.getDatabase().getTechPool());
+		tech = Technology.findTechnology("mocmos");
+		Cell master = makeMaster(lib);
+		Cell empty = Cell.makeInstance(ep, lib, "fillSnapEmpty{lay}");
+		Cell top = makeTop(lib);
+		double drcSpacing = 3;
+
+		// record the searches of all positions
+		FillCollisionSnapshot snapshot = new FillCollisionSnapshot(top);
+		FillCellGenJob.CollisionSearch recorder = snapshot.recorder();
+		for (int i = 0; i < NUMSTEPS * NUMSTEPS; i++) {
+			FillCellGenJob.detectOverlappingBars(master, master, empty, getTransform(i),
+				new HashSet<NodeInst>(), new HashSet<ArcInst>(), top, new NodeInst[] {}, drcSpacing, 0, recorder);
+		}
+		snapshot.evaluate();
+
+		// compare them with the database
+		int numCollisions = 0;
+		for (int i = 0; i < NUMSTEPS * NUMSTEPS; i++) {
+			HashSet<NodeInst> serialNodes = new HashSet<NodeInst>();
+			HashSet<ArcInst> serialArcs = new HashSet<ArcInst>();
+			Cell serial = FillCellGenJob.detectOverlappingBars(master, master, empty, getTransform(i),
+				serialNodes, serialArcs, top, new NodeInst[] {}, drcSpacing, 0);
+			HashSet<NodeInst> parallelNodes = new HashSet<NodeInst>();
+			HashSet<ArcInst> parallelArcs = new HashSet<ArcInst>();
+			Cell parallel = FillCellGenJob.detectOverlappingBars(master, master, empty, getTransform(i),
+				parallelNodes, parallelArcs, top, new NodeInst[] {}, drcSpacing, 0, snapshot.replayer());
+			assertSame(serial, parallel);
+			assertEquals(serialNodes, parallelNodes);
+			assertEquals(serialArcs, parallelArcs);
+			if (serial == null) numCollisions++;
+		}
+		assertEquals(0, snapshot.getNumMissed());
+		assertTrue(numCollisions > 0);
+		assertTrue(numCollisions < NUMSTEPS * NUMSTEPS);
+	}
+
+	private static FixpTransform getTransform(int i) {
+		return FixpTransform.getTranslateInstance((i % NUMSTEPS) * STEP - 20, (i / NUMSTEPS) * STEP - 20);
+	}
+}
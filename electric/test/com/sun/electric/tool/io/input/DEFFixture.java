@@ -0,0 +1,108 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: DEFFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.input;
+
+import com.sun.electric.database.text.TextUtils;
+import com.sun.electric.technology.Technology;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Generated DEF designs, shared by the tests and benchmarks of the DEF reader and the LEF/DEF tokenizer.
+ */
+final class DEFFixture
+{
+	/** spacing of the placed components in DEF units */	static final int PITCH = 200000;
+	private static final String [] ORIENTATIONS = {"N", "S", "E", "W", "FN", "FS", "FE", "FW"};
+
+	private DEFFixture() {}
+
+	/**
+	 * Method to write a DEF file with a grid of placed components and pins.
+	 * Component i is placed at ((i % side) * PITCH, (i / side) * PITCH), where side is the square root of numComponents.
+	 * @param design the name of the design.
+	 * @param model the name of the placed components.
+	 * @param numComponents the number of components, which are placed in a square.
+	 * @param numPins the number of pins, which are placed in a row below the components.
+	 * @return the DEF file, which is deleted when the JVM exits.
+	 */
+	static File writeDEF(String design, String model, int numComponents, int numPins) throws IOException
+	{
+		File file = File.createTempFile(design, ".def");
+		file.deleteOnExit();
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		int side = (int)Math.ceil(Math.sqrt(numComponents));
+		out.println("VERSION 5.7 ;");
+		out.println("DESIGN " + design + " ;");
+		out.println("UNITS DISTANCE MICRONS 1000 ;");
+		out.println("COMPONENTS " + numComponents + " ;");
+		for(int i=0; i<numComponents; i++)
+			out.println("- c" + i + " " + model + " + PLACED ( " + (i % side) * PITCH + " " + (i / side) * PITCH + " ) " +
+				ORIENTATIONS[i % ORIENTATIONS.length] + " ;");
+		out.println("END COMPONENTS");
+		out.println("PINS " + numPins + " ;");
+		for(int i=0; i<numPins; i++)
+			out.println("- p" + i + " + NET p" + i + " + DIRECTION INPUT + USE SIGNAL + LAYER METAL1 ( -100 -100 ) ( 100 100 ) + PLACED ( " +
+				i * 1000 + " -5000 ) N ;");
+		out.println("END PINS");
+		out.println("END DESIGN");
+		out.close();
+		return file;
+	}
+
+	/**
+	 * Method to convert a distance of a generated DEF file to lambda units of a technology.
+	 */
+	static double toLambda(int defUnits, Technology tech)
+	{
+		return TextUtils.convertFromDistance(defUnits / 1000.0, tech, TextUtils.UnitScale.MICRO);
+	}
+
+	/**
+	 * Method to build a DEF text with large sections, comments and mixed line ends.
+	 * @param numComponents the number of components.
+	 * @param numNets the number of nets.
+	 * @return the DEF text.
+	 */
+	static String makeDEF(int numComponents, int numNets)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("VERSION 5.7 ;\n# a comment line\nDESIGN lexer ;\r\nUNITS DISTANCE MICRONS 1000 ;\n");
+		sb.append("COMPONENTS ").append(numComponents).append(" ;\n");
+		for(int i=0; i<numComponents; i++)
+		{
+			sb.append("  - c").append(i).append(" INV\t+ PLACED ( ").append(i * 10).append(" ").append(i % 7).append(" ) N ;");
+			if (i % 11 == 0) sb.append(" # trailing comment");
+			sb.append(i % 5 == 0 ? "\r\n" : (i % 13 == 0 ? "\r" : "\n"));
+			if (i % 17 == 0) sb.append("\n");
+		}
+		sb.append("END COMPONENTS\n");
+		sb.append("NETS ").append(numNets).append(" ;\n");
+		for(int i=0; i<numNets; i++)
+			sb.append("- n").append(i).append(" ( c").append(i).append(" A ) ( c").append(i + 1).append(" Y )#x\n  + USE SIGNAL ;\n");
+		sb.append("END NETS\nEND DESIGN\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,110 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: DEFTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.input;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.geometry.EPoint;
+import com.sun.electric.database.geometry.ERectangle;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.Export;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.id.CellId;
+import com.sun.electric.database.text.TextUtils;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.technology.Technology;
+import com.sun.electric.tool.io.FileType;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of bulk placement of components and pins in the DEF reader.
+ */
+public class DEFTest extends AbstractJunitBaseClass
+{
+	private static final int NUMCOMPONENTS = 2000;
+	private static final int NUMPINS = 100;
+
+	@Test
+	public void testBulkComponentsAndPins() throws Exception
+	{
+		Cell model = loadCell("placementTests", "cell01");
+		assertNotNull(model);
+		Library lib = model.getLibrary();
+		Technology tech = model.getTechnology();
+		EditingPreferences ep = new EditingPreferences(true, model.getDatabase().getTechPool());
+
+		// import the generated DEF
+		File file = DEFFixture.writeDEF("defbench", "cell01", NUMCOMPONENTS, NUMPINS);
+		DEF.DEFPreferences prefs = new DEF.DEFPreferences(true);
+		prefs.disablePopups = true;
+		Library result = Input.importLibrary(ep, prefs, TextUtils.makeURLToFile(file.getPath()), FileType.DEF, lib, tech,
+			new HashMap<Library,Cell>(), new HashMap<CellId,BitSet>(), false, null);
+		assertSame(lib, result);
+		Cell cell = lib.findNodeProto("defbench{lay}");
+		assertNotNull(cell);
+		assertEquals(NUMCOMPONENTS + NUMPINS + (cell.alreadyCellCenter() ? 1 : 0), cell.getNumNodes());
+		assertEquals(NUMPINS, cell.getNumPorts());
+
+		// build the same placement with the one-node-at-a-time API, using the orientations read from the DEF
+		Cell reference = Cell.makeInstance(ep, lib, "defreference{lay}");
+		int side = (int)Math.ceil(Math.sqrt(NUMCOMPONENTS));
+		ERectangle subBounds = model.getBounds();
+		for(int i=0; i<NUMCOMPONENTS; i++)
+		{
+			EPoint loc = EPoint.fromLambda(DEFFixture.toLambda((i % side) * DEFFixture.PITCH, tech), DEFFixture.toLambda((i / side) * DEFFixture.PITCH, tech));
+			NodeInst ni = NodeInst.makeInstance(model, ep, loc, model.getDefWidth(), model.getDefHeight(), reference,
+				cell.findNode("c" + i).getOrient(), "c" + i);
+			ERectangle bound = ni.getBounds();
+			double diffX = loc.getX() - bound.getMinX() + subBounds.getMinX();
+			double diffY = loc.getY() - bound.getMinY() + subBounds.getMinY();
+			if (diffX != 0 || diffY != 0) ni.move(diffX, diffY);
+		}
+
+		// every component is where the one-at-a-time placement put it
+		for(int i=0; i<NUMCOMPONENTS; i++)
+		{
+			NodeInst expected = reference.findNode("c" + i);
+			NodeInst ni = cell.findNode("c" + i);
+			assertNotNull(ni);
+			assertSame(model, ni.getProto());
+			assertEquals(expected.getAnchorCenter(), ni.getAnchorCenter());
+			assertEquals(expected.getBounds(), ni.getBounds());
+		}
+
+		// every pin is exported at its location
+		for(int i=0; i<NUMPINS; i++)
+		{
+			Export e = cell.findExport("p" + i);
+			assertNotNull(e);
+			NodeInst pin = e.getOriginalPort().getNodeInst();
+			assertEquals(DEFFixture.toLambda(i * 1000, tech), pin.getAnchorCenterX(), 1e-9);
+			assertEquals(DEFFixture.toLambda(-5000, tech), pin.getAnchorCenterY(), 1e-9);
+			assertEquals(DEFFixture.toLambda(200, tech), pin.getLambdaBaseXSize(), 1e-9);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: LEFDEFLexerTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.input;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the buffer-based LEF/DEF tokenizer.
+ */
+public class LEFDEFLexerTest
+{
+	private static final int NUMCOMPONENTS = 60000;
+	private static final int NUMNETS = 30000;
+
+	/**
+	 * Method to split a text into keywords the way Input.getAKeyword() does for LEF and DEF.
+	 */
+	private static void splitLines(String text, List<String> keys, List<Integer> lines) throws Exception
+	{
+		BufferedReader in = new BufferedReader(new StringReader(text));
+		int lineNumber = 0;
+		for(;;)
+		{
+			String line = in.readLine();
+			if (line == null) break;
+			lineNumber++;
+			int sharpPos = line.indexOf('#');
+			if (sharpPos >= 0) line = line.substring(0, sharpPos);
+			for(String key : line.split("[ \t]+"))
+			{
+				if (key.length() == 0) continue;
+				keys.add(key);
+				lines.add(Integer.valueOf(lineNumber));
+			}
+		}
+	}
+
+	private static void tokenize(LEFDEFLexer lexer, List<String> keys, List<Integer> lines) throws Exception
+	{
+		for(;;)
+		{
+			String key = lexer.next();
+			if (key == null) break;
+			keys.add(key);
+			lines.add(Integer.valueOf(lexer.getLineNumber()));
+		}
+	}
+
+	@Test
+	public void testSerialAndParallelTokens() throws Exception
+	{
+		String text = DEFFixture.makeDEF(NUMCOMPONENTS, NUMNETS);
+		byte [] bytes = text.getBytes("UTF-8");
+		List<String> expectedKeys = new ArrayList<String>();
+		List<Integer> expectedLines = new ArrayList<Integer>();
+		splitLines(text, expectedKeys, expectedLines);
+
+		// serial tokenizing matches line-by-line reading
+		List<String> serialKeys = new ArrayList<String>();
+		List<Integer> serialLines = new ArrayList<Integer>();
+		tokenize(new LEFDEFLexer(ByteBuffer.wrap(bytes)), serialKeys, serialLines);
+		assertEquals(expectedKeys, serialKeys);
+		assertEquals(expectedLines, serialLines);
+
+		// parallel tokenizing of the sections gives the same keywords on the same lines
+		LEFDEFLexer parallel = new LEFDEFLexer(ByteBuffer.wrap(bytes));
+		parallel.locateSections(4, "COMPONENTS", "PINS", "NETS", "SPECIALNETS");
+		List<String> parallelKeys = new ArrayList<String>();
+		List<Integer> parallelLines = new ArrayList<Integer>();
+		tokenize(parallel, parallelKeys, parallelLines);
+		assertEquals(expectedKeys, parallelKeys);
+		assertEquals(expectedLines, parallelLines);
+
+		// keywords of the language are shared
+		for(int i=0; i<parallelKeys.size(); i++)
+		{
+			String key = parallelKeys.get(i);
+			if (key.equals("PLACED") || key.equals("+") || key.equals("SIGNAL")) assertSame(serialKeys.get(i), key);
+		}
+	}
+
+	@Test
+	public void testNonASCIINames() throws Exception
+	{
+		String text = "DESIGN caf\u00e9 ;#\u00e9\nEND DESIGN";
+		List<String> keys = new ArrayList<String>();
+		List<Integer> lines = new ArrayList<Integer>();
+		tokenize(new LEFDEFLexer(ByteBuffer.wrap(text.getBytes("UTF-8"))), keys, lines);
+		List<String> expectedKeys = new ArrayList<String>();
+		List<Integer> expectedLines = new ArrayList<Integer>();
+		splitLines(text, expectedKeys, expectedLines);
+		assertEquals(expectedKeys, keys);
+		assertEquals(expectedLines, lines);
+	}
+}
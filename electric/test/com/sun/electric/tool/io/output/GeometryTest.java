@@ -0,0 +1,166 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: GeometryTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.output;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.geometry.PolyBase;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.topology.PortInst;
+import com.sun.electric.database.variable.VarContext;
+import com.sun.electric.technology.Layer;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.technology.Technology;
+import com.sun.electric.technology.technologies.Generic;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+import com.sun.electric.util.math.Orientation;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the order of the shapes which Geometry gives to writers.
+ */
+public class GeometryTest extends AbstractJunitBaseClass {
+
+    private EditingPreferences ep;
+    private Technology tech;
+
+    /**
+     * Geometry which keeps the shapes of each layer of the written cell.
+     */
+    private static class RecordingGeometry extends Geometry {
+
+        private final boolean merge;
+        private Map<String, List<String>> shapes;
+
+        RecordingGeometry(boolean merge) {
+            this.merge = merge;
+        }
+
+        @Override
+        protected void start() {
+        }
+
+        @Override
+        protected void done() {
+        }
+
+        @Override
+        protected void writeCellGeom(CellGeom cellGeom) {
+            shapes = describe(cellGeom);
+        }
+
+        @Override
+        protected boolean mergeGeom(int hierLevelsFromBottom) {
+            return merge;
+        }
+    }
+
+    private static Map<String, List<String>> describe(Geometry.CellGeom cellGeom) {
+        Map<String, List<String>> shapes = new TreeMap<String, List<String>>();
+        for (Map.Entry<Layer, List<Object>> e : cellGeom.polyMap.entrySet()) {
+            List<String> descriptions = new ArrayList<String>();
+            for (Object obj : e.getValue()) {
+                StringBuilder sb = new StringBuilder();
+                for (Point2D p : ((PolyBase) obj).getPoints()) {
+                    sb.append(String.format(" (%.3f,%.3f)", p.getX(), p.getY()));
+                }
+                descriptions.add(sb.toString());
+            }
+            shapes.put(e.getKey().getName(), descriptions);
+        }
+        return shapes;
+    }
+
+    private NodeInst makeNode(String name, Cell cell, double x, double y, Orientation orient) {
+        PrimitiveNode np = tech.findNodeProto(name);
+        return NodeInst.makeInstance(np, ep, new Point2D.Double(x, y), np.getDefWidth(ep), np.getDefHeight(ep), cell, orient, null);
+    }
+
+    private void makeArc(String name, PortInst head, PortInst tail) {
+        assertNotNull(ArcInst.makeInstance(tech.findArcProto(name), ep, head, tail));
+    }
+
+    /**
+     * Method to make a cell with boxes and a diagonal arc on the same layers.
+     */
+    private Cell makeCell(Library lib) {
+        Cell cell = Cell.makeInstance(ep, lib, "geometryOrder{lay}");
+        PortInst con1 = makeNode("Metal-1-Metal-2-Con", cell, 0, 0, Orientation.IDENT).getOnlyPortInst();
+        PortInst con2 = makeNode("Metal-1-Metal-2-Con", cell, 40, 40, Orientation.RRR).getOnlyPortInst();
+        PortInst con3 = makeNode("Metal-1-Metal-2-Con", cell, 80, 40, Orientation.IDENT).getOnlyPortInst();
+        makeArc("Metal-1", con1, con2);
+        makeArc("Metal-2", con2, con3);
+        makeArc("Metal-1", con3, con1);
+        return cell;
+    }
+
+    /**
+     * Method to describe the shapes of a cell added node by node and arc by arc.
+     */
+    private static Map<String, List<String>> describeInOrder(Cell cell, boolean merge) {
+        Geometry.CellGeom cellGeom = new Geometry.CellGeom(cell, null);
+        for (Iterator<NodeInst> it = cell.getNodes(); it.hasNext();) {
+            NodeInst ni = it.next();
+            if (Generic.isCellCenter(ni)) {
+                continue;
+            }
+            cellGeom.addNodeInst(ni, ni.rotateOut());
+        }
+        for (Iterator<ArcInst> it = cell.getArcs(); it.hasNext();) {
+            cellGeom.addArcInst(it.next());
+        }
+        if (merge) {
+            cellGeom.mergeCellGeom();
+        }
+        return describe(cellGeom);
+    }
+
+    @Test
+    public void testOrderOfShapes() throws Exception {
+        Library lib = loadLibrary("testLib");
+        ep = new EditingPreferences(true, lib.getDatabase().getTechPool());
+        tech = Technology.findTechnology("mocmos");
+        Cell cell = makeCell(lib);
+
+        // shapes within a layer are in the order of nodes and arcs
+        RecordingGeometry geometry = new RecordingGeometry(false);
+        geometry.writeCell(cell, VarContext.globalContext);
+        assertTrue(geometry.shapes.get("Metal-1").size() > 3);
+        assertEquals(describeInOrder(cell, false), geometry.shapes);
+
+        // merged shapes don't depend on the order in which they were added
+        geometry = new RecordingGeometry(true);
+        geometry.writeCell(cell, VarContext.globalContext);
+        assertEquals(describeInOrder(cell, true), geometry.shapes);
+    }
+}
@@ -0,0 +1,61 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SpiceDeckFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.output;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.variable.VarContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Writing of Spice and CDL decks to temporary files, shared by the tests and benchmarks of the Spice writer.
+ */
+final class SpiceDeckFixture
+{
+	private SpiceDeckFixture() {}
+
+	/**
+	 * Method to write a deck of a cell without a date, and return its bytes.
+	 * @param cdl true to write CDL, false to write Spice.
+	 * @param numThreads the number of threads that write subcircuits.
+	 * @return the bytes of the deck.
+	 */
+	static byte [] writeDeck(Cell cell, boolean cdl, int numThreads) throws IOException
+	{
+		File file = File.createTempFile("spicetest", cdl ? ".cdl" : ".spi");
+		file.deleteOnExit();
+		new File(file.getPath() + "template").deleteOnExit();
+		EditingPreferences.lowLevelSetThreadLocalEditingPreferences(new EditingPreferences(true, cell.getDatabase().getTechPool()));
+		Spice.SpicePreferences prefs = new Spice.SpicePreferences(true, cdl);
+		prefs.includeDateAndVersionInOutput = false;
+		prefs.numWriterThreads = numThreads;
+		prefs.doOutput(cell, VarContext.globalContext, file.getPath());
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		byte [] bytes = new byte[(int)raf.length()];
+		raf.readFully(bytes);
+		raf.close();
+		return bytes;
+	}
+}
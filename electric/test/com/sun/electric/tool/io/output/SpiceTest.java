@@ -0,0 +1,199 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SpiceTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.io.output;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.database.hierarchy.Library;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.technology.technologies.Schematics;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of writing Spice and CDL subcircuits in parallel and of reusing unchanged subcircuits.
+ */
+public class SpiceTest extends AbstractJunitBaseClass
+{
+	private static final int NUMTHREADS = 4;
+
+	/**
+	 * Method to compare decks written serially and in parallel.
+	 */
+	private static void compareDecks(Cell cell, boolean cdl) throws Exception
+	{
+		// netlisting runs with the database locked for examining, as in an examine job
+		EDatabase database = cell.getDatabase();
+		database.backup();
+		database.unlock();
+		database.lock(false);
+
+		// generate every subcircuit rather than reusing earlier ones
+		Topology.clearCellCache();
+		byte [] serial = SpiceDeckFixture.writeDeck(cell, cdl, 1);
+		Topology.clearCellCache();
+		byte [] parallel = SpiceDeckFixture.writeDeck(cell, cdl, NUMTHREADS);
+
+		assertTrue(new String(serial, "UTF-8").contains(".ENDS"));
+		assertTrue("Parallel " + (cdl ? "CDL" : "Spice") + " deck of " + cell.describe(false) + " differs from serial deck",
+			Arrays.equals(serial, parallel));
+	}
+
+	@Test
+	public void testParallelLayoutSpice() throws Exception
+	{
+		Cell cell = loadCell("placementTests", "PlacementTest4");
+		assertNotNull(cell);
+		compareDecks(cell, false);
+	}
+
+	@Test
+	public void testParallelSchematicCDL() throws Exception
+	{
+		Cell cell = loadCell("placementTests", "PlacementTest3");
+		assertNotNull(cell);
+		compareDecks(cell, true);
+	}
+
+	/**
+	 * Cells with names that are too long for CDL are numbered,
+	 * and the numbers must not depend on the threads that write the subcircuits.
+	 */
+	@Test
+	public void testParallelLongNames() throws Exception
+	{
+		EDatabase database = EDatabase.serverDatabase();
+		database.lowLevelBeginChanging(null);
+		EditingPreferences ep = new EditingPreferences(true, database.getTechPool());
+		PrimitiveNode transistor = Schematics.tech().transistorNode;
+		Library lib = Library.newInstance("spiceLongNames", null);
+		Cell top = Cell.makeInstance(ep, lib, "top{sch}");
+		for (int i = 0; i < 6; i++)
+		{
+			Cell middle = Cell.makeInstance(ep, lib, "middle_cell_with_a_name_that_is_too_long_for_cdl_" + i + "{sch}");
+			NodeInst.makeInstance(transistor, ep, new Point2D.Double(0, 0), 0, 0, middle);
+			for (int j = 0; j < 2; j++)
+			{
+				Cell leaf = Cell.makeInstance(ep, lib, "leaf_cell_with_a_name_that_is_too_long_for_cdl_" + i + "_" + j + "{sch}");
+				NodeInst.makeInstance(transistor, ep, new Point2D.Double(0, 0), 0, 0, leaf);
+				NodeInst.makeInstance(leaf, ep, new Point2D.Double(20 * j, 20), 0, 0, middle);
+			}
+			NodeInst.makeInstance(middle, ep, new Point2D.Double(50 * i, 0), 0, 0, top);
+		}
+		database.backup();
+		database.unlock();
+		database.lock(false);
+
+		Topology.clearCellCache();
+		byte [] serial = SpiceDeckFixture.writeDeck(top, true, 1);
+		Topology.clearCellCache();
+		byte [] parallel = SpiceDeckFixture.writeDeck(top, true, NUMTHREADS);
+		String text = new String(serial, "UTF-8");
+		assertTrue(text.contains("-ID0"));
+		assertTrue(text.contains("-ID17"));
+		assertTrue("Parallel CDL deck with numbered names differs from serial deck", Arrays.equals(serial, parallel));
+	}
+
+	@Test
+	public void testCellCache() throws Exception
+	{
+		// a private copy of the library, because a node is renamed
+		Cell cell = loadCell("spiceCacheTest", "PlacementTest3", "/com/sun/electric/tool/util/test/testData/placementTests.jelib");
+		assertNotNull(cell);
+		Topology.clearCellCache();
+		byte [] first = SpiceDeckFixture.writeDeck(cell, true, 1);
+		Topology.CellTextCache cache = Topology.getCellTextCache(cell.getDatabase());
+		int numCached = cache.size();
+		assertTrue(numCached > 0);
+
+		// unchanged cells come from the cache
+		byte [] again = SpiceDeckFixture.writeDeck(cell, true, 1);
+		assertTrue(Arrays.equals(first, again));
+		assertEquals(numCached, cache.size());
+
+		// a changed leaf cell is written again
+		Cell leaf = cell.getLibrary().findNodeProto("NMOS-X_15-0-0{sch}");
+		assertNotNull(leaf);
+		NodeInst trans = leaf.findNode("mNMOSf@0");
+		assertNotNull(trans);
+		trans.setName("mChanged");
+		byte [] incremental = SpiceDeckFixture.writeDeck(cell, true, 1);
+		assertTrue(new String(incremental, "UTF-8").contains("mChanged"));
+		Topology.clearCellCache();
+		assertEquals(0, cache.size());
+		byte [] fresh = SpiceDeckFixture.writeDeck(cell, true, 1);
+		assertTrue("Deck written with cached subcircuits differs from a fresh deck", Arrays.equals(fresh, incremental));
+
+		// closing the library drops its cells
+		cell.getLibrary().kill("delete");
+		Cell other = loadCell("placementTests", "PlacementTest3");
+		assertNotNull(other);
+		SpiceDeckFixture.writeDeck(other, true, 1);
+		assertEquals(numCached, cache.size());
+	}
+
+	/**
+	 * The cache of cell text is bounded and drops the text of a netlister whose settings change.
+	 */
+	@Test
+	public void testCellTextCacheLimits() throws Exception
+	{
+		Topology.CellTextCache cache = new Topology.CellTextCache(10);
+		Cell cell = loadCell("placementTests", "PlacementTest3");
+		assertNotNull(cell);
+		EDatabase database = cell.getDatabase();
+		List<Object> deps = Arrays.<Object>asList("deps");
+		List<Object> keyA = Arrays.<Object>asList(Spice.class, "cdl", cell.getId(), "a");
+		List<Object> keyB = Arrays.<Object>asList(Spice.class, "cdl", cell.getId(), "b");
+		List<Object> keyC = Arrays.<Object>asList(Spice.class, "cdl", cell.getId(), "c");
+
+		cache.start(Spice.class, "cdl", database);
+		cache.put(keyA, deps, "aaaa");
+		cache.put(keyB, deps, "bbbb");
+		assertEquals("aaaa", cache.get(keyA, deps));
+		assertNull(cache.get(keyA, Arrays.<Object>asList("other")));
+
+		// the least recently used text goes first
+		cache.put(keyC, deps, "cccc");
+		assertEquals(2, cache.size());
+		assertNull(cache.get(keyB, deps));
+		assertEquals("aaaa", cache.get(keyA, deps));
+
+		// text larger than the whole cache is not kept
+		cache.put(keyB, deps, "bbbbbbbbbbbb");
+		assertNull(cache.get(keyB, deps));
+
+		// the same settings keep the text, other settings drop it
+		cache.start(Spice.class, "cdl", database);
+		assertEquals(2, cache.size());
+		cache.start(Spice.class, "spice", database);
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,88 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: IncrementalMetricTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.placement.metrics;
+
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNetwork;
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNode;
+import com.sun.electric.tool.placement.metrics.boundingbox.BBMetric;
+import com.sun.electric.tool.placement.metrics.boundingbox.IncrementalBBMetric;
+import com.sun.electric.tool.placement.metrics.mst.IncrementalMSTMetric;
+import com.sun.electric.tool.placement.metrics.mst.MSTMetric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of incremental metrics against the full metrics.
+ */
+public class IncrementalMetricTest {
+
+	private static final int NUMMOVES = 20000;
+
+	private final List<PlacementNode> nodes = new ArrayList<PlacementNode>();
+	private final List<PlacementNetwork> networks = new ArrayList<PlacementNetwork>();
+
+	private static void assertCost(double expected, IncrementalMetric metric) {
+		assertEquals(expected, metric.compute().doubleValue(), expected * 1e-9);
+		metric.update();
+		assertEquals(expected, metric.compute().doubleValue(), expected * 1e-9);
+	}
+
+	@Test
+	public void testBoundingBox() {
+		Random rand = new Random(1);
+		PlacementNetlistFixture.makeNetlist(rand, nodes, networks);
+		IncrementalMetric metric = new IncrementalBBMetric(nodes, networks);
+		double initial = new BBMetric(nodes, networks, null).compute().doubleValue();
+		assertCost(initial, metric);
+
+		PlacementNetlistFixture.anneal(metric, nodes, rand, NUMMOVES);
+		double improved = new BBMetric(nodes, networks, null).compute().doubleValue();
+		assertTrue(improved < initial);
+		assertCost(improved, metric);
+
+		// a rejected move restores the cost
+		PlacementNode node = nodes.get(0);
+		double delta = metric.tryMove(node, node.getPlacementX() + 100, node.getPlacementY() - 100);
+		assertEquals(improved + delta, metric.compute().doubleValue(), improved * 1e-9);
+		metric.reject();
+		assertEquals(improved, metric.compute().doubleValue(), improved * 1e-9);
+	}
+
+	@Test
+	public void testMinimalSpanningTree() {
+		Random rand = new Random(2);
+		PlacementNetlistFixture.makeNetlist(rand, nodes, networks);
+		IncrementalMetric metric = new IncrementalMSTMetric(nodes, networks);
+		double initial = new MSTMetric(nodes, networks, null).compute().doubleValue();
+		assertCost(initial, metric);
+
+		PlacementNetlistFixture.anneal(metric, nodes, rand, NUMMOVES);
+		double improved = new MSTMetric(nodes, networks, null).compute().doubleValue();
+		assertTrue(improved < initial);
+		assertCost(improved, metric);
+	}
+}
@@ -0,0 +1,107 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: PlacementNetlistFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.placement.metrics;
+
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNetwork;
+import com.sun.electric.tool.placement.PlacementFrame.PlacementNode;
+import com.sun.electric.tool.placement.PlacementFrame.PlacementPort;
+import com.sun.electric.util.math.Orientation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random placement netlist and moves, shared by the tests and benchmarks of the incremental metrics.
+ */
+final class PlacementNetlistFixture {
+
+	private static final int NUMNODES = 2000;
+	private static final int NUMNETS = 2500;
+
+	private static class TestNode extends PlacementNode {
+		private final List<PlacementPort> ports = new ArrayList<PlacementPort>();
+
+		@Override
+		public List<PlacementPort> getPorts() { return ports; }
+
+		@Override
+		public double getWidth() { return 4; }
+
+		@Override
+		public double getHeight() { return 4; }
+
+		@Override
+		public String getTypeName() { return "test"; }
+	}
+
+	private PlacementNetlistFixture() {}
+
+	/**
+	 * Method to make random nodes on a grid connected by random networks of 2 to 6 ports.
+	 * @param rand the source of the networks.
+	 * @param nodes the list to which the nodes are added.
+	 * @param networks the list to which the networks are added.
+	 */
+	static void makeNetlist(Random rand, List<PlacementNode> nodes, List<PlacementNetwork> networks) {
+		for (int i = 0; i < NUMNODES; i++) {
+			TestNode node = new TestNode();
+			node.setPlacement((i % 50) * 10, (i / 50) * 10);
+			nodes.add(node);
+		}
+		for (int i = 0; i < NUMNETS; i++) {
+			List<PlacementPort> ports = new ArrayList<PlacementPort>();
+			int numPorts = 2 + rand.nextInt(5);
+			for (int j = 0; j < numPorts; j++) {
+				TestNode node = (TestNode)nodes.get(rand.nextInt(NUMNODES));
+				PlacementPort port = new PlacementPort(rand.nextInt(5) - 2, rand.nextInt(5) - 2);
+				port.setPlacementNode(node);
+				node.ports.add(port);
+				ports.add(port);
+			}
+			PlacementNetwork net = new PlacementNetwork(ports, false);
+			for (PlacementPort port : ports)
+				port.setPlacementNetwork(net);
+			networks.add(net);
+		}
+		Orientation[] orients = {Orientation.IDENT, Orientation.R, Orientation.RR, Orientation.X};
+		for (int i = 0; i < NUMNODES; i++)
+			nodes.get(i).setOrientation(orients[i % orients.length]);
+	}
+
+	/**
+	 * Method to make random moves and swaps and to accept the ones which do not increase the cost.
+	 */
+	static void anneal(IncrementalMetric metric, List<PlacementNode> nodes, Random rand, int numMoves) {
+		for (int i = 0; i < numMoves; i++) {
+			PlacementNode node1 = nodes.get(rand.nextInt(nodes.size()));
+			double delta;
+			if (rand.nextBoolean()) {
+				delta = metric.trySwap(node1, nodes.get(rand.nextInt(nodes.size())));
+			} else {
+				delta = metric.tryMove(node1, node1.getPlacementX() + rand.nextInt(21) - 10,
+					node1.getPlacementY() + rand.nextInt(21) - 10);
+			}
+			if (delta <= 0) metric.accept(); else metric.reject();
+		}
+	}
+}
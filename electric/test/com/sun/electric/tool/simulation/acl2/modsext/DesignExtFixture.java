@@ -0,0 +1,137 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: DesignExtFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.modsext;
+
+import com.sun.electric.tool.simulation.acl2.mods.Address;
+import com.sun.electric.tool.simulation.acl2.mods.ModName;
+import com.sun.electric.tool.simulation.acl2.mods.Module;
+import com.sun.electric.tool.simulation.acl2.mods.Util;
+import static com.sun.electric.util.acl2.ACL2.*;
+import com.sun.electric.util.acl2.ACL2Object;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical design of xor cells in rows of different lengths, shared by the tests and benchmarks of elaboration.
+ */
+final class DesignExtFixture
+{
+    static final int NUMROWS = 16;
+    private static final int WIDTH = 8;
+
+    private DesignExtFixture()
+    {
+    }
+
+    /**
+     * Generator of modules of the test design.
+     * A cell xors its inputs, a row is a chain of cells, the top is a chain of rows.
+     */
+    private static class Generator extends ParameterizedModule
+    {
+        private Generator()
+        {
+            super("test", "");
+        }
+
+        @Override
+        protected Map<String, ACL2Object> matchModName(ModName modName)
+        {
+            return new HashMap<>();
+        }
+
+        private Module<Address> cell()
+        {
+            setCurBuilder(ModName.valueOf("cell"), null);
+            input("a", WIDTH);
+            input("b", WIDTH);
+            output("y", WIDTH);
+            assign("y", WIDTH, zext(q(WIDTH), bitxor(v("a"), v("b"))));
+            return getModule();
+        }
+
+        /**
+         * Method to generate a chain of instances.
+         */
+        private Module<Address> chain(String modName, String protoName, int length)
+        {
+            setCurBuilder(ModName.valueOf(modName), null);
+            input("in", WIDTH);
+            output("out", WIDTH);
+            for (int i = 1; i < length; i++)
+            {
+                wire("x" + i, WIDTH);
+            }
+            for (int i = 0; i < length; i++)
+            {
+                instance("i" + i, protoName(protoName, i));
+                conn(protoName.equals("cell") ? "a" : "in", i == 0 ? "in" : "x" + i, WIDTH);
+                if (protoName.equals("cell"))
+                {
+                    conn("b", "in", WIDTH);
+                }
+                conn(protoName.equals("cell") ? "y" : "out", i == length - 1 ? "out" : "x" + (i + 1), WIDTH);
+            }
+            return getModule();
+        }
+
+        private static String protoName(String protoName, int i)
+        {
+            return protoName.equals("cell") ? protoName : protoName + i;
+        }
+    }
+
+    /**
+     * Method to make a design whose top instantiates rows of different lengths.
+     */
+    static ACL2Object makeDesign()
+    {
+        Generator gen = new Generator();
+        List<ACL2Object> modules = new ArrayList<>();
+        modules.add(cons(ModName.valueOf("cell").getACL2Object(), gen.cell().getACL2Object()));
+        for (int i = 0; i < NUMROWS; i++)
+        {
+            String rowName = "row" + i;
+            modules.add(cons(ModName.valueOf(rowName).getACL2Object(), gen.chain(rowName, "cell", 8 + i * 2).getACL2Object()));
+        }
+        modules.add(cons(ModName.valueOf("top").getACL2Object(), gen.chain("top", "row", NUMROWS).getACL2Object()));
+        ACL2Object modalist = NIL;
+        for (int i = modules.size() - 1; i >= 0; i--)
+        {
+            modalist = cons(modules.get(i), modalist);
+        }
+        return cons(cons(Util.SV_MODALIST, modalist),
+            cons(cons(Util.SV_TOP, ModName.valueOf("top").getACL2Object()), NIL));
+    }
+
+    /**
+     * Method to elaborate a design and compute the combinational inputs of its modules.
+     */
+    static DesignExt elaborate(ACL2Object impl, int numThreads)
+    {
+        DesignExt design = new DesignExt(impl, new DesignHints.Dummy(), numThreads);
+        design.computeCombinationalInputs(null);
+        return design;
+    }
+}
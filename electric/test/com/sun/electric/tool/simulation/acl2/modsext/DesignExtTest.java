@@ -0,0 +1,92 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: DesignExtTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.modsext;
+
+import com.sun.electric.tool.simulation.acl2.mods.ModName;
+import com.sun.electric.tool.simulation.acl2.svex.SvexFunction;
+import com.sun.electric.util.acl2.ACL2Object;
+import java.util.ArrayList;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of elaboration of a hierarchical design by several threads.
+ */
+public class DesignExtTest
+{
+    private static final int NUMTHREADS = 4;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception
+    {
+        ACL2Object.initHonsMananger("DesignExtTest");
+        // the function table must be initialized before any function class
+        Class.forName(SvexFunction.class.getName());
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        ACL2Object.closeHonsManager();
+    }
+
+    @Test
+    public void testParallelElaboration()
+    {
+        ACL2Object impl = DesignExtFixture.makeDesign();
+        DesignExt serial = DesignExtFixture.elaborate(impl, 1);
+        DesignExt parallel = DesignExtFixture.elaborate(impl, NUMTHREADS);
+
+        assertEquals(DesignExtFixture.NUMROWS + 2, serial.downTop.size());
+        assertEquals(new ArrayList<>(serial.downTop.keySet()), new ArrayList<>(parallel.downTop.keySet()));
+        assertEquals(new ArrayList<>(serial.topDown.keySet()), new ArrayList<>(parallel.topDown.keySet()));
+        for (ModName modName : serial.downTop.keySet())
+        {
+            ModuleExt ms = serial.downTop.get(modName);
+            ModuleExt mp = parallel.downTop.get(modName);
+            assertEquals(ms.useCount, mp.useCount);
+            assertEquals(ms.exports.size(), mp.exports.size());
+            for (int i = 0; i < ms.exports.size(); i++)
+            {
+                ModExport es = ms.exports.get(i);
+                ModExport ep = mp.exports.get(i);
+                assertEquals(es == null, ep == null);
+                if (es != null)
+                {
+                    assertEquals(es.wire.getName(), ep.wire.getName());
+                    assertEquals(es.crudePortDeps0.toString(), ep.crudePortDeps0.toString());
+                    assertEquals(es.crudePortDeps1.toString(), ep.crudePortDeps1.toString());
+                    assertEquals(es.crudePortStateDep0, ep.crudePortStateDep0);
+                }
+            }
+            for (ModInstExt inst : mp.insts)
+            {
+                assertSame(parallel.downTop.get(inst.getModname()), inst.proto);
+            }
+        }
+        // the top output depends combinationally on the top input
+        ModuleExt top = parallel.downTop.get(parallel.getTop());
+        assertTrue(top.exports.get(1).crudePortDeps0.toString().contains("in"));
+    }
+}
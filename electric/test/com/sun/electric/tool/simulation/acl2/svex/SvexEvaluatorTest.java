@@ -0,0 +1,104 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SvexEvaluatorTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.svex;
+
+import com.sun.electric.tool.simulation.acl2.mods.Address;
+import com.sun.electric.tool.simulation.acl2.svex.funs.*;
+import com.sun.electric.util.acl2.ACL2Object;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of the compiled Svex evaluator against Svex.eval,
+ * in one evaluation and in cycle-by-cycle simulation of a sequential design.
+ */
+public class SvexEvaluatorTest
+{
+    private static final int NUMNODES = 5000;
+    private static final int NUMCYCLES = 20;
+
+    private final Random random = new Random(5);
+
+    @BeforeClass
+    public static void setUpClass()
+    {
+        ACL2Object.initHonsMananger("SvexEvaluatorTest");
+        // the function table must be initialized before any function class
+        SvexFunction.valueOf(FunctionSyms.SV_BITAND, 2);
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        ACL2Object.closeHonsManager();
+    }
+
+    @Test
+    public void testXeval()
+    {
+        SvexManager<Address> sm = new SvexManager<>();
+        Map<Svar<Address>, Svex<Address>> nextStates = SvexFixture.makeDesign(sm, NUMNODES, random, new ArrayList<>(), new ArrayList<>());
+        SvexEvaluator<Address> evaluator = new SvexEvaluator<>(nextStates.values());
+        evaluator.eval();
+        Map<Svex<Address>, Vec4> memoize = new HashMap<>();
+        for (Svex<Address> svex : Svex.listToposort(nextStates.values()))
+        {
+            svex.xeval(memoize);
+        }
+        for (Svex<Address> svex : nextStates.values())
+        {
+            assertEquals(svex.xeval(memoize), evaluator.getValue(svex));
+        }
+    }
+
+    @Test
+    public void testCycles()
+    {
+        SvexManager<Address> sm = new SvexManager<>();
+        List<Svar<Address>> states = new ArrayList<>();
+        List<Svar<Address>> inputs = new ArrayList<>();
+        Map<Svar<Address>, Svex<Address>> nextStates = SvexFixture.makeDesign(sm, NUMNODES, random, states, inputs);
+
+        // the same sequence of input values for both simulations
+        Vec4[][] stimulus = SvexFixture.makeStimulus(NUMCYCLES, random);
+        List<Map<Svar<Address>, Vec4>> expected = SvexFixture.simulateEval(nextStates, states, inputs, stimulus);
+        SvexEvaluator<Address> evaluator = new SvexEvaluator<>(nextStates.values());
+        List<Vec4[]> compiled = SvexFixture.simulateCompiled(evaluator, nextStates, states, inputs, stimulus);
+        for (int cycle = 0; cycle < NUMCYCLES; cycle++)
+        {
+            for (int i = 0; i < SvexFixture.NUMSTATES; i++)
+            {
+                assertEquals("cycle " + cycle, expected.get(cycle).get(states.get(i)), compiled.get(cycle)[i]);
+            }
+        }
+
+        // unchanged inputs don't evaluate their fanout again
+        assertTrue(evaluator.getNumEvaluated() < (long)NUMCYCLES * evaluator.getNumInstructions());
+    }
+}
@@ -0,0 +1,261 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SvexFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.svex;
+
+import com.sun.electric.tool.simulation.acl2.mods.Address;
+import com.sun.electric.tool.simulation.acl2.mods.Name;
+import com.sun.electric.tool.simulation.acl2.mods.Path;
+import com.sun.electric.tool.simulation.acl2.svex.funs.*;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Random svex DAGs and sequential designs with their simulation, shared by the tests and benchmarks of svex.
+ */
+final class SvexFixture
+{
+    /** number of 16-bit state variables of a design */
+    static final int NUMSTATES = 32;
+    /** number of 16-bit input variables of a design */
+    static final int NUMINPUTS = 8;
+
+    private SvexFixture()
+    {
+    }
+
+    /**
+     * Method to make a random svex DAG over constants of the given width and return it in topological order.
+     * @param sm the SvexManager of the nodes.
+     * @param width the width of the constants.
+     * @param size the number of nodes.
+     * @param random the source of constants and of the shape of the DAG.
+     * @return the nodes of the DAG.
+     */
+    static List<Svex<SvarName>> makeDag(SvexManager<SvarName> sm, int width, int size, Random random)
+    {
+        BigInteger m = BigInteger.ONE.shiftLeft(width).subtract(BigInteger.ONE);
+        List<Svex<SvarName>> nodes = new ArrayList<>();
+        for (int i = 0; i < 256; i++)
+        {
+            BigInteger u = new BigInteger(width, random);
+            nodes.add(SvexQuote.valueOf(random.nextInt(4) == 0 ? Vec4.valueOf(u, u.and(new BigInteger(width, random))) : Vec2.valueOf(u)));
+        }
+        Svex<SvarName> w = SvexQuote.valueOf(width);
+        Svex<SvarName> half = SvexQuote.valueOf(width / 2);
+        Svex<SvarName> maskQuote = SvexQuote.valueOf(m);
+        while (nodes.size() < size)
+        {
+            Svex<SvarName> x = nodes.get(nodes.size() - 1 - random.nextInt(Math.min(nodes.size(), 1000)));
+            Svex<SvarName> y = nodes.get(random.nextInt(nodes.size()));
+            Svex<SvarName> node;
+            switch (random.nextInt(8))
+            {
+                case 0:
+                    node = sm.newCall(Vec4Bitand.FUNCTION, x, y);
+                    break;
+                case 1:
+                    node = sm.newCall(Vec4Bitor.FUNCTION, x, y);
+                    break;
+                case 2:
+                    node = sm.newCall(Vec4Bitxor.FUNCTION, x, y);
+                    break;
+                case 3:
+                    node = sm.newCall(Vec4ZeroExt.FUNCTION, w, sm.newCall(Vec4Plus.FUNCTION, x, y));
+                    break;
+                case 4:
+                    node = sm.newCall(Vec4Concat.FUNCTION, half, x, sm.newCall(Vec4Rsh.FUNCTION, half, y));
+                    break;
+                case 5:
+                    node = sm.newCall(Vec4Ite.FUNCTION, sm.newCall(Vec4Lt.FUNCTION, x, y), x, y);
+                    break;
+                case 6:
+                    node = sm.newCall(Vec4Bitand.FUNCTION, maskQuote, sm.newCall(Vec4Bitnot.FUNCTION, x));
+                    break;
+                default:
+                    node = sm.newCall(Vec4Equality.FUNCTION, x, y);
+                    break;
+            }
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static Svar<Address> makeVar(SvexManager<Address> sm, String name)
+    {
+        return sm.getVar(Address.valueOf(Path.simplePath(Name.valueOf(name))));
+    }
+
+    /**
+     * Method to make next-state expressions of a random sequential design over 16-bit state and input variables.
+     * @param sm the SvexManager of the expressions.
+     * @param numNodes the number of nodes in the expressions.
+     * @param random the source of the shape of the expressions.
+     * @param states the list to which the state variables are added.
+     * @param inputs the list to which the input variables are added.
+     * @return the next-state expression of each state variable.
+     */
+    static Map<Svar<Address>, Svex<Address>> makeDesign(SvexManager<Address> sm, int numNodes, Random random,
+        List<Svar<Address>> states, List<Svar<Address>> inputs)
+    {
+        List<Svex<Address>> nodes = new ArrayList<>();
+        for (int i = 0; i < NUMSTATES; i++)
+        {
+            Svar<Address> svar = makeVar(sm, "s" + i);
+            states.add(svar);
+            nodes.add(sm.getSvex(svar));
+        }
+        for (int i = 0; i < NUMINPUTS; i++)
+        {
+            Svar<Address> svar = makeVar(sm, "in" + i);
+            inputs.add(svar);
+            nodes.add(sm.getSvex(svar));
+        }
+        Svex<Address> width = SvexQuote.valueOf(16);
+        Svex<Address> half = SvexQuote.valueOf(8);
+        Svex<Address> one = SvexQuote.valueOf(1);
+        while (nodes.size() < numNodes)
+        {
+            Svex<Address> x = nodes.get(nodes.size() - 1 - random.nextInt(Math.min(nodes.size(), 200)));
+            Svex<Address> y = nodes.get(random.nextInt(nodes.size()));
+            Svex<Address> node;
+            switch (random.nextInt(7))
+            {
+                case 0:
+                    node = sm.newCall(Vec4Bitand.FUNCTION, x, y);
+                    break;
+                case 1:
+                    node = sm.newCall(Vec4Bitor.FUNCTION, x, y);
+                    break;
+                case 2:
+                    node = sm.newCall(Vec4Bitxor.FUNCTION, x, y);
+                    break;
+                case 3:
+                    node = sm.newCall(Vec4ZeroExt.FUNCTION, width, sm.newCall(Vec4Plus.FUNCTION, x, one));
+                    break;
+                case 4:
+                    node = sm.newCall(Vec4Concat.FUNCTION, half, x, sm.newCall(Vec4Rsh.FUNCTION, half, y));
+                    break;
+                case 5:
+                    node = sm.newCall(Vec4Ite.FUNCTION, sm.newCall(Vec4Lt.FUNCTION, x, y), x, y);
+                    break;
+                default:
+                    node = sm.newCall(Vec4ZeroExt.FUNCTION, width, sm.newCall(Vec4Bitnot.FUNCTION, x));
+                    break;
+            }
+            nodes.add(node);
+        }
+        Map<Svar<Address>, Svex<Address>> nextStates = new LinkedHashMap<>();
+        for (int i = 0; i < NUMSTATES; i++)
+        {
+            nextStates.put(states.get(i), nodes.get(nodes.size() - 1 - random.nextInt(numNodes / 4)));
+        }
+        return nextStates;
+    }
+
+    /**
+     * Method to make a sequence of input values in which inputs keep their values for a few cycles.
+     * @param numCycles the number of cycles.
+     * @param random the source of the values.
+     * @return the value of each input in each cycle.
+     */
+    static Vec4[][] makeStimulus(int numCycles, Random random)
+    {
+        Vec4[][] stimulus = new Vec4[numCycles][NUMINPUTS];
+        for (int cycle = 0; cycle < numCycles; cycle++)
+        {
+            for (int i = 0; i < NUMINPUTS; i++)
+            {
+                stimulus[cycle][i] = cycle > 0 && random.nextInt(4) != 0 ? stimulus[cycle - 1][i]
+                    : random.nextInt(20) == 0 ? Vec4.X : Vec2.valueOf(random.nextInt(1 << 16));
+            }
+        }
+        return stimulus;
+    }
+
+    /**
+     * Method to simulate a design with Svex.eval, starting with zero states.
+     * @return the next states of each cycle.
+     */
+    static List<Map<Svar<Address>, Vec4>> simulateEval(Map<Svar<Address>, Svex<Address>> nextStates,
+        List<Svar<Address>> states, List<Svar<Address>> inputs, Vec4[][] stimulus)
+    {
+        Map<Svar<Address>, Vec4> env = new HashMap<>();
+        for (Svar<Address> svar : states)
+        {
+            env.put(svar, Vec2.ZERO);
+        }
+        List<Map<Svar<Address>, Vec4>> trace = new ArrayList<>();
+        for (Vec4[] values : stimulus)
+        {
+            for (int i = 0; i < NUMINPUTS; i++)
+            {
+                env.put(inputs.get(i), values[i]);
+            }
+            Map<Svar<Address>, Vec4> next = new HashMap<>();
+            for (Map.Entry<Svar<Address>, Svex<Address>> e : nextStates.entrySet())
+            {
+                next.put(e.getKey(), e.getValue().eval(env));
+            }
+            env.putAll(next);
+            trace.add(next);
+        }
+        return trace;
+    }
+
+    /**
+     * Method to simulate a design with a compiled evaluator, starting with zero states.
+     * @return the next states of each cycle, in the order of the state variables.
+     */
+    static List<Vec4[]> simulateCompiled(SvexEvaluator<Address> evaluator, Map<Svar<Address>, Svex<Address>> nextStates,
+        List<Svar<Address>> states, List<Svar<Address>> inputs, Vec4[][] stimulus)
+    {
+        for (Svar<Address> svar : states)
+        {
+            evaluator.setInput(svar, Vec2.ZERO);
+        }
+        List<Vec4[]> trace = new ArrayList<>();
+        for (Vec4[] values : stimulus)
+        {
+            for (int i = 0; i < NUMINPUTS; i++)
+            {
+                evaluator.setInput(inputs.get(i), values[i]);
+            }
+            evaluator.eval();
+            Vec4[] next = new Vec4[states.size()];
+            for (int i = 0; i < next.length; i++)
+            {
+                next[i] = evaluator.getValue(nextStates.get(states.get(i)));
+            }
+            for (int i = 0; i < next.length; i++)
+            {
+                evaluator.setInput(states.get(i), next[i]);
+            }
+            trace.add(next);
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,445 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: Vec4Test.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.acl2.svex;
+
+import com.sun.electric.tool.simulation.acl2.svex.funs.*;
+import com.sun.electric.util.acl2.ACL2Object;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of 4vecs backed by longs against BigInteger definitions of svex functions,
+ * and of evaluating a random svex DAG.
+ */
+public class Vec4Test
+{
+    private static final long[] SPECIAL =
+    {
+        0, 1, -1, 2, -2, 63, 64, 100, Integer.MAX_VALUE, Integer.MIN_VALUE, 1L << 32, (1L << 32) - 1,
+        Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE + 1, 1L << 62, -(1L << 62)
+    };
+
+    private static final int DAG_SIZE = 5000;
+
+    private final Random random = new Random(17);
+
+    @BeforeClass
+    public static void setUpClass()
+    {
+        ACL2Object.initHonsMananger("Vec4Test");
+        // the function table must be initialized before any function class
+        SvexFunction.valueOf(FunctionSyms.SV_BITAND, 2);
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        ACL2Object.closeHonsManager();
+    }
+
+    private long randomLong()
+    {
+        switch (random.nextInt(4))
+        {
+            case 0:
+                return SPECIAL[random.nextInt(SPECIAL.length)];
+            case 1:
+                return random.nextInt(256) - 128;
+            case 2:
+                return random.nextInt();
+            default:
+                return random.nextLong();
+        }
+    }
+
+    private Vec4 randomVec4()
+    {
+        long u = randomLong();
+        switch (random.nextInt(3))
+        {
+            case 0:
+                return Vec2.valueOf(u);
+            case 1:
+                return Vec4.valueOf(u, u & randomLong());
+            default:
+                return Vec4.valueOf(u, randomLong());
+        }
+    }
+
+    private static BigInteger mask(int n)
+    {
+        return BigInteger.ONE.shiftLeft(n).subtract(BigInteger.ONE);
+    }
+
+    private static Vec4 fix3(Vec4 x)
+    {
+        return Vec4.valueOf(x.getUpper().or(x.getLower()), x.getUpper().and(x.getLower()));
+    }
+
+    private static Vec4 eqRef(Vec4 x, Vec4 y, BigInteger zMask)
+    {
+        BigInteger xMask = x.getUpper().xor(x.getLower()).or(y.getUpper().xor(y.getLower()));
+        BigInteger u = x.getLower().xor(y.getLower()).andNot(xMask).not().or(zMask);
+        BigInteger l = x.getUpper().xor(y.getUpper()).or(xMask).not().or(zMask);
+        if (l.equals(u))
+        {
+            return Vec2.valueOf(u.equals(BigIntegerUtil.MINUS_ONE));
+        }
+        return u.equals(BigIntegerUtil.MINUS_ONE) ? Vec4.X : Vec2.ZERO;
+    }
+
+    private static Vec4 signExt(int w, BigInteger u, BigInteger l)
+    {
+        BigInteger pow = BigInteger.ONE.shiftLeft(w - 1);
+        BigInteger um = u.and(pow.subtract(BigInteger.ONE));
+        BigInteger lm = l.and(pow.subtract(BigInteger.ONE));
+        return Vec4.valueOf(u.testBit(w - 1) ? um.subtract(pow) : um, l.testBit(w - 1) ? lm.subtract(pow) : lm);
+    }
+
+    /**
+     * Method to compute a svex function by its definition on BigIntegers.
+     */
+    private static Vec4 reference(SvexFunction fun, Vec4[] a)
+    {
+        BigInteger xu = a[0].getUpper();
+        BigInteger xl = a[0].getLower();
+        BigInteger yu = a.length > 1 ? a[1].getUpper() : null;
+        BigInteger yl = a.length > 1 ? a[1].getLower() : null;
+        boolean vec2 = a[0].isVec2() && (a.length < 2 || a[1].isVec2());
+        if (fun == Vec4Bitand.FUNCTION)
+        {
+            Vec4 x = fix3(a[0]), y = fix3(a[1]);
+            return Vec4.valueOf(x.getUpper().and(y.getUpper()), x.getLower().and(y.getLower()));
+        }
+        if (fun == Vec4Bitor.FUNCTION)
+        {
+            Vec4 x = fix3(a[0]), y = fix3(a[1]);
+            return Vec4.valueOf(x.getUpper().or(y.getUpper()), x.getLower().or(y.getLower()));
+        }
+        if (fun == Vec4Bitnot.FUNCTION)
+        {
+            Vec4 x = fix3(a[0]);
+            return Vec4.valueOf(x.getLower().not(), x.getUpper().not());
+        }
+        if (fun == Vec4Bitxor.FUNCTION)
+        {
+            BigInteger xmask = xu.xor(xl).or(yu.xor(yl));
+            return Vec4.valueOf(xu.xor(yu).or(xmask), xl.xor(yl).andNot(xmask));
+        }
+        if (fun == Vec4Res.FUNCTION)
+        {
+            return Vec4.valueOf(xu.or(yu), xl.and(yl));
+        }
+        if (fun == Vec4Resand.FUNCTION)
+        {
+            return Vec4.valueOf(xu.or(xl).and(yu.or(yl)).and(xu.or(yu)), xl.and(yl));
+        }
+        if (fun == Vec4Resor.FUNCTION)
+        {
+            return Vec4.valueOf(xu.or(yu), xu.and(xl).or(yu.and(yl)).or(xl.and(yl)));
+        }
+        if (fun == Vec4Override.FUNCTION)
+        {
+            return Vec4.valueOf(xl.and(yu).or(xu), xu.or(yl).and(xl));
+        }
+        if (fun == Vec4Onset.FUNCTION)
+        {
+            return Vec4.valueOf(xu, xu.and(xl));
+        }
+        if (fun == Vec4Offset.FUNCTION)
+        {
+            return Vec4.valueOf(xl.not(), xu.or(xl).not());
+        }
+        if (fun == Vec4ReductionAnd.FUNCTION)
+        {
+            Vec4 x = fix3(a[0]);
+            if (x.isVec2())
+            {
+                return Vec2.valueOf(xu.equals(BigIntegerUtil.MINUS_ONE));
+            }
+            return x.getUpper().equals(BigIntegerUtil.MINUS_ONE) ? Vec4.X : Vec2.ZERO;
+        }
+        if (fun == Vec4ReductionOr.FUNCTION)
+        {
+            Vec4 x = fix3(a[0]);
+            if (x.isVec2())
+            {
+                return Vec2.valueOf(xu.signum() != 0);
+            }
+            return x.getLower().signum() == 0 ? Vec4.X : Vec2.ONE;
+        }
+        if (fun == Vec4CaseEquality.FUNCTION)
+        {
+            return Vec2.valueOf(xu.equals(yu) && xl.equals(yl));
+        }
+        if (fun == Vec4Equality.FUNCTION)
+        {
+            return eqRef(a[0], a[1], BigInteger.ZERO);
+        }
+        if (fun == Vec4Wildeq.FUNCTION)
+        {
+            return eqRef(a[0], a[1], yu.xor(yl));
+        }
+        if (fun == Vec4WildeqSafe.FUNCTION)
+        {
+            return eqRef(a[0], a[1], yl.andNot(yu));
+        }
+        if (fun == Vec4Symwildeq.FUNCTION)
+        {
+            return eqRef(a[0], a[1], yl.andNot(yu).or(xl.andNot(xu)));
+        }
+        if (fun == Vec4Plus.FUNCTION)
+        {
+            return vec2 ? Vec2.valueOf(xu.add(yu)) : Vec4.X;
+        }
+        if (fun == Vec4Minus.FUNCTION)
+        {
+            return vec2 ? Vec2.valueOf(xu.subtract(yu)) : Vec4.X;
+        }
+        if (fun == Vec4Times.FUNCTION)
+        {
+            return vec2 ? Vec2.valueOf(xu.multiply(yu)) : Vec4.X;
+        }
+        if (fun == Vec4Quotient.FUNCTION)
+        {
+            return vec2 && yu.signum() != 0 ? Vec2.valueOf(xu.divide(yu)) : Vec4.X;
+        }
+        if (fun == Vec4Remainder.FUNCTION)
+        {
+            return vec2 && yu.signum() != 0 ? Vec2.valueOf(xu.remainder(yu)) : Vec4.X;
+        }
+        if (fun == Vec4Lt.FUNCTION)
+        {
+            return vec2 ? Vec2.valueOf(xu.compareTo(yu) < 0) : Vec4.X;
+        }
+        if (fun == Vec4Uminus.FUNCTION)
+        {
+            return vec2 ? Vec2.valueOf(xu.negate()) : Vec4.X;
+        }
+        if (fun == Vec4Countones.FUNCTION)
+        {
+            return vec2 && xu.signum() >= 0 ? Vec2.valueOf(xu.bitCount()) : Vec4.X;
+        }
+        if (fun == Vec4Onehot.FUNCTION)
+        {
+            return vec2 && xu.signum() >= 0 ? Vec2.valueOf(xu.bitCount() == 1) : Vec4.X;
+        }
+        if (fun == Vec4Onehot0.FUNCTION)
+        {
+            return vec2 && xu.signum() >= 0 ? Vec2.valueOf(xu.bitCount() <= 1) : Vec4.X;
+        }
+        if (fun == Vec4Parity.FUNCTION)
+        {
+            return vec2 && xu.signum() >= 0 ? Vec2.valueOf((xu.bitCount() & 1) != 0) : Vec4.X;
+        }
+        if (fun == Vec4Clog2.FUNCTION)
+        {
+            return vec2 ? Vec2.valueOf(xu.subtract(BigInteger.ONE).bitLength()) : Vec4.X;
+        }
+        throw new AssertionError(fun.applyFn);
+    }
+
+    /**
+     * Method to compute a svex function with a small width argument by its definition on BigIntegers.
+     */
+    private static Vec4 referenceWidth(SvexFunction fun, int w, Vec4[] a)
+    {
+        BigInteger xu = a[0].getUpper();
+        BigInteger xl = a[0].getLower();
+        if (fun == Vec4ZeroExt.FUNCTION)
+        {
+            return Vec4.valueOf(xu.and(mask(w)), xl.and(mask(w)));
+        }
+        if (fun == Vec4SignExt.FUNCTION)
+        {
+            return w > 0 ? signExt(w, xu, xl) : Vec4.X;
+        }
+        if (fun == Vec4Concat.FUNCTION)
+        {
+            return Vec4.valueOf(xu.and(mask(w)).or(a[1].getUpper().shiftLeft(w)),
+                xl.and(mask(w)).or(a[1].getLower().shiftLeft(w)));
+        }
+        if (fun == Vec4Rsh.FUNCTION)
+        {
+            return Vec4.valueOf(xu.shiftRight(w), xl.shiftRight(w));
+        }
+        if (fun == Vec4Lsh.FUNCTION)
+        {
+            return Vec4.valueOf(xu.shiftLeft(w), xl.shiftLeft(w));
+        }
+        if (fun == Vec4BitExtract.FUNCTION)
+        {
+            return Vec4.valueOf(xu.testBit(w) ? BigInteger.ONE : BigInteger.ZERO, xl.testBit(w) ? BigInteger.ONE : BigInteger.ZERO);
+        }
+        throw new AssertionError(fun.applyFn);
+    }
+
+    private void checkResult(SvexFunction fun, Vec4 expected, Vec4... args)
+    {
+        Vec4 result = fun.apply(args);
+        String msg = fun.applyFn + java.util.Arrays.toString(args);
+        assertEquals(msg, expected, result);
+        assertEquals(msg, expected.hashCode(), result.hashCode());
+        assertEquals(msg, expected.getUpper(), result.getUpper());
+        assertEquals(msg, expected.getLower(), result.getLower());
+    }
+
+    @Test
+    public void testRepresentation()
+    {
+        for (long v : SPECIAL)
+        {
+            BigInteger bv = BigInteger.valueOf(v);
+            Vec2 vec2 = Vec2.valueOf(v);
+            assertTrue(vec2.isLong());
+            assertEquals(vec2, Vec2.valueOf(bv));
+            assertEquals(bv.hashCode(), vec2.hashCode());
+            assertEquals(bv, vec2.getVal());
+            assertEquals(bv.toString(), vec2.toString());
+            Vec4 vec4 = Vec4.valueOf(bv, bv.not());
+            assertTrue(vec4.isLong());
+            assertEquals(Vec4.valueOf(v, ~v), vec4);
+            assertEquals(Vec4.valueOf(v, ~v).hashCode(), vec4.hashCode());
+        }
+        BigInteger big = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        assertFalse(Vec2.valueOf(big).isLong());
+        assertFalse(Vec4.valueOf(big, BigInteger.ZERO).isLong());
+        assertSame(Vec2.valueOf(big), Vec2.valueOf(big));
+        assertSame(Vec2.ZERO, Vec2.valueOf(BigInteger.ZERO));
+        assertEquals(Vec2.ONE, Vec4.valueOf(1L, 1L));
+        assertTrue(Vec4.X.isLong());
+    }
+
+    @Test
+    public void testLongFunctions()
+    {
+        SvexFunction[] unary =
+        {
+            Vec4Bitnot.FUNCTION, Vec4Onset.FUNCTION, Vec4Offset.FUNCTION, Vec4ReductionAnd.FUNCTION, Vec4ReductionOr.FUNCTION,
+            Vec4Uminus.FUNCTION, Vec4Countones.FUNCTION, Vec4Onehot.FUNCTION, Vec4Onehot0.FUNCTION, Vec4Parity.FUNCTION,
+            Vec4Clog2.FUNCTION
+        };
+        SvexFunction[] binary =
+        {
+            Vec4Bitand.FUNCTION, Vec4Bitor.FUNCTION, Vec4Bitxor.FUNCTION, Vec4Res.FUNCTION, Vec4Resand.FUNCTION,
+            Vec4Resor.FUNCTION, Vec4Override.FUNCTION, Vec4CaseEquality.FUNCTION, Vec4Equality.FUNCTION, Vec4Wildeq.FUNCTION,
+            Vec4WildeqSafe.FUNCTION, Vec4Symwildeq.FUNCTION, Vec4Plus.FUNCTION, Vec4Minus.FUNCTION, Vec4Times.FUNCTION,
+            Vec4Quotient.FUNCTION, Vec4Remainder.FUNCTION, Vec4Lt.FUNCTION
+        };
+        for (int i = 0; i < 20000; i++)
+        {
+            Vec4 x = randomVec4();
+            Vec4 y = randomVec4();
+            if (random.nextInt(3) == 0)
+            {
+                x = Vec2.valueOf(x.getUpperLong());
+                y = Vec2.valueOf(y.getUpperLong());
+            }
+            for (SvexFunction fun : unary)
+            {
+                checkResult(fun, reference(fun, new Vec4[]
+                {
+                    x
+                }), x);
+            }
+            for (SvexFunction fun : binary)
+            {
+                checkResult(fun, reference(fun, new Vec4[]
+                {
+                    x, y
+                }), x, y);
+            }
+            int w = random.nextInt(130);
+            Vec2 wv = Vec2.valueOf(w);
+            checkResult(Vec4ZeroExt.FUNCTION, referenceWidth(Vec4ZeroExt.FUNCTION, w, new Vec4[]
+            {
+                x
+            }), wv, x);
+            checkResult(Vec4SignExt.FUNCTION, referenceWidth(Vec4SignExt.FUNCTION, w, new Vec4[]
+            {
+                x
+            }), wv, x);
+            checkResult(Vec4Concat.FUNCTION, referenceWidth(Vec4Concat.FUNCTION, w, new Vec4[]
+            {
+                x, y
+            }), wv, x, y);
+            checkResult(Vec4Rsh.FUNCTION, referenceWidth(Vec4Rsh.FUNCTION, w, new Vec4[]
+            {
+                x
+            }), wv, x);
+            checkResult(Vec4Lsh.FUNCTION, referenceWidth(Vec4Lsh.FUNCTION, w, new Vec4[]
+            {
+                x
+            }), wv, x);
+            checkResult(Vec4BitExtract.FUNCTION, referenceWidth(Vec4BitExtract.FUNCTION, w, new Vec4[]
+            {
+                x
+            }), wv, x);
+            int lsb = random.nextInt(70);
+            BigInteger m = mask(w);
+            checkResult(Vec4PartSelect.FUNCTION, Vec4.valueOf(x.getUpper().shiftRight(lsb).and(m), x.getLower().shiftRight(lsb).and(m)),
+                Vec2.valueOf(lsb), wv, x);
+            BigInteger ms = m.shiftLeft(lsb);
+            checkResult(Vec4PartInstall.FUNCTION, Vec4.valueOf(
+                x.getUpper().andNot(ms).or(y.getUpper().shiftLeft(lsb).and(ms)),
+                x.getLower().andNot(ms).or(y.getLower().shiftLeft(lsb).and(ms))),
+                Vec2.valueOf(lsb), wv, x, y);
+            Vec4 z = randomVec4();
+            Vec4 test = fix3(z);
+            Vec4 ite = test.getUpper().signum() == 0 ? y : test.getLower().signum() != 0 ? x
+                : Vec4.valueOf(x.getUpper().or(y.getUpper()).or(x.getLower()).or(y.getLower()),
+                    x.getUpper().and(y.getUpper()).and(x.getLower()).and(y.getLower()));
+            checkResult(Vec4Ite.FUNCTION, ite, z, x, y);
+            BigInteger tu = test.getUpper(), tl = test.getLower(), testX = tu.andNot(tl);
+            checkResult(Vec4IteBit.FUNCTION, Vec4.valueOf(
+                x.getUpper().and(tl).or(y.getUpper().andNot(tu)).or(testX.and(x.getUpper().or(x.getLower()).or(y.getUpper()).or(y.getLower()))),
+                x.getLower().and(tl).or(y.getLower().andNot(tu)).or(testX.and(x.getUpper()).and(x.getLower()).and(y.getUpper()).and(y.getLower()))),
+                z, x, y);
+            int e = random.nextInt(70) - 5;
+            long b = random.nextInt(7) - 3;
+            Vec4 pow = e >= 0 ? Vec2.valueOf(BigInteger.valueOf(b).pow(e)) : Math.abs(b) == 1 ? Vec2.valueOf((e & 1) != 0 ? b : 1)
+                : b != 0 ? Vec2.ZERO : Vec4.X;
+            checkResult(Vec4Pow.FUNCTION, pow, Vec2.valueOf(b), Vec2.valueOf(e));
+        }
+    }
+
+    @Test
+    public void testXevalDag()
+    {
+        SvexManager<SvarName> sm = new SvexManager<>();
+        List<Svex<SvarName>> narrow = SvexFixture.makeDag(sm, 32, DAG_SIZE, random);
+        Map<Svex<SvarName>, Vec4> narrowMemo = new HashMap<>();
+        for (Svex<SvarName> node : narrow)
+        {
+            Vec4 val = node.xeval(narrowMemo);
+            assertNotNull(val);
+            assertTrue(val.isLong());
+        }
+    }
+}
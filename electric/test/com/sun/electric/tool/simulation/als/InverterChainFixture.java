@@ -0,0 +1,129 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: InverterChainFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.als;
+
+import com.sun.electric.tool.simulation.Stimuli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generated ALS netlists of inverter chains driven by one clock, shared by the tests and benchmarks of the simulator.
+ */
+final class InverterChainFixture
+{
+	private static final String [] INVERTER =
+	{
+		"gate inverter(a,z)",
+		"t: delta=1.33e-9",
+		"i: a=L o: z=H",
+		"t: delta=1.07e-9",
+		"i: a=H o: z=L",
+		"t: delta=0",
+		"i: a=X o: z=X",
+		"load: a=1.0"
+	};
+
+	private InverterChainFixture() {}
+
+	/**
+	 * Method to build an ALS netlist with "chains" inverter chains of "depth" stages, all driven by "clk".
+	 * Stage d of chain c drives node "n<c>x<d>".
+	 */
+	private static String [] makeChains(int chains, int depth)
+	{
+		List<String> netlist = new ArrayList<String>();
+		for(String s : INVERTER) netlist.add(s);
+		netlist.add("model bench(clk)");
+		for(int c=0; c<chains; c++)
+		{
+			String prev = "clk";
+			for(int d=1; d<=depth; d++)
+			{
+				String next = "n" + c + "x" + d;
+				netlist.add("i" + c + "x" + d + ": inverter(" + prev + "," + next + ")");
+				prev = next;
+			}
+		}
+		return netlist.toArray(new String[netlist.size()]);
+	}
+
+	/**
+	 * Method to find an exported node of the top cell of the loaded netlist.
+	 * @return the node, or null if there is no export of that name.
+	 */
+	static ALS.Node findNode(ALS als, String name)
+	{
+		for(ALS.ALSExport e : als.cellRoot.next.exList)
+		{
+			if (((String)e.nodeName).equalsIgnoreCase(name)) return e.nodePtr;
+		}
+		return null;
+	}
+
+	/**
+	 * Method to load the inverter chains and put a clock of the given period and number of cycles on "clk".
+	 */
+	static ALS load(int chains, int depth, double period, int cycles)
+	{
+		ALS als = new ALS(null);
+		als.init();
+		als.eraseModel();
+		if (als.readNetDesc(makeChains(chains, depth))) throw new IllegalStateException("Cannot read the inverter chains");
+		if (als.theFlat.flattenNetwork("bench")) throw new IllegalStateException("Cannot flatten the inverter chains");
+
+		ALS.Node clk = findNode(als, "clk");
+		if (clk == null) throw new IllegalStateException("No clock in the inverter chains");
+
+		ALS.Link high = new ALS.Link();
+		high.type = 'N';
+		high.ptr = clk;
+		high.state = Integer.valueOf(Stimuli.LOGIC_HIGH);
+		high.strength = Stimuli.VDD_STRENGTH;
+		high.priority = 1;
+		high.time = period / 2.0;
+
+		ALS.Link low = new ALS.Link();
+		low.type = 'N';
+		low.ptr = clk;
+		low.state = Integer.valueOf(Stimuli.LOGIC_LOW);
+		low.strength = Stimuli.VDD_STRENGTH;
+		low.priority = 1;
+		low.time = period / 2.0;
+
+		ALS.Row clokHead = new ALS.Row();
+		clokHead.inList = new ArrayList<Object>();
+		clokHead.inList.add(high);
+		clokHead.inList.add(low);
+		clokHead.outList = new ArrayList<Object>();
+		clokHead.delta = period;
+
+		ALS.Link setHead = new ALS.Link();
+		setHead.type = 'C';
+		setHead.ptr = clokHead;
+		setHead.state = Integer.valueOf(cycles);
+		setHead.priority = 1;
+		setHead.time = 0;
+		als.insertSetList(setHead);
+		return als;
+	}
+}
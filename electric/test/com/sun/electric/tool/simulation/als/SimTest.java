@@ -0,0 +1,89 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: SimTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.simulation.als;
+
+import com.sun.electric.tool.simulation.Stimuli;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the ALS event engine on a generated gate netlist.
+ */
+public class SimTest
+{
+	@Test
+	public void testInverterChains()
+	{
+		int chains = 4, depth = 25;
+		ALS als = InverterChainFixture.load(chains, depth, 200e-9, 3);
+		Sim sim = als.getSim();
+		sim.simulate(Double.MAX_VALUE);
+
+		// the clock ends low, so every odd stage is high and every even stage is low
+		assertEquals(Stimuli.LOGIC_LOW, sim.getSumState(InverterChainFixture.findNode(als, "clk")));
+		for(int c=0; c<chains; c++)
+		{
+			for(int d=1; d<=depth; d++)
+			{
+				int expected = (d % 2) != 0 ? Stimuli.LOGIC_HIGH : Stimuli.LOGIC_LOW;
+				assertEquals("n" + c + "x" + d, expected, sim.getSumState(InverterChainFixture.findNode(als, "n" + c + "x" + d)));
+			}
+		}
+	}
+
+	@Test
+	public void testEventOrder()
+	{
+		EventQueue queue = new EventQueue();
+		queue.add('N', "c", (char)0, 0, 0, 1, 2.0);
+		queue.add('N', "a", (char)0, 0, 0, 2, 1.0);
+		queue.add('N', "e", (char)0, 0, 0, 1, 3.0);
+		queue.add('N', "b", (char)0, 0, 0, 2, 1.0);
+		queue.add('N', "d", (char)0, 0, 0, 2, 2.0);
+		queue.add('N', "0", (char)0, 0, 0, 1, 1.0);
+		queue.add('N', "f", (char)0, 0, 0, 1, 3.0);
+
+		// events come out by time, then priority, then scheduling order
+		StringBuilder order = new StringBuilder();
+		while (!queue.isEmpty())
+		{
+			int slot = queue.poll();
+			order.append(queue.ptr[slot]);
+			queue.release(slot);
+			if (order.length() == 2) queue.add('N', "A", (char)0, 0, 0, 0, 1.0);
+		}
+		assertEquals("0aAbcdef", order.toString());
+	}
+
+	@Test
+	public void testEventCount()
+	{
+		int chains = 4, depth = 25, cycles = 10;
+		ALS als = InverterChainFixture.load(chains, depth, 400e-9, cycles);
+		Sim sim = als.getSim();
+		sim.simulate(Double.MAX_VALUE);
+
+		// every stage switches twice in each cycle
+		assertTrue(sim.getEventCount() > (long)chains * depth * cycles);
+	}
+}
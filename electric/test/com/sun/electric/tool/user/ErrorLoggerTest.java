@@ -0,0 +1,174 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ErrorLoggerTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.user;
+
+import com.sun.electric.database.geometry.EPoint;
+import com.sun.electric.database.id.CellId;
+import com.sun.electric.database.id.IdManager;
+import com.sun.electric.database.id.LibId;
+import com.sun.electric.database.text.CellName;
+import com.sun.electric.tool.Job;
+import com.sun.electric.tool.user.ErrorLogger.MessageLog;
+import com.sun.electric.tool.user.ErrorLogger.WarningLog;
+import com.sun.electric.tool.util.test.TstUserInterface;
+
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test of the disk-backed ErrorLogger against the in-memory ErrorLogger.
+ */
+public class ErrorLoggerTest {
+
+    private static final int NUMLOGS = 20000;
+    private static final int NUMCELLS = 3;
+    private static final int NUMGROUPS = 4;
+
+    private static CellId[] cellIds = new CellId[NUMCELLS];
+
+    @BeforeClass
+    public static void setUpClass() {
+        Job.setUserInterface(new TstUserInterface());
+        IdManager idManager = new IdManager();
+        LibId libId = idManager.newLibId("lib");
+        for (int i = 0; i < NUMCELLS; i++)
+            cellIds[i] = libId.newCellId(CellName.parseName("cell" + i + ";1{lay}"));
+    }
+
+    /**
+     * Method to make errors and warnings with point highlights in several cells.
+     * Messages with the same sort key are logged in lexicographic order.
+     */
+    private static List<MessageLog> makeLogs() {
+        List<MessageLog> logs = new ArrayList<MessageLog>();
+        for (int i = 0; i < NUMLOGS; i++) {
+            CellId cellId = cellIds[i % NUMCELLS];
+            String message = String.format("message %06d in cell %d", i, i % NUMCELLS);
+            List<ErrorHighlight> highlights = new ArrayList<ErrorHighlight>();
+            highlights.add(ErrorHighlight.newInstance(cellId, EPoint.fromLambda(i % 100, i / 100)));
+            highlights.add(ErrorHighlight.newInstance(cellId, EPoint.fromLambda(i % 100, i / 100),
+                EPoint.fromLambda(i % 100 + 2, i / 100 + 1), true));
+            int sortKey = NUMGROUPS - 1 - i % NUMGROUPS;
+            logs.add(i % 5 == 0 ? new WarningLog(message, cellId, sortKey, highlights)
+                : new MessageLog(message, cellId, sortKey, highlights));
+        }
+        return logs;
+    }
+
+    private static ErrorLogger makeLogger(boolean diskBacked) {
+        ErrorLogger logger = ErrorLogger.newInstance("test", false, diskBacked);
+        for (int i = 0; i < NUMGROUPS; i++)
+            logger.setGroupName(i, "group " + i);
+        logger.addMessages(makeLogs());
+        logger.sortLogs();
+        logger.termLogging_(true);
+        return logger;
+    }
+
+    private static List<String> messages(Iterator<MessageLog> it) {
+        List<String> messages = new ArrayList<String>();
+        while (it.hasNext())
+            messages.add(it.next().getMessageString());
+        return messages;
+    }
+
+    private static List<String> messages(List<MessageLog> logs) {
+        List<String> messages = messages(logs.iterator());
+        Collections.sort(messages);
+        return messages;
+    }
+
+    @Test
+    public void testDiskBacked() throws Exception {
+        ErrorLogger memory = makeLogger(false);
+        ErrorLogger disk = makeLogger(true);
+        try {
+            assertFalse(memory.isDiskBacked());
+            assertTrue(disk.isDiskBacked());
+            assertEquals(memory.getNumErrors(), disk.getNumErrors());
+            assertEquals(memory.getNumWarnings(), disk.getNumWarnings());
+            assertEquals(NUMLOGS, disk.getNumLogs());
+            for (int i = 0; i < NUMLOGS; i++)
+                assertEquals(memory.getLogSortKey(i), disk.getLogSortKey(i));
+            assertEquals(messages(memory.getLogs()), messages(disk.getLogs()));
+
+            // messages are paged in on demand and found by their index
+            for (int i = 0; i < NUMLOGS; i += 997) {
+                MessageLog log = disk.getLog(i);
+                assertEquals(memory.getLog(i).getMessage(), log.getMessage());
+                assertEquals(2, log.getNumHighlights());
+                assertEquals(i, disk.getLogIndex(log));
+            }
+
+            // per-cell and spatial queries, also with areas that touch the edges of messages
+            Rectangle2D[] areas = {
+                new Rectangle2D.Double(10, 10, 5, 20),
+                new Rectangle2D.Double(99, 0, 50, 300),
+                new Rectangle2D.Double(-5, 150, 5.5, 2.5),
+                new Rectangle2D.Double(40.25, 69.25, 0.5, 1.5)};
+            for (CellId cellId : cellIds) {
+                assertEquals(memory.getNumMessages(cellId, true), disk.getNumMessages(cellId, true));
+                assertEquals(memory.getNumMessages(cellId, false), disk.getNumMessages(cellId, false));
+                assertEquals(messages(memory.getAllLogs(cellId, null)), messages(disk.getAllLogs(cellId, null)));
+                for (Rectangle2D area : areas) {
+                    List<String> inArea = messages(disk.getAllLogs(cellId, area));
+                    assertFalse(inArea.isEmpty());
+                    assertTrue(inArea.size() < NUMLOGS / NUMCELLS);
+                    assertEquals(messages(memory.getAllLogs(cellId, area)), inArea);
+                }
+            }
+
+            // streamed XML export is the same
+            File memoryFile = File.createTempFile("errorloggertest", ".xml");
+            File diskFile = File.createTempFile("errorloggertest", ".xml");
+            memoryFile.deleteOnExit();
+            diskFile.deleteOnExit();
+            memory.exportErrorLogger(memoryFile.getPath());
+            disk.exportErrorLogger(diskFile.getPath());
+            assertTrue(Arrays.equals(Files.readAllBytes(memoryFile.toPath()), Files.readAllBytes(diskFile.toPath())));
+
+            // deletion
+            String next = disk.getLog(11).getMessageString();
+            memory.deleteLog(10);
+            disk.deleteLog(10);
+            assertEquals(NUMLOGS - 1, disk.getNumLogs());
+            assertEquals(next, disk.getLog(10).getMessageString());
+            assertEquals(messages(memory.getLogs()), messages(disk.getLogs()));
+
+            disk.clearAllLogs();
+            assertEquals(0, disk.getNumLogs());
+            assertFalse(disk.getLogs().hasNext());
+        } finally {
+            disk.dispose();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: RenderFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.user.redisplay;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.topology.ArcInst;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.variable.VarContext;
+import com.sun.electric.technology.ArcProto;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.tool.user.GraphicsPreferences;
+import com.sun.electric.tool.user.ui.LayerVisibility;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Offscreen rendering and arc routing of a cell, shared by the tests and benchmarks of the vector display.
+ */
+final class RenderFixture
+{
+	/** number of arcs that are routed across a cell */	static final int NUMARCS = 2000;
+
+	private RenderFixture() {}
+
+	/**
+	 * Method to render a whole cell into a square offscreen image with the vector display algorithm.
+	 * @param size the width and height of the image in pixels.
+	 * @param levelOfDetail true to draw small cells from their layer coverage.
+	 * @param tileSize the width and height of the tiles that are rendered separately.
+	 * @param numThreads the number of threads that render tiles.
+	 * @return the pixels of the image.
+	 */
+	static int[] render(Cell cell, GraphicsPreferences gp, LayerVisibility lv, int size, boolean levelOfDetail,
+		int tileSize, int numThreads)
+	{
+		Rectangle2D bounds = cell.getBounds();
+		double scale = Math.min(size / bounds.getWidth(), size / bounds.getHeight());
+		Point2D offset = new Point2D.Double(bounds.getCenterX(), bounds.getCenterY());
+		PixelDrawing offscreen = new PixelDrawing(new Dimension(size, size));
+		offscreen.renderImage(scale, offset, cell, VarContext.globalContext, gp, lv, true,
+			new VectorDrawing(false, levelOfDetail), tileSize, numThreads);
+		return offscreen.getBufferedImage().getRGB(0, 0, size, size, null, 0, size);
+	}
+
+	/**
+	 * Method to route NUMARCS short arcs across a cell.
+	 * @param offset the fraction of the spacing of the arcs by which they are moved up.
+	 */
+	static void routeArcs(Cell cell, EditingPreferences ep, ArcProto ap, double offset)
+	{
+		PrimitiveNode pin = ap.findPinProto();
+		Rectangle2D bounds = cell.getBounds();
+		double step = bounds.getHeight() / NUMARCS;
+		for (int i = 0; i < NUMARCS; i++)
+		{
+			double y = bounds.getMinY() + step * (i + offset);
+			double x = bounds.getMinX() + bounds.getWidth() * (i % 7) / 8;
+			NodeInst head = NodeInst.makeInstance(pin, ep, new Point2D.Double(x, y), 0, 0, cell);
+			NodeInst tail = NodeInst.makeInstance(pin, ep, new Point2D.Double(x + bounds.getWidth() / 8, y), 0, 0, cell);
+			if (ArcInst.makeInstance(ap, ep, head.getOnlyPortInst(), tail.getOnlyPortInst()) == null)
+				throw new IllegalStateException("Cannot route arc " + i + " in " + cell);
+		}
+	}
+}
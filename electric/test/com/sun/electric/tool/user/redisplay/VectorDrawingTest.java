@@ -0,0 +1,219 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: VectorDrawingTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.user.redisplay;
+
+import com.sun.electric.database.EditingPreferences;
+import com.sun.electric.database.Snapshot;
+import com.sun.electric.database.SnapshotAnalyze;
+import com.sun.electric.database.hierarchy.Cell;
+import com.sun.electric.database.hierarchy.EDatabase;
+import com.sun.electric.database.topology.NodeInst;
+import com.sun.electric.database.topology.RTNode;
+import com.sun.electric.technology.ArcProto;
+import com.sun.electric.technology.Layer;
+import com.sun.electric.technology.PrimitiveNode;
+import com.sun.electric.tool.user.GraphicsPreferences;
+import com.sun.electric.tool.user.ui.LayerVisibility;
+import com.sun.electric.tool.util.test.AbstractJunitBaseClass;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of tiled, multi-threaded, and level-of-detail rendering with the vector display algorithm,
+ * and of updating its cache after a change.
+ */
+public class VectorDrawingTest extends AbstractJunitBaseClass
+{
+	private static final int SIZE = 1024;
+
+	/**
+	 * Method to return the bounds of the pixels that are not the background color.
+	 */
+	private static Rectangle drawnBounds(int[] pixels, int size)
+	{
+		Rectangle drawn = null;
+		for (int i = 0; i < pixels.length; i++)
+		{
+			if (pixels[i] == pixels[0]) continue;
+			if (drawn == null) drawn = new Rectangle(i % size, i / size, 1, 1); else
+				drawn.add(new Rectangle(i % size, i / size, 1, 1));
+		}
+		return drawn;
+	}
+
+	/**
+	 * The vector cache is shared by the whole JVM and keeps the database it was made for,
+	 * so everything is done by one test on one database.
+	 */
+	@Test
+	public void testRendering() throws Exception
+	{
+		EDatabase.setClientDatabase(EDatabase.serverDatabase());
+		Cell cell = loadCell("placementTests", "PlacementTest4");
+		assertNotNull(cell);
+		GraphicsPreferences gp = new GraphicsPreferences(true);
+		LayerVisibility lv = new LayerVisibility(true);
+
+		// one tile covering the window is the same as rendering it directly
+		int[] whole = RenderFixture.render(cell, gp, lv, SIZE, false, SIZE, 1);
+		int[] tiled = RenderFixture.render(cell, gp, lv, SIZE, false, 80, 4);
+		int background = whole[0];
+		int drawn = 0;
+		for (int i = 0; i < whole.length; i++)
+		{
+			if (whole[i] != background) drawn++;
+			if (whole[i] != tiled[i])
+				fail("Pixel (" + (i % SIZE) + "," + (i / SIZE) + ") differs in tiled rendering");
+		}
+		assertTrue(drawn > whole.length / 10);
+
+		// zoomed out, cells are drawn from their layer coverage in the same place as their contents
+		int small = 128;
+		int[] detailed = RenderFixture.render(cell, gp, lv, small, false, small, 1);
+		int[] coarse = RenderFixture.render(cell, gp, lv, small, true, small, 1);
+		Rectangle detailedBounds = drawnBounds(detailed, small);
+		Rectangle coarseBounds = drawnBounds(coarse, small);
+		assertNotNull(coarseBounds);
+		assertTrue(Math.abs(detailedBounds.getMinX() - coarseBounds.getMinX()) <= 2);
+		assertTrue(Math.abs(detailedBounds.getMaxX() - coarseBounds.getMaxX()) <= 2);
+		assertTrue(Math.abs(detailedBounds.getMinY() - coarseBounds.getMinY()) <= 2);
+		assertTrue(Math.abs(detailedBounds.getMaxY() - coarseBounds.getMaxY()) <= 2);
+		assertArrayEquals(coarse, RenderFixture.render(cell, gp, lv, small, true, 32, 4));
+
+		checkUpdate(cell, gp, lv, small);
+	}
+
+	/**
+	 * Method to route many arcs and change a subcell, and check that the cache,
+	 * which is updated for the changed cells only, draws the same as a cache that is built again.
+	 */
+	private void checkUpdate(Cell cell, GraphicsPreferences gp, LayerVisibility lv, int small)
+	{
+		EDatabase database = EDatabase.serverDatabase();
+		EditingPreferences ep = new EditingPreferences(true, database.getTechPool());
+		VectorCache cache = VectorCache.theCache;
+		cache.setUpdateThreads(4);
+		RenderFixture.render(cell, gp, lv, SIZE, false, SIZE, 1);
+		RenderFixture.render(cell, gp, lv, small, true, small, 1);
+
+		// find a subcell to change, and another that is left alone
+		Cell changedCell = null, unchangedCell = null;
+		for (Iterator<NodeInst> it = cell.getNodes(); it.hasNext(); )
+		{
+			NodeInst ni = it.next();
+			if (!ni.isCellInstance()) continue;
+			Cell subCell = (Cell)ni.getProto();
+			if (changedCell == null && subCell.getNumArcs() > 0) changedCell = subCell; else
+				if (unchangedCell == null && subCell != changedCell) unchangedCell = subCell;
+		}
+		assertNotNull(changedCell);
+		assertNotNull(unchangedCell);
+		VectorCache.VectorCell changedVC = cache.findCellGroup(changedCell.getId()).getAnyCell();
+		VectorCache.VectorCell unchangedVC = cache.findCellGroup(unchangedCell.getId()).getAnyCell();
+		assertNotNull(unchangedVC);
+		Layer unchangedLayer = unchangedVC.getKnownLayers().get(0);
+		List<VectorCache.VectorBase> unchangedShapes = unchangedVC.getShapes(unchangedLayer);
+		int numUnchangedShapes = unchangedShapes.size();
+
+		// route arcs across the top cell and delete an arc in the subcell
+		Snapshot oldSnapshot = database.backup();
+		ArcProto ap = cell.getTechnology().findArcProto("Metal-1");
+		PrimitiveNode pin = ap.findPinProto();
+		RenderFixture.routeArcs(cell, ep, ap, 0);
+		changedCell.getArcs().next().kill();
+		updateCache(cell, oldSnapshot, false);
+
+		// only the changed cells are cached again
+		assertSame(changedVC, cache.findCellGroup(changedCell.getId()).getAnyCell());
+		assertSame(unchangedVC, cache.findCellGroup(unchangedCell.getId()).getAnyCell());
+		assertSame(unchangedShapes, unchangedVC.getShapes(unchangedLayer));
+		assertEquals(numUnchangedShapes, unchangedShapes.size());
+		assertNotNull(cache.findCellGroup(cell.getId()).getAnyCell());
+		int[] updated = RenderFixture.render(cell, gp, lv, SIZE, false, SIZE, 1);
+		int[] updatedCoarse = RenderFixture.render(cell, gp, lv, small, true, small, 1);
+
+		// compare with a cache that is built from scratch
+		cache.clearCache();
+		int[] rebuilt = RenderFixture.render(cell, gp, lv, SIZE, false, SIZE, 1);
+		for (int i = 0; i < rebuilt.length; i++)
+		{
+			if (rebuilt[i] != updated[i])
+				fail("Pixel (" + (i % SIZE) + "," + (i / SIZE) + ") differs after updating the cache");
+		}
+		assertArrayEquals(RenderFixture.render(cell, gp, lv, small, true, small, 1), updatedCoarse);
+
+		// make the subcell bigger: its instances are cached again with the new size
+		database.lock(true);
+		database.lowLevelBeginChanging(null);
+		oldSnapshot = database.backup();
+		Rectangle2D subBounds = changedCell.getBounds();
+		NodeInst.makeInstance(pin, ep, new Point2D.Double(subBounds.getMaxX() + 10, subBounds.getMaxY() + 10), 0, 0, changedCell);
+		updateCache(cell, oldSnapshot, false);
+		VectorCache.VectorCell topVC = cache.findCellGroup(cell.getId()).getAnyCell();
+		assertNotNull(topVC);
+		int numInstances = 0;
+		for (Iterator<VectorCache.VectorSubCell> it = new RTNode.Search<VectorCache.VectorSubCell>(topVC.getSubCellTree()); it.hasNext(); )
+		{
+			VectorCache.VectorSubCell vsc = it.next();
+			if (vsc.getCellId() != changedCell.getId()) continue;
+			assertEquals(cell.getNodeById(vsc.getNode().nodeId).getBounds(), vsc.getBounds());
+			numInstances++;
+		}
+		assertTrue(numInstances > 0);
+
+		// an interrupted update keeps the interrupt and leaves no partly cached cell behind
+		database.lock(true);
+		database.lowLevelBeginChanging(null);
+		oldSnapshot = database.backup();
+		RenderFixture.routeArcs(cell, ep, ap, 0.5);
+		updateCache(cell, oldSnapshot, true);
+		assertTrue(Thread.interrupted());
+		int[] interrupted = RenderFixture.render(cell, gp, lv, SIZE, false, SIZE, 1);
+		cache.clearCache();
+		assertArrayEquals(RenderFixture.render(cell, gp, lv, SIZE, false, SIZE, 1), interrupted);
+	}
+
+	/**
+	 * Method to finish a change to the database and update the cache, as is done when a job ends.
+	 * @param interrupt true to update the cache in a thread that has been interrupted.
+	 */
+	private static void updateCache(Cell cell, Snapshot oldSnapshot, boolean interrupt)
+	{
+		EDatabase database = EDatabase.serverDatabase();
+		Snapshot newSnapshot = database.backup();
+
+		// the change is finished, so the display may examine the database from other threads
+		database.lowLevelEndChanging();
+		database.unlock();
+		SnapshotAnalyze sa = new SnapshotAnalyze(oldSnapshot, newSnapshot);
+		if (interrupt) Thread.currentThread().interrupt();
+		VectorCache.theCache.updateChange(Collections.singleton(cell.getId()), sa);
+	}
+}
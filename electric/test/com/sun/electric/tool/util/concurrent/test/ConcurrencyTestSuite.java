@@ -26,7 +26,7 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses( { ThreadPool_T.class, PForJob_T.class, PReduceJob_T.class, Parallel_T.class,
-		PWhileJob_T.class, CollectionTestsTest.class })
+		PWhileJob_T.class, CollectionTestsTest.class, ForkJoin_T.class })
 public class ConcurrencyTestSuite {
 
 }
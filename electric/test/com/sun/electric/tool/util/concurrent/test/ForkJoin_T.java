@@ -0,0 +1,220 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ForkJoin_T.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.tool.util.concurrent.test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.electric.tool.util.concurrent.Parallel;
+import com.sun.electric.tool.util.concurrent.datastructures.IStructure;
+import com.sun.electric.tool.util.concurrent.exceptions.PoolExistsException;
+import com.sun.electric.tool.util.concurrent.patterns.PForTask;
+import com.sun.electric.tool.util.concurrent.patterns.PWhileJob.PWhileTask;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.IThreadPool;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPool;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolJdkForkJoin;
+import com.sun.electric.tool.util.concurrent.runtime.taskParallel.ThreadPoolSharedForkJoin;
+import com.sun.electric.tool.util.concurrent.test.PReduceJob_T.PITask;
+import com.sun.electric.tool.util.concurrent.utils.BlockedRange1D;
+import com.sun.electric.tool.util.concurrent.utils.ConcurrentCollectionFactory;
+
+/**
+ * Tests of the parallel patterns in ForkJoin pools, including nested parallel
+ * loops and a comparison of the results of ThreadPool and ForkJoin.
+ */
+public class ForkJoin_T
+{
+
+    private static final int STEPS = 1000000;
+
+    @Test
+    public void testParallelForShared()
+    {
+        AtomicIntegerArray visits = new AtomicIntegerArray(1000);
+        Parallel.For(new BlockedRange1D(0, visits.length(), 16), new VisitTask(visits), ThreadPoolSharedForkJoin.getInstance());
+        for (int i = 0; i < visits.length(); i++)
+            Assert.assertEquals(1, visits.get(i));
+    }
+
+    @Test
+    public void testParallelReduceShared()
+    {
+        double pi = Parallel.Reduce(new BlockedRange1D(0, STEPS, 128), new PITask(1.0 / STEPS), ThreadPoolSharedForkJoin.getInstance());
+        Assert.assertEquals(Math.PI, pi, 0.0001);
+    }
+
+    @Test
+    public void testParallelWhileShared()
+    {
+        IStructure<Integer> data = ConcurrentCollectionFactory.createLockFreeStack();
+        for (int i = 0; i < 100; i++)
+            data.add(i);
+        AtomicInteger sum = new AtomicInteger();
+        Parallel.While(data, new SumWhileTask(sum), ThreadPoolSharedForkJoin.getInstance());
+        Assert.assertEquals(99 * 100 / 2, sum.get());
+    }
+
+    @Test
+    public void testSharedPoolOutlivesShutdown() throws InterruptedException
+    {
+        ThreadPoolSharedForkJoin pool = ThreadPoolSharedForkJoin.getInstance();
+        pool.shutdown();
+        pool.join();
+        Assert.assertSame(pool, ThreadPoolSharedForkJoin.getInstance());
+        testParallelReduceShared();
+    }
+
+    /**
+     * Every outer iteration runs an inner parallel reduce in the same pool.
+     * A pool of two workers deadlocks unless waiting workers help.
+     */
+    @Test(timeout = 60000)
+    public void testNestedParallelism() throws InterruptedException
+    {
+        ThreadPoolJdkForkJoin pool = ThreadPoolJdkForkJoin.initialize(2);
+        checkNested(pool);
+        pool.shutdown();
+        checkNested(ThreadPoolSharedForkJoin.getInstance());
+    }
+
+    private void checkNested(IThreadPool pool)
+    {
+        double[] results = new double[16];
+        Parallel.For(new BlockedRange1D(0, results.length, 1), new NestedTask(results, pool), pool);
+        for (double pi : results)
+            Assert.assertEquals(Math.PI, pi, 0.0001);
+    }
+
+    /**
+     * Several tools run parallel loops in the shared pool at the same time.
+     */
+    @Test(timeout = 60000)
+    public void testConcurrentJobs() throws InterruptedException
+    {
+        final double[] results = new double[4];
+        Thread[] tools = new Thread[results.length];
+        for (int i = 0; i < tools.length; i++)
+        {
+            final int index = i;
+            tools[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    results[index] = Parallel.Reduce(new BlockedRange1D(0, STEPS, 128), new PITask(1.0 / STEPS),
+                        ThreadPoolSharedForkJoin.getInstance());
+                }
+            };
+            tools[i].start();
+        }
+        for (Thread t : tools)
+            t.join();
+        for (double pi : results)
+            Assert.assertEquals(Math.PI, pi, 0.0001);
+    }
+
+    /**
+     * Compares a parallel reduce in ThreadPool, in a private ForkJoin pool
+     * and in the shared ForkJoin pool with a serial one.
+     */
+    @Test
+    public void testSameResultInAllPools() throws PoolExistsException, InterruptedException
+    {
+        double step = 1.0 / STEPS;
+        BlockedRange1D range = new BlockedRange1D(0, STEPS, 4096);
+        ThreadPoolJdkForkJoin serialPool = ThreadPoolJdkForkJoin.initialize(1);
+        double serial = Parallel.Reduce(range, new PITask(step), serialPool);
+        serialPool.shutdown();
+
+        for (int threads : new int[] {2, 4})
+        {
+            ThreadPool threadPool = ThreadPool.initialize(threads);
+            double resultThreadPool = Parallel.Reduce(range, new PITask(step));
+            threadPool.shutdown();
+
+            ThreadPoolJdkForkJoin forkJoin = ThreadPoolJdkForkJoin.initialize(threads);
+            double resultForkJoin = Parallel.Reduce(range, new PITask(step), forkJoin);
+            forkJoin.shutdown();
+
+            Assert.assertEquals(serial, resultThreadPool, 0.000000001);
+            Assert.assertEquals(serial, resultForkJoin, 0.000000001);
+        }
+
+        double resultShared = Parallel.Reduce(range, new PITask(step), ThreadPoolSharedForkJoin.getInstance());
+        Assert.assertEquals(serial, resultShared, 0.000000001);
+    }
+
+    public static class VisitTask extends PForTask<BlockedRange1D>
+    {
+        private AtomicIntegerArray visits;
+
+        public VisitTask(AtomicIntegerArray visits)
+        {
+            this.visits = visits;
+        }
+
+        @Override
+        public void execute()
+        {
+            for (int i = range.start(); i < range.end(); i++)
+                visits.incrementAndGet(i);
+        }
+    }
+
+    public static class NestedTask extends PForTask<BlockedRange1D>
+    {
+        private double[] results;
+        private IThreadPool pool;
+
+        public NestedTask(double[] results, IThreadPool pool)
+        {
+            this.results = results;
+            this.pool = pool;
+        }
+
+        @Override
+        public void execute()
+        {
+            for (int i = range.start(); i < range.end(); i++)
+                results[i] = Parallel.Reduce(new BlockedRange1D(0, STEPS / 10, 1000), new PITask(10.0 / STEPS), pool);
+        }
+    }
+
+    public static class SumWhileTask extends PWhileTask<Integer>
+    {
+        private AtomicInteger sum;
+
+        public SumWhileTask(AtomicInteger sum)
+        {
+            this.sum = sum;
+        }
+
+        @Override
+        public void execute(Integer item)
+        {
+            sum.addAndGet(item.intValue());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ACL2ReaderTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.util.acl2;
+
+import java.io.File;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of reading a serialized file by several threads.
+ */
+public class ACL2ReaderTest
+{
+    private static final int NUMELEMS = 100000;
+    private static final int NUMTHREADS = 4;
+
+    @BeforeClass
+    public static void setUpClass()
+    {
+        ACL2Object.initHonsMananger("ACL2ReaderTest");
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        ACL2Object.closeHonsManager();
+    }
+
+    @Test
+    public void testParallelRead() throws Exception
+    {
+        ACL2Object tree = ACL2TreeFixture.makeTree(NUMELEMS);
+        File file = File.createTempFile("acl2readertest", ".dat");
+        file.deleteOnExit();
+        ACL2Writer.write(tree, file);
+
+        ACL2Reader serial = new ACL2Reader(file);
+        ACL2Reader parallel = new ACL2Reader(file, NUMTHREADS);
+
+        assertEquals(tree, serial.root);
+        assertEquals(tree, parallel.root);
+        // normed objects of both reads are the same objects
+        assertSame(tree, serial.root);
+        assertSame(tree, parallel.root);
+        assertEquals(serial.nCons, parallel.nCons);
+        assertEquals(serial.nNormCons, parallel.nNormCons);
+        assertTrue(parallel.getStats().contains("conses"));
+    }
+}
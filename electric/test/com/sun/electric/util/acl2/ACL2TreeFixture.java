@@ -0,0 +1,63 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: ACL2TreeFixture.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.util.acl2;
+
+import static com.sun.electric.util.acl2.ACL2.*;
+import java.math.BigInteger;
+
+/**
+ * ACL2 trees with normed and unnormed parts, shared by the tests and benchmarks of the serialized reader.
+ */
+final class ACL2TreeFixture
+{
+    private ACL2TreeFixture()
+    {
+    }
+
+    /**
+     * Method to make a list of elements with shared subtrees, wide integers, rationals and strings,
+     * where every other element is normed.
+     * @param numElems the number of elements.
+     * @return the list.
+     */
+    static ACL2Object makeTree(int numElems)
+    {
+        ACL2Object list = NIL;
+        ACL2Object shared = NIL;
+        for (int i = 0; i < numElems; i++)
+        {
+            ACL2Object num = ACL2Object.valueOf(BigInteger.valueOf(i % 1000).shiftLeft(70));
+            ACL2Object rat = new ACL2Rational(Rational.valueOf(BigInteger.valueOf(3 * (i % 77) + 1), BigInteger.valueOf(3)));
+            ACL2Object str = ACL2Object.valueOf("s" + (i % 500));
+            if (i % 100 == 0)
+            {
+                shared = NIL;
+            }
+            shared = hons(ACL2Object.valueOf(i % 13), shared);
+            ACL2Object elem = i % 2 == 0
+                ? hons(num, hons(rat, hons(str, shared)))
+                : cons(num, cons(str, shared));
+            list = hons(elem, list);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,132 @@
+/* -*- tab-width: 4 -*-
+ *
+ * Electric(tm) VLSI Design System
+ *
+ * File: WeakInternTableTest.java
+ *
+ * Copyright (c) 2017, Static Free Software. All rights reserved.
+ *
+ * Electric(tm) is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Electric(tm) is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sun.electric.util.collections;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test of the weak lock-striped intern table.
+ */
+public class WeakInternTableTest {
+
+    private static final int NUMKEYS = 50000;
+    private static final int NUMTHREADS = 4;
+
+    /** Canonical object of a string key */
+    private static class Value {
+
+        private final String s;
+
+        private Value(String s) {
+            this.s = s;
+        }
+    }
+
+    private static WeakInternTable<String, Value> newTable() {
+        return new WeakInternTable<String, Value>((k, v) -> v.s.equals(k));
+    }
+
+    @Test
+    public void testIntern() {
+        WeakInternTable<String, Value> table = newTable();
+        List<Value> values = new ArrayList<Value>();
+        for (int i = 0; i < NUMKEYS; i++) {
+            values.add(table.intern("k" + i, Value::new));
+        }
+        assertEquals(NUMKEYS, table.size());
+        for (int i = 0; i < NUMKEYS; i++) {
+            // an equal temporary key finds the same object
+            assertSame(values.get(i), table.intern(new String("k" + i), Value::new));
+            assertSame(values.get(i), table.get("k" + i));
+        }
+        assertNull(table.get("none"));
+        assertEquals(NUMKEYS, table.size());
+        table.clear();
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testConcurrentIntern() throws Exception {
+        WeakInternTable<String, Value> table = newTable();
+        ExecutorService pool = Executors.newFixedThreadPool(NUMTHREADS);
+        try {
+            List<Future<Value[]>> futures = new ArrayList<Future<Value[]>>();
+            for (int t = 0; t < NUMTHREADS; t++) {
+                int offset = t * NUMKEYS / NUMTHREADS;
+                futures.add(pool.submit(() -> {
+                    Value[] result = new Value[NUMKEYS];
+                    for (int i = 0; i < NUMKEYS; i++) {
+                        int k = (i + offset) % NUMKEYS;
+                        result[k] = table.intern("k" + k, Value::new);
+                    }
+                    return result;
+                }));
+            }
+            Value[] first = futures.get(0).get();
+            for (Future<Value[]> future : futures) {
+                Value[] result = future.get();
+                for (int i = 0; i < NUMKEYS; i++) {
+                    assertSame(first[i], result[i]);
+                }
+            }
+            assertEquals(NUMKEYS, table.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testReclaim() {
+        WeakInternTable<String, Value> table = newTable();
+        Value kept = table.intern("kept", Value::new);
+        WeakReference<Value> probe = new WeakReference<Value>(table.intern("probe", Value::new));
+        for (int i = 0; i < NUMKEYS; i++) {
+            table.intern("k" + i, Value::new);
+        }
+        for (int i = 0; i < 20 && probe.get() != null; i++) {
+            System.gc();
+        }
+        if (probe.get() != null) {
+            // the collector didn't run
+            return;
+        }
+        // cleared references are queued by the reference handler thread after the collection
+        for (int i = 0; i < 100 && table.size() >= NUMKEYS; i++) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        assertTrue(table.size() < NUMKEYS);
+        assertSame(kept, table.get("kept"));
+        assertNull(table.get("probe"));
+    }
+}